@@ -6,6 +6,7 @@ import ntnu.idata2302.sfp.library.SmartFarmingProtocol;
 import ntnu.idata2302.sfp.library.body.announce.AnnounceBody;
 import ntnu.idata2302.sfp.library.body.capabilities.CapabilitiesQueryBody;
 import ntnu.idata2302.sfp.library.body.command.CommandBody;
+import ntnu.idata2302.sfp.library.body.command.GroupCommandBody;
 import ntnu.idata2302.sfp.library.body.subscribe.SubscribeBody;
 import ntnu.idata2302.sfp.library.body.subscribe.UnsubscribeBody;
 import ntnu.idata2302.sfp.library.header.Header;
@@ -35,12 +36,45 @@ public class PacketFactory {
    * Builds a CAPABILITIES_QUERY packet requesting the server to send
    * the list of known sensor nodes.
    *
+   * <p>With a known version the server answers with only what changed since,
+   * or with a not-modified list if nothing did.</p>
+   *
+   * @param sourceId     the ID of the controller sending the query
+   * @param requestId    unique request identifier
+   * @param knownVersion capabilities version the controller holds (may be null)
+   * @return the constructed protocol packet
+   */
+
+  public static SmartFarmingProtocol capabilitiesQuery(int sourceId, int requestId,
+                                                       Long knownVersion) {
+    Header header = new Header(
+          new byte[]{ 'S', 'F', 'P' },
+          (byte) 1,
+          MessageTypes.CAPABILITIES_QUERY,
+          sourceId,
+          NodeIds.SERVER,
+          0,
+          UUID.randomUUID()
+    );
+
+    CapabilitiesQueryBody body = new CapabilitiesQueryBody(requestId, knownVersion);
+
+    return new SmartFarmingProtocol(header, body);
+  }
+
+  /**
+   * Builds a CAPABILITIES_QUERY packet asking for one page of the list of
+   * known sensor nodes, in node id order.
+   *
    * @param sourceId  the ID of the controller sending the query
    * @param requestId unique request identifier
+   * @param cursor    the next cursor of the previous page, or {@code null} for the first
+   * @param limit     maximum number of nodes in the page
    * @return the constructed protocol packet
    */
 
-  public static SmartFarmingProtocol capabilitiesQuery(int sourceId, int requestId) {
+  public static SmartFarmingProtocol capabilitiesPage(int sourceId, int requestId,
+                                                      Integer cursor, int limit) {
     Header header = new Header(
           new byte[]{ 'S', 'F', 'P' },
           (byte) 1,
@@ -51,7 +85,7 @@ public class PacketFactory {
           UUID.randomUUID()
     );
 
-    CapabilitiesQueryBody body = new CapabilitiesQueryBody(requestId);
+    CapabilitiesQueryBody body = CapabilitiesQueryBody.page(requestId, null, cursor, limit);
 
     return new SmartFarmingProtocol(header, body);
   }
@@ -114,6 +148,56 @@ public class PacketFactory {
     return new SmartFarmingProtocol(header, body);
   }
 
+  /**
+   * Builds a bulk SUBSCRIBE packet for several sensor nodes, acknowledged by
+   * the server with a single SUBSCRIBE_ACK.
+   *
+   * @param sourceId      controller ID
+   * @param requestId     unique request identifier
+   * @param sensorNodeIds IDs of the nodes the controller wants to subscribe to
+   * @return the constructed SUBSCRIBE packet
+   */
+
+  public static SmartFarmingProtocol subscribeNodes(int sourceId, int requestId,
+                                                    List<Integer> sensorNodeIds) {
+    Header header = new Header(
+          new byte[]{ 'S', 'F', 'P' },
+          (byte) 1,
+          MessageTypes.SUBSCRIBE,
+          sourceId,
+          NodeIds.SERVER,
+          0,
+          UUID.randomUUID()
+    );
+
+    return new SmartFarmingProtocol(header, SubscribeBody.toNodes(requestId, sensorNodeIds));
+  }
+
+  /**
+   * Builds a SUBSCRIBE packet for a node group. The server forwards
+   * DATA_REPORT messages of every current and future member of the group;
+   * {@link SubscribeBody#ALL_SENSOR_NODES} selects all sensor nodes.
+   *
+   * @param sourceId  controller ID
+   * @param requestId unique request identifier
+   * @param group     name of the group to subscribe to
+   * @return the constructed SUBSCRIBE packet
+   */
+
+  public static SmartFarmingProtocol subscribeGroup(int sourceId, int requestId, String group) {
+    Header header = new Header(
+          new byte[]{ 'S', 'F', 'P' },
+          (byte) 1,
+          MessageTypes.SUBSCRIBE,
+          sourceId,
+          NodeIds.SERVER,
+          0,
+          UUID.randomUUID()
+    );
+
+    return new SmartFarmingProtocol(header, SubscribeBody.toGroup(requestId, group));
+  }
+
   /**
    * Builds an UNSUBSCRIBE packet. This instructs the server to stop sending
    * DATA_REPORT updates for the given sensor node.
@@ -144,6 +228,31 @@ public class PacketFactory {
     return new SmartFarmingProtocol(header, body);
   }
 
+  /**
+   * Builds a bulk UNSUBSCRIBE packet for several sensor nodes, acknowledged by
+   * the server with a single UNSUBSCRIBE_ACK.
+   *
+   * @param sourceId      controller ID
+   * @param requestId     unique request identifier
+   * @param sensorNodeIds IDs of the nodes the controller wants to unsubscribe from
+   * @return the constructed UNSUBSCRIBE packet
+   */
+
+  public static SmartFarmingProtocol unSubscribeNodes(int sourceId, int requestId,
+                                                      List<Integer> sensorNodeIds) {
+    Header header = new Header(
+          new byte[]{ 'S', 'F', 'P' },
+          (byte) 1,
+          MessageTypes.UNSUBSCRIBE,
+          sourceId,
+          NodeIds.SERVER,
+          0,
+          UUID.randomUUID()
+    );
+
+    return new SmartFarmingProtocol(header, UnsubscribeBody.fromNodes(requestId, sensorNodeIds));
+  }
+
   /**
    * Builds a COMMAND packet to send actuator updates to a specific sensor node.
    *
@@ -175,4 +284,37 @@ public class PacketFactory {
     return new SmartFarmingProtocol(header, body);
   }
 
+  /**
+   * Builds a GROUP_COMMAND packet asking the server to send the same actuator
+   * updates to many sensor nodes and report back once.
+   *
+   * @param sourceId      controller ID
+   * @param requestId     unique request identifier
+   * @param nodeIds       target sensor node IDs (may be null)
+   * @param group         target group name (may be null)
+   * @param actuatorType  only target nodes having this actuator (may be null)
+   * @param parts         list of actuator updates (value changes)
+   * @param timeoutMillis how long the server waits for acknowledgements, or null for its default
+   * @return the constructed GROUP_COMMAND protocol packet
+   */
+
+  public static SmartFarmingProtocol groupCommand(int sourceId, int requestId,
+                                                  List<Integer> nodeIds, String group,
+                                                  String actuatorType,
+                                                  List<CommandBody.CommandPart> parts,
+                                                  Integer timeoutMillis) {
+    Header header = new Header(
+          new byte[]{ 'S', 'F', 'P' },
+          (byte) 1,
+          MessageTypes.GROUP_COMMAND,
+          sourceId,
+          NodeIds.SERVER,
+          0,
+          UUID.randomUUID()
+    );
+
+    return new SmartFarmingProtocol(header, new GroupCommandBody(
+          requestId, nodeIds, group, actuatorType, parts, timeoutMillis));
+  }
+
 }
@@ -1,7 +1,9 @@
 package ntnu.idata2302.sfp.controlPanel.gui.controllers;
 
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
 import javafx.application.Platform;
@@ -18,6 +20,7 @@ import ntnu.idata2302.sfp.controlPanel.net.AppContext;
 import ntnu.idata2302.sfp.controlPanel.net.EventBus;
 import ntnu.idata2302.sfp.controlPanel.net.SfpClient;
 import ntnu.idata2302.sfp.library.SmartFarmingProtocol;
+import ntnu.idata2302.sfp.library.body.capabilities.CapabilitiesDeltaBody;
 import ntnu.idata2302.sfp.library.body.capabilities.CapabilitiesListBody;
 import ntnu.idata2302.sfp.library.body.data.DataReportBody;
 import ntnu.idata2302.sfp.library.header.Header;
@@ -153,6 +156,9 @@ public class NodesController implements Unloadable {
   /**
    * Unsubscribes from updates for the given node ID and removes it from the UI.
    *
+   * <p>The server excludes the node from the wildcard subscription, so its
+   * reports stop until the next capabilities refresh subscribes again.</p>
+   *
    * @param nodeId the identifier of the node to unsubscribe and remove
    */
 
@@ -176,7 +182,8 @@ public class NodesController implements Unloadable {
   private void handlePacket(SmartFarmingProtocol packet) {
     switch (packet.getHeader().getMessageType()) {
       case MessageTypes.ANNOUNCE_ACK -> handleAnnounceAck(packet);
-      case MessageTypes.CAPABILITIES_LIST -> handleCapabilities(packet);
+      case MessageTypes.CAPABILITIES_LIST, MessageTypes.CAPABILITIES_DELTA ->
+            handleCapabilities(packet);
       case MessageTypes.DATA_REPORT -> handleDataReport(packet);
     }
   }
@@ -195,35 +202,53 @@ public class NodesController implements Unloadable {
   }
 
   /**
-   * Handles a CAPABILITIES_LIST packet by creating NodeEntry objects for
-   * each reported node and subscribing to their data reports.
+   * Handles a CAPABILITIES_LIST or CAPABILITIES_DELTA packet by bringing the
+   * NodeEntry objects in line with the client's capabilities view, which the
+   * client has already updated from the packet.
+   *
+   * <p>An answer to this controller's query also subscribes to the data
+   * reports of all sensor nodes with a single wildcard subscription. Nodes
+   * that connect later are picked up by the same subscription; deltas pushed
+   * by the server only update the list.</p>
    *
-   * @param packet the CAPABILITIES_LIST packet
+   * @param packet the CAPABILITIES_LIST or CAPABILITIES_DELTA packet
    */
 
   private void handleCapabilities(SmartFarmingProtocol packet) {
-    if (!(packet.getBody() instanceof CapabilitiesListBody capBody)) {
+    boolean answer;
+    if (packet.getBody() instanceof CapabilitiesListBody list) {
+      // Pages of a paged load count once, with the last page
+      answer = list.nextCursor() == null;
+    } else if (packet.getBody() instanceof CapabilitiesDeltaBody delta) {
+      answer = delta.requestId() != 0;
+    } else {
       return;
     }
 
-    capBody.nodes().forEach(nodeDesc -> {
+    Set<Integer> known = new HashSet<>();
+    client.getCapabilities().nodes().forEach(nodeDesc -> {
       Integer id = nodeDesc.nodeId();
-      if (id == null) {
-        return;
+      if (id != null) {
+        known.add(id);
+        nodes.putIfAbsent(id, new NodeEntry(id, null));
       }
+    });
 
-      nodes.putIfAbsent(id, new NodeEntry(id, null));
-
-      Platform.runLater(() -> {
+    Platform.runLater(() -> {
+      for (int id : known) {
         NodeEntry entry = nodes.get(id);
-        if (!observableNodes.contains(entry)) {
-
+        if (entry != null && !observableNodes.contains(entry)) {
           observableNodes.add(entry);
         }
-      });
-
-      client.sendSubscribe(id);
+      }
+      observableNodes.removeIf(entry -> !known.contains(entry.nodeId()));
+      nodes.keySet().retainAll(known);
+      uiControlsPerNode.keySet().retainAll(known);
     });
+
+    if (answer) {
+      client.sendSubscribeAll();
+    }
   }
 
   /**
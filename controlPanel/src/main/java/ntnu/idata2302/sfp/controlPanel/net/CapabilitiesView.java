@@ -0,0 +1,153 @@
+package ntnu.idata2302.sfp.controlPanel.net;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import ntnu.idata2302.sfp.library.body.capabilities.CapabilitiesDeltaBody;
+import ntnu.idata2302.sfp.library.body.capabilities.CapabilitiesListBody;
+import ntnu.idata2302.sfp.library.node.NodeDescriptor;
+
+/**
+ * The control panel's copy of the server's capabilities list.
+ *
+ * <p>The view is filled from CAPABILITIES_LIST answers and kept current with
+ * the CAPABILITIES_DELTA packets the server pushes, so the list survives
+ * scene switches and a re-query only has to name the version it holds.</p>
+ *
+ * <p>The first copy may be loaded in pages. Pages are collected aside and
+ * replace the view at once when the last one arrives, with the version of
+ * the first page; deltas are ignored meanwhile, and a conditional query for
+ * that version afterwards catches up with changes made while paging.</p>
+ */
+
+public class CapabilitiesView {
+
+  private final Map<Integer, NodeDescriptor> nodes = new LinkedHashMap<>();
+  private Long version;
+  private Map<Integer, NodeDescriptor> pending;
+  private Long pendingVersion;
+
+  /**
+   * Returns the capabilities version this view holds.
+   *
+   * @return the version, or {@code null} before the first full list
+   */
+
+  public synchronized Long version() {
+    return version;
+  }
+
+  /**
+   * Returns the known sensor node descriptors.
+   *
+   * @return a copy of the descriptors in the order they were first listed
+   */
+
+  public synchronized List<NodeDescriptor> nodes() {
+    return List.copyOf(nodes.values());
+  }
+
+  /**
+   * Applies a CAPABILITIES_LIST answer.
+   *
+   * @param body the received list
+   */
+
+  public synchronized void apply(CapabilitiesListBody body) {
+    if (Boolean.TRUE.equals(body.notModified())) {
+      return;
+    }
+    nodes.clear();
+    List<NodeDescriptor> listed = body.resolvedNodes();
+    if (listed != null) {
+      for (NodeDescriptor descriptor : listed) {
+        if (descriptor.nodeId() != null) {
+          nodes.put(descriptor.nodeId(), descriptor);
+        }
+      }
+    }
+    version = body.version();
+  }
+
+  /**
+   * Starts loading the list in pages.
+   */
+
+  public synchronized void beginPaging() {
+    pending = new LinkedHashMap<>();
+    pendingVersion = null;
+  }
+
+  /**
+   * Returns whether a paged load is in progress.
+   *
+   * @return {@code true} between {@link #beginPaging()} and the last page
+   */
+
+  public synchronized boolean isPaging() {
+    return pending != null;
+  }
+
+  /**
+   * Applies one page of a paged load.
+   *
+   * @param page the received page
+   * @return {@code true} if this was the last page and the view was replaced
+   */
+
+  public synchronized boolean applyPage(CapabilitiesListBody page) {
+    if (pending == null) {
+      return false;
+    }
+    if (pendingVersion == null) {
+      pendingVersion = page.version();
+    }
+    List<NodeDescriptor> listed = page.resolvedNodes();
+    if (listed != null) {
+      for (NodeDescriptor descriptor : listed) {
+        if (descriptor.nodeId() != null) {
+          pending.put(descriptor.nodeId(), descriptor);
+        }
+      }
+    }
+    if (page.nextCursor() != null) {
+      return false;
+    }
+    nodes.clear();
+    nodes.putAll(pending);
+    version = pendingVersion;
+    pending = null;
+    return true;
+  }
+
+  /**
+   * Applies a CAPABILITIES_DELTA, if it follows the version this view holds.
+   *
+   * @param delta the received delta
+   * @return {@code false} if the delta does not follow this view's version,
+   *         meaning a change was missed and the list should be queried again
+   */
+
+  public synchronized boolean apply(CapabilitiesDeltaBody delta) {
+    if (pending != null) {
+      // Covered by the conditional query after the last page
+      return true;
+    }
+    if (version == null || delta.fromVersion() != version) {
+      // Already applied (an answer raced with a push) or a change was missed
+      return version != null && delta.version() <= version;
+    }
+    if (delta.removed() != null) {
+      delta.removed().forEach(nodes::remove);
+    }
+    if (delta.upserted() != null) {
+      for (NodeDescriptor descriptor : delta.upserted()) {
+        if (descriptor.nodeId() != null) {
+          nodes.put(descriptor.nodeId(), descriptor);
+        }
+      }
+    }
+    version = delta.version();
+    return true;
+  }
+}
@@ -7,6 +7,7 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.security.KeyStore;
 import java.util.List;
+import java.util.Objects;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import javax.net.ssl.SSLContext;
@@ -15,7 +16,10 @@ import javax.net.ssl.SSLSocketFactory;
 import javax.net.ssl.TrustManagerFactory;
 import ntnu.idata2302.sfp.controlPanel.factory.PacketFactory;
 import ntnu.idata2302.sfp.library.SmartFarmingProtocol;
+import ntnu.idata2302.sfp.library.body.capabilities.CapabilitiesDeltaBody;
+import ntnu.idata2302.sfp.library.body.capabilities.CapabilitiesListBody;
 import ntnu.idata2302.sfp.library.body.command.CommandBody;
+import ntnu.idata2302.sfp.library.body.subscribe.SubscribeBody;
 import ntnu.idata2302.sfp.library.header.Header;
 
 /**
@@ -29,15 +33,23 @@ import ntnu.idata2302.sfp.library.header.Header;
 
 public class SfpClient {
 
+  /** Most node ids sent in one bulk SUBSCRIBE or UNSUBSCRIBE packet. */
+  public static final int MAX_BULK_IDS = 1024;
+
+  /** Nodes asked for per CAPABILITIES_QUERY page when loading the list. */
+  public static final int CAPABILITIES_PAGE_SIZE = 500;
+
   private final String host;
   private final int port;
 
-  private SSLContext sslContext;
+  // Shared by every client in the JVM so reconnects can resume the TLS session
+  private static SSLContext sslContext;
 
   private SSLSocket socket;
   private DataInputStream in;
   private OutputStream out;
   private volatile boolean running = false;
+  private final CapabilitiesView capabilities = new CapabilitiesView();
 
   private final ExecutorService listenerThread =
         Executors.newSingleThreadExecutor(r -> {
@@ -71,7 +83,9 @@ public class SfpClient {
    *
    * <p>On successful connection this method initializes input/output streams,
    * marks the client as running, submits the read loop to the listener executor,
-   * and sends an initial ANNOUNCE packet.</p>
+   * and sends an initial ANNOUNCE packet. The TLS context is shared, so a new
+   * client connecting to the same server resumes the previous session instead
+   * of repeating the full handshake.</p>
    *
    * @throws IOException if TLS initialization, socket creation, handshake,
    *                     or stream setup fails
@@ -79,9 +93,7 @@ public class SfpClient {
 
   public void connect() throws IOException {
     try {
-      initializeTLS();
-
-      SSLSocketFactory factory = sslContext.getSocketFactory();
+      SSLSocketFactory factory = tlsContext().getSocketFactory();
       socket = (SSLSocket) factory.createSocket(host, port);
       socket.startHandshake();
 
@@ -130,6 +142,14 @@ public class SfpClient {
         SmartFarmingProtocol packet =
               SmartFarmingProtocol.fromBytes(header, bodyBytes);
 
+        // Keep the capabilities copy current before listeners read it
+        if (packet.getBody() instanceof CapabilitiesListBody list) {
+          applyCapabilities(list);
+        } else if (packet.getBody() instanceof CapabilitiesDeltaBody delta
+            && !capabilities.apply(delta)) {
+          sendCapabilitiesQuery();
+        }
+
         // Notify UI and other listeners
         EventBus.post(packet);
       }
@@ -153,14 +173,59 @@ public class SfpClient {
     sendPacket(packet);
   }
 
+  /**
+   * Applies a received CAPABILITIES_LIST to the capabilities view, asking for
+   * the next page or catching up after the last one of a paged load.
+   *
+   * @param list the received list
+   */
+
+  private void applyCapabilities(CapabilitiesListBody list) {
+    if (!capabilities.isPaging() || Boolean.TRUE.equals(list.notModified())) {
+      capabilities.apply(list);
+    } else if (list.nextCursor() != null) {
+      capabilities.applyPage(list);
+      sendCapabilitiesPage(list.nextCursor());
+    } else if (capabilities.applyPage(list)
+        && !Objects.equals(list.version(), capabilities.version())) {
+      // The catalog changed while paging
+      sendCapabilitiesQuery();
+    }
+  }
+
   /**
    * Sends a CAPABILITIES_QUERY packet to request capabilities from sensor nodes.
+   * The query names the version of {@link #getCapabilities()}, so the server
+   * only sends what changed. Without a copy yet, the list is loaded in pages
+   * of {@link #CAPABILITIES_PAGE_SIZE} nodes.
    */
 
   public void sendCapabilitiesQuery() {
+    if (capabilities.version() == null) {
+      capabilities.beginPaging();
+      sendCapabilitiesPage(null);
+      return;
+    }
     SmartFarmingProtocol packet = PacketFactory.capabilitiesQuery(
           AppContext.getControllerId(),
-          AppContext.getRequestId()
+          AppContext.getRequestId(),
+          capabilities.version()
+    );
+    sendPacket(packet);
+  }
+
+  /**
+   * Sends a CAPABILITIES_QUERY packet for one page of the list.
+   *
+   * @param cursor the next cursor of the previous page, or {@code null} for the first
+   */
+
+  private void sendCapabilitiesPage(Integer cursor) {
+    SmartFarmingProtocol packet = PacketFactory.capabilitiesPage(
+          AppContext.getControllerId(),
+          AppContext.getRequestId(),
+          cursor,
+          CAPABILITIES_PAGE_SIZE
     );
     sendPacket(packet);
   }
@@ -180,6 +245,43 @@ public class SfpClient {
     sendPacket(packet);
   }
 
+  /**
+   * Subscribes to updates from several sensor nodes. A single node uses the
+   * plain SUBSCRIBE; more nodes are sent as bulk SUBSCRIBE packets of at most
+   * {@link #MAX_BULK_IDS} ids, each acknowledged once.
+   *
+   * @param nodeIds the identifiers of the sensor nodes to subscribe to
+   */
+
+  public void sendSubscribe(List<Integer> nodeIds) {
+    if (nodeIds.size() == 1) {
+      sendSubscribe(nodeIds.get(0));
+      return;
+    }
+    for (int from = 0; from < nodeIds.size(); from += MAX_BULK_IDS) {
+      List<Integer> chunk = nodeIds.subList(from, Math.min(nodeIds.size(), from + MAX_BULK_IDS));
+      sendPacket(PacketFactory.subscribeNodes(
+            AppContext.getControllerId(),
+            AppContext.getRequestId(),
+            List.copyOf(chunk)
+      ));
+    }
+  }
+
+  /**
+   * Sends a wildcard SUBSCRIBE packet to receive updates from every sensor
+   * node, including nodes that connect later.
+   */
+
+  public void sendSubscribeAll() {
+    SmartFarmingProtocol packet = PacketFactory.subscribeGroup(
+          AppContext.getControllerId(),
+          AppContext.getRequestId(),
+          SubscribeBody.ALL_SENSOR_NODES
+    );
+    sendPacket(packet);
+  }
+
   /**
    * Sends an UNSUBSCRIBE packet to stop receiving updates from a single node.
    *
@@ -195,6 +297,30 @@ public class SfpClient {
     sendPacket(packet);
   }
 
+  /**
+   * Unsubscribes from several sensor nodes. A single node uses the plain
+   * UNSUBSCRIBE; more nodes are sent as bulk UNSUBSCRIBE packets of at most
+   * {@link #MAX_BULK_IDS} ids.
+   *
+   * @param sensorNodeIds the identifiers of the sensor nodes to unsubscribe from
+   */
+
+  public void sendUnsubscribe(List<Integer> sensorNodeIds) {
+    if (sensorNodeIds.size() == 1) {
+      sendUnsubscribe(sensorNodeIds.get(0));
+      return;
+    }
+    for (int from = 0; from < sensorNodeIds.size(); from += MAX_BULK_IDS) {
+      List<Integer> chunk = sensorNodeIds.subList(
+            from, Math.min(sensorNodeIds.size(), from + MAX_BULK_IDS));
+      sendPacket(PacketFactory.unSubscribeNodes(
+            AppContext.getControllerId(),
+            AppContext.getRequestId(),
+            List.copyOf(chunk)
+      ));
+    }
+  }
+
   /**
    * Sends a COMMAND packet instructing a sensor node to perform one or more
    * actuator operations.
@@ -213,6 +339,29 @@ public class SfpClient {
     sendPacket(packet);
   }
 
+  /**
+   * Sends a GROUP_COMMAND asking the server to apply the same actuator
+   * operations on every sensor node of a group, optionally only those having
+   * a given actuator. The server answers with one GROUP_COMMAND_RESULT.
+   *
+   * @param group        the target group name
+   * @param actuatorType only target nodes having this actuator (may be null)
+   * @param parts        list of command parts describing the actuator operations
+   */
+
+  public void sendGroupCommand(String group, String actuatorType,
+                               List<CommandBody.CommandPart> parts) {
+    sendPacket(PacketFactory.groupCommand(
+          AppContext.getControllerId(),
+          AppContext.getRequestId(),
+          null,
+          group,
+          actuatorType,
+          parts,
+          null
+    ));
+  }
+
   /**
    * Thread-safe outgoing message dispatcher that encodes and writes the given
    * packet to the TCP socket using the writer executor.
@@ -234,17 +383,24 @@ public class SfpClient {
 
 
   /**
-   * Initializes the {@link SSLContext} used for establishing TLS connections.
+   * Returns the {@link SSLContext} used for establishing TLS connections,
+   * initializing it on first use.
    *
    * <p>The method loads a JKS truststore named {@code server.truststore} from
    * the classpath, initializes a {@link TrustManagerFactory}, and configures
-   * an {@link SSLContext} that trusts the server certificate in the store.</p>
+   * an {@link SSLContext} that trusts the server certificate in the store. The
+   * context and its session cache are shared by all clients.</p>
    *
+   * @return the shared TLS context
    * @throws Exception if the truststore cannot be found, loaded, or if the
    *                   TLS context initialization fails
    */
 
-  private void initializeTLS() throws Exception {
+  private static synchronized SSLContext tlsContext() throws Exception {
+    if (sslContext != null) {
+      return sslContext;
+    }
+
     KeyStore trustStore = KeyStore.getInstance("JKS");
 
 
@@ -260,8 +416,10 @@ public class SfpClient {
     TrustManagerFactory tmf = TrustManagerFactory.getInstance("SunX509");
     tmf.init(trustStore);
 
-    sslContext = SSLContext.getInstance("TLS");
-    sslContext.init(null, tmf.getTrustManagers(), null);
+    SSLContext context = SSLContext.getInstance("TLS");
+    context.init(null, tmf.getTrustManagers(), null);
+    sslContext = context;
+    return sslContext;
   }
 
   /**
@@ -303,5 +461,14 @@ public class SfpClient {
   public int getPort() {
     return port;
   }
-}
 
+  /**
+   * Returns this client's copy of the server's capabilities list, kept
+   * current from CAPABILITIES_LIST and CAPABILITIES_DELTA packets.
+   *
+   * @return the capabilities view
+   */
+  public CapabilitiesView getCapabilities() {
+    return capabilities;
+  }
+}
@@ -0,0 +1,62 @@
+package ntnu.idata2302.sfp.library.body.aggregate;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.util.List;
+import ntnu.idata2302.sfp.library.body.Body;
+import ntnu.idata2302.sfp.library.codec.CborCodec;
+
+/**
+ * Immutable body representing an aggregate query across a group of sensor nodes.
+ *
+ * <p>Sent by a control panel to the server, for example to ask for the
+ * average soil moisture over all irrigation nodes. The group is either the
+ * given node ids or, when none are given, every registered sensor node whose
+ * descriptor lists {@code sensorId}. The server answers with AGGREGATE_RESULT,
+ * once or, when {@code intervalMillis} is set, repeatedly at that interval
+ * until the query is cancelled or the control panel disconnects.</p>
+ *
+ * @param requestId      client-provided identifier echoed in every result; also
+ *                       identifies a push query for cancellation
+ * @param sensorId       the sensor to aggregate on every node of the group
+ * @param nodeIds        the group as explicit node ids (may be null)
+ * @param period         aggregation period such as {@code "1h"} or {@code "day"}
+ *                       (may be null for the server's default)
+ * @param types          aggregate types to return from {@code "min"}, {@code "max"}
+ *                       and {@code "avg"} (may be null for all)
+ * @param intervalMillis push interval in milliseconds; {@code null} or {@code 0}
+ *                       for a one-shot query
+ * @param cancel         {@code true} to stop the push query with this request id
+ *                       (may be null)
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record AggregateQueryBody(
+    int requestId,
+    String sensorId,
+    List<Integer> nodeIds,
+    String period,
+    List<String> types,
+    Integer intervalMillis,
+    Boolean cancel
+) implements Body {
+
+  /**
+   * Serialize this {@code AggregateQueryBody} to CBOR bytes.
+   *
+   * @return a byte array containing the CBOR-encoded representation of this instance
+   */
+  @Override
+  public byte[] toCbor() {
+    return CborCodec.encode(this);
+  }
+
+  /**
+   * Decode an {@code AggregateQueryBody} from CBOR bytes.
+   *
+   * @param cbor CBOR-encoded input bytes
+   * @return the decoded {@code AggregateQueryBody} instance
+   * @throws RuntimeException if decoding fails
+   */
+  public static AggregateQueryBody fromCbor(byte[] cbor) {
+    return CborCodec.decode(cbor, AggregateQueryBody.class);
+  }
+}
@@ -0,0 +1,58 @@
+package ntnu.idata2302.sfp.library.body.aggregate;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.util.List;
+import ntnu.idata2302.sfp.library.body.Body;
+import ntnu.idata2302.sfp.library.codec.CborCodec;
+
+/**
+ * Immutable body representing the result of an aggregate query.
+ *
+ * <p>Sent by the server in answer to AGGREGATE_QUERY. Only nodes with samples
+ * in the period contribute; the values are {@code null} if none did or the
+ * type was not requested.</p>
+ *
+ * @param requestId       the request id of the query
+ * @param sensorId        the aggregated sensor
+ * @param period          the aggregation period
+ * @param timestampMillis the time the result was computed, in epoch milliseconds
+ * @param nodeIds         the nodes that contributed samples
+ * @param sampleCount     the number of samples aggregated
+ * @param min             minimum over all contributing nodes (may be null)
+ * @param max             maximum over all contributing nodes (may be null)
+ * @param avg             average over all samples of all contributing nodes (may be null)
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record AggregateResultBody(
+    int requestId,
+    String sensorId,
+    String period,
+    long timestampMillis,
+    List<Integer> nodeIds,
+    long sampleCount,
+    Double min,
+    Double max,
+    Double avg
+) implements Body {
+
+  /**
+   * Serialize this {@code AggregateResultBody} to CBOR bytes.
+   *
+   * @return a byte array containing the CBOR-encoded representation of this instance
+   */
+  @Override
+  public byte[] toCbor() {
+    return CborCodec.encode(this);
+  }
+
+  /**
+   * Decode an {@code AggregateResultBody} from CBOR bytes.
+   *
+   * @param cbor CBOR-encoded input bytes
+   * @return the decoded {@code AggregateResultBody} instance
+   * @throws RuntimeException if decoding fails
+   */
+  public static AggregateResultBody fromCbor(byte[] cbor) {
+    return CborCodec.decode(cbor, AggregateResultBody.class);
+  }
+}
@@ -8,18 +8,43 @@ import ntnu.idata2302.sfp.library.codec.CborCodec;
  * Immutable body used to acknowledge an announcement request.
  *
  * <p>Holds the original request identifier and a numeric status code that
- * indicates the result of processing the announcement. Instances are serialized
- * to and from CBOR using {@link CborCodec}.</p>
+ * indicates the result of processing the announcement. The server also hands
+ * out an opaque resume token; a node that loses its connection presents it in
+ * its next ANNOUNCE to get its id and subscriptions back. Instances are
+ * serialized to and from CBOR using {@link CborCodec}.</p>
  *
- * @param requestId the identifier of the request being acknowledged
- * @param status    a numeric status code (implementation-specific)
+ * <p>A node that announced by template reference gets
+ * {@link #STATUS_TEMPLATE_UNKNOWN} if the server does not know the template;
+ * it is not registered and should announce again with its full
+ * descriptor.</p>
+ *
+ * @param requestId   the identifier of the request being acknowledged
+ * @param status      a numeric status code (implementation-specific)
+ * @param resumeToken token for resuming the session after a reconnect (may be null)
  */
 @JsonInclude(JsonInclude.Include.NON_NULL)
 public record AnnounceAckBody(
     int requestId,
-    int status
+    int status,
+    String resumeToken
 ) implements Body {
 
+  /** The node is registered. */
+  public static final int STATUS_OK = 1;
+
+  /** The announced template is unknown; announce again with the full descriptor. */
+  public static final int STATUS_TEMPLATE_UNKNOWN = 2;
+
+  /**
+   * Create an acknowledgement without a resume token.
+   *
+   * @param requestId the identifier of the request being acknowledged
+   * @param status    a numeric status code (implementation-specific)
+   */
+  public AnnounceAckBody(int requestId, int status) {
+    this(requestId, status, null);
+  }
+
   /**
    * Serialize this {@code AnnounceAckBody} to CBOR bytes.
    *
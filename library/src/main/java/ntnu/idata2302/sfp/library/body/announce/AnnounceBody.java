@@ -9,18 +9,37 @@ import ntnu.idata2302.sfp.library.node.NodeDescriptor;
  * Immutable body representing an announcement request.
  *
  * <p>Contains the original request identifier and a {@link NodeDescriptor}
- * describing the announcing node. Instances are serialized to and from CBOR
+ * describing the announcing node. A reconnecting node also includes the resume
+ * token from its last ANNOUNCE_ACK. Instances are serialized to and from CBOR
  * using {@link CborCodec}.</p>
  *
- * @param requestId  the identifier of the announcement request
- * @param descriptor the descriptor of the announcing node (may be null)
+ * <p>The descriptor may be a reference to a descriptor template, see
+ * {@link ntnu.idata2302.sfp.library.node.DescriptorTemplates}. The server
+ * answers such an announcement with
+ * {@link AnnounceAckBody#STATUS_TEMPLATE_UNKNOWN} if it does not know the
+ * template.</p>
+ *
+ * @param requestId   the identifier of the announcement request
+ * @param descriptor  the descriptor of the announcing node (may be null)
+ * @param resumeToken token of the session to resume (may be null)
  */
 @JsonInclude(JsonInclude.Include.NON_NULL)
 public record AnnounceBody(
     int requestId,
-    NodeDescriptor descriptor
+    NodeDescriptor descriptor,
+    String resumeToken
 ) implements Body {
 
+  /**
+   * Create an announcement for a new session.
+   *
+   * @param requestId  the identifier of the announcement request
+   * @param descriptor the descriptor of the announcing node (may be null)
+   */
+  public AnnounceBody(int requestId, NodeDescriptor descriptor) {
+    this(requestId, descriptor, null);
+  }
+
   /**
    * Serialize this {@code AnnounceBody} to CBOR bytes.
    *
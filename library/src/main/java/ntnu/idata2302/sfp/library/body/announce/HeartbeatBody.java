@@ -0,0 +1,48 @@
+package ntnu.idata2302.sfp.library.body.announce;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import ntnu.idata2302.sfp.library.body.Body;
+import ntnu.idata2302.sfp.library.codec.CborCodec;
+
+/**
+ * Immutable body of a HEARTBEAT, sent by a registered sensor node that has
+ * sent nothing else for a while.
+ *
+ * <p>The first heartbeat of a node makes the server watch its liveness: a
+ * node from which nothing at all is received for {@link #MISSED_INTERVALS}
+ * intervals is considered dead and unregistered. Any message from the node
+ * counts as a sign of life, so a node that reports often rarely needs to send
+ * a heartbeat. Instances are serialized to and from CBOR using
+ * {@link CborCodec}.</p>
+ *
+ * @param intervalMillis the longest time, in milliseconds, the node stays silent
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record HeartbeatBody(
+    int intervalMillis
+) implements Body {
+
+  /** Number of silent intervals after which a node is considered dead. */
+  public static final int MISSED_INTERVALS = 3;
+
+  /**
+   * Serialize this {@code HeartbeatBody} to CBOR bytes.
+   *
+   * @return a byte array containing the CBOR-encoded representation of this instance
+   */
+  @Override
+  public byte[] toCbor() {
+    return CborCodec.encode(this);
+  }
+
+  /**
+   * Decode a {@code HeartbeatBody} from CBOR bytes.
+   *
+   * @param cbor CBOR-encoded input bytes
+   * @return the decoded {@code HeartbeatBody} instance
+   * @throws RuntimeException if decoding fails
+   */
+  public static HeartbeatBody fromCbor(byte[] cbor) {
+    return CborCodec.decode(cbor, HeartbeatBody.class);
+  }
+}
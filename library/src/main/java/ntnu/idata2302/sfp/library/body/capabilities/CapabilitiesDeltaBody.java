@@ -0,0 +1,53 @@
+package ntnu.idata2302.sfp.library.body.capabilities;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.util.List;
+import ntnu.idata2302.sfp.library.body.Body;
+import ntnu.idata2302.sfp.library.codec.CborCodec;
+import ntnu.idata2302.sfp.library.node.NodeDescriptor;
+
+/**
+ * Immutable body describing changes to the capabilities list between two versions.
+ *
+ * <p>Sent by the server in answer to a conditional CAPABILITIES_QUERY, and
+ * pushed to every control panel whenever a sensor node joins, leaves or
+ * changes its descriptor; pushed deltas have request id 0. A receiver holding
+ * {@code fromVersion} applies the delta to get {@code version}. A receiver
+ * holding another version has missed a change and should query again.</p>
+ *
+ * @param requestId   the identifier of the original capabilities request, or 0 when pushed
+ * @param fromVersion the version the delta applies to
+ * @param version     the version after applying the delta
+ * @param upserted    descriptors of nodes that joined or changed (may be null)
+ * @param removed     ids of nodes that left (may be null)
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record CapabilitiesDeltaBody(
+    int requestId,
+    long fromVersion,
+    long version,
+    List<NodeDescriptor> upserted,
+    List<Integer> removed
+) implements Body {
+
+  /**
+   * Serialize this {@code CapabilitiesDeltaBody} to CBOR bytes.
+   *
+   * @return a byte array containing the CBOR-encoded representation of this instance
+   */
+  @Override
+  public byte[] toCbor() {
+    return CborCodec.encode(this);
+  }
+
+  /**
+   * Decode a {@code CapabilitiesDeltaBody} from CBOR bytes.
+   *
+   * @param cbor CBOR-encoded input bytes
+   * @return the decoded {@code CapabilitiesDeltaBody} instance
+   * @throws RuntimeException if decoding fails
+   */
+  public static CapabilitiesDeltaBody fromCbor(byte[] cbor) {
+    return CborCodec.decode(cbor, CapabilitiesDeltaBody.class);
+  }
+}
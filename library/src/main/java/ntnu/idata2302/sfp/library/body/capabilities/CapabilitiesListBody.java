@@ -1,9 +1,14 @@
 package ntnu.idata2302.sfp.library.body.capabilities;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import ntnu.idata2302.sfp.library.body.Body;
 import ntnu.idata2302.sfp.library.codec.CborCodec;
+import ntnu.idata2302.sfp.library.node.DescriptorTemplates;
 import ntnu.idata2302.sfp.library.node.NodeDescriptor;
 
 /**
@@ -13,15 +18,91 @@ import ntnu.idata2302.sfp.library.node.NodeDescriptor;
  * entries describing available nodes. Instances are serialized to and from CBOR
  * using {@link CborCodec}.</p>
  *
- * @param requestId the identifier of the original capabilities request
- * @param nodes     list of node descriptors (may be null)
+ * <p>The list carries the capabilities version it describes. An answer to a
+ * conditional query whose version is still current has {@code notModified}
+ * set and no nodes.</p>
+ *
+ * <p>An answer to a filtered or paged query carries {@code nextCursor} while
+ * more nodes match; sending it as the next query's cursor continues the
+ * list.</p>
+ *
+ * <p>Nodes may be listed as references to a descriptor template, see
+ * {@link DescriptorTemplates}; each referenced template is then carried once
+ * in {@code templates}. {@link #resolvedNodes()} returns the full
+ * descriptors.</p>
+ *
+ * <p>{@code requestId} is always encoded first, so a server can encode a
+ * list once and patch only the request id per reply.</p>
+ *
+ * @param requestId   the identifier of the original capabilities request
+ * @param nodes       list of node descriptors (may be null)
+ * @param version     capabilities version of the list (may be null)
+ * @param notModified {@code true} if the requester's version is current (may be null)
+ * @param nextCursor  cursor of the next page, or {@code null} on the last page
+ * @param templates   descriptor templates referenced by the nodes, by hash (may be null)
  */
 @JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonPropertyOrder({"requestId", "nodes", "version", "notModified", "nextCursor", "templates"})
 public record CapabilitiesListBody(
     int requestId,
-    List<NodeDescriptor> nodes
+    List<NodeDescriptor> nodes,
+    Long version,
+    Boolean notModified,
+    Integer nextCursor,
+    Map<String, NodeDescriptor> templates
 ) implements Body {
 
+  /**
+   * Create an unversioned list.
+   *
+   * @param requestId the identifier of the original capabilities request
+   * @param nodes     list of node descriptors (may be null)
+   */
+  public CapabilitiesListBody(int requestId, List<NodeDescriptor> nodes) {
+    this(requestId, nodes, null, null, null, null);
+  }
+
+  /**
+   * Create a full versioned list, or the answer to a conditional query.
+   *
+   * @param requestId   the identifier of the original capabilities request
+   * @param nodes       list of node descriptors (may be null)
+   * @param version     capabilities version of the list (may be null)
+   * @param notModified {@code true} if the requester's version is current (may be null)
+   */
+  public CapabilitiesListBody(int requestId, List<NodeDescriptor> nodes,
+                              Long version, Boolean notModified) {
+    this(requestId, nodes, version, notModified, null, null);
+  }
+
+  /**
+   * Create the answer to a conditional query whose version is current.
+   *
+   * @param requestId the identifier of the original capabilities request
+   * @param version   the current capabilities version
+   * @return the not-modified answer
+   */
+  public static CapabilitiesListBody notModified(int requestId, long version) {
+    return new CapabilitiesListBody(requestId, null, version, true);
+  }
+
+  /**
+   * Returns the listed nodes with template references resolved.
+   *
+   * @return the full descriptors, or {@code null} if no nodes are listed
+   */
+  @JsonIgnore
+  public List<NodeDescriptor> resolvedNodes() {
+    if (nodes == null || templates == null) {
+      return nodes;
+    }
+    List<NodeDescriptor> resolved = new ArrayList<>(nodes.size());
+    for (NodeDescriptor node : nodes) {
+      resolved.add(DescriptorTemplates.resolve(node, templates));
+    }
+    return resolved;
+  }
+
   /**
    * Serialize this {@code CapabilitiesListBody} to CBOR bytes.
    *
@@ -1,5 +1,8 @@
 package ntnu.idata2302.sfp.library.body.capabilities;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import ntnu.idata2302.sfp.library.body.Body;
 import ntnu.idata2302.sfp.library.codec.CborCodec;
 
@@ -9,13 +12,81 @@ import ntnu.idata2302.sfp.library.codec.CborCodec;
  * <p>Holds the original request identifier for a capabilities' query.
  * Instances can be serialized to and from CBOR using {@link CborCodec}.</p>
  *
- * @param requestId the identifier of the capabilities' request
+ * <p>A query may name the capabilities version the requester already has.
+ * The server then answers with a CAPABILITIES_LIST marked not modified if
+ * nothing changed, a CAPABILITIES_DELTA with the changes since that version,
+ * or the full list if the version is too old.</p>
+ *
+ * <p>A query may instead ask for a {@link Filter filtered} part of the list,
+ * or page through it in node id order: {@code limit} caps the number of
+ * nodes per answer and {@code cursor} continues after the last node id of
+ * the previous page. Such answers are always lists and carry a
+ * {@code nextCursor} while more nodes match; {@code knownVersion} is ignored
+ * for them.</p>
+ *
+ * @param requestId    the identifier of the capabilities' request
+ * @param knownVersion capabilities version held by the requester (may be null)
+ * @param filter       conditions every listed node must meet (may be null)
+ * @param cursor       list only nodes with a higher id than this (may be null)
+ * @param limit        maximum number of nodes in the answer (may be null)
  */
-
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public record CapabilitiesQueryBody(
-    int requestId
+    int requestId,
+    Long knownVersion,
+    Filter filter,
+    Integer cursor,
+    Integer limit
 ) implements Body {
 
+  /**
+   * Create an unconditional query for the full list.
+   *
+   * <p>Not a creator for decoding, so a bare CBOR integer is rejected rather
+   * than read as a request id.</p>
+   *
+   * @param requestId the identifier of the capabilities' request
+   */
+  @JsonCreator(mode = JsonCreator.Mode.DISABLED)
+  public CapabilitiesQueryBody(int requestId) {
+    this(requestId, null, null, null, null);
+  }
+
+  /**
+   * Create a query for the full list, conditional if a version is given.
+   *
+   * @param requestId    the identifier of the capabilities' request
+   * @param knownVersion capabilities version held by the requester (may be null)
+   */
+  public CapabilitiesQueryBody(int requestId, Long knownVersion) {
+    this(requestId, knownVersion, null, null, null);
+  }
+
+  /**
+   * Create a query for one page of the list.
+   *
+   * @param requestId the identifier of the capabilities' request
+   * @param filter    conditions every listed node must meet (may be null)
+   * @param cursor    the {@code nextCursor} of the previous page, or {@code null} for the first
+   * @param limit     maximum number of nodes in the answer
+   * @return the query
+   */
+  public static CapabilitiesQueryBody page(int requestId, Filter filter,
+                                           Integer cursor, int limit) {
+    return new CapabilitiesQueryBody(requestId, null, filter, cursor, limit);
+  }
+
+  /**
+   * Returns whether this query asks for a filtered or paged list rather than
+   * the full one.
+   *
+   * @return {@code true} if a filter, cursor or limit is set
+   */
+  @JsonIgnore
+  public boolean isPaged() {
+    return filter != null || cursor != null || limit != null;
+  }
+
   /**
    * Serialize this {@code CapabilitiesQueryBody} to CBOR bytes.
    *
@@ -39,4 +110,26 @@ public record CapabilitiesQueryBody(
   public static CapabilitiesQueryBody fromCbor(byte[] cbor) {
     return CborCodec.decode(cbor, CapabilitiesQueryBody.class);
   }
+
+  /**
+   * Conditions on the listed sensor nodes. Every condition that is set must
+   * hold; unset conditions match every node.
+   *
+   * @param nodeType       only nodes of this type (may be null)
+   * @param sensorId       only nodes with a sensor of this id (may be null)
+   * @param actuatorId     only nodes with an actuator of this id (may be null)
+   * @param supportsImages only nodes that do, or do not, support images (may be null)
+   * @param minNodeId      only nodes with at least this id (may be null)
+   * @param maxNodeId      only nodes with at most this id (may be null)
+   */
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  public record Filter(
+      Integer nodeType,
+      String sensorId,
+      String actuatorId,
+      Boolean supportsImages,
+      Integer minNodeId,
+      Integer maxNodeId
+  ) {
+  }
 }
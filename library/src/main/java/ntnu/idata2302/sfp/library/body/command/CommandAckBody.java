@@ -11,7 +11,8 @@ import ntnu.idata2302.sfp.library.codec.CborCodec;
  * message. Instances are serialized to and from CBOR using {@link CborCodec}.</p>
  *
  * @param requestId the identifier of the original command request
- * @param status    status code indicating success or error
+ * @param status    status code: {@link #STATUS_OK}, 0 for an error, or
+ *                  {@link #STATUS_COALESCED}
  * @param message   optional human-readable status message (may be null)
  */
 @JsonInclude(JsonInclude.Include.NON_NULL)
@@ -21,6 +22,15 @@ public record CommandAckBody(
     String message
 ) implements Body {
 
+  /** Status: the command was applied. */
+  public static final int STATUS_OK = 1;
+
+  /**
+   * Status: the command was not delivered because a newer command for the
+   * same actuators replaced it in the broker's queue. Sent by the broker.
+   */
+  public static final int STATUS_COALESCED = 2;
+
   /**
    * Serialize this {@code CommandAckBody} to CBOR bytes.
    *
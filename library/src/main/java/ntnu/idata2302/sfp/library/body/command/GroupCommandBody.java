@@ -0,0 +1,57 @@
+package ntnu.idata2302.sfp.library.body.command;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.util.List;
+import ntnu.idata2302.sfp.library.body.Body;
+import ntnu.idata2302.sfp.library.codec.CborCodec;
+
+/**
+ * Immutable body representing one command for many sensor nodes.
+ *
+ * <p>Sent by a control panel to the server, which expands it into one
+ * COMMAND per target node, collects their COMMAND_ACKs and answers with a
+ * single GROUP_COMMAND_RESULT.</p>
+ *
+ * <p>The targets are the union of {@code nodeIds} and the members of
+ * {@code group}. An {@code actuatorType} narrows them to the nodes that have
+ * that actuator; given alone it targets every connected node that has it.</p>
+ *
+ * @param requestId     client-provided identifier, echoed in the result
+ * @param nodeIds       target sensor node ids (may be null)
+ * @param group         target group name (may be null)
+ * @param actuatorType  only target nodes having this actuator (may be null)
+ * @param actuators     the actuator updates every target applies
+ * @param timeoutMillis how long to wait for acknowledgements, or {@code null}
+ *                      for the server's default
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record GroupCommandBody(
+    int requestId,
+    List<Integer> nodeIds,
+    String group,
+    String actuatorType,
+    List<CommandBody.CommandPart> actuators,
+    Integer timeoutMillis
+) implements Body {
+
+  /**
+   * Serialize this {@code GroupCommandBody} to CBOR bytes.
+   *
+   * @return a byte array containing the CBOR-encoded representation of this instance
+   */
+  @Override
+  public byte[] toCbor() {
+    return CborCodec.encode(this);
+  }
+
+  /**
+   * Decode a {@code GroupCommandBody} from CBOR bytes.
+   *
+   * @param cbor CBOR-encoded input bytes
+   * @return the decoded {@code GroupCommandBody} instance
+   * @throws RuntimeException if decoding fails
+   */
+  public static GroupCommandBody fromCbor(byte[] cbor) {
+    return CborCodec.decode(cbor, GroupCommandBody.class);
+  }
+}
@@ -0,0 +1,65 @@
+package ntnu.idata2302.sfp.library.body.command;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.util.List;
+import ntnu.idata2302.sfp.library.body.Body;
+import ntnu.idata2302.sfp.library.codec.CborCodec;
+
+/**
+ * Immutable body carrying the outcome of a group command.
+ *
+ * <p>Sent by the server once every target has acknowledged the command or
+ * the timeout has passed. Each target is listed with the status of its
+ * COMMAND_ACK, or with one of the negative statuses below if it did not
+ * acknowledge.</p>
+ *
+ * @param requestId the request id of the GROUP_COMMAND
+ * @param status    1 if every target acknowledged with status 1, 0 otherwise
+ * @param results   the status of every target, in node id order
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record GroupCommandResultBody(
+    int requestId,
+    int status,
+    List<NodeResult> results
+) implements Body {
+
+  /** Node status: no acknowledgement arrived before the timeout. */
+  public static final int STATUS_TIMEOUT = -1;
+
+  /** Node status: the node is not connected, so the command was not sent. */
+  public static final int STATUS_NOT_CONNECTED = -2;
+
+  /**
+   * Serialize this {@code GroupCommandResultBody} to CBOR bytes.
+   *
+   * @return a byte array containing the CBOR-encoded representation of this instance
+   */
+  @Override
+  public byte[] toCbor() {
+    return CborCodec.encode(this);
+  }
+
+  /**
+   * Decode a {@code GroupCommandResultBody} from CBOR bytes.
+   *
+   * @param cbor CBOR-encoded input bytes
+   * @return the decoded {@code GroupCommandResultBody} instance
+   * @throws RuntimeException if decoding fails
+   */
+  public static GroupCommandResultBody fromCbor(byte[] cbor) {
+    return CborCodec.decode(cbor, GroupCommandResultBody.class);
+  }
+
+  /**
+   * Outcome of the command on one target.
+   *
+   * @param nodeId  the target node
+   * @param status  the status of its COMMAND_ACK, {@link #STATUS_TIMEOUT}
+   *                or {@link #STATUS_NOT_CONNECTED}
+   * @param message the message of its COMMAND_ACK (may be null)
+   */
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  public record NodeResult(int nodeId, int status, String message) {
+  }
+}
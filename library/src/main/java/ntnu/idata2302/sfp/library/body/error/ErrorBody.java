@@ -21,6 +21,8 @@ import ntnu.idata2302.sfp.library.codec.CborCodec;
  *   <li>6 — CHUNK_MISSING</li>
  *   <li>7 — CHECKSUM_MISMATCH</li>
  *   <li>8 — CAPABILITIES_MISSING</li>
+ *   <li>9 — COMMAND_TIMEOUT (no COMMAND_ACK within the broker's timeout)</li>
+ *   <li>10 — THROTTLED (ingress rate limit exceeded; frames are dropped)</li>
  *   <li>100 — INTERNAL_SERVER_ERROR</li>
  *   <li>101 — UNKNOWN</li>
  * </ul>
@@ -67,6 +69,8 @@ public record ErrorBody(
 | 6    | CHUNK_MISSING                                |
 | 7    | CHECKSUM_MISMATCH                            |
 | 8    | CAPABILITIES_MISSING                         |
+| 9    | COMMAND_TIMEOUT                              |
+| 10   | THROTTLED                                    |
 | 100  | INTERNAL_SERVER_ERROR                        |
 | 101  | UNKNOWN                                      |
  */
\ No newline at end of file
@@ -0,0 +1,42 @@
+package ntnu.idata2302.sfp.library.body.group;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.util.List;
+import ntnu.idata2302.sfp.library.body.Body;
+import ntnu.idata2302.sfp.library.codec.CborCodec;
+
+/**
+ * Immutable acknowledgement body for a group assignment.
+ *
+ * @param requestId the request id of the GROUP_ASSIGN
+ * @param status    numeric status code (1 = success, 0 = unknown node or invalid group)
+ * @param groups    the node's groups after the change (may be null on error)
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record GroupAssignAckBody(
+    int requestId,
+    int status,
+    List<String> groups
+) implements Body {
+
+  /**
+   * Serialize this {@code GroupAssignAckBody} to CBOR bytes.
+   *
+   * @return a byte array containing the CBOR-encoded representation of this instance
+   */
+  @Override
+  public byte[] toCbor() {
+    return CborCodec.encode(this);
+  }
+
+  /**
+   * Decode a {@code GroupAssignAckBody} from CBOR bytes.
+   *
+   * @param cbor CBOR-encoded input bytes
+   * @return the decoded {@code GroupAssignAckBody} instance
+   * @throws RuntimeException if decoding fails
+   */
+  public static GroupAssignAckBody fromCbor(byte[] cbor) {
+    return CborCodec.decode(cbor, GroupAssignAckBody.class);
+  }
+}
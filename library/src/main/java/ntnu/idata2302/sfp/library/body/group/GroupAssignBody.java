@@ -0,0 +1,49 @@
+package ntnu.idata2302.sfp.library.body.group;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.util.List;
+import ntnu.idata2302.sfp.library.body.Body;
+import ntnu.idata2302.sfp.library.codec.CborCodec;
+
+/**
+ * Immutable body representing a change of a sensor node's group membership.
+ *
+ * <p>Sent by a control panel acting as administrator to the server. Groups
+ * announced by the node itself in its descriptor can be changed the same way.
+ * Subscribers of a group start or stop receiving the node's reports right
+ * away. The server answers with GROUP_ASSIGN_ACK.</p>
+ *
+ * @param requestId client-provided identifier for this request
+ * @param nodeId    the sensor node to change
+ * @param join      groups to add the node to (may be null)
+ * @param leave     groups to remove the node from (may be null)
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record GroupAssignBody(
+    int requestId,
+    int nodeId,
+    List<String> join,
+    List<String> leave
+) implements Body {
+
+  /**
+   * Serialize this {@code GroupAssignBody} to CBOR bytes.
+   *
+   * @return a byte array containing the CBOR-encoded representation of this instance
+   */
+  @Override
+  public byte[] toCbor() {
+    return CborCodec.encode(this);
+  }
+
+  /**
+   * Decode a {@code GroupAssignBody} from CBOR bytes.
+   *
+   * @param cbor CBOR-encoded input bytes
+   * @return the decoded {@code GroupAssignBody} instance
+   * @throws RuntimeException if decoding fails
+   */
+  public static GroupAssignBody fromCbor(byte[] cbor) {
+    return CborCodec.decode(cbor, GroupAssignBody.class);
+  }
+}
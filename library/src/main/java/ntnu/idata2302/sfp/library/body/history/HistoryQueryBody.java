@@ -0,0 +1,53 @@
+package ntnu.idata2302.sfp.library.body.history;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.util.List;
+import ntnu.idata2302.sfp.library.body.Body;
+import ntnu.idata2302.sfp.library.codec.CborCodec;
+
+/**
+ * Immutable body representing a query for recent sensor history.
+ *
+ * <p>Sent by a control panel to the server, which answers with one or more
+ * HISTORY_RESULT packets. All filters are optional. Instances are serialized
+ * to and from CBOR using {@link CborCodec}.</p>
+ *
+ * @param requestId    client-provided identifier echoed in every result chunk
+ * @param sensorNodeId the sensor node whose history is requested
+ * @param sensors      sensor ids to include; {@code null} for all sensors
+ * @param fromMillis   inclusive start of the time range in epoch milliseconds (may be null)
+ * @param toMillis     inclusive end of the time range in epoch milliseconds (may be null)
+ * @param maxPoints    maximum number of points per sensor; longer series are
+ *                     downsampled (may be null)
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record HistoryQueryBody(
+    int requestId,
+    int sensorNodeId,
+    List<String> sensors,
+    Long fromMillis,
+    Long toMillis,
+    Integer maxPoints
+) implements Body {
+
+  /**
+   * Serialize this {@code HistoryQueryBody} to CBOR bytes.
+   *
+   * @return a byte array containing the CBOR-encoded representation of this instance
+   */
+  @Override
+  public byte[] toCbor() {
+    return CborCodec.encode(this);
+  }
+
+  /**
+   * Decode a {@code HistoryQueryBody} from CBOR bytes.
+   *
+   * @param cbor CBOR-encoded input bytes
+   * @return the decoded {@code HistoryQueryBody} instance
+   * @throws RuntimeException if decoding fails
+   */
+  public static HistoryQueryBody fromCbor(byte[] cbor) {
+    return CborCodec.decode(cbor, HistoryQueryBody.class);
+  }
+}
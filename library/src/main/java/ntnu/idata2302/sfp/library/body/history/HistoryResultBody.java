@@ -0,0 +1,64 @@
+package ntnu.idata2302.sfp.library.body.history;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.util.List;
+import ntnu.idata2302.sfp.library.body.Body;
+import ntnu.idata2302.sfp.library.codec.CborCodec;
+
+/**
+ * Immutable body carrying one chunk of the answer to a HISTORY_QUERY.
+ *
+ * <p>Large results are split over several packets. Chunks are numbered from
+ * {@code 0} and the final chunk has {@code last} set; a series may continue
+ * in the next chunk under the same sensor id. Instances are serialized to and
+ * from CBOR using {@link CborCodec}.</p>
+ *
+ * @param requestId    the identifier of the query being answered
+ * @param sensorNodeId the sensor node the samples belong to
+ * @param chunk        zero-based index of this chunk
+ * @param last         whether this is the final chunk of the result
+ * @param series       the samples in this chunk, one entry per sensor
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record HistoryResultBody(
+    int requestId,
+    int sensorNodeId,
+    int chunk,
+    boolean last,
+    List<Series> series
+) implements Body {
+
+  /**
+   * Serialize this {@code HistoryResultBody} to CBOR bytes.
+   *
+   * @return a byte array containing the CBOR-encoded representation of this instance
+   */
+  @Override
+  public byte[] toCbor() {
+    return CborCodec.encode(this);
+  }
+
+  /**
+   * Decode a {@code HistoryResultBody} from CBOR bytes.
+   *
+   * @param cbor CBOR-encoded input bytes
+   * @return the decoded {@code HistoryResultBody} instance
+   * @throws RuntimeException if decoding fails
+   */
+  public static HistoryResultBody fromCbor(byte[] cbor) {
+    return CborCodec.decode(cbor, HistoryResultBody.class);
+  }
+
+  /**
+   * Samples of one sensor, stored column-wise to keep the encoding compact.
+   *
+   * @param sensorId   the sensor identifier
+   * @param timestamps sample times in epoch milliseconds, ascending
+   * @param values     sample values; same length as {@code timestamps}
+   */
+  public record Series(
+      String sensorId,
+      long[] timestamps,
+      double[] values
+  ) {}
+}
@@ -1,5 +1,7 @@
 package ntnu.idata2302.sfp.library.body.subscribe;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.util.BitSet;
 import ntnu.idata2302.sfp.library.body.Body;
 import ntnu.idata2302.sfp.library.codec.CborCodec;
 
@@ -10,14 +12,55 @@ import ntnu.idata2302.sfp.library.codec.CborCodec;
  * the original request identifier and a
  * numeric status code indicating success (commonly 1) or an error.</p>
  *
+ * <p>The acknowledgement of a bulk SUBSCRIBE carries one status bit per node id
+ * of the request, in request order: bit {@code i} of the bitmap (bit
+ * {@code i % 8} of byte {@code i / 8}) is set if the i-th node was accepted.
+ * {@code status} is then 1 only if every node was accepted.</p>
+ *
  * @param requestId      client-provided request identifier that this ack corresponds to
  * @param status         numeric status code (e.g. 1 = success, 0 = error)
+ * @param statusBitmap   per-node status bits of a bulk request (may be null)
  */
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public record SubscribeAckBody(
     int requestId,
-    int status
+    int status,
+    byte[] statusBitmap
 ) implements Body {
 
+  /**
+   * Create an acknowledgement of a single-node request.
+   *
+   * @param requestId client-provided request identifier that this ack corresponds to
+   * @param status    numeric status code
+   */
+  public SubscribeAckBody(int requestId, int status) {
+    this(requestId, status, null);
+  }
+
+  /**
+   * Create the acknowledgement of a bulk request.
+   *
+   * @param requestId client-provided request identifier that this ack corresponds to
+   * @param accepted  the positions of the accepted node ids in the request
+   * @param count     the number of node ids in the request
+   * @return the acknowledgement
+   */
+  public static SubscribeAckBody forBulk(int requestId, BitSet accepted, int count) {
+    int status = accepted.cardinality() == count ? 1 : 0;
+    return new SubscribeAckBody(requestId, status, accepted.toByteArray());
+  }
+
+  /**
+   * Return whether the node at a position of a bulk request was accepted.
+   *
+   * @param index the position of the node id in the request
+   * @return {@code true} if its status bit is set
+   */
+  public boolean isAccepted(int index) {
+    return statusBitmap != null && BitSet.valueOf(statusBitmap).get(index);
+  }
+
   /**
    * Serialize this {@code SubscribeAckBody} to CBOR bytes.
    *
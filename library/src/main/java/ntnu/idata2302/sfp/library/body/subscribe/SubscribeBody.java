@@ -12,14 +12,104 @@ import ntnu.idata2302.sfp.library.codec.CborCodec;
  * Instances can be serialized to and
  * deserialized from CBOR using {@link CborCodec}.</p>
  *
- * @param requestId client-provided identifier for this request
+ * <p>Instead of one node, a subscription can target a named group of sensor
+ * nodes, or {@link #ALL_SENSOR_NODES} for every sensor node. It then covers
+ * nodes that join the group later as well, and {@code sensorNodeId} is
+ * ignored.</p>
+ *
+ * <p>A bulk request lists several nodes in {@code sensorNodeIds} and is
+ * answered with a single SUBSCRIBE_ACK carrying one status bit per listed
+ * node; {@code sensorNodeId} is then ignored as well. The filter and delivery
+ * options apply to every listed node.</p>
+ *
+ * <p>A subscription may be limited to some of the node's sensors and
+ * actuators; reports are then forwarded with only those fields, and not at all
+ * if they contain none of them. Without either list everything is forwarded;
+ * once one list is given, a missing other list selects nothing. Subscribing
+ * again to the same node replaces the earlier filter and delivery policy.</p>
+ *
+ * <p>A control panel on a slow link can set a minimum interval between
+ * deliveries. Reports arriving faster are conflated: only the newest value of
+ * each field is kept pending and delivered when the interval is up.</p>
+ *
+ * <p>Deadbands suppress readings that barely changed: a reading is forwarded
+ * only once it differs from the value last delivered to the subscriber by more
+ * than its deadband. Actuator states are forwarded when they change. With a
+ * maximum silence set, the full report is forwarded anyway once nothing was
+ * delivered for that long.</p>
+ *
+ * @param requestId         client-provided identifier for this request
+ * @param sensorNodeId      the sensor node to subscribe to
+ * @param sensors           sensor ids to receive (may be null)
+ * @param actuators         actuator ids to receive (may be null)
+ * @param minIntervalMillis minimum time between deliveries in milliseconds;
+ *                          {@code null} or {@code 0} to deliver every report
+ * @param deadbands         per-sensor change thresholds (may be null)
+ * @param maxSilenceMillis  longest time without a delivery before the full report
+ *                          is forwarded regardless of deadbands (may be null)
+ * @param group             group to subscribe to instead of a single node (may be null)
+ * @param sensorNodeIds     sensor nodes to subscribe to in one request (may be null)
  */
 @JsonInclude(JsonInclude.Include.NON_NULL)
 public record SubscribeBody(
     int requestId,
-    int sensorNodeId
+    int sensorNodeId,
+    List<String> sensors,
+    List<String> actuators,
+    Integer minIntervalMillis,
+    List<Deadband> deadbands,
+    Integer maxSilenceMillis,
+    String group,
+    List<Integer> sensorNodeIds
 ) implements Body {
 
+  /** Group name matching every sensor node. */
+  public static final String ALL_SENSOR_NODES = "*";
+
+  /**
+   * Create a subscription to every sensor and actuator of a node.
+   *
+   * @param requestId    client-provided identifier for this request
+   * @param sensorNodeId the sensor node to subscribe to
+   */
+  public SubscribeBody(int requestId, int sensorNodeId) {
+    this(requestId, sensorNodeId, null, null, null, null, null, null, null);
+  }
+
+  /**
+   * Create a subscription to every sensor node of a group.
+   *
+   * @param requestId client-provided identifier for this request
+   * @param group     the group name, or {@link #ALL_SENSOR_NODES}
+   * @return the subscription request
+   */
+  public static SubscribeBody toGroup(int requestId, String group) {
+    return new SubscribeBody(requestId, 0, null, null, null, null, null, group, null);
+  }
+
+  /**
+   * Create a bulk subscription to every sensor and actuator of several nodes.
+   *
+   * @param requestId     client-provided identifier for this request
+   * @param sensorNodeIds the sensor nodes to subscribe to
+   * @return the subscription request
+   */
+  public static SubscribeBody toNodes(int requestId, List<Integer> sensorNodeIds) {
+    return new SubscribeBody(requestId, 0, null, null, null, null, null, null, sensorNodeIds);
+  }
+
+  /**
+   * Change threshold of one sensor. A reading is forwarded when it moved away
+   * from the last delivered value by more than either limit.
+   *
+   * @param sensorId the sensor; {@code null} for every sensor without its own entry
+   * @param absolute absolute limit in the sensor's unit (may be null)
+   * @param percent  limit in percent of the last delivered value (may be null)
+   */
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  public record Deadband(String sensorId, Double absolute, Double percent) {
+  }
+
   /**
    * Serialize this {@code SubscribeBody} to CBOR bytes.
    *
@@ -1,5 +1,7 @@
 package ntnu.idata2302.sfp.library.body.subscribe;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.util.List;
 import ntnu.idata2302.sfp.library.body.Body;
 import ntnu.idata2302.sfp.library.codec.CborCodec;
 
@@ -10,14 +12,47 @@ import ntnu.idata2302.sfp.library.codec.CborCodec;
  * Instances can be serialized to
  * and deserialized from CBOR using {@link CborCodec}.</p>
  *
+ * <p>A request naming a group ends the subscription to that group, as
+ * created by a group SUBSCRIBE; {@code sensorNodeId} is then ignored.</p>
+ *
+ * <p>A bulk request lists several nodes in {@code sensorNodeIds} and is
+ * answered with a single UNSUBSCRIBE_ACK carrying one status bit per listed
+ * node.</p>
+ *
  * @param requestId      client-provided identifier for this request
  * @param sensorNodeId   identifier of the sensorNode
+ * @param group          group to unsubscribe from instead of a single node (may be null)
+ * @param sensorNodeIds  sensor nodes to unsubscribe from in one request (may be null)
  */
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public record UnsubscribeBody(
     int requestId,
-    int sensorNodeId
+    int sensorNodeId,
+    String group,
+    List<Integer> sensorNodeIds
 ) implements Body {
 
+  /**
+   * Create a request to unsubscribe from a single node.
+   *
+   * @param requestId    client-provided identifier for this request
+   * @param sensorNodeId identifier of the sensorNode
+   */
+  public UnsubscribeBody(int requestId, int sensorNodeId) {
+    this(requestId, sensorNodeId, null, null);
+  }
+
+  /**
+   * Create a bulk request to unsubscribe from several nodes.
+   *
+   * @param requestId     client-provided identifier for this request
+   * @param sensorNodeIds the sensor nodes to unsubscribe from
+   * @return the unsubscribe request
+   */
+  public static UnsubscribeBody fromNodes(int requestId, List<Integer> sensorNodeIds) {
+    return new UnsubscribeBody(requestId, 0, null, sensorNodeIds);
+  }
+
   /**
    * Serialize this {@code UnsubscribeBody} to CBOR bytes.
    *
@@ -1,15 +1,25 @@
 package ntnu.idata2302.sfp.library.codec;
 
 import ntnu.idata2302.sfp.library.body.Body;
+import ntnu.idata2302.sfp.library.body.aggregate.AggregateQueryBody;
+import ntnu.idata2302.sfp.library.body.aggregate.AggregateResultBody;
 import ntnu.idata2302.sfp.library.body.announce.AnnounceAckBody;
 import ntnu.idata2302.sfp.library.body.announce.AnnounceBody;
+import ntnu.idata2302.sfp.library.body.announce.HeartbeatBody;
+import ntnu.idata2302.sfp.library.body.capabilities.CapabilitiesDeltaBody;
 import ntnu.idata2302.sfp.library.body.capabilities.CapabilitiesListBody;
 import ntnu.idata2302.sfp.library.body.capabilities.CapabilitiesQueryBody;
 import ntnu.idata2302.sfp.library.body.command.CommandAckBody;
 import ntnu.idata2302.sfp.library.body.command.CommandBody;
+import ntnu.idata2302.sfp.library.body.command.GroupCommandBody;
+import ntnu.idata2302.sfp.library.body.command.GroupCommandResultBody;
 import ntnu.idata2302.sfp.library.body.data.DataReportBody;
 import ntnu.idata2302.sfp.library.body.data.DataRequestBody;
 import ntnu.idata2302.sfp.library.body.error.ErrorBody;
+import ntnu.idata2302.sfp.library.body.group.GroupAssignAckBody;
+import ntnu.idata2302.sfp.library.body.group.GroupAssignBody;
+import ntnu.idata2302.sfp.library.body.history.HistoryQueryBody;
+import ntnu.idata2302.sfp.library.body.history.HistoryResultBody;
 import ntnu.idata2302.sfp.library.body.image.ImageChunkBody;
 import ntnu.idata2302.sfp.library.body.image.ImageMetadataBody;
 import ntnu.idata2302.sfp.library.body.image.ImageTransferAckBody;
@@ -57,20 +67,30 @@ public class ProtocolBodyDecoder {
     return switch (msgType) {
       case DATA_REPORT -> DataReportBody.fromCbor(body);
       case DATA_REQUEST -> DataRequestBody.fromCbor(body);
+      case HISTORY_QUERY -> HistoryQueryBody.fromCbor(body);
+      case HISTORY_RESULT -> HistoryResultBody.fromCbor(body);
+      case AGGREGATE_QUERY -> AggregateQueryBody.fromCbor(body);
+      case AGGREGATE_RESULT -> AggregateResultBody.fromCbor(body);
 
       case COMMAND -> CommandBody.fromCbor(body);
       case COMMAND_ACK -> CommandAckBody.fromCbor(body);
+      case GROUP_COMMAND -> GroupCommandBody.fromCbor(body);
+      case GROUP_COMMAND_RESULT -> GroupCommandResultBody.fromCbor(body);
 
       case SUBSCRIBE -> SubscribeBody.fromCbor(body);
       case UNSUBSCRIBE -> UnsubscribeBody.fromCbor(body);
       case SUBSCRIBE_ACK -> SubscribeAckBody.fromCbor(body);
       case UNSUBSCRIBE_ACK -> UnsubscribeAckBody.fromCbor(body);
+      case GROUP_ASSIGN -> GroupAssignBody.fromCbor(body);
+      case GROUP_ASSIGN_ACK -> GroupAssignAckBody.fromCbor(body);
 
       case CAPABILITIES_QUERY -> CapabilitiesQueryBody.fromCbor(body);
       case CAPABILITIES_LIST -> CapabilitiesListBody.fromCbor(body);
+      case CAPABILITIES_DELTA -> CapabilitiesDeltaBody.fromCbor(body);
 
       case ANNOUNCE -> AnnounceBody.fromCbor(body);
       case ANNOUNCE_ACK -> AnnounceAckBody.fromCbor(body);
+      case HEARTBEAT -> HeartbeatBody.fromCbor(body);
 
       case IMAGE_METADATA -> ImageMetadataBody.fromCbor(body);
       case IMAGE_CHUNK -> ImageChunkBody.fromCbor(body);
@@ -0,0 +1,245 @@
+package ntnu.idata2302.sfp.library.header;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-source window of recently seen header Message IDs, used to drop
+ * retried messages that were already processed.
+ *
+ * <p>Each source id has its own bounded set of ids, split into
+ * {@value #SEGMENTS} open-addressed segments that grow as needed. New ids go
+ * into the current segment; when the segment has been current for a full
+ * span, or is full, the oldest segment is cleared and becomes current. An id
+ * is therefore remembered for at least {@code windowMillis} unless more than
+ * {@code capacity} ids arrive from its source in that time, in which case the
+ * oldest ids are evicted early. A check probes each segment once and only
+ * allocates while a segment grows, so it is cheap enough to run on every
+ * received frame.</p>
+ *
+ * <p>The nil UUID marks free slots and is never treated as a duplicate.</p>
+ */
+public class MessageIdWindow {
+
+  /** Default time an id is remembered, in milliseconds. */
+  public static final long DEFAULT_WINDOW_MILLIS = 60_000;
+
+  /** Default maximum number of ids remembered per source. */
+  public static final int DEFAULT_CAPACITY = 4096;
+
+  private static final int SEGMENTS = 4;
+  private static final int INITIAL_SLOTS = 16;
+
+  private final Map<Integer, SourceWindow> sources = new ConcurrentHashMap<>();
+  private final long spanNanos;
+  private final int segmentCapacity;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  /**
+   * Create a window with {@link #DEFAULT_WINDOW_MILLIS} and {@link #DEFAULT_CAPACITY}.
+   */
+  public MessageIdWindow() {
+    this(DEFAULT_WINDOW_MILLIS, DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Create a window.
+   *
+   * @param windowMillis minimum time an id is remembered; must be positive
+   * @param capacity     maximum number of ids remembered per source; must be positive
+   * @throws IllegalArgumentException if an argument is not positive
+   */
+  public MessageIdWindow(long windowMillis, int capacity) {
+    if (windowMillis <= 0 || capacity <= 0) {
+      throw new IllegalArgumentException("windowMillis and capacity must be positive");
+    }
+    // The oldest segment is cleared after SEGMENTS - 1 full spans
+    this.spanNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis) / (SEGMENTS - 1);
+    this.segmentCapacity = Math.max(1, (capacity + SEGMENTS - 1) / SEGMENTS);
+  }
+
+  /**
+   * Record the Message ID of a received header.
+   *
+   * @param header the received header
+   * @return {@code true} if the message is new, {@code false} if it is a duplicate
+   */
+  public boolean firstSeen(Header header) {
+    return firstSeen(header.getSourceId(), header.getMessageId(), System.nanoTime());
+  }
+
+  /**
+   * Record a Message ID from a source at the given time.
+   *
+   * @param sourceId  the source id of the message
+   * @param messageId the Message ID
+   * @param nowNanos  the current {@link System#nanoTime()}
+   * @return {@code true} if the message is new, {@code false} if it is a duplicate
+   */
+  public boolean firstSeen(int sourceId, UUID messageId, long nowNanos) {
+    long msb = messageId.getMostSignificantBits();
+    long lsb = messageId.getLeastSignificantBits();
+    if (msb == 0 && lsb == 0) {
+      misses.increment();
+      return true;
+    }
+    SourceWindow window = sources.computeIfAbsent(sourceId, id -> new SourceWindow(nowNanos));
+    boolean fresh = window.add(msb, lsb, nowNanos);
+    if (fresh) {
+      misses.increment();
+    } else {
+      hits.increment();
+    }
+    return fresh;
+  }
+
+  /**
+   * Forget the ids of a source that left.
+   *
+   * @param sourceId the source id
+   */
+  public void removeSource(int sourceId) {
+    sources.remove(sourceId);
+  }
+
+  /**
+   * Return the number of duplicates detected.
+   *
+   * @return the number of hits
+   */
+  public long hits() {
+    return hits.sum();
+  }
+
+  /**
+   * Return the number of new ids recorded.
+   *
+   * @return the number of misses
+   */
+  public long misses() {
+    return misses.sum();
+  }
+
+  /**
+   * Return the number of ids forgotten before their window passed because
+   * their source sent more than the capacity.
+   *
+   * @return the number of evictions
+   */
+  public long evictions() {
+    return evictions.sum();
+  }
+
+  /**
+   * The segments of one source.
+   */
+  private final class SourceWindow {
+    private final long[][] msbs = new long[SEGMENTS][];
+    private final long[][] lsbs = new long[SEGMENTS][];
+    private final int[] sizes = new int[SEGMENTS];
+    private int current;
+    private long currentSince;
+
+    private SourceWindow(long nowNanos) {
+      for (int i = 0; i < SEGMENTS; i++) {
+        msbs[i] = new long[INITIAL_SLOTS];
+        lsbs[i] = new long[INITIAL_SLOTS];
+      }
+      this.currentSince = nowNanos;
+    }
+
+    synchronized boolean add(long msb, long lsb, long nowNanos) {
+      expire(nowNanos);
+      int hash = hash(msb, lsb);
+      for (int s = 0; s < SEGMENTS; s++) {
+        if (sizes[s] > 0 && contains(s, hash, msb, lsb)) {
+          return false;
+        }
+      }
+      if (sizes[current] >= segmentCapacity) {
+        rotate(nowNanos, true);
+      }
+      insert(current, hash, msb, lsb);
+      return true;
+    }
+
+    private void expire(long nowNanos) {
+      // After an idle gap every segment is stale; clearing each once is enough
+      for (int i = 0; i < SEGMENTS && nowNanos - currentSince >= spanNanos; i++) {
+        rotate(currentSince + spanNanos, false);
+      }
+      if (nowNanos - currentSince >= spanNanos) {
+        currentSince = nowNanos;
+      }
+    }
+
+    private void rotate(long sinceNanos, boolean early) {
+      current = (current + 1) % SEGMENTS;
+      if (sizes[current] > 0) {
+        if (early) {
+          evictions.add(sizes[current]);
+        }
+        Arrays.fill(msbs[current], 0);
+        Arrays.fill(lsbs[current], 0);
+        sizes[current] = 0;
+      }
+      currentSince = sinceNanos;
+    }
+
+    private boolean contains(int segment, int hash, long msb, long lsb) {
+      long[] m = msbs[segment];
+      long[] l = lsbs[segment];
+      int mask = m.length - 1;
+      for (int i = hash & mask; ; i = (i + 1) & mask) {
+        if (m[i] == msb && l[i] == lsb) {
+          return true;
+        }
+        if (m[i] == 0 && l[i] == 0) {
+          return false;
+        }
+      }
+    }
+
+    private void insert(int segment, int hash, long msb, long lsb) {
+      // Kept at most half full, so probe sequences stay short
+      if ((sizes[segment] + 1) * 2 > msbs[segment].length) {
+        grow(segment);
+      }
+      long[] m = msbs[segment];
+      long[] l = lsbs[segment];
+      int mask = m.length - 1;
+      int i = hash & mask;
+      while (m[i] != 0 || l[i] != 0) {
+        i = (i + 1) & mask;
+      }
+      m[i] = msb;
+      l[i] = lsb;
+      sizes[segment]++;
+    }
+
+    private void grow(int segment) {
+      long[] oldMsbs = msbs[segment];
+      long[] oldLsbs = lsbs[segment];
+      msbs[segment] = new long[oldMsbs.length * 2];
+      lsbs[segment] = new long[oldLsbs.length * 2];
+      sizes[segment] = 0;
+      for (int i = 0; i < oldMsbs.length; i++) {
+        if (oldMsbs[i] != 0 || oldLsbs[i] != 0) {
+          insert(segment, hash(oldMsbs[i], oldLsbs[i]), oldMsbs[i], oldLsbs[i]);
+        }
+      }
+    }
+  }
+
+  private static int hash(long msb, long lsb) {
+    long h = (msb ^ Long.rotateLeft(lsb, 32)) * 0x9E3779B97F4A7C15L;
+    return (int) (h ^ (h >>> 32));
+  }
+}
@@ -15,20 +15,30 @@ import java.util.Map;
 public enum MessageTypes {
   DATA_REPORT(0x01),
   DATA_REQUEST(0x02),
+  HISTORY_QUERY(0x03),
+  HISTORY_RESULT(0x04),
+  AGGREGATE_QUERY(0x05),
+  AGGREGATE_RESULT(0x06),
 
   COMMAND(0x12),
   COMMAND_ACK(0x13),
+  GROUP_COMMAND(0x24),
+  GROUP_COMMAND_RESULT(0x25),
 
   SUBSCRIBE(0x0B),
   UNSUBSCRIBE(0x0C),
   SUBSCRIBE_ACK(0x0D),
   UNSUBSCRIBE_ACK(0x0E),
+  GROUP_ASSIGN(0x0F),
+  GROUP_ASSIGN_ACK(0x10),
 
   CAPABILITIES_QUERY(0x21),
   CAPABILITIES_LIST(0x22),
+  CAPABILITIES_DELTA(0x23),
 
   ANNOUNCE(0x1E),
   ANNOUNCE_ACK(0x1D),
+  HEARTBEAT(0x14),
 
   IMAGE_METADATA(0x07),
   IMAGE_CHUNK(0x08),
@@ -0,0 +1,162 @@
+package ntnu.idata2302.sfp.library.node;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import ntnu.idata2302.sfp.library.codec.CborCodec;
+
+/**
+ * Helpers for content-addressed descriptor templates.
+ *
+ * <p>The template of a {@link NodeDescriptor} is everything except what is
+ * specific to one node: its sensors, actuators and feature flags, without
+ * node id, groups, template hash or current actuator values, which a
+ * template lists as {@code 0}. Identical nodes share a template, which is
+ * named by a hash of its CBOR encoding, whatever their actuators are set
+ * to.</p>
+ *
+ * <p>A <em>reference</em> is a descriptor that names its template by hash
+ * instead of listing its content: it keeps node id, node type and groups,
+ * carries its actuator values in {@code actuatorValues}, and leaves sensors,
+ * actuators and flags unset. Nodes announce themselves by reference, and
+ * capabilities lists carry each template once next to the references to
+ * it.</p>
+ *
+ * <p>All members are static and the class is not instantiable.</p>
+ */
+public final class DescriptorTemplates {
+
+  // First 16 bytes of SHA-256, as hex
+  private static final int HASH_BYTES = 16;
+  private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+  private DescriptorTemplates() {
+  } // utility class
+
+  /**
+   * Return the template of a descriptor.
+   *
+   * @param descriptor the descriptor
+   * @return the descriptor without node id, groups and template hash, and with
+   *         every actuator value set to {@code 0}
+   */
+  public static NodeDescriptor template(NodeDescriptor descriptor) {
+    List<NodeDescriptor.ActuatorDescriptor> actuators = descriptor.actuators();
+    if (actuators != null) {
+      List<NodeDescriptor.ActuatorDescriptor> normalized = new ArrayList<>(actuators.size());
+      for (NodeDescriptor.ActuatorDescriptor actuator : actuators) {
+        normalized.add(new NodeDescriptor.ActuatorDescriptor(actuator.id(), 0,
+            actuator.minValue(), actuator.maxValue(), actuator.unit()));
+      }
+      actuators = normalized;
+    }
+    return new NodeDescriptor(null, descriptor.nodeType(), descriptor.sensors(),
+        actuators, descriptor.supportsImages(), descriptor.supportsAggregates(),
+        null, null);
+  }
+
+  /**
+   * Compute the hash naming the template of a descriptor.
+   *
+   * @param descriptor the descriptor
+   * @return the template hash as 32 lowercase hex digits
+   */
+  public static String hash(NodeDescriptor descriptor) {
+    byte[] digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256").digest(CborCodec.encode(template(descriptor)));
+    } catch (NoSuchAlgorithmException e) {
+      // Every Java platform is required to support SHA-256
+      throw new IllegalStateException(e);
+    }
+    byte[] hex = new byte[HASH_BYTES * 2];
+    for (int i = 0; i < HASH_BYTES; i++) {
+      hex[2 * i] = HEX[(digest[i] >> 4) & 0x0F];
+      hex[2 * i + 1] = HEX[digest[i] & 0x0F];
+    }
+    return new String(hex, StandardCharsets.US_ASCII);
+  }
+
+  /**
+   * Return the reference form of a descriptor.
+   *
+   * @param descriptor the descriptor
+   * @param hash       the hash of its template
+   * @return the descriptor with its template content replaced by the hash,
+   *         keeping its actuator values
+   */
+  public static NodeDescriptor reference(NodeDescriptor descriptor, String hash) {
+    Map<String, Double> values = descriptor.actuatorValues();
+    if (descriptor.actuators() != null) {
+      values = new LinkedHashMap<>();
+      for (NodeDescriptor.ActuatorDescriptor actuator : descriptor.actuators()) {
+        if (actuator.value() != 0) {
+          values.put(actuator.id(), actuator.value());
+        }
+      }
+    }
+    return new NodeDescriptor(descriptor.nodeId(), descriptor.nodeType(), null, null, null, null,
+        descriptor.groups(), hash, values == null || values.isEmpty() ? null : values);
+  }
+
+  /**
+   * Check whether a descriptor is a reference: it names a template and lists
+   * none of the template's content itself.
+   *
+   * @param descriptor the descriptor
+   * @return {@code true} if the descriptor is a reference
+   */
+  public static boolean isReference(NodeDescriptor descriptor) {
+    return descriptor.template() != null
+        && descriptor.sensors() == null
+        && descriptor.actuators() == null
+        && descriptor.supportsImages() == null
+        && descriptor.supportsAggregates() == null;
+  }
+
+  /**
+   * Combine a reference with the content of its template.
+   *
+   * @param reference the descriptor, reference or not
+   * @param template  the template named by the reference
+   * @return the full descriptor; its sensor list is the template's, and so is
+   *         its actuator list unless the reference sets actuator values
+   */
+  public static NodeDescriptor resolve(NodeDescriptor reference, NodeDescriptor template) {
+    List<NodeDescriptor.ActuatorDescriptor> actuators = template.actuators();
+    Map<String, Double> values = reference.actuatorValues();
+    if (actuators != null && values != null && !values.isEmpty()) {
+      List<NodeDescriptor.ActuatorDescriptor> valued = new ArrayList<>(actuators.size());
+      for (NodeDescriptor.ActuatorDescriptor actuator : actuators) {
+        Double value = values.get(actuator.id());
+        valued.add(value == null ? actuator : new NodeDescriptor.ActuatorDescriptor(
+            actuator.id(), value, actuator.minValue(), actuator.maxValue(), actuator.unit()));
+      }
+      actuators = valued;
+    }
+    return new NodeDescriptor(reference.nodeId(), reference.nodeType(), template.sensors(),
+        actuators, template.supportsImages(), template.supportsAggregates(),
+        reference.groups(), reference.template());
+  }
+
+  /**
+   * Resolve a descriptor against a set of templates.
+   *
+   * @param descriptor the descriptor, reference or not
+   * @param templates  templates by hash (may be null)
+   * @return the full descriptor, or {@code descriptor} itself if it is not a
+   *         reference or its template is not in {@code templates}
+   */
+  public static NodeDescriptor resolve(NodeDescriptor descriptor,
+                                       Map<String, NodeDescriptor> templates) {
+    if (templates == null || !isReference(descriptor)) {
+      return descriptor;
+    }
+    NodeDescriptor template = templates.get(descriptor.template());
+    return template == null ? descriptor : resolve(descriptor, template);
+  }
+}
@@ -2,6 +2,7 @@ package ntnu.idata2302.sfp.library.node;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Descriptor for a single node in the system.
@@ -21,6 +22,12 @@ import java.util.List;
  *                           may be {@code null} if unknown
  * @param supportsAggregates {@code Boolean} flag indicating if the node supports aggregate data;
  *                           may be {@code null} if unknown
+ * @param groups             names of the groups or zones the node belongs to, such as
+ *                           {@code "greenhouse-1"}; may be {@code null}
+ * @param template           hash of the node's descriptor template, see
+ *                           {@link DescriptorTemplates}; may be {@code null}
+ * @param actuatorValues     current actuator values by actuator id, carried by a
+ *                           reference in place of its actuators; may be {@code null}
  */
 @JsonInclude(JsonInclude.Include.NON_NULL)
 public record NodeDescriptor(
@@ -29,9 +36,64 @@ public record NodeDescriptor(
     List<SensorDescriptor> sensors,
     List<ActuatorDescriptor> actuators,
     Boolean supportsImages,
-    Boolean supportsAggregates
+    Boolean supportsAggregates,
+    List<String> groups,
+    String template,
+    Map<String, Double> actuatorValues
 ) {
 
+  /**
+   * Create a descriptor of a node that belongs to no group.
+   *
+   * @param nodeId             nullable numeric identifier for the node
+   * @param nodeType           integer code identifying the node type
+   * @param sensors            list of sensor descriptors for this node
+   * @param actuators          list of actuator descriptors for this node
+   * @param supportsImages     whether the node supports image transfer (may be null)
+   * @param supportsAggregates whether the node supports aggregate data (may be null)
+   */
+  public NodeDescriptor(Integer nodeId, int nodeType, List<SensorDescriptor> sensors,
+                        List<ActuatorDescriptor> actuators, Boolean supportsImages,
+                        Boolean supportsAggregates) {
+    this(nodeId, nodeType, sensors, actuators, supportsImages, supportsAggregates, null, null);
+  }
+
+  /**
+   * Create a descriptor without a template hash.
+   *
+   * @param nodeId             nullable numeric identifier for the node
+   * @param nodeType           integer code identifying the node type
+   * @param sensors            list of sensor descriptors for this node
+   * @param actuators          list of actuator descriptors for this node
+   * @param supportsImages     whether the node supports image transfer (may be null)
+   * @param supportsAggregates whether the node supports aggregate data (may be null)
+   * @param groups             names of the groups the node belongs to (may be null)
+   */
+  public NodeDescriptor(Integer nodeId, int nodeType, List<SensorDescriptor> sensors,
+                        List<ActuatorDescriptor> actuators, Boolean supportsImages,
+                        Boolean supportsAggregates, List<String> groups) {
+    this(nodeId, nodeType, sensors, actuators, supportsImages, supportsAggregates, groups, null);
+  }
+
+  /**
+   * Create a descriptor listing its actuators with their values.
+   *
+   * @param nodeId             nullable numeric identifier for the node
+   * @param nodeType           integer code identifying the node type
+   * @param sensors            list of sensor descriptors for this node
+   * @param actuators          list of actuator descriptors for this node
+   * @param supportsImages     whether the node supports image transfer (may be null)
+   * @param supportsAggregates whether the node supports aggregate data (may be null)
+   * @param groups             names of the groups the node belongs to (may be null)
+   * @param template           hash of the node's descriptor template (may be null)
+   */
+  public NodeDescriptor(Integer nodeId, int nodeType, List<SensorDescriptor> sensors,
+                        List<ActuatorDescriptor> actuators, Boolean supportsImages,
+                        Boolean supportsAggregates, List<String> groups, String template) {
+    this(nodeId, nodeType, sensors, actuators, supportsImages, supportsAggregates, groups,
+        template, null);
+  }
+
   /**
    * Descriptor for a sensor attached to a node.
    *
@@ -0,0 +1,74 @@
+package ntnu.idata2302.sfp.library.body.aggregate;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Test class for {@link AggregateQueryBody}.
+ *
+ * <b>Positive Tests:</b>
+ * <ul>
+ *   <li>A push query with explicit nodes round-trips through CBOR.</li>
+ *   <li>A one-shot query selecting nodes by sensor round-trips through CBOR.</li>
+ * </ul>
+ *
+ * <b>Negative Tests:</b>
+ * <ul>
+ *   <li>Decoding corrupted CBOR data throws an exception.</li>
+ * </ul>
+ */
+public class AggregateQueryBodyTest {
+
+  // --------------------------- POSITIVE TESTS ---------------------------------- //
+
+  /**
+   * Verifies that every field survives encoding and decoding.
+   */
+  @Test
+  void toCborAndFromCbor_full_positive() {
+    // Arrange
+    AggregateQueryBody original = new AggregateQueryBody(3, "soil", List.of(0x10000, 0x10001),
+        "1h", List.of("avg"), 5000, Boolean.FALSE);
+
+    // Act
+    AggregateQueryBody decoded = AggregateQueryBody.fromCbor(original.toCbor());
+
+    // Assert
+    assertEquals(original, decoded);
+  }
+
+  /**
+   * Verifies that omitted fields decode as null.
+   */
+  @Test
+  void toCborAndFromCbor_bySensor_positive() {
+    // Arrange
+    AggregateQueryBody original =
+        new AggregateQueryBody(4, "temp", null, null, null, null, null);
+
+    // Act
+    AggregateQueryBody decoded = AggregateQueryBody.fromCbor(original.toCbor());
+
+    // Assert
+    assertEquals("temp", decoded.sensorId());
+    assertNull(decoded.nodeIds());
+    assertNull(decoded.intervalMillis());
+  }
+
+  // --------------------------- NEGATIVE TESTS ---------------------------------- //
+
+  /**
+   * Verifies that decoding corrupted CBOR data throws an exception.
+   */
+  @Test
+  void fromCbor_corruptedData_negative() {
+    byte[] corrupted = new byte[]{0x01, 0x02, 0x03};
+
+    assertThrows(RuntimeException.class, () -> AggregateQueryBody.fromCbor(corrupted));
+  }
+}
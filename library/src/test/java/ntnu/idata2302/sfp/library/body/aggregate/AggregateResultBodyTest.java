@@ -0,0 +1,74 @@
+package ntnu.idata2302.sfp.library.body.aggregate;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Test class for {@link AggregateResultBody}.
+ *
+ * <b>Positive Tests:</b>
+ * <ul>
+ *   <li>A result with values round-trips through CBOR.</li>
+ *   <li>A result without contributing nodes round-trips with null values.</li>
+ * </ul>
+ *
+ * <b>Negative Tests:</b>
+ * <ul>
+ *   <li>Decoding corrupted CBOR data throws an exception.</li>
+ * </ul>
+ */
+public class AggregateResultBodyTest {
+
+  // --------------------------- POSITIVE TESTS ---------------------------------- //
+
+  /**
+   * Verifies that every field survives encoding and decoding.
+   */
+  @Test
+  void toCborAndFromCbor_full_positive() {
+    // Arrange
+    AggregateResultBody original = new AggregateResultBody(3, "soil", "1h", 1_700_000_000_000L,
+        List.of(0x10000, 0x10001), 120, 10.5, 33.0, 21.25);
+
+    // Act
+    AggregateResultBody decoded = AggregateResultBody.fromCbor(original.toCbor());
+
+    // Assert
+    assertEquals(original, decoded);
+  }
+
+  /**
+   * Verifies that an empty result keeps its null values.
+   */
+  @Test
+  void toCborAndFromCbor_empty_positive() {
+    // Arrange
+    AggregateResultBody original =
+        new AggregateResultBody(4, "temp", "day", 1L, List.of(), 0, null, null, null);
+
+    // Act
+    AggregateResultBody decoded = AggregateResultBody.fromCbor(original.toCbor());
+
+    // Assert
+    assertEquals(0, decoded.sampleCount());
+    assertEquals(List.of(), decoded.nodeIds());
+    assertNull(decoded.avg());
+  }
+
+  // --------------------------- NEGATIVE TESTS ---------------------------------- //
+
+  /**
+   * Verifies that decoding corrupted CBOR data throws an exception.
+   */
+  @Test
+  void fromCbor_corruptedData_negative() {
+    byte[] corrupted = new byte[]{0x01, 0x02, 0x03};
+
+    assertThrows(RuntimeException.class, () -> AggregateResultBody.fromCbor(corrupted));
+  }
+}
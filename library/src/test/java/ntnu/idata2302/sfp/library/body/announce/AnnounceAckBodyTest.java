@@ -4,6 +4,7 @@ import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 /**
@@ -14,6 +15,7 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
  * <b>Positive Tests:</b>
  * <ul>
  *   <li>toCbor and fromCbor round trip works correctly</li>
+ *   <li>resume token survives the round trip</li>
  *
  * </ul>
  *
@@ -49,6 +51,26 @@ class AnnounceAckBodyTest {
     assertEquals(original.status(), decoded.status());
   }
 
+  /**
+   * Verifies that the resume token is encoded and decoded, and that the
+   * two-argument constructor leaves it unset.
+   */
+
+  @Test
+  void toCborAndFromCbor_resumeToken_positive() {
+    // Arrange
+    AnnounceAckBody withToken = new AnnounceAckBody(7, 1, "token-abc");
+    AnnounceAckBody withoutToken = new AnnounceAckBody(8, 1);
+
+    // Act
+    AnnounceAckBody decodedWith = AnnounceAckBody.fromCbor(withToken.toCbor());
+    AnnounceAckBody decodedWithout = AnnounceAckBody.fromCbor(withoutToken.toCbor());
+
+    // Assert
+    assertEquals("token-abc", decodedWith.resumeToken());
+    assertNull(decodedWithout.resumeToken());
+  }
+
   // --------------------------- NEGATIVE TESTS ---------------------------------- //
 
   /**
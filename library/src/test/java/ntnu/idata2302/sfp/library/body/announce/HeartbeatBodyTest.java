@@ -0,0 +1,53 @@
+package ntnu.idata2302.sfp.library.body.announce;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Test class for {@link HeartbeatBody}.
+ *
+ * <b>Positive Tests:</b>
+ * <ul>
+ *   <li>toCbor and fromCbor round trip keeps the interval</li>
+ * </ul>
+ *
+ * <b>Negative Tests:</b>
+ * <ul>
+ *   <li>fromCbor with corrupted data throws exception</li>
+ * </ul>
+ */
+class HeartbeatBodyTest {
+
+  // --------------------------- POSITIVE TESTS ---------------------------------- //
+
+  /**
+   * Verifies that encoding and decoding a HeartbeatBody keeps its interval.
+   */
+  @Test
+  void toCborAndFromCbor_roundTrip_positive() {
+    // Arrange
+    HeartbeatBody original = new HeartbeatBody(5000);
+
+    // Act
+    HeartbeatBody decoded = HeartbeatBody.fromCbor(original.toCbor());
+
+    // Assert
+    assertEquals(original, decoded);
+  }
+
+  // --------------------------- NEGATIVE TESTS ---------------------------------- //
+
+  /**
+   * Verifies that decoding corrupted CBOR data throws an exception.
+   */
+  @Test
+  void fromCbor_corruptedData_negative() {
+    // Arrange
+    byte[] corrupted = new byte[]{0x01, 0x02, 0x03};
+
+    // Act & Assert
+    assertThrows(RuntimeException.class, () -> HeartbeatBody.fromCbor(corrupted));
+  }
+}
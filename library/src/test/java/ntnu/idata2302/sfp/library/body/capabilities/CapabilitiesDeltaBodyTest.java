@@ -0,0 +1,75 @@
+package ntnu.idata2302.sfp.library.body.capabilities;
+
+import ntnu.idata2302.sfp.library.node.NodeDescriptor;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Test class for {@link CapabilitiesDeltaBody}.
+ *
+ * <b>Positive Tests:</b>
+ * <ul>
+ *   <li>A delta with joined and removed nodes round-trips through CBOR.</li>
+ *   <li>A delta with only removals omits the upserted list.</li>
+ * </ul>
+ *
+ * <b>Negative Tests:</b>
+ * <ul>
+ *   <li>Decoding corrupted CBOR input results in an exception being thrown.</li>
+ * </ul>
+ */
+class CapabilitiesDeltaBodyTest {
+
+  // --------------------------- POSITIVE TESTS ---------------------------------- //
+
+  /**
+   * Verifies that versions, descriptors and removed ids survive encoding.
+   */
+  @Test
+  void toCborAndFromCbor_roundTrip_positive() {
+    // Arrange
+    CapabilitiesDeltaBody original = new CapabilitiesDeltaBody(0, 4, 6,
+        List.of(new NodeDescriptor(0x10002, 1, null, null, null, null, List.of("zone-a"))),
+        List.of(0x10000));
+
+    // Act
+    CapabilitiesDeltaBody decoded = CapabilitiesDeltaBody.fromCbor(original.toCbor());
+
+    // Assert
+    assertEquals(original, decoded);
+  }
+
+  /**
+   * Verifies that a delta without joined nodes decodes with a null upserted list.
+   */
+  @Test
+  void toCborAndFromCbor_removalsOnly_positive() {
+    // Arrange
+    CapabilitiesDeltaBody original = new CapabilitiesDeltaBody(3, 9, 10, null, List.of(0x10001));
+
+    // Act
+    CapabilitiesDeltaBody decoded = CapabilitiesDeltaBody.fromCbor(original.toCbor());
+
+    // Assert
+    assertNull(decoded.upserted());
+    assertEquals(List.of(0x10001), decoded.removed());
+    assertEquals(9, decoded.fromVersion());
+  }
+
+  // --------------------------- NEGATIVE TESTS ---------------------------------- //
+
+  /**
+   * Verifies that decoding corrupted CBOR input throws an exception.
+   */
+  @Test
+  void fromCbor_corruptedInput_negative() {
+    byte[] corrupted = new byte[]{(byte) 0xFF, 0x00, 0x13};
+
+    assertThrows(RuntimeException.class, () -> CapabilitiesDeltaBody.fromCbor(corrupted));
+  }
+}
@@ -11,6 +11,7 @@ import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 /**
@@ -19,6 +20,7 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
  * <b>Positive Tests:</b>
  * <ul>
  *   <li>Verifies that CapabilitiesListBody is correctly encoded to CBOR</li>
+ *   <li>A not-modified answer keeps its version and carries no nodes.</li>
  * </ul>
  *
  * <b>Negative Tests:</b>
@@ -70,6 +72,23 @@ class CapabilitiesListBodyTest {
     assertEquals(original.nodes().get(0).nodeId(), decoded.nodes().get(0).nodeId());
   }
 
+  /**
+   * Verifies that a not-modified answer round-trips without a node list.
+   */
+  @Test
+  void notModified_roundTrip_positive() {
+    // Arrange
+    CapabilitiesListBody original = CapabilitiesListBody.notModified(56, 7L);
+
+    // Act
+    CapabilitiesListBody decoded = CapabilitiesListBody.fromCbor(original.toCbor());
+
+    // Assert
+    assertEquals(original, decoded);
+    assertEquals(Boolean.TRUE, decoded.notModified());
+    assertNull(decoded.nodes());
+  }
+
   // --------------------------- NEGATIVE TESTS ---------------------------------- //
 
   /**
@@ -5,8 +5,10 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.function.Executable;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  * Test class for {@link CapabilitiesQueryBody}.
@@ -14,6 +16,7 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
  * <b>Positive Tests:</b>
  * <ul>
  *   <li>Verifies that CapabilitiesQueryBody is correctly encoded and decoded using CBOR</li>
+ *   <li>Verifies that a paged query keeps its filter, cursor and limit</li>
  * </ul>
  *
  * <b>Negative Tests:</b>
@@ -45,6 +48,24 @@ class CapabilitiesQueryBodyTest {
     assertEquals(original.requestId(), decoded.requestId());
   }
 
+  /**
+   * Verifies that a filtered page query survives a CBOR round trip.
+   */
+  @Test
+  void page_roundTrip_positive() {
+    // Arrange
+    CapabilitiesQueryBody original = CapabilitiesQueryBody.page(4,
+        new CapabilitiesQueryBody.Filter(1, "temp", null, true, 100, 200), 150, 50);
+
+    // Act
+    CapabilitiesQueryBody decoded = CapabilitiesQueryBody.fromCbor(original.toCbor());
+
+    // Assert
+    assertEquals(original, decoded);
+    assertTrue(decoded.isPaged());
+    assertFalse(new CapabilitiesQueryBody(4, 7L).isPaged());
+  }
+
   // --------------------------- NEGATIVE TESTS ---------------------------------- //
 
   /**
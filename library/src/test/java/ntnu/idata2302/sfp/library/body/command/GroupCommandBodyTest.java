@@ -0,0 +1,79 @@
+package ntnu.idata2302.sfp.library.body.command;
+
+import ntnu.idata2302.sfp.library.codec.ProtocolBodyDecoder;
+import ntnu.idata2302.sfp.library.header.MessageTypes;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Test class for {@link GroupCommandBody}.
+ *
+ * <b>Positive Tests:</b>
+ * <ul>
+ *   <li>A command with every target selector round-trips through CBOR.</li>
+ *   <li>A command selecting by actuator type only leaves the other selectors unset.</li>
+ * </ul>
+ *
+ * <b>Negative Tests:</b>
+ * <ul>
+ *   <li>Decoding corrupted CBOR data throws an exception.</li>
+ * </ul>
+ */
+public class GroupCommandBodyTest {
+
+  // --------------------------- POSITIVE TESTS ---------------------------------- //
+
+  /**
+   * Verifies that every field survives encoding and decoding.
+   */
+  @Test
+  void toCborAndFromCbor_allSelectors_positive() {
+    // Arrange
+    GroupCommandBody original = new GroupCommandBody(7, List.of(0x10000, 0x10001),
+        "greenhouse-1", "HEATER", List.of(new CommandBody.CommandPart("HEATER", 21.5)), 2000);
+
+    // Act
+    GroupCommandBody decoded = GroupCommandBody.fromCbor(original.toCbor());
+
+    // Assert
+    assertEquals(original, decoded);
+  }
+
+  /**
+   * Verifies that a command selecting by actuator type is decoded by the
+   * protocol body decoder with the other selectors unset.
+   */
+  @Test
+  void decode_actuatorTypeOnly_positive() {
+    // Arrange
+    GroupCommandBody original = new GroupCommandBody(8, null, null, "FAN",
+        List.of(new CommandBody.CommandPart("FAN", 0)), null);
+
+    // Act
+    Object decoded = ProtocolBodyDecoder.decode(MessageTypes.GROUP_COMMAND, original.toCbor());
+
+    // Assert
+    GroupCommandBody body = (GroupCommandBody) decoded;
+    assertEquals("FAN", body.actuatorType());
+    assertNull(body.nodeIds());
+    assertNull(body.group());
+    assertNull(body.timeoutMillis());
+  }
+
+  // --------------------------- NEGATIVE TESTS ---------------------------------- //
+
+  /**
+   * Verifies that decoding corrupted CBOR data throws an exception.
+   */
+  @Test
+  void fromCbor_corruptedData_negative() {
+    byte[] corrupted = new byte[]{0x01, 0x02, 0x03};
+
+    assertThrows(RuntimeException.class, () -> GroupCommandBody.fromCbor(corrupted));
+  }
+}
@@ -0,0 +1,60 @@
+package ntnu.idata2302.sfp.library.body.command;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Test class for {@link GroupCommandResultBody}.
+ *
+ * <b>Positive Tests:</b>
+ * <ul>
+ *   <li>A result with acknowledged, timed-out and unreachable nodes round-trips through CBOR.</li>
+ * </ul>
+ *
+ * <b>Negative Tests:</b>
+ * <ul>
+ *   <li>Decoding corrupted CBOR data throws an exception.</li>
+ * </ul>
+ */
+public class GroupCommandResultBodyTest {
+
+  // --------------------------- POSITIVE TESTS ---------------------------------- //
+
+  /**
+   * Verifies that every node result survives encoding and decoding.
+   */
+  @Test
+  void toCborAndFromCbor_mixedResults_positive() {
+    // Arrange
+    GroupCommandResultBody original = new GroupCommandResultBody(3, 0, List.of(
+        new GroupCommandResultBody.NodeResult(0x10000, 1, "OK"),
+        new GroupCommandResultBody.NodeResult(0x10001, GroupCommandResultBody.STATUS_TIMEOUT,
+            null),
+        new GroupCommandResultBody.NodeResult(0x10002,
+            GroupCommandResultBody.STATUS_NOT_CONNECTED, null)));
+
+    // Act
+    GroupCommandResultBody decoded = GroupCommandResultBody.fromCbor(original.toCbor());
+
+    // Assert
+    assertEquals(original, decoded);
+    assertNull(decoded.results().get(1).message());
+  }
+
+  // --------------------------- NEGATIVE TESTS ---------------------------------- //
+
+  /**
+   * Verifies that decoding corrupted CBOR data throws an exception.
+   */
+  @Test
+  void fromCbor_corruptedData_negative() {
+    byte[] corrupted = new byte[]{0x01, 0x02, 0x03};
+
+    assertThrows(RuntimeException.class, () -> GroupCommandResultBody.fromCbor(corrupted));
+  }
+}
@@ -0,0 +1,71 @@
+package ntnu.idata2302.sfp.library.body.group;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Test class for {@link GroupAssignAckBody}.
+ *
+ * <b>Positive Tests:</b>
+ * <ul>
+ *   <li>A successful acknowledgement with groups round-trips through CBOR.</li>
+ *   <li>An error acknowledgement without groups round-trips through CBOR.</li>
+ * </ul>
+ *
+ * <b>Negative Tests:</b>
+ * <ul>
+ *   <li>Decoding corrupted CBOR data throws an exception.</li>
+ * </ul>
+ */
+public class GroupAssignAckBodyTest {
+
+  // --------------------------- POSITIVE TESTS ---------------------------------- //
+
+  /**
+   * Verifies that every field survives encoding and decoding.
+   */
+  @Test
+  void toCborAndFromCbor_success_positive() {
+    // Arrange
+    GroupAssignAckBody original = new GroupAssignAckBody(4, 1, List.of("greenhouse-2"));
+
+    // Act
+    GroupAssignAckBody decoded = GroupAssignAckBody.fromCbor(original.toCbor());
+
+    // Assert
+    assertEquals(original, decoded);
+  }
+
+  /**
+   * Verifies that an error acknowledgement has no groups.
+   */
+  @Test
+  void toCborAndFromCbor_error_positive() {
+    // Arrange
+    GroupAssignAckBody original = new GroupAssignAckBody(5, 0, null);
+
+    // Act
+    GroupAssignAckBody decoded = GroupAssignAckBody.fromCbor(original.toCbor());
+
+    // Assert
+    assertEquals(0, decoded.status());
+    assertNull(decoded.groups());
+  }
+
+  // --------------------------- NEGATIVE TESTS ---------------------------------- //
+
+  /**
+   * Verifies that decoding corrupted CBOR data throws an exception.
+   */
+  @Test
+  void fromCbor_corruptedData_negative() {
+    byte[] corrupted = new byte[]{0x01, 0x02, 0x03};
+
+    assertThrows(RuntimeException.class, () -> GroupAssignAckBody.fromCbor(corrupted));
+  }
+}
@@ -0,0 +1,72 @@
+package ntnu.idata2302.sfp.library.body.group;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Test class for {@link GroupAssignBody}.
+ *
+ * <b>Positive Tests:</b>
+ * <ul>
+ *   <li>An assignment joining and leaving groups round-trips through CBOR.</li>
+ *   <li>An assignment that only joins keeps leave as null.</li>
+ * </ul>
+ *
+ * <b>Negative Tests:</b>
+ * <ul>
+ *   <li>Decoding corrupted CBOR data throws an exception.</li>
+ * </ul>
+ */
+public class GroupAssignBodyTest {
+
+  // --------------------------- POSITIVE TESTS ---------------------------------- //
+
+  /**
+   * Verifies that every field survives encoding and decoding.
+   */
+  @Test
+  void toCborAndFromCbor_full_positive() {
+    // Arrange
+    GroupAssignBody original = new GroupAssignBody(4, 0x10003,
+        List.of("greenhouse-2"), List.of("greenhouse-1"));
+
+    // Act
+    GroupAssignBody decoded = GroupAssignBody.fromCbor(original.toCbor());
+
+    // Assert
+    assertEquals(original, decoded);
+  }
+
+  /**
+   * Verifies that an omitted list decodes as null.
+   */
+  @Test
+  void toCborAndFromCbor_joinOnly_positive() {
+    // Arrange
+    GroupAssignBody original = new GroupAssignBody(5, 0x10003, List.of("field-a"), null);
+
+    // Act
+    GroupAssignBody decoded = GroupAssignBody.fromCbor(original.toCbor());
+
+    // Assert
+    assertEquals(List.of("field-a"), decoded.join());
+    assertNull(decoded.leave());
+  }
+
+  // --------------------------- NEGATIVE TESTS ---------------------------------- //
+
+  /**
+   * Verifies that decoding corrupted CBOR data throws an exception.
+   */
+  @Test
+  void fromCbor_corruptedData_negative() {
+    byte[] corrupted = new byte[]{0x01, 0x02, 0x03};
+
+    assertThrows(RuntimeException.class, () -> GroupAssignBody.fromCbor(corrupted));
+  }
+}
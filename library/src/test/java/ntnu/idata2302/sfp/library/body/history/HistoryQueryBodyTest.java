@@ -0,0 +1,73 @@
+package ntnu.idata2302.sfp.library.body.history;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Test class for {@link HistoryQueryBody}.
+ *
+ * <b>Positive Tests:</b>
+ * <ul>
+ *   <li>A fully populated query round-trips through CBOR.</li>
+ *   <li>A query without optional filters round-trips through CBOR.</li>
+ * </ul>
+ *
+ * <b>Negative Tests:</b>
+ * <ul>
+ *   <li>Decoding corrupted CBOR data throws an exception.</li>
+ * </ul>
+ */
+public class HistoryQueryBodyTest {
+
+  // --------------------------- POSITIVE TESTS ---------------------------------- //
+
+  /**
+   * Verifies that every field survives encoding and decoding.
+   */
+  @Test
+  void toCborAndFromCbor_full_positive() {
+    // Arrange
+    HistoryQueryBody original =
+        new HistoryQueryBody(7, 0x10000, List.of("temp"), 1000L, 2000L, 50);
+
+    // Act
+    HistoryQueryBody decoded = HistoryQueryBody.fromCbor(original.toCbor());
+
+    // Assert
+    assertEquals(original, decoded);
+  }
+
+  /**
+   * Verifies that omitted filters decode as null.
+   */
+  @Test
+  void toCborAndFromCbor_noFilters_positive() {
+    // Arrange
+    HistoryQueryBody original = new HistoryQueryBody(8, 0x10001, null, null, null, null);
+
+    // Act
+    HistoryQueryBody decoded = HistoryQueryBody.fromCbor(original.toCbor());
+
+    // Assert
+    assertEquals(0x10001, decoded.sensorNodeId());
+    assertNull(decoded.sensors());
+    assertNull(decoded.maxPoints());
+  }
+
+  // --------------------------- NEGATIVE TESTS ---------------------------------- //
+
+  /**
+   * Verifies that decoding corrupted CBOR data throws an exception.
+   */
+  @Test
+  void fromCbor_corruptedData_negative() {
+    byte[] corrupted = new byte[]{0x01, 0x02, 0x03};
+
+    assertThrows(RuntimeException.class, () -> HistoryQueryBody.fromCbor(corrupted));
+  }
+}
@@ -0,0 +1,63 @@
+package ntnu.idata2302.sfp.library.body.history;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class for {@link HistoryResultBody}.
+ *
+ * <b>Positive Tests:</b>
+ * <ul>
+ *   <li>A result chunk with series round-trips through CBOR.</li>
+ * </ul>
+ *
+ * <b>Negative Tests:</b>
+ * <ul>
+ *   <li>Decoding corrupted CBOR data throws an exception.</li>
+ * </ul>
+ */
+public class HistoryResultBodyTest {
+
+  // --------------------------- POSITIVE TESTS ---------------------------------- //
+
+  /**
+   * Verifies that the chunk fields and the column arrays survive encoding and decoding.
+   */
+  @Test
+  void toCborAndFromCbor_roundTrip_positive() {
+    // Arrange
+    HistoryResultBody.Series series = new HistoryResultBody.Series(
+        "temp", new long[]{1000L, 2000L}, new double[]{20.5, 21.0});
+    HistoryResultBody original = new HistoryResultBody(3, 0x10000, 1, true, List.of(series));
+
+    // Act
+    HistoryResultBody decoded = HistoryResultBody.fromCbor(original.toCbor());
+
+    // Assert
+    assertEquals(3, decoded.requestId());
+    assertEquals(1, decoded.chunk());
+    assertTrue(decoded.last());
+    HistoryResultBody.Series decodedSeries = decoded.series().get(0);
+    assertEquals("temp", decodedSeries.sensorId());
+    assertArrayEquals(series.timestamps(), decodedSeries.timestamps());
+    assertArrayEquals(series.values(), decodedSeries.values());
+  }
+
+  // --------------------------- NEGATIVE TESTS ---------------------------------- //
+
+  /**
+   * Verifies that decoding corrupted CBOR data throws an exception.
+   */
+  @Test
+  void fromCbor_corruptedData_negative() {
+    byte[] corrupted = new byte[]{0x01, 0x02, 0x03};
+
+    assertThrows(RuntimeException.class, () -> HistoryResultBody.fromCbor(corrupted));
+  }
+}
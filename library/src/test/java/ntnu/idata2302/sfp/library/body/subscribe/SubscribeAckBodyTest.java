@@ -4,8 +4,12 @@ import ntnu.idata2302.sfp.library.codec.CborCodec;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.function.Executable;
 
+import java.util.BitSet;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  * Test class for {@link SubscribeAckBody}.
@@ -14,6 +18,7 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
  * <ul>
  *   <li>SubscribeAckBody with a successful status is correctly encoded and decoded.</li>
  *   <li>SubscribeAckBody with a failure status round-trips correctly.</li>
+ *   <li>A bulk acknowledgement keeps one status bit per requested node.</li>
  * </ul>
  *
  * <b>Negative Tests:</b>
@@ -61,6 +66,28 @@ public class SubscribeAckBodyTest {
     assertEquals(original.status(), decoded.status());
   }
 
+  /**
+   * Verifies that a bulk acknowledgement round-trips its status bitmap and
+   * reports partial success.
+   */
+  @Test
+  void forBulk_roundTrip_statusBitmap_positive() {
+    // Arrange
+    BitSet accepted = new BitSet();
+    accepted.set(0);
+    accepted.set(9);
+    SubscribeAckBody original = SubscribeAckBody.forBulk(3, accepted, 10);
+
+    // Act
+    SubscribeAckBody decoded = SubscribeAckBody.fromCbor(original.toCbor());
+
+    // Assert
+    assertEquals(0, decoded.status());
+    assertTrue(decoded.isAccepted(0));
+    assertFalse(decoded.isAccepted(1));
+    assertTrue(decoded.isAccepted(9));
+  }
+
   // negative tests
 
   /**
@@ -17,6 +17,8 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
  * <ul>
  *   <li>SubscribeBody with node subscriptions is correctly encoded and decoded.</li>
  *   <li>SubscribeBody with an empty node list round-trips correctly.</li>
+ *   <li>SubscribeBody with filters and delivery options round-trips correctly.</li>
+ *   <li>A group subscription round-trips correctly.</li>
  * </ul>
  *
  * <b>Negative Tests:</b>
@@ -70,6 +72,55 @@ public class SubscribeBodyTest {
     assertEquals(original.sensorNodeId(), decoded.sensorNodeId());
   }
 
+  /**
+   * Verifies that filters and delivery options survive encoding and decoding.
+   */
+  @Test
+  void toCbor_roundTrip_withFilters_positive() {
+    // Arrange
+    SubscribeBody original = new SubscribeBody(8, 303, List.of("co2"), List.of(), 5000,
+        List.of(new SubscribeBody.Deadband("co2", 25.0, null),
+            new SubscribeBody.Deadband(null, null, 2.5)), 60000, null, null);
+
+    // Act
+    SubscribeBody decoded = SubscribeBody.fromCbor(original.toCbor());
+
+    // Assert
+    assertEquals(original, decoded);
+  }
+
+  /**
+   * Verifies that a bulk subscription keeps its node ids in order.
+   */
+  @Test
+  void toCbor_roundTrip_bulk_positive() {
+    // Arrange
+    SubscribeBody original = SubscribeBody.toNodes(10, List.of(0x10002, 0x10000, 0x10001));
+
+    // Act
+    SubscribeBody decoded = SubscribeBody.fromCbor(original.toCbor());
+
+    // Assert
+    assertEquals(original, decoded);
+    assertEquals(List.of(0x10002, 0x10000, 0x10001), decoded.sensorNodeIds());
+  }
+
+  /**
+   * Verifies that a wildcard group subscription survives encoding and decoding.
+   */
+  @Test
+  void toCbor_roundTrip_group_positive() {
+    // Arrange
+    SubscribeBody original = SubscribeBody.toGroup(9, SubscribeBody.ALL_SENSOR_NODES);
+
+    // Act
+    SubscribeBody decoded = SubscribeBody.fromCbor(original.toCbor());
+
+    // Assert
+    assertEquals("*", decoded.group());
+    assertEquals(original, decoded);
+  }
+
   // --------------------------- NEGATIVE TESTS ---------------------------------- //
 
   /**
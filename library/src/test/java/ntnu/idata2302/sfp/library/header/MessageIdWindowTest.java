@@ -0,0 +1,115 @@
+package ntnu.idata2302.sfp.library.header;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class for {@link MessageIdWindow}.
+ *
+ * <b>Positive Tests:</b>
+ * <ul>
+ *   <li>A repeated Message ID from the same source is reported as a duplicate.</li>
+ *   <li>Ids are forgotten once the window has passed.</li>
+ *   <li>A source exceeding the capacity evicts its oldest ids.</li>
+ * </ul>
+ *
+ * <b>Negative Tests:</b>
+ * <ul>
+ *   <li>The same id from another source, and the nil UUID, are not duplicates.</li>
+ * </ul>
+ */
+public class MessageIdWindowTest {
+
+  private static final long MS = 1_000_000L;
+
+  // --------------------------- POSITIVE TESTS ---------------------------------- //
+
+  /**
+   * Verifies that a retried message is detected and counted as a hit.
+   */
+  @Test
+  void firstSeen_repeatedId_isDuplicate_positive() {
+    // Arrange
+    MessageIdWindow window = new MessageIdWindow(1000, 64);
+    UUID id = UUID.randomUUID();
+
+    // Act
+    boolean first = window.firstSeen(7, id, 0);
+    boolean retry = window.firstSeen(7, id, 500 * MS);
+
+    // Assert
+    assertTrue(first);
+    assertFalse(retry);
+    assertEquals(1, window.misses());
+    assertEquals(1, window.hits());
+  }
+
+  /**
+   * Verifies that an id is remembered for the whole window and forgotten after it.
+   */
+  @Test
+  void firstSeen_afterWindow_isNew_positive() {
+    // Arrange
+    MessageIdWindow window = new MessageIdWindow(300, 64);
+    UUID id = UUID.randomUUID();
+    window.firstSeen(7, id, 0);
+
+    // Act
+    boolean withinWindow = window.firstSeen(7, id, 299 * MS);
+    boolean afterWindow = window.firstSeen(7, id, 2000 * MS);
+
+    // Assert
+    assertFalse(withinWindow);
+    assertTrue(afterWindow);
+    assertEquals(0, window.evictions());
+  }
+
+  /**
+   * Verifies that more ids than the capacity evict the oldest ones early.
+   */
+  @Test
+  void firstSeen_overCapacity_evictsOldest_positive() {
+    // Arrange
+    MessageIdWindow window = new MessageIdWindow(60_000, 8);
+    UUID oldest = UUID.randomUUID();
+    window.firstSeen(7, oldest, 0);
+
+    // Act
+    for (int i = 0; i < 100; i++) {
+      window.firstSeen(7, UUID.randomUUID(), 0);
+    }
+
+    // Assert
+    assertTrue(window.evictions() > 0);
+    assertTrue(window.firstSeen(7, oldest, 0), "The oldest id should have been evicted");
+  }
+
+  // --------------------------- NEGATIVE TESTS ---------------------------------- //
+
+  /**
+   * Verifies that ids are scoped per source and that the nil UUID is never a duplicate.
+   */
+  @Test
+  void firstSeen_otherSourceOrNilId_isNew_negative() {
+    // Arrange
+    MessageIdWindow window = new MessageIdWindow(1000, 64);
+    UUID id = UUID.randomUUID();
+    UUID nil = new UUID(0, 0);
+    window.firstSeen(7, id, 0);
+    window.firstSeen(7, nil, 0);
+
+    // Act
+    boolean otherSource = window.firstSeen(8, id, 0);
+    boolean nilAgain = window.firstSeen(7, nil, 0);
+
+    // Assert
+    assertTrue(otherSource);
+    assertTrue(nilAgain);
+    assertEquals(0, window.hits());
+  }
+}
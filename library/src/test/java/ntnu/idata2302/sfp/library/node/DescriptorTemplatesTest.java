@@ -0,0 +1,142 @@
+package ntnu.idata2302.sfp.library.node;
+
+import ntnu.idata2302.sfp.library.body.capabilities.CapabilitiesListBody;
+import ntnu.idata2302.sfp.library.codec.CborCodec;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class for {@link DescriptorTemplates}.
+ *
+ * <b>Positive Tests:</b>
+ * <ul>
+ *   <li>Nodes differing only in id and groups share a template hash.</li>
+ *   <li>A list of references decodes and resolves to the full descriptors.</li>
+ *   <li>Actuator values are left out of the template and kept by the reference.</li>
+ * </ul>
+ *
+ * <b>Negative Tests:</b>
+ * <ul>
+ *   <li>A different sensor gives a different hash.</li>
+ *   <li>A reference to a missing template is left unresolved.</li>
+ * </ul>
+ */
+public class DescriptorTemplatesTest {
+
+  private static NodeDescriptor node(Integer id, String sensorId, List<String> groups) {
+    return new NodeDescriptor(id, 1,
+        List.of(new NodeDescriptor.SensorDescriptor(sensorId, "C", -20.0, 80.0)),
+        List.of(new NodeDescriptor.ActuatorDescriptor("fan", 0.0, 0.0, 1.0, "%")),
+        true, false, groups);
+  }
+
+  // --------------------------- POSITIVE TESTS ---------------------------------- //
+
+  /**
+   * Verifies that node id and groups are not part of the template.
+   */
+  @Test
+  void hash_differentIdAndGroups_sameHash_positive() {
+    // Arrange
+    NodeDescriptor announced = node(null, "temp", null);
+    NodeDescriptor registered = node(0x10000, "temp", List.of("zone-a"));
+
+    // Act
+    String first = DescriptorTemplates.hash(announced);
+    String second = DescriptorTemplates.hash(registered);
+
+    // Assert
+    assertEquals(first, second);
+    assertEquals(32, first.length());
+  }
+
+  /**
+   * Verifies that references in a capabilities list resolve after a CBOR round trip.
+   */
+  @Test
+  void resolve_listOfReferences_returnsFullDescriptors_positive() {
+    // Arrange
+    NodeDescriptor a = node(0x10000, "temp", List.of("zone-a"));
+    NodeDescriptor b = node(0x10001, "temp", null);
+    String hash = DescriptorTemplates.hash(a);
+    CapabilitiesListBody list = new CapabilitiesListBody(3,
+        List.of(DescriptorTemplates.reference(a, hash), DescriptorTemplates.reference(b, hash)),
+        1L, null, null, Map.of(hash, DescriptorTemplates.template(a)));
+
+    // Act
+    List<NodeDescriptor> resolved = CapabilitiesListBody.fromCbor(list.toCbor()).resolvedNodes();
+
+    // Assert
+    assertTrue(DescriptorTemplates.isReference(list.nodes().get(0)));
+    assertEquals(a.sensors(), resolved.get(0).sensors());
+    assertEquals(List.of("zone-a"), resolved.get(0).groups());
+    assertEquals(0x10001, resolved.get(1).nodeId());
+    assertEquals(b.actuators(), resolved.get(1).actuators());
+    assertEquals(hash, resolved.get(1).template());
+  }
+
+  /**
+   * Verifies that nodes whose actuators were moved share a template, and that
+   * each resolves back to its own actuator values.
+   */
+  @Test
+  void reference_movedActuator_sharesTemplateAndKeepsValue_positive() {
+    // Arrange
+    NodeDescriptor idle = node(0x10000, "temp", null);
+    NodeDescriptor moved = new NodeDescriptor(0x10001, 1, idle.sensors(),
+        List.of(new NodeDescriptor.ActuatorDescriptor("fan", 0.6, 0.0, 1.0, "%")),
+        true, false, null);
+    String hash = DescriptorTemplates.hash(idle);
+
+    // Act
+    String movedHash = DescriptorTemplates.hash(moved);
+    NodeDescriptor reference = CborCodec.decode(
+        CborCodec.encode(DescriptorTemplates.reference(moved, movedHash)), NodeDescriptor.class);
+    NodeDescriptor resolved = DescriptorTemplates.resolve(reference,
+        DescriptorTemplates.template(idle));
+
+    // Assert
+    assertEquals(hash, movedHash);
+    assertEquals(0.0, DescriptorTemplates.template(moved).actuators().get(0).value());
+    assertEquals(Map.of("fan", 0.6), reference.actuatorValues());
+    assertEquals(moved.actuators(), resolved.actuators());
+  }
+
+  // --------------------------- NEGATIVE TESTS ---------------------------------- //
+
+  /**
+   * Verifies that changing a sensor changes the hash.
+   */
+  @Test
+  void hash_differentSensor_differentHash_negative() {
+    // Act & Assert
+    assertNotEquals(DescriptorTemplates.hash(node(null, "temp", null)),
+        DescriptorTemplates.hash(node(null, "humidity", null)));
+  }
+
+  /**
+   * Verifies that a reference whose template is not known stays a reference.
+   */
+  @Test
+  void resolve_missingTemplate_returnsReference_negative() {
+    // Arrange
+    NodeDescriptor reference = DescriptorTemplates.reference(node(0x10000, "temp", null), "00");
+
+    // Act
+    NodeDescriptor resolved = DescriptorTemplates.resolve(reference, Map.of());
+
+    // Assert
+    assertSame(reference, resolved);
+    assertNull(resolved.sensors());
+    assertFalse(DescriptorTemplates.isReference(node(0x10000, "temp", null)));
+  }
+}
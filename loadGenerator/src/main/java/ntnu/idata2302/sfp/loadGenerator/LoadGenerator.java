@@ -0,0 +1,121 @@
+package ntnu.idata2302.sfp.loadGenerator;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.net.ssl.SSLContext;
+import ntnu.idata2302.sfp.loadGenerator.config.LoadConfig;
+import ntnu.idata2302.sfp.loadGenerator.metrics.LoadStats;
+import ntnu.idata2302.sfp.loadGenerator.metrics.StatsReporter;
+import ntnu.idata2302.sfp.loadGenerator.sim.SimulatedSensorNode;
+import ntnu.idata2302.sfp.loadGenerator.sim.SyntheticControlPanel;
+
+/**
+ * Entry point for the headless load generator.
+ *
+ * <p>Starts the configured number of synthetic control panels, ramps up the
+ * simulated sensor nodes against a running broker, prints throughput once per
+ * second and a latency/error summary at the end of the run. See
+ * {@link LoadConfig#fromArgs(String[])} for the supported options, e.g.</p>
+ *
+ * <pre>
+ * java -jar sfp-loadGenerator-1.0-SNAPSHOT.jar --nodes=10000 --panels=5 --duration=120
+ * </pre>
+ */
+public class LoadGenerator {
+
+  private static final int SCHEDULER_THREADS = 4;
+
+  /**
+   * Run a load test.
+   *
+   * @param args command line options in {@code --key=value} form
+   * @throws Exception if the TLS context cannot be created
+   */
+  public static void main(String[] args) throws Exception {
+    LoadConfig config = LoadConfig.fromArgs(args);
+    PrintStream console = System.out;
+
+    if (config.quiet()) {
+      // The sensor node runtime logs every packet; thousands of nodes would drown the report.
+      System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    LoadStats stats = new LoadStats();
+    StatsReporter reporter = new StatsReporter(stats, console);
+    ExecutorService io = Executors.newVirtualThreadPerTaskExecutor();
+    ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(SCHEDULER_THREADS);
+    SSLContext panelTls = SyntheticControlPanel.createSslContext();
+
+    console.printf("[load] target %s:%d, %d sensor nodes, %d control panels, %ds%n",
+        config.host(), config.port(), config.sensorNodes(), config.controlPanels(),
+        config.durationSeconds());
+
+    List<SyntheticControlPanel> panels = new ArrayList<>();
+    for (int i = 0; i < config.controlPanels(); i++) {
+      SyntheticControlPanel panel = new SyntheticControlPanel(
+          config.host(), config.port(), config.subscriptionsPerPanel(),
+          config.commandTimeoutMillis(), stats, io);
+      try {
+        panel.start(panelTls, scheduler, config.commandsPerSecond() / config.controlPanels());
+        panels.add(panel);
+      } catch (Exception e) {
+        stats.connectFailed();
+        console.println("[load] control panel failed to connect: " + e.getMessage());
+      }
+    }
+
+    scheduler.scheduleAtFixedRate(reporter, 1, 1, TimeUnit.SECONDS);
+
+    List<SimulatedSensorNode> nodes = rampUp(config, stats, io, scheduler);
+
+    reporter.startMeasuring();
+    Thread.sleep(TimeUnit.SECONDS.toMillis(config.durationSeconds()));
+    reporter.printSummary();
+
+    nodes.forEach(SimulatedSensorNode::stop);
+    panels.forEach(SyntheticControlPanel::stop);
+    scheduler.shutdownNow();
+    io.shutdownNow();
+    System.exit(0);
+  }
+
+  /**
+   * Start all sensor nodes, spreading the connects evenly over the ramp-up period.
+   *
+   * <p>Connects run on virtual threads so a slow TLS handshake does not delay
+   * the rest of the ramp.</p>
+   */
+  private static List<SimulatedSensorNode> rampUp(LoadConfig config, LoadStats stats,
+                                                  ExecutorService io,
+                                                  ScheduledExecutorService scheduler)
+      throws InterruptedException {
+    List<SimulatedSensorNode> nodes = new ArrayList<>(config.sensorNodes());
+    long start = System.nanoTime();
+    long rampNanos = TimeUnit.MILLISECONDS.toNanos(config.rampUpMillis());
+
+    for (int i = 0; i < config.sensorNodes(); i++) {
+      SimulatedSensorNode node = new SimulatedSensorNode(config.host(), config.port(), stats, io);
+      nodes.add(node);
+      io.execute(() -> {
+        try {
+          node.start(scheduler, config.reportIntervalMillis());
+        } catch (Exception e) {
+          stats.connectFailed();
+        }
+      });
+
+      long due = start + rampNanos * (i + 1) / config.sensorNodes();
+      long wait = due - System.nanoTime();
+      if (wait > 0) {
+        TimeUnit.NANOSECONDS.sleep(wait);
+      }
+    }
+    return nodes;
+  }
+}
@@ -0,0 +1,135 @@
+package ntnu.idata2302.sfp.loadGenerator.config;
+
+/**
+ * Immutable configuration for a single load generator run.
+ *
+ * <p>Instances are normally created from command-line arguments using
+ * {@link #fromArgs(String[])}. Every option has a default so the generator can
+ * be started without arguments against a broker running on
+ * {@code localhost:5050}.</p>
+ *
+ * @param host                  broker host name or IP address
+ * @param port                  broker TCP port
+ * @param sensorNodes           number of logical sensor nodes to simulate
+ * @param controlPanels         number of synthetic control panels
+ * @param subscriptionsPerPanel how many sensor nodes each control panel subscribes to
+ *                              ({@code 0} subscribes to every node it discovers)
+ * @param reportIntervalMillis  interval between DATA_REPORTs sent by each sensor node
+ * @param commandsPerSecond     COMMAND rate issued by each control panel
+ * @param rampUpMillis          time over which the sensor node connections are spread
+ * @param durationSeconds       length of the measured run
+ * @param commandTimeoutMillis  time after which an unacknowledged command counts as an error
+ * @param quiet                 whether per-packet logging from the reused node runtime is hidden
+ */
+public record LoadConfig(
+    String host,
+    int port,
+    int sensorNodes,
+    int controlPanels,
+    int subscriptionsPerPanel,
+    long reportIntervalMillis,
+    double commandsPerSecond,
+    long rampUpMillis,
+    long durationSeconds,
+    long commandTimeoutMillis,
+    boolean quiet
+) {
+
+  /**
+   * Validate the configuration values.
+   *
+   * @throws IllegalArgumentException if a count or interval is out of range
+   */
+  public LoadConfig {
+    if (port <= 0 || port > 0xFFFF) {
+      throw new IllegalArgumentException("Invalid port: " + port);
+    }
+    if (sensorNodes < 0 || controlPanels < 0 || subscriptionsPerPanel < 0) {
+      throw new IllegalArgumentException("Node counts must not be negative");
+    }
+    if (reportIntervalMillis <= 0 || commandTimeoutMillis <= 0) {
+      throw new IllegalArgumentException("Intervals must be positive");
+    }
+    if (commandsPerSecond < 0 || rampUpMillis < 0 || durationSeconds <= 0) {
+      throw new IllegalArgumentException("Rates and durations must not be negative");
+    }
+  }
+
+  /**
+   * Return the default configuration: 1000 sensor nodes and 2 control panels
+   * against {@code localhost:5050} for one minute.
+   *
+   * @return a configuration populated with defaults
+   */
+  public static LoadConfig defaults() {
+    return new LoadConfig("localhost", 5050, 1000, 2, 0, 2000, 10.0, 10_000, 60, 5000, true);
+  }
+
+  /**
+   * Parse command-line arguments into a {@link LoadConfig}.
+   *
+   * <p>Supported argument formats (all optional):</p>
+   * <ul>
+   *   <li><code>--host=HOST</code></li>
+   *   <li><code>--port=PORT</code></li>
+   *   <li><code>--nodes=COUNT</code></li>
+   *   <li><code>--panels=COUNT</code></li>
+   *   <li><code>--subscriptions=COUNT</code></li>
+   *   <li><code>--reportInterval=MILLIS</code></li>
+   *   <li><code>--commandRate=PER_SECOND</code></li>
+   *   <li><code>--rampUp=MILLIS</code></li>
+   *   <li><code>--duration=SECONDS</code></li>
+   *   <li><code>--commandTimeout=MILLIS</code></li>
+   *   <li><code>--quiet=true|false</code></li>
+   * </ul>
+   *
+   * @param args the raw command-line arguments
+   * @return the parsed configuration
+   * @throws IllegalArgumentException if an argument is unknown or malformed
+   */
+  public static LoadConfig fromArgs(String[] args) {
+    LoadConfig d = defaults();
+    String host = d.host();
+    int port = d.port();
+    int nodes = d.sensorNodes();
+    int panels = d.controlPanels();
+    int subscriptions = d.subscriptionsPerPanel();
+    long reportInterval = d.reportIntervalMillis();
+    double commandRate = d.commandsPerSecond();
+    long rampUp = d.rampUpMillis();
+    long duration = d.durationSeconds();
+    long commandTimeout = d.commandTimeoutMillis();
+    boolean quiet = d.quiet();
+
+    for (String arg : args) {
+      int eq = arg.indexOf('=');
+      if (!arg.startsWith("--") || eq < 0) {
+        throw new IllegalArgumentException("Invalid argument: " + arg);
+      }
+      String key = arg.substring(2, eq);
+      String value = arg.substring(eq + 1);
+
+      try {
+        switch (key) {
+          case "host" -> host = value;
+          case "port" -> port = Integer.parseInt(value);
+          case "nodes" -> nodes = Integer.parseInt(value);
+          case "panels" -> panels = Integer.parseInt(value);
+          case "subscriptions" -> subscriptions = Integer.parseInt(value);
+          case "reportInterval" -> reportInterval = Long.parseLong(value);
+          case "commandRate" -> commandRate = Double.parseDouble(value);
+          case "rampUp" -> rampUp = Long.parseLong(value);
+          case "duration" -> duration = Long.parseLong(value);
+          case "commandTimeout" -> commandTimeout = Long.parseLong(value);
+          case "quiet" -> quiet = Boolean.parseBoolean(value);
+          default -> throw new IllegalArgumentException("Unknown argument: " + arg);
+        }
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException("Invalid number in argument: " + arg, e);
+      }
+    }
+
+    return new LoadConfig(host, port, nodes, panels, subscriptions, reportInterval,
+        commandRate, rampUp, duration, commandTimeout, quiet);
+  }
+}
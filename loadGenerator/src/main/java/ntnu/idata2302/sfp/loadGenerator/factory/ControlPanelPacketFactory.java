@@ -0,0 +1,111 @@
+package ntnu.idata2302.sfp.loadGenerator.factory;
+
+import java.util.List;
+import java.util.UUID;
+import ntnu.idata2302.sfp.library.SmartFarmingProtocol;
+import ntnu.idata2302.sfp.library.body.announce.AnnounceBody;
+import ntnu.idata2302.sfp.library.body.capabilities.CapabilitiesQueryBody;
+import ntnu.idata2302.sfp.library.body.command.CommandBody;
+import ntnu.idata2302.sfp.library.body.subscribe.SubscribeBody;
+import ntnu.idata2302.sfp.library.header.Header;
+import ntnu.idata2302.sfp.library.header.MessageTypes;
+import ntnu.idata2302.sfp.library.node.NodeDescriptor;
+import ntnu.idata2302.sfp.library.node.NodeIds;
+
+/**
+ * Factory for the packets sent by synthetic control panels.
+ *
+ * <p>Mirrors the control panel's own packet factory without pulling the
+ * JavaFX application onto the load generator's classpath. Sensor node packets
+ * are built with the sensor node runtime's
+ * {@link ntnu.idata2302.sfp.sensorNode.factory.PacketFactory} instead.</p>
+ */
+public final class ControlPanelPacketFactory {
+
+  private ControlPanelPacketFactory() {
+  } // prevent instantiation
+
+  /**
+   * Build an ANNOUNCE packet registering a control panel.
+   *
+   * @param requestId unique request identifier
+   * @return the constructed ANNOUNCE packet
+   */
+  public static SmartFarmingProtocol announce(int requestId) {
+    Header header = header(MessageTypes.ANNOUNCE, NodeIds.BROADCAST, NodeIds.SERVER);
+    AnnounceBody body = new AnnounceBody(
+        requestId,
+        new NodeDescriptor(null, 0, null, null, null, null)
+    );
+    return new SmartFarmingProtocol(header, body);
+  }
+
+  /**
+   * Build a CAPABILITIES_QUERY packet.
+   *
+   * @param sourceId  the control panel id
+   * @param requestId unique request identifier
+   * @return the constructed CAPABILITIES_QUERY packet
+   */
+  public static SmartFarmingProtocol capabilitiesQuery(int sourceId, int requestId) {
+    Header header = header(MessageTypes.CAPABILITIES_QUERY, sourceId, NodeIds.SERVER);
+    return new SmartFarmingProtocol(header, new CapabilitiesQueryBody(requestId));
+  }
+
+  /**
+   * Build a SUBSCRIBE packet for a single sensor node.
+   *
+   * @param sourceId     the control panel id
+   * @param requestId    unique request identifier
+   * @param sensorNodeId the sensor node to subscribe to
+   * @return the constructed SUBSCRIBE packet
+   */
+  public static SmartFarmingProtocol subscribe(int sourceId, int requestId, int sensorNodeId) {
+    Header header = header(MessageTypes.SUBSCRIBE, sourceId, NodeIds.SERVER);
+    return new SmartFarmingProtocol(header, new SubscribeBody(requestId, sensorNodeId));
+  }
+
+  /**
+   * Build a bulk SUBSCRIBE packet for several sensor nodes.
+   *
+   * @param sourceId      the control panel id
+   * @param requestId     unique request identifier
+   * @param sensorNodeIds the sensor nodes to subscribe to
+   * @return the constructed SUBSCRIBE packet
+   */
+  public static SmartFarmingProtocol subscribe(int sourceId, int requestId,
+                                               List<Integer> sensorNodeIds) {
+    Header header = header(MessageTypes.SUBSCRIBE, sourceId, NodeIds.SERVER);
+    return new SmartFarmingProtocol(header, SubscribeBody.toNodes(requestId, sensorNodeIds));
+  }
+
+  /**
+   * Build a COMMAND packet for a sensor node.
+   *
+   * @param sourceId     the control panel id
+   * @param sensorNodeId the target sensor node
+   * @param requestId    unique request identifier used to correlate the COMMAND_ACK
+   * @param parts        actuator updates to apply
+   * @return the constructed COMMAND packet
+   */
+  public static SmartFarmingProtocol command(int sourceId, int sensorNodeId, int requestId,
+                                             List<CommandBody.CommandPart> parts) {
+    Header header = header(MessageTypes.COMMAND, sourceId, sensorNodeId);
+    return new SmartFarmingProtocol(header, new CommandBody(requestId, parts));
+  }
+
+  /**
+   * Build a version 1 header with a fresh message id.
+   */
+  private static Header header(MessageTypes type, int sourceId, int targetId) {
+    return new Header(
+        new byte[]{'S', 'F', 'P'},
+        (byte) 1,
+        type,
+        sourceId,
+        targetId,
+        0,
+        UUID.randomUUID()
+    );
+  }
+}
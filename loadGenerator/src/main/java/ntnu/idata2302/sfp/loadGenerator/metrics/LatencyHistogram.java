@@ -0,0 +1,127 @@
+package ntnu.idata2302.sfp.loadGenerator.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free, fixed-size latency histogram with log-linear buckets.
+ *
+ * <p>Values are recorded in microseconds. Every power-of-two range is split
+ * into 32 linear sub-buckets, which bounds the relative error of a reported
+ * percentile to roughly 3% while keeping the memory footprint constant
+ * (a little over one thousand counters) regardless of how many samples are
+ * recorded. Recording is a single atomic increment, so the histogram can be
+ * shared by every simulated node without contention on a lock.</p>
+ */
+public class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 5;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int MAX_EXPONENT = 40; // ~12 days in microseconds
+  private static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+  private final AtomicLong total = new AtomicLong();
+  private final AtomicLong maxMicros = new AtomicLong();
+
+  /**
+   * Record a single latency sample.
+   *
+   * @param nanos the measured latency in nanoseconds; negative values are recorded as zero
+   */
+  public void recordNanos(long nanos) {
+    long micros = Math.max(0, nanos / 1000);
+    counts.incrementAndGet(indexOf(micros));
+    total.incrementAndGet();
+    maxMicros.accumulateAndGet(micros, Math::max);
+  }
+
+  /**
+   * Return the number of recorded samples.
+   *
+   * @return sample count
+   */
+  public long count() {
+    return total.get();
+  }
+
+  /**
+   * Return the largest recorded sample in milliseconds.
+   *
+   * @return the maximum latency, or {@code 0} if nothing was recorded
+   */
+  public double maxMillis() {
+    return maxMicros.get() / 1000.0;
+  }
+
+  /**
+   * Return the latency at the given percentile in milliseconds.
+   *
+   * <p>The value returned is the upper bound of the bucket containing the
+   * requested rank, so percentiles are never under-reported.</p>
+   *
+   * @param percentile the percentile in the range {@code (0, 100]}
+   * @return the latency at {@code percentile}, or {@code 0} if nothing was recorded
+   * @throws IllegalArgumentException if {@code percentile} is out of range
+   */
+  public double percentileMillis(double percentile) {
+    if (percentile <= 0 || percentile > 100) {
+      throw new IllegalArgumentException("Percentile must be in (0, 100]: " + percentile);
+    }
+    long n = total.get();
+    if (n == 0) {
+      return 0;
+    }
+    long rank = (long) Math.ceil(percentile / 100.0 * n);
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += counts.get(i);
+      if (seen >= rank) {
+        return Math.min(upperBound(i), maxMicros.get()) / 1000.0;
+      }
+    }
+    return maxMillis();
+  }
+
+  /**
+   * Clear all recorded samples.
+   *
+   * <p>Not atomic with respect to concurrent recording; samples recorded while
+   * the reset is in progress may or may not survive.</p>
+   */
+  public void reset() {
+    for (int i = 0; i < BUCKETS; i++) {
+      counts.set(i, 0);
+    }
+    total.set(0);
+    maxMicros.set(0);
+  }
+
+  // ============================================================
+  //                    BUCKET ARITHMETIC
+  // ============================================================
+
+  /**
+   * Map a value in microseconds to its bucket index.
+   */
+  static int indexOf(long micros) {
+    if (micros < SUB_BUCKETS) {
+      return (int) micros;
+    }
+    int exponent = Math.min(63 - Long.numberOfLeadingZeros(micros), MAX_EXPONENT);
+    int sub = (int) ((micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1));
+    return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+  }
+
+  /**
+   * Return the exclusive upper bound in microseconds of the given bucket.
+   */
+  static long upperBound(int index) {
+    if (index < SUB_BUCKETS) {
+      return index + 1;
+    }
+    int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+    long sub = index % SUB_BUCKETS;
+    return (SUB_BUCKETS + sub + 1) << (exponent - SUB_BUCKET_BITS);
+  }
+}
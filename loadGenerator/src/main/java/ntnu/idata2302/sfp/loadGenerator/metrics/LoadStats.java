@@ -0,0 +1,204 @@
+package ntnu.idata2302.sfp.loadGenerator.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Shared counters collected by every simulated sensor node and control panel
+ * during a load run.
+ *
+ * <p>All counters are {@link LongAdder}s so that tens of thousands of
+ * concurrently running nodes can update them without contending on a single
+ * memory location. Command round-trip times are recorded in a
+ * {@link LatencyHistogram}.</p>
+ */
+public class LoadStats {
+
+  private final LongAdder nodesConnected = new LongAdder();
+  private final LongAdder nodesAnnounced = new LongAdder();
+  private final LongAdder panelsConnected = new LongAdder();
+  private final LongAdder connectFailures = new LongAdder();
+  private final LongAdder disconnects = new LongAdder();
+
+  private final LongAdder reportsSent = new LongAdder();
+  private final LongAdder reportsReceived = new LongAdder();
+  private final LongAdder commandsSent = new LongAdder();
+  private final LongAdder commandsApplied = new LongAdder();
+  private final LongAdder commandAcks = new LongAdder();
+  private final LongAdder commandTimeouts = new LongAdder();
+  private final LongAdder errorFrames = new LongAdder();
+
+  private final LatencyHistogram commandRoundTrip = new LatencyHistogram();
+
+  /**
+   * Record that a sensor node finished its TLS handshake.
+   */
+  public void nodeConnected() {
+    nodesConnected.increment();
+  }
+
+  /**
+   * Record that a sensor node received its ANNOUNCE_ACK.
+   */
+  public void nodeAnnounced() {
+    nodesAnnounced.increment();
+  }
+
+  /**
+   * Record that a control panel finished its TLS handshake.
+   */
+  public void panelConnected() {
+    panelsConnected.increment();
+  }
+
+  /**
+   * Record a failed connection attempt.
+   */
+  public void connectFailed() {
+    connectFailures.increment();
+  }
+
+  /**
+   * Record an unexpected disconnect of a node or control panel.
+   */
+  public void disconnected() {
+    disconnects.increment();
+  }
+
+  /**
+   * Record a DATA_REPORT sent by a sensor node.
+   */
+  public void reportSent() {
+    reportsSent.increment();
+  }
+
+  /**
+   * Record a DATA_REPORT delivered to a control panel.
+   */
+  public void reportReceived() {
+    reportsReceived.increment();
+  }
+
+  /**
+   * Record a COMMAND sent by a control panel.
+   */
+  public void commandSent() {
+    commandsSent.increment();
+  }
+
+  /**
+   * Record a COMMAND applied by a sensor node.
+   */
+  public void commandApplied() {
+    commandsApplied.increment();
+  }
+
+  /**
+   * Record a COMMAND_ACK received by a control panel together with its round-trip time.
+   *
+   * @param roundTripNanos time between sending the COMMAND and receiving the ack
+   */
+  public void commandAcked(long roundTripNanos) {
+    commandAcks.increment();
+    commandRoundTrip.recordNanos(roundTripNanos);
+  }
+
+  /**
+   * Record a COMMAND that was not acknowledged in time.
+   */
+  public void commandTimedOut() {
+    commandTimeouts.increment();
+  }
+
+  /**
+   * Record an ERROR frame received by any simulated participant.
+   */
+  public void errorFrame() {
+    errorFrames.increment();
+  }
+
+  /**
+   * Take an immutable snapshot of the current counter values.
+   *
+   * @return a {@link Snapshot} of all counters
+   */
+  public Snapshot snapshot() {
+    return new Snapshot(
+        System.nanoTime(),
+        nodesConnected.sum(),
+        nodesAnnounced.sum(),
+        panelsConnected.sum(),
+        connectFailures.sum(),
+        disconnects.sum(),
+        reportsSent.sum(),
+        reportsReceived.sum(),
+        commandsSent.sum(),
+        commandsApplied.sum(),
+        commandAcks.sum(),
+        commandTimeouts.sum(),
+        errorFrames.sum()
+    );
+  }
+
+  /**
+   * Return the histogram of command round-trip times.
+   *
+   * @return the shared round-trip histogram
+   */
+  public LatencyHistogram commandRoundTrip() {
+    return commandRoundTrip;
+  }
+
+  /**
+   * Point-in-time copy of every counter in {@link LoadStats}.
+   *
+   * @param nanoTime        {@link System#nanoTime()} when the snapshot was taken
+   * @param nodesConnected  connected sensor nodes
+   * @param nodesAnnounced  sensor nodes that received an id
+   * @param panelsConnected connected control panels
+   * @param connectFailures failed connection attempts
+   * @param disconnects     unexpected disconnects
+   * @param reportsSent     DATA_REPORTs sent by sensor nodes
+   * @param reportsReceived DATA_REPORTs delivered to control panels
+   * @param commandsSent    COMMANDs sent by control panels
+   * @param commandsApplied COMMANDs applied by sensor nodes
+   * @param commandAcks     COMMAND_ACKs received by control panels
+   * @param commandTimeouts COMMANDs that timed out
+   * @param errorFrames     ERROR frames received
+   */
+  public record Snapshot(
+      long nanoTime,
+      long nodesConnected,
+      long nodesAnnounced,
+      long panelsConnected,
+      long connectFailures,
+      long disconnects,
+      long reportsSent,
+      long reportsReceived,
+      long commandsSent,
+      long commandsApplied,
+      long commandAcks,
+      long commandTimeouts,
+      long errorFrames
+  ) {
+
+    /**
+     * Return the total number of failed operations (connect failures,
+     * disconnects, command timeouts and ERROR frames).
+     *
+     * @return the error count
+     */
+    public long errors() {
+      return connectFailures + disconnects + commandTimeouts + errorFrames;
+    }
+
+    /**
+     * Return the fraction of commands that failed, or {@code 0} if none were sent.
+     *
+     * @return command error rate in the range {@code [0, 1]}
+     */
+    public double commandErrorRate() {
+      long finished = commandAcks + commandTimeouts;
+      return finished == 0 ? 0 : (double) commandTimeouts / finished;
+    }
+  }
+}
@@ -0,0 +1,107 @@
+package ntnu.idata2302.sfp.loadGenerator.metrics;
+
+import java.io.PrintStream;
+
+/**
+ * Prints periodic and final throughput summaries for a load run.
+ *
+ * <p>Rates are computed from the difference between two consecutive
+ * {@link LoadStats.Snapshot}s, so every interval line reflects only the
+ * traffic observed since the previous line.</p>
+ */
+public class StatsReporter implements Runnable {
+
+  private final LoadStats stats;
+  private final PrintStream out;
+  private LoadStats.Snapshot previous;
+  private LoadStats.Snapshot first;
+
+  /**
+   * Create a reporter for the given statistics.
+   *
+   * @param stats the shared statistics to report on
+   * @param out   the stream to print to (normally the original {@code System.out})
+   */
+  public StatsReporter(LoadStats stats, PrintStream out) {
+    this.stats = stats;
+    this.out = out;
+    this.previous = stats.snapshot();
+    this.first = previous;
+  }
+
+  /**
+   * Mark the start of the measured window. Counters recorded before this call
+   * (for example during ramp-up) are excluded from the final summary.
+   */
+  public synchronized void startMeasuring() {
+    first = stats.snapshot();
+    previous = first;
+    stats.commandRoundTrip().reset();
+  }
+
+  /**
+   * Print one interval line with rates since the previous call.
+   */
+  @Override
+  public synchronized void run() {
+    LoadStats.Snapshot now = stats.snapshot();
+    double seconds = (now.nanoTime() - previous.nanoTime()) / 1e9;
+    if (seconds <= 0) {
+      return;
+    }
+    LatencyHistogram rtt = stats.commandRoundTrip();
+
+    out.printf(
+        "[load] nodes=%d/%d panels=%d | reports out %.0f/s in %.0f/s | "
+            + "commands %.0f/s acks %.0f/s | rtt p50=%.1fms p99=%.1fms | errors=%d%n",
+        now.nodesAnnounced(),
+        now.nodesConnected(),
+        now.panelsConnected(),
+        (now.reportsSent() - previous.reportsSent()) / seconds,
+        (now.reportsReceived() - previous.reportsReceived()) / seconds,
+        (now.commandsSent() - previous.commandsSent()) / seconds,
+        (now.commandAcks() - previous.commandAcks()) / seconds,
+        rtt.percentileMillis(50),
+        rtt.percentileMillis(99),
+        now.errors()
+    );
+    previous = now;
+  }
+
+  /**
+   * Print the final summary for the measured window.
+   */
+  public synchronized void printSummary() {
+    LoadStats.Snapshot last = stats.snapshot();
+    double seconds = Math.max((last.nanoTime() - first.nanoTime()) / 1e9, 1e-9);
+    LatencyHistogram rtt = stats.commandRoundTrip();
+
+    out.println();
+    out.println("================ LOAD SUMMARY ================");
+    out.printf("Duration                : %.1f s%n", seconds);
+    out.printf("Sensor nodes            : %d connected, %d announced%n",
+        last.nodesConnected(), last.nodesAnnounced());
+    out.printf("Control panels          : %d connected%n", last.panelsConnected());
+    out.printf("DATA_REPORT sent        : %.1f /s%n",
+        (last.reportsSent() - first.reportsSent()) / seconds);
+    out.printf("DATA_REPORT delivered   : %.1f /s%n",
+        (last.reportsReceived() - first.reportsReceived()) / seconds);
+    out.printf("COMMAND sent            : %.1f /s%n",
+        (last.commandsSent() - first.commandsSent()) / seconds);
+    out.printf("COMMAND_ACK received    : %.1f /s%n",
+        (last.commandAcks() - first.commandAcks()) / seconds);
+    out.printf("Command RTT (ms)        : p50=%.2f p90=%.2f p99=%.2f p99.9=%.2f max=%.2f%n",
+        rtt.percentileMillis(50),
+        rtt.percentileMillis(90),
+        rtt.percentileMillis(99),
+        rtt.percentileMillis(99.9),
+        rtt.maxMillis());
+    out.printf("Command error rate      : %.3f%%%n", last.commandErrorRate() * 100);
+    out.printf("Errors                  : connect=%d disconnect=%d timeout=%d errorFrames=%d%n",
+        last.connectFailures(),
+        last.disconnects(),
+        last.commandTimeouts(),
+        last.errorFrames());
+    out.println("==============================================");
+  }
+}
@@ -0,0 +1,145 @@
+package ntnu.idata2302.sfp.loadGenerator.sim;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import ntnu.idata2302.sfp.library.SmartFarmingProtocol;
+import ntnu.idata2302.sfp.library.body.announce.AnnounceAckBody;
+import ntnu.idata2302.sfp.loadGenerator.metrics.LoadStats;
+import ntnu.idata2302.sfp.sensorNode.core.SensorNode;
+import ntnu.idata2302.sfp.sensorNode.factory.NodeFactory;
+import ntnu.idata2302.sfp.sensorNode.factory.PacketFactory;
+import ntnu.idata2302.sfp.sensorNode.net.PacketHandler;
+import ntnu.idata2302.sfp.sensorNode.net.SensorNodeContext;
+
+/**
+ * One logical sensor node running inside the load generator JVM.
+ *
+ * <p>Each instance owns a real {@link SensorNode} built by {@link NodeFactory}
+ * and its own TLS connection through {@link SensorNodeContext}, and follows the
+ * same ANNOUNCE / DATA_REPORT / COMMAND flow as a stand-alone node started by
+ * {@code StartUp}. Instead of a dedicated {@code NetworkLoop} and
+ * {@code SimulationLoop} thread pair per node, the blocking reader runs on a
+ * virtual thread and the simulation tick is driven by a shared scheduler, so a
+ * single JVM can host tens of thousands of nodes.</p>
+ */
+public class SimulatedSensorNode {
+
+  private final SensorNode node;
+  private final SensorNodeContext client;
+  private final LoadStats stats;
+  private final ExecutorService io;
+
+  private ScheduledFuture<?> ticker;
+  private volatile boolean running;
+
+  /**
+   * Create a simulated node using {@link NodeFactory#defaultNode()}.
+   *
+   * @param host  broker host
+   * @param port  broker port
+   * @param stats shared statistics to update
+   * @param io    executor running blocking reads and writes (normally virtual threads)
+   */
+  public SimulatedSensorNode(String host, int port, LoadStats stats, ExecutorService io) {
+    this.node = NodeFactory.defaultNode();
+    this.client = new SensorNodeContext(host, port, node);
+    this.stats = stats;
+    this.io = io;
+  }
+
+  /**
+   * Connect, announce and start reporting.
+   *
+   * <p>The first tick is delayed by a random offset within one interval so that
+   * thousands of nodes do not report in lock-step. The interval is also stated
+   * in the node's HEARTBEAT, so the broker expects reports at this rate.</p>
+   *
+   * @param scheduler      shared scheduler driving the simulation ticks
+   * @param intervalMillis interval between DATA_REPORTs
+   * @throws Exception if the TLS connection cannot be established
+   */
+  public void start(ScheduledExecutorService scheduler, long intervalMillis) throws Exception {
+    client.setReportIntervalMillis((int) Math.min(intervalMillis, Integer.MAX_VALUE));
+    client.connect();
+    stats.nodeConnected();
+    running = true;
+
+    io.execute(this::readLoop);
+    client.sendPacket(PacketFactory.buildAnnouncePacket(node));
+
+    long offset = ThreadLocalRandom.current().nextLong(intervalMillis);
+    ticker = scheduler.scheduleAtFixedRate(
+        () -> io.execute(this::tick), offset, intervalMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Advance the simulation and send one DATA_REPORT.
+   *
+   * <p>Skipped until the broker has assigned an id through ANNOUNCE_ACK.</p>
+   */
+  private void tick() {
+    if (!running || node.getId() == 0) {
+      return;
+    }
+    node.tick();
+    client.sendPacket(PacketFactory.buildReportPacket(node));
+    stats.reportSent();
+  }
+
+  /**
+   * Blocking read loop delegating every packet to the sensor node's
+   * {@link PacketHandler}, recording statistics on the way.
+   */
+  private void readLoop() {
+    try {
+      while (running && client.isConnected()) {
+        SmartFarmingProtocol packet = client.readOnePacket();
+
+        switch (packet.getHeader().getMessageType()) {
+          case ANNOUNCE_ACK -> {
+            if (packet.getBody() instanceof AnnounceAckBody ack
+                && ack.status() == AnnounceAckBody.STATUS_OK) {
+              stats.nodeAnnounced();
+            }
+          }
+          case COMMAND -> stats.commandApplied();
+          case ERROR -> stats.errorFrame();
+          default -> {
+            // other types are counted by the receiving control panels
+          }
+        }
+
+        PacketHandler.handle(client, packet);
+      }
+    } catch (Exception e) {
+      if (running) {
+        stats.disconnected();
+      }
+    } finally {
+      stop();
+    }
+  }
+
+  /**
+   * Stop reporting and close the connection. Safe to call multiple times.
+   */
+  public void stop() {
+    running = false;
+    if (ticker != null) {
+      ticker.cancel(false);
+    }
+    client.close();
+  }
+
+  /**
+   * Return the id assigned by the broker, or {@code 0} before ANNOUNCE_ACK.
+   *
+   * @return the node id
+   */
+  public int getId() {
+    return node.getId();
+  }
+}
@@ -0,0 +1,294 @@
+package ntnu.idata2302.sfp.loadGenerator.sim;
+
+import java.io.DataInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.KeyStore;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.TrustManagerFactory;
+import ntnu.idata2302.sfp.library.SmartFarmingProtocol;
+import ntnu.idata2302.sfp.library.body.capabilities.CapabilitiesListBody;
+import ntnu.idata2302.sfp.library.body.command.CommandAckBody;
+import ntnu.idata2302.sfp.library.body.command.CommandBody;
+import ntnu.idata2302.sfp.library.header.Header;
+import ntnu.idata2302.sfp.library.node.NodeDescriptor;
+import ntnu.idata2302.sfp.loadGenerator.factory.ControlPanelPacketFactory;
+import ntnu.idata2302.sfp.loadGenerator.metrics.LoadStats;
+
+/**
+ * Headless control panel that discovers sensor nodes, subscribes to them and
+ * issues COMMANDs at a fixed rate.
+ *
+ * <p>The panel periodically re-sends CAPABILITIES_QUERY so that sensor nodes
+ * which join during ramp-up are discovered and subscribed to. Every COMMAND is
+ * tracked by its request id until the matching COMMAND_ACK arrives, which
+ * yields the command round-trip time recorded in {@link LoadStats}. Commands
+ * without an ack within the configured timeout are counted as errors.</p>
+ */
+public class SyntheticControlPanel {
+
+  private static final long CAPABILITIES_REFRESH_MILLIS = 5000;
+
+  private final String host;
+  private final int port;
+  private final int maxSubscriptions;
+  private final long commandTimeoutNanos;
+  private final LoadStats stats;
+  private final ExecutorService io;
+
+  private final AtomicInteger requestIds = new AtomicInteger(1);
+  private final Map<Integer, Long> pendingCommands = new ConcurrentHashMap<>();
+  private final Set<Integer> subscribed = ConcurrentHashMap.newKeySet();
+  private volatile int[] knownNodes = new int[0];
+  private volatile int id;
+  private volatile boolean running;
+
+  private SSLSocket socket;
+  private DataInputStream in;
+  private OutputStream out;
+  private final List<ScheduledFuture<?>> tasks = new ArrayList<>();
+
+  /**
+   * Create a synthetic control panel.
+   *
+   * @param host                 broker host
+   * @param port                 broker port
+   * @param maxSubscriptions     maximum number of nodes to subscribe to; {@code 0} for all
+   * @param commandTimeoutMillis time after which an unacknowledged command is an error
+   * @param stats                shared statistics to update
+   * @param io                   executor running the blocking reader
+   */
+  public SyntheticControlPanel(String host, int port, int maxSubscriptions,
+                               long commandTimeoutMillis, LoadStats stats, ExecutorService io) {
+    this.host = host;
+    this.port = port;
+    this.maxSubscriptions = maxSubscriptions;
+    this.commandTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(commandTimeoutMillis);
+    this.stats = stats;
+    this.io = io;
+  }
+
+  /**
+   * Connect, announce and start issuing commands.
+   *
+   * @param sslContext        TLS context trusting the broker certificate
+   * @param scheduler         shared scheduler for command and housekeeping ticks
+   * @param commandsPerSecond COMMAND rate; {@code 0} disables commands
+   * @throws IOException if the TLS connection cannot be established
+   */
+  public void start(SSLContext sslContext, ScheduledExecutorService scheduler,
+                    double commandsPerSecond) throws IOException {
+    socket = (SSLSocket) sslContext.getSocketFactory().createSocket(host, port);
+    socket.startHandshake();
+    in = new DataInputStream(socket.getInputStream());
+    out = socket.getOutputStream();
+    running = true;
+    stats.panelConnected();
+
+    io.execute(this::readLoop);
+    send(ControlPanelPacketFactory.announce(requestIds.getAndIncrement()));
+
+    if (commandsPerSecond > 0) {
+      long periodMicros = Math.max(1, (long) (1_000_000 / commandsPerSecond));
+      tasks.add(scheduler.scheduleAtFixedRate(
+          () -> io.execute(this::sendCommand), periodMicros, periodMicros, TimeUnit.MICROSECONDS));
+    }
+    tasks.add(scheduler.scheduleAtFixedRate(
+        this::refreshCapabilities, CAPABILITIES_REFRESH_MILLIS, CAPABILITIES_REFRESH_MILLIS,
+        TimeUnit.MILLISECONDS));
+    tasks.add(scheduler.scheduleAtFixedRate(
+        this::expireCommands, 100, 100, TimeUnit.MILLISECONDS));
+  }
+
+  /**
+   * Blocking read loop handling the packets a control panel cares about.
+   */
+  private void readLoop() {
+    try {
+      while (running) {
+        byte[] headerBytes = in.readNBytes(Header.HEADER_SIZE);
+        if (headerBytes.length < Header.HEADER_SIZE) {
+          throw new IOException("Incomplete header");
+        }
+        Header header = Header.fromBytes(headerBytes);
+        byte[] bodyBytes = in.readNBytes(header.getPayloadLength());
+        handle(SmartFarmingProtocol.fromBytes(header, bodyBytes));
+      }
+    } catch (Exception e) {
+      if (running) {
+        stats.disconnected();
+      }
+    } finally {
+      stop();
+    }
+  }
+
+  /**
+   * Dispatch a single received packet.
+   */
+  private void handle(SmartFarmingProtocol packet) {
+    switch (packet.getHeader().getMessageType()) {
+      case ANNOUNCE_ACK -> {
+        id = packet.getHeader().getTargetId();
+        refreshCapabilities();
+      }
+      case CAPABILITIES_LIST -> handleCapabilities((CapabilitiesListBody) packet.getBody());
+      case DATA_REPORT -> stats.reportReceived();
+      case COMMAND_ACK -> {
+        CommandAckBody ack = (CommandAckBody) packet.getBody();
+        Long sentAt = pendingCommands.remove(ack.requestId());
+        if (sentAt != null) {
+          stats.commandAcked(System.nanoTime() - sentAt);
+        }
+      }
+      case ERROR -> stats.errorFrame();
+      default -> {
+        // SUBSCRIBE_ACK and friends carry nothing worth measuring
+      }
+    }
+  }
+
+  /**
+   * Remember the advertised sensor nodes and subscribe to new ones until the
+   * subscription limit is reached.
+   */
+  private void handleCapabilities(CapabilitiesListBody body) {
+    if (body.nodes() == null) {
+      return;
+    }
+    int[] ids = body.nodes().stream()
+        .map(NodeDescriptor::nodeId)
+        .filter(nodeId -> nodeId != null)
+        .mapToInt(Integer::intValue)
+        .toArray();
+    knownNodes = ids;
+
+    List<Integer> added = new ArrayList<>();
+    for (int nodeId : ids) {
+      if (maxSubscriptions > 0 && subscribed.size() >= maxSubscriptions) {
+        break;
+      }
+      if (subscribed.add(nodeId)) {
+        added.add(nodeId);
+      }
+    }
+    // One bulk SUBSCRIBE per refresh instead of one per node
+    if (!added.isEmpty()) {
+      send(ControlPanelPacketFactory.subscribe(id, requestIds.getAndIncrement(), added));
+    }
+  }
+
+  /**
+   * Send a CAPABILITIES_QUERY once an id has been assigned.
+   */
+  private void refreshCapabilities() {
+    if (running && id != 0) {
+      send(ControlPanelPacketFactory.capabilitiesQuery(id, requestIds.getAndIncrement()));
+    }
+  }
+
+  /**
+   * Send one COMMAND setting the fan of a random known node.
+   */
+  private void sendCommand() {
+    int[] nodes = knownNodes;
+    if (!running || id == 0 || nodes.length == 0) {
+      return;
+    }
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    int target = nodes[random.nextInt(nodes.length)];
+    int requestId = requestIds.getAndIncrement();
+
+    pendingCommands.put(requestId, System.nanoTime());
+    send(ControlPanelPacketFactory.command(id, target, requestId,
+        List.of(new CommandBody.CommandPart("FAN", random.nextInt(101)))));
+    stats.commandSent();
+  }
+
+  /**
+   * Count and forget commands that were not acknowledged in time.
+   */
+  private void expireCommands() {
+    long deadline = System.nanoTime() - commandTimeoutNanos;
+    Iterator<Map.Entry<Integer, Long>> it = pendingCommands.entrySet().iterator();
+    while (it.hasNext()) {
+      if (it.next().getValue() < deadline) {
+        it.remove();
+        stats.commandTimedOut();
+      }
+    }
+  }
+
+  /**
+   * Write a packet to the broker; failures stop the panel.
+   */
+  private synchronized void send(SmartFarmingProtocol packet) {
+    if (!running) {
+      return;
+    }
+    try {
+      out.write(packet.toBytes());
+      out.flush();
+    } catch (IOException e) {
+      stats.disconnected();
+      stop();
+    }
+  }
+
+  /**
+   * Stop all periodic tasks and close the connection. Safe to call multiple times.
+   */
+  public void stop() {
+    running = false;
+    tasks.forEach(task -> task.cancel(false));
+    try {
+      if (socket != null) {
+        socket.close();
+      }
+    } catch (IOException ignored) {
+      // Ignored on close
+    }
+  }
+
+  /**
+   * Create a TLS context trusting the broker certificate in the bundled
+   * {@code server.truststore}.
+   *
+   * @return an initialized {@link SSLContext}
+   * @throws Exception if the truststore cannot be found or loaded
+   */
+  public static SSLContext createSslContext() throws Exception {
+    KeyStore trustStore = KeyStore.getInstance("JKS");
+
+    InputStream ts = SyntheticControlPanel.class.getClassLoader()
+        .getResourceAsStream("server.truststore");
+
+    if (ts == null) {
+      throw new FileNotFoundException("server.truststore not found in classpath");
+    }
+
+    trustStore.load(ts, "password".toCharArray());
+
+    TrustManagerFactory tmf = TrustManagerFactory.getInstance("SunX509");
+    tmf.init(trustStore);
+
+    SSLContext sslContext = SSLContext.getInstance("TLS");
+    sslContext.init(null, tmf.getTrustManagers(), null);
+    return sslContext;
+  }
+}
@@ -0,0 +1,88 @@
+package ntnu.idata2302.sfp.loadGenerator.config;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Test class for {@link LoadConfig}.
+ *
+ * <b>Positive Tests:</b>
+ * <ul>
+ *   <li>fromArgs() with no arguments returns the defaults.</li>
+ *   <li>fromArgs() overrides only the given options.</li>
+ * </ul>
+ *
+ * <b>Negative Tests:</b>
+ * <ul>
+ *   <li>fromArgs() rejects unknown options.</li>
+ *   <li>fromArgs() rejects malformed numbers.</li>
+ *   <li>The constructor rejects a non-positive duration.</li>
+ * </ul>
+ */
+public class LoadConfigTest {
+
+  // --------------------------- POSITIVE TESTS ---------------------------------- //
+
+  /**
+   * Verifies that parsing an empty argument list yields the defaults.
+   */
+  @Test
+  void fromArgs_noArguments_returnsDefaults_positive() {
+    // Act
+    LoadConfig config = LoadConfig.fromArgs(new String[0]);
+
+    // Assert
+    assertEquals(LoadConfig.defaults(), config);
+  }
+
+  /**
+   * Verifies that given options override the defaults and others are kept.
+   */
+  @Test
+  void fromArgs_overridesGivenOptions_positive() {
+    // Arrange
+    String[] args = {"--host=broker", "--nodes=10000", "--commandRate=2.5", "--quiet=false"};
+
+    // Act
+    LoadConfig config = LoadConfig.fromArgs(args);
+
+    // Assert
+    assertEquals("broker", config.host());
+    assertEquals(10000, config.sensorNodes());
+    assertEquals(2.5, config.commandsPerSecond());
+    assertFalse(config.quiet());
+    assertEquals(LoadConfig.defaults().port(), config.port());
+  }
+
+  // --------------------------- NEGATIVE TESTS ---------------------------------- //
+
+  /**
+   * Verifies that an unknown option is rejected.
+   */
+  @Test
+  void fromArgs_unknownOption_throws_negative() {
+    assertThrows(IllegalArgumentException.class,
+        () -> LoadConfig.fromArgs(new String[]{"--threads=4"}));
+  }
+
+  /**
+   * Verifies that a malformed number is rejected.
+   */
+  @Test
+  void fromArgs_malformedNumber_throws_negative() {
+    assertThrows(IllegalArgumentException.class,
+        () -> LoadConfig.fromArgs(new String[]{"--nodes=many"}));
+  }
+
+  /**
+   * Verifies that a zero duration is rejected.
+   */
+  @Test
+  void constructor_zeroDuration_throws_negative() {
+    assertThrows(IllegalArgumentException.class,
+        () -> LoadConfig.fromArgs(new String[]{"--duration=0"}));
+  }
+}
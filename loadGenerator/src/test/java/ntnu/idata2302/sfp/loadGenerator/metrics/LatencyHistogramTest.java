@@ -0,0 +1,99 @@
+package ntnu.idata2302.sfp.loadGenerator.metrics;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class for {@link LatencyHistogram}.
+ *
+ * <b>Positive Tests:</b>
+ * <ul>
+ *   <li>Percentiles are within the bucket precision of the recorded values.</li>
+ *   <li>Bucket upper bounds are never below the values mapped to them.</li>
+ *   <li>reset() clears all recorded values.</li>
+ * </ul>
+ *
+ * <b>Negative Tests:</b>
+ * <ul>
+ *   <li>An empty histogram reports zero.</li>
+ *   <li>Percentiles outside (0, 100] are rejected.</li>
+ * </ul>
+ */
+public class LatencyHistogramTest {
+
+  // --------------------------- POSITIVE TESTS ---------------------------------- //
+
+  /**
+   * Verifies that percentiles of 1..1000 ms are reported within a few percent.
+   */
+  @Test
+  void percentileMillis_uniformValues_withinPrecision_positive() {
+    // Arrange
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int ms = 1; ms <= 1000; ms++) {
+      histogram.recordNanos(TimeUnit.MILLISECONDS.toNanos(ms));
+    }
+
+    // Act
+    double p50 = histogram.percentileMillis(50);
+    double p99 = histogram.percentileMillis(99);
+
+    // Assert
+    assertEquals(1000, histogram.count());
+    assertEquals(500, p50, 500 * 0.05);
+    assertEquals(990, p99, 990 * 0.05);
+    assertEquals(1000, histogram.maxMillis(), 1000 * 0.05);
+  }
+
+  /**
+   * Verifies that every value maps to a bucket whose upper bound covers it.
+   */
+  @Test
+  void indexOf_upperBoundCoversValue_positive() {
+    for (long micros = 0; micros < 1_000_000; micros += 7919) {
+      int index = LatencyHistogram.indexOf(micros);
+      assertTrue(LatencyHistogram.upperBound(index) >= micros);
+    }
+  }
+
+  /**
+   * Verifies that reset() discards all samples.
+   */
+  @Test
+  void reset_clearsSamples_positive() {
+    // Arrange
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.recordNanos(5_000_000);
+
+    // Act
+    histogram.reset();
+
+    // Assert
+    assertEquals(0, histogram.count());
+    assertEquals(0, histogram.percentileMillis(99));
+  }
+
+  // --------------------------- NEGATIVE TESTS ---------------------------------- //
+
+  /**
+   * Verifies that an empty histogram reports zero instead of failing.
+   */
+  @Test
+  void percentileMillis_empty_returnsZero_negative() {
+    assertEquals(0, new LatencyHistogram().percentileMillis(50));
+  }
+
+  /**
+   * Verifies that out-of-range percentiles are rejected.
+   */
+  @Test
+  void percentileMillis_outOfRange_throws_negative() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    assertThrows(IllegalArgumentException.class, () -> histogram.percentileMillis(0));
+    assertThrows(IllegalArgumentException.class, () -> histogram.percentileMillis(101));
+  }
+}
@@ -66,7 +66,7 @@ public class StartUp {
       // ----------------------------------------
       // 3) Start simulation + network threads
       // ----------------------------------------
-      new Thread(new NetworkLoop(client)).start();
+      new Thread(new NetworkLoop(client, true)).start();
       new Thread(new SimulationLoop(node, client)).start();
 
       System.out.println("Sensor Node Running.");
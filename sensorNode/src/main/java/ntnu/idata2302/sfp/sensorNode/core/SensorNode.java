@@ -1,7 +1,10 @@
 package ntnu.idata2302.sfp.sensorNode.core;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 /**
  * Represents a complete sensor node device in the Smart Farming Protocol.
@@ -12,6 +15,9 @@ import java.util.List;
  * ({@link #tick()}), look up actuators by name, and expose its configuration
  * and runtime identifiers to callers.</p>
  *
+ * <p>{@link #tick()} and {@link #apply(Map)} are synchronized, so a simulation
+ * step never sees a command half applied.</p>
+ *
  * <p>Notes:
  * <ul>
  *   <li>The constructor defensively copies the provided sensor and actuator lists
@@ -26,6 +32,8 @@ public class SensorNode {
 
   private final List<Sensor> sensors;
   private final List<Actuator> actuators;
+  // Actuators by lower-case display name; the first of equal names wins
+  private final Map<String, Actuator> actuatorsByName = new HashMap<>();
   private int id;
   private final boolean supportsImage;
   private final boolean supportsAggregate;
@@ -43,6 +51,9 @@ public class SensorNode {
                     boolean supportsAggregate) {
     this.sensors = new ArrayList<>(sensors);
     this.actuators = new ArrayList<>(actuators);
+    for (Actuator actuator : this.actuators) {
+      actuatorsByName.putIfAbsent(key(actuator.getType().displayName()), actuator);
+    }
     this.supportsImage = supportsImage;
     this.supportsAggregate = supportsAggregate;
   }
@@ -53,7 +64,7 @@ public class SensorNode {
    * <p>This updates each {@link Sensor} to produce a new reading and causes each
    * {@link Actuator} to move toward its configured target state.</p>
    */
-  public void tick() {
+  public synchronized void tick() {
     sensors.forEach(Sensor::updateValue);
     actuators.forEach(Actuator::update);
   }
@@ -69,10 +80,30 @@ public class SensorNode {
    * @return the first matching {@link Actuator}, or {@code null} if no match is found
    */
   public Actuator findActuator(String actuatorName) {
-    return actuators.stream()
-        .filter(a -> a.getType().displayName().equalsIgnoreCase(actuatorName))
-        .findFirst()
-        .orElse(null);
+    return actuatorName == null ? null : actuatorsByName.get(key(actuatorName));
+  }
+
+  /**
+   * Set the targets of several actuators in one pass.
+   *
+   * @param targets target values by actuator display name (case-insensitive)
+   * @return the names that match no actuator; empty if every target was applied
+   */
+  public synchronized List<String> apply(Map<String, Double> targets) {
+    List<String> unknown = new ArrayList<>();
+    targets.forEach((name, value) -> {
+      Actuator actuator = findActuator(name);
+      if (actuator == null) {
+        unknown.add(name);
+      } else {
+        actuator.act(value);
+      }
+    });
+    return unknown;
+  }
+
+  private static String key(String actuatorName) {
+    return actuatorName.toLowerCase(Locale.ROOT);
   }
 
   /**
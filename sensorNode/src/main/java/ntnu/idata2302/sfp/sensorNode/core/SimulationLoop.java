@@ -30,6 +30,9 @@ import ntnu.idata2302.sfp.sensorNode.net.SensorNodeContext;
  */
 public class SimulationLoop implements Runnable {
 
+  /** Default time between two reports, in milliseconds; also the node's heartbeat interval. */
+  public static final int REPORT_INTERVAL_MILLIS = 2000;
+
   private final SensorNode node;
   private final SensorNodeContext client;
 
@@ -54,7 +57,8 @@ public class SimulationLoop implements Runnable {
    *   <li>Advance the node simulation via {@link SensorNode#tick()}.</li>
    *   <li>Build a report packet using {@link PacketFactory#buildReportPacket(SensorNode)}.</li>
    *   <li>Send the packet through {@link SensorNodeContext#sendPacket(SmartFarmingProtocol)}.</li>
-   *   <li>Sleep for approximately 2000 milliseconds before the next iteration.</li>
+   *   <li>Sleep for the client's report interval, see
+   *       {@link SensorNodeContext#getReportIntervalMillis()}, before the next iteration.</li>
    * </ol>
    * The loop continues until the thread is interrupted. If the thread is
    * interrupted, the method returns and the loop stops.</p>
@@ -63,7 +67,7 @@ public class SimulationLoop implements Runnable {
   public void run() {
     try {
       while (true) {
-        Thread.sleep(2000); // send a report every 2 seconds
+        Thread.sleep(client.getReportIntervalMillis());
 
         // update internal sensor/actuator simulation
         node.tick();
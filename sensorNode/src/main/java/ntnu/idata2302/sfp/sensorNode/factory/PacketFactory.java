@@ -5,11 +5,13 @@ import java.util.UUID;
 import ntnu.idata2302.sfp.library.SmartFarmingProtocol;
 import ntnu.idata2302.sfp.library.body.announce.AnnounceAckBody;
 import ntnu.idata2302.sfp.library.body.announce.AnnounceBody;
+import ntnu.idata2302.sfp.library.body.announce.HeartbeatBody;
 import ntnu.idata2302.sfp.library.body.command.CommandAckBody;
 import ntnu.idata2302.sfp.library.body.data.DataReportBody;
 import ntnu.idata2302.sfp.library.body.error.ErrorBody;
 import ntnu.idata2302.sfp.library.header.Header;
 import ntnu.idata2302.sfp.library.header.MessageTypes;
+import ntnu.idata2302.sfp.library.node.DescriptorTemplates;
 import ntnu.idata2302.sfp.library.node.NodeDescriptor;
 import ntnu.idata2302.sfp.library.node.NodeIds;
 import ntnu.idata2302.sfp.sensorNode.core.Actuator;
@@ -38,15 +40,57 @@ public class PacketFactory {
    * Build an ANNOUNCE packet describing the provided sensor node.
    *
    * <p>The returned {@link SmartFarmingProtocol} contains a {@link AnnounceBody}
-   * with a {@link NodeDescriptor} that lists this node's sensors and actuators,
-   * and a header targeting the server. The node id in the descriptor is left
-   * {@code null} because the server assigns an id upon acknowledge.</p>
+   * with a {@link NodeDescriptor} that refers to this node's sensors and
+   * actuators by template hash, and a header targeting the server. The node
+   * id in the descriptor is left {@code null} because the server assigns an
+   * id upon acknowledge.</p>
    *
    * @param sensorNode the local {@link SensorNode} to describe; must not be {@code null}
    * @return a {@link SmartFarmingProtocol} containing an ANNOUNCE header and body
    * @throws NullPointerException if {@code sensorNode} is {@code null}
    */
   public static SmartFarmingProtocol buildAnnouncePacket(SensorNode sensorNode) {
+    return buildAnnouncePacket(sensorNode, null);
+  }
+
+  /**
+   * Build an ANNOUNCE packet that resumes an earlier session.
+   *
+   * <p>Same as {@link #buildAnnouncePacket(SensorNode)}, but carries the resume
+   * token from the last ANNOUNCE_ACK so the server can hand back the node's
+   * previous id and subscriptions.</p>
+   *
+   * <p>The descriptor is sent as a reference to its template hash; see
+   * {@link #buildAnnouncePacket(SensorNode, String, boolean)}.</p>
+   *
+   * @param sensorNode  the local {@link SensorNode} to describe; must not be {@code null}
+   * @param resumeToken the token from the last ANNOUNCE_ACK, or {@code null} for a new session
+   * @return a {@link SmartFarmingProtocol} containing an ANNOUNCE header and body
+   * @throws NullPointerException if {@code sensorNode} is {@code null}
+   */
+  public static SmartFarmingProtocol buildAnnouncePacket(SensorNode sensorNode,
+                                                         String resumeToken) {
+    return buildAnnouncePacket(sensorNode, resumeToken, false);
+  }
+
+  /**
+   * Build an ANNOUNCE packet with the node's descriptor in full or by
+   * template reference.
+   *
+   * <p>A reference names the hash of the node's descriptor template and
+   * leaves out the sensors, actuators and flags, which the server already
+   * knows from identical nodes. If it does not, it answers with
+   * {@link AnnounceAckBody#STATUS_TEMPLATE_UNKNOWN} and the node announces
+   * again in full.</p>
+   *
+   * @param sensorNode  the local {@link SensorNode} to describe; must not be {@code null}
+   * @param resumeToken the token from the last ANNOUNCE_ACK, or {@code null} for a new session
+   * @param full        {@code true} to send the full descriptor, {@code false} for a reference
+   * @return a {@link SmartFarmingProtocol} containing an ANNOUNCE header and body
+   * @throws NullPointerException if {@code sensorNode} is {@code null}
+   */
+  public static SmartFarmingProtocol buildAnnouncePacket(SensorNode sensorNode,
+                                                         String resumeToken, boolean full) {
 
     // --- Convert internal sensors to DESCRIPTORS ---
     List<NodeDescriptor.SensorDescriptor> sensorDescriptors =
@@ -78,6 +122,10 @@ public class PacketFactory {
         sensorNode.supportsImage(),
         sensorNode.supportsAggregate()
     );
+    String hash = DescriptorTemplates.hash(descriptor);
+    descriptor = full
+        ? DescriptorTemplates.resolve(DescriptorTemplates.reference(descriptor, hash), descriptor)
+        : DescriptorTemplates.reference(descriptor, hash);
 
     Header header = new Header(
         new byte[] {'S', 'F', 'P'},
@@ -91,7 +139,8 @@ public class PacketFactory {
 
     AnnounceBody body = new AnnounceBody(
         RequestIds.next(),
-        descriptor
+        descriptor,
+        resumeToken
     );
 
     return new SmartFarmingProtocol(header, body);
@@ -125,6 +174,27 @@ public class PacketFactory {
   }
 
 
+  /**
+   * Build a HEARTBEAT packet stating how often the node sends at least one message.
+   *
+   * @param sourceId       the id assigned to this sensor node
+   * @param intervalMillis the heartbeat interval in milliseconds
+   * @return a {@link SmartFarmingProtocol} containing a HEARTBEAT header and body
+   */
+  public static SmartFarmingProtocol buildHeartbeatPacket(int sourceId, int intervalMillis) {
+    Header header = new Header(
+        new byte[] {'S', 'F', 'P'},
+        (byte) 1,
+        MessageTypes.HEARTBEAT,
+        sourceId,
+        NodeIds.SERVER,
+        0,
+        UUID.randomUUID()
+    );
+
+    return new SmartFarmingProtocol(header, new HeartbeatBody(intervalMillis));
+  }
+
   /**
    * Build a DATA_REPORT packet containing current sensor readings and actuator states.
    *
@@ -1,6 +1,8 @@
 package ntnu.idata2302.sfp.sensorNode.net;
 
+import java.util.concurrent.ThreadLocalRandom;
 import ntnu.idata2302.sfp.library.SmartFarmingProtocol;
+import ntnu.idata2302.sfp.sensorNode.factory.PacketFactory;
 
 /**
  * A dedicated thread that continuously reads protocol packets from a server
@@ -15,21 +17,45 @@ import ntnu.idata2302.sfp.library.SmartFarmingProtocol;
  * {@code true}. Any exception thrown while reading or handling a packet will
  * stop the loop; the exception is caught, and a short message is printed.</p>
  *
+ * <p>A loop created with reconnect enabled does not stop when the connection
+ * drops. It reconnects with exponential backoff and re-announces the node
+ * with the resume token from its last ANNOUNCE_ACK, so the server hands back
+ * the same id and the node's subscribers keep receiving its reports.</p>
+ *
  * @see SensorNodeContext
  * @see PacketHandler
  */
 public class NetworkLoop implements Runnable {
 
+  private static final long INITIAL_BACKOFF_MILLIS = 500;
+  private static final long MAX_BACKOFF_MILLIS = 30_000;
+
   private final SensorNodeContext client;
+  private final boolean reconnect;
+  private volatile boolean running = true;
 
   /**
-   * Create a network loop bound to the given client context.
+   * Create a network loop bound to the given client context that stops when
+   * the connection is lost.
    *
    * @param client the {@link SensorNodeContext} used to read and send packets;
    *               must not be {@code null}
    */
   public NetworkLoop(SensorNodeContext client) {
+    this(client, false);
+  }
+
+  /**
+   * Create a network loop bound to the given client context.
+   *
+   * @param client    the {@link SensorNodeContext} used to read and send packets;
+   *                  must not be {@code null}
+   * @param reconnect whether to reconnect and resume the session when the
+   *                  connection is lost
+   */
+  public NetworkLoop(SensorNodeContext client, boolean reconnect) {
     this.client = client;
+    this.reconnect = reconnect;
   }
 
   /**
@@ -46,20 +72,67 @@ public class NetworkLoop implements Runnable {
    * </ol>
    * The loop executes in the calling thread until the connection is closed or
    * an exception occurs. Exceptions are caught; the loop stops and a message
-   * is printed to standard output.</p>
+   * is printed to standard output. With reconnect enabled the loop instead
+   * reconnects and continues until {@link #stop()} is called.</p>
    *
    * <p>Note: blocking I/O performed by {@link SensorNodeContext#readOnePacket()}
    * occurs only in this thread and will not block the sensor simulation thread.</p>
    */
   @Override
   public void run() {
-    try {
-      while (client.isConnected()) {
-        SmartFarmingProtocol packet = client.readOnePacket();
-        PacketHandler.handle(client, packet);
+    while (running) {
+      try {
+        while (running && client.isConnected()) {
+          SmartFarmingProtocol packet = client.readOnePacket();
+          PacketHandler.handle(client, packet);
+        }
+      } catch (Exception e) {
+        System.out.println("Network loop stopped: " + e.getMessage());
+      }
+
+      if (!reconnect || !running || !reconnect()) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Stop the loop after the current packet and close the connection.
+   */
+  public void stop() {
+    running = false;
+    client.close();
+  }
+
+  /**
+   * Reconnect with exponential backoff and full jitter, then re-announce the
+   * node with its resume token.
+   *
+   * @return {@code true} once reconnected, {@code false} if the loop was stopped
+   */
+  private boolean reconnect() {
+    client.close();
+    long backoff = INITIAL_BACKOFF_MILLIS;
+
+    while (running) {
+      try {
+        Thread.sleep(ThreadLocalRandom.current().nextLong(backoff));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return false;
+      }
+
+      try {
+        client.connect();
+        client.sendPacket(PacketFactory.buildAnnouncePacket(
+            client.getSensorNode(), client.getResumeToken()));
+        System.out.println("Reconnected to server.");
+        return true;
+      } catch (Exception e) {
+        System.out.println("Reconnect failed: " + e.getMessage());
+        backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
       }
-    } catch (Exception e) {
-      System.out.println("Network loop stopped: " + e.getMessage());
     }
+    return false;
   }
-}
\ No newline at end of file
+}
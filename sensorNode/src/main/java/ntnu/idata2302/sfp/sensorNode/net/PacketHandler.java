@@ -1,11 +1,15 @@
 package ntnu.idata2302.sfp.sensorNode.net;
 
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import ntnu.idata2302.sfp.library.SmartFarmingProtocol;
 import ntnu.idata2302.sfp.library.body.announce.AnnounceAckBody;
+import ntnu.idata2302.sfp.library.body.command.CommandAckBody;
 import ntnu.idata2302.sfp.library.body.command.CommandBody;
 import ntnu.idata2302.sfp.library.header.Header;
 import ntnu.idata2302.sfp.library.header.MessageTypes;
-import ntnu.idata2302.sfp.sensorNode.core.Actuator;
 import ntnu.idata2302.sfp.sensorNode.core.SensorNode;
 import ntnu.idata2302.sfp.sensorNode.factory.PacketFactory;
 
@@ -38,7 +42,9 @@ public class PacketHandler {
    *
    * <p>This prints a simple log message indicating the handled packet type,
    * then performs a type-based dispatch. Unknown or unsupported message types
-   * are currently ignored.</p>
+   * are currently ignored. A packet whose Message ID was already received from
+   * the same source, such as a COMMAND retried after a reconnect, is dropped
+   * so it is not applied twice.</p>
    *
    * @param client the {@link SensorNodeContext} that received the packet; used
    *               to obtain the local {@link SensorNode} and to send responses
@@ -46,6 +52,10 @@ public class PacketHandler {
    */
   public static void handle(SensorNodeContext client, SmartFarmingProtocol packet) {
     MessageTypes type = packet.getHeader().getMessageType();
+    if (!client.getMessageIds().firstSeen(packet.getHeader())) {
+      System.out.println("Dropped duplicate packet: " + type);
+      return;
+    }
     System.out.println("Handling packet: " + type.toString());
 
     switch (type) {
@@ -58,17 +68,40 @@ public class PacketHandler {
    * Handle an {@link MessageTypes#ANNOUNCE_ACK} packet.
    *
    * <p>The handler extracts the header and updates the
-   * client context with the assigned node id. The method assumes the packet
+   * client context with the assigned node id, and stores the resume token used
+   * to reclaim the id after a reconnect. The method assumes the packet
    * conforms to the protocol (i.e. body is an {@link AnnounceAckBody}).</p>
    *
+   * <p>If the server did not know the announced descriptor template, the node
+   * is not registered yet and announces again with its full descriptor.
+   * Otherwise the node sends a HEARTBEAT stating its report interval, see
+   * {@link SensorNodeContext#getReportIntervalMillis()}, so the server
+   * disconnects it if its reports stop, for example behind a half-open
+   * connection.</p>
+   *
    * @param client the {@link SensorNodeContext} whose id will be set
    * @param packet the {@link SmartFarmingProtocol} containing the ANNOUNCE_ACK
    */
   private static void AnnounceAckHandle(SensorNodeContext client,
                                         SmartFarmingProtocol packet) {
     Header header = packet.getHeader();
+    if (packet.getBody() instanceof AnnounceAckBody ack
+        && ack.status() == AnnounceAckBody.STATUS_TEMPLATE_UNKNOWN) {
+      client.sendPacket(PacketFactory.buildAnnouncePacket(
+          client.getSensorNode(), client.getResumeToken(), true));
+      return;
+    }
+
     // Set id for sensor node
     client.setId(header.getTargetId());
+
+    if (packet.getBody() instanceof AnnounceAckBody ack && ack.resumeToken() != null) {
+      client.setResumeToken(ack.resumeToken());
+    }
+
+    // Reports are sent every interval, so they keep the node alive from here on
+    client.sendPacket(PacketFactory.buildHeartbeatPacket(
+        header.getTargetId(), client.getReportIntervalMillis()));
   }
 
   /**
@@ -78,19 +111,15 @@ public class PacketHandler {
    * <ol>
    *   <li>Validate that the command body contains an actuator list; if missing,
    *       send an ERROR packet back to the sender.</li>
-   *   <li>For each actuator command, lookup the corresponding {@link Actuator}
-   *       on the local {@link SensorNode} and apply the new value via
-   *       {@link Actuator act(int)}.</li>
+   *   <li>Collect the actuator updates, the last update of an actuator
+   *       winning, and apply them to the local {@link SensorNode} in one
+   *       pass via {@link SensorNode#apply(Map)}.</li>
    *   <li>After applying commands, send a COMMAND_ACK packet to acknowledge
-   *       successful processing.</li>
+   *       successful processing, or with status 0 naming the actuators this
+   *       node does not have.</li>
    * </ol>
    * </p>
    *
-   * <p>Note: this method assumes fields are well-formed; if an actuator cannot
-   * be found or {@code act()} throws, an exception may propagate and prevent
-   * sending the acknowledgement. Callers may wrap this handler if stricter
-   * error handling is required.</p>
-   *
    * @param client the {@link SensorNodeContext}
    *              providing access to the local node and send operations
    * @param packet the incoming {@link SmartFarmingProtocol} containing a {@link CommandBody}
@@ -102,8 +131,8 @@ public class PacketHandler {
     // Validate actuators
     if (body.actuators() == null) {
       SmartFarmingProtocol errorBody = PacketFactory.buildErrorPacket(
-          header.getSourceId(),
           header.getTargetId(),
+          header.getSourceId(),
           1,
           String.format("BAD_REQUEST: missing required field 'actuators' in body: %s", body)
       );
@@ -111,19 +140,26 @@ public class PacketHandler {
       return;
     }
 
-    // Set new values for the actuators
-    body.actuators().forEach(inAct -> {
-      Actuator act = client.getSensorNode().findActuator(inAct.name());
-      act.act(inAct.newValue());
-    });
+    // Set new values for the actuators in one pass; actuator names ignore
+    // case, so the latest part for a name wins whatever its spelling
+    Map<String, CommandBody.CommandPart> latest = new LinkedHashMap<>();
+    for (CommandBody.CommandPart part : body.actuators()) {
+      String name = part.name() == null ? null : part.name().toLowerCase(Locale.ROOT);
+      latest.put(name, part);
+    }
+    Map<String, Double> targets = new LinkedHashMap<>();
+    for (CommandBody.CommandPart part : latest.values()) {
+      targets.put(part.name(), part.newValue());
+    }
+    List<String> unknown = client.getSensorNode().apply(targets);
 
-    // Send ack packet
+    // Send ack packet back to the control panel that issued the command
     SmartFarmingProtocol resBody = PacketFactory.buildCommandAckPacket(
-        header.getSourceId(),
         header.getTargetId(),
+        header.getSourceId(),
         body.requestId(),
-        1,
-        "OK"
+        unknown.isEmpty() ? CommandAckBody.STATUS_OK : 0,
+        unknown.isEmpty() ? "OK" : "UNKNOWN_ACTUATOR: " + String.join(", ", unknown)
     );
     client.sendPacket(resBody);
   }
@@ -12,7 +12,9 @@ import javax.net.ssl.SSLSocketFactory;
 import javax.net.ssl.TrustManagerFactory;
 import ntnu.idata2302.sfp.library.SmartFarmingProtocol;
 import ntnu.idata2302.sfp.library.header.Header;
+import ntnu.idata2302.sfp.library.header.MessageIdWindow;
 import ntnu.idata2302.sfp.sensorNode.core.SensorNode;
+import ntnu.idata2302.sfp.sensorNode.core.SimulationLoop;
 
 
 /**
@@ -27,16 +29,26 @@ import ntnu.idata2302.sfp.sensorNode.core.SensorNode;
  * send or receive SFP messages.</p>
  */
 public class SensorNodeContext {
-  private SSLContext sslContext;
+  // Shared by every connection in the JVM so reconnects can resume the TLS session
+  private static SSLContext sslContext;
 
   private final String host;
   private final int port;
   private final SensorNode sensorNode;
 
-  private SSLSocket socket;
+  private volatile SSLSocket socket;
   private DataInputStream in;
   private OutputStream out;
 
+  // Handed out by the server in ANNOUNCE_ACK and presented again after a reconnect
+  private volatile String resumeToken;
+
+  // Recent Message IDs per source; kept across reconnects, when retries happen
+  private final MessageIdWindow messageIds = new MessageIdWindow();
+
+  // Interval the node reports at; stated in its HEARTBEAT so the server knows when it is late
+  private volatile int reportIntervalMillis = SimulationLoop.REPORT_INTERVAL_MILLIS;
+
   /**
    * Create a new SensorNodeContext for the given host/port and sensor node.
    *
@@ -56,13 +68,18 @@ public class SensorNodeContext {
    *
    * <p>This method initializes TLS using the bundled truststore, creates an
    * SSL socket, performs the TLS handshake, and prepares {@link DataInputStream}
-   * and {@link OutputStream} for further packet operations.</p>
+   * and {@link OutputStream} for further packet operations. The TLS context is
+   * shared, so reconnecting to the same server resumes the previous session
+   * instead of repeating the full handshake.</p>
+   *
+   * <p>May be called again after the connection dropped; the method is
+   * synchronized with {@link #sendPacket(SmartFarmingProtocol)} so senders never
+   * see half-replaced streams.</p>
    *
    * @throws Exception if TLS initialization, socket creation, or handshake fails
    */
-  public void connect() throws Exception {
-    initializeTLS();
-    SSLSocketFactory factory = sslContext.getSocketFactory();
+  public synchronized void connect() throws Exception {
+    SSLSocketFactory factory = tlsContext().getSocketFactory();
     socket = (SSLSocket) factory.createSocket(host, port);
     socket.startHandshake();
 
@@ -73,16 +90,24 @@ public class SensorNodeContext {
   }
 
   /**
-   * Initialize the {@link SSLContext} used to establish TLS connections.
+   * Return the {@link SSLContext} used to establish TLS connections, creating
+   * it on first use.
    *
    * <p>The method loads the trust store resource `server.truststore` from the
    * classpath and configures a {@link TrustManagerFactory} so the socket trusts
-   * the server certificate contained in the store.</p>
+   * the server certificate contained in the store. The context, and with it the
+   * client session cache holding TLS 1.3 session tickets, is shared by all
+   * connections.</p>
    *
+   * @return the shared TLS context
    * @throws Exception if the truststore cannot be found, loaded, or the TLS
    *                   context cannot be initialized
    */
-  private void initializeTLS() throws Exception {
+  private static synchronized SSLContext tlsContext() throws Exception {
+    if (sslContext != null) {
+      return sslContext;
+    }
+
     KeyStore trustStore = KeyStore.getInstance("JKS");
 
     InputStream ts = SensorNodeContext.class.getClassLoader()
@@ -97,8 +122,10 @@ public class SensorNodeContext {
     TrustManagerFactory tmf = TrustManagerFactory.getInstance("SunX509");
     tmf.init(trustStore);
 
-    sslContext = SSLContext.getInstance("TLS");
-    sslContext.init(null, tmf.getTrustManagers(), null);
+    SSLContext context = SSLContext.getInstance("TLS");
+    context.init(null, tmf.getTrustManagers(), null);
+    sslContext = context;
+    return sslContext;
   }
 
 
@@ -112,6 +139,22 @@ public class SensorNodeContext {
     return socket != null && socket.isConnected() && !socket.isClosed();
   }
 
+  /**
+   * Close the connection to the server.
+   *
+   * <p>Safe to call multiple times and before {@link #connect()}. A blocked
+   * {@link #readOnePacket()} on another thread fails with an {@link IOException}.</p>
+   */
+  public void close() {
+    try {
+      if (socket != null) {
+        socket.close();
+      }
+    } catch (IOException ignored) {
+      // Socket already closed or closing; safe to ignore.
+    }
+  }
+
   /**
    * Send a fully formed {@link SmartFarmingProtocol} packet over the socket.
    *
@@ -177,6 +220,59 @@ public class SensorNodeContext {
     return sensorNode.getId();
   }
 
+  /**
+   * Remember the resume token received in the latest ANNOUNCE_ACK.
+   *
+   * @param resumeToken the token, or {@code null} to start a fresh session on reconnect
+   */
+  public void setResumeToken(String resumeToken) {
+    this.resumeToken = resumeToken;
+  }
+
+  /**
+   * Get the resume token received in the latest ANNOUNCE_ACK.
+   *
+   * @return the token, or {@code null} if the server has not issued one
+   */
+  public String getResumeToken() {
+    return resumeToken;
+  }
+
+  /**
+   * Set the interval at which the node sends DATA_REPORTs.
+   *
+   * <p>Defaults to {@link SimulationLoop#REPORT_INTERVAL_MILLIS}; callers that
+   * drive reports at another rate, such as the load generator, must set it
+   * before announcing.</p>
+   *
+   * @param reportIntervalMillis the report interval in milliseconds; must be positive
+   * @throws IllegalArgumentException if the interval is not positive
+   */
+  public void setReportIntervalMillis(int reportIntervalMillis) {
+    if (reportIntervalMillis <= 0) {
+      throw new IllegalArgumentException("reportIntervalMillis must be positive");
+    }
+    this.reportIntervalMillis = reportIntervalMillis;
+  }
+
+  /**
+   * Get the interval at which the node sends DATA_REPORTs.
+   *
+   * @return the report interval in milliseconds
+   */
+  public int getReportIntervalMillis() {
+    return reportIntervalMillis;
+  }
+
+  /**
+   * Return the window of recently received Message IDs per source.
+   *
+   * @return the duplicate filter
+   */
+  public MessageIdWindow getMessageIds() {
+    return messageIds;
+  }
+
   /**
    * Access the underlying {@link SensorNode} instance associated with this context.
    *
@@ -4,7 +4,9 @@ import ntnu.idata2302.sfp.sensorNode.entity.ActuatorType;
 import org.junit.jupiter.api.Test;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
@@ -24,6 +26,7 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
  *   <li>findActuator() locates actuators by display name (case-insensitive).</li>
  *   <li>supportsImage() and supportsAggregate() reflect constructor flags.</li>
  *   <li>setId() and getId() correctly store and return the node identifier.</li>
+ *   <li>apply() sets every named actuator target in one call.</li>
  * </ul>
  *
  * <b>Negative Tests:</b>
@@ -31,6 +34,7 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
  *   <li>Constructor is unaffected by later modifications to the original lists.</li>
  *   <li>findActuator() returns null when no matching actuator is found.</li>
  *   <li>tick() works correctly when there are no sensors or actuators.</li>
+ *   <li>apply() reports unknown actuator names and still applies the known ones.</li>
  * </ul>
  */
 public class SensorNodeTest {
@@ -166,6 +170,28 @@ public class SensorNodeTest {
     assertEquals(expectedId, node.getId());
   }
 
+  /**
+   * Verifies that apply() sets the targets of all named actuators.
+   */
+  @Test
+  void apply_multipleActuators_positive() {
+    // Arrange
+    Actuator fan = new Actuator(ActuatorType.FAN, 0.0, 100.0);
+    Actuator heater = new Actuator(ActuatorType.HEATER, 0.0, 100.0);
+    SensorNode node = new SensorNode(new ArrayList<>(), List.of(fan, heater), false, false);
+    Map<String, Double> targets = new LinkedHashMap<>();
+    targets.put("fan", 40.0);
+    targets.put("HEATER", 70.0);
+
+    // Act
+    List<String> unknown = node.apply(targets);
+
+    // Assert
+    assertTrue(unknown.isEmpty());
+    assertEquals(40.0, fan.getTargetValue());
+    assertEquals(70.0, heater.getTargetValue());
+  }
+
   // --------------------------- NEGATIVE TESTS ---------------------------------- //
 
   /**
@@ -231,4 +257,24 @@ public class SensorNodeTest {
     assertEquals(0, node.getSensors().size());
     assertEquals(0, node.getActuators().size());
   }
+
+  /**
+   * Verifies that apply() returns unknown names and applies the known ones.
+   */
+  @Test
+  void apply_unknownActuator_negative() {
+    // Arrange
+    Actuator fan = new Actuator(ActuatorType.FAN, 0.0, 100.0);
+    SensorNode node = new SensorNode(new ArrayList<>(), List.of(fan), false, false);
+    Map<String, Double> targets = new LinkedHashMap<>();
+    targets.put("Sprinkler", 1.0);
+    targets.put("Fan", 25.0);
+
+    // Act
+    List<String> unknown = node.apply(targets);
+
+    // Assert
+    assertEquals(List.of("Sprinkler"), unknown);
+    assertEquals(25.0, fan.getTargetValue());
+  }
 }
@@ -1,13 +1,21 @@
 package ntnu.idata2302.sfp.sensorNode.net;
 
 import ntnu.idata2302.sfp.library.SmartFarmingProtocol;
+import ntnu.idata2302.sfp.library.body.announce.AnnounceBody;
 import ntnu.idata2302.sfp.library.header.Header;
 import ntnu.idata2302.sfp.library.header.MessageTypes;
+import ntnu.idata2302.sfp.sensorNode.factory.NodeFactory;
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
 import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
@@ -17,6 +25,7 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
  * <ul>
  *   <li>NetworkLoop calls readOnePacket() while connected.</li>
  *   <li>NetworkLoop stops when client.isConnected() becomes false.</li>
+ *   <li>A reconnecting NetworkLoop reconnects and re-announces with the resume token.</li>
  * </ul>
  *
  * <b>Negative Tests:</b>
@@ -70,6 +79,32 @@ public class NetworkLoopTest {
     assertEquals(reads, client.readCount);
   }
 
+  /**
+   * Verifies that a reconnecting NetworkLoop opens a new connection after a
+   * read failure and announces with the stored resume token.
+   */
+  @Test
+  void run_withReconnect_reannouncesWithResumeToken_positive() throws Exception {
+    // Arrange
+    ReconnectingContext client = new ReconnectingContext();
+    client.setResumeToken("token-1");
+    NetworkLoop loop = new NetworkLoop(client, true);
+    Thread thread = new Thread(loop);
+
+    // Act
+    thread.start();
+    SmartFarmingProtocol announce = client.announces.poll(5, TimeUnit.SECONDS);
+    loop.stop();
+    thread.join(2000);
+
+    // Assert
+    assertNotNull(announce, "Loop should re-announce after reconnecting");
+    assertEquals(MessageTypes.ANNOUNCE, announce.getHeader().getMessageType());
+    assertEquals("token-1", ((AnnounceBody) announce.getBody()).resumeToken());
+    assertTrue(client.connectCount >= 1);
+    assertFalse(thread.isAlive(), "Loop should end after stop()");
+  }
+
   // --------------------------- NEGATIVE TESTS ---------------------------------- //
 
   /**
@@ -134,4 +169,42 @@ public class NetworkLoopTest {
     }
   }
 
+  /**
+   * Fake SensorNodeContext whose connection drops on every read and whose
+   * connect() always succeeds; sent packets are captured.
+   */
+  private static class ReconnectingContext extends SensorNodeContext {
+
+    final BlockingQueue<SmartFarmingProtocol> announces = new LinkedBlockingQueue<>();
+    volatile int connectCount = 0;
+
+    ReconnectingContext() {
+      super("localhost", 1234, NodeFactory.defaultNode());
+    }
+
+    @Override
+    public boolean isConnected() {
+      return true;
+    }
+
+    @Override
+    public SmartFarmingProtocol readOnePacket() throws IOException {
+      throw new IOException("Simulated connection reset");
+    }
+
+    @Override
+    public void connect() {
+      connectCount++;
+    }
+
+    @Override
+    public void close() {
+      // nothing to close
+    }
+
+    @Override
+    public void sendPacket(SmartFarmingProtocol packet) {
+      announces.add(packet);
+    }
+  }
 }
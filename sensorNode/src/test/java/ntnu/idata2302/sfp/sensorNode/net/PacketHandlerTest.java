@@ -2,6 +2,8 @@ package ntnu.idata2302.sfp.sensorNode.net;
 
 import ntnu.idata2302.sfp.library.SmartFarmingProtocol;
 import ntnu.idata2302.sfp.library.body.announce.AnnounceAckBody;
+import ntnu.idata2302.sfp.library.body.announce.HeartbeatBody;
+import ntnu.idata2302.sfp.library.body.command.CommandAckBody;
 import ntnu.idata2302.sfp.library.body.command.CommandBody;
 import ntnu.idata2302.sfp.library.body.command.CommandBody.CommandPart;
 import ntnu.idata2302.sfp.library.body.error.ErrorBody;
@@ -10,6 +12,7 @@ import ntnu.idata2302.sfp.library.header.MessageTypes;
 import ntnu.idata2302.sfp.sensorNode.core.Actuator;
 import ntnu.idata2302.sfp.sensorNode.core.Sensor;
 import ntnu.idata2302.sfp.sensorNode.core.SensorNode;
+import ntnu.idata2302.sfp.sensorNode.core.SimulationLoop;
 import ntnu.idata2302.sfp.sensorNode.entity.ActuatorType;
 import org.junit.jupiter.api.Test;
 
@@ -26,13 +29,17 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
  *
  * <b>Positive Tests:</b>
  * <ul>
- *   <li>ANNOUNCE_ACK packets set the sensor node id on the client.</li>
+ *   <li>ANNOUNCE_ACK packets set the sensor node id on the client and start heartbeats.</li>
+ *   <li>The HEARTBEAT states the report interval configured on the client.</li>
+ *   <li>ANNOUNCE_ACK packets store the resume token on the client.</li>
  *   <li>COMMAND packets with actuator updates change actuator target values and send an ACK.</li>
  * </ul>
  *
  * <b>Negative Tests:</b>
  * <ul>
  *   <li>COMMAND packets with missing actuators field result in an ERROR response.</li>
+ *   <li>COMMAND packets naming an unknown actuator are acknowledged with status 0.</li>
+ *   <li>A retried COMMAND with an already received Message ID is not applied again.</li>
  * </ul>
  */
 public class PacketHandlerTest {
@@ -65,7 +72,64 @@ public class PacketHandlerTest {
 
     // Assert
     assertEquals(expectedId, client.lastSetId);
-    assertEquals(0, client.sentCount);
+    assertEquals(1, client.sentCount);
+    assertEquals(MessageTypes.HEARTBEAT, client.lastSentPacket.getHeader().getMessageType());
+    assertEquals(expectedId, client.lastSentPacket.getHeader().getSourceId());
+  }
+
+  /**
+   * Verifies that the HEARTBEAT sent after ANNOUNCE_ACK states the interval the
+   * node actually reports at, here a slower one than the default.
+   */
+  @Test
+  void handle_announceAck_heartbeatStatesReportInterval_positive() {
+    // Arrange
+    FakeSensorNodeContext client = new FakeSensorNodeContext(null);
+    int interval = 10 * SimulationLoop.REPORT_INTERVAL_MILLIS;
+    client.setReportIntervalMillis(interval);
+    Header header = new Header(
+      new byte[]{'S', 'F', 'P'},
+      (byte) 1,
+      MessageTypes.ANNOUNCE_ACK,
+      1,
+      42,
+      0,
+      UUID.randomUUID()
+    );
+    SmartFarmingProtocol packet = new SmartFarmingProtocol(header, new AnnounceAckBody(5, 1));
+
+    // Act
+    PacketHandler.handle(client, packet);
+
+    // Assert
+    assertEquals(MessageTypes.HEARTBEAT, client.lastSentPacket.getHeader().getMessageType());
+    assertEquals(interval, ((HeartbeatBody) client.lastSentPacket.getBody()).intervalMillis());
+  }
+
+  /**
+   * Verifies that the resume token of an ANNOUNCE_ACK is kept for the next reconnect.
+   */
+  @Test
+  void handle_announceAck_storesResumeToken_positive() {
+    // Arrange
+    FakeSensorNodeContext client = new FakeSensorNodeContext(null);
+    Header header = new Header(
+      new byte[]{'S', 'F', 'P'},
+      (byte) 1,
+      MessageTypes.ANNOUNCE_ACK,
+      1,
+      42,
+      0,
+      UUID.randomUUID()
+    );
+    SmartFarmingProtocol packet =
+        new SmartFarmingProtocol(header, new AnnounceAckBody(5, 1, "resume-me"));
+
+    // Act
+    PacketHandler.handle(client, packet);
+
+    // Assert
+    assertEquals("resume-me", client.getResumeToken());
   }
 
   /**
@@ -116,6 +180,35 @@ public class PacketHandlerTest {
     assertNotNull(client.lastSentPacket);
     Header resHeader = client.lastSentPacket.getHeader();
     assertEquals(MessageTypes.COMMAND_ACK, resHeader.getMessageType());
+    assertEquals(202, resHeader.getSourceId());
+    assertEquals(101, resHeader.getTargetId());
+    assertEquals(CommandAckBody.STATUS_OK,
+        ((CommandAckBody) client.lastSentPacket.getBody()).status());
+  }
+
+  /**
+   * Verifies that parts naming the same actuator in different case are
+   * applied latest-wins, like names matching the actuator.
+   */
+  @Test
+  void handle_commandSameActuatorDifferentCase_latestWins_positive() {
+    // Arrange
+    Actuator fan = new Actuator(ActuatorType.FAN, 0.0, 100.0);
+    SensorNode node = new SensorNode(new ArrayList<Sensor>(), List.of(fan), false, false);
+    FakeSensorNodeContext client = new FakeSensorNodeContext(node);
+    Header header = new Header(new byte[]{'S', 'F', 'P'}, (byte) 1, MessageTypes.COMMAND,
+      101, 202, 0, UUID.randomUUID());
+    List<CommandPart> commandParts = List.of(
+      new CommandPart("Fan", 60.0), new CommandPart("FAN", 20.0), new CommandPart("Fan", 40.0));
+
+    // Act
+    PacketHandler.handle(client, new SmartFarmingProtocol(header,
+        new CommandBody(58, commandParts)));
+
+    // Assert
+    assertEquals(40.0, fan.getTargetValue());
+    assertEquals(CommandAckBody.STATUS_OK,
+        ((CommandAckBody) client.lastSentPacket.getBody()).status());
   }
 
   // --------------------------- NEGATIVE TESTS ---------------------------------- //
@@ -156,6 +249,86 @@ public class PacketHandlerTest {
     assertTrue(responseBody instanceof ErrorBody);
   }
 
+  /**
+   * Verifies that a COMMAND naming an unknown actuator is acknowledged as failed,
+   * while the known actuators in it are still updated.
+   */
+  @Test
+  void handle_commandUnknownActuator_acksFailure_negative() {
+    // Arrange
+    Actuator fan = new Actuator(ActuatorType.FAN, 0.0, 100.0);
+    List<Actuator> actuators = new ArrayList<Actuator>();
+    actuators.add(fan);
+    SensorNode node = new SensorNode(new ArrayList<Sensor>(), actuators, false, false);
+    FakeSensorNodeContext client = new FakeSensorNodeContext(node);
+
+    Header header = new Header(
+      new byte[]{'S', 'F', 'P'},
+      (byte) 1,
+      MessageTypes.COMMAND,
+      101,
+      202,
+      0,
+      UUID.randomUUID()
+    );
+
+    List<CommandPart> commandParts = new ArrayList<CommandPart>();
+    commandParts.add(new CommandPart("Sprinkler", 1.0));
+    commandParts.add(new CommandPart("Fan", 30.0));
+    SmartFarmingProtocol packet = new SmartFarmingProtocol(header,
+        new CommandBody(56, commandParts));
+
+    // Act
+    PacketHandler.handle(client, packet);
+
+    // Assert
+    assertEquals(30.0, fan.getTargetValue());
+    assertEquals(1, client.sentCount);
+    assertEquals(MessageTypes.COMMAND_ACK, client.lastSentPacket.getHeader().getMessageType());
+    CommandAckBody ack = (CommandAckBody) client.lastSentPacket.getBody();
+    assertEquals(56, ack.requestId());
+    assertEquals(0, ack.status());
+    assertTrue(ack.message().contains("Sprinkler"));
+  }
+
+  /**
+   * Verifies that a COMMAND delivered twice with the same Message ID is
+   * applied and acknowledged only once.
+   */
+  @Test
+  void handle_duplicateCommand_ignored_negative() {
+    // Arrange
+    Actuator fan = new Actuator(ActuatorType.FAN, 0.0, 100.0);
+    List<Actuator> actuators = new ArrayList<Actuator>();
+    actuators.add(fan);
+    SensorNode node = new SensorNode(new ArrayList<Sensor>(), actuators, false, false);
+    FakeSensorNodeContext client = new FakeSensorNodeContext(node);
+
+    Header header = new Header(
+      new byte[]{'S', 'F', 'P'},
+      (byte) 1,
+      MessageTypes.COMMAND,
+      101,
+      202,
+      0,
+      UUID.randomUUID()
+    );
+    List<CommandPart> commandParts = new ArrayList<CommandPart>();
+    commandParts.add(new CommandPart("Fan", 30.0));
+    SmartFarmingProtocol packet = new SmartFarmingProtocol(header,
+        new CommandBody(57, commandParts));
+    PacketHandler.handle(client, packet);
+    fan.act(10.0);
+
+    // Act
+    PacketHandler.handle(client, packet);
+
+    // Assert
+    assertEquals(10.0, fan.getTargetValue());
+    assertEquals(1, client.sentCount);
+    assertEquals(1, client.getMessageIds().hits());
+  }
+
   // --------------------------- HELPER FAKE CONTEXT ----------------------------- //
 
   /**
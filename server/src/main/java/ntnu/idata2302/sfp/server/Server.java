@@ -6,24 +6,43 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.Socket;
+import java.net.SocketException;
+import java.nio.file.Path;
 import java.security.KeyStore;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import javax.net.ssl.KeyManagerFactory;
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLServerSocket;
 import javax.net.ssl.SSLServerSocketFactory;
+import javax.net.ssl.SSLSessionContext;
 import javax.net.ssl.SSLSocket;
 import javax.net.ssl.TrustManagerFactory;
 import ntnu.idata2302.sfp.library.SmartFarmingProtocol;
+import ntnu.idata2302.sfp.library.body.error.ErrorBody;
 import ntnu.idata2302.sfp.library.header.Header;
 import ntnu.idata2302.sfp.library.header.MessageTypes;
+import ntnu.idata2302.sfp.server.factory.HeaderFactory;
+import ntnu.idata2302.sfp.server.net.IngressLimiter;
 import ntnu.idata2302.sfp.server.net.MessageDispatcher;
 import ntnu.idata2302.sfp.server.net.ServerContext;
+import ntnu.idata2302.sfp.server.net.handlers.AggregateQueryHandler;
 import ntnu.idata2302.sfp.server.net.handlers.AnnounceHandler;
 import ntnu.idata2302.sfp.server.net.handlers.CapabilitiesHandler;
 import ntnu.idata2302.sfp.server.net.handlers.DataReportHandler;
+import ntnu.idata2302.sfp.server.net.handlers.DataRequestHandler;
 import ntnu.idata2302.sfp.server.net.handlers.ForwardPacketHandler;
+import ntnu.idata2302.sfp.server.net.handlers.GroupAssignHandler;
+import ntnu.idata2302.sfp.server.net.handlers.GroupCommandHandler;
+import ntnu.idata2302.sfp.server.net.handlers.HeartbeatHandler;
+import ntnu.idata2302.sfp.server.net.handlers.HistoryQueryHandler;
 import ntnu.idata2302.sfp.server.net.handlers.SubscribeHandler;
 import ntnu.idata2302.sfp.server.net.handlers.UnSubscribeHandler;
+import ntnu.idata2302.sfp.server.rules.Rule;
+import ntnu.idata2302.sfp.server.rules.RulesEngine;
+import ntnu.idata2302.sfp.server.tsdb.TimeSeriesStore;
 
 
 
@@ -31,28 +50,53 @@ import ntnu.idata2302.sfp.server.net.handlers.UnSubscribeHandler;
  * TLS-enabled example server for the Smart Farming Protocol (SFP).
  *
  * <p>This class initializes a TLS context using a keystore stored in the
- * resources, creates an SSL server socket, accepts client connections and
- * spawns a dedicated thread to handle each client. Incoming SFP packets are
+ * resources, creates an SSL server socket, accepts client connections,
+ * completes their TLS handshakes on a bounded pool and spawns a dedicated
+ * thread to handle each client. Incoming SFP packets are
  * read from the client stream, parsed into {@link SmartFarmingProtocol}
  * objects and dispatched to registered handlers using {@link MessageDispatcher}.</p>
  *
+ * <p>{@link #open(int, String, char[])} and {@link #serve(SSLServerSocket)} are
+ * public so that the broker can also be started in-process, for example by the
+ * performance regression suite.</p>
+ *
  * <p>The server is intended for example/demo use: it logs status and errors
  * to standard output and performs minimal validation of client input.</p>
  */
 public class Server {
 
   private static final int PORT = 5050;
+
+  // TLS handshakes run on a bounded pool so a slow client cannot stall the accept loop
+  private static final int HANDSHAKE_THREADS =
+      Math.max(32, Runtime.getRuntime().availableProcessors() * 4);
+  private static final int HANDSHAKE_QUEUE = 1024;
+  private static final int HANDSHAKE_TIMEOUT_MILLIS = 10_000;
+
+  // Server-side TLS session cache used to resume sessions of reconnecting clients
+  private static final int SESSION_CACHE_SIZE = 20_000;
+  private static final int SESSION_TIMEOUT_SECONDS = 24 * 60 * 60;
+
+  private static final ThreadPoolExecutor handshakePool = createHandshakePool();
   private static SSLContext sslContext;
   private static final MessageDispatcher dispatcher = new MessageDispatcher();
   private static final ServerContext context = new ServerContext();
+  private static volatile IngressLimiter.Policy ingressPolicy =
+      IngressLimiter.Policy.fromSystemProperties();
 
   static {
     // Register handlers for known message types at class load time.
     dispatcher.registerHandler(MessageTypes.DATA_REPORT, new DataReportHandler());
+    dispatcher.registerHandler(MessageTypes.DATA_REQUEST, new DataRequestHandler());
+    dispatcher.registerHandler(MessageTypes.HISTORY_QUERY, new HistoryQueryHandler());
+    dispatcher.registerHandler(MessageTypes.AGGREGATE_QUERY, new AggregateQueryHandler());
     dispatcher.registerHandler(MessageTypes.ANNOUNCE, new AnnounceHandler());
+    dispatcher.registerHandler(MessageTypes.HEARTBEAT, new HeartbeatHandler());
     dispatcher.registerHandler(MessageTypes.CAPABILITIES_QUERY, new CapabilitiesHandler());
     dispatcher.registerHandler(MessageTypes.SUBSCRIBE, new SubscribeHandler());
     dispatcher.registerHandler(MessageTypes.UNSUBSCRIBE, new UnSubscribeHandler());
+    dispatcher.registerHandler(MessageTypes.GROUP_ASSIGN, new GroupAssignHandler());
+    dispatcher.registerHandler(MessageTypes.GROUP_COMMAND, new GroupCommandHandler());
     dispatcher.registerHandler(MessageTypes.COMMAND, new ForwardPacketHandler());
     dispatcher.registerHandler(MessageTypes.COMMAND_ACK, new ForwardPacketHandler());
     dispatcher.registerHandler(MessageTypes.ERROR, new ForwardPacketHandler());
@@ -61,28 +105,28 @@ public class Server {
   /**
    * Application entry point.
    *
-   * <p>This method initializes the TLS context, creates an {@link SSLServerSocket}
-   * bound to the configured {@link #PORT}, and enters an acceptance loop. For each
-   * accepted client socket a new thread is started which invokes {@link #handleClient(Socket)}.</p>
+   * <p>This method opens a TLS server socket bound to the configured {@link #PORT}
+   * using the bundled {@code server.keystore} and enters the acceptance loop
+   * in {@link #serve(SSLServerSocket)}.</p>
+   *
+   * <p>When the system property {@code sfp.tsdb.dir} is set, every sensor
+   * reading is also persisted to a {@link TimeSeriesStore} in that directory.
+   * When {@code sfp.rules.file} is set, the actuation rules in that file are
+   * loaded into the {@link RulesEngine}.</p>
    *
    * @param args command line arguments (ignored)
    */
   public static void main(String[] args) {
 
     try {
-      initializeTLS();
+      openTimeSeriesStore();
+      loadRules();
 
-      SSLServerSocketFactory factory = sslContext.getServerSocketFactory();
-      SSLServerSocket serverSocket = (SSLServerSocket) factory.createServerSocket(PORT);
+      SSLServerSocket serverSocket = open(PORT, "server.keystore", "password".toCharArray());
 
       System.out.println("TLS Server running on port " + PORT);
 
-      while (true) {
-
-        SSLSocket clientSocket = (SSLSocket) serverSocket.accept();
-        clientSocket.startHandshake();
-        new Thread(() -> handleClient(clientSocket)).start();
-      }
+      serve(serverSocket);
 
     } catch (IOException e) {
       e.printStackTrace();
@@ -91,12 +135,176 @@ public class Server {
     }
   }
 
+  /**
+   * Open the persistent time-series store if one is configured and close it on shutdown.
+   *
+   * @throws IOException if the configured store cannot be opened
+   */
+  private static void openTimeSeriesStore() throws IOException {
+    TimeSeriesStore store = TimeSeriesStore.fromSystemProperties();
+    if (store == null) {
+      return;
+    }
+    context.setTimeSeriesStore(store);
+    Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+      try {
+        store.close();
+      } catch (IOException e) {
+        System.out.println("Failed to close time-series store: " + e.getMessage());
+      }
+    }, "TSDB-Shutdown"));
+    System.out.println("Recording sensor readings to " + System.getProperty("sfp.tsdb.dir"));
+  }
+
+  /**
+   * Load the actuation rules from the file named by the {@code sfp.rules.file}
+   * system property, if set.
+   *
+   * @throws IOException if the rules file cannot be read
+   */
+  private static void loadRules() throws IOException {
+    String file = System.getProperty("sfp.rules.file");
+    if (file == null || file.isBlank()) {
+      return;
+    }
+    for (Rule rule : RulesEngine.read(Path.of(file))) {
+      context.getRules().add(rule);
+    }
+    System.out.println("Loaded " + context.getRules().size() + " rules from " + file);
+  }
+
+  /**
+   * Initialize TLS from a keystore resource and bind a server socket.
+   *
+   * <p>Passing port {@code 0} binds an ephemeral port, which lets tests run the
+   * real server in-process; read the chosen port with
+   * {@link SSLServerSocket#getLocalPort()}.</p>
+   *
+   * @param port             the TCP port to bind, or {@code 0} for any free port
+   * @param keystoreResource classpath name of the JKS keystore holding the server key
+   * @param password         password of the keystore and the key
+   * @return the bound, not yet accepting, server socket
+   * @throws Exception if the keystore cannot be loaded or the port cannot be bound
+   */
+  public static SSLServerSocket open(int port, String keystoreResource, char[] password)
+      throws Exception {
+    initializeTLS(keystoreResource, password);
+
+    SSLServerSocketFactory factory = sslContext.getServerSocketFactory();
+    return (SSLServerSocket) factory.createServerSocket(port);
+  }
+
+  /**
+   * Accept clients until the server socket is closed.
+   *
+   * <p>The accept loop only hands sockets over: each TLS handshake runs on a
+   * bounded handshake pool with a read timeout, and a successfully handshaked
+   * client is then handled on its own thread by {@link #handleClient(Socket)}.
+   * When the handshake queue is full, new connections are dropped immediately
+   * instead of piling up.</p>
+   *
+   * <p>The ingress limits are read from the system properties, see
+   * {@link IngressLimiter.Policy#fromSystemProperties()}, when serving starts.</p>
+   *
+   * @param serverSocket the socket returned by {@link #open(int, String, char[])}
+   * @throws IOException if accepting fails for a reason other than the socket being closed
+   */
+  public static void serve(SSLServerSocket serverSocket) throws IOException {
+    serve(serverSocket, IngressLimiter.Policy.fromSystemProperties());
+  }
+
+  /**
+   * Accept clients until the server socket is closed, with the given ingress limits.
+   *
+   * @param serverSocket the socket returned by {@link #open(int, String, char[])}
+   * @param policy       the ingress limits per kind of node
+   * @throws IOException if accepting fails for a reason other than the socket being closed
+   * @see #serve(SSLServerSocket)
+   */
+  public static void serve(SSLServerSocket serverSocket, IngressLimiter.Policy policy)
+      throws IOException {
+    ingressPolicy = policy;
+    while (!serverSocket.isClosed()) {
+
+      SSLSocket clientSocket;
+      try {
+        clientSocket = (SSLSocket) serverSocket.accept();
+      } catch (SocketException e) {
+        if (serverSocket.isClosed()) {
+          return;
+        }
+        throw e;
+      }
+
+      try {
+        handshakePool.execute(() -> handshake(clientSocket));
+      } catch (RejectedExecutionException e) {
+        System.out.println("Handshake queue full, dropping "
+            + clientSocket.getInetAddress().getHostAddress());
+        clientSocket.close();
+      }
+    }
+  }
+
+  /**
+   * Complete the TLS handshake of an accepted client and start its handler thread.
+   *
+   * <p>Runs on the handshake pool. A client that does not finish the handshake
+   * within {@link #HANDSHAKE_TIMEOUT_MILLIS} is disconnected. Clients that
+   * present a session ticket from an earlier connection resume the session and
+   * skip the certificate exchange.</p>
+   *
+   * @param clientSocket the accepted socket
+   */
+  private static void handshake(SSLSocket clientSocket) {
+    try {
+      // Frames are small and latency-sensitive; don't let Nagle hold them back
+      clientSocket.setTcpNoDelay(true);
+      clientSocket.setSoTimeout(HANDSHAKE_TIMEOUT_MILLIS);
+      clientSocket.startHandshake();
+      clientSocket.setSoTimeout(0);
+    } catch (IOException e) {
+      System.out.println("TLS handshake failed: " + e.getMessage());
+      try {
+        clientSocket.close();
+      } catch (IOException ignored) {
+        // Socket already closed or closing; safe to ignore.
+      }
+      return;
+    }
+    new Thread(() -> handleClient(clientSocket)).start();
+  }
+
+  /**
+   * Create the bounded pool running TLS handshakes.
+   *
+   * @return the handshake pool; idle threads time out
+   */
+  private static ThreadPoolExecutor createHandshakePool() {
+    ThreadPoolExecutor pool = new ThreadPoolExecutor(
+        HANDSHAKE_THREADS,
+        HANDSHAKE_THREADS,
+        30, TimeUnit.SECONDS,
+        new ArrayBlockingQueue<>(HANDSHAKE_QUEUE),
+        r -> {
+          Thread t = new Thread(r, "TLS-Handshake");
+          t.setDaemon(true);
+          return t;
+        });
+    pool.allowCoreThreadTimeOut(true);
+    return pool;
+  }
+
   /**
    * Handle a connected client socket.
    *
    * <p>This method runs on a dedicated thread for a single client. It reads
    * a full SFP header (fixed size {@link Header#HEADER_SIZE}), validates the
-   * protocol prefix, reads the body according to the header payload length,
+   * protocol prefix, checks the frame against the connection's
+   * {@link IngressLimiter} for the kind of node its source registered as on
+   * this connection (skipping the body of a throttled frame, and closing
+   * the connection of a persistent offender), reads the body according to the
+   * header payload length,
    * constructs a {@link SmartFarmingProtocol} message and dispatches it using
    * {@link MessageDispatcher} together with the provided {@link ServerContext}.</p>
    *
@@ -110,6 +318,7 @@ public class Server {
     System.out.println(
         "New connection from " + socket.getInetAddress().getHostAddress() + ":" + socket.getPort());
 
+    IngressLimiter limiter = new IngressLimiter(ingressPolicy);
     try (DataInputStream dis = new DataInputStream(socket.getInputStream())) {
       while (true) {
         // Read full header
@@ -131,6 +340,27 @@ public class Server {
 
         // Read body based on header payload length
         int bodyLength = header.getPayloadLength();
+
+        // Enforce the ingress limits before spending anything on the body
+        IngressLimiter.NodeKind kind =
+            IngressLimiter.NodeKind.of(context, header.getSourceId(), socket);
+        IngressLimiter.Verdict verdict = limiter.check(header, kind, System.nanoTime());
+        if (verdict != IngressLimiter.Verdict.ACCEPT) {
+          dis.skipNBytes(bodyLength);
+          if (verdict == IngressLimiter.Verdict.DISCONNECT) {
+            System.out.println("Disconnecting " + socket.getInetAddress().getHostAddress()
+                + " after " + limiter.dropped() + " throttled frames.");
+            break;
+          }
+          if (verdict == IngressLimiter.Verdict.THROTTLE) {
+            context.sendTo(socket, new SmartFarmingProtocol(
+                HeaderFactory.serverHeader(MessageTypes.ERROR, header.getSourceId()),
+                new ErrorBody(IngressLimiter.ERROR_THROTTLED,
+                    "THROTTLED: ingress rate limit exceeded, frames are being dropped")));
+          }
+          continue;
+        }
+
         byte[] bodyBytes = dis.readNBytes(bodyLength);
 
         // Parse full SFP message
@@ -162,34 +392,41 @@ public class Server {
   /**
    * Initialize TLS context used by the server.
    *
-   * <p>The method loads a JKS keystore named `server.keystore` from the classpath
-   * resources, initializes {@link KeyManagerFactory} and {@link TrustManagerFactory}
-   * and sets up the {@link SSLContext} instance used to create server sockets.</p>
+   * <p>The method loads a JKS keystore from the classpath resources, initializes
+   * {@link KeyManagerFactory} and {@link TrustManagerFactory} and sets up the
+   * {@link SSLContext} instance used to create server sockets.</p>
    *
+   * @param keystoreResource classpath name of the keystore
+   * @param password         password of the keystore and the key
    * @throws Exception if the keystore cannot be found, read, or if the TLS
    *                   context initialization fails for any reason
    */
-  private static void initializeTLS() throws Exception {
+  private static void initializeTLS(String keystoreResource, char[] password) throws Exception {
 
     KeyStore keyStore = KeyStore.getInstance("JKS");
 
     // Since this won't be hosted, we can just keep our keystore in resources
     InputStream is = Server.class.getClassLoader()
-        .getResourceAsStream("server.keystore");
+        .getResourceAsStream(keystoreResource);
 
     if (is == null) {
-      throw new FileNotFoundException("server.keystore not found in resources");
+      throw new FileNotFoundException(keystoreResource + " not found in resources");
     }
 
-    keyStore.load(is, "password".toCharArray());
+    keyStore.load(is, password);
 
     KeyManagerFactory kmf = KeyManagerFactory.getInstance("SunX509");
-    kmf.init(keyStore, "password".toCharArray());
+    kmf.init(keyStore, password);
 
     TrustManagerFactory tmf = TrustManagerFactory.getInstance("SunX509");
     tmf.init(keyStore);
 
     sslContext = SSLContext.getInstance("TLS");
     sslContext.init(kmf.getKeyManagers(), tmf.getTrustManagers(), null);
+
+    // Keep sessions around so reconnecting clients can resume them (TLS 1.3 session tickets)
+    SSLSessionContext sessions = sslContext.getServerSessionContext();
+    sessions.setSessionCacheSize(SESSION_CACHE_SIZE);
+    sessions.setSessionTimeout(SESSION_TIMEOUT_SECONDS);
   }
 }
\ No newline at end of file
@@ -0,0 +1,50 @@
+package ntnu.idata2302.sfp.server.aggregate;
+
+/**
+ * Summary of the samples in a window.
+ *
+ * @param count number of samples
+ * @param min   smallest value; {@link Double#NaN} if there are no samples
+ * @param max   largest value; {@link Double#NaN} if there are no samples
+ * @param sum   sum of the values
+ */
+public record Aggregate(long count, double min, double max, double sum) {
+
+  /** Summary of a window without samples. */
+  public static final Aggregate EMPTY = new Aggregate(0, Double.NaN, Double.NaN, 0);
+
+  /**
+   * Return the mean value.
+   *
+   * @return the mean, or {@link Double#NaN} if there are no samples
+   */
+  public double avg() {
+    return count == 0 ? Double.NaN : sum / count;
+  }
+
+  /**
+   * Return whether the window held no samples.
+   *
+   * @return {@code true} if {@link #count()} is zero
+   */
+  public boolean isEmpty() {
+    return count == 0;
+  }
+
+  /**
+   * Combine two summaries, for example of two windows or two nodes.
+   *
+   * @param other the other summary
+   * @return the combined summary
+   */
+  public Aggregate merge(Aggregate other) {
+    if (other.isEmpty()) {
+      return this;
+    }
+    if (isEmpty()) {
+      return other;
+    }
+    return new Aggregate(count + other.count,
+        Math.min(min, other.min), Math.max(max, other.max), sum + other.sum);
+  }
+}
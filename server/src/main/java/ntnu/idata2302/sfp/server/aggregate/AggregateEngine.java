@@ -0,0 +1,209 @@
+package ntnu.idata2302.sfp.server.aggregate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import ntnu.idata2302.sfp.library.body.data.DataReportBody;
+
+/**
+ * Streaming min/max/avg aggregates of every sensor reported to the broker.
+ *
+ * <p>Each (node, sensor) series keeps one {@link Window} per period. Windows
+ * for the configured default periods exist from the first sample on; any
+ * other period is added the first time it is asked for and fills from then
+ * on, up to {@link #MAX_PERIODS_PER_SERIES} periods per series. Every window
+ * uses fixed memory, independent of the report rate.</p>
+ *
+ * <p>The default periods are {@link #DEFAULT_PERIODS} and can be overridden
+ * with the comma-separated system property {@code sfp.aggregate.periods}.</p>
+ */
+public class AggregateEngine {
+
+  /** Periods maintained for every series unless configured otherwise. */
+  public static final List<String> DEFAULT_PERIODS = List.of("1h", "24h", "hour", "day");
+
+  /** Aggregate types understood in requests. */
+  public static final List<String> TYPES = List.of("min", "max", "avg");
+
+  /** Upper bound on windows per series, so requests cannot grow memory without limit. */
+  public static final int MAX_PERIODS_PER_SERIES = 8;
+
+  private final Map<Integer, Map<String, Series>> nodes = new ConcurrentHashMap<>();
+  private final List<Period> defaults;
+
+  /**
+   * Create an engine maintaining {@link #DEFAULT_PERIODS}.
+   */
+  public AggregateEngine() {
+    this(DEFAULT_PERIODS);
+  }
+
+  /**
+   * Create an engine maintaining the given periods.
+   *
+   * @param periods period names, see {@link Period#parse(String)}
+   * @throws IllegalArgumentException if a period is invalid
+   */
+  public AggregateEngine(List<String> periods) {
+    List<Period> parsed = new ArrayList<>();
+    for (String period : periods) {
+      parsed.add(Period.parse(period.trim()));
+    }
+    this.defaults = List.copyOf(parsed);
+  }
+
+  /**
+   * Create an engine configured from the {@code sfp.aggregate.periods} system property.
+   *
+   * @return a new engine
+   */
+  public static AggregateEngine fromSystemProperties() {
+    String periods = System.getProperty("sfp.aggregate.periods");
+    if (periods == null || periods.isBlank()) {
+      return new AggregateEngine();
+    }
+    return new AggregateEngine(List.of(periods.split(",")));
+  }
+
+  /**
+   * Return the periods maintained for every series.
+   *
+   * @return the default periods
+   */
+  public List<Period> defaultPeriods() {
+    return defaults;
+  }
+
+  /**
+   * Add the sensor readings of a DATA_REPORT.
+   *
+   * @param sensorNodeId   the id of the reporting node
+   * @param report         the received report; readings without a value are skipped
+   * @param receivedMillis the time the broker received the report
+   */
+  public void record(int sensorNodeId, DataReportBody report, long receivedMillis) {
+    if (report.sensors() == null) {
+      return;
+    }
+    Map<String, Series> node = null;
+    for (DataReportBody.SensorReading reading : report.sensors()) {
+      if (reading.id() == null || reading.value() == null) {
+        continue;
+      }
+      if (node == null) {
+        node = nodes.computeIfAbsent(sensorNodeId, id -> new ConcurrentHashMap<>());
+      }
+      node.computeIfAbsent(reading.id(), id -> new Series(defaults))
+          .add(receivedMillis, reading.value());
+    }
+  }
+
+  /**
+   * Summarize one sensor over a period.
+   *
+   * @param sensorNodeId the node id
+   * @param sensorId     the sensor id
+   * @param period       the period
+   * @param nowMillis    the current time
+   * @return the summary; {@link Aggregate#EMPTY} if the sensor has not reported
+   *         or the period was not maintained yet
+   */
+  public Aggregate aggregate(int sensorNodeId, String sensorId, Period period, long nowMillis) {
+    Map<String, Series> node = nodes.get(sensorNodeId);
+    Series series = node == null ? null : node.get(sensorId);
+    return series == null ? Aggregate.EMPTY : series.snapshot(period, nowMillis);
+  }
+
+  /**
+   * Return the sensors a node has reported values for.
+   *
+   * @param sensorNodeId the node id
+   * @return the sensor ids; empty if the node is unknown
+   */
+  public Set<String> sensors(int sensorNodeId) {
+    Map<String, Series> node = nodes.get(sensorNodeId);
+    return node == null ? Set.of() : Set.copyOf(node.keySet());
+  }
+
+  /**
+   * Build wire aggregates for a node.
+   *
+   * @param sensorNodeId the node id
+   * @param metrics      sensors to include; {@code null} for all
+   * @param periods      periods to include
+   * @param types        aggregate types to fill in, from {@link #TYPES}; {@code null} for all
+   * @param nowMillis    the current time
+   * @return one value per sensor and period with samples, in request order
+   */
+  public List<DataReportBody.AggregateValue> values(int sensorNodeId, List<String> metrics,
+                                                    List<Period> periods, List<String> types,
+                                                    long nowMillis) {
+    List<DataReportBody.AggregateValue> values = new ArrayList<>();
+    Iterable<String> sensors = metrics != null ? metrics : sensors(sensorNodeId);
+    for (String sensorId : sensors) {
+      for (Period period : periods) {
+        Aggregate aggregate = aggregate(sensorNodeId, sensorId, period, nowMillis);
+        if (aggregate.isEmpty()) {
+          continue;
+        }
+        values.add(new DataReportBody.AggregateValue(sensorId, period.name(),
+            wants(types, "min") ? aggregate.min() : null,
+            wants(types, "max") ? aggregate.max() : null,
+            wants(types, "avg") ? aggregate.avg() : null));
+      }
+    }
+    return values;
+  }
+
+  /**
+   * Forget the aggregates of a node.
+   *
+   * @param sensorNodeId the node id
+   */
+  public void remove(int sensorNodeId) {
+    nodes.remove(sensorNodeId);
+  }
+
+  private static boolean wants(List<String> types, String type) {
+    return types == null || types.contains(type);
+  }
+
+  /**
+   * The windows of one sensor.
+   */
+  private static final class Series {
+    private final Map<Period, Window> windows = new LinkedHashMap<>();
+
+    Series(List<Period> periods) {
+      for (Period period : periods) {
+        windows.put(period, newWindow(period));
+      }
+    }
+
+    synchronized void add(long timeMillis, double value) {
+      for (Window window : windows.values()) {
+        window.add(timeMillis, value);
+      }
+    }
+
+    synchronized Aggregate snapshot(Period period, long nowMillis) {
+      Window window = windows.get(period);
+      if (window == null) {
+        if (windows.size() < MAX_PERIODS_PER_SERIES) {
+          windows.put(period, newWindow(period));
+        }
+        return Aggregate.EMPTY;
+      }
+      return window.snapshot(nowMillis);
+    }
+
+    private static Window newWindow(Period period) {
+      return period.tumbling()
+          ? new TumblingWindow(period.millis())
+          : new SlidingWindow(period.millis());
+    }
+  }
+}
@@ -0,0 +1,124 @@
+package ntnu.idata2302.sfp.server.aggregate;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Push queries that control panels have asked to be re-evaluated at a fixed interval.
+ *
+ * <p>A query is identified by the control panel that started it and the
+ * request id it chose. All queries share one daemon timer thread, created on
+ * first use; a query that throws is logged and keeps running. Starting a
+ * query under an id that is already running replaces it.</p>
+ */
+public class ContinuousQueries {
+
+  /** Shortest push interval accepted, in milliseconds. */
+  public static final long MIN_INTERVAL_MILLIS = 1000;
+
+  /** Upper bound on running queries per control panel. */
+  public static final int MAX_QUERIES_PER_PANEL = 16;
+
+  private final Map<Long, ScheduledFuture<?>> running = new ConcurrentHashMap<>();
+  private ScheduledThreadPoolExecutor timer;
+
+  /**
+   * Run a task at a fixed interval until it is cancelled.
+   *
+   * @param cpId           the control panel owning the query
+   * @param requestId      the request id chosen by the control panel
+   * @param intervalMillis the interval, raised to {@link #MIN_INTERVAL_MILLIS} if shorter
+   * @param task           the evaluation to run, first after one interval
+   * @return {@code false} if the control panel already runs
+   *         {@link #MAX_QUERIES_PER_PANEL} other queries
+   */
+  public synchronized boolean start(int cpId, int requestId, long intervalMillis,
+                                    Runnable task) {
+    long key = key(cpId, requestId);
+    if (!running.containsKey(key) && countFor(cpId) >= MAX_QUERIES_PER_PANEL) {
+      return false;
+    }
+    long interval = Math.max(MIN_INTERVAL_MILLIS, intervalMillis);
+    ScheduledFuture<?> future = timer().scheduleAtFixedRate(() -> {
+      try {
+        task.run();
+      } catch (RuntimeException e) {
+        System.out.println("Push query " + requestId + " of " + cpId + " failed: " + e);
+      }
+    }, interval, interval, TimeUnit.MILLISECONDS);
+    ScheduledFuture<?> previous = running.put(key, future);
+    if (previous != null) {
+      previous.cancel(false);
+    }
+    return true;
+  }
+
+  /**
+   * Stop one query.
+   *
+   * @param cpId      the control panel owning the query
+   * @param requestId the request id of the query
+   * @return {@code true} if the query was running
+   */
+  public boolean cancel(int cpId, int requestId) {
+    ScheduledFuture<?> future = running.remove(key(cpId, requestId));
+    if (future == null) {
+      return false;
+    }
+    future.cancel(false);
+    return true;
+  }
+
+  /**
+   * Stop every query of a control panel, for example when it disconnects.
+   *
+   * @param cpId the control panel id
+   */
+  public void cancelAll(int cpId) {
+    running.entrySet().removeIf(entry -> {
+      if ((int) (entry.getKey() >>> 32) != cpId) {
+        return false;
+      }
+      entry.getValue().cancel(false);
+      return true;
+    });
+  }
+
+  /**
+   * Return the number of running queries.
+   *
+   * @return the number of queries
+   */
+  public int size() {
+    return running.size();
+  }
+
+  private int countFor(int cpId) {
+    int count = 0;
+    for (long key : running.keySet()) {
+      if ((int) (key >>> 32) == cpId) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  private synchronized ScheduledThreadPoolExecutor timer() {
+    if (timer == null) {
+      timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+        Thread thread = new Thread(runnable, "sfp-push-queries");
+        thread.setDaemon(true);
+        return thread;
+      });
+      timer.setRemoveOnCancelPolicy(true);
+    }
+    return timer;
+  }
+
+  private static long key(int cpId, int requestId) {
+    return ((long) cpId << 32) | (requestId & 0xFFFFFFFFL);
+  }
+}
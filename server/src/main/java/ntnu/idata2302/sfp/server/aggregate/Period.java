@@ -0,0 +1,68 @@
+package ntnu.idata2302.sfp.server.aggregate;
+
+import java.util.Locale;
+
+/**
+ * An aggregation period as named on the wire.
+ *
+ * <p>Two kinds of names are understood:</p>
+ * <ul>
+ *   <li>A duration such as {@code "30s"}, {@code "15m"}, {@code "1h"}, {@code "24h"}
+ *       or {@code "7d"}: a sliding window covering that much time up to now.</li>
+ *   <li>A calendar unit {@code "minute"}, {@code "hour"} or {@code "day"}: a
+ *       tumbling window covering the current minute, hour or day (UTC) so far.</li>
+ * </ul>
+ *
+ * @param name     the period as given on the wire
+ * @param millis   the length of the period
+ * @param tumbling whether the window restarts at each period boundary
+ */
+public record Period(String name, long millis, boolean tumbling) {
+
+  private static final long SECOND = 1000;
+  private static final long MINUTE = 60 * SECOND;
+  private static final long HOUR = 60 * MINUTE;
+  private static final long DAY = 24 * HOUR;
+
+  /**
+   * Parse a period name.
+   *
+   * @param name the period, for example {@code "1h"} or {@code "day"}
+   * @return the period
+   * @throws IllegalArgumentException if the name is not a valid period
+   */
+  public static Period parse(String name) {
+    if (name == null || name.isBlank()) {
+      throw new IllegalArgumentException("Empty period");
+    }
+    switch (name.toLowerCase(Locale.ROOT)) {
+      case "minute":
+        return new Period(name, MINUTE, true);
+      case "hour":
+        return new Period(name, HOUR, true);
+      case "day":
+        return new Period(name, DAY, true);
+      default:
+        break;
+    }
+
+    char unit = Character.toLowerCase(name.charAt(name.length() - 1));
+    long unitMillis = switch (unit) {
+      case 's' -> SECOND;
+      case 'm' -> MINUTE;
+      case 'h' -> HOUR;
+      case 'd' -> DAY;
+      default -> throw new IllegalArgumentException("Unknown period unit in " + name);
+    };
+    long amount;
+    try {
+      amount = Long.parseLong(name.substring(0, name.length() - 1));
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Invalid period " + name, e);
+    }
+    if (amount <= 0 || amount > 366 * DAY / unitMillis) {
+      throw new IllegalArgumentException("Period out of range: " + name);
+    }
+    return new Period(name, amount * unitMillis, false);
+  }
+}
@@ -0,0 +1,165 @@
+package ntnu.idata2302.sfp.server.aggregate;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+/**
+ * Window over the last period up to now, in fixed memory.
+ *
+ * <p>The period is split into {@link #BUCKETS} buckets, each holding the
+ * min, max, sum and count of its samples. The window slides a bucket at a
+ * time, so it covers the period to within one bucket (1/60 of the period).</p>
+ *
+ * <ul>
+ *   <li>Sum and count of the closed buckets are kept as running totals: a
+ *       closing bucket is added, an expiring one subtracted.</li>
+ *   <li>Min and max use monotonic deques of bucket numbers. The min deque
+ *       holds buckets with increasing minimums: a closing bucket first drops
+ *       every bucket with a larger or equal minimum, since those can never be
+ *       the minimum again while it is in the window. The front is therefore
+ *       the window minimum, and expired buckets fall off the front.</li>
+ * </ul>
+ *
+ * <p>Every operation is amortized O(1).</p>
+ */
+final class SlidingWindow implements Window {
+
+  /** Number of buckets a period is split into. */
+  static final int BUCKETS = 60;
+
+  private static final long NONE = Long.MIN_VALUE;
+
+  private final long bucketMillis;
+  private final int buckets;
+
+  // Closed buckets, indexed by bucket number modulo the bucket count
+  private final long[] ids;
+  private final long[] counts;
+  private final double[] mins;
+  private final double[] maxs;
+  private final double[] sums;
+
+  private final Deque<Long> minBuckets = new ArrayDeque<>();
+  private final Deque<Long> maxBuckets = new ArrayDeque<>();
+  private long closedCount;
+  private double closedSum;
+
+  private long current = NONE;
+  private long currentCount;
+  private double currentMin;
+  private double currentMax;
+  private double currentSum;
+
+  SlidingWindow(long periodMillis) {
+    this.buckets = (int) Math.min(BUCKETS, periodMillis);
+    this.bucketMillis = (periodMillis + buckets - 1) / buckets;
+    this.ids = new long[buckets];
+    this.counts = new long[buckets];
+    this.mins = new double[buckets];
+    this.maxs = new double[buckets];
+    this.sums = new double[buckets];
+    Arrays.fill(ids, NONE);
+  }
+
+  @Override
+  public void add(long timeMillis, double value) {
+    advance(Math.floorDiv(timeMillis, bucketMillis));
+    if (currentCount == 0) {
+      currentMin = value;
+      currentMax = value;
+    } else {
+      currentMin = Math.min(currentMin, value);
+      currentMax = Math.max(currentMax, value);
+    }
+    currentSum += value;
+    currentCount++;
+  }
+
+  @Override
+  public Aggregate snapshot(long nowMillis) {
+    advance(Math.floorDiv(nowMillis, bucketMillis));
+    long count = closedCount + currentCount;
+    if (count == 0) {
+      return Aggregate.EMPTY;
+    }
+
+    double min = currentCount > 0 ? currentMin : Double.POSITIVE_INFINITY;
+    double max = currentCount > 0 ? currentMax : Double.NEGATIVE_INFINITY;
+    if (!minBuckets.isEmpty()) {
+      min = Math.min(min, mins[slot(minBuckets.peekFirst())]);
+      max = Math.max(max, maxs[slot(maxBuckets.peekFirst())]);
+    }
+    return new Aggregate(count, min, max, closedSum + currentSum);
+  }
+
+  /**
+   * Close the current bucket and expire old ones when time reaches {@code bucket}.
+   * Earlier buckets are ignored, so late samples count towards the current one.
+   */
+  private void advance(long bucket) {
+    if (bucket <= current) {
+      return;
+    }
+    if (current != NONE && currentCount > 0) {
+      close();
+    }
+
+    long oldest = bucket - buckets + 1;
+    if (current == NONE || bucket - current >= buckets) {
+      clearClosed();
+    } else {
+      for (long id = current - buckets + 1; id < oldest; id++) {
+        int slot = slot(id);
+        if (ids[slot] == id) {
+          closedCount -= counts[slot];
+          closedSum -= sums[slot];
+          ids[slot] = NONE;
+        }
+      }
+      while (!minBuckets.isEmpty() && minBuckets.peekFirst() < oldest) {
+        minBuckets.pollFirst();
+      }
+      while (!maxBuckets.isEmpty() && maxBuckets.peekFirst() < oldest) {
+        maxBuckets.pollFirst();
+      }
+    }
+
+    current = bucket;
+    currentCount = 0;
+    currentSum = 0;
+  }
+
+  private void close() {
+    int slot = slot(current);
+    ids[slot] = current;
+    counts[slot] = currentCount;
+    mins[slot] = currentMin;
+    maxs[slot] = currentMax;
+    sums[slot] = currentSum;
+    closedCount += currentCount;
+    closedSum += currentSum;
+
+    while (!minBuckets.isEmpty() && mins[slot(minBuckets.peekLast())] >= currentMin) {
+      minBuckets.pollLast();
+    }
+    minBuckets.addLast(current);
+    while (!maxBuckets.isEmpty() && maxs[slot(maxBuckets.peekLast())] <= currentMax) {
+      maxBuckets.pollLast();
+    }
+    maxBuckets.addLast(current);
+  }
+
+  private void clearClosed() {
+    Arrays.fill(ids, NONE);
+    minBuckets.clear();
+    maxBuckets.clear();
+    closedCount = 0;
+    // Start from zero again so rounding errors of the running sum do not accumulate
+    closedSum = 0;
+  }
+
+  private int slot(long bucket) {
+    return (int) Math.floorMod(bucket, (long) buckets);
+  }
+}
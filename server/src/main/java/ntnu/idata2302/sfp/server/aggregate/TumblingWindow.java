@@ -0,0 +1,47 @@
+package ntnu.idata2302.sfp.server.aggregate;
+
+/**
+ * Window over the current period, aligned to multiples of its length since
+ * the epoch (so {@code "hour"} and {@code "day"} follow UTC boundaries).
+ * Holds four numbers regardless of the number of samples.
+ */
+final class TumblingWindow implements Window {
+
+  private final long periodMillis;
+  private long period = Long.MIN_VALUE;
+  private long count;
+  private double min;
+  private double max;
+  private double sum;
+
+  TumblingWindow(long periodMillis) {
+    this.periodMillis = periodMillis;
+  }
+
+  @Override
+  public void add(long timeMillis, double value) {
+    long p = Math.floorDiv(timeMillis, periodMillis);
+    if (p > period) {
+      period = p;
+      count = 0;
+      sum = 0;
+    }
+    if (count == 0) {
+      min = value;
+      max = value;
+    } else {
+      min = Math.min(min, value);
+      max = Math.max(max, value);
+    }
+    sum += value;
+    count++;
+  }
+
+  @Override
+  public Aggregate snapshot(long nowMillis) {
+    if (count == 0 || Math.floorDiv(nowMillis, periodMillis) != period) {
+      return Aggregate.EMPTY;
+    }
+    return new Aggregate(count, min, max, sum);
+  }
+}
@@ -0,0 +1,24 @@
+package ntnu.idata2302.sfp.server.aggregate;
+
+/**
+ * A streaming window over the samples of one sensor. Implementations are not
+ * thread-safe; the engine synchronizes per series.
+ */
+interface Window {
+
+  /**
+   * Add a sample.
+   *
+   * @param timeMillis the sample time; samples older than earlier ones count as current
+   * @param value      the sample value
+   */
+  void add(long timeMillis, double value);
+
+  /**
+   * Summarize the window as seen at {@code nowMillis}.
+   *
+   * @param nowMillis the current time
+   * @return the summary
+   */
+  Aggregate snapshot(long nowMillis);
+}
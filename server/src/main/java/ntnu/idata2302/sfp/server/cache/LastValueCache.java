@@ -0,0 +1,102 @@
+package ntnu.idata2302.sfp.server.cache;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import ntnu.idata2302.sfp.library.body.data.DataReportBody;
+
+/**
+ * Latest known state of every reporting sensor node.
+ *
+ * <p>The cache holds one {@link DataReportBody} per sensor node id, built by
+ * merging every DATA_REPORT the node sends: a reading or actuator state
+ * replaces the earlier one with the same id, everything else is kept. A node
+ * that only reports what changed is therefore still represented in full.</p>
+ *
+ * <p>Entries are immutable and replaced atomically, so readers never lock and
+ * always see a consistent report. The broker uses the cache to give new
+ * subscribers an immediate snapshot and to answer DATA_REQUESTs without a
+ * round-trip to the node.</p>
+ */
+public class LastValueCache {
+
+  private final Map<Integer, DataReportBody> latest = new ConcurrentHashMap<>();
+
+  /**
+   * Merge a report into the cached state of a sensor node.
+   *
+   * @param sensorNodeId the id of the reporting node
+   * @param report       the received report
+   */
+  public void update(int sensorNodeId, DataReportBody report) {
+    latest.merge(sensorNodeId, report, LastValueCache::merge);
+  }
+
+  /**
+   * Return the cached state of a sensor node.
+   *
+   * @param sensorNodeId the node id
+   * @return the merged latest report, or {@code null} if the node has not reported
+   */
+  public DataReportBody get(int sensorNodeId) {
+    return latest.get(sensorNodeId);
+  }
+
+  /**
+   * Forget the cached state of a sensor node, for example when its id is
+   * released and may be given to another node.
+   *
+   * @param sensorNodeId the node id
+   */
+  public void remove(int sensorNodeId) {
+    latest.remove(sensorNodeId);
+  }
+
+  /**
+   * Return the number of sensor nodes with cached state.
+   *
+   * @return the number of cached nodes
+   */
+  public int size() {
+    return latest.size();
+  }
+
+  /**
+   * Merge two reports of the same node: readings and actuator states of the
+   * newer report replace those with the same id, everything else is kept.
+   *
+   * @param older the earlier report
+   * @param newer the later report
+   * @return the merged report
+   */
+  public static DataReportBody merge(DataReportBody older, DataReportBody newer) {
+    return new DataReportBody(
+        mergeById(older.sensors(), newer.sensors(), DataReportBody.SensorReading::id),
+        mergeById(older.actuators(), newer.actuators(), DataReportBody.ActuatorState::id),
+        newer.aggregates() != null ? newer.aggregates() : older.aggregates()
+    );
+  }
+
+  /**
+   * Merge two lists keyed by id, keeping the order of first appearance and
+   * the newest entry per id.
+   */
+  private static <T> List<T> mergeById(List<T> older, List<T> newer, Function<T, String> id) {
+    if (older == null || older.isEmpty()) {
+      return newer;
+    }
+    if (newer == null || newer.isEmpty()) {
+      return older;
+    }
+    Map<String, T> merged = new LinkedHashMap<>();
+    for (T entry : older) {
+      merged.put(id.apply(entry), entry);
+    }
+    for (T entry : newer) {
+      merged.put(id.apply(entry), entry);
+    }
+    return List.copyOf(merged.values());
+  }
+}
@@ -0,0 +1,474 @@
+package ntnu.idata2302.sfp.server.capabilities;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ThreadLocalRandom;
+import ntnu.idata2302.sfp.library.body.Body;
+import ntnu.idata2302.sfp.library.body.capabilities.CapabilitiesDeltaBody;
+import ntnu.idata2302.sfp.library.body.capabilities.CapabilitiesListBody;
+import ntnu.idata2302.sfp.library.body.capabilities.CapabilitiesQueryBody;
+import ntnu.idata2302.sfp.library.node.DescriptorTemplates;
+import ntnu.idata2302.sfp.library.node.NodeDescriptor;
+
+/**
+ * Versioned list of sensor node descriptors served to CAPABILITIES_QUERY.
+ *
+ * <p>Every join, leave or descriptor change bumps the version and is kept in
+ * a bounded change log, so a query naming a recent version can be answered
+ * with just the changes since. The full list is encoded once per version: the
+ * encoded body is a template in which only the request id is patched per
+ * reply.</p>
+ *
+ * <p>{@link CapabilitiesListBody} encodes the request id as its first map
+ * entry, so in the template it sits at a known offset. It is encoded with a
+ * placeholder that takes the widest 32-bit CBOR integer form, which decoders
+ * accept like the shortest form, and each reply overwrites those bytes.</p>
+ *
+ * <p>A version carries a random epoch of this catalog in its high bits and a
+ * change counter in its low bits. A version kept by a control panel across a
+ * broker restart names another epoch and is answered with the full list,
+ * however many changes either broker made.</p>
+ *
+ * <p>Filtered and paged queries are answered from secondary indexes: node ids
+ * by sensor id, by actuator id and by image support, all sorted by node id.
+ * The smallest index named by the filter is walked from the cursor onwards,
+ * so a page costs about its own size rather than a scan of every node.</p>
+ *
+ * <p>Descriptors carrying a template hash are listed as references, with
+ * each template they name sent once per list, so a fleet of identical nodes
+ * costs a few bytes per node. Deltas carry full descriptors.</p>
+ */
+public class CapabilitiesCatalog {
+
+  /** Default number of changes kept for answering with deltas. */
+  public static final int DEFAULT_HISTORY = 256;
+
+  /** Largest number of nodes in one page; also the page size if a query sets none. */
+  public static final int MAX_PAGE_SIZE = 500;
+
+  // Every node in the catalog is a sensor node
+  private static final int SENSOR_NODE_TYPE = 1;
+
+  // Low bits of a version count changes; the bits above them hold the epoch
+  private static final int COUNTER_BITS = 40;
+  private static final int EPOCH_BITS = 22;
+
+  private static final byte[] REQUEST_ID_KEY = cborText("requestId");
+  // The request id value follows a one-byte map header and its key
+  private static final int REQUEST_ID_OFFSET = 1 + REQUEST_ID_KEY.length;
+  // Encodes as 0x1A followed by four bytes, the widest int form
+  private static final int PLACEHOLDER = Integer.MAX_VALUE;
+  private static final NavigableSet<Integer> EMPTY = Collections.emptyNavigableSet();
+
+  private final NavigableMap<Integer, NodeDescriptor> nodes = new TreeMap<>();
+  private final Map<String, NavigableSet<Integer>> bySensor = new HashMap<>();
+  private final Map<String, NavigableSet<Integer>> byActuator = new HashMap<>();
+  private final NavigableSet<Integer> withImages = new TreeSet<>();
+  private final Deque<Change> changes = new ArrayDeque<>();
+  private final int maxHistory;
+  private final long epoch;
+  private long version;
+  private Snapshot snapshot;
+
+  /**
+   * Create a catalog keeping {@link #DEFAULT_HISTORY} changes.
+   */
+  public CapabilitiesCatalog() {
+    this(DEFAULT_HISTORY);
+  }
+
+  /**
+   * Create a catalog keeping a custom number of changes.
+   *
+   * @param maxHistory number of changes kept for answering with deltas
+   */
+  public CapabilitiesCatalog(int maxHistory) {
+    this.maxHistory = maxHistory;
+    this.epoch = ThreadLocalRandom.current().nextLong(1, 1L << EPOCH_BITS);
+    this.version = epoch << COUNTER_BITS;
+  }
+
+  /**
+   * Add or replace the descriptor of a sensor node.
+   *
+   * @param nodeId     the node id
+   * @param descriptor the descriptor
+   * @return the change as a pushed delta, or {@code null} if the descriptor is unchanged
+   */
+  public synchronized CapabilitiesDeltaBody put(int nodeId, NodeDescriptor descriptor) {
+    NodeDescriptor previous = nodes.get(nodeId);
+    if (descriptor.equals(previous)) {
+      return null;
+    }
+    if (previous != null) {
+      unindex(nodeId, previous);
+    }
+    nodes.put(nodeId, descriptor);
+    index(nodeId, descriptor);
+    record(nodeId, descriptor);
+    return new CapabilitiesDeltaBody(0, version - 1, version, List.of(descriptor), null);
+  }
+
+  /**
+   * Remove a sensor node.
+   *
+   * @param nodeId the node id
+   * @return the change as a pushed delta, or {@code null} if the node was not listed
+   */
+  public synchronized CapabilitiesDeltaBody remove(int nodeId) {
+    NodeDescriptor previous = nodes.remove(nodeId);
+    if (previous == null) {
+      return null;
+    }
+    unindex(nodeId, previous);
+    record(nodeId, null);
+    return new CapabilitiesDeltaBody(0, version - 1, version, null, List.of(nodeId));
+  }
+
+  /**
+   * Return the current version.
+   *
+   * @return the version
+   */
+  public synchronized long version() {
+    return version;
+  }
+
+  /**
+   * Return the current descriptors.
+   *
+   * @return the descriptors in node id order
+   */
+  public List<NodeDescriptor> nodes() {
+    return snapshot().nodes();
+  }
+
+  /**
+   * Return the nodes having an actuator.
+   *
+   * @param actuatorId the actuator id
+   * @return a copy of the ids of the nodes listing the actuator, in id order
+   */
+  public synchronized NavigableSet<Integer> withActuator(String actuatorId) {
+    return new TreeSet<>(byActuator.getOrDefault(actuatorId, EMPTY));
+  }
+
+  /**
+   * Answer a CAPABILITIES_QUERY.
+   *
+   * @param requestId    the request id to echo
+   * @param knownVersion the version the requester holds, or {@code null} for the full list;
+   *                     a version of another catalog also gets the full list
+   * @return a not-modified {@link CapabilitiesListBody}, a {@link CapabilitiesDeltaBody},
+   *         or the pre-encoded full list
+   */
+  public Body answer(int requestId, Long knownVersion) {
+    if (knownVersion != null && knownVersion >>> COUNTER_BITS == epoch) {
+      synchronized (this) {
+        if (knownVersion == version) {
+          return CapabilitiesListBody.notModified(requestId, version);
+        }
+        CapabilitiesDeltaBody delta = deltaSince(requestId, knownVersion);
+        if (delta != null) {
+          return delta;
+        }
+      }
+    }
+    return snapshot().encode(requestId);
+  }
+
+  /**
+   * Answer a filtered or paged CAPABILITIES_QUERY with one page of the list.
+   *
+   * @param requestId the request id to echo
+   * @param filter    conditions every listed node must meet, or {@code null} for all nodes
+   * @param cursor    list only nodes with a higher id than this, or {@code null} from the start
+   * @param limit     maximum number of nodes, capped at {@link #MAX_PAGE_SIZE};
+   *                  {@code null} for the maximum
+   * @return the page, with a next cursor if more nodes match
+   */
+  public synchronized CapabilitiesListBody query(int requestId,
+                                                 CapabilitiesQueryBody.Filter filter,
+                                                 Integer cursor, Integer limit) {
+    int pageSize = limit == null ? MAX_PAGE_SIZE : Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+    List<NodeDescriptor> page = new ArrayList<>(Math.min(pageSize, nodes.size()));
+    Integer nextCursor = null;
+
+    for (int nodeId : candidates(filter, cursor)) {
+      NodeDescriptor descriptor = nodes.get(nodeId);
+      if (!matches(filter, descriptor)) {
+        continue;
+      }
+      if (page.size() == pageSize) {
+        nextCursor = page.get(page.size() - 1).nodeId();
+        break;
+      }
+      page.add(descriptor);
+    }
+    return listBody(requestId, page, nextCursor);
+  }
+
+  /**
+   * Pick the smallest index the filter names, narrowed to the id range and
+   * the cursor. Called with the lock held.
+   */
+  private NavigableSet<Integer> candidates(CapabilitiesQueryBody.Filter filter, Integer cursor) {
+    NavigableSet<Integer> ids = nodes.navigableKeySet();
+    if (filter != null) {
+      if (filter.nodeType() != null && filter.nodeType() != SENSOR_NODE_TYPE) {
+        return Collections.emptyNavigableSet();
+      }
+      if (filter.sensorId() != null) {
+        ids = smaller(ids, bySensor.getOrDefault(filter.sensorId(), EMPTY));
+      }
+      if (filter.actuatorId() != null) {
+        ids = smaller(ids, byActuator.getOrDefault(filter.actuatorId(), EMPTY));
+      }
+      if (Boolean.TRUE.equals(filter.supportsImages())) {
+        ids = smaller(ids, withImages);
+      }
+    }
+
+    int from = cursor == null ? Integer.MIN_VALUE : cursor;
+    boolean fromInclusive = cursor == null;
+    if (filter != null && filter.minNodeId() != null
+        && (cursor == null || filter.minNodeId() > cursor)) {
+      from = filter.minNodeId();
+      fromInclusive = true;
+    }
+    int to = filter == null || filter.maxNodeId() == null ? Integer.MAX_VALUE : filter.maxNodeId();
+    if (from > to || (from == to && !fromInclusive)) {
+      return Collections.emptyNavigableSet();
+    }
+    return ids.subSet(from, fromInclusive, to, true);
+  }
+
+  private static NavigableSet<Integer> smaller(NavigableSet<Integer> a, NavigableSet<Integer> b) {
+    return b.size() < a.size() ? b : a;
+  }
+
+  /**
+   * Check every condition of the filter, including those already covered by
+   * the walked index.
+   */
+  private static boolean matches(CapabilitiesQueryBody.Filter filter, NodeDescriptor descriptor) {
+    if (filter == null) {
+      return true;
+    }
+    if (filter.sensorId() != null && !sensorIds(descriptor).contains(filter.sensorId())) {
+      return false;
+    }
+    if (filter.actuatorId() != null && !actuatorIds(descriptor).contains(filter.actuatorId())) {
+      return false;
+    }
+    return filter.supportsImages() == null
+        || filter.supportsImages() == Boolean.TRUE.equals(descriptor.supportsImages());
+  }
+
+  private void index(int nodeId, NodeDescriptor descriptor) {
+    for (String sensorId : sensorIds(descriptor)) {
+      bySensor.computeIfAbsent(sensorId, id -> new TreeSet<>()).add(nodeId);
+    }
+    for (String actuatorId : actuatorIds(descriptor)) {
+      byActuator.computeIfAbsent(actuatorId, id -> new TreeSet<>()).add(nodeId);
+    }
+    if (Boolean.TRUE.equals(descriptor.supportsImages())) {
+      withImages.add(nodeId);
+    }
+  }
+
+  private void unindex(int nodeId, NodeDescriptor descriptor) {
+    for (String sensorId : sensorIds(descriptor)) {
+      removeFrom(bySensor, sensorId, nodeId);
+    }
+    for (String actuatorId : actuatorIds(descriptor)) {
+      removeFrom(byActuator, actuatorId, nodeId);
+    }
+    withImages.remove(nodeId);
+  }
+
+  private static void removeFrom(Map<String, NavigableSet<Integer>> index, String key, int nodeId) {
+    NavigableSet<Integer> ids = index.get(key);
+    if (ids != null && ids.remove(nodeId) && ids.isEmpty()) {
+      index.remove(key);
+    }
+  }
+
+  private static Set<String> sensorIds(NodeDescriptor descriptor) {
+    Set<String> ids = new HashSet<>();
+    if (descriptor.sensors() != null) {
+      for (NodeDescriptor.SensorDescriptor sensor : descriptor.sensors()) {
+        if (sensor.id() != null) {
+          ids.add(sensor.id());
+        }
+      }
+    }
+    return ids;
+  }
+
+  private static Set<String> actuatorIds(NodeDescriptor descriptor) {
+    Set<String> ids = new HashSet<>();
+    if (descriptor.actuators() != null) {
+      for (NodeDescriptor.ActuatorDescriptor actuator : descriptor.actuators()) {
+        if (actuator.id() != null) {
+          ids.add(actuator.id());
+        }
+      }
+    }
+    return ids;
+  }
+
+  /**
+   * Build the delta from a known version, or {@code null} if the change log
+   * no longer reaches back that far or the delta would not be smaller than
+   * the full list. Called with the lock held.
+   */
+  private CapabilitiesDeltaBody deltaSince(int requestId, long knownVersion) {
+    if (knownVersion > version || changes.isEmpty()
+        || knownVersion < changes.peekFirst().version() - 1) {
+      return null;
+    }
+    // Several changes of one node collapse into its latest state
+    Map<Integer, NodeDescriptor> latest = new LinkedHashMap<>();
+    for (Change change : changes) {
+      if (change.version() > knownVersion) {
+        latest.remove(change.nodeId());
+        latest.put(change.nodeId(), change.descriptor());
+      }
+    }
+    if (latest.size() >= nodes.size() && !nodes.isEmpty()) {
+      return null;
+    }
+    List<NodeDescriptor> upserted = new ArrayList<>();
+    List<Integer> removed = new ArrayList<>();
+    latest.forEach((nodeId, descriptor) -> {
+      if (descriptor == null) {
+        removed.add(nodeId);
+      } else {
+        upserted.add(descriptor);
+      }
+    });
+    return new CapabilitiesDeltaBody(requestId, knownVersion, version,
+        upserted.isEmpty() ? null : upserted, removed.isEmpty() ? null : removed);
+  }
+
+  private void record(int nodeId, NodeDescriptor descriptor) {
+    version++;
+    changes.addLast(new Change(version, nodeId, descriptor));
+    if (changes.size() > maxHistory) {
+      changes.removeFirst();
+    }
+    snapshot = null;
+  }
+
+  private synchronized Snapshot snapshot() {
+    if (snapshot == null) {
+      List<NodeDescriptor> list = List.copyOf(nodes.values());
+      byte[] template = listBody(PLACEHOLDER, list, null).toCbor();
+      if (!Arrays.equals(template, 1, REQUEST_ID_OFFSET,
+          REQUEST_ID_KEY, 0, REQUEST_ID_KEY.length)) {
+        throw new IllegalStateException("The request id is not the first list field");
+      }
+      snapshot = new Snapshot(list, template);
+    }
+    return snapshot;
+  }
+
+  /**
+   * Build a list body of the current version, listing descriptors with a
+   * template hash as references. Called with the lock held.
+   */
+  private CapabilitiesListBody listBody(int requestId, List<NodeDescriptor> list,
+                                        Integer nextCursor) {
+    List<NodeDescriptor> listed = new ArrayList<>(list.size());
+    Map<String, NodeDescriptor> templates = new HashMap<>();
+    for (NodeDescriptor descriptor : list) {
+      String hash = descriptor.template();
+      if (hash == null) {
+        listed.add(descriptor);
+        continue;
+      }
+      templates.computeIfAbsent(hash, h -> DescriptorTemplates.template(descriptor));
+      listed.add(DescriptorTemplates.reference(descriptor, hash));
+    }
+    return new CapabilitiesListBody(requestId, listed, version, null, nextCursor,
+        templates.isEmpty() ? null : templates);
+  }
+
+  private static byte[] cborText(String text) {
+    byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+    byte[] encoded = new byte[utf8.length + 1];
+    // Major type 3 (text), short length
+    encoded[0] = (byte) (0x60 | utf8.length);
+    System.arraycopy(utf8, 0, encoded, 1, utf8.length);
+    return encoded;
+  }
+
+  /**
+   * One entry of the change log; a {@code null} descriptor means the node left.
+   */
+  private record Change(long version, int nodeId, NodeDescriptor descriptor) {
+  }
+
+  /**
+   * The full list of one version, with its encoded body.
+   *
+   * @param nodes    the descriptors
+   * @param template the encoded body with room for the request id at
+   *                 {@link #REQUEST_ID_OFFSET}
+   */
+  private record Snapshot(List<NodeDescriptor> nodes, byte[] template) {
+
+    EncodedBody encode(int requestId) {
+      byte[] body = Arrays.copyOf(template, template.length);
+      // Major type 0 (unsigned) or 1 (negative, stores -1 - n), 32-bit argument
+      int value = requestId >= 0 ? requestId : -1 - requestId;
+      body[REQUEST_ID_OFFSET] = (byte) (requestId >= 0 ? 0x1A : 0x3A);
+      body[REQUEST_ID_OFFSET + 1] = (byte) (value >>> 24);
+      body[REQUEST_ID_OFFSET + 2] = (byte) (value >>> 16);
+      body[REQUEST_ID_OFFSET + 3] = (byte) (value >>> 8);
+      body[REQUEST_ID_OFFSET + 4] = (byte) value;
+      return new EncodedBody(body);
+    }
+  }
+
+  /**
+   * A body that is already encoded.
+   */
+  private record EncodedBody(byte[] cbor) implements Body {
+
+    @Override
+    public byte[] toCbor() {
+      return cbor;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof EncodedBody other && Arrays.equals(cbor, other.cbor);
+    }
+
+    @Override
+    public int hashCode() {
+      return Arrays.hashCode(cbor);
+    }
+
+    @Override
+    public String toString() {
+      return "EncodedBody[" + cbor.length + " bytes]";
+    }
+  }
+}
@@ -0,0 +1,97 @@
+package ntnu.idata2302.sfp.server.capabilities;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import ntnu.idata2302.sfp.library.node.DescriptorTemplates;
+import ntnu.idata2302.sfp.library.node.NodeDescriptor;
+
+/**
+ * Interned descriptor templates, by hash.
+ *
+ * <p>Identical sensor nodes announce identical sensors, actuators and flags.
+ * The store keeps one copy of each distinct template, and the descriptors it
+ * hands out share that copy's sensor and actuator lists, so a fleet of
+ * identical nodes costs one object graph plus a small record per node.</p>
+ *
+ * <p>Templates are reference-counted: every descriptor handed out by
+ * {@link #intern(NodeDescriptor)} or {@link #resolve(NodeDescriptor)} holds a
+ * reference until it is returned with {@link #release(String)}, and a
+ * template is dropped with its last reference. The store therefore holds the
+ * templates of the registered and parked nodes only, however many distinct
+ * descriptors have been announced over the broker's lifetime.</p>
+ */
+public class TemplateStore {
+
+  private final Map<String, Entry> templates = new ConcurrentHashMap<>();
+
+  /**
+   * Intern the template of a full descriptor, taking a reference to it.
+   *
+   * @param descriptor a full descriptor
+   * @return an equal descriptor sharing the interned template, with its template hash set
+   */
+  public NodeDescriptor intern(NodeDescriptor descriptor) {
+    String hash = DescriptorTemplates.hash(descriptor);
+    Entry entry = templates.compute(hash, (h, current) -> {
+      Entry acquired = current == null
+          ? new Entry(DescriptorTemplates.template(descriptor)) : current;
+      acquired.references++;
+      return acquired;
+    });
+    return DescriptorTemplates.resolve(
+        DescriptorTemplates.reference(descriptor, hash), entry.template);
+  }
+
+  /**
+   * Resolve a reference against the interned templates, taking a reference
+   * to the template if it is known.
+   *
+   * @param reference a descriptor naming its template by hash
+   * @return the full descriptor, or {@code null} if the template is unknown
+   */
+  public NodeDescriptor resolve(NodeDescriptor reference) {
+    if (reference.template() == null) {
+      return null;
+    }
+    Entry entry = templates.computeIfPresent(reference.template(), (h, current) -> {
+      current.references++;
+      return current;
+    });
+    return entry == null ? null : DescriptorTemplates.resolve(reference, entry.template);
+  }
+
+  /**
+   * Return a reference taken by {@link #intern(NodeDescriptor)} or
+   * {@link #resolve(NodeDescriptor)}, dropping the template with its last
+   * reference.
+   *
+   * @param hash the template hash of the descriptor handed out; {@code null} is ignored
+   */
+  public void release(String hash) {
+    if (hash != null) {
+      templates.computeIfPresent(hash, (h, current) -> --current.references == 0 ? null : current);
+    }
+  }
+
+  /**
+   * Return the number of interned templates.
+   *
+   * @return the number of templates
+   */
+  public int size() {
+    return templates.size();
+  }
+
+  /**
+   * An interned template and the number of descriptors referring to it;
+   * only changed inside the map's atomic updates.
+   */
+  private static final class Entry {
+    private final NodeDescriptor template;
+    private int references;
+
+    private Entry(NodeDescriptor template) {
+      this.template = template;
+    }
+  }
+}
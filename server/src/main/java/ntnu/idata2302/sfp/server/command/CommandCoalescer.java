@@ -0,0 +1,228 @@
+package ntnu.idata2302.sfp.server.command;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import ntnu.idata2302.sfp.library.SmartFarmingProtocol;
+import ntnu.idata2302.sfp.library.body.command.CommandAckBody;
+import ntnu.idata2302.sfp.library.body.command.CommandBody;
+import ntnu.idata2302.sfp.library.header.Header;
+import ntnu.idata2302.sfp.library.header.MessageTypes;
+import ntnu.idata2302.sfp.server.factory.HeaderFactory;
+
+/**
+ * Latest-wins queue of COMMANDs on their way to sensor nodes.
+ *
+ * <p>Each sensor node has an outbound queue of commands not yet written to
+ * it. One thread at a time drains a queue; commands submitted meanwhile, for
+ * example while a write to a slow node blocks, are queued and the submitting
+ * thread returns at once. A queued command loses its update of an actuator
+ * when a newer command for the same actuator (names compared ignoring case)
+ * is queued behind it. A command left without updates is dropped and its
+ * issuer gets a COMMAND_ACK with {@link CommandAckBody#STATUS_COALESCED},
+ * attributed to the node; a command that keeps some updates is sent with
+ * those and acknowledged by the node as usual.</p>
+ *
+ * <p>Since every queued command keeps at least one actuator no later command
+ * sets, a queue never holds more commands than there are actuator names in
+ * use for the node, however fast commands arrive.</p>
+ */
+public class CommandCoalescer {
+
+  /**
+   * Destination of commands and acknowledgements.
+   */
+  @FunctionalInterface
+  public interface Sender {
+
+    /**
+     * Send a packet to a node.
+     *
+     * @param nodeId the destination node id
+     * @param packet the packet
+     * @throws IOException if sending fails
+     */
+    void send(int nodeId, SmartFarmingProtocol packet) throws IOException;
+  }
+
+  private final Map<Integer, NodeQueue> queues = new ConcurrentHashMap<>();
+  private final Sender sender;
+  private final CommandTracker tracker;
+  private long coalesced;
+
+  /**
+   * Create a coalescer.
+   *
+   * @param sender  where commands and coalesced acknowledgements are sent
+   * @param tracker tracker of forwarded commands, told about dropped ones (may be null)
+   */
+  public CommandCoalescer(Sender sender, CommandTracker tracker) {
+    this.sender = sender;
+    this.tracker = tracker;
+  }
+
+  /**
+   * Queue a COMMAND for its target and write the queue if no other thread is
+   * writing it.
+   *
+   * @param packet a COMMAND packet with a {@link CommandBody}
+   */
+  public void submit(SmartFarmingProtocol packet) {
+    Header header = packet.getHeader();
+    CommandBody command = (CommandBody) packet.getBody();
+    int nodeId = header.getTargetId();
+    NodeQueue queue = queues.computeIfAbsent(nodeId, id -> new NodeQueue());
+
+    List<Queued> dropped;
+    boolean drain;
+    synchronized (queue) {
+      Queued queued = new Queued(header, command);
+      dropped = queue.supersede(queued.names());
+      queue.pending.add(queued);
+      drain = !queue.draining;
+      queue.draining = true;
+    }
+    for (Queued superseded : dropped) {
+      acknowledgeCoalesced(superseded);
+    }
+    if (drain) {
+      drain(nodeId, queue);
+    }
+  }
+
+  /**
+   * Drop the queue of a node that left.
+   *
+   * @param nodeId the node id
+   */
+  public void removeNode(int nodeId) {
+    queues.remove(nodeId);
+  }
+
+  /**
+   * Return the number of commands dropped because newer commands replaced them.
+   *
+   * @return the number of coalesced commands
+   */
+  public synchronized long coalesced() {
+    return coalesced;
+  }
+
+  private void drain(int nodeId, NodeQueue queue) {
+    while (true) {
+      Queued next;
+      synchronized (queue) {
+        next = queue.pending.poll();
+        if (next == null) {
+          queue.draining = false;
+          return;
+        }
+      }
+      try {
+        sender.send(nodeId, next.packet());
+      } catch (IOException e) {
+        System.out.println("Failed to send COMMAND to " + nodeId);
+        if (tracker != null) {
+          tracker.fail(next.header.getSourceId(), nodeId, next.requestId);
+        }
+      }
+    }
+  }
+
+  private void acknowledgeCoalesced(Queued superseded) {
+    synchronized (this) {
+      coalesced++;
+    }
+    int issuerId = superseded.header.getSourceId();
+    int nodeId = superseded.header.getTargetId();
+    int requestId = superseded.requestId;
+    if (tracker != null) {
+      tracker.cancel(issuerId, nodeId, requestId);
+    }
+    try {
+      sender.send(issuerId, new SmartFarmingProtocol(
+          HeaderFactory.relayHeader(MessageTypes.COMMAND_ACK, nodeId, issuerId),
+          new CommandAckBody(requestId, CommandAckBody.STATUS_COALESCED, "COALESCED")));
+    } catch (IOException e) {
+      System.out.println("Failed to acknowledge coalesced COMMAND to " + issuerId);
+    }
+  }
+
+  /**
+   * Commands not yet written to one node.
+   */
+  private static final class NodeQueue {
+    private final Deque<Queued> pending = new ArrayDeque<>();
+    private boolean draining;
+
+    /**
+     * Remove the updates of the given actuators from the queued commands.
+     * Called with the queue's lock held.
+     *
+     * @return the commands left without updates, now removed from the queue
+     */
+    List<Queued> supersede(Set<String> names) {
+      List<Queued> dropped = List.of();
+      Iterator<Queued> it = pending.iterator();
+      while (it.hasNext()) {
+        Queued queued = it.next();
+        if (queued.parts.isEmpty()) {
+          // Malformed command without updates: delivered as is, for the node to reject
+          continue;
+        }
+        queued.parts.removeIf(part -> names.contains(key(part.name())));
+        if (queued.parts.isEmpty()) {
+          it.remove();
+          if (dropped.isEmpty()) {
+            dropped = new ArrayList<>();
+          }
+          dropped.add(queued);
+        }
+      }
+      return dropped;
+    }
+  }
+
+  /**
+   * A queued command whose updates may still shrink.
+   */
+  private static final class Queued {
+    private final Header header;
+    private final CommandBody original;
+    private final int requestId;
+    private final List<CommandBody.CommandPart> parts;
+
+    private Queued(Header header, CommandBody command) {
+      this.header = header;
+      this.original = command;
+      this.requestId = command.requestId();
+      this.parts = command.actuators() == null
+          ? new ArrayList<>() : new ArrayList<>(command.actuators());
+    }
+
+    Set<String> names() {
+      Set<String> names = new HashSet<>();
+      for (CommandBody.CommandPart part : parts) {
+        names.add(key(part.name()));
+      }
+      return names;
+    }
+
+    SmartFarmingProtocol packet() {
+      return new SmartFarmingProtocol(header,
+          parts.isEmpty() ? original : new CommandBody(requestId, parts));
+    }
+  }
+
+  private static String key(String name) {
+    return name == null ? "" : name.toLowerCase(Locale.ROOT);
+  }
+}
@@ -0,0 +1,375 @@
+package ntnu.idata2302.sfp.server.command;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import ntnu.idata2302.sfp.library.SmartFarmingProtocol;
+import ntnu.idata2302.sfp.library.body.error.ErrorBody;
+import ntnu.idata2302.sfp.library.header.MessageTypes;
+import ntnu.idata2302.sfp.server.factory.HeaderFactory;
+
+/**
+ * Correlation of forwarded COMMANDs with their COMMAND_ACKs.
+ *
+ * <p>Every COMMAND the broker forwards is tracked by (issuer, target,
+ * request id) until the matching COMMAND_ACK passes back. The round trip is
+ * recorded in a {@link LatencyHistogram} of the target node. A command not
+ * acknowledged within the timeout is answered with an ERROR
+ * ({@value #ERROR_COMMAND_TIMEOUT}, COMMAND_TIMEOUT) to the issuer,
+ * attributed to the target node. A command that cannot be delivered at all
+ * is answered at once with {@link #fail(int, int, int)} instead.</p>
+ *
+ * <p>Deadlines are kept on a hashed timer wheel of {@value #WHEEL_SIZE} slots
+ * of {@value #TICK_MILLIS} ms, turned by one daemon thread created on first
+ * use, so tracking, acknowledging and expiring a command are constant time.
+ * At most {@code capacity} commands are tracked; when a command storm
+ * exceeds that, the oldest tracked command is expired early. Histograms are
+ * kept per node and dropped with {@link #removeNode(int)}.</p>
+ */
+public class CommandTracker {
+
+  /** Error code sent to the issuer of a command that timed out. */
+  public static final int ERROR_COMMAND_TIMEOUT = 9;
+
+  /** Error code sent to the issuer of a command that could not be delivered. */
+  public static final int ERROR_NODE_NOT_FOUND = 4;
+
+  /** Default time to wait for a COMMAND_ACK, in milliseconds. */
+  public static final long DEFAULT_TIMEOUT_MILLIS = 10_000;
+
+  /** Default maximum number of commands in flight. */
+  public static final int DEFAULT_CAPACITY = 65_536;
+
+  private static final long TICK_MILLIS = 50;
+  private static final int WHEEL_SIZE = 256;
+
+  /**
+   * Destination of timeout errors.
+   */
+  @FunctionalInterface
+  public interface Sender {
+
+    /**
+     * Send a packet to a node.
+     *
+     * @param nodeId the destination node id
+     * @param packet the packet
+     * @throws IOException if sending fails
+     */
+    void send(int nodeId, SmartFarmingProtocol packet) throws IOException;
+  }
+
+  private final Sender sender;
+  private final long timeoutMillis;
+  private final int capacity;
+  private final long originNanos = System.nanoTime();
+
+  // In insertion order, so the oldest command is the first to go when full
+  private final LinkedHashMap<Key, Entry> inFlight = new LinkedHashMap<>();
+  private final Entry[] wheel = new Entry[WHEEL_SIZE];
+  private long currentTick;
+  private long timeouts;
+  private long evictions;
+
+  private final Map<Integer, LatencyHistogram> latencies = new ConcurrentHashMap<>();
+  private ScheduledThreadPoolExecutor timer;
+
+  /**
+   * Create a tracker with {@link #DEFAULT_TIMEOUT_MILLIS} and {@link #DEFAULT_CAPACITY}.
+   *
+   * @param sender where timeout errors are sent
+   */
+  public CommandTracker(Sender sender) {
+    this(sender, DEFAULT_TIMEOUT_MILLIS, DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Create a tracker.
+   *
+   * @param sender        where timeout errors are sent
+   * @param timeoutMillis time to wait for a COMMAND_ACK
+   * @param capacity      maximum number of commands in flight
+   */
+  public CommandTracker(Sender sender, long timeoutMillis, int capacity) {
+    this.sender = sender;
+    this.timeoutMillis = timeoutMillis;
+    this.capacity = capacity;
+  }
+
+  /**
+   * Start tracking a forwarded COMMAND. A command with the same key that is
+   * still in flight is replaced.
+   *
+   * @param issuerId  the node that sent the command
+   * @param targetId  the node the command is forwarded to
+   * @param requestId the request id of the command
+   */
+  public void track(int issuerId, int targetId, int requestId) {
+    List<Entry> expired = null;
+    synchronized (this) {
+      long now = System.nanoTime();
+      Key key = new Key(issuerId, targetId, requestId);
+      Entry previous = inFlight.remove(key);
+      if (previous != null) {
+        unlink(previous);
+      }
+      if (inFlight.size() >= capacity) {
+        Iterator<Entry> oldest = inFlight.values().iterator();
+        Entry evicted = oldest.next();
+        oldest.remove();
+        unlink(evicted);
+        evictions++;
+        expired = List.of(evicted);
+      }
+      long deadline = tickOf(now + TimeUnit.MILLISECONDS.toNanos(timeoutMillis)) + 1;
+      Entry entry = new Entry(key, now, Math.max(deadline, currentTick + 1));
+      inFlight.put(key, entry);
+      link(entry);
+    }
+    if (expired != null) {
+      notifyIssuers(expired);
+    }
+    ensureTimer();
+  }
+
+  /**
+   * Match a COMMAND_ACK with its command and record the round trip.
+   *
+   * @param issuerId  the node the acknowledgement is forwarded to
+   * @param targetId  the node that sent the acknowledgement
+   * @param requestId the request id of the acknowledgement
+   * @return {@code true} if the command was in flight
+   */
+  public boolean complete(int issuerId, int targetId, int requestId) {
+    Entry entry;
+    synchronized (this) {
+      entry = inFlight.remove(new Key(issuerId, targetId, requestId));
+      if (entry == null) {
+        return false;
+      }
+      unlink(entry);
+    }
+    latencies.computeIfAbsent(targetId, id -> new LatencyHistogram())
+        .record(System.nanoTime() - entry.startNanos);
+    return true;
+  }
+
+  /**
+   * Stop tracking a command that will not reach its target, without recording
+   * a round trip.
+   *
+   * @param issuerId  the node that sent the command
+   * @param targetId  the node the command was meant for
+   * @param requestId the request id of the command
+   * @return {@code true} if the command was in flight
+   */
+  public synchronized boolean cancel(int issuerId, int targetId, int requestId) {
+    Entry entry = inFlight.remove(new Key(issuerId, targetId, requestId));
+    if (entry == null) {
+      return false;
+    }
+    unlink(entry);
+    return true;
+  }
+
+  /**
+   * Stop tracking a command that could not be delivered to its target, and
+   * answer its issuer right away with an ERROR ({@value #ERROR_NODE_NOT_FOUND},
+   * NODE_NOT_FOUND) attributed to the target node, rather than with a
+   * COMMAND_TIMEOUT once the timeout has passed.
+   *
+   * @param issuerId  the node that sent the command
+   * @param targetId  the node the command was meant for
+   * @param requestId the request id of the command
+   */
+  public void fail(int issuerId, int targetId, int requestId) {
+    if (!cancel(issuerId, targetId, requestId)) {
+      // Already acknowledged or timed out; the issuer has its answer
+      return;
+    }
+    ErrorBody error = new ErrorBody(ERROR_NODE_NOT_FOUND, String.format(
+        "NODE_NOT_FOUND: request %d could not be delivered to node %d", requestId, targetId));
+    try {
+      sender.send(issuerId, new SmartFarmingProtocol(
+          HeaderFactory.relayHeader(MessageTypes.ERROR, targetId, issuerId), error));
+    } catch (IOException e) {
+      System.out.println("Failed to send command failure to " + issuerId);
+    }
+  }
+
+  /**
+   * Return the round-trip latencies of the commands a node acknowledged.
+   *
+   * @param nodeId the node id
+   * @return the histogram, or {@code null} if the node acknowledged no command
+   */
+  public LatencyHistogram latency(int nodeId) {
+    return latencies.get(nodeId);
+  }
+
+  /**
+   * Drop the latency histogram of a node that left.
+   *
+   * @param nodeId the node id
+   */
+  public void removeNode(int nodeId) {
+    latencies.remove(nodeId);
+  }
+
+  /**
+   * Return the number of commands waiting for an acknowledgement.
+   *
+   * @return the number of commands in flight
+   */
+  public synchronized int inFlight() {
+    return inFlight.size();
+  }
+
+  /**
+   * Return the number of commands that timed out.
+   *
+   * @return the number of timeouts, evictions included
+   */
+  public synchronized long timeouts() {
+    return timeouts;
+  }
+
+  /**
+   * Return the number of commands expired early because the tracker was full.
+   *
+   * @return the number of evictions
+   */
+  public synchronized long evictions() {
+    return evictions;
+  }
+
+  /**
+   * Expire the commands whose deadline has passed. Run on every tick.
+   */
+  void tick() {
+    List<Entry> expired = new ArrayList<>();
+    synchronized (this) {
+      long now = tickOf(System.nanoTime());
+      // A late timer visits each slot at most once
+      long from = Math.max(currentTick + 1, now - WHEEL_SIZE + 1);
+      for (long tick = from; tick <= now; tick++) {
+        Entry entry = wheel[slot(tick)];
+        while (entry != null) {
+          Entry next = entry.next;
+          if (entry.deadlineTick <= now) {
+            inFlight.remove(entry.key);
+            unlink(entry);
+            expired.add(entry);
+          }
+          entry = next;
+        }
+      }
+      currentTick = Math.max(currentTick, now);
+    }
+    notifyIssuers(expired);
+  }
+
+  private void notifyIssuers(List<Entry> expired) {
+    if (expired.isEmpty()) {
+      return;
+    }
+    synchronized (this) {
+      timeouts += expired.size();
+    }
+    for (Entry entry : expired) {
+      Key key = entry.key;
+      ErrorBody error = new ErrorBody(ERROR_COMMAND_TIMEOUT, String.format(
+          "COMMAND_TIMEOUT: no COMMAND_ACK for request %d from node %d within %d ms",
+          key.requestId(), key.targetId(), timeoutMillis));
+      try {
+        sender.send(key.issuerId(), new SmartFarmingProtocol(
+            HeaderFactory.relayHeader(MessageTypes.ERROR, key.targetId(), key.issuerId()),
+            error));
+      } catch (IOException e) {
+        System.out.println("Failed to send command timeout to " + key.issuerId());
+      }
+    }
+  }
+
+  private long tickOf(long nanos) {
+    return TimeUnit.NANOSECONDS.toMillis(nanos - originNanos) / TICK_MILLIS;
+  }
+
+  private static int slot(long tick) {
+    return (int) (tick % WHEEL_SIZE);
+  }
+
+  /**
+   * Add an entry to the slot of its deadline. Called with the lock held.
+   */
+  private void link(Entry entry) {
+    int slot = slot(entry.deadlineTick);
+    entry.next = wheel[slot];
+    if (entry.next != null) {
+      entry.next.prev = entry;
+    }
+    wheel[slot] = entry;
+  }
+
+  /**
+   * Remove an entry from its slot. Called with the lock held.
+   */
+  private void unlink(Entry entry) {
+    if (entry.prev != null) {
+      entry.prev.next = entry.next;
+    } else {
+      wheel[slot(entry.deadlineTick)] = entry.next;
+    }
+    if (entry.next != null) {
+      entry.next.prev = entry.prev;
+    }
+    entry.prev = null;
+    entry.next = null;
+  }
+
+  private synchronized void ensureTimer() {
+    if (timer == null) {
+      timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+        Thread thread = new Thread(runnable, "sfp-command-timeouts");
+        thread.setDaemon(true);
+        return thread;
+      });
+      timer.scheduleAtFixedRate(() -> {
+        try {
+          tick();
+        } catch (RuntimeException e) {
+          System.out.println("Command timeout check failed: " + e);
+        }
+      }, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * Identity of a command in flight.
+   */
+  private record Key(int issuerId, int targetId, int requestId) {
+  }
+
+  /**
+   * A command in flight, linked into the wheel slot of its deadline.
+   */
+  private static final class Entry {
+    private final Key key;
+    private final long startNanos;
+    private final long deadlineTick;
+    private Entry prev;
+    private Entry next;
+
+    private Entry(Key key, long startNanos, long deadlineTick) {
+      this.key = key;
+      this.startNanos = startNanos;
+      this.deadlineTick = deadlineTick;
+    }
+  }
+}
@@ -0,0 +1,210 @@
+package ntnu.idata2302.sfp.server.command;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import ntnu.idata2302.sfp.library.body.command.CommandAckBody;
+import ntnu.idata2302.sfp.library.body.command.GroupCommandResultBody;
+
+/**
+ * Group commands waiting for the acknowledgements of their targets.
+ *
+ * <p>The broker sends one COMMAND with the same request id to every target
+ * of a group command, so a COMMAND_ACK is matched by its request id and the
+ * acknowledging node. A group command completes when every target has
+ * acknowledged or has been marked as failed, or when its timeout passes;
+ * either way the issuer gets exactly one {@link GroupCommandResultBody}.</p>
+ *
+ * <p>Timeouts run on one daemon timer thread, created on first use.</p>
+ */
+public class GroupCommands {
+
+  /** Timeout used when the issuer names none, in milliseconds. */
+  public static final int DEFAULT_TIMEOUT_MILLIS = 5_000;
+
+  /** Longest timeout accepted, in milliseconds. */
+  public static final int MAX_TIMEOUT_MILLIS = 60_000;
+
+  /**
+   * Destination of results.
+   */
+  @FunctionalInterface
+  public interface Sender {
+
+    /**
+     * Send the result of a group command to its issuer.
+     *
+     * @param cpId   the issuing control panel
+     * @param result the result
+     * @throws IOException if sending fails
+     */
+    void send(int cpId, GroupCommandResultBody result) throws IOException;
+  }
+
+  private final Map<Integer, Pending> pending = new ConcurrentHashMap<>();
+  private final Sender sender;
+  private ScheduledThreadPoolExecutor timer;
+
+  /**
+   * Create a tracker.
+   *
+   * @param sender where results are sent
+   */
+  public GroupCommands(Sender sender) {
+    this.sender = sender;
+  }
+
+  /**
+   * Start tracking a group command. Call before sending the COMMANDs, so no
+   * acknowledgement can arrive untracked.
+   *
+   * @param cpId          the issuing control panel
+   * @param requestId     the request id of the GROUP_COMMAND
+   * @param commandId     the request id of the COMMANDs sent to the targets
+   * @param targets       the target node ids, not empty
+   * @param timeoutMillis the timeout, or {@code null} for {@link #DEFAULT_TIMEOUT_MILLIS};
+   *                      capped at {@link #MAX_TIMEOUT_MILLIS}
+   */
+  public void start(int cpId, int requestId, int commandId, Collection<Integer> targets,
+                    Integer timeoutMillis) {
+    Pending command = new Pending(cpId, requestId, commandId, targets);
+    pending.put(commandId, command);
+    long timeout = timeoutMillis == null
+        ? DEFAULT_TIMEOUT_MILLIS : Math.max(1, Math.min(timeoutMillis, MAX_TIMEOUT_MILLIS));
+    ScheduledFuture<?> future =
+        timer().schedule(() -> expire(command), timeout, TimeUnit.MILLISECONDS);
+    synchronized (command) {
+      command.timeout = future;
+    }
+  }
+
+  /**
+   * Record a COMMAND_ACK sent to the broker.
+   *
+   * @param nodeId the acknowledging node
+   * @param ack    the acknowledgement
+   * @return {@code true} if it answered a tracked group command
+   */
+  public boolean acknowledge(int nodeId, CommandAckBody ack) {
+    return record(ack.requestId(), nodeId, ack.status(), ack.message());
+  }
+
+  /**
+   * Record that a target did not get the command.
+   *
+   * @param commandId the request id of the COMMANDs
+   * @param nodeId    the target
+   * @param status    the status to report, such as
+   *                  {@link GroupCommandResultBody#STATUS_NOT_CONNECTED}
+   */
+  public void fail(int commandId, int nodeId, int status) {
+    record(commandId, nodeId, status, null);
+  }
+
+  /**
+   * Return the number of group commands still waiting for acknowledgements.
+   *
+   * @return the number of pending group commands
+   */
+  public int size() {
+    return pending.size();
+  }
+
+  private boolean record(int commandId, int nodeId, int status, String message) {
+    Pending command = pending.get(commandId);
+    if (command == null) {
+      return false;
+    }
+    GroupCommandResultBody result;
+    synchronized (command) {
+      if (!command.results.containsKey(nodeId) || command.results.get(nodeId) != null) {
+        // Not a target, or already answered
+        return false;
+      }
+      command.results.put(nodeId, new GroupCommandResultBody.NodeResult(nodeId, status, message));
+      if (--command.outstanding > 0) {
+        return true;
+      }
+      result = finish(command);
+    }
+    deliver(command, result);
+    return true;
+  }
+
+  private void expire(Pending command) {
+    GroupCommandResultBody result;
+    synchronized (command) {
+      if (command.outstanding == 0) {
+        return;
+      }
+      command.results.replaceAll((nodeId, r) -> r != null ? r
+          : new GroupCommandResultBody.NodeResult(nodeId, GroupCommandResultBody.STATUS_TIMEOUT,
+              null));
+      command.outstanding = 0;
+      result = finish(command);
+    }
+    deliver(command, result);
+  }
+
+  /**
+   * Build the result and stop tracking. Called with the command's lock held.
+   */
+  private GroupCommandResultBody finish(Pending command) {
+    pending.remove(command.commandId, command);
+    if (command.timeout != null) {
+      command.timeout.cancel(false);
+    }
+    List<GroupCommandResultBody.NodeResult> results = new ArrayList<>(command.results.values());
+    boolean ok = results.stream().allMatch(r -> r.status() == 1);
+    return new GroupCommandResultBody(command.requestId, ok ? 1 : 0, results);
+  }
+
+  private void deliver(Pending command, GroupCommandResultBody result) {
+    try {
+      sender.send(command.cpId, result);
+    } catch (IOException e) {
+      System.out.println("Failed to send group command result to CP " + command.cpId);
+    }
+  }
+
+  private synchronized ScheduledThreadPoolExecutor timer() {
+    if (timer == null) {
+      timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+        Thread thread = new Thread(runnable, "sfp-group-commands");
+        thread.setDaemon(true);
+        return thread;
+      });
+      timer.setRemoveOnCancelPolicy(true);
+    }
+    return timer;
+  }
+
+  /**
+   * A group command and the results of its targets, {@code null} while outstanding.
+   */
+  private static final class Pending {
+    private final int cpId;
+    private final int requestId;
+    private final int commandId;
+    private final Map<Integer, GroupCommandResultBody.NodeResult> results = new TreeMap<>();
+    private int outstanding;
+    private ScheduledFuture<?> timeout;
+
+    private Pending(int cpId, int requestId, int commandId, Collection<Integer> targets) {
+      this.cpId = cpId;
+      this.requestId = requestId;
+      this.commandId = commandId;
+      for (int nodeId : targets) {
+        results.put(nodeId, null);
+      }
+      this.outstanding = results.size();
+    }
+  }
+}
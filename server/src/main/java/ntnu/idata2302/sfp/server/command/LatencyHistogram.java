@@ -0,0 +1,112 @@
+package ntnu.idata2302.sfp.server.command;
+
+/**
+ * Fixed-size histogram of latencies.
+ *
+ * <p>Buckets grow geometrically: every power of two of microseconds is split
+ * into {@value #SUB_BUCKETS} buckets, so a recorded value is known to within
+ * 25% whatever its magnitude, from one microsecond to over an hour. The
+ * histogram costs the same few hundred bytes however many values it holds.</p>
+ *
+ * <p>Methods are synchronized; recording is constant time.</p>
+ */
+public class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 2;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int OCTAVES = 32;
+
+  private final long[] counts = new long[OCTAVES * SUB_BUCKETS];
+  private long count;
+  private long sumMicros;
+  private long maxMicros;
+
+  /**
+   * Record one latency.
+   *
+   * @param nanos the latency in nanoseconds
+   */
+  public synchronized void record(long nanos) {
+    long micros = Math.max(0, nanos / 1000);
+    counts[index(micros)]++;
+    count++;
+    sumMicros += micros;
+    maxMicros = Math.max(maxMicros, micros);
+  }
+
+  /**
+   * Return the number of recorded latencies.
+   *
+   * @return the count
+   */
+  public synchronized long count() {
+    return count;
+  }
+
+  /**
+   * Return the mean latency.
+   *
+   * @return the mean in milliseconds, or 0 if nothing was recorded
+   */
+  public synchronized double meanMillis() {
+    return count == 0 ? 0 : sumMicros / 1000.0 / count;
+  }
+
+  /**
+   * Return the highest recorded latency.
+   *
+   * @return the maximum in milliseconds, or 0 if nothing was recorded
+   */
+  public synchronized double maxMillis() {
+    return maxMicros / 1000.0;
+  }
+
+  /**
+   * Return a percentile of the recorded latencies, as the upper bound of the
+   * bucket it falls in, capped at the maximum.
+   *
+   * @param percentile the percentile, from 0 to 100
+   * @return the latency in milliseconds, or 0 if nothing was recorded
+   */
+  public synchronized double percentileMillis(double percentile) {
+    if (count == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(count * Math.min(100, percentile) / 100.0));
+    long seen = 0;
+    for (int i = 0; i < counts.length; i++) {
+      seen += counts[i];
+      if (seen >= rank) {
+        return Math.min(upperBound(i), maxMicros) / 1000.0;
+      }
+    }
+    return maxMillis();
+  }
+
+  /**
+   * Bucket of a value: values below {@value #SUB_BUCKETS} get a bucket each,
+   * larger ones are split by their highest bit and the bits just below it.
+   */
+  private static int index(long micros) {
+    if (micros < SUB_BUCKETS) {
+      return (int) micros;
+    }
+    int octave = 63 - Long.numberOfLeadingZeros(micros);
+    int sub = (int) (micros >>> (octave - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    return Math.min(OCTAVES * SUB_BUCKETS - 1,
+        (octave - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub);
+  }
+
+  /**
+   * Largest value falling in a bucket.
+   */
+  private static long upperBound(int index) {
+    if (index < SUB_BUCKETS) {
+      return index;
+    }
+    int octave = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+    int sub = index % SUB_BUCKETS;
+    long low = (1L << octave) + ((long) sub << (octave - SUB_BUCKET_BITS));
+    return low + (1L << (octave - SUB_BUCKET_BITS)) - 1;
+  }
+}
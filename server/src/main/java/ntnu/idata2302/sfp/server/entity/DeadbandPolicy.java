@@ -0,0 +1,86 @@
+package ntnu.idata2302.sfp.server.entity;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import ntnu.idata2302.sfp.library.body.subscribe.SubscribeBody;
+
+/**
+ * Change thresholds and heartbeat of a subscription.
+ *
+ * <p>Policies are value objects, so subscribers with identical settings can
+ * share one evaluation per report.</p>
+ *
+ * @param sensors          thresholds per sensor id
+ * @param fallback         threshold of sensors without their own entry;
+ *                         {@code null} forwards them on every report
+ * @param maxSilenceMillis longest time without a delivery before the full
+ *                         report is forwarded; 0 for no heartbeat
+ */
+public record DeadbandPolicy(Map<String, Threshold> sensors, Threshold fallback,
+                             long maxSilenceMillis) {
+
+  /**
+   * Create a policy from the deadband settings of a SUBSCRIBE.
+   *
+   * @param deadbands        the deadbands (may be null)
+   * @param maxSilenceMillis the maximum silence (may be null)
+   * @return the policy, or {@code null} if no deadband or heartbeat is set
+   */
+  public static DeadbandPolicy of(List<SubscribeBody.Deadband> deadbands,
+                                  Integer maxSilenceMillis) {
+    long silence = maxSilenceMillis == null ? 0 : Math.max(0, maxSilenceMillis);
+    if ((deadbands == null || deadbands.isEmpty()) && silence == 0) {
+      return null;
+    }
+    Map<String, Threshold> sensors = new HashMap<>();
+    Threshold fallback = null;
+    if (deadbands != null) {
+      for (SubscribeBody.Deadband deadband : deadbands) {
+        Threshold threshold = new Threshold(deadband.absolute(), deadband.percent());
+        if (deadband.sensorId() == null) {
+          fallback = threshold;
+        } else {
+          sensors.put(deadband.sensorId(), threshold);
+        }
+      }
+    }
+    return new DeadbandPolicy(Map.copyOf(sensors), fallback, silence);
+  }
+
+  /**
+   * Return the threshold of a sensor.
+   *
+   * @param sensorId the sensor id
+   * @return the threshold, or {@code null} if the sensor is forwarded on every report
+   */
+  public Threshold thresholdFor(String sensorId) {
+    return sensors.getOrDefault(sensorId, fallback);
+  }
+
+  /**
+   * Change threshold of a sensor.
+   *
+   * @param absolute absolute limit (may be null)
+   * @param percent  limit in percent of the last delivered value (may be null)
+   */
+  public record Threshold(Double absolute, Double percent) {
+
+    /**
+     * Return whether a value left the deadband around the last delivered value.
+     *
+     * @param last  the last delivered value
+     * @param value the new value
+     * @return {@code true} if the change exceeds a limit, or the value changed
+     *         at all when no limit is set
+     */
+    public boolean crossed(double last, double value) {
+      double delta = Math.abs(value - last);
+      if (absolute == null && percent == null) {
+        return delta > 0;
+      }
+      return (absolute != null && delta > absolute)
+          || (percent != null && delta > Math.abs(last) * percent / 100);
+    }
+  }
+}
@@ -0,0 +1,34 @@
+package ntnu.idata2302.sfp.server.entity;
+
+import java.util.List;
+import ntnu.idata2302.sfp.library.node.NodeDescriptor;
+
+/**
+ * The state of a disconnected node kept by the server until the node resumes
+ * its session or the grace period runs out.
+ *
+ * <p>The subscription list is mutable; entries pointing at a node whose own
+ * parked session expires are removed so they are not restored later.</p>
+ *
+ * @param nodeId          the id the node held before disconnecting
+ * @param descriptor      the registered descriptor of the node (may be {@code null})
+ * @param subscriptions   every subscription the node took part in, as control panel or sensor
+ * @param expiresAtMillis wall-clock time after which the session can no longer be resumed
+ */
+public record ParkedSession(
+    int nodeId,
+    NodeDescriptor descriptor,
+    List<Subscription> subscriptions,
+    long expiresAtMillis
+) {
+
+  /**
+   * Return whether the grace period of this session has run out.
+   *
+   * @param nowMillis the current wall-clock time
+   * @return {@code true} if the session can no longer be resumed
+   */
+  public boolean isExpired(long nowMillis) {
+    return nowMillis >= expiresAtMillis;
+  }
+}
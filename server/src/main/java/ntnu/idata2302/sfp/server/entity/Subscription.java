@@ -5,13 +5,25 @@ import java.util.Objects;
 /**
  * Represents a subscription between a control-panel node and a sensor node.
  * A Subscription indicates that a given control-panel (cpId) is subscribed
- * to updates from a specific sensor node (snId).
+ * to updates from a specific sensor node (snId), limited to the fields
+ * selected by its {@link SubscriptionFilter}, to readings that left their
+ * {@link DeadbandPolicy} deadbands and, if a minimum interval is set, to one
+ * conflated delivery per interval.
+ *
+ * <p>An exclusion is a direct entry that delivers nothing: it records that a
+ * control panel unsubscribed from a sensor node it still receives through a
+ * group subscription, and takes precedence over that group subscription like
+ * any direct subscription.</p>
  */
 
 public class Subscription {
 
   private int cpId; // Control-panel node ID
   private int snId; // Sensor node ID
+  private SubscriptionFilter filter = SubscriptionFilter.ALL;
+  private long minIntervalMillis; // 0 delivers every report
+  private DeadbandPolicy deadband; // null forwards every reading
+  private boolean exclusion; // true suppresses the node's group subscriptions
 
   /**
    * Creates an empty Subscription
@@ -32,6 +44,73 @@ public class Subscription {
     this.snId = snId;
   }
 
+  /**
+   * Creates a Subscription limited to some fields of the sensor node's reports.
+   *
+   * @param cpId   the ID of the control-panel node
+   * @param snId   the ID of the sensor node being subscribed to
+   * @param filter the fields to forward
+   */
+
+  public Subscription(int cpId, int snId, SubscriptionFilter filter) {
+    this(cpId, snId);
+    this.filter = filter;
+  }
+
+  /**
+   * Creates a filtered, rate-limited Subscription.
+   *
+   * @param cpId              the ID of the control-panel node
+   * @param snId              the ID of the sensor node being subscribed to
+   * @param filter            the fields to forward
+   * @param minIntervalMillis minimum time between deliveries; 0 delivers every report
+   */
+
+  public Subscription(int cpId, int snId, SubscriptionFilter filter, long minIntervalMillis) {
+    this(cpId, snId, filter);
+    this.minIntervalMillis = minIntervalMillis;
+  }
+
+  /**
+   * Creates a filtered, rate-limited Subscription with deadbands.
+   *
+   * @param cpId              the ID of the control-panel node
+   * @param snId              the ID of the sensor node being subscribed to
+   * @param filter            the fields to forward
+   * @param minIntervalMillis minimum time between deliveries; 0 delivers every report
+   * @param deadband          the deadband policy, or {@code null} for none
+   */
+
+  public Subscription(int cpId, int snId, SubscriptionFilter filter, long minIntervalMillis,
+                      DeadbandPolicy deadband) {
+    this(cpId, snId, filter, minIntervalMillis);
+    this.deadband = deadband;
+  }
+
+  /**
+   * Creates an exclusion of a sensor node from a control panel's group subscriptions.
+   *
+   * @param cpId the ID of the control-panel node
+   * @param snId the ID of the sensor node no longer delivered
+   * @return the exclusion
+   */
+
+  public static Subscription exclusion(int cpId, int snId) {
+    Subscription subscription = new Subscription(cpId, snId);
+    subscription.exclusion = true;
+    return subscription;
+  }
+
+  /**
+   * Returns whether this entry excludes the sensor node instead of subscribing to it.
+   *
+   * @return {@code true} if no reports are delivered through this entry
+   */
+
+  public boolean isExclusion() {
+    return exclusion;
+  }
+
   /**
    * Returns the ID of the control-panel node.
    *
@@ -66,12 +145,84 @@ public class Subscription {
     this.snId = snId;
   }
 
+  /**
+   * Returns the fields this subscription forwards.
+   *
+   * @return the filter
+   */
+
+  public SubscriptionFilter getFilter() {
+    return filter;
+  }
+
+  /**
+   * Sets the fields this subscription forwards.
+   *
+   * @param filter the new filter
+   */
+
+  public void setFilter(SubscriptionFilter filter) {
+    this.filter = filter;
+  }
+
+  /**
+   * Returns the minimum time between deliveries.
+   *
+   * @return the interval in milliseconds; 0 if every report is delivered
+   */
+
+  public long getMinIntervalMillis() {
+    return minIntervalMillis;
+  }
+
+  /**
+   * Sets the minimum time between deliveries.
+   *
+   * @param minIntervalMillis the interval in milliseconds; 0 delivers every report
+   */
+
+  public void setMinIntervalMillis(long minIntervalMillis) {
+    this.minIntervalMillis = minIntervalMillis;
+  }
+
+  /**
+   * Returns the deadband policy.
+   *
+   * @return the policy, or {@code null} if every reading is forwarded
+   */
+
+  public DeadbandPolicy getDeadband() {
+    return deadband;
+  }
+
+  /**
+   * Sets the deadband policy.
+   *
+   * @param deadband the policy, or {@code null} to forward every reading
+   */
+
+  public void setDeadband(DeadbandPolicy deadband) {
+    this.deadband = deadband;
+  }
+
+  /**
+   * Creates a copy of this subscription for another sensor node, for example
+   * one of the nodes of a bulk subscription.
+   *
+   * @param snId the sensor node
+   * @return the copy, with the same control panel and delivery options
+   */
+
+  public Subscription forMember(int snId) {
+    return new Subscription(cpId, snId, filter, minIntervalMillis, deadband);
+  }
+
   /**
    * Compares this Subscription with another
    * object for equality.
    * Two subscriptions are equal if they have the
    * same control-panel ID
-   * and sensor-node ID.
+   * and sensor-node ID; delivery options are not compared.
    *
    * @param o the object to compare with
    * @return true if both objects represent the same subscription, false otherwise
@@ -113,6 +264,10 @@ public class Subscription {
     return "Subscription{"
       + "cpId=" + cpId
       + ", snId=" + snId
+      + ", filter=" + filter
+      + ", minIntervalMillis=" + minIntervalMillis
+      + ", deadband=" + deadband
+      + ", exclusion=" + exclusion
       + '}';
   }
 }
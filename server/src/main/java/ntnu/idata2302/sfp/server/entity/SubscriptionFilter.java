@@ -0,0 +1,86 @@
+package ntnu.idata2302.sfp.server.entity;
+
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import ntnu.idata2302.sfp.library.body.data.DataReportBody;
+
+/**
+ * The sensors and actuators a subscription forwards.
+ *
+ * <p>Filters are value objects: two subscriptions selecting the same ids have
+ * equal filters regardless of order, so the broker can project and encode a
+ * report once per distinct filter instead of once per subscriber.</p>
+ *
+ * @param sensors   sensor ids to forward; {@code null} for all
+ * @param actuators actuator ids to forward; {@code null} for all
+ */
+public record SubscriptionFilter(Set<String> sensors, Set<String> actuators) {
+
+  /** Filter forwarding every sensor and actuator. */
+  public static final SubscriptionFilter ALL = new SubscriptionFilter(null, null);
+
+  /**
+   * Create a filter from the id lists of a SUBSCRIBE. Without either list the
+   * filter forwards everything; otherwise a missing list selects nothing.
+   *
+   * @param sensors   sensor ids (may be null)
+   * @param actuators actuator ids (may be null)
+   * @return the filter
+   */
+  public static SubscriptionFilter of(List<String> sensors, List<String> actuators) {
+    if (sensors == null && actuators == null) {
+      return ALL;
+    }
+    return new SubscriptionFilter(
+        sensors == null ? Set.of() : Set.copyOf(sensors),
+        actuators == null ? Set.of() : Set.copyOf(actuators));
+  }
+
+  /**
+   * Return whether the filter forwards everything.
+   *
+   * @return {@code true} if neither sensors nor actuators are restricted
+   */
+  public boolean isAll() {
+    return sensors == null && actuators == null;
+  }
+
+  /**
+   * Project a report down to the selected fields.
+   *
+   * @param report the report
+   * @return the projected report, or {@code null} if nothing selected is in it
+   */
+  public DataReportBody apply(DataReportBody report) {
+    if (isAll()) {
+      return report;
+    }
+    List<DataReportBody.SensorReading> readings =
+        select(report.sensors(), sensors, DataReportBody.SensorReading::id);
+    List<DataReportBody.ActuatorState> states =
+        select(report.actuators(), actuators, DataReportBody.ActuatorState::id);
+    List<DataReportBody.AggregateValue> aggregates =
+        select(report.aggregates(), sensors, DataReportBody.AggregateValue::id);
+    if (readings == null && states == null && aggregates == null) {
+      return null;
+    }
+    return new DataReportBody(readings, states, aggregates);
+  }
+
+  /**
+   * Keep the entries whose id is selected.
+   *
+   * @return the entries, or {@code null} if none are left
+   */
+  private static <T> List<T> select(List<T> entries, Set<String> ids, Function<T, String> id) {
+    if (entries == null || entries.isEmpty()) {
+      return null;
+    }
+    if (ids == null) {
+      return entries;
+    }
+    List<T> selected = entries.stream().filter(e -> ids.contains(id.apply(e))).toList();
+    return selected.isEmpty() ? null : selected;
+  }
+}
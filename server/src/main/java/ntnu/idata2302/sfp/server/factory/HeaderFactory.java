@@ -62,4 +62,28 @@ public class HeaderFactory {
                   UUID.randomUUID()              // Unique message identifier
     );
   }
+
+  /**
+   * Creates a header for a packet the server sends on behalf of another node.
+   *
+   * <p>Used when the server answers from its own state with data that belongs
+   * to a sensor node (for example a cached DATA_REPORT), so the recipient
+   * attributes the packet to that node rather than to the server.</p>
+   *
+   * @param type     The message type being sent
+   * @param sourceId The logical ID of the node the data belongs to
+   * @param targetId The logical ID of the recipient node
+   * @return A configured {@link Header} instance
+   */
+  public static Header relayHeader(MessageTypes type, int sourceId, int targetId) {
+    return new Header(
+           new byte[]{ 'S', 'F', 'P' },   // Protocol signature
+           (byte) 1,                      // Default server protocol version
+           type,                          // Message type
+           sourceId,                      // Source = node the data belongs to
+           targetId,                      // Destination
+           0,                             // Updated when packet is encoded
+           UUID.randomUUID()              // Unique message identifier
+    );
+  }
 }
@@ -0,0 +1,199 @@
+package ntnu.idata2302.sfp.server.group;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import ntnu.idata2302.sfp.server.entity.Subscription;
+
+/**
+ * Group memberships of sensor nodes and the control panels subscribed to each group.
+ *
+ * <p>Two indexes are kept in both directions: group to member nodes and node
+ * to groups, and group to subscribing control panels. A node joining a group
+ * can therefore be matched with the group's subscribers directly, without
+ * looking at any other group. Each group subscriber is stored as a template
+ * {@link Subscription} carrying its delivery options; the template is not
+ * copied per member, so subscribing to a group of any size is one entry.</p>
+ *
+ * <p>Changes are not thread-safe on their own; the server context guards
+ * them. The groups of a node and the subscribers of a group are kept as
+ * immutable snapshots that are replaced on change, so report fan-out can read
+ * them through {@link #groupsOf(int)} and {@link #subscribersOf(String)}
+ * without taking that lock.</p>
+ */
+public class GroupRegistry {
+
+  private final Map<String, Set<Integer>> members = new HashMap<>();
+  private final Map<Integer, List<String>> groupsOf = new ConcurrentHashMap<>();
+  private final Map<String, Map<Integer, Subscription>> subscribers = new ConcurrentHashMap<>();
+
+  /**
+   * Add a node to groups.
+   *
+   * @param nodeId the node id
+   * @param groups the group names
+   * @return the groups the node was not a member of before
+   */
+  public List<String> join(int nodeId, Collection<String> groups) {
+    List<String> current = groupsOf.getOrDefault(nodeId, List.of());
+    List<String> joined = new ArrayList<>();
+    for (String group : groups) {
+      if (!current.contains(group) && !joined.contains(group)) {
+        members.computeIfAbsent(group, g -> new HashSet<>()).add(nodeId);
+        joined.add(group);
+      }
+    }
+    if (!joined.isEmpty()) {
+      List<String> updated = new ArrayList<>(current);
+      updated.addAll(joined);
+      groupsOf.put(nodeId, List.copyOf(updated));
+    }
+    return joined;
+  }
+
+  /**
+   * Remove a node from groups.
+   *
+   * @param nodeId the node id
+   * @param groups the group names
+   * @return the groups the node was a member of
+   */
+  public List<String> leave(int nodeId, Collection<String> groups) {
+    List<String> left = new ArrayList<>();
+    List<String> current = groupsOf.get(nodeId);
+    if (current == null) {
+      return left;
+    }
+    List<String> remaining = new ArrayList<>(current);
+    for (String group : groups) {
+      if (remaining.remove(group)) {
+        removeMember(group, nodeId);
+        left.add(group);
+      }
+    }
+    if (remaining.isEmpty()) {
+      groupsOf.remove(nodeId);
+    } else if (!left.isEmpty()) {
+      groupsOf.put(nodeId, List.copyOf(remaining));
+    }
+    return left;
+  }
+
+  /**
+   * Return the groups of a node.
+   *
+   * <p>Safe to call without the lock guarding changes.</p>
+   *
+   * @param nodeId the node id
+   * @return an immutable list of the group names in the order they were
+   *         joined; empty if none
+   */
+  public List<String> groupsOf(int nodeId) {
+    return groupsOf.getOrDefault(nodeId, List.of());
+  }
+
+  /**
+   * Return the members of a group.
+   *
+   * @param group the group name
+   * @return the member node ids; empty if the group has none
+   */
+  public Set<Integer> members(String group) {
+    Set<Integer> nodes = members.get(group);
+    return nodes == null ? Set.of() : Set.copyOf(nodes);
+  }
+
+  /**
+   * Register a control panel as subscriber of a group, replacing its earlier
+   * subscription to the same group.
+   *
+   * @param group    the group name
+   * @param template the subscription whose control panel and delivery options apply
+   *                 to every member
+   */
+  public void subscribe(String group, Subscription template) {
+    Map<Integer, Subscription> updated =
+        new LinkedHashMap<>(subscribers.getOrDefault(group, Map.of()));
+    updated.put(template.getCpId(), template);
+    subscribers.put(group, Collections.unmodifiableMap(updated));
+  }
+
+  /**
+   * Remove a control panel as subscriber of a group.
+   *
+   * @param group the group name
+   * @param cpId  the control panel id
+   * @return the removed template, or {@code null} if the panel was not subscribed
+   */
+  public Subscription unsubscribe(String group, int cpId) {
+    Map<Integer, Subscription> bySubscriber = subscribers.get(group);
+    if (bySubscriber == null || !bySubscriber.containsKey(cpId)) {
+      return null;
+    }
+    Map<Integer, Subscription> updated = new LinkedHashMap<>(bySubscriber);
+    Subscription removed = updated.remove(cpId);
+    if (updated.isEmpty()) {
+      subscribers.remove(group);
+    } else {
+      subscribers.put(group, Collections.unmodifiableMap(updated));
+    }
+    return removed;
+  }
+
+  /**
+   * Return the subscription of a control panel to a group.
+   *
+   * @param group the group name
+   * @param cpId  the control panel id
+   * @return the template, or {@code null} if the panel is not subscribed
+   */
+  public Subscription subscription(String group, int cpId) {
+    Map<Integer, Subscription> bySubscriber = subscribers.get(group);
+    return bySubscriber == null ? null : bySubscriber.get(cpId);
+  }
+
+  /**
+   * Return the subscribers of a group.
+   *
+   * <p>Safe to call without the lock guarding changes.</p>
+   *
+   * @param group the group name
+   * @return an immutable view of the templates in subscription order; empty if
+   *         the group has no subscribers
+   */
+  public Collection<Subscription> subscribersOf(String group) {
+    Map<Integer, Subscription> bySubscriber = subscribers.get(group);
+    return bySubscriber == null ? List.of() : bySubscriber.values();
+  }
+
+  /**
+   * Forget a node both as group member and as group subscriber.
+   *
+   * @param nodeId the node id
+   */
+  public void removeNode(int nodeId) {
+    List<String> groups = groupsOf.remove(nodeId);
+    if (groups != null) {
+      for (String group : groups) {
+        removeMember(group, nodeId);
+      }
+    }
+    for (String group : List.copyOf(subscribers.keySet())) {
+      unsubscribe(group, nodeId);
+    }
+  }
+
+  private void removeMember(String group, int nodeId) {
+    Set<Integer> nodes = members.get(group);
+    if (nodes != null && nodes.remove(nodeId) && nodes.isEmpty()) {
+      members.remove(group);
+    }
+  }
+}
@@ -0,0 +1,174 @@
+package ntnu.idata2302.sfp.server.history;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import ntnu.idata2302.sfp.library.body.data.DataReportBody;
+
+/**
+ * Recent sensor history kept in memory by the broker.
+ *
+ * <p>Every sensor of every reporting node gets a {@link SensorHistory} ring
+ * buffer. Memory per node is bounded by a byte budget: when a node first
+ * reports, the budget is split evenly between the sensors in that report, and
+ * sensors that show up later only get a buffer while budget is left. Samples
+ * are also dropped once they are older than the maximum age.</p>
+ *
+ * <p>Samples are stamped with the time the broker received the report, so a
+ * series stays ordered even when node clocks drift.</p>
+ *
+ * <p>The budget and age default to {@link #DEFAULT_NODE_BUDGET_BYTES} and
+ * {@link #DEFAULT_MAX_AGE_MILLIS} and can be overridden with the system
+ * properties {@code sfp.history.nodeBudgetBytes} and
+ * {@code sfp.history.maxAgeMillis}.</p>
+ */
+public class HistoryStore {
+
+  /** Default memory budget per sensor node, in bytes. */
+  public static final int DEFAULT_NODE_BUDGET_BYTES = 64 * 1024;
+
+  /** Default maximum age of a retained sample, in milliseconds. */
+  public static final long DEFAULT_MAX_AGE_MILLIS = 60 * 60 * 1000L;
+
+  // One long timestamp and one double value
+  private static final int BYTES_PER_SAMPLE = 16;
+  private static final int MIN_SERIES_CAPACITY = 16;
+
+  private final Map<Integer, NodeHistory> nodes = new ConcurrentHashMap<>();
+  private final int nodeBudgetBytes;
+  private final long maxAgeMillis;
+
+  /**
+   * Create a store with the default budget and maximum age.
+   */
+  public HistoryStore() {
+    this(DEFAULT_NODE_BUDGET_BYTES, DEFAULT_MAX_AGE_MILLIS);
+  }
+
+  /**
+   * Create a store with a custom budget and maximum age.
+   *
+   * @param nodeBudgetBytes memory budget per sensor node, in bytes
+   * @param maxAgeMillis    maximum age of a retained sample, in milliseconds
+   */
+  public HistoryStore(int nodeBudgetBytes, long maxAgeMillis) {
+    this.nodeBudgetBytes = nodeBudgetBytes;
+    this.maxAgeMillis = maxAgeMillis;
+  }
+
+  /**
+   * Create a store configured from system properties, falling back to the defaults.
+   *
+   * @return a new store
+   */
+  public static HistoryStore fromSystemProperties() {
+    return new HistoryStore(
+        Integer.getInteger("sfp.history.nodeBudgetBytes", DEFAULT_NODE_BUDGET_BYTES),
+        Long.getLong("sfp.history.maxAgeMillis", DEFAULT_MAX_AGE_MILLIS));
+  }
+
+  /**
+   * Record the sensor readings of a DATA_REPORT.
+   *
+   * @param sensorNodeId   the id of the reporting node
+   * @param report         the received report; readings without a value are skipped
+   * @param receivedMillis the time the broker received the report
+   */
+  public void record(int sensorNodeId, DataReportBody report, long receivedMillis) {
+    List<DataReportBody.SensorReading> readings = report.sensors();
+    if (readings == null || readings.isEmpty()) {
+      return;
+    }
+
+    NodeHistory node = nodes.computeIfAbsent(sensorNodeId,
+        id -> new NodeHistory(seriesCapacity(readings.size())));
+
+    for (DataReportBody.SensorReading reading : readings) {
+      if (reading.id() == null || reading.value() == null) {
+        continue;
+      }
+      SensorHistory series = node.seriesFor(reading.id());
+      if (series != null) {
+        series.append(receivedMillis, reading.value());
+      }
+    }
+  }
+
+  /**
+   * Read history of one sensor node.
+   *
+   * @param sensorNodeId the node id
+   * @param sensors      sensor ids to include; {@code null} for all
+   * @param fromMillis   inclusive start of the range; {@code null} for unbounded
+   * @param toMillis     inclusive end of the range; {@code null} for unbounded
+   * @param maxPoints    maximum points per sensor; {@code null} for no downsampling
+   * @return samples per sensor id in first-reported order; empty if the node is unknown
+   */
+  public Map<String, Samples> query(int sensorNodeId, List<String> sensors,
+                                    Long fromMillis, Long toMillis, Integer maxPoints) {
+    Map<String, Samples> result = new LinkedHashMap<>();
+    NodeHistory node = nodes.get(sensorNodeId);
+    if (node == null) {
+      return result;
+    }
+
+    long from = fromMillis == null ? Long.MIN_VALUE : fromMillis;
+    long to = toMillis == null ? Long.MAX_VALUE : toMillis;
+    for (String sensorId : node.order) {
+      if (sensors != null && !sensors.contains(sensorId)) {
+        continue;
+      }
+      Samples samples = node.series.get(sensorId).read(from, to);
+      result.put(sensorId, maxPoints == null ? samples : samples.downsample(maxPoints));
+    }
+    return result;
+  }
+
+  /**
+   * Drop the history of a sensor node.
+   *
+   * @param sensorNodeId the node id
+   */
+  public void remove(int sensorNodeId) {
+    nodes.remove(sensorNodeId);
+  }
+
+  private int seriesCapacity(int sensorCount) {
+    return Math.max(MIN_SERIES_CAPACITY, nodeBudgetBytes / BYTES_PER_SAMPLE / sensorCount);
+  }
+
+  /**
+   * The series of one node, limited to as many as fit in the budget.
+   */
+  private final class NodeHistory {
+    private final Map<String, SensorHistory> series = new ConcurrentHashMap<>();
+    // Sensor ids in the order they first reported, for stable query results
+    private final List<String> order = new CopyOnWriteArrayList<>();
+    private final int capacity;
+    private final int maxSeries;
+
+    NodeHistory(int capacity) {
+      this.capacity = capacity;
+      this.maxSeries = Math.max(1, nodeBudgetBytes / BYTES_PER_SAMPLE / capacity);
+    }
+
+    SensorHistory seriesFor(String sensorId) {
+      SensorHistory existing = series.get(sensorId);
+      if (existing != null) {
+        return existing;
+      }
+      synchronized (this) {
+        existing = series.get(sensorId);
+        if (existing != null || order.size() >= maxSeries) {
+          return existing;
+        }
+        SensorHistory created = new SensorHistory(capacity, maxAgeMillis);
+        series.put(sensorId, created);
+        order.add(sensorId);
+        return created;
+      }
+    }
+  }
+}
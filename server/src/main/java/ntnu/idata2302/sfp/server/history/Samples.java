@@ -0,0 +1,54 @@
+package ntnu.idata2302.sfp.server.history;
+
+/**
+ * A run of samples of one sensor in column form, ordered by time.
+ *
+ * @param timestamps sample times in epoch milliseconds
+ * @param values     sample values; same length as {@code timestamps}
+ */
+public record Samples(long[] timestamps, double[] values) {
+
+  /** Samples without any points. */
+  public static final Samples EMPTY = new Samples(new long[0], new double[0]);
+
+  /**
+   * Return the number of samples.
+   *
+   * @return the sample count
+   */
+  public int size() {
+    return timestamps.length;
+  }
+
+  /**
+   * Reduce the samples to at most {@code maxPoints} points.
+   *
+   * <p>The samples are split into {@code maxPoints} runs of (nearly) equal
+   * length; each run becomes one point at the time of its first sample with
+   * the mean of its values.</p>
+   *
+   * @param maxPoints the maximum number of points to return; values below 1 are treated as 1
+   * @return these samples if already short enough, otherwise the downsampled samples
+   */
+  public Samples downsample(int maxPoints) {
+    int n = size();
+    int buckets = Math.max(1, maxPoints);
+    if (n <= buckets) {
+      return this;
+    }
+
+    long[] ts = new long[buckets];
+    double[] vs = new double[buckets];
+    for (int b = 0; b < buckets; b++) {
+      int start = (int) ((long) b * n / buckets);
+      int end = (int) ((long) (b + 1) * n / buckets);
+      double sum = 0;
+      for (int i = start; i < end; i++) {
+        sum += values[i];
+      }
+      ts[b] = timestamps[start];
+      vs[b] = sum / (end - start);
+    }
+    return new Samples(ts, vs);
+  }
+}
@@ -0,0 +1,173 @@
+package ntnu.idata2302.sfp.server.history;
+
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Ring buffer holding the most recent samples of one sensor.
+ *
+ * <p>Samples live in parallel primitive arrays. The arrays start small and
+ * double until they reach the fixed capacity, after which each new sample
+ * overwrites the oldest one. Samples older than the configured maximum age
+ * are dropped as new ones arrive.</p>
+ *
+ * <p>Appends take a short write lock. Reads are optimistic: they copy the
+ * requested range without locking and only fall back to a read lock if an
+ * append raced with the copy, so queries do not hold up ingestion.</p>
+ */
+class SensorHistory {
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  private final StampedLock lock = new StampedLock();
+  private final int capacity;
+  private final long maxAgeMillis;
+
+  private long[] timestamps;
+  private double[] values;
+  private int head; // physical index of the oldest sample
+  private int size;
+
+  /**
+   * Create an empty history.
+   *
+   * @param capacity     maximum number of samples kept
+   * @param maxAgeMillis maximum age of a sample relative to the newest one
+   */
+  SensorHistory(int capacity, long maxAgeMillis) {
+    this.capacity = capacity;
+    this.maxAgeMillis = maxAgeMillis;
+    int initial = Math.min(capacity, INITIAL_CAPACITY);
+    this.timestamps = new long[initial];
+    this.values = new double[initial];
+  }
+
+  /**
+   * Append a sample, evicting the oldest one when full and every sample
+   * that has become too old.
+   *
+   * @param timestampMillis sample time; expected not to go backwards
+   * @param value           sample value
+   */
+  void append(long timestampMillis, double value) {
+    long stamp = lock.writeLock();
+    try {
+      long cutoff = timestampMillis - maxAgeMillis;
+      while (size > 0 && timestamps[head] < cutoff) {
+        head = (head + 1) % timestamps.length;
+        size--;
+      }
+      if (size == timestamps.length && timestamps.length < capacity) {
+        grow();
+      }
+
+      int tail = (head + size) % timestamps.length;
+      timestamps[tail] = timestampMillis;
+      values[tail] = value;
+      if (size == timestamps.length) {
+        head = (head + 1) % timestamps.length;
+      } else {
+        size++;
+      }
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Copy the samples within a time range.
+   *
+   * @param fromMillis inclusive start of the range
+   * @param toMillis   inclusive end of the range
+   * @return the samples in the range, oldest first
+   */
+  Samples read(long fromMillis, long toMillis) {
+    long stamp = lock.tryOptimisticRead();
+    if (stamp != 0) {
+      try {
+        Samples samples = copy(fromMillis, toMillis);
+        if (lock.validate(stamp)) {
+          return samples;
+        }
+      } catch (RuntimeException raced) {
+        // Torn read while an append resized the arrays; retry under the lock
+      }
+    }
+
+    stamp = lock.readLock();
+    try {
+      return copy(fromMillis, toMillis);
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  /**
+   * Return the number of samples currently held.
+   *
+   * @return the sample count
+   */
+  int size() {
+    long stamp = lock.readLock();
+    try {
+      return size;
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  private Samples copy(long fromMillis, long toMillis) {
+    long[] ts = timestamps;
+    double[] vs = values;
+    int h = head;
+    int n = Math.min(size, ts.length);
+
+    int start = lowerBound(ts, h, n, fromMillis);
+    int end = lowerBound(ts, h, n, toMillis == Long.MAX_VALUE ? toMillis : toMillis + 1);
+    if (end <= start) {
+      return Samples.EMPTY;
+    }
+
+    long[] outTs = new long[end - start];
+    double[] outVs = new double[end - start];
+    for (int i = start; i < end; i++) {
+      int p = (h + i) % ts.length;
+      outTs[i - start] = ts[p];
+      outVs[i - start] = vs[p];
+    }
+    return new Samples(outTs, outVs);
+  }
+
+  /**
+   * Find the first logical index whose timestamp is at least {@code key}.
+   */
+  private static int lowerBound(long[] ts, int head, int size, long key) {
+    int lo = 0;
+    int hi = size;
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (ts[(head + mid) % ts.length] < key) {
+        lo = mid + 1;
+      } else {
+        hi = mid;
+      }
+    }
+    return lo;
+  }
+
+  /**
+   * Double the arrays (up to the capacity), moving the oldest sample to index 0.
+   */
+  private void grow() {
+    int newLength = Math.min(capacity, timestamps.length * 2);
+    long[] ts = new long[newLength];
+    double[] vs = new double[newLength];
+    for (int i = 0; i < size; i++) {
+      int p = (head + i) % timestamps.length;
+      ts[i] = timestamps[p];
+      vs[i] = values[p];
+    }
+    timestamps = ts;
+    values = vs;
+    head = 0;
+  }
+}
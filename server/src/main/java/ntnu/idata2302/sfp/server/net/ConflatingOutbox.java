@@ -0,0 +1,230 @@
+package ntnu.idata2302.sfp.server.net;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import ntnu.idata2302.sfp.library.SmartFarmingProtocol;
+import ntnu.idata2302.sfp.library.body.data.DataReportBody;
+import ntnu.idata2302.sfp.library.header.MessageTypes;
+import ntnu.idata2302.sfp.server.cache.LastValueCache;
+import ntnu.idata2302.sfp.server.factory.HeaderFactory;
+
+/**
+ * Rate-limited report delivery for subscriptions with a minimum interval.
+ *
+ * <p>The outbox keeps one slot per (control panel, sensor node) pair. A report
+ * arriving when the interval since the last delivery has passed is delivered
+ * right away by the caller. Otherwise it is parked in the slot, merged into
+ * any report already waiting there the same way the {@link LastValueCache}
+ * merges reports, and delivered once the interval is up. A slot therefore
+ * never holds more than one pending report, however fast the node reports
+ * and however slowly the panel reads.</p>
+ *
+ * <p>Delayed deliveries are timed on one daemon timer thread, created on first
+ * use, and sent as DATA_REPORTs attributed to the sensor node. The timer never
+ * writes itself: it hands each due slot to the control panel's writer, which
+ * sends its slots one at a time on a pool of daemon threads. A panel whose
+ * link is full only holds back its own reports, and they keep merging in
+ * their slots until its writer gets to them.</p>
+ */
+public class ConflatingOutbox {
+
+  /**
+   * Destination of delayed deliveries.
+   */
+  @FunctionalInterface
+  public interface Sender {
+
+    /**
+     * Send a packet to a node.
+     *
+     * @param nodeId the destination node id
+     * @param packet the packet
+     * @throws IOException if sending fails
+     */
+    void send(int nodeId, SmartFarmingProtocol packet) throws IOException;
+  }
+
+  private final Map<Long, Slot> slots = new ConcurrentHashMap<>();
+  private final Map<Integer, Writer> writers = new ConcurrentHashMap<>();
+  private final Sender sender;
+  private ScheduledThreadPoolExecutor timer;
+  private ExecutorService writerThreads;
+
+  /**
+   * Create an outbox.
+   *
+   * @param sender where delayed reports are sent
+   */
+  public ConflatingOutbox(Sender sender) {
+    this.sender = sender;
+  }
+
+  /**
+   * Offer a report for a rate-limited subscription.
+   *
+   * @param cpId              the subscribed control panel
+   * @param snId              the reporting sensor node
+   * @param report            the report, already projected for the subscription
+   * @param minIntervalMillis the minimum time between deliveries
+   * @return {@code true} if the caller should deliver the report now;
+   *         {@code false} if it is pending in the outbox
+   */
+  public boolean offer(int cpId, int snId, DataReportBody report, long minIntervalMillis) {
+    long key = key(cpId, snId);
+    Slot slot = slots.computeIfAbsent(key, k -> new Slot());
+    synchronized (slot) {
+      long now = System.currentTimeMillis();
+      long due = slot.lastSentMillis + minIntervalMillis;
+      if (slot.pending == null && now >= due) {
+        slot.lastSentMillis = now;
+        return true;
+      }
+      slot.pending = slot.pending == null ? report : LastValueCache.merge(slot.pending, report);
+      if (!slot.scheduled) {
+        slot.scheduled = true;
+        timer().schedule(() -> writerOf(cpId).submit(() -> flush(cpId, snId, key, slot)),
+            Math.max(0, due - now), TimeUnit.MILLISECONDS);
+      }
+      return false;
+    }
+  }
+
+  /**
+   * Drop the slot of one subscription, discarding its pending report.
+   *
+   * @param cpId the control panel
+   * @param snId the sensor node
+   */
+  public void remove(int cpId, int snId) {
+    slots.remove(key(cpId, snId));
+  }
+
+  /**
+   * Drop every slot involving a node, as control panel or as sensor node.
+   *
+   * @param nodeId the node id
+   */
+  public void removeAll(int nodeId) {
+    slots.keySet().removeIf(key -> (int) (key >>> 32) == nodeId || (int) (long) key == nodeId);
+    writers.remove(nodeId);
+  }
+
+  /**
+   * Return the number of reports waiting for delivery.
+   *
+   * @return the number of pending reports
+   */
+  public int pendingCount() {
+    int count = 0;
+    for (Slot slot : slots.values()) {
+      synchronized (slot) {
+        if (slot.pending != null) {
+          count++;
+        }
+      }
+    }
+    return count;
+  }
+
+  private void flush(int cpId, int snId, long key, Slot slot) {
+    DataReportBody report;
+    // Reports merged in while the writer was busy go out now, in one report
+    synchronized (slot) {
+      report = slot.pending;
+      slot.pending = null;
+      slot.scheduled = false;
+      slot.lastSentMillis = System.currentTimeMillis();
+    }
+    // The subscription may have ended while the report was waiting
+    if (report == null || slots.get(key) != slot) {
+      return;
+    }
+    try {
+      sender.send(cpId, new SmartFarmingProtocol(
+          HeaderFactory.relayHeader(MessageTypes.DATA_REPORT, snId, cpId), report));
+    } catch (IOException | RuntimeException e) {
+      System.out.println("Failed to send conflated report to CP " + cpId + ": " + e);
+    }
+  }
+
+  private synchronized ScheduledThreadPoolExecutor timer() {
+    if (timer == null) {
+      timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+        Thread thread = new Thread(runnable, "sfp-conflating-outbox");
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+    return timer;
+  }
+
+  private Writer writerOf(int cpId) {
+    return writers.computeIfAbsent(cpId, id -> new Writer());
+  }
+
+  private synchronized ExecutorService writerThreads() {
+    if (writerThreads == null) {
+      writerThreads = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "sfp-conflating-outbox-writer");
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+    return writerThreads;
+  }
+
+  private static long key(int cpId, int snId) {
+    return ((long) cpId << 32) | (snId & 0xFFFFFFFFL);
+  }
+
+  /**
+   * Sends the due slots of one control panel, one at a time and in order.
+   */
+  private final class Writer implements Runnable {
+    // Guarded by this; a slot is queued at most once, while it is scheduled
+    private final Deque<Runnable> flushes = new ArrayDeque<>();
+    private boolean running;
+
+    void submit(Runnable flush) {
+      synchronized (this) {
+        flushes.add(flush);
+        if (running) {
+          return;
+        }
+        running = true;
+      }
+      writerThreads().execute(this);
+    }
+
+    @Override
+    public void run() {
+      while (true) {
+        Runnable flush;
+        synchronized (this) {
+          flush = flushes.poll();
+          if (flush == null) {
+            running = false;
+            return;
+          }
+        }
+        flush.run();
+      }
+    }
+  }
+
+  /**
+   * Delivery state of one subscription.
+   */
+  private static final class Slot {
+    private long lastSentMillis = Long.MIN_VALUE / 2;
+    private DataReportBody pending;
+    private boolean scheduled;
+  }
+}
@@ -0,0 +1,186 @@
+package ntnu.idata2302.sfp.server.net;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import ntnu.idata2302.sfp.library.body.data.DataReportBody;
+import ntnu.idata2302.sfp.server.entity.DeadbandPolicy;
+import ntnu.idata2302.sfp.server.entity.Subscription;
+import ntnu.idata2302.sfp.server.entity.SubscriptionFilter;
+
+/**
+ * Decides which readings of a report pass the deadbands of a subscription.
+ *
+ * <p>State is kept per group of subscriptions to the same sensor node with
+ * the same filter and {@link DeadbandPolicy}, not per subscriber: each report
+ * is evaluated once per group, and every member gets the same result. A group
+ * remembers the values it last delivered; a reading passes when it left its
+ * deadband around that value, an actuator state when it changed. Aggregates
+ * ride along whenever anything else passes. The first report of a group, and
+ * any report after the policy's maximum silence, passes in full.</p>
+ *
+ * <p>A subscriber that joins an existing group has just received the node's
+ * cached state as a snapshot, so it differs from the group's last delivered
+ * values by at most the deadbands. A group whose last subscription ended is
+ * dropped through {@link #retain(int, Collection)}, so a later subscriber with
+ * the same settings starts a fresh group instead of inheriting its values.</p>
+ */
+public class DeadbandGate {
+
+  // Groups per sensor node, so a node's groups are found without a scan
+  private final Map<Integer, Map<GroupKey, Group>> nodes = new ConcurrentHashMap<>();
+
+  /**
+   * Evaluate a report for one group.
+   *
+   * @param snId      the reporting sensor node
+   * @param filter    the filter the report was projected through
+   * @param policy    the deadband policy of the group
+   * @param report    the projected report
+   * @param nowMillis the current time
+   * @return the readings and states to deliver, or {@code null} if nothing passes
+   */
+  public DataReportBody apply(int snId, SubscriptionFilter filter, DeadbandPolicy policy,
+                              DataReportBody report, long nowMillis) {
+    return nodes.computeIfAbsent(snId, id -> new ConcurrentHashMap<>())
+        .computeIfAbsent(new GroupKey(filter, policy), k -> new Group())
+        .apply(policy, report, nowMillis);
+  }
+
+  /**
+   * Drop the groups of a sensor node that none of its remaining
+   * subscriptions belongs to.
+   *
+   * @param snId the sensor node id
+   * @param live the subscriptions through which the node is still delivered
+   */
+  public void retain(int snId, Collection<Subscription> live) {
+    Map<GroupKey, Group> groups = nodes.get(snId);
+    if (groups == null) {
+      return;
+    }
+    Set<GroupKey> used = new HashSet<>();
+    for (Subscription subscription : live) {
+      if (subscription.getDeadband() != null) {
+        used.add(new GroupKey(subscription.getFilter(), subscription.getDeadband()));
+      }
+    }
+    groups.keySet().retainAll(used);
+    if (groups.isEmpty()) {
+      nodes.remove(snId, groups);
+    }
+  }
+
+  /**
+   * Forget the groups of a sensor node.
+   *
+   * @param snId the sensor node id
+   */
+  public void removeNode(int snId) {
+    nodes.remove(snId);
+  }
+
+  /**
+   * Return the sensor nodes that have groups with state.
+   *
+   * @return the sensor node ids
+   */
+  public Set<Integer> nodeIds() {
+    return Set.copyOf(nodes.keySet());
+  }
+
+  /**
+   * Return the number of groups with state.
+   *
+   * @return the number of groups
+   */
+  public int size() {
+    int size = 0;
+    for (Map<GroupKey, Group> groups : nodes.values()) {
+      size += groups.size();
+    }
+    return size;
+  }
+
+  private record GroupKey(SubscriptionFilter filter, DeadbandPolicy policy) {
+  }
+
+  /**
+   * Values last delivered to one group.
+   */
+  private static final class Group {
+    private final Map<String, Double> sensors = new HashMap<>();
+    private final Map<String, Double> actuators = new HashMap<>();
+    private long lastDeliveredMillis;
+    private boolean delivered;
+
+    synchronized DataReportBody apply(DeadbandPolicy policy, DataReportBody report, long now) {
+      long silence = policy.maxSilenceMillis();
+      if (!delivered || (silence > 0 && now - lastDeliveredMillis >= silence)) {
+        remember(report.sensors(), report.actuators());
+        delivered = true;
+        lastDeliveredMillis = now;
+        return report;
+      }
+
+      List<DataReportBody.SensorReading> readings = null;
+      if (report.sensors() != null) {
+        for (DataReportBody.SensorReading reading : report.sensors()) {
+          if (passes(policy, reading)) {
+            readings = add(readings, reading);
+          }
+        }
+      }
+      List<DataReportBody.ActuatorState> states = null;
+      if (report.actuators() != null) {
+        for (DataReportBody.ActuatorState state : report.actuators()) {
+          if (!actuators.containsKey(state.id())
+              || !Objects.equals(actuators.get(state.id()), state.value())) {
+            states = add(states, state);
+          }
+        }
+      }
+      if (readings == null && states == null) {
+        return null;
+      }
+      remember(readings, states);
+      lastDeliveredMillis = now;
+      return new DataReportBody(readings, states, report.aggregates());
+    }
+
+    private boolean passes(DeadbandPolicy policy, DataReportBody.SensorReading reading) {
+      Double last = sensors.get(reading.id());
+      DeadbandPolicy.Threshold threshold = policy.thresholdFor(reading.id());
+      return last == null || reading.value() == null || threshold == null
+          || threshold.crossed(last, reading.value());
+    }
+
+    private void remember(List<DataReportBody.SensorReading> readings,
+                          List<DataReportBody.ActuatorState> states) {
+      if (readings != null) {
+        for (DataReportBody.SensorReading reading : readings) {
+          if (reading.value() != null) {
+            sensors.put(reading.id(), reading.value());
+          }
+        }
+      }
+      if (states != null) {
+        for (DataReportBody.ActuatorState state : states) {
+          actuators.put(state.id(), state.value());
+        }
+      }
+    }
+
+    private static <T> List<T> add(List<T> list, T entry) {
+      List<T> result = list == null ? new ArrayList<>() : list;
+      result.add(entry);
+      return result;
+    }
+  }
+}
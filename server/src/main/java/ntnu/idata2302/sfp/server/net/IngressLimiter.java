@@ -0,0 +1,212 @@
+package ntnu.idata2302.sfp.server.net;
+
+import java.net.Socket;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import ntnu.idata2302.sfp.library.header.Header;
+
+/**
+ * Ingress rate limits of one client connection, checked on every frame
+ * header before its body is decoded.
+ *
+ * <p>Frames are counted against a frames-per-second and a bytes-per-second
+ * {@link TokenBucket} for the kind of node that sent them, as registered on
+ * the connection at ANNOUNCE: sensor node, control panel, or other. Other
+ * covers every frame whose source id is not a node registered on this
+ * connection, such as the ANNOUNCE itself or a frame naming someone else's id,
+ * and has the strictest limits, so a header field cannot lift a client out of
+ * its class. The limits per kind come from a {@link Policy}.</p>
+ *
+ * <p>A frame over either limit is dropped without being decoded and counts
+ * against neither. The first dropped frame, and then at most one per
+ * {@value #WARNING_INTERVAL_MILLIS} ms, is answered with a THROTTLED error
+ * ({@value #ERROR_THROTTLED}); a connection still over its limit after
+ * {@value #MAX_WARNINGS} warnings is disconnected. A second without dropped
+ * frames clears the warnings.</p>
+ *
+ * <p>A limiter belongs to the thread reading its connection and is not
+ * thread-safe.</p>
+ */
+public class IngressLimiter {
+
+  /** Error code sent to a connection whose frames are being dropped. */
+  public static final int ERROR_THROTTLED = 10;
+
+  private static final long WARNING_INTERVAL_MILLIS = 1000;
+  private static final int MAX_WARNINGS = 3;
+
+  /**
+   * What to do with a received frame.
+   */
+  public enum Verdict {
+    /** Decode and dispatch the frame. */
+    ACCEPT,
+    /** Drop the frame and send a THROTTLED error. */
+    THROTTLE,
+    /** Drop the frame silently. */
+    DROP,
+    /** Drop the frame and close the connection. */
+    DISCONNECT
+  }
+
+  /**
+   * The kind of node a frame comes from.
+   */
+  public enum NodeKind {
+    SENSOR_NODE,
+    CONTROL_PANEL,
+    OTHER;
+
+    /**
+     * Classify a frame by the node its source id is registered as on the
+     * connection it arrived on.
+     *
+     * @param context  the server context holding the registered nodes
+     * @param sourceId the source id of the frame
+     * @param socket   the connection the frame arrived on
+     * @return the kind the node registered as, or {@link #OTHER} if the source
+     *         is not a node registered on {@code socket}
+     */
+    public static NodeKind of(ServerContext context, int sourceId, Socket socket) {
+      if (!context.isBoundTo(sourceId, socket)) {
+        return OTHER;
+      }
+      return context.isSensorNode(sourceId) ? SENSOR_NODE : CONTROL_PANEL;
+    }
+  }
+
+  /**
+   * Rate limits of one kind of node; a rate of 0 means unlimited. Bursts are
+   * one second's worth of the rate.
+   *
+   * @param framesPerSecond frames admitted per second
+   * @param bytesPerSecond  bytes admitted per second, headers included
+   */
+  public record Limits(long framesPerSecond, long bytesPerSecond) {
+
+    /** No limit. */
+    public static final Limits UNLIMITED = new Limits(0, 0);
+  }
+
+  /**
+   * Limits per kind of node, shared by every connection.
+   *
+   * @param sensorNode   limits of frames from sensor nodes
+   * @param controlPanel limits of frames from control panels
+   * @param other        limits of frames from no node registered on the connection
+   */
+  public record Policy(Limits sensorNode, Limits controlPanel, Limits other) {
+
+    /** Default limits of sensor nodes, which report every few seconds. */
+    public static final Limits DEFAULT_SENSOR_NODE = new Limits(200, 1 << 20);
+
+    /** Default limits of unregistered sources, which only need to announce. */
+    public static final Limits DEFAULT_OTHER = new Limits(20, 64 << 10);
+
+    /**
+     * Read the policy from the system properties
+     * {@code sfp.ingress.<kind>.framesPerSecond} and
+     * {@code sfp.ingress.<kind>.bytesPerSecond}, where kind is
+     * {@code sensor}, {@code panel} or {@code other}. Sensor nodes default to
+     * {@link #DEFAULT_SENSOR_NODE} and other sources to {@link #DEFAULT_OTHER};
+     * control panels are unlimited by default.
+     *
+     * @return the configured policy
+     */
+    public static Policy fromSystemProperties() {
+      return new Policy(
+          limits("sensor", DEFAULT_SENSOR_NODE),
+          limits("panel", Limits.UNLIMITED),
+          limits("other", DEFAULT_OTHER));
+    }
+
+    private static Limits limits(String kind, Limits defaults) {
+      return new Limits(
+          Long.getLong("sfp.ingress." + kind + ".framesPerSecond", defaults.framesPerSecond()),
+          Long.getLong("sfp.ingress." + kind + ".bytesPerSecond", defaults.bytesPerSecond()));
+    }
+
+    Limits of(NodeKind kind) {
+      return switch (kind) {
+        case SENSOR_NODE -> sensorNode;
+        case CONTROL_PANEL -> controlPanel;
+        case OTHER -> other;
+      };
+    }
+  }
+
+  private final Policy policy;
+  private final Map<NodeKind, TokenBucket[]> buckets = new EnumMap<>(NodeKind.class);
+  private long lastDropNanos;
+  private long lastWarningNanos;
+  private int warnings;
+  private long dropped;
+
+  /**
+   * Create the limiter of a new connection.
+   *
+   * @param policy the limits per kind of node
+   */
+  public IngressLimiter(Policy policy) {
+    this.policy = policy;
+  }
+
+  /**
+   * Check a received frame header against the limits.
+   *
+   * @param header   the decoded header
+   * @param kind     the kind of node that sent the frame, see
+   *                 {@link NodeKind#of(ServerContext, int, Socket)}
+   * @param nowNanos the current {@link System#nanoTime()}
+   * @return what to do with the frame
+   */
+  public Verdict check(Header header, NodeKind kind, long nowNanos) {
+    TokenBucket[] pair = buckets.computeIfAbsent(kind, k -> bucketsFor(policy.of(k), nowNanos));
+    long frameBytes = (long) Header.HEADER_SIZE + header.getPayloadLength();
+    TokenBucket frames = pair[0];
+    TokenBucket bytes = pair[1];
+    if (frames == null || frames.tryAcquire(1, nowNanos)) {
+      if (bytes == null || bytes.tryAcquire(frameBytes, nowNanos)) {
+        return Verdict.ACCEPT;
+      }
+      // A dropped frame must not use up the frame budget as well
+      if (frames != null) {
+        frames.refund(1);
+      }
+    }
+
+    dropped++;
+    long interval = TimeUnit.MILLISECONDS.toNanos(WARNING_INTERVAL_MILLIS);
+    if (warnings > 0 && nowNanos - lastDropNanos > interval) {
+      warnings = 0;
+    }
+    lastDropNanos = nowNanos;
+    if (warnings > 0 && nowNanos - lastWarningNanos < interval) {
+      return Verdict.DROP;
+    }
+    lastWarningNanos = nowNanos;
+    warnings++;
+    return warnings > MAX_WARNINGS ? Verdict.DISCONNECT : Verdict.THROTTLE;
+  }
+
+  /**
+   * Return the number of frames dropped on this connection.
+   *
+   * @return the number of dropped frames
+   */
+  public long dropped() {
+    return dropped;
+  }
+
+  private static TokenBucket[] bucketsFor(Limits limits, long nowNanos) {
+    return new TokenBucket[] {
+        bucket(limits.framesPerSecond(), nowNanos),
+        bucket(limits.bytesPerSecond(), nowNanos)
+    };
+  }
+
+  private static TokenBucket bucket(long ratePerSecond, long nowNanos) {
+    return ratePerSecond > 0 ? new TokenBucket(ratePerSecond, ratePerSecond, nowNanos) : null;
+  }
+}
@@ -0,0 +1,248 @@
+package ntnu.idata2302.sfp.server.net;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import ntnu.idata2302.sfp.library.body.announce.HeartbeatBody;
+
+/**
+ * Liveness deadlines of sensor nodes that send HEARTBEATs.
+ *
+ * <p>A node is watched from its first HEARTBEAT on. Every message received
+ * from it afterwards moves its deadline to {@link HeartbeatBody#MISSED_INTERVALS}
+ * heartbeat intervals ahead; a node that stays silent past its deadline is
+ * reported to the {@link Expiry} callback once and no longer watched. This
+ * catches nodes behind half-open TCP connections, whose socket reads never
+ * fail.</p>
+ *
+ * <p>Deadlines are kept on a hashed timer wheel of {@value #WHEEL_SIZE} slots
+ * of {@value #TICK_MILLIS} ms, turned by one daemon thread created on first
+ * use. Receiving a message only stores a timestamp, without locking or moving
+ * the node on the wheel; a tick visits just the nodes due in its slot and
+ * moves those that were heard from since to their new deadline. The cost per
+ * tick therefore depends on how many deadlines fall due, not on how many
+ * nodes are watched.</p>
+ */
+public class LivenessTracker {
+
+  /** Shortest heartbeat interval accepted, in milliseconds. */
+  public static final int MIN_INTERVAL_MILLIS = 100;
+
+  /** Longest heartbeat interval accepted, in milliseconds. */
+  public static final int MAX_INTERVAL_MILLIS = 10 * 60_000;
+
+  private static final long TICK_MILLIS = 100;
+  private static final int WHEEL_SIZE = 1024;
+
+  /**
+   * Receiver of liveness expiries.
+   */
+  @FunctionalInterface
+  public interface Expiry {
+
+    /**
+     * Handle a node that missed its heartbeats.
+     *
+     * @param nodeId the node id
+     */
+    void expired(int nodeId);
+  }
+
+  private final Expiry expiry;
+  private final long originNanos = System.nanoTime();
+
+  private final Map<Integer, Entry> watched = new ConcurrentHashMap<>();
+  private final Entry[] wheel = new Entry[WHEEL_SIZE];
+  private long currentTick;
+  private long expirations;
+
+  private ScheduledThreadPoolExecutor timer;
+
+  /**
+   * Create a tracker.
+   *
+   * @param expiry called, from the timer thread, for every node that missed its heartbeats
+   */
+  public LivenessTracker(Expiry expiry) {
+    this.expiry = expiry;
+  }
+
+  /**
+   * Start or keep watching a node that sent a HEARTBEAT.
+   *
+   * @param nodeId         the node id
+   * @param intervalMillis the heartbeat interval stated by the node; clamped to
+   *                       {@link #MIN_INTERVAL_MILLIS}..{@link #MAX_INTERVAL_MILLIS}
+   */
+  public void watch(int nodeId, int intervalMillis) {
+    long interval = Math.min(Math.max(intervalMillis, MIN_INTERVAL_MILLIS), MAX_INTERVAL_MILLIS);
+    long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(interval * HeartbeatBody.MISSED_INTERVALS);
+    synchronized (this) {
+      long now = System.nanoTime();
+      Entry entry = watched.get(nodeId);
+      if (entry == null) {
+        entry = new Entry(nodeId);
+        watched.put(nodeId, entry);
+      } else {
+        unlink(entry);
+      }
+      entry.timeoutNanos = timeoutNanos;
+      entry.lastSeenNanos = now;
+      entry.deadlineTick = Math.max(tickOf(now + timeoutNanos) + 1, currentTick + 1);
+      link(entry);
+    }
+    ensureTimer();
+  }
+
+  /**
+   * Record a sign of life from a node. Does nothing for nodes that are not watched.
+   *
+   * @param nodeId the source id of a received message
+   */
+  public void touch(int nodeId) {
+    Entry entry = watched.get(nodeId);
+    if (entry != null) {
+      entry.lastSeenNanos = System.nanoTime();
+    }
+  }
+
+  /**
+   * Stop watching a node, for example because it disconnected.
+   *
+   * @param nodeId the node id
+   */
+  public synchronized void remove(int nodeId) {
+    Entry entry = watched.remove(nodeId);
+    if (entry != null) {
+      unlink(entry);
+    }
+  }
+
+  /**
+   * Return whether a node is watched.
+   *
+   * @param nodeId the node id
+   * @return {@code true} if the node sent a HEARTBEAT and has not expired or been removed
+   */
+  public boolean isWatched(int nodeId) {
+    return watched.containsKey(nodeId);
+  }
+
+  /**
+   * Return the number of nodes that missed their heartbeats.
+   *
+   * @return the number of expirations
+   */
+  public synchronized long expirations() {
+    return expirations;
+  }
+
+  /**
+   * Expire the nodes whose deadline has passed. Run on every tick.
+   */
+  void tick() {
+    List<Integer> expired = new ArrayList<>();
+    synchronized (this) {
+      long nowNanos = System.nanoTime();
+      long now = tickOf(nowNanos);
+      // A late timer visits each slot at most once
+      long from = Math.max(currentTick + 1, now - WHEEL_SIZE + 1);
+      for (long tick = from; tick <= now; tick++) {
+        Entry entry = wheel[slot(tick)];
+        while (entry != null) {
+          Entry next = entry.next;
+          if (entry.deadlineTick <= now) {
+            unlink(entry);
+            long due = entry.lastSeenNanos + entry.timeoutNanos;
+            if (due - nowNanos > 0) {
+              // Heard from since the deadline was set
+              entry.deadlineTick = Math.max(tickOf(due) + 1, now + 1);
+              link(entry);
+            } else {
+              watched.remove(entry.nodeId);
+              expired.add(entry.nodeId);
+            }
+          }
+          entry = next;
+        }
+      }
+      currentTick = Math.max(currentTick, now);
+      expirations += expired.size();
+    }
+    for (int nodeId : expired) {
+      expiry.expired(nodeId);
+    }
+  }
+
+  private long tickOf(long nanos) {
+    return TimeUnit.NANOSECONDS.toMillis(nanos - originNanos) / TICK_MILLIS;
+  }
+
+  private static int slot(long tick) {
+    return (int) (tick % WHEEL_SIZE);
+  }
+
+  /**
+   * Add an entry to the slot of its deadline. Called with the lock held.
+   */
+  private void link(Entry entry) {
+    int slot = slot(entry.deadlineTick);
+    entry.next = wheel[slot];
+    if (entry.next != null) {
+      entry.next.prev = entry;
+    }
+    wheel[slot] = entry;
+  }
+
+  /**
+   * Remove an entry from its slot. Called with the lock held.
+   */
+  private void unlink(Entry entry) {
+    if (entry.prev != null) {
+      entry.prev.next = entry.next;
+    } else if (wheel[slot(entry.deadlineTick)] == entry) {
+      wheel[slot(entry.deadlineTick)] = entry.next;
+    }
+    if (entry.next != null) {
+      entry.next.prev = entry.prev;
+    }
+    entry.prev = null;
+    entry.next = null;
+  }
+
+  private synchronized void ensureTimer() {
+    if (timer == null) {
+      timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+        Thread thread = new Thread(runnable, "sfp-liveness");
+        thread.setDaemon(true);
+        return thread;
+      });
+      timer.scheduleAtFixedRate(() -> {
+        try {
+          tick();
+        } catch (RuntimeException e) {
+          System.out.println("Liveness check failed: " + e);
+        }
+      }, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * A watched node, linked into the wheel slot of its deadline.
+   */
+  private static final class Entry {
+    private final int nodeId;
+    private volatile long lastSeenNanos;
+    private long timeoutNanos;
+    private long deadlineTick;
+    private Entry prev;
+    private Entry next;
+
+    private Entry(int nodeId) {
+      this.nodeId = nodeId;
+    }
+  }
+}
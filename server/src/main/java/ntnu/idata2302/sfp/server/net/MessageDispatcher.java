@@ -15,6 +15,14 @@ import ntnu.idata2302.sfp.server.net.handlers.MessageHandler;
  * Routes incoming {@link SmartFarmingProtocol} messages to registered
  * {@link MessageHandler} instances based on their {@link MessageTypes}.
  *
+ * <p>A packet whose Message ID was already received from the same source,
+ * for example a message retried after a reconnect, is dropped before it
+ * reaches a handler, using the {@link ServerContext#getMessageIds() window}
+ * of the context. Every other packet counts as a sign of life for the
+ * {@link ServerContext#getLiveness() liveness tracker}, but only for the node
+ * bound to the connection it arrived on: a frame whose header names another
+ * node as its source cannot keep that node alive.</p>
+ *
  * <p>This class is thread\-safe: handlers are stored in a {@link ConcurrentHashMap}
  * and may be registered or removed concurrently while dispatching.</p>
  */
@@ -55,8 +63,8 @@ public final class MessageDispatcher {
   /**
    * Dispatch a received packet to the handler registered for its message type.
    *
-   * <p>If no handler is registered for the packet type the method logs and
-   * returns. Any exception thrown by a handler is caught and logged so the
+   * <p>A duplicate of a recently received packet is dropped. If no handler is
+   * registered for the packet type the method logs and returns. Any exception thrown by a handler is caught and logged so the
    * dispatching thread can continue processing other messages.</p>
    *
    * @param packet  the received {@link SmartFarmingProtocol}
@@ -72,6 +80,16 @@ public final class MessageDispatcher {
     Objects.requireNonNull(context, "context");
 
     MessageTypes type = packet.getHeader().getMessageType();
+    if (!context.getMessageIds().firstSeen(packet.getHeader())) {
+      LOG.log(Level.FINE, "Dropped duplicate {0} {1}",
+          new Object[] {type, packet.getHeader().getMessageId()});
+      return;
+    }
+    int sourceId = packet.getHeader().getSourceId();
+    if (context.isBoundTo(sourceId, client)) {
+      context.getLiveness().touch(sourceId);
+    }
+
     MessageHandler handler = handlers.get(type);
 
     if (handler == null) {
@@ -1,17 +1,51 @@
 package ntnu.idata2302.sfp.server.net;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.Socket;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.stream.Collectors;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import ntnu.idata2302.sfp.library.SmartFarmingProtocol;
+import ntnu.idata2302.sfp.library.body.capabilities.CapabilitiesDeltaBody;
+import ntnu.idata2302.sfp.library.body.data.DataReportBody;
 import ntnu.idata2302.sfp.library.body.subscribe.SubscribeBody;
 import ntnu.idata2302.sfp.library.header.Header;
+import ntnu.idata2302.sfp.library.header.MessageIdWindow;
+import ntnu.idata2302.sfp.library.header.MessageTypes;
 import ntnu.idata2302.sfp.library.node.NodeDescriptor;
+import ntnu.idata2302.sfp.library.node.NodeIds;
+import ntnu.idata2302.sfp.server.aggregate.AggregateEngine;
+import ntnu.idata2302.sfp.server.aggregate.ContinuousQueries;
+import ntnu.idata2302.sfp.server.cache.LastValueCache;
+import ntnu.idata2302.sfp.server.capabilities.CapabilitiesCatalog;
+import ntnu.idata2302.sfp.server.capabilities.TemplateStore;
+import ntnu.idata2302.sfp.server.command.CommandCoalescer;
+import ntnu.idata2302.sfp.server.command.CommandTracker;
+import ntnu.idata2302.sfp.server.command.GroupCommands;
+import ntnu.idata2302.sfp.server.entity.DeadbandPolicy;
+import ntnu.idata2302.sfp.server.entity.ParkedSession;
 import ntnu.idata2302.sfp.server.entity.Subscription;
+import ntnu.idata2302.sfp.server.entity.SubscriptionFilter;
+import ntnu.idata2302.sfp.server.factory.HeaderFactory;
+import ntnu.idata2302.sfp.server.group.GroupRegistry;
+import ntnu.idata2302.sfp.server.history.HistoryStore;
+import ntnu.idata2302.sfp.server.rules.RulesEngine;
+import ntnu.idata2302.sfp.server.tsdb.TimeSeriesStore;
+import ntnu.idata2302.sfp.server.util.IdAllocator;
 
 
 
@@ -21,24 +55,278 @@ import ntnu.idata2302.sfp.server.entity.Subscription;
  *
  * <p>This class holds thread-safe registries used by server handlers:
  * socketRegistry maps logical node IDs to their connected {@link Socket},
- * nodeRegistry stores {@link NodeDescriptor} metadata, and subscriptions
- * stores a flat list of {@link Subscription} entries linking control-panel
- * IDs to sensor-node IDs.</p>
+ * nodeRegistry stores {@link NodeDescriptor} metadata, and a
+ * {@link SubscriptionIndex} stores the direct {@link Subscription} entries
+ * linking control-panel IDs to sensor-node IDs, indexed by sensor node.</p>
  *
  * <p>All collections are concurrent implementations to allow safe access from
  * multiple handler threads. Methods perform registry operations and I/O
  * actions (sending packets), and therefore may throw {@link IOException}
  * when network operations fail.</p>
+ *
+ * <p>Nodes that were given a resume token survive a dropped connection: their
+ * id, descriptor and subscriptions are parked for a grace period, and a node
+ * presenting the token again within that period gets them back through
+ * {@link #resumeSession(String, Socket)}. Control panels subscribed to a
+ * resumed sensor node keep receiving its reports without re-subscribing.</p>
+ *
+ * <p>The descriptors of connected sensor nodes are kept in a versioned
+ * {@link CapabilitiesCatalog}. Every join, leave or descriptor change is
+ * pushed to all control panels as a CAPABILITIES_DELTA, so they do not need
+ * to poll.</p>
+ *
+ * <p>Sensor nodes can belong to named groups, announced in their descriptor
+ * or assigned later, and every sensor node belongs to the wildcard group
+ * {@link SubscribeBody#ALL_SENSOR_NODES}. A control panel subscribed to a group
+ * receives the reports of every member, including members that join later.
+ * The group subscription is kept once, as a template in the
+ * {@link GroupRegistry}, and resolved per report through the reporting node's
+ * groups instead of being copied to every member. A direct subscription to a
+ * node takes precedence over group subscriptions covering it; among groups,
+ * the node's first joined group the control panel subscribes to applies.
+ * Unsubscribing from a single node that a group subscription still covers
+ * stores a direct {@link Subscription#exclusion(int, int) exclusion} in its
+ * place, so the node stops being delivered until the control panel subscribes
+ * to it, or to the group, again.</p>
+ *
+ * <p>Node ids come from the context's {@link IdAllocator}. An id is released
+ * when its node leaves for good: on disconnect without a resume token, or
+ * when a parked session expires. Parked sessions expire on a daemon timer
+ * thread, created on first use, so their ids and state are freed even when
+ * no other node connects or leaves.</p>
  */
 public class ServerContext {
 
+  /** Default time a disconnected session can be resumed, in milliseconds. */
+  public static final long DEFAULT_RESUME_GRACE_MILLIS = 60_000;
+
+  private static final SecureRandom TOKEN_RANDOM = new SecureRandom();
+
   // Each connected node (Sensor or Control Panel | LogicalId, Socket)
   private final Map<Integer, Socket> socketRegistry = new ConcurrentHashMap<>();
+  // Reverse of socketRegistry, so a closing socket finds its nodes without a scan
+  private final Map<Socket, Set<Integer>> socketNodes = new ConcurrentHashMap<>();
   private final Map<Integer, NodeDescriptor> nodeRegistry = new ConcurrentHashMap<>();
+  private final Set<Integer> controlPanels = ConcurrentHashMap.newKeySet();
+  private final CapabilitiesCatalog capabilities = new CapabilitiesCatalog();
+  private final TemplateStore templates = new TemplateStore();
+  // Request ids of COMMANDs the broker sends itself, shared so their acks can be told apart
+  private final AtomicInteger commandIds = new AtomicInteger();
+  private final RulesEngine rules = new RulesEngine(commandIds::incrementAndGet);
+  // Collaborators that call back into this context, wired on first use so the
+  // constructor does not hand them a partly constructed context
+  private final Object wiringLock = new Object();
+  private volatile Collaborators collaborators;
+
+  // Recent Message IDs per source, so retried messages are handled once
+  private final MessageIdWindow messageIds = new MessageIdWindow();
+
+  // Direct subscriptions, each linking one control-panel node ID (cpId) to
+  // one sensor-node ID (snId); group subscriptions live in the group registry
+  private final SubscriptionIndex subscriptions = new SubscriptionIndex();
+
+  // Resume tokens of live sessions in both directions, and sessions waiting to be resumed
+  private final Map<Integer, String> resumeTokens = new ConcurrentHashMap<>();
+  private final Map<String, Integer> tokenOwners = new ConcurrentHashMap<>();
+  private final Map<String, ParkedSession> parkedSessions = new ConcurrentHashMap<>();
+
+  // Parking and resuming both move a node between the registries and the parked map
+  private final Object sessionLock = new Object();
+  // Guarded by sessionLock
+  private ScheduledThreadPoolExecutor sessionTimer;
+  private final long resumeGraceMillis;
+  private final IdAllocator idAllocator;
+  private final LastValueCache lastValues = new LastValueCache();
+  private final HistoryStore history = HistoryStore.fromSystemProperties();
+  private final AggregateEngine aggregates = AggregateEngine.fromSystemProperties();
+  private final ContinuousQueries pushQueries = new ContinuousQueries();
+  private final DeadbandGate deadbands = new DeadbandGate();
+  // Guards changes to the group indexes; fan-out reads them without the lock
+  private final GroupRegistry groups = new GroupRegistry();
+  private volatile TimeSeriesStore timeSeries;
+
+  /**
+   * Create a context that keeps disconnected sessions for
+   * {@link #DEFAULT_RESUME_GRACE_MILLIS}.
+   */
+  public ServerContext() {
+    this(DEFAULT_RESUME_GRACE_MILLIS);
+  }
+
+  /**
+   * Create a context with a custom resume grace period.
+   *
+   * @param resumeGraceMillis how long a disconnected session can be resumed;
+   *                          {@code 0} disables resumption
+   */
+  public ServerContext(long resumeGraceMillis) {
+    this(resumeGraceMillis, new IdAllocator());
+  }
+
+  /**
+   * Create a context with a custom resume grace period and id allocator.
+   *
+   * @param resumeGraceMillis how long a disconnected session can be resumed;
+   *                          {@code 0} disables resumption
+   * @param idAllocator       allocator handing out node ids
+   */
+  public ServerContext(long resumeGraceMillis, IdAllocator idAllocator) {
+    this.resumeGraceMillis = resumeGraceMillis;
+    this.idAllocator = idAllocator;
+  }
+
+  /**
+   * Return the versioned descriptors of the connected sensor nodes.
+   *
+   * @return the capabilities catalog
+   */
+  public CapabilitiesCatalog getCapabilities() {
+    return capabilities;
+  }
+
+  /**
+   * Return the interned descriptor templates of announced nodes.
+   *
+   * @return the template store
+   */
+  public TemplateStore getTemplates() {
+    return templates;
+  }
+
+  /**
+   * Return the actuation rules evaluated on incoming DATA_REPORTs.
+   *
+   * @return the rules engine
+   */
+  public RulesEngine getRules() {
+    return rules;
+  }
+
+  /**
+   * Return the group commands waiting for acknowledgements.
+   *
+   * @return the group command tracker
+   */
+  public GroupCommands getGroupCommands() {
+    return wired().groupCommands();
+  }
+
+  /**
+   * Return the tracker correlating forwarded COMMANDs with their COMMAND_ACKs.
+   *
+   * @return the command tracker
+   */
+  public CommandTracker getCommandTracker() {
+    return wired().commands();
+  }
+
+  /**
+   * Return the outbound queues that coalesce COMMANDs per node and actuator.
+   *
+   * @return the command coalescer
+   */
+  public CommandCoalescer getCommandCoalescer() {
+    return wired().commandQueues();
+  }
 
-  // Stores all subscription relationships as flat entries where each
-  // Subscription links one control-panel node ID (cpId) to one sensor-node ID (snId)
-  private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+  /**
+   * Return the window of recently received Message IDs per source.
+   *
+   * @return the duplicate filter
+   */
+  public MessageIdWindow getMessageIds() {
+    return messageIds;
+  }
+
+  /**
+   * Return the heartbeat deadlines of sensor nodes.
+   *
+   * @return the liveness tracker
+   */
+  public LivenessTracker getLiveness() {
+    return wired().liveness();
+  }
+
+  /**
+   * Allocate the request id of a COMMAND sent by the broker itself.
+   *
+   * @return a request id not used by the broker's other commands
+   */
+  public int nextCommandId() {
+    return commandIds.incrementAndGet();
+  }
+
+  /**
+   * Return the allocator that hands out node ids for this context.
+   *
+   * @return the id allocator
+   */
+  public IdAllocator getIdAllocator() {
+    return idAllocator;
+  }
+
+  /**
+   * Return the cache holding the latest reported state of every sensor node.
+   *
+   * @return the last-value cache
+   */
+  public LastValueCache getLastValueCache() {
+    return lastValues;
+  }
+
+  /**
+   * Return the in-memory history of recent sensor readings.
+   *
+   * @return the history store
+   */
+  public HistoryStore getHistoryStore() {
+    return history;
+  }
+
+  /**
+   * Return the engine maintaining windowed aggregates of every sensor.
+   *
+   * @return the aggregate engine
+   */
+  public AggregateEngine getAggregateEngine() {
+    return aggregates;
+  }
+
+  /**
+   * Return the push queries control panels are subscribed to.
+   *
+   * @return the running push queries
+   */
+  public ContinuousQueries getContinuousQueries() {
+    return pushQueries;
+  }
+
+  /**
+   * Return the outbox holding conflated reports of rate-limited subscriptions.
+   *
+   * @return the conflating outbox
+   */
+  public ConflatingOutbox getConflatingOutbox() {
+    return wired().outbox();
+  }
+
+  /**
+   * Return the persistent store that records every sensor reading.
+   *
+   * @return the time-series store, or {@code null} if readings are not persisted
+   */
+  public TimeSeriesStore getTimeSeriesStore() {
+    return timeSeries;
+  }
+
+  /**
+   * Set the persistent store that records every sensor reading.
+   *
+   * @param timeSeries the time-series store, or {@code null} to stop persisting readings
+   */
+  public void setTimeSeriesStore(TimeSeriesStore timeSeries) {
+    this.timeSeries = timeSeries;
+  }
 
   /**
    * Register a connected node.
@@ -49,30 +337,468 @@ public class ServerContext {
    */
   public void registerNode(int nodeId, NodeDescriptor node, Socket socket) {
     nodeRegistry.put(nodeId, node);
-    socketRegistry.put(nodeId, socket);
+    bind(nodeId, socket);
+    if (node != null && node.nodeType() == 1) {
+      List<String> memberOf = new ArrayList<>();
+      memberOf.add(SubscribeBody.ALL_SENSOR_NODES);
+      if (node.groups() != null) {
+        node.groups().stream().filter(ServerContext::isGroupName).forEach(memberOf::add);
+      }
+      joinGroups(nodeId, memberOf);
+      publishCapabilities(capabilities.put(nodeId, node));
+    } else {
+      controlPanels.add(nodeId);
+    }
     System.out.println("Registered node " + nodeId + " (" + socket.getInetAddress() + ")");
   }
 
   /**
-   * Unregister a node and remove its socket association.
+   * Unregister every node bound to a socket and remove the socket association.
+   *
+   * <p>A single connection normally carries one node, but a client may announce
+   * several nodes over the same socket; all of them are removed when it closes.
+   * Nodes holding a resume token are parked together with their subscriptions
+   * instead of being forgotten.</p>
    *
    * @param socket the socket of the client
    */
   public void unregisterNode(Socket socket) {
-    Integer nodeId = socketRegistry.entrySet().stream()
-         .filter(e -> e.getValue().equals(socket))
-          .map(Map.Entry::getKey)
-          .findFirst()
-         .orElse(null);
+    List<CapabilitiesDeltaBody> deltas = new ArrayList<>();
+    synchronized (sessionLock) {
+      expireParkedSessions();
+
+      Set<Integer> nodeIds = socketNodes.remove(socket);
+      if (nodeIds == null) {
+        return;
+      }
 
-    if (nodeId == null) {
+      for (int nodeId : nodeIds) {
+        // The node may already have been taken over by a resuming connection
+        if (!socketRegistry.remove(nodeId, socket)) {
+          continue;
+        }
+        NodeDescriptor descriptor = nodeRegistry.remove(nodeId);
+        controlPanels.remove(nodeId);
+        wired().liveness().remove(nodeId);
+        deltas.add(capabilities.remove(nodeId));
+        List<Subscription> related = dropSubscriptions(nodeId);
+        // Push queries are tied to the connection and are not parked
+        pushQueries.cancelAll(nodeId);
+
+        String token = resumeTokens.remove(nodeId);
+        if (token != null) {
+          tokenOwners.remove(token);
+        }
+        if (token != null && resumeGraceMillis > 0) {
+          long expiresAt = System.currentTimeMillis() + resumeGraceMillis;
+          parkedSessions.put(token, new ParkedSession(nodeId, descriptor, related, expiresAt));
+          sessionTimer().schedule(() -> {
+            synchronized (sessionLock) {
+              expireParkedSessions();
+            }
+          }, resumeGraceMillis, TimeUnit.MILLISECONDS);
+          System.out.println("Node: #" + nodeId + " disconnected, session parked");
+        } else {
+          forgetNode(nodeId, descriptor);
+          System.out.println("Node: #" + nodeId + " removed from sever ");
+        }
+      }
+    }
+    // A stalled control panel must not hold up other sessions
+    deltas.forEach(this::publishCapabilities);
+  }
+
+  /**
+   * Disconnect a sensor node that missed its heartbeats.
+   *
+   * <p>The node is unregistered at once, so control panels get a
+   * CAPABILITIES_DELTA listing it as removed, and its socket is closed so the
+   * connection thread blocked reading a half-open connection ends.</p>
+   *
+   * @param nodeId the node id
+   */
+  private void expireNode(int nodeId) {
+    Socket socket = socketRegistry.get(nodeId);
+    if (socket == null) {
       return;
+    }
+    System.out.println("Node: #" + nodeId + " missed its heartbeats, disconnecting");
+    unregisterNode(socket);
+    try {
+      socket.close();
+    } catch (IOException ignored) {
+      // The connection is already gone
+    }
+  }
+
+  /**
+   * Issue a fresh resume token for a live node, replacing any earlier token.
+   *
+   * @param nodeId the logical node id the token belongs to
+   * @return an opaque, unguessable token to hand to the node in ANNOUNCE_ACK
+   */
+  public String issueResumeToken(int nodeId) {
+    byte[] raw = new byte[16];
+    TOKEN_RANDOM.nextBytes(raw);
+    String token = Base64.getUrlEncoder().withoutPadding().encodeToString(raw);
 
+    synchronized (sessionLock) {
+      expireParkedSessions();
+      String previous = resumeTokens.put(nodeId, token);
+      if (previous != null) {
+        tokenOwners.remove(previous);
+      }
+      tokenOwners.put(token, nodeId);
     }
-    removeAllSubscriptions(nodeId);
-    socketRegistry.remove(nodeId);
-    nodeRegistry.remove(nodeId);
-    System.out.println("Node: #" + nodeId + " removed from sever ");
+    return token;
+  }
+
+  /**
+   * Resume the session identified by a token on a new connection.
+   *
+   * <p>A parked session gets its descriptor, socket binding and subscriptions
+   * restored. A token of a session that still looks live (the old connection
+   * has not been noticed as dead yet) moves the node to the new socket and
+   * closes the old one. The token is consumed either way; callers issue a new
+   * one with {@link #issueResumeToken(int)}.</p>
+   *
+   * @param token  the token presented by the reconnecting node
+   * @param socket the new connection of the node
+   * @return the restored descriptor, or {@code null} if the token is unknown or expired
+   */
+  public NodeDescriptor resumeSession(String token, Socket socket) {
+    CapabilitiesDeltaBody delta = null;
+    NodeDescriptor resumed = null;
+    synchronized (sessionLock) {
+      expireParkedSessions();
+
+      ParkedSession parked = parkedSessions.remove(token);
+      Integer liveId = parked == null ? tokenOwners.remove(token) : null;
+      if (parked != null) {
+        int nodeId = parked.nodeId();
+        resumed = parked.descriptor();
+        if (resumed != null) {
+          nodeRegistry.put(nodeId, resumed);
+          if (resumed.nodeType() == 1) {
+            delta = capabilities.put(nodeId, resumed);
+          } else {
+            controlPanels.add(nodeId);
+          }
+        }
+        bind(nodeId, socket);
+        subscriptions.putAbsent(parked.subscriptions());
+        System.out.println("Node: #" + nodeId + " resumed its session");
+      } else if (liveId != null) {
+        resumeTokens.remove(liveId);
+        Socket previous = bind(liveId, socket);
+        if (previous != null && previous != socket) {
+          try {
+            previous.close();
+          } catch (IOException ignored) {
+            // The old connection is being replaced; nothing to do if it is already gone
+          }
+        }
+        System.out.println("Node: #" + liveId + " moved to a new connection");
+        resumed = nodeRegistry.get(liveId);
+      }
+    }
+    // Published outside the lock, so a stalled control panel holds up no other session
+    publishCapabilities(delta);
+    return resumed;
+  }
+
+  /**
+   * Bind a node id to a socket in both directions, moving it off the socket it
+   * was bound to before.
+   *
+   * @return the socket the node was bound to before, or {@code null}
+   */
+  private Socket bind(int nodeId, Socket socket) {
+    Socket previous = socketRegistry.put(nodeId, socket);
+    if (previous != null && previous != socket) {
+      socketNodes.computeIfPresent(previous, (s, ids) -> {
+        ids.remove(nodeId);
+        return ids.isEmpty() ? null : ids;
+      });
+    }
+    socketNodes.compute(socket, (s, ids) -> {
+      Set<Integer> bound = ids == null ? new HashSet<>() : ids;
+      bound.add(nodeId);
+      return bound;
+    });
+    return previous;
+  }
+
+  /**
+   * Drop parked sessions whose grace period has run out, along with every
+   * subscription that still points at them.
+   *
+   * <p>Called with {@code sessionLock} held.</p>
+   */
+  private void expireParkedSessions() {
+    if (parkedSessions.isEmpty()) {
+      return;
+    }
+    long now = System.currentTimeMillis();
+    List<ParkedSession> expired = new ArrayList<>();
+    Iterator<ParkedSession> it = parkedSessions.values().iterator();
+    while (it.hasNext()) {
+      ParkedSession session = it.next();
+      if (session.isExpired(now)) {
+        it.remove();
+        expired.add(session);
+      }
+    }
+    if (expired.isEmpty()) {
+      return;
+    }
+    Set<Integer> expiredIds = new HashSet<>();
+    for (ParkedSession expiredSession : expired) {
+      int nodeId = expiredSession.nodeId();
+      expiredIds.add(nodeId);
+      forgetNode(nodeId, expiredSession.descriptor());
+      removeAllSubscriptions(nodeId);
+      System.out.println("Node: #" + nodeId + " session expired");
+    }
+    // One pass over the remaining sessions, however many expired at once
+    for (ParkedSession session : parkedSessions.values()) {
+      session.subscriptions().removeIf(
+          s -> expiredIds.contains(s.getCpId()) || expiredIds.contains(s.getSnId()));
+    }
+  }
+
+  /**
+   * Return the timer expiring parked sessions, creating it on first use.
+   *
+   * <p>Called with {@code sessionLock} held.</p>
+   */
+  private ScheduledThreadPoolExecutor sessionTimer() {
+    if (sessionTimer == null) {
+      sessionTimer = new ScheduledThreadPoolExecutor(1, runnable -> {
+        Thread thread = new Thread(runnable, "sfp-session-expiry");
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+    return sessionTimer;
+  }
+
+  /**
+   * Release everything kept for a node that has left for good, so its id can
+   * be reused without leaking its state to the next owner.
+   *
+   * @param nodeId     the node id
+   * @param descriptor the node's last descriptor, whose template reference is
+   *                   returned (may be null)
+   */
+  private void forgetNode(int nodeId, NodeDescriptor descriptor) {
+    if (descriptor != null) {
+      templates.release(descriptor.template());
+    }
+    synchronized (groups) {
+      groups.removeNode(nodeId);
+      // Its group subscriptions may have been the last on their routes
+      if (descriptor == null || descriptor.nodeType() != 1) {
+        for (int snId : deadbands.nodeIds()) {
+          releaseDeadbands(snId);
+        }
+      }
+    }
+    idAllocator.release(nodeId);
+    lastValues.remove(nodeId);
+    history.remove(nodeId);
+    aggregates.remove(nodeId);
+    wired().commands().removeNode(nodeId);
+    wired().commandQueues().removeNode(nodeId);
+    messageIds.removeSource(nodeId);
+  }
+
+  /**
+   * Subscribe a control panel to every current and future member of a group.
+   *
+   * <p>The subscription is stored once as a template and applies to a member
+   * unless the control panel subscribes to that member directly. Subscribing
+   * again replaces the delivery options, and members the control panel had
+   * unsubscribed from are delivered again.</p>
+   *
+   * @param template the control panel and delivery options; the sensor node id is ignored
+   * @param group    the group name, or {@link SubscribeBody#ALL_SENSOR_NODES}
+   * @return the current members of the group
+   */
+  public Set<Integer> subscribeGroup(Subscription template, String group) {
+    int cpId = template.getCpId();
+    synchronized (groups) {
+      Subscription previous = groups.unsubscribe(group, cpId);
+      groups.subscribe(group, template);
+      Set<Integer> members = groups.members(group);
+      for (int snId : members) {
+        Subscription direct = subscriptions.get(cpId, snId);
+        if (direct != null && direct.isExclusion()) {
+          subscriptions.remove(cpId, snId);
+        } else if (direct == null && previous != null) {
+          // Reports held back under the old options are dropped with them
+          wired().outbox().remove(cpId, snId);
+          releaseDeadbands(snId);
+        }
+      }
+      return members;
+    }
+  }
+
+  /**
+   * End a control panel's subscription to a group.
+   *
+   * @param cpId  the control panel id
+   * @param group the group name
+   */
+  public void unsubscribeGroup(int cpId, String group) {
+    synchronized (groups) {
+      if (groups.unsubscribe(group, cpId) == null) {
+        return;
+      }
+      for (int snId : groups.members(group)) {
+        if (subscriptionOf(cpId, snId) == null) {
+          wired().outbox().remove(cpId, snId);
+        }
+        Subscription direct = subscriptions.get(cpId, snId);
+        if (direct != null && direct.isExclusion() && groupSubscriptionOf(cpId, snId) == null) {
+          // Nothing left to exclude the node from
+          subscriptions.remove(cpId, snId);
+        }
+        releaseDeadbands(snId);
+      }
+    }
+  }
+
+  /**
+   * Change the groups of a registered sensor node. Subscribers of a joined
+   * group start receiving its reports; subscribers of a left group stop,
+   * unless another of the node's groups still covers them.
+   *
+   * @param nodeId the sensor node id
+   * @param join   groups to join (may be null)
+   * @param leave  groups to leave (may be null)
+   * @return the node's groups afterwards, or {@code null} if the node is not a
+   *         registered sensor node or a group name is invalid
+   */
+  public List<String> assignGroups(int nodeId, List<String> join, List<String> leave) {
+    NodeDescriptor descriptor = nodeRegistry.get(nodeId);
+    if (descriptor == null || descriptor.nodeType() != 1
+        || !validGroupNames(join) || !validGroupNames(leave)) {
+      return null;
+    }
+    List<String> named;
+    CapabilitiesDeltaBody delta;
+    synchronized (groups) {
+      if (leave != null) {
+        leaveGroups(nodeId, leave);
+      }
+      if (join != null) {
+        joinGroups(nodeId, join);
+      }
+      named = groups.groupsOf(nodeId).stream()
+          .filter(g -> !SubscribeBody.ALL_SENSOR_NODES.equals(g))
+          .toList();
+      NodeDescriptor updated = nodeRegistry.computeIfPresent(nodeId, (id, d) ->
+          new NodeDescriptor(d.nodeId(), d.nodeType(), d.sensors(), d.actuators(),
+              d.supportsImages(), d.supportsAggregates(), named.isEmpty() ? null : named,
+              d.template()));
+      delta = updated == null ? null : capabilities.put(nodeId, updated);
+    }
+    publishCapabilities(delta);
+    return named;
+  }
+
+  private void joinGroups(int nodeId, List<String> names) {
+    synchronized (groups) {
+      groups.join(nodeId, names);
+    }
+  }
+
+  /**
+   * Remove a node from groups, dropping reports held back for subscribers
+   * that no longer receive the node and the deadband state of routes that
+   * ended. Called with {@code groups} held.
+   */
+  private void leaveGroups(int nodeId, List<String> names) {
+    for (String group : groups.leave(nodeId, names)) {
+      for (Subscription template : groups.subscribersOf(group)) {
+        if (subscriptionOf(template.getCpId(), nodeId) == null) {
+          wired().outbox().remove(template.getCpId(), nodeId);
+        }
+      }
+    }
+    releaseDeadbands(nodeId);
+  }
+
+  /**
+   * Return the subscription through which a control panel receives a sensor
+   * node: its direct subscription, or else the template of the node's first
+   * group the control panel subscribes to.
+   *
+   * @return the subscription, or {@code null} if the panel does not receive the node
+   */
+  private Subscription subscriptionOf(int cpId, int snId) {
+    Subscription direct = subscriptions.get(cpId, snId);
+    if (direct != null) {
+      return direct.isExclusion() ? null : direct;
+    }
+    return groupSubscriptionOf(cpId, snId);
+  }
+
+  /**
+   * Return the template of the sensor node's first group the control panel
+   * subscribes to, ignoring direct subscriptions and exclusions.
+   *
+   * @return the template, or {@code null} if no group subscription covers the node
+   */
+  private Subscription groupSubscriptionOf(int cpId, int snId) {
+    for (String group : groups.groupsOf(snId)) {
+      Subscription template = groups.subscription(group, cpId);
+      if (template != null) {
+        return template;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Resolve the targets of a group command.
+   *
+   * <p>The targets are the listed nodes and the members of the group. An
+   * actuator narrows them to the registered sensor nodes having it; without
+   * listed nodes or a group, it selects every such node.</p>
+   *
+   * @param nodeIds  listed node ids (may be null)
+   * @param group    group name (may be null)
+   * @param actuator actuator id the targets must have (may be null)
+   * @return the target node ids in id order
+   */
+  public Set<Integer> commandTargets(List<Integer> nodeIds, String group, String actuator) {
+    if (nodeIds == null && group == null) {
+      return actuator == null ? new TreeSet<>() : capabilities.withActuator(actuator);
+    }
+    Set<Integer> targets = new TreeSet<>();
+    if (nodeIds != null) {
+      targets.addAll(nodeIds);
+    }
+    if (group != null) {
+      synchronized (groups) {
+        targets.addAll(groups.members(group));
+      }
+    }
+    if (actuator != null) {
+      targets.retainAll(capabilities.withActuator(actuator));
+    }
+    return targets;
+  }
+
+  private static boolean validGroupNames(List<String> names) {
+    return names == null || names.stream().allMatch(ServerContext::isGroupName);
+  }
+
+  private static boolean isGroupName(String name) {
+    return name != null && !name.isBlank() && !SubscribeBody.ALL_SENSOR_NODES.equals(name);
   }
 
   /**
@@ -92,8 +818,7 @@ public class ServerContext {
       System.out.println("Cannot send to " + targetId + " — not connected.");
       return;
     }
-    targetSocket.getOutputStream().write(packet.toBytes());
-    targetSocket.getOutputStream().flush();
+    write(targetSocket, packet.toBytes());
   }
 
   /**
@@ -105,13 +830,24 @@ public class ServerContext {
    */
 
   public void sendTo(int nodeId, SmartFarmingProtocol packet) throws IOException {
+    sendFrame(nodeId, packet.toBytes());
+  }
+
+  /**
+   * Send an already encoded packet to a specific node id, for example one
+   * frame shared by several recipients.
+   *
+   * @param nodeId the logical node id of the destination
+   * @param frame  the encoded packet
+   * @throws IOException if writing to the socket fails
+   */
+  public void sendFrame(int nodeId, byte[] frame) throws IOException {
     Socket targetSocket = socketRegistry.get(nodeId);
     if (targetSocket == null || targetSocket.isClosed()) {
       System.out.println("Cannot send to " + nodeId + " — not connected.");
       return;
     }
-    targetSocket.getOutputStream().write(packet.toBytes());
-    targetSocket.getOutputStream().flush();
+    write(targetSocket, frame);
   }
 
   /**
@@ -123,29 +859,119 @@ public class ServerContext {
    */
 
   public void sendTo(Socket socket, SmartFarmingProtocol packet) throws IOException {
-    socket.getOutputStream().write(packet.toBytes());
-    socket.getOutputStream().flush();
+    write(socket, packet.toBytes());
   }
 
   /**
-   * Store subscriptions for a control-panel id.
+   * Store subscriptions for a control-panel id, replacing an earlier
+   * subscription of the same control panel to the same sensor node.
    *
    * @param subscription the subscription to store
    */
 
   public void setSubscription(Subscription subscription) {
-    subscriptions.add(subscription);
+    subscriptions.put(subscription);
+    // Replaced options may have been the last subscription on their route
+    releaseDeadbands(subscription.getSnId());
+  }
+
+  /**
+   * Add or replace several subscriptions in one update of the subscription
+   * index. Each affected sensor node's subscriptions are copied once.
+   *
+   * @param batch the subscriptions to store
+   */
+  public void setSubscriptions(Collection<Subscription> batch) {
+    subscriptions.putAll(batch);
+    Set<Integer> snIds = new HashSet<>();
+    for (Subscription subscription : batch) {
+      if (snIds.add(subscription.getSnId())) {
+        releaseDeadbands(subscription.getSnId());
+      }
+    }
+  }
+
+  /**
+   * Stop delivering several sensor nodes to a control panel, whether it
+   * subscribes to them directly or through a group.
+   *
+   * @param cpId  control-panel node id
+   * @param snIds sensor node ids
+   * @return the ids of the nodes the control panel was receiving
+   */
+  public Set<Integer> removeSubscriptions(int cpId, Collection<Integer> snIds) {
+    Set<Integer> removed = new HashSet<>();
+    synchronized (groups) {
+      // Nodes a group subscription still covers are excluded instead of removed
+      List<Subscription> exclusions = new ArrayList<>();
+      List<Integer> direct = new ArrayList<>();
+      for (int snId : new LinkedHashSet<>(snIds)) {
+        Subscription current = subscriptions.get(cpId, snId);
+        if (current != null && current.isExclusion()) {
+          continue;
+        }
+        if (groupSubscriptionOf(cpId, snId) != null) {
+          exclusions.add(Subscription.exclusion(cpId, snId));
+          removed.add(snId);
+        } else if (current != null) {
+          direct.add(snId);
+        }
+      }
+      subscriptions.putAll(exclusions);
+      removed.addAll(subscriptions.removeAll(cpId, direct));
+    }
+    for (int snId : removed) {
+      wired().outbox().remove(cpId, snId);
+      releaseDeadbands(snId);
+    }
+    return removed;
+  }
+
+  /**
+   * Return whether a node id has an open connection, that is whether
+   * {@link #sendTo(SmartFarmingProtocol)} would write a packet addressed to it.
+   *
+   * @param nodeId the node id
+   * @return {@code true} if the node is registered on a socket that is not closed
+   */
+  public boolean isConnected(int nodeId) {
+    Socket socket = socketRegistry.get(nodeId);
+    return socket != null && !socket.isClosed();
+  }
+
+  /**
+   * Return whether a node id is bound to a connection, that is whether the
+   * node announced or resumed its session over that socket.
+   *
+   * @param nodeId the node id, for example the source id of a received frame
+   * @param socket the connection the frame arrived on (may be {@code null})
+   * @return {@code true} if the node is registered on {@code socket}
+   */
+  public boolean isBoundTo(int nodeId, Socket socket) {
+    return socket != null && socketRegistry.get(nodeId) == socket;
+  }
+
+  /**
+   * Return whether a node id belongs to a registered sensor node.
+   *
+   * @param nodeId the node id
+   * @return {@code true} if the node is registered with node type 1
+   */
+  public boolean isSensorNode(int nodeId) {
+    NodeDescriptor descriptor = nodeRegistry.get(nodeId);
+    return descriptor != null && descriptor.nodeType() == 1;
   }
 
   /**
-   * Remove all subscriptions for a control-panel id.
+   * Stop delivering a sensor node to a control panel, whether it subscribes
+   * to the node directly or through a group.
    *
    * @param cpId control-panel node id
    * @param snId sensorNode id
    */
 
   public void removeSubscription(int cpId, int snId) {
-    subscriptions.removeIf(s -> s.getSnId() == snId && s.getCpId() == cpId);
+    removeSubscriptions(cpId, List.of(snId));
   }
 
   /**
@@ -158,39 +984,184 @@ public class ServerContext {
    */
 
   public void removeAllSubscriptions(int id) {
-    subscriptions.removeIf(s -> s.getSnId() == id || s.getCpId() == id);
+    dropSubscriptions(id);
+  }
+
+  /**
+   * Remove the direct subscriptions of a node along with their delivery state.
+   *
+   * @return the removed subscriptions
+   */
+  private List<Subscription> dropSubscriptions(int id) {
+    List<Subscription> removed = subscriptions.removeNode(id);
+    wired().outbox().removeAll(id);
+    deadbands.removeNode(id);
+    for (Subscription subscription : removed) {
+      if (subscription.getCpId() == id) {
+        releaseDeadbands(subscription.getSnId());
+      }
+    }
+    return removed;
   }
 
   /**
-   * Get the list of control-panel ids that subscribe to a specific sensor node.
+   * Drop the deadband state of routes to a sensor node that no subscription
+   * uses any more, so a later subscriber with the same settings starts from
+   * its own snapshot instead of values delivered to an earlier one.
+   *
+   * @param snId the sensor node id
+   */
+  private void releaseDeadbands(int snId) {
+    deadbands.retain(snId, subscriptionsTo(snId));
+  }
+
+  /**
+   * Get the list of control-panel ids that subscribe to a specific sensor
+   * node, directly or through one of its groups.
    *
    * @param sensorNodeId the sensor's logical node id
    * @return a list of control-panel ids (may be empty)
    */
   public List<Integer> getSubscribersForSensorNode(int sensorNodeId) {
-    return subscriptions.stream()
-      .filter(s -> s.getSnId() == sensorNodeId)
-      .map(Subscription::getCpId)
-      .toList();
+    return subscriptionsTo(sensorNodeId).stream().map(Subscription::getCpId).toList();
+  }
+
+  /**
+   * Return the subscriptions through which a sensor node is delivered: its
+   * direct subscriptions, then for every other control panel the template of
+   * the node's first group it subscribes to.
+   */
+  private List<Subscription> subscriptionsTo(int snId) {
+    List<Subscription> live = new ArrayList<>();
+    Set<Integer> seen = new HashSet<>();
+    for (Subscription subscription : subscriptions.of(snId)) {
+      seen.add(subscription.getCpId());
+      if (!subscription.isExclusion()) {
+        live.add(subscription);
+      }
+    }
+    for (String group : groups.groupsOf(snId)) {
+      for (Subscription template : groups.subscribersOf(group)) {
+        if (seen.add(template.getCpId())) {
+          live.add(template);
+        }
+      }
+    }
+    return live;
   }
 
   /**
    * Forward a sensor report packet to all control-panel nodes subscribed
    * to the reporting sensor node.
    *
+   * <p>The subscribers are the node's direct subscriptions, looked up by
+   * node id, followed by the subscribers of each of the node's groups that
+   * neither subscribe to nor exclude the node directly; group subscribers that
+   * are not connected, for example while their session is parked, are
+   * skipped. The cost therefore depends on the subscribers of this node only.</p>
+   *
+   * <p>Each subscriber receives the report projected through its
+   * {@link SubscriptionFilter}; subscribers whose filter selects nothing in
+   * the report receive nothing. The packet is projected and encoded once per
+   * distinct filter and the same frame is written to every subscriber sharing
+   * that filter. Deadbands are evaluated by the {@link DeadbandGate} once per
+   * distinct filter and deadband policy. Subscriptions with a minimum
+   * interval go through the {@link ConflatingOutbox}, which lets the report
+   * through or holds it back for a later conflated delivery.</p>
+   *
    * @param packet the sensor report {@link SmartFarmingProtocol} packet
    *               whose source ID identifies the sensor node
    */
 
   public void sendToSubscribers(SmartFarmingProtocol packet) {
     int sensorId = packet.getHeader().getSourceId();
-    for (int cpId : getSubscribersForSensorNode(sensorId)) {
-      try {
-        sendTo(cpId, packet);
-      } catch (IOException e) {
-        System.out.println("Failed to send report to CP " + cpId);
+    long now = System.currentTimeMillis();
+    Map<Route, SmartFarmingProtocol> projections = new HashMap<>();
+    Map<Route, byte[]> frames = new HashMap<>();
+    Subscription[] direct = subscriptions.of(sensorId);
+    for (Subscription subscription : direct) {
+      if (!subscription.isExclusion()) {
+        deliver(packet, subscription, sensorId, now, projections, frames);
       }
     }
+
+    Set<Integer> served = null;
+    for (String group : groups.groupsOf(sensorId)) {
+      for (Subscription template : groups.subscribersOf(group)) {
+        if (served == null) {
+          served = new HashSet<>();
+          for (Subscription subscription : direct) {
+            served.add(subscription.getCpId());
+          }
+        }
+        int cpId = template.getCpId();
+        if (served.add(cpId) && socketRegistry.containsKey(cpId)) {
+          deliver(packet, template, sensorId, now, projections, frames);
+        }
+      }
+    }
+  }
+
+  /**
+   * Deliver a report to one subscriber, sharing projections and encoded
+   * frames with the other subscribers on the same route.
+   */
+  private void deliver(SmartFarmingProtocol packet, Subscription subscription, int sensorId,
+                       long now, Map<Route, SmartFarmingProtocol> projections,
+                       Map<Route, byte[]> frames) {
+    Route route = new Route(subscription.getFilter(), subscription.getDeadband());
+    if (!projections.containsKey(route)) {
+      projections.put(route, route(packet, route, sensorId, now));
+    }
+    SmartFarmingProtocol projected = projections.get(route);
+    if (projected == null) {
+      return;
+    }
+    int cpId = subscription.getCpId();
+    long interval = subscription.getMinIntervalMillis();
+    if (interval > 0 && projected.getBody() instanceof DataReportBody report
+        && !wired().outbox().offer(cpId, sensorId, report, interval)) {
+      return;
+    }
+    try {
+      sendFrame(cpId, frames.computeIfAbsent(route, r -> projected.toBytes()));
+    } catch (IOException e) {
+      System.out.println("Failed to send report to CP " + cpId);
+    }
+  }
+
+  /**
+   * Project a report through a filter and, if the route has one, its deadbands.
+   *
+   * @return the packet to deliver, or {@code null} if nothing passes
+   */
+  private SmartFarmingProtocol route(SmartFarmingProtocol packet, Route route,
+                                     int sensorId, long now) {
+    SmartFarmingProtocol projected = project(packet, route.filter());
+    if (projected == null || route.deadband() == null
+        || !(projected.getBody() instanceof DataReportBody report)) {
+      return projected;
+    }
+    DataReportBody passed =
+        deadbands.apply(sensorId, route.filter(), route.deadband(), report, now);
+    if (passed == null) {
+      return null;
+    }
+    return passed == report ? projected : new SmartFarmingProtocol(packet.getHeader(), passed);
+  }
+
+  /**
+   * Project a report through a filter.
+   *
+   * @return the projected packet, or {@code null} if the filter selects nothing
+   */
+  private static SmartFarmingProtocol project(SmartFarmingProtocol packet,
+                                              SubscriptionFilter filter) {
+    if (filter.isAll() || !(packet.getBody() instanceof DataReportBody report)) {
+      return packet;
+    }
+    DataReportBody projected = filter.apply(report);
+    return projected == null ? null : new SmartFarmingProtocol(packet.getHeader(), projected);
   }
 
   /**
@@ -201,10 +1172,31 @@ public class ServerContext {
    */
 
   public List<NodeDescriptor> getServerNodeDescriptors() {
-    return nodeRegistry.values()
-        .stream()
-        .filter(desc -> desc != null && desc.nodeType() == 1)
-        .collect(Collectors.toList());
+    return capabilities.nodes();
+  }
+
+  /**
+   * Push a capabilities change to every connected control panel, encoded once.
+   *
+   * <p>Writes block on slow control panels, so this is never called with
+   * {@code sessionLock} or {@code groups} held.</p>
+   *
+   * @param delta the change, or {@code null} if nothing changed
+   */
+  private void publishCapabilities(CapabilitiesDeltaBody delta) {
+    if (delta == null || controlPanels.isEmpty()) {
+      return;
+    }
+    byte[] frame = new SmartFarmingProtocol(
+        HeaderFactory.serverHeader(MessageTypes.CAPABILITIES_DELTA, NodeIds.BROADCAST),
+        delta).toBytes();
+    for (int cpId : controlPanels) {
+      try {
+        sendFrame(cpId, frame);
+      } catch (IOException e) {
+        System.out.println("Failed to push capabilities to CP " + cpId);
+      }
+    }
   }
 
   /**
@@ -218,13 +1210,80 @@ public class ServerContext {
    */
 
   public void broadcast(SmartFarmingProtocol packet) {
+    byte[] bytes = packet.toBytes();
     for (Socket s : socketRegistry.values()) {
       try {
-        s.getOutputStream().write(packet.toBytes());
-        s.getOutputStream().flush();
+        write(s, bytes);
       } catch (IOException e) {
         System.out.println("Failed to send broadcast: " + e.getMessage());
       }
     }
   }
-}
\ No newline at end of file
+
+  /**
+   * Write an encoded packet to a socket.
+   *
+   * <p>Writes are serialized per socket because several client threads may
+   * forward to the same node at once (for example many sensor nodes reporting
+   * to one control panel); unsynchronized writes would interleave frames.</p>
+   *
+   * @param socket destination socket
+   * @param bytes  the encoded packet
+   * @throws IOException if writing to the socket fails
+   */
+  private static void write(Socket socket, byte[] bytes) throws IOException {
+    synchronized (socket) {
+      OutputStream out = socket.getOutputStream();
+      out.write(bytes);
+      out.flush();
+    }
+  }
+
+  /**
+   * Return the collaborators that call back into this context, creating them
+   * on first use.
+   *
+   * @return the wired collaborators
+   */
+  private Collaborators wired() {
+    Collaborators wired = collaborators;
+    if (wired == null) {
+      synchronized (wiringLock) {
+        wired = collaborators;
+        if (wired == null) {
+          CommandTracker commands = new CommandTracker(this::sendTo);
+          wired = new Collaborators(
+              new GroupCommands((cpId, result) -> sendTo(new SmartFarmingProtocol(
+                  HeaderFactory.serverHeader(MessageTypes.GROUP_COMMAND_RESULT, cpId), result))),
+              commands,
+              new CommandCoalescer(this::sendTo, commands),
+              new LivenessTracker(this::expireNode),
+              new ConflatingOutbox(this::sendTo));
+          collaborators = wired;
+        }
+      }
+    }
+    return wired;
+  }
+
+  /**
+   * The collaborators that send packets or expire nodes through this context.
+   *
+   * @param groupCommands group commands waiting for acknowledgements
+   * @param commands      tracker of forwarded COMMANDs
+   * @param commandQueues outbound COMMAND queues per node
+   * @param liveness      heartbeat deadlines of sensor nodes, whose silent
+   *                      nodes are disconnected
+   * @param outbox        conflated reports of rate-limited subscriptions
+   */
+  private record Collaborators(GroupCommands groupCommands, CommandTracker commands,
+                               CommandCoalescer commandQueues, LivenessTracker liveness,
+                               ConflatingOutbox outbox) {
+  }
+
+  /**
+   * Subscribers sharing a route receive the same frame for a report.
+   */
+  private record Route(SubscriptionFilter filter, DeadbandPolicy deadband) {
+  }
+}
@@ -0,0 +1,219 @@
+package ntnu.idata2302.sfp.server.net;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import ntnu.idata2302.sfp.server.entity.Subscription;
+
+/**
+ * Direct subscriptions of control panels to sensor nodes, indexed by sensor node.
+ *
+ * <p>The subscriptions to one sensor node are kept as an immutable array that
+ * is replaced on change, so report fan-out reads them with a single lookup and
+ * without locking, and its cost depends only on that node's subscribers.
+ * Changes copy just the array of the affected node. A reverse index from
+ * control panel to sensor nodes lets a leaving control panel be removed
+ * without visiting every node.</p>
+ *
+ * <p>A control panel has at most one subscription per sensor node; storing
+ * another replaces it. Group subscriptions are not stored here but kept as
+ * templates in the {@code GroupRegistry}.</p>
+ */
+public class SubscriptionIndex {
+
+  private static final Subscription[] NONE = new Subscription[0];
+
+  private final Map<Integer, Subscription[]> bySensor = new ConcurrentHashMap<>();
+  // Guarded by this; only used while changing the index
+  private final Map<Integer, Set<Integer>> byPanel = new HashMap<>();
+
+  /**
+   * Return the subscriptions to a sensor node.
+   *
+   * @param snId the sensor node id
+   * @return the subscriptions in the order they were made; must not be modified
+   */
+  public Subscription[] of(int snId) {
+    return bySensor.getOrDefault(snId, NONE);
+  }
+
+  /**
+   * Return the subscription of a control panel to a sensor node.
+   *
+   * @param cpId the control panel id
+   * @param snId the sensor node id
+   * @return the subscription, or {@code null} if there is none
+   */
+  public Subscription get(int cpId, int snId) {
+    for (Subscription subscription : of(snId)) {
+      if (subscription.getCpId() == cpId) {
+        return subscription;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Store a subscription, replacing the control panel's earlier subscription
+   * to the same sensor node.
+   *
+   * @param subscription the subscription
+   */
+  public synchronized void put(Subscription subscription) {
+    int snId = subscription.getSnId();
+    Subscription[] current = of(snId);
+    int index = indexOf(current, subscription.getCpId());
+    Subscription[] updated;
+    if (index >= 0) {
+      // A replaced subscription goes to the end, like one made afresh
+      updated = new Subscription[current.length];
+      System.arraycopy(current, 0, updated, 0, index);
+      System.arraycopy(current, index + 1, updated, index, current.length - index - 1);
+      updated[current.length - 1] = subscription;
+    } else {
+      updated = Arrays.copyOf(current, current.length + 1);
+      updated[current.length] = subscription;
+    }
+    bySensor.put(snId, updated);
+    byPanel.computeIfAbsent(subscription.getCpId(), id -> new HashSet<>()).add(snId);
+  }
+
+  /**
+   * Store several subscriptions in one update, replacing earlier subscriptions
+   * of the same control panels to the same sensor nodes. Each affected node's
+   * array is copied once, however many of the subscriptions it receives.
+   *
+   * @param subscriptions the subscriptions; a later one for the same pair wins
+   */
+  public synchronized void putAll(Collection<Subscription> subscriptions) {
+    Map<Integer, Map<Integer, Subscription>> bySnId = new LinkedHashMap<>();
+    for (Subscription subscription : subscriptions) {
+      Map<Integer, Subscription> forNode =
+          bySnId.computeIfAbsent(subscription.getSnId(), id -> new LinkedHashMap<>());
+      // A replaced subscription goes to the end, like one made afresh
+      forNode.remove(subscription.getCpId());
+      forNode.put(subscription.getCpId(), subscription);
+    }
+    bySnId.forEach((snId, added) -> {
+      Subscription[] current = of(snId);
+      List<Subscription> updated = new ArrayList<>(current.length + added.size());
+      for (Subscription subscription : current) {
+        if (!added.containsKey(subscription.getCpId())) {
+          updated.add(subscription);
+        }
+      }
+      updated.addAll(added.values());
+      bySensor.put(snId, updated.toArray(NONE));
+      for (int cpId : added.keySet()) {
+        byPanel.computeIfAbsent(cpId, id -> new HashSet<>()).add(snId);
+      }
+    });
+  }
+
+  /**
+   * Store subscriptions that do not exist yet, keeping existing ones.
+   *
+   * @param subscriptions the subscriptions
+   */
+  public synchronized void putAbsent(Collection<Subscription> subscriptions) {
+    for (Subscription subscription : subscriptions) {
+      if (get(subscription.getCpId(), subscription.getSnId()) == null) {
+        put(subscription);
+      }
+    }
+  }
+
+  /**
+   * Remove the subscription of a control panel to a sensor node.
+   *
+   * @param cpId the control panel id
+   * @param snId the sensor node id
+   * @return {@code true} if there was one
+   */
+  public synchronized boolean remove(int cpId, int snId) {
+    Subscription[] current = of(snId);
+    int index = indexOf(current, cpId);
+    if (index < 0) {
+      return false;
+    }
+    if (current.length == 1) {
+      bySensor.remove(snId);
+    } else {
+      Subscription[] updated = new Subscription[current.length - 1];
+      System.arraycopy(current, 0, updated, 0, index);
+      System.arraycopy(current, index + 1, updated, index, current.length - index - 1);
+      bySensor.put(snId, updated);
+    }
+    Set<Integer> nodes = byPanel.get(cpId);
+    if (nodes != null && nodes.remove(snId) && nodes.isEmpty()) {
+      byPanel.remove(cpId);
+    }
+    return true;
+  }
+
+  /**
+   * Remove the subscriptions of a control panel to several sensor nodes in
+   * one update.
+   *
+   * @param cpId  the control panel id
+   * @param snIds the sensor node ids
+   * @return the ids of the nodes the control panel had a subscription to
+   */
+  public synchronized Set<Integer> removeAll(int cpId, Collection<Integer> snIds) {
+    Set<Integer> removed = new HashSet<>();
+    for (int snId : snIds) {
+      if (remove(cpId, snId)) {
+        removed.add(snId);
+      }
+    }
+    return removed;
+  }
+
+  /**
+   * Remove every subscription a node takes part in, as control panel or as
+   * sensor node.
+   *
+   * @param id the node id
+   * @return the removed subscriptions
+   */
+  public synchronized List<Subscription> removeNode(int id) {
+    List<Subscription> removed = new ArrayList<>();
+    Subscription[] toNode = bySensor.remove(id);
+    if (toNode != null) {
+      for (Subscription subscription : toNode) {
+        removed.add(subscription);
+        Set<Integer> nodes = byPanel.get(subscription.getCpId());
+        if (nodes != null && nodes.remove(id) && nodes.isEmpty()) {
+          byPanel.remove(subscription.getCpId());
+        }
+      }
+    }
+    Set<Integer> subscribed = byPanel.get(id);
+    if (subscribed != null) {
+      for (int snId : List.copyOf(subscribed)) {
+        Subscription subscription = get(id, snId);
+        if (subscription != null) {
+          removed.add(subscription);
+          remove(id, snId);
+        }
+      }
+    }
+    return removed;
+  }
+
+  private static int indexOf(Subscription[] subscriptions, int cpId) {
+    for (int i = 0; i < subscriptions.length; i++) {
+      if (subscriptions[i].getCpId() == cpId) {
+        return i;
+      }
+    }
+    return -1;
+  }
+}
@@ -0,0 +1,80 @@
+package ntnu.idata2302.sfp.server.net;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket, implemented as a generic cell rate algorithm.
+ *
+ * <p>Instead of a token count refilled by a timer, the bucket keeps the
+ * theoretical arrival time of the next unit: each admitted unit moves it
+ * {@code 1 / rate} seconds ahead, and a request is admitted while that time
+ * stays within one burst of now. Refilling is thus implicit in the passing of
+ * time and costs nothing, and admitting is a single compare-and-set, so one
+ * bucket may also be shared between threads.</p>
+ */
+public class TokenBucket {
+
+  private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+  private final long ratePerSecond;
+  private final long burstNanos;
+  private final AtomicLong theoreticalArrival;
+
+  /**
+   * Create a full bucket.
+   *
+   * @param ratePerSecond units refilled per second; must be positive
+   * @param burst         units admitted at once from a full bucket; must be positive
+   * @param nowNanos      the current {@link System#nanoTime()}
+   * @throws IllegalArgumentException if the rate or burst is not positive
+   */
+  public TokenBucket(long ratePerSecond, long burst, long nowNanos) {
+    if (ratePerSecond <= 0 || burst <= 0) {
+      throw new IllegalArgumentException("ratePerSecond and burst must be positive");
+    }
+    this.ratePerSecond = ratePerSecond;
+    this.burstNanos = costNanos(burst);
+    this.theoreticalArrival = new AtomicLong(nowNanos);
+  }
+
+  /**
+   * Take units from the bucket if enough are available.
+   *
+   * <p>A request larger than the burst is admitted only from a full bucket,
+   * so it is slowed down rather than refused forever.</p>
+   *
+   * @param units    the number of units, for example 1 frame or a frame's bytes
+   * @param nowNanos the current {@link System#nanoTime()}
+   * @return {@code true} if the units were taken
+   */
+  public boolean tryAcquire(long units, long nowNanos) {
+    long cost = costNanos(units);
+    long allowance = Math.max(burstNanos, cost);
+    while (true) {
+      long current = theoreticalArrival.get();
+      long start = current - nowNanos > 0 ? current : nowNanos;
+      long next = start + cost;
+      if (next - nowNanos > allowance) {
+        return false;
+      }
+      if (theoreticalArrival.compareAndSet(current, next)) {
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Return units taken by {@link #tryAcquire(long, long)}, for example when a
+   * request was admitted here but refused by another bucket it also needs.
+   *
+   * @param units the number of units to return, as passed to {@code tryAcquire}
+   */
+  public void refund(long units) {
+    theoreticalArrival.addAndGet(-costNanos(units));
+  }
+
+  private long costNanos(long units) {
+    // Clamped so the product cannot overflow; larger requests wait for a full bucket anyway
+    return Math.min(units, Integer.MAX_VALUE) * NANOS_PER_SECOND / ratePerSecond;
+  }
+}
@@ -0,0 +1,151 @@
+package ntnu.idata2302.sfp.server.net.handlers;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import ntnu.idata2302.sfp.library.SmartFarmingProtocol;
+import ntnu.idata2302.sfp.library.body.aggregate.AggregateQueryBody;
+import ntnu.idata2302.sfp.library.body.aggregate.AggregateResultBody;
+import ntnu.idata2302.sfp.library.body.error.ErrorBody;
+import ntnu.idata2302.sfp.library.header.Header;
+import ntnu.idata2302.sfp.library.header.MessageTypes;
+import ntnu.idata2302.sfp.library.node.NodeDescriptor;
+import ntnu.idata2302.sfp.server.aggregate.Aggregate;
+import ntnu.idata2302.sfp.server.aggregate.AggregateEngine;
+import ntnu.idata2302.sfp.server.aggregate.ContinuousQueries;
+import ntnu.idata2302.sfp.server.aggregate.Period;
+import ntnu.idata2302.sfp.server.factory.HeaderFactory;
+import ntnu.idata2302.sfp.server.net.ServerContext;
+
+/**
+ * Handles AGGREGATE_QUERY messages sent by control-panel nodes.
+ *
+ * <p>The query aggregates one sensor over a group of sensor nodes: the listed
+ * node ids, or every registered sensor node whose descriptor lists the
+ * sensor. The result is merged from the per-node windows the
+ * {@link AggregateEngine} already maintains, so answering costs one merge per
+ * node regardless of how many samples the period holds.</p>
+ *
+ * <p>A query with an interval is registered with the context's
+ * {@link ContinuousQueries} and answered with an AGGREGATE_RESULT every
+ * interval until it is cancelled or the control panel disconnects; the group
+ * is re-evaluated each time, so nodes joining later are included. A query
+ * with an unknown period or type, or beyond the panel's query limit, is
+ * answered with an ERROR.</p>
+ */
+
+public class AggregateQueryHandler implements MessageHandler {
+
+  private static final int BAD_REQUEST = 1;
+
+  /**
+   * Answer an AGGREGATE_QUERY, or start or cancel a push query.
+   *
+   * @param message the protocol packet containing the AGGREGATE_QUERY
+   * @param client  the socket of the requesting control-panel node
+   * @param context the server context holding the aggregates and the registry
+   * @throws IOException if sending the result fails
+   */
+
+  @Override
+  public void handle(SmartFarmingProtocol message,
+                     Socket client, ServerContext context) throws IOException {
+    int cpId = message.getHeader().getSourceId();
+    AggregateQueryBody query = (AggregateQueryBody) message.getBody();
+    ContinuousQueries queries = context.getContinuousQueries();
+
+    if (Boolean.TRUE.equals(query.cancel())) {
+      queries.cancel(cpId, query.requestId());
+      return;
+    }
+
+    Period period;
+    try {
+      period = query.period() == null
+          ? context.getAggregateEngine().defaultPeriods().get(0)
+          : Period.parse(query.period());
+    } catch (IllegalArgumentException e) {
+      sendError(context, client, cpId, "Unknown period: " + query.period());
+      return;
+    }
+    if (query.sensorId() == null
+        || (query.types() != null && !AggregateEngine.TYPES.containsAll(query.types()))) {
+      sendError(context, client, cpId, "Invalid aggregate query");
+      return;
+    }
+
+    Integer interval = query.intervalMillis();
+    if (interval == null || interval <= 0) {
+      context.sendTo(client, result(query, period, context, cpId));
+      return;
+    }
+
+    boolean started = queries.start(cpId, query.requestId(), interval, () -> {
+      try {
+        context.sendTo(cpId, result(query, period, context, cpId));
+      } catch (IOException e) {
+        System.out.println("Failed to push aggregates to CP " + cpId);
+      }
+    });
+    if (!started) {
+      sendError(context, client, cpId, "Too many push queries");
+    }
+  }
+
+  /**
+   * Evaluate a query now.
+   */
+  private static SmartFarmingProtocol result(AggregateQueryBody query, Period period,
+                                             ServerContext context, int cpId) {
+    AggregateEngine engine = context.getAggregateEngine();
+    long now = System.currentTimeMillis();
+
+    Aggregate total = Aggregate.EMPTY;
+    List<Integer> contributing = new ArrayList<>();
+    for (int nodeId : group(query, context)) {
+      Aggregate partial = engine.aggregate(nodeId, query.sensorId(), period, now);
+      if (!partial.isEmpty()) {
+        total = total.merge(partial);
+        contributing.add(nodeId);
+      }
+    }
+
+    List<String> types = query.types();
+    boolean empty = total.isEmpty();
+    AggregateResultBody body = new AggregateResultBody(
+        query.requestId(), query.sensorId(), period.name(), now, contributing, total.count(),
+        empty || !wants(types, "min") ? null : total.min(),
+        empty || !wants(types, "max") ? null : total.max(),
+        empty || !wants(types, "avg") ? null : total.avg());
+    Header header = HeaderFactory.serverHeader(MessageTypes.AGGREGATE_RESULT, cpId);
+    return new SmartFarmingProtocol(header, body);
+  }
+
+  /**
+   * Resolve the node group of a query.
+   */
+  private static List<Integer> group(AggregateQueryBody query, ServerContext context) {
+    if (query.nodeIds() != null && !query.nodeIds().isEmpty()) {
+      return query.nodeIds();
+    }
+    List<Integer> nodeIds = new ArrayList<>();
+    for (NodeDescriptor descriptor : context.getServerNodeDescriptors()) {
+      if (descriptor.nodeId() != null && descriptor.sensors() != null
+          && descriptor.sensors().stream().anyMatch(s -> query.sensorId().equals(s.id()))) {
+        nodeIds.add(descriptor.nodeId());
+      }
+    }
+    return nodeIds;
+  }
+
+  private static boolean wants(List<String> types, String type) {
+    return types == null || types.contains(type);
+  }
+
+  private static void sendError(ServerContext context, Socket client, int cpId, String text)
+      throws IOException {
+    Header header = HeaderFactory.serverHeader(MessageTypes.ERROR, cpId);
+    context.sendTo(client, new SmartFarmingProtocol(header, new ErrorBody(BAD_REQUEST, text)));
+  }
+}
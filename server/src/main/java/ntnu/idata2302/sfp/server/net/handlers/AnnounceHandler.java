@@ -7,10 +7,11 @@ import ntnu.idata2302.sfp.library.body.announce.AnnounceAckBody;
 import ntnu.idata2302.sfp.library.body.announce.AnnounceBody;
 import ntnu.idata2302.sfp.library.header.Header;
 import ntnu.idata2302.sfp.library.header.MessageTypes;
+import ntnu.idata2302.sfp.library.node.DescriptorTemplates;
 import ntnu.idata2302.sfp.library.node.NodeDescriptor;
+import ntnu.idata2302.sfp.library.node.NodeIds;
 import ntnu.idata2302.sfp.server.factory.HeaderFactory;
 import ntnu.idata2302.sfp.server.net.ServerContext;
-import ntnu.idata2302.sfp.server.util.IdAllocator;
 
 /**
  * Handles ANNOUNCE messages sent by sensor or control-panel nodes.
@@ -18,12 +19,27 @@ import ntnu.idata2302.sfp.server.util.IdAllocator;
  * <p>When a new node connects and announces itself, this handler:
  * <ul>
  *   <li>Extracts the node's descriptor from the ANNOUNCE message</li>
- *   <li>Allocates and assigns a unique node ID</li>
- *   <li>Registers the node and its socket in the server context</li>
+ *   <li>Allocates and assigns a unique node ID from the sensor node or
+ *       control panel range, depending on the node type</li>
+ *   <li>Registers the node and its socket in the server context, adding a
+ *       sensor node to the groups named in its descriptor</li>
  *   <li>Sends an ANNOUNCE_ACK response back to the node</li>
  * </ul>
  * This allows the server to keep track of newly connected nodes and
  * establish their identity before any further communication.
+ *
+ * <p>A node reconnecting after a dropped connection includes the resume token
+ * from its previous ANNOUNCE_ACK. If the server still holds that session, the
+ * node gets its old id and subscriptions back instead of a new id. Every
+ * ANNOUNCE_ACK carries a fresh token.</p>
+ *
+ * <p>Descriptors are interned in the server's
+ * {@link ntnu.idata2302.sfp.server.capabilities.TemplateStore}. A node may
+ * announce with a reference to its descriptor template instead of the full
+ * descriptor; if the template is unknown the node is not registered and gets
+ * an ANNOUNCE_ACK with {@link AnnounceAckBody#STATUS_TEMPLATE_UNKNOWN}, after
+ * which it announces again in full. The registered descriptor holds a
+ * reference to its template until the node is forgotten.</p>
  */
 
 public class AnnounceHandler implements MessageHandler {
@@ -46,21 +62,52 @@ public class AnnounceHandler implements MessageHandler {
     AnnounceBody reqBody = (AnnounceBody) message.getBody();
     NodeDescriptor announcedNode = reqBody.descriptor();
 
-    // Allocate ID from allocator
-    int givenId = IdAllocator.allocate();
+    // Try to resume a previous session first
+    NodeDescriptor resumedNode = reqBody.resumeToken() == null
+        ? null
+        : context.resumeSession(reqBody.resumeToken(), client);
 
-    // Create new descriptor same as incoming, only ID replaced
-    NodeDescriptor registeredNode = new NodeDescriptor(
-          givenId,
-         announcedNode.nodeType(),
-         announcedNode.sensors(),
-         announcedNode.actuators(),
-         announcedNode.supportsImages(),
-         announcedNode.supportsAggregates()
-    );
+    int givenId;
+    if (resumedNode != null) {
+      givenId = resumedNode.nodeId();
+    } else {
+      announcedNode = DescriptorTemplates.isReference(announcedNode)
+          ? context.getTemplates().resolve(announcedNode)
+          : context.getTemplates().intern(announcedNode);
+      if (announcedNode == null) {
+        // Unknown template: ask for the full descriptor, without registering
+        Header resHeader = HeaderFactory.serverHeader(MessageTypes.ANNOUNCE_ACK, NodeIds.BROADCAST);
+        context.sendTo(client, new SmartFarmingProtocol(resHeader,
+            new AnnounceAckBody(reqBody.requestId(), AnnounceAckBody.STATUS_TEMPLATE_UNKNOWN)));
+        return;
+      }
+
+      // Allocate ID from the range matching the node type
+      try {
+        givenId = announcedNode.nodeType() == 1
+            ? context.getIdAllocator().allocateSensorNode()
+            : context.getIdAllocator().allocateControlPanel();
+      } catch (IllegalStateException e) {
+        // Not registered, so the template reference would never be returned
+        context.getTemplates().release(announcedNode.template());
+        throw e;
+      }
+
+      // Create new descriptor same as incoming, only ID replaced
+      NodeDescriptor registeredNode = new NodeDescriptor(
+            givenId,
+           announcedNode.nodeType(),
+           announcedNode.sensors(),
+           announcedNode.actuators(),
+           announcedNode.supportsImages(),
+           announcedNode.supportsAggregates(),
+           announcedNode.groups(),
+           announcedNode.template()
+      );
 
-    // Register node & its socket
-    context.registerNode(givenId, registeredNode, client);
+      // Register node & its socket
+      context.registerNode(givenId, registeredNode, client);
+    }
 
     // Respond with ACK -------------------------
     Header resHeader = HeaderFactory.serverHeader(
@@ -70,7 +117,8 @@ public class AnnounceHandler implements MessageHandler {
 
     AnnounceAckBody resBody = new AnnounceAckBody(
          reqBody.requestId(),
-          1  // success status
+          AnnounceAckBody.STATUS_OK,
+         context.issueResumeToken(givenId)
     );
 
     context.sendTo(client, new SmartFarmingProtocol(resHeader, resBody));
@@ -3,25 +3,35 @@ package ntnu.idata2302.sfp.server.net.handlers;
 import java.io.IOException;
 import java.net.Socket;
 import ntnu.idata2302.sfp.library.SmartFarmingProtocol;
-import ntnu.idata2302.sfp.library.body.capabilities.CapabilitiesListBody;
+import ntnu.idata2302.sfp.library.body.Body;
+import ntnu.idata2302.sfp.library.body.capabilities.CapabilitiesDeltaBody;
 import ntnu.idata2302.sfp.library.body.capabilities.CapabilitiesQueryBody;
 import ntnu.idata2302.sfp.library.header.Header;
 import ntnu.idata2302.sfp.library.header.MessageTypes;
+import ntnu.idata2302.sfp.server.capabilities.CapabilitiesCatalog;
 import ntnu.idata2302.sfp.server.factory.HeaderFactory;
 import ntnu.idata2302.sfp.server.net.ServerContext;
 
-
-
 /**
  * Handles CAPABILITIES_QUERY messages sent by control-panel or sensor nodes.
  *
  * <p>When a node requests the list of known node descriptors, this handler:
  * <ul>
  *   <li>Reads the incoming CAPABILITIES_QUERY request</li>
- *   <li>Collects all registered node descriptors from the server context</li>
- *   <li>Builds and sends a CAPABILITIES_LIST response back to the requester</li>
+ *   <li>Looks up the sensor node descriptors in the server's
+ *       {@link CapabilitiesCatalog}</li>
+ *   <li>Sends a CAPABILITIES_LIST response back to the requester</li>
  * </ul>
  * This allows nodes to discover available devices and their capabilities in the system.
+ *
+ * <p>The full list is encoded once per catalog version and reused for every
+ * query. A query naming the version the requester already has is answered
+ * with a not-modified CAPABILITIES_LIST, or with a CAPABILITIES_DELTA holding
+ * the changes since that version when the catalog still has them.</p>
+ *
+ * <p>Filtered or paged queries are answered with one page of the matching
+ * nodes, looked up in the catalog's indexes, so no answer grows beyond
+ * {@link CapabilitiesCatalog#MAX_PAGE_SIZE} nodes.</p>
  */
 
 public class CapabilitiesHandler implements MessageHandler {
@@ -30,8 +40,8 @@ public class CapabilitiesHandler implements MessageHandler {
    * Processes an incoming CAPABILITIES_QUERY message.
    *
    * <p>This method extracts the request information, creates a response header and body
-   * containing the current list of registered node descriptors, and sends a
-   * CAPABILITIES_LIST packet back to the requesting client.
+   * answering the query from the capabilities catalog, and sends it back to
+   * the requesting client.
    *
    * @param message the parsed protocol packet containing the query
    * @param client  the TCP socket representing the requesting node
@@ -45,20 +55,15 @@ public class CapabilitiesHandler implements MessageHandler {
     Header reqHeader = message.getHeader();
     CapabilitiesQueryBody reqBody = (CapabilitiesQueryBody) message.getBody();
 
-    // Response - Header
-    Header resHeader = HeaderFactory
-          .serverHeader(MessageTypes.CAPABILITIES_LIST,
-            reqHeader.getSourceId());
-
+    CapabilitiesCatalog catalog = context.getCapabilities();
+    Body resBody = reqBody.isPaged()
+        ? catalog.query(reqBody.requestId(), reqBody.filter(), reqBody.cursor(), reqBody.limit())
+        : catalog.answer(reqBody.requestId(), reqBody.knownVersion());
+    MessageTypes resType = resBody instanceof CapabilitiesDeltaBody
+        ? MessageTypes.CAPABILITIES_DELTA : MessageTypes.CAPABILITIES_LIST;
 
-    // Response - Body
-    CapabilitiesListBody resBody = new CapabilitiesListBody(
-         reqBody.requestId(),
-         context.getServerNodeDescriptors()
-    );
-    // TODO remove
-    System.out.println("Getting descriptors");
-    System.out.println(context.getServerNodeDescriptors());
+    // Response - Header
+    Header resHeader = HeaderFactory.serverHeader(resType, reqHeader.getSourceId());
 
     context.sendTo(
          client, new SmartFarmingProtocol(resHeader, resBody)
@@ -2,20 +2,56 @@ package ntnu.idata2302.sfp.server.net.handlers;
 
 import java.io.IOException;
 import java.net.Socket;
+import java.util.List;
 import ntnu.idata2302.sfp.library.SmartFarmingProtocol;
+import ntnu.idata2302.sfp.library.body.command.CommandBody;
+import ntnu.idata2302.sfp.library.body.data.DataReportBody;
+import ntnu.idata2302.sfp.library.header.MessageTypes;
+import ntnu.idata2302.sfp.server.aggregate.AggregateEngine;
+import ntnu.idata2302.sfp.server.factory.HeaderFactory;
 import ntnu.idata2302.sfp.server.net.ServerContext;
+import ntnu.idata2302.sfp.server.tsdb.TimeSeriesStore;
 
 /**
  * Handles incoming DATA_REPORT messages from sensor nodes.
  *
  * <p>When a sensor node reports new sensor or actuator state data,
- * this handler forwards that report to all control-panel nodes
- * subscribed to the reporting sensor node.
+ * this handler records it in the server's last-value cache, history and
+ * aggregate engine (and, when enabled, the persistent time-series store),
+ * and forwards that report to all control-panel nodes subscribed to the
+ * reporting sensor node.
  * </p>
+ *
+ * <p>With the system property {@code sfp.aggregate.attach=true}, reports that
+ * carry no aggregates of their own are forwarded with the broker's aggregates
+ * of the reported sensors over the default periods attached.</p>
+ *
+ * <p>The report is also checked against the broker's
+ * {@link ntnu.idata2302.sfp.server.rules.RulesEngine}; if a rule changes
+ * state, the resulting COMMAND is sent straight back to the reporting node
+ * before the report is fanned out.</p>
  */
 
 public class DataReportHandler implements MessageHandler {
 
+  private final boolean attachAggregates;
+
+  /**
+   * Create a handler that attaches aggregates if {@code sfp.aggregate.attach} is set.
+   */
+  public DataReportHandler() {
+    this(Boolean.getBoolean("sfp.aggregate.attach"));
+  }
+
+  /**
+   * Create a handler.
+   *
+   * @param attachAggregates whether to attach broker aggregates to forwarded reports
+   */
+  public DataReportHandler(boolean attachAggregates) {
+    this.attachAggregates = attachAggregates;
+  }
+
   /**
    * Forwards an incoming DATA_REPORT message to all subscribers
    * of the reporting sensor node.
@@ -29,7 +65,50 @@ public class DataReportHandler implements MessageHandler {
   @Override
   public void handle(SmartFarmingProtocol message,
                      Socket client, ServerContext context) throws IOException {
+    // Remember the latest state for snapshots and DATA_REQUESTs, and keep history
+    if (message.getBody() instanceof DataReportBody report) {
+      int sensorNodeId = message.getHeader().getSourceId();
+      long now = System.currentTimeMillis();
+      context.getLastValueCache().update(sensorNodeId, report);
+      context.getHistoryStore().record(sensorNodeId, report, now);
+      context.getAggregateEngine().record(sensorNodeId, report, now);
+
+      TimeSeriesStore timeSeries = context.getTimeSeriesStore();
+      if (timeSeries != null) {
+        timeSeries.append(sensorNodeId, report, now);
+      }
+
+      CommandBody command = context.getRules().evaluate(sensorNodeId, report);
+      if (command != null) {
+        context.sendTo(new SmartFarmingProtocol(
+            HeaderFactory.serverHeader(MessageTypes.COMMAND, sensorNodeId), command));
+      }
+
+      if (attachAggregates && report.aggregates() == null && report.sensors() != null) {
+        message = withAggregates(message, report, context.getAggregateEngine(), now);
+      }
+    }
+
     // Direct message to all subscribers of the node
     context.sendToSubscribers(message);
   }
+
+  /**
+   * Copy a report packet with the aggregates of its sensors attached.
+   */
+  private static SmartFarmingProtocol withAggregates(SmartFarmingProtocol message,
+                                                     DataReportBody report,
+                                                     AggregateEngine engine, long now) {
+    List<String> sensors = report.sensors().stream()
+        .map(DataReportBody.SensorReading::id)
+        .filter(id -> id != null)
+        .toList();
+    List<DataReportBody.AggregateValue> aggregates = engine.values(
+        message.getHeader().getSourceId(), sensors, engine.defaultPeriods(), null, now);
+    if (aggregates.isEmpty()) {
+      return message;
+    }
+    return new SmartFarmingProtocol(message.getHeader(),
+        new DataReportBody(report.sensors(), report.actuators(), aggregates));
+  }
 }
@@ -0,0 +1,178 @@
+package ntnu.idata2302.sfp.server.net.handlers;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import ntnu.idata2302.sfp.library.SmartFarmingProtocol;
+import ntnu.idata2302.sfp.library.body.data.DataReportBody;
+import ntnu.idata2302.sfp.library.body.data.DataRequestBody;
+import ntnu.idata2302.sfp.library.header.Header;
+import ntnu.idata2302.sfp.library.header.MessageTypes;
+import ntnu.idata2302.sfp.server.aggregate.AggregateEngine;
+import ntnu.idata2302.sfp.server.aggregate.Period;
+import ntnu.idata2302.sfp.server.factory.HeaderFactory;
+import ntnu.idata2302.sfp.server.net.ServerContext;
+
+/**
+ * Handles DATA_REQUEST messages sent by control-panel nodes to a sensor node.
+ *
+ * <p>Requests for current sensor readings and actuator states are answered by
+ * the server from its last-value cache with a DATA_REPORT attributed to the
+ * sensor node, saving a round-trip to the node. Aggregate sections are
+ * answered from the broker's {@link AggregateEngine}. Requests the broker
+ * cannot answer are forwarded to the node unchanged:
+ * <ul>
+ *   <li>the node has not reported yet</li>
+ *   <li>images are requested</li>
+ *   <li>a requested metric is not in the cached report</li>
+ *   <li>aggregates are requested with an unknown period or type, or the
+ *       broker has no aggregates for the node</li>
+ * </ul>
+ * </p>
+ */
+
+public class DataRequestHandler implements MessageHandler {
+
+  /**
+   * Answer a DATA_REQUEST from cache or forward it to the target sensor node.
+   *
+   * @param message the protocol packet containing the DATA_REQUEST
+   * @param client  the socket of the requesting control-panel node
+   * @param context the server context holding the last-value cache
+   * @throws IOException if sending the answer or forwarding the request fails
+   */
+
+  @Override
+  public void handle(SmartFarmingProtocol message,
+                     Socket client, ServerContext context) throws IOException {
+    Header reqHeader = message.getHeader();
+    DataRequestBody reqBody = (DataRequestBody) message.getBody();
+    int sensorNodeId = reqHeader.getTargetId();
+
+    DataReportBody cached = context.getLastValueCache().get(sensorNodeId);
+    DataReportBody answer = cached == null ? null
+        : answerFromCache(reqBody, cached, context.getAggregateEngine(), sensorNodeId);
+
+    if (answer == null) {
+      // Let the node answer itself
+      context.sendTo(message);
+      return;
+    }
+
+    Header resHeader = HeaderFactory.relayHeader(
+        MessageTypes.DATA_REPORT, sensorNodeId, reqHeader.getSourceId());
+    context.sendTo(client, new SmartFarmingProtocol(resHeader, answer));
+  }
+
+  /**
+   * Select the requested parts of a cached report.
+   *
+   * <p>A request without a sensor or actuator section asks for everything. A
+   * sensor section without metrics asks for every sensor.</p>
+   *
+   * @param request      the DATA_REQUEST body
+   * @param cached       the cached state of the target node
+   * @param engine       the aggregate engine, consulted if aggregates are requested
+   * @param sensorNodeId the id of the target node
+   * @return the answer, or {@code null} if the broker cannot answer the request
+   */
+  static DataReportBody answerFromCache(DataRequestBody request, DataReportBody cached,
+                                        AggregateEngine engine, int sensorNodeId) {
+    DataRequestBody.SensorSection sensors = request.sensors();
+    DataRequestBody.ActuatorSection actuators = request.actuators();
+
+    if (request.images() != null && Boolean.TRUE.equals(request.images().includeLatest())) {
+      return null;
+    }
+
+    List<DataReportBody.AggregateValue> aggregates = null;
+    if (sensors != null
+        && (Boolean.TRUE.equals(sensors.includeAggregates()) || sensors.aggregates() != null)) {
+      aggregates = selectAggregates(sensors, engine, sensorNodeId);
+      if (aggregates == null) {
+        return null;
+      }
+    }
+
+    boolean everything = sensors == null && actuators == null;
+
+    List<DataReportBody.SensorReading> readings = null;
+    if (everything || sensors != null) {
+      readings = selectSensors(sensors == null ? null : sensors.metrics(), cached.sensors());
+      if (readings == null) {
+        return null;
+      }
+    }
+
+    List<DataReportBody.ActuatorState> states = null;
+    if (everything || (actuators != null && !Boolean.FALSE.equals(actuators.includeStates()))) {
+      states = cached.actuators();
+    }
+
+    return new DataReportBody(readings, states, aggregates);
+  }
+
+  /**
+   * Compute the requested aggregates. Without an aggregate section, every
+   * requested metric is aggregated over the engine's default periods.
+   *
+   * @return the aggregates, or {@code null} if the request cannot be answered
+   */
+  private static List<DataReportBody.AggregateValue> selectAggregates(
+      DataRequestBody.SensorSection sensors, AggregateEngine engine, int sensorNodeId) {
+    DataRequestBody.SensorAggregateSection section = sensors.aggregates();
+    List<String> metrics = section != null && section.metrics() != null
+        ? section.metrics() : sensors.metrics();
+    List<String> types = section == null ? null : section.types();
+    if (types != null && !AggregateEngine.TYPES.containsAll(types)) {
+      return null;
+    }
+
+    List<Period> periods = engine.defaultPeriods();
+    if (section != null && section.periods() != null) {
+      periods = new ArrayList<>(section.periods().size());
+      try {
+        for (String period : section.periods()) {
+          periods.add(Period.parse(period));
+        }
+      } catch (IllegalArgumentException e) {
+        return null;
+      }
+    }
+
+    if (engine.sensors(sensorNodeId).isEmpty()) {
+      return null;
+    }
+    return engine.values(sensorNodeId, metrics, periods, types, System.currentTimeMillis());
+  }
+
+  /**
+   * Pick the requested metrics from the cached readings, in request order.
+   *
+   * @return the readings, or {@code null} if a requested metric is not cached
+   */
+  private static List<DataReportBody.SensorReading> selectSensors(
+      List<String> metrics, List<DataReportBody.SensorReading> cached) {
+    if (metrics == null) {
+      return cached == null ? List.of() : cached;
+    }
+    List<DataReportBody.SensorReading> selected = new ArrayList<>(metrics.size());
+    for (String metric : metrics) {
+      DataReportBody.SensorReading match = null;
+      if (cached != null) {
+        for (DataReportBody.SensorReading reading : cached) {
+          if (metric.equals(reading.id())) {
+            match = reading;
+            break;
+          }
+        }
+      }
+      if (match == null) {
+        return null;
+      }
+      selected.add(match);
+    }
+    return selected;
+  }
+}
@@ -1,10 +1,14 @@
 package ntnu.idata2302.sfp.server.net.handlers;
 
+import java.io.IOException;
 import java.net.Socket;
 import ntnu.idata2302.sfp.library.SmartFarmingProtocol;
+import ntnu.idata2302.sfp.library.body.command.CommandAckBody;
+import ntnu.idata2302.sfp.library.body.command.CommandBody;
 import ntnu.idata2302.sfp.library.body.error.ErrorBody;
 import ntnu.idata2302.sfp.library.header.MessageTypes;
 import ntnu.idata2302.sfp.library.node.NodeIds;
+import ntnu.idata2302.sfp.server.command.CommandTracker;
 import ntnu.idata2302.sfp.server.net.ServerContext;
 
 /**
@@ -12,23 +16,56 @@ import ntnu.idata2302.sfp.server.net.ServerContext;
  *
  * <p>This handler inspects incoming messages and:
  * <ul>
- *   <li>Logs a warning if a COMMAND or COMMAND_ACK is incorrectly addressed to the server</li>
+ *   <li>Logs a warning if a COMMAND is incorrectly addressed to the server</li>
+ *   <li>Hands COMMAND_ACKs addressed to the server, which answer commands
+ *       sent by the broker itself, to the group command tracker</li>
  *   <li>Logs details of ERROR packets addressed to the server</li>
  *   <li>Forwards any other packet to its intended target node</li>
  * </ul>
+ * Forwarded COMMANDs and COMMAND_ACKs are correlated by the
+ * {@link CommandTracker}, which times out unanswered commands and records
+ * round-trip latencies. A COMMAND whose target is not connected, or cannot
+ * be written to, is answered at once with a NODE_NOT_FOUND error instead.
  * It acts as a general router for internode communication, ensuring packets
  * reach the correct destination.
+ *
+ * <p>With the system property {@code sfp.command.coalesce=true}, COMMANDs go
+ * through the {@link ntnu.idata2302.sfp.server.command.CommandCoalescer}: a
+ * command still waiting to be written to its node is replaced by a newer
+ * command for the same actuators.</p>
  */
 
 public class ForwardPacketHandler implements MessageHandler {
 
+  private final boolean coalesceCommands;
+
+  /**
+   * Create a handler that coalesces COMMANDs if {@code sfp.command.coalesce} is set.
+   */
+  public ForwardPacketHandler() {
+    this(Boolean.getBoolean("sfp.command.coalesce"));
+  }
+
+  /**
+   * Create a handler.
+   *
+   * @param coalesceCommands whether queued COMMANDs are replaced by newer ones
+   *                         for the same actuators
+   */
+  public ForwardPacketHandler(boolean coalesceCommands) {
+    this.coalesceCommands = coalesceCommands;
+  }
+
   /**
    * Processes and routes an incoming protocol message.
    *
    * <p>Depending on the message type and its target, this method:
    * <ul>
-   *   <li>Warns if a COMMAND or COMMAND_ACK is mistakenly addressed to the server</li>
+   *   <li>Warns if a COMMAND is mistakenly addressed to the server</li>
+   *   <li>Records COMMAND_ACKs answering the server's own commands; those
+   *       answering rule commands are dropped</li>
    *   <li>Logs ERROR packets that target the server</li>
+   *   <li>Answers a COMMAND that cannot reach its target with an immediate ERROR</li>
    *   <li>Forwards all other packets to the appropriate node using the server context</li>
    * </ul>
    *
@@ -45,11 +82,18 @@ public class ForwardPacketHandler implements MessageHandler {
     MessageTypes type = message.getHeader().getMessageType();
     int targetId = message.getHeader().getTargetId();
 
-    // If the server is the intended target for a COMMAND / COMMAND_ACK, notify and stop.
-    if (targetId == NodeIds.SERVER
-         && (type == MessageTypes.COMMAND || type == MessageTypes.COMMAND_ACK)) {
+    // A COMMAND_ACK to the server answers a group command or a rule command.
+    if (targetId == NodeIds.SERVER && type == MessageTypes.COMMAND_ACK) {
+      if (message.getBody() instanceof CommandAckBody ack) {
+        context.getGroupCommands().acknowledge(message.getHeader().getSourceId(), ack);
+      }
+      return;
+    }
 
-      System.out.println("[WARN] Server was the intended target for COMMAND / COMMAND_ACK.");
+    // If the server is the intended target for a COMMAND, notify and stop.
+    if (targetId == NodeIds.SERVER && type == MessageTypes.COMMAND) {
+
+      System.out.println("[WARN] Server was the intended target for COMMAND.");
       return;
     }
 
@@ -69,6 +113,32 @@ public class ForwardPacketHandler implements MessageHandler {
       return;
     }
 
+    if (type == MessageTypes.COMMAND && message.getBody() instanceof CommandBody command) {
+      int issuerId = message.getHeader().getSourceId();
+      CommandTracker tracker = context.getCommandTracker();
+      tracker.track(issuerId, targetId, command.requestId());
+      if (!context.isConnected(targetId)) {
+        tracker.fail(issuerId, targetId, command.requestId());
+        return;
+      }
+      if (coalesceCommands) {
+        context.getCommandCoalescer().submit(message);
+        return;
+      }
+      try {
+        context.sendTo(message);
+      } catch (IOException e) {
+        // The target's connection failed, not the issuer's
+        System.out.println("Failed to forward COMMAND to " + targetId);
+        tracker.fail(issuerId, targetId, command.requestId());
+      }
+      return;
+    } else if (type == MessageTypes.COMMAND_ACK
+        && message.getBody() instanceof CommandAckBody ack) {
+      context.getCommandTracker().complete(targetId, message.getHeader().getSourceId(),
+          ack.requestId());
+    }
+
     // Default: forward the packet to its destination.
     context.sendTo(message);
   }
@@ -0,0 +1,49 @@
+package ntnu.idata2302.sfp.server.net.handlers;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.util.List;
+import ntnu.idata2302.sfp.library.SmartFarmingProtocol;
+import ntnu.idata2302.sfp.library.body.group.GroupAssignAckBody;
+import ntnu.idata2302.sfp.library.body.group.GroupAssignBody;
+import ntnu.idata2302.sfp.library.header.Header;
+import ntnu.idata2302.sfp.library.header.MessageTypes;
+import ntnu.idata2302.sfp.server.factory.HeaderFactory;
+import ntnu.idata2302.sfp.server.net.ServerContext;
+
+/**
+ * Handles GROUP_ASSIGN messages sent by control-panel nodes.
+ *
+ * <p>The handler moves a registered sensor node into or out of groups and
+ * answers with a GROUP_ASSIGN_ACK listing the node's groups afterwards.
+ * Subscriptions to the affected groups follow the change immediately. An
+ * unknown node or an invalid group name (blank, or the wildcard) is answered
+ * with status 0 and nothing is changed.</p>
+ */
+
+public class GroupAssignHandler implements MessageHandler {
+
+  /**
+   * Apply a GROUP_ASSIGN and acknowledge it.
+   *
+   * @param message the protocol packet containing the GROUP_ASSIGN
+   * @param client  the socket of the requesting control-panel node
+   * @param context the server context holding the groups
+   * @throws IOException if sending the acknowledgement fails
+   */
+
+  @Override
+  public void handle(SmartFarmingProtocol message,
+                     Socket client, ServerContext context) throws IOException {
+    Header reqHeader = message.getHeader();
+    GroupAssignBody reqBody = (GroupAssignBody) message.getBody();
+
+    List<String> groups = context.assignGroups(reqBody.nodeId(), reqBody.join(), reqBody.leave());
+
+    Header resHeader = HeaderFactory.serverHeader(
+        MessageTypes.GROUP_ASSIGN_ACK, reqHeader.getSourceId());
+    GroupAssignAckBody resBody = new GroupAssignAckBody(
+        reqBody.requestId(), groups == null ? 0 : 1, groups);
+    context.sendTo(client, new SmartFarmingProtocol(resHeader, resBody));
+  }
+}
@@ -0,0 +1,89 @@
+package ntnu.idata2302.sfp.server.net.handlers;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.util.List;
+import java.util.Set;
+import ntnu.idata2302.sfp.library.SmartFarmingProtocol;
+import ntnu.idata2302.sfp.library.body.command.CommandBody;
+import ntnu.idata2302.sfp.library.body.command.GroupCommandBody;
+import ntnu.idata2302.sfp.library.body.command.GroupCommandResultBody;
+import ntnu.idata2302.sfp.library.header.Header;
+import ntnu.idata2302.sfp.library.header.MessageTypes;
+import ntnu.idata2302.sfp.server.command.GroupCommands;
+import ntnu.idata2302.sfp.server.factory.HeaderFactory;
+import ntnu.idata2302.sfp.server.net.ServerContext;
+
+/**
+ * Handles GROUP_COMMAND messages sent by control-panel nodes.
+ *
+ * <p>The handler resolves the targets, encodes the COMMAND body once under a
+ * broker-allocated request id and writes one frame per target without
+ * waiting for any acknowledgement in between. The COMMAND_ACKs come back to
+ * the broker and are collected by {@link GroupCommands}, which answers the
+ * control panel with one GROUP_COMMAND_RESULT. Targets that are not
+ * connected are reported as such right away.</p>
+ *
+ * <p>A GROUP_COMMAND without actuator updates or without any target is
+ * answered at once with status 0 and no node results.</p>
+ */
+
+public class GroupCommandHandler implements MessageHandler {
+
+  /**
+   * Fan out a GROUP_COMMAND to its targets.
+   *
+   * @param message the protocol packet containing the GROUP_COMMAND
+   * @param client  the socket of the requesting control-panel node
+   * @param context the server context used to resolve and reach the targets
+   * @throws IOException if answering an empty group command fails
+   */
+
+  @Override
+  public void handle(SmartFarmingProtocol message,
+                     Socket client, ServerContext context) throws IOException {
+    Header reqHeader = message.getHeader();
+    GroupCommandBody reqBody = (GroupCommandBody) message.getBody();
+    int cpId = reqHeader.getSourceId();
+
+    Set<Integer> targets = reqBody.actuators() == null || reqBody.actuators().isEmpty()
+        ? Set.of()
+        : context.commandTargets(reqBody.nodeIds(), reqBody.group(), reqBody.actuatorType());
+    if (targets.isEmpty()) {
+      context.sendTo(client, new SmartFarmingProtocol(
+          HeaderFactory.serverHeader(MessageTypes.GROUP_COMMAND_RESULT, cpId),
+          new GroupCommandResultBody(reqBody.requestId(), 0, List.of())));
+      return;
+    }
+
+    int commandId = context.nextCommandId();
+    byte[] body = new CommandBody(commandId, reqBody.actuators()).toCbor();
+    GroupCommands tracker = context.getGroupCommands();
+    tracker.start(cpId, reqBody.requestId(), commandId, targets, reqBody.timeoutMillis());
+
+    for (int nodeId : targets) {
+      if (!context.isSensorNode(nodeId)) {
+        tracker.fail(commandId, nodeId, GroupCommandResultBody.STATUS_NOT_CONNECTED);
+        continue;
+      }
+      try {
+        context.sendFrame(nodeId, frame(nodeId, body));
+      } catch (IOException e) {
+        tracker.fail(commandId, nodeId, GroupCommandResultBody.STATUS_NOT_CONNECTED);
+      }
+    }
+  }
+
+  /**
+   * Join a COMMAND header for one target with the shared encoded body.
+   */
+  private static byte[] frame(int nodeId, byte[] body) {
+    Header header = HeaderFactory.serverHeader(MessageTypes.COMMAND, nodeId);
+    header.setPayloadLength(body.length);
+    byte[] headerBytes = header.toBytes();
+    byte[] frame = new byte[headerBytes.length + body.length];
+    System.arraycopy(headerBytes, 0, frame, 0, headerBytes.length);
+    System.arraycopy(body, 0, frame, headerBytes.length, body.length);
+    return frame;
+  }
+}
@@ -0,0 +1,35 @@
+package ntnu.idata2302.sfp.server.net.handlers;
+
+import java.net.Socket;
+import ntnu.idata2302.sfp.library.SmartFarmingProtocol;
+import ntnu.idata2302.sfp.library.body.announce.HeartbeatBody;
+import ntnu.idata2302.sfp.server.net.ServerContext;
+
+/**
+ * Handles HEARTBEAT messages sent by sensor nodes.
+ *
+ * <p>The sending node is watched by the {@link ServerContext#getLiveness()
+ * liveness tracker} with the interval it states, and is disconnected once it
+ * stays silent for {@link HeartbeatBody#MISSED_INTERVALS} intervals. Heartbeats
+ * are not answered; a heartbeat from a node that is not a registered sensor
+ * node, or that names a node bound to another connection, is ignored.</p>
+ */
+public class HeartbeatHandler implements MessageHandler {
+
+  /**
+   * Start or refresh watching the liveness of the sending node.
+   *
+   * @param message the protocol packet containing the HEARTBEAT
+   * @param client  the socket of the sensor node
+   * @param context the server context holding the liveness tracker
+   */
+  @Override
+  public void handle(SmartFarmingProtocol message, Socket client, ServerContext context) {
+    int nodeId = message.getHeader().getSourceId();
+    if (!context.isSensorNode(nodeId) || !context.isBoundTo(nodeId, client)) {
+      return;
+    }
+    HeartbeatBody body = (HeartbeatBody) message.getBody();
+    context.getLiveness().watch(nodeId, body.intervalMillis());
+  }
+}
@@ -0,0 +1,91 @@
+package ntnu.idata2302.sfp.server.net.handlers;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import ntnu.idata2302.sfp.library.SmartFarmingProtocol;
+import ntnu.idata2302.sfp.library.body.history.HistoryQueryBody;
+import ntnu.idata2302.sfp.library.body.history.HistoryResultBody;
+import ntnu.idata2302.sfp.library.header.Header;
+import ntnu.idata2302.sfp.library.header.MessageTypes;
+import ntnu.idata2302.sfp.server.factory.HeaderFactory;
+import ntnu.idata2302.sfp.server.history.Samples;
+import ntnu.idata2302.sfp.server.net.ServerContext;
+
+/**
+ * Handles HISTORY_QUERY messages sent by control-panel nodes.
+ *
+ * <p>The handler reads the requested range from the server's in-memory
+ * history and streams it back as HISTORY_RESULT packets of at most
+ * {@link #CHUNK_POINTS} points each, so a large result never turns into one
+ * huge frame. At least one chunk is always sent; the final chunk is marked
+ * as last.</p>
+ */
+
+public class HistoryQueryHandler implements MessageHandler {
+
+  /** Maximum number of points carried by one HISTORY_RESULT. */
+  public static final int CHUNK_POINTS = 1024;
+
+  /**
+   * Answer a HISTORY_QUERY with one or more HISTORY_RESULT chunks.
+   *
+   * @param message the protocol packet containing the HISTORY_QUERY
+   * @param client  the socket of the requesting control-panel node
+   * @param context the server context holding the history
+   * @throws IOException if sending a result chunk fails
+   */
+
+  @Override
+  public void handle(SmartFarmingProtocol message,
+                     Socket client, ServerContext context) throws IOException {
+    Header reqHeader = message.getHeader();
+    HistoryQueryBody query = (HistoryQueryBody) message.getBody();
+
+    Map<String, Samples> result = context.getHistoryStore().query(
+        query.sensorNodeId(),
+        query.sensors(),
+        query.fromMillis(),
+        query.toMillis(),
+        query.maxPoints()
+    );
+
+    int chunk = 0;
+    int pointsInChunk = 0;
+    List<HistoryResultBody.Series> series = new ArrayList<>();
+
+    for (Map.Entry<String, Samples> entry : result.entrySet()) {
+      Samples samples = entry.getValue();
+      int offset = 0;
+      while (offset < samples.size()) {
+        int take = Math.min(samples.size() - offset, CHUNK_POINTS - pointsInChunk);
+        series.add(new HistoryResultBody.Series(
+            entry.getKey(),
+            Arrays.copyOfRange(samples.timestamps(), offset, offset + take),
+            Arrays.copyOfRange(samples.values(), offset, offset + take)));
+        offset += take;
+        pointsInChunk += take;
+
+        if (pointsInChunk == CHUNK_POINTS) {
+          send(context, client, reqHeader, query, chunk++, false, series);
+          series = new ArrayList<>();
+          pointsInChunk = 0;
+        }
+      }
+    }
+    send(context, client, reqHeader, query, chunk, true, series);
+  }
+
+  private static void send(ServerContext context, Socket client, Header reqHeader,
+                           HistoryQueryBody query, int chunk, boolean last,
+                           List<HistoryResultBody.Series> series) throws IOException {
+    Header resHeader = HeaderFactory.serverHeader(
+        MessageTypes.HISTORY_RESULT, reqHeader.getSourceId());
+    HistoryResultBody resBody = new HistoryResultBody(
+        query.requestId(), query.sensorNodeId(), chunk, last, series);
+    context.sendTo(client, new SmartFarmingProtocol(resHeader, resBody));
+  }
+}
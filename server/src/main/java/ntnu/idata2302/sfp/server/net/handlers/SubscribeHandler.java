@@ -2,12 +2,19 @@ package ntnu.idata2302.sfp.server.net.handlers;
 
 import java.io.IOException;
 import java.net.Socket;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
 import ntnu.idata2302.sfp.library.SmartFarmingProtocol;
+import ntnu.idata2302.sfp.library.body.data.DataReportBody;
 import ntnu.idata2302.sfp.library.body.subscribe.SubscribeAckBody;
 import ntnu.idata2302.sfp.library.body.subscribe.SubscribeBody;
 import ntnu.idata2302.sfp.library.header.Header;
 import ntnu.idata2302.sfp.library.header.MessageTypes;
+import ntnu.idata2302.sfp.server.entity.DeadbandPolicy;
 import ntnu.idata2302.sfp.server.entity.Subscription;
+import ntnu.idata2302.sfp.server.entity.SubscriptionFilter;
 import ntnu.idata2302.sfp.server.factory.HeaderFactory;
 import ntnu.idata2302.sfp.server.net.ServerContext;
 
@@ -24,7 +31,15 @@ import ntnu.idata2302.sfp.server.net.ServerContext;
  *   <li>Extracts the subscription request</li>
  *   <li>Registers the subscription in the server context</li>
  *   <li>Sends a SUBSCRIBE_ACK response back to the requester</li>
+ *   <li>Sends the sensor node's latest cached state as a DATA_REPORT, so the
+ *       requester does not have to wait for the node's next report; the
+ *       snapshot is projected through the subscription's filter</li>
  * </ul>
+ * A SUBSCRIBE naming a group subscribes to every current and future member of
+ * the group and sends a snapshot of each current member. A bulk SUBSCRIBE
+ * listing several nodes is applied in one update of the subscription list and
+ * answered with one SUBSCRIBE_ACK whose status bitmap marks the nodes that
+ * are registered sensor nodes; the others are skipped.
  * This enables the publish-subscribe mechanism used for forwarding sensor reports
  * to the appropriate control-panel nodes.
  */
@@ -51,28 +66,60 @@ public class SubscribeHandler implements MessageHandler {
     SubscribeBody reqBody = (SubscribeBody) message.getBody();
     int cpId = reqHeader.getSourceId();
 
+    SubscriptionFilter filter = SubscriptionFilter.of(reqBody.sensors(), reqBody.actuators());
     Subscription subscription = new Subscription(
           cpId,
-         reqBody.sensorNodeId()
+         reqBody.sensorNodeId(),
+         filter,
+         reqBody.minIntervalMillis() == null ? 0 : Math.max(0, reqBody.minIntervalMillis()),
+         DeadbandPolicy.of(reqBody.deadbands(), reqBody.maxSilenceMillis())
     );
 
-    // Set subscriptions
-    context.setSubscription(subscription);
+    // Set subscriptions, for one node, a list of nodes or every member of a group
+    Collection<Integer> snapshotNodes;
+    SubscribeAckBody resBody;
+    if (reqBody.group() != null) {
+      snapshotNodes = context.subscribeGroup(subscription, reqBody.group());
+      resBody = new SubscribeAckBody(reqBody.requestId(), 1);
+    } else if (reqBody.sensorNodeIds() != null) {
+      List<Integer> requested = reqBody.sensorNodeIds();
+      BitSet accepted = new BitSet(requested.size());
+      List<Subscription> batch = new ArrayList<>(requested.size());
+      for (int i = 0; i < requested.size(); i++) {
+        Integer sensorNodeId = requested.get(i);
+        if (sensorNodeId != null && context.isSensorNode(sensorNodeId)) {
+          accepted.set(i);
+          batch.add(subscription.forMember(sensorNodeId));
+        }
+      }
+      context.setSubscriptions(batch);
+      snapshotNodes = batch.stream().map(Subscription::getSnId).toList();
+      resBody = SubscribeAckBody.forBulk(reqBody.requestId(), accepted, requested.size());
+    } else {
+      context.setSubscription(subscription);
+      snapshotNodes = List.of(reqBody.sensorNodeId());
+      resBody = new SubscribeAckBody(reqBody.requestId(), 1);
+    }
 
     // Response - Header
     Header resHeader = HeaderFactory
          .serverHeader(MessageTypes.SUBSCRIBE_ACK, reqHeader.getSourceId());
 
-    // Response - Body
-    SubscribeAckBody resBody = new SubscribeAckBody(
-         reqBody.requestId(),
-          1
-    );
-
     // Send to client
     context.sendTo(
          client, new SmartFarmingProtocol(resHeader, resBody)
     );
 
+    // Snapshot of the latest known state, attributed to the sensor node
+    for (int sensorNodeId : snapshotNodes) {
+      DataReportBody cached = context.getLastValueCache().get(sensorNodeId);
+      DataReportBody latest = cached == null ? null : filter.apply(cached);
+      if (latest != null) {
+        Header snapshotHeader = HeaderFactory.relayHeader(
+            MessageTypes.DATA_REPORT, sensorNodeId, cpId);
+        context.sendTo(client, new SmartFarmingProtocol(snapshotHeader, latest));
+      }
+    }
+
   }
 }
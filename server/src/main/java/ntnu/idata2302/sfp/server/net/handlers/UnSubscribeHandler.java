@@ -2,6 +2,9 @@ package ntnu.idata2302.sfp.server.net.handlers;
 
 import java.io.IOException;
 import java.net.Socket;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 import ntnu.idata2302.sfp.library.SmartFarmingProtocol;
 import ntnu.idata2302.sfp.library.body.subscribe.SubscribeAckBody;
@@ -21,6 +24,10 @@ import ntnu.idata2302.sfp.server.net.ServerContext;
  *   <li>Removes the corresponding subscription from the server context</li>
  *   <li>Sends an UNSUBSCRIBE_ACK response back to the requester</li>
  * </ul>
+ * A bulk UNSUBSCRIBE listing several nodes is applied in one update of the
+ * subscription list; the status bitmap of its acknowledgement marks the nodes
+ * the requester was receiving. Unsubscribing from a node the requester still
+ * receives through a group or wildcard subscription excludes that node from it.
  * This enables clients to dynamically manage which sensor nodes they receive reports from.
  */
 
@@ -31,7 +38,8 @@ public class UnSubscribeHandler implements MessageHandler {
    * Processes an UNSUBSCRIBE request from a control-panel node.
    *
    * <p>The method removes the subscription linking the requesting control-panel
-   * node with the specified sensor node, and replies with an
+   * node with the specified sensor node, or with every member of the specified
+   * group, and replies with an
    * UNSUBSCRIBE_ACK message confirming successful removal.
    *
    * @param message the protocol packet containing the UNSUBSCRIBE request
@@ -47,18 +55,30 @@ public class UnSubscribeHandler implements MessageHandler {
     UnsubscribeBody reqBody = (UnsubscribeBody) message.getBody();
 
     // Remove subscriptions
-    context.removeSubscription(reqHeader.getSourceId(), reqBody.sensorNodeId());
+    SubscribeAckBody resBody;
+    if (reqBody.group() != null) {
+      context.unsubscribeGroup(reqHeader.getSourceId(), reqBody.group());
+      resBody = new SubscribeAckBody(reqBody.requestId(), 1);
+    } else if (reqBody.sensorNodeIds() != null) {
+      List<Integer> requested = reqBody.sensorNodeIds();
+      Set<Integer> removed = context.removeSubscriptions(reqHeader.getSourceId(),
+          requested.stream().filter(id -> id != null).toList());
+      BitSet accepted = new BitSet(requested.size());
+      for (int i = 0; i < requested.size(); i++) {
+        if (removed.contains(requested.get(i))) {
+          accepted.set(i);
+        }
+      }
+      resBody = SubscribeAckBody.forBulk(reqBody.requestId(), accepted, requested.size());
+    } else {
+      context.removeSubscription(reqHeader.getSourceId(), reqBody.sensorNodeId());
+      resBody = new SubscribeAckBody(reqBody.requestId(), 1);
+    }
 
     // Response - Header
     Header resHeader = HeaderFactory
           .serverHeader(MessageTypes.UNSUBSCRIBE_ACK, reqHeader.getSourceId());
 
-    // Response - Body
-    SubscribeAckBody resBody = new SubscribeAckBody(
-          reqBody.requestId(),
-          1
-    );
-
     // Send to client
     context.sendTo(
           client, new SmartFarmingProtocol(resHeader, resBody)
@@ -0,0 +1,121 @@
+package ntnu.idata2302.sfp.server.rules;
+
+import java.util.Locale;
+
+/**
+ * A declarative actuation rule evaluated by the broker on DATA_REPORTs.
+ *
+ * <p>The rule watches one sensor of one node. When the reading crosses the
+ * threshold the rule becomes active and the broker commands the actuator to
+ * {@code onValue}; when the reading falls back past the threshold by more
+ * than the hysteresis the rule becomes inactive and, if {@code offValue} is
+ * set, the actuator is commanded to it. Commands are only sent on these
+ * transitions, not on every report.</p>
+ *
+ * <p>The text form, one rule per line in a rules file, is:</p>
+ * <pre>
+ * &lt;id&gt;: if &lt;sensor&gt; &gt;|&lt; &lt;threshold&gt; on &lt;node&gt; set &lt;actuator&gt; &lt;value&gt;
+ *        [else &lt;value&gt;] [hysteresis &lt;amount&gt;]
+ * </pre>
+ * <p>for example {@code hot-gh1: if Temperature > 30 on 0x10000 set FAN 80 else 0 hysteresis 2}.</p>
+ *
+ * @param id         unique name of the rule
+ * @param nodeId     the sensor node whose reports are watched
+ * @param sensorId   the watched sensor
+ * @param above      {@code true} for {@code sensor > threshold}, {@code false} for {@code <}
+ * @param threshold  the threshold
+ * @param hysteresis how far the reading must return past the threshold to release, at least 0
+ * @param actuator   the commanded actuator, on the same node
+ * @param onValue    the actuator value when the rule becomes active
+ * @param offValue   the actuator value when the rule is released, or {@code null} to leave it
+ */
+public record Rule(String id, int nodeId, String sensorId, boolean above, double threshold,
+                   double hysteresis, String actuator, double onValue, Double offValue) {
+
+  /**
+   * Validate the rule.
+   *
+   * @throws IllegalArgumentException if a name is missing or a number is invalid
+   */
+  public Rule {
+    if (id == null || id.isBlank() || sensorId == null || actuator == null) {
+      throw new IllegalArgumentException("Rule needs an id, a sensor and an actuator");
+    }
+    if (!(hysteresis >= 0) || Double.isNaN(threshold) || Double.isInfinite(threshold)) {
+      throw new IllegalArgumentException("Invalid threshold or hysteresis in rule " + id);
+    }
+  }
+
+  /**
+   * Return the reading at or beyond which an active rule is released.
+   *
+   * @return the release point
+   */
+  public double releasePoint() {
+    return above ? threshold - hysteresis : threshold + hysteresis;
+  }
+
+  /**
+   * Parse the text form of a rule.
+   *
+   * @param line the rule text
+   * @return the rule
+   * @throws IllegalArgumentException if the text is not a valid rule
+   */
+  public static Rule parse(String line) {
+    int colon = line.indexOf(':');
+    if (colon <= 0) {
+      throw new IllegalArgumentException("Rule needs an id: " + line);
+    }
+    String id = line.substring(0, colon).trim();
+    String[] words = line.substring(colon + 1).trim().split("\\s+");
+    if (words.length < 8 || !"if".equalsIgnoreCase(words[0]) || !"on".equalsIgnoreCase(words[4])
+        || !"set".equalsIgnoreCase(words[6])) {
+      throw new IllegalArgumentException("Expected 'if <sensor> >|< <threshold> on <node> set "
+          + "<actuator> <value>' in rule " + id);
+    }
+    boolean above = switch (words[2]) {
+      case ">" -> true;
+      case "<" -> false;
+      default -> throw new IllegalArgumentException("Unknown comparison " + words[2]
+          + " in rule " + id);
+    };
+    if (words.length < 9) {
+      throw new IllegalArgumentException("Missing actuator value in rule " + id);
+    }
+
+    Double offValue = null;
+    double hysteresis = 0;
+    for (int i = 9; i < words.length; i += 2) {
+      if (i + 1 >= words.length) {
+        throw new IllegalArgumentException("Missing value after " + words[i] + " in rule " + id);
+      }
+      switch (words[i].toLowerCase(Locale.ROOT)) {
+        case "else" -> offValue = number(words[i + 1], id);
+        case "hysteresis" -> hysteresis = number(words[i + 1], id);
+        default -> throw new IllegalArgumentException("Unknown clause " + words[i]
+            + " in rule " + id);
+      }
+    }
+    return new Rule(id, nodeId(words[5], id), words[1], above, number(words[3], id),
+        hysteresis, words[7], number(words[8], id), offValue);
+  }
+
+  private static double number(String word, String id) {
+    try {
+      return Double.parseDouble(word);
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Invalid number " + word + " in rule " + id, e);
+    }
+  }
+
+  private static int nodeId(String word, String id) {
+    try {
+      return word.startsWith("0x") || word.startsWith("0X")
+          ? Integer.parseUnsignedInt(word.substring(2), 16)
+          : Integer.parseInt(word);
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Invalid node id " + word + " in rule " + id, e);
+    }
+  }
+}
@@ -0,0 +1,337 @@
+package ntnu.idata2302.sfp.server.rules;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+import java.util.function.ToDoubleFunction;
+import ntnu.idata2302.sfp.library.body.command.CommandBody;
+import ntnu.idata2302.sfp.library.body.data.DataReportBody;
+
+/**
+ * Broker-resident actuation rules, evaluated on every DATA_REPORT.
+ *
+ * <p>Rules are indexed by node and sensor, so a report only touches the rules
+ * watching the sensors it carries. Within one sensor the rules are sorted by
+ * threshold and by release point: a reading moving from {@code last} to
+ * {@code value} can only change the state of rules whose threshold or
+ * release point lies between the two, and only those are visited. The first
+ * reading after a rule change evaluates every rule of that sensor.</p>
+ *
+ * <p>A report that changes the state of rules yields one COMMAND for the node
+ * with one part per actuator; if several rules set the same actuator, the
+ * rule added last wins.</p>
+ */
+public class RulesEngine {
+
+  private final Map<Integer, Map<String, SensorRules>> index = new ConcurrentHashMap<>();
+  private final Map<String, CompiledRule> byId = new HashMap<>();
+  private final IntSupplier requestIds;
+  private long sequence;
+
+  /**
+   * Create an engine numbering its commands on its own.
+   */
+  public RulesEngine() {
+    this(new AtomicInteger()::incrementAndGet);
+  }
+
+  /**
+   * Create an engine taking its command request ids from a shared source, so
+   * they do not collide with other commands the broker sends.
+   *
+   * @param requestIds source of command request ids
+   */
+  public RulesEngine(IntSupplier requestIds) {
+    this.requestIds = requestIds;
+  }
+
+  /**
+   * Read the rules of a rules file: one rule per line in the text form of
+   * {@link Rule#parse(String)}, with blank lines and lines starting with
+   * {@code #} ignored.
+   *
+   * @param file the rules file
+   * @return the rules in file order
+   * @throws IOException              if the file cannot be read
+   * @throws IllegalArgumentException if a line is not a valid rule
+   */
+  public static List<Rule> read(Path file) throws IOException {
+    List<Rule> rules = new ArrayList<>();
+    List<String> lines = Files.readAllLines(file);
+    for (int i = 0; i < lines.size(); i++) {
+      String line = lines.get(i).trim();
+      if (line.isEmpty() || line.startsWith("#")) {
+        continue;
+      }
+      try {
+        rules.add(Rule.parse(line));
+      } catch (IllegalArgumentException e) {
+        throw new IllegalArgumentException(file + ":" + (i + 1) + ": " + e.getMessage(), e);
+      }
+    }
+    return rules;
+  }
+
+  /**
+   * Add a rule, replacing any rule with the same id. The rule starts inactive.
+   *
+   * @param rule the rule
+   */
+  public synchronized void add(Rule rule) {
+    remove(rule.id());
+    CompiledRule compiled = new CompiledRule(rule, sequence++);
+    byId.put(rule.id(), compiled);
+    index.computeIfAbsent(rule.nodeId(), id -> new ConcurrentHashMap<>())
+        .computeIfAbsent(rule.sensorId(), id -> new SensorRules())
+        .add(compiled);
+  }
+
+  /**
+   * Remove a rule.
+   *
+   * @param id the rule id
+   * @return {@code true} if the rule existed
+   */
+  public synchronized boolean remove(String id) {
+    CompiledRule compiled = byId.remove(id);
+    if (compiled == null) {
+      return false;
+    }
+    Map<String, SensorRules> node = index.get(compiled.rule.nodeId());
+    SensorRules sensor = node.get(compiled.rule.sensorId());
+    if (sensor.remove(compiled)) {
+      node.remove(compiled.rule.sensorId());
+      if (node.isEmpty()) {
+        index.remove(compiled.rule.nodeId());
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Return the active rule definitions.
+   *
+   * @return the rules in the order they were added
+   */
+  public synchronized List<Rule> rules() {
+    return byId.values().stream()
+        .sorted(Comparator.comparingLong(compiled -> compiled.sequence))
+        .map(compiled -> compiled.rule)
+        .toList();
+  }
+
+  /**
+   * Return the number of rules.
+   *
+   * @return the number of rules
+   */
+  public synchronized int size() {
+    return byId.size();
+  }
+
+  /**
+   * Evaluate the rules watching the sensors of a report.
+   *
+   * @param nodeId the reporting node
+   * @param report the received report
+   * @return the COMMAND to send to the node, or {@code null} if no rule changed state
+   */
+  public CommandBody evaluate(int nodeId, DataReportBody report) {
+    Map<String, SensorRules> node = index.get(nodeId);
+    if (node == null || report.sensors() == null) {
+      return null;
+    }
+    List<CompiledRule> fired = null;
+    for (DataReportBody.SensorReading reading : report.sensors()) {
+      if (reading.id() == null || reading.value() == null || reading.value().isNaN()) {
+        continue;
+      }
+      SensorRules rules = node.get(reading.id());
+      if (rules != null) {
+        fired = rules.evaluate(reading.value(), fired);
+      }
+    }
+    if (fired == null) {
+      return null;
+    }
+
+    fired.sort(Comparator.comparingLong(compiled -> compiled.sequence));
+    Map<String, Double> values = new LinkedHashMap<>();
+    for (CompiledRule compiled : fired) {
+      values.put(compiled.rule.actuator(), compiled.commanded);
+    }
+    List<CommandBody.CommandPart> parts = new ArrayList<>(values.size());
+    values.forEach((actuator, value) -> parts.add(new CommandBody.CommandPart(actuator, value)));
+    return new CommandBody(requestIds.getAsInt(), parts);
+  }
+
+  /**
+   * A rule with its state. The state is guarded by the {@link SensorRules} holding the rule.
+   */
+  private static final class CompiledRule {
+    private final Rule rule;
+    private final long sequence;
+    private boolean active;
+    // Value to command after the latest transition
+    private double commanded;
+
+    private CompiledRule(Rule rule, long sequence) {
+      this.rule = rule;
+      this.sequence = sequence;
+    }
+
+    /**
+     * Apply a reading.
+     *
+     * @return {@code true} if a command should be sent
+     */
+    private boolean step(double value) {
+      Rule r = rule;
+      if (!active && (r.above() ? value > r.threshold() : value < r.threshold())) {
+        active = true;
+        commanded = r.onValue();
+        return true;
+      }
+      if (active && (r.above() ? value <= r.releasePoint() : value >= r.releasePoint())) {
+        active = false;
+        if (r.offValue() != null) {
+          commanded = r.offValue();
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  /**
+   * The rules watching one sensor of one node, with the last reading they saw.
+   */
+  private static final class SensorRules {
+    private final List<CompiledRule> members = new ArrayList<>();
+    private Ladder aboveOn = Ladder.EMPTY;
+    private Ladder aboveOff = Ladder.EMPTY;
+    private Ladder belowOn = Ladder.EMPTY;
+    private Ladder belowOff = Ladder.EMPTY;
+    private double last = Double.NaN;
+
+    synchronized void add(CompiledRule compiled) {
+      members.add(compiled);
+      rebuild();
+    }
+
+    /**
+     * Remove a rule.
+     *
+     * @return {@code true} if no rules are left
+     */
+    synchronized boolean remove(CompiledRule compiled) {
+      members.remove(compiled);
+      rebuild();
+      return members.isEmpty();
+    }
+
+    synchronized List<CompiledRule> evaluate(double value, List<CompiledRule> fired) {
+      if (Double.isNaN(last)) {
+        for (CompiledRule compiled : members) {
+          fired = step(compiled, value, fired);
+        }
+      } else if (value > last) {
+        // Rising: "above" rules may trigger, "below" rules may release
+        fired = aboveOn.visit(last, true, value, false, value, fired);
+        fired = belowOff.visit(last, false, value, true, value, fired);
+      } else if (value < last) {
+        // Falling: "above" rules may release, "below" rules may trigger
+        fired = aboveOff.visit(value, true, last, false, value, fired);
+        fired = belowOn.visit(value, false, last, true, value, fired);
+      }
+      last = value;
+      return fired;
+    }
+
+    /**
+     * Sort the rules again and make the next reading evaluate all of them.
+     */
+    private void rebuild() {
+      List<CompiledRule> above = new ArrayList<>();
+      List<CompiledRule> below = new ArrayList<>();
+      for (CompiledRule compiled : members) {
+        (compiled.rule.above() ? above : below).add(compiled);
+      }
+      aboveOn = Ladder.of(above, compiled -> compiled.rule.threshold());
+      aboveOff = Ladder.of(above, compiled -> compiled.rule.releasePoint());
+      belowOn = Ladder.of(below, compiled -> compiled.rule.threshold());
+      belowOff = Ladder.of(below, compiled -> compiled.rule.releasePoint());
+      last = Double.NaN;
+    }
+  }
+
+  private static List<CompiledRule> step(CompiledRule compiled, double value,
+                                         List<CompiledRule> fired) {
+    if (compiled.step(value)) {
+      if (fired == null) {
+        fired = new ArrayList<>();
+      }
+      fired.add(compiled);
+    }
+    return fired;
+  }
+
+  /**
+   * Rules sorted by one boundary value.
+   */
+  private record Ladder(double[] keys, CompiledRule[] rules) {
+
+    static final Ladder EMPTY = new Ladder(new double[0], new CompiledRule[0]);
+
+    static Ladder of(List<CompiledRule> members, ToDoubleFunction<CompiledRule> key) {
+      CompiledRule[] rules = members.toArray(new CompiledRule[0]);
+      Arrays.sort(rules, Comparator.comparingDouble(key));
+      double[] keys = new double[rules.length];
+      for (int i = 0; i < rules.length; i++) {
+        keys[i] = key.applyAsDouble(rules[i]);
+      }
+      return new Ladder(keys, rules);
+    }
+
+    /**
+     * Apply a reading to the rules whose key lies between two bounds.
+     */
+    List<CompiledRule> visit(double from, boolean fromInclusive, double to, boolean toInclusive,
+                             double value, List<CompiledRule> fired) {
+      for (int i = firstIndex(from, fromInclusive); i < keys.length; i++) {
+        if (toInclusive ? keys[i] > to : keys[i] >= to) {
+          break;
+        }
+        fired = step(rules[i], value, fired);
+      }
+      return fired;
+    }
+
+    /**
+     * Index of the first key at or above (inclusive) or above (exclusive) a bound.
+     */
+    private int firstIndex(double bound, boolean inclusive) {
+      int low = 0;
+      int high = keys.length;
+      while (low < high) {
+        int mid = (low + high) >>> 1;
+        if (inclusive ? keys[mid] < bound : keys[mid] <= bound) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
+      return low;
+    }
+  }
+}
@@ -0,0 +1,45 @@
+package ntnu.idata2302.sfp.server.tsdb;
+
+/**
+ * Reads bits written by {@link BitOutput}, most significant bit first.
+ */
+final class BitInput {
+
+  private final byte[] data;
+  private long position;
+
+  BitInput(byte[] data) {
+    this.data = data;
+  }
+
+  /**
+   * Read the next {@code count} bits.
+   *
+   * @param count number of bits, 0 to 64
+   * @return the bits, right-aligned
+   * @throws ArrayIndexOutOfBoundsException if fewer bits are left
+   */
+  long read(int count) {
+    long result = 0;
+    int remaining = count;
+    while (remaining > 0) {
+      int bitOffset = (int) (position & 7);
+      int available = 8 - bitOffset;
+      int take = Math.min(available, remaining);
+      int chunk = ((data[(int) (position >>> 3)] & 0xFF) >>> (available - take)) & ((1 << take) - 1);
+      result = (result << take) | chunk;
+      remaining -= take;
+      position += take;
+    }
+    return result;
+  }
+
+  /**
+   * Read a single bit.
+   *
+   * @return {@code true} if the bit is set
+   */
+  boolean readBit() {
+    return read(1) != 0;
+  }
+}
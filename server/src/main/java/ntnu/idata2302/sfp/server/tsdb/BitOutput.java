@@ -0,0 +1,52 @@
+package ntnu.idata2302.sfp.server.tsdb;
+
+import java.util.Arrays;
+
+/**
+ * Growable buffer that bits are appended to, most significant bit first.
+ */
+final class BitOutput {
+
+  private long[] words = new long[16];
+  private long bitCount;
+
+  /**
+   * Append the lowest {@code count} bits of a value.
+   *
+   * @param value the bits to append, right-aligned
+   * @param count number of bits, 0 to 64
+   */
+  void write(long value, int count) {
+    if (count == 0) {
+      return;
+    }
+    int index = (int) (bitCount >>> 6);
+    int free = 64 - (int) (bitCount & 63);
+    if (index + 1 >= words.length) {
+      words = Arrays.copyOf(words, words.length * 2);
+    }
+
+    long bits = count == 64 ? value : value & ((1L << count) - 1);
+    if (count <= free) {
+      words[index] |= bits << (free - count);
+    } else {
+      int spill = count - free;
+      words[index] |= bits >>> spill;
+      words[index + 1] |= bits << (64 - spill);
+    }
+    bitCount += count;
+  }
+
+  /**
+   * Return the written bits, padded with zeros to a whole byte.
+   *
+   * @return the bytes in big-endian bit order
+   */
+  byte[] toByteArray() {
+    byte[] bytes = new byte[(int) ((bitCount + 7) >>> 3)];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = (byte) (words[i >>> 3] >>> (56 - 8 * (i & 7)));
+    }
+    return bytes;
+  }
+}
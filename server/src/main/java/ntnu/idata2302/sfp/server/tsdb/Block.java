@@ -0,0 +1,176 @@
+package ntnu.idata2302.sfp.server.tsdb;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import ntnu.idata2302.sfp.server.history.Samples;
+
+/**
+ * A compressed run of samples of one (node, sensor) series, the unit written
+ * to a {@link Segment}.
+ *
+ * <p>On disk a block is a 12-byte frame header followed by the body:</p>
+ * <pre>
+ * int   magic      "SFPB"
+ * int   crc        CRC-32 of the body
+ * int   length     body length in bytes
+ * -- body --
+ * int   nodeId
+ * short sensorIdLength, UTF-8 sensorId
+ * int   count
+ * long  minMillis, maxMillis
+ * int   payloadLength, Gorilla payload
+ * </pre>
+ *
+ * <p>A block is only valid if its magic and checksum match, so a block torn
+ * by a crash is detected and treated as the end of the segment.</p>
+ */
+final class Block {
+
+  static final int MAGIC = 0x53465042;
+  static final int FRAME_BYTES = 12;
+
+  // Body bytes besides the sensor id and the payload
+  private static final int FIXED_BODY_BYTES = 4 + 2 + 4 + 8 + 8 + 4;
+
+  private final int nodeId;
+  private final String sensorId;
+  private final byte[] sensorIdBytes;
+  private final int count;
+  private final long minMillis;
+  private final long maxMillis;
+  private final byte[] payload;
+
+  private Block(int nodeId, String sensorId, byte[] sensorIdBytes, int count,
+                long minMillis, long maxMillis, byte[] payload) {
+    this.nodeId = nodeId;
+    this.sensorId = sensorId;
+    this.sensorIdBytes = sensorIdBytes;
+    this.count = count;
+    this.minMillis = minMillis;
+    this.maxMillis = maxMillis;
+    this.payload = payload;
+  }
+
+  /**
+   * Compress the samples {@code from} (inclusive) to {@code to} (exclusive) into a block.
+   *
+   * @throws IllegalArgumentException if the sensor id is longer than 65535 UTF-8 bytes
+   */
+  static Block encode(int nodeId, String sensorId, long[] timestamps, double[] values,
+                      int from, int to) {
+    byte[] idBytes = sensorId.getBytes(StandardCharsets.UTF_8);
+    if (idBytes.length > 0xFFFF) {
+      throw new IllegalArgumentException("Sensor id too long: " + idBytes.length + " bytes");
+    }
+    long min = Long.MAX_VALUE;
+    long max = Long.MIN_VALUE;
+    for (int i = from; i < to; i++) {
+      min = Math.min(min, timestamps[i]);
+      max = Math.max(max, timestamps[i]);
+    }
+    return new Block(nodeId, sensorId, idBytes, to - from, min, max,
+        Gorilla.encode(timestamps, values, from, to));
+  }
+
+  /**
+   * Read the block starting at {@code offset}.
+   *
+   * @param source the segment buffer; only absolute reads are used
+   * @param offset offset of the frame header
+   * @param verify whether to check the CRC
+   * @return the block, or {@code null} if no valid block starts at {@code offset}
+   */
+  static Block readFrom(ByteBuffer source, int offset, boolean verify) {
+    int limit = source.limit();
+    if ((long) offset + FRAME_BYTES > limit || source.getInt(offset) != MAGIC) {
+      return null;
+    }
+    int crc = source.getInt(offset + 4);
+    int length = source.getInt(offset + 8);
+    int body = offset + FRAME_BYTES;
+    if (length < FIXED_BODY_BYTES || (long) body + length > limit) {
+      return null;
+    }
+    if (verify) {
+      CRC32 checksum = new CRC32();
+      checksum.update(source.slice(body, length));
+      if ((int) checksum.getValue() != crc) {
+        return null;
+      }
+    }
+
+    int p = body;
+    int nodeId = source.getInt(p);
+    int idLength = source.getShort(p + 4) & 0xFFFF;
+    p += 6;
+    if (FIXED_BODY_BYTES + idLength > length) {
+      return null;
+    }
+    byte[] idBytes = new byte[idLength];
+    source.get(p, idBytes);
+    p += idLength;
+    int count = source.getInt(p);
+    long min = source.getLong(p + 4);
+    long max = source.getLong(p + 12);
+    int payloadLength = source.getInt(p + 20);
+    p += 24;
+    if (count < 0 || payloadLength != body + length - p) {
+      return null;
+    }
+    byte[] payload = new byte[payloadLength];
+    source.get(p, payload);
+    return new Block(nodeId, new String(idBytes, StandardCharsets.UTF_8), idBytes,
+        count, min, max, payload);
+  }
+
+  /**
+   * Serialize the block including its frame header.
+   */
+  byte[] toBytes() {
+    int length = FIXED_BODY_BYTES + sensorIdBytes.length + payload.length;
+    ByteBuffer buffer = ByteBuffer.allocate(FRAME_BYTES + length);
+    buffer.putInt(MAGIC).putInt(0).putInt(length)
+        .putInt(nodeId)
+        .putShort((short) sensorIdBytes.length).put(sensorIdBytes)
+        .putInt(count)
+        .putLong(minMillis).putLong(maxMillis)
+        .putInt(payload.length).put(payload);
+
+    CRC32 checksum = new CRC32();
+    checksum.update(buffer.array(), FRAME_BYTES, length);
+    buffer.putInt(4, (int) checksum.getValue());
+    return buffer.array();
+  }
+
+  /**
+   * Return the size of the block on disk, including its frame header.
+   */
+  int encodedSize() {
+    return FRAME_BYTES + FIXED_BODY_BYTES + sensorIdBytes.length + payload.length;
+  }
+
+  Samples samples() {
+    return Gorilla.decode(payload, count);
+  }
+
+  int nodeId() {
+    return nodeId;
+  }
+
+  String sensorId() {
+    return sensorId;
+  }
+
+  int count() {
+    return count;
+  }
+
+  long minMillis() {
+    return minMillis;
+  }
+
+  long maxMillis() {
+    return maxMillis;
+  }
+}
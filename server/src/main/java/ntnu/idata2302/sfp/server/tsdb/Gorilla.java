@@ -0,0 +1,149 @@
+package ntnu.idata2302.sfp.server.tsdb;
+
+import ntnu.idata2302.sfp.server.history.Samples;
+
+/**
+ * Gorilla-style compression of a run of samples.
+ *
+ * <p>The first sample is stored raw. After that every timestamp is stored as
+ * the change of its delta to the previous one (delta-of-delta), which is
+ * {@code 0} and costs a single bit when a node reports at a steady interval.
+ * Every value is XORed with the previous one; an unchanged value costs one
+ * bit, and a changed one only stores the bits between the leading and
+ * trailing zeros of the XOR, reusing the previous window when it fits.</p>
+ *
+ * <p>Timestamp buckets, after a {@code 0} bit for an unchanged delta:</p>
+ * <ul>
+ *   <li>{@code 10} + 7 bits: delta-of-delta in [-63, 64]</li>
+ *   <li>{@code 110} + 9 bits: [-255, 256]</li>
+ *   <li>{@code 1110} + 12 bits: [-2047, 2048]</li>
+ *   <li>{@code 1111} + 64 bits: anything else</li>
+ * </ul>
+ */
+final class Gorilla {
+
+  private Gorilla() {
+  }
+
+  /**
+   * Compress the samples {@code from} (inclusive) to {@code to} (exclusive).
+   *
+   * @param timestamps sample times in epoch milliseconds
+   * @param values     sample values
+   * @param from       index of the first sample
+   * @param to         index after the last sample; must be greater than {@code from}
+   * @return the compressed bits
+   */
+  static byte[] encode(long[] timestamps, double[] values, int from, int to) {
+    BitOutput out = new BitOutput();
+
+    long prevTimestamp = timestamps[from];
+    long prevDelta = 0;
+    long prevBits = Double.doubleToRawLongBits(values[from]);
+    out.write(prevTimestamp, 64);
+    out.write(prevBits, 64);
+
+    // Window of meaningful XOR bits; -1 until the first changed value
+    int prevLeading = -1;
+    int prevTrailing = 0;
+
+    for (int i = from + 1; i < to; i++) {
+      long delta = timestamps[i] - prevTimestamp;
+      long dod = delta - prevDelta;
+      if (dod == 0) {
+        out.write(0, 1);
+      } else if (dod >= -63 && dod <= 64) {
+        out.write(0b10, 2);
+        out.write(dod + 63, 7);
+      } else if (dod >= -255 && dod <= 256) {
+        out.write(0b110, 3);
+        out.write(dod + 255, 9);
+      } else if (dod >= -2047 && dod <= 2048) {
+        out.write(0b1110, 4);
+        out.write(dod + 2047, 12);
+      } else {
+        out.write(0b1111, 4);
+        out.write(dod, 64);
+      }
+      prevDelta = delta;
+      prevTimestamp = timestamps[i];
+
+      long bits = Double.doubleToRawLongBits(values[i]);
+      long xor = bits ^ prevBits;
+      if (xor == 0) {
+        out.write(0, 1);
+      } else {
+        out.write(1, 1);
+        int leading = Math.min(Long.numberOfLeadingZeros(xor), 31);
+        int trailing = Long.numberOfTrailingZeros(xor);
+        if (prevLeading >= 0 && leading >= prevLeading && trailing >= prevTrailing) {
+          out.write(0, 1);
+          out.write(xor >>> prevTrailing, 64 - prevLeading - prevTrailing);
+        } else {
+          int significant = 64 - leading - trailing;
+          out.write(1, 1);
+          out.write(leading, 5);
+          out.write(significant - 1, 6);
+          out.write(xor >>> trailing, significant);
+          prevLeading = leading;
+          prevTrailing = trailing;
+        }
+      }
+      prevBits = bits;
+    }
+    return out.toByteArray();
+  }
+
+  /**
+   * Decompress samples written by {@link #encode(long[], double[], int, int)}.
+   *
+   * @param payload the compressed bits
+   * @param count   the number of samples encoded
+   * @return the samples
+   */
+  static Samples decode(byte[] payload, int count) {
+    long[] timestamps = new long[count];
+    double[] values = new double[count];
+    if (count == 0) {
+      return new Samples(timestamps, values);
+    }
+
+    BitInput in = new BitInput(payload);
+    long timestamp = in.read(64);
+    long bits = in.read(64);
+    long delta = 0;
+    int leading = 0;
+    int trailing = 0;
+    timestamps[0] = timestamp;
+    values[0] = Double.longBitsToDouble(bits);
+
+    for (int i = 1; i < count; i++) {
+      long dod;
+      if (!in.readBit()) {
+        dod = 0;
+      } else if (!in.readBit()) {
+        dod = in.read(7) - 63;
+      } else if (!in.readBit()) {
+        dod = in.read(9) - 255;
+      } else if (!in.readBit()) {
+        dod = in.read(12) - 2047;
+      } else {
+        dod = in.read(64);
+      }
+      delta += dod;
+      timestamp += delta;
+      timestamps[i] = timestamp;
+
+      if (in.readBit()) {
+        if (in.readBit()) {
+          leading = (int) in.read(5);
+          int significant = (int) in.read(6) + 1;
+          trailing = 64 - leading - significant;
+        }
+        bits ^= in.read(64 - leading - trailing) << trailing;
+      }
+      values[i] = Double.longBitsToDouble(bits);
+    }
+    return new Samples(timestamps, values);
+  }
+}
@@ -0,0 +1,332 @@
+package ntnu.idata2302.sfp.server.tsdb;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One append-only segment file of the {@link TimeSeriesStore}.
+ *
+ * <p>A segment is created with a fixed capacity and written through a
+ * memory-mapped buffer. It starts with a 24-byte header followed by
+ * {@link Block}s back to back; the unwritten tail stays zero (and sparse on
+ * most file systems). Once sealed, the segment is never modified again.</p>
+ *
+ * <p>The time index is sparse: it holds one entry per block, not per sample,
+ * with the block's node id and time range, so a query reads only the blocks
+ * that can contain matching samples. The index is kept in memory and written
+ * to a {@code .idx} file next to the segment when it is sealed. The index file
+ * is only a shortcut; if it is missing or damaged the segment is scanned
+ * instead, stopping at the first block whose checksum does not match.</p>
+ *
+ * <p>Not thread-safe; the store guards appends and index reads with its lock.
+ * Blocks already indexed may be read concurrently.</p>
+ */
+final class Segment {
+
+  static final int MAGIC = 0x53465053;
+  static final int VERSION = 1;
+  static final int HEADER_BYTES = 24;
+
+  private static final int FLAG_COMPACTED = 1;
+  private static final int INDEX_HEADER_BYTES = 12;
+  private static final int INDEX_ENTRY_BYTES = 24;
+
+  /**
+   * Index entry of one block.
+   *
+   * @param offset    offset of the block in the segment
+   * @param nodeId    node the block belongs to
+   * @param minMillis earliest sample time in the block
+   * @param maxMillis latest sample time in the block
+   */
+  record IndexEntry(int offset, int nodeId, long minMillis, long maxMillis) {
+  }
+
+  private Path path;
+  private final long seq;
+  private final long coversThroughSeq;
+  private final boolean compacted;
+  private final MappedByteBuffer buffer;
+  private final List<IndexEntry> index = new ArrayList<>();
+  private int end = HEADER_BYTES;
+  private long minMillis = Long.MAX_VALUE;
+  private long maxMillis = Long.MIN_VALUE;
+  private boolean sealed;
+
+  private Segment(Path path, long seq, long coversThroughSeq, boolean compacted,
+                  MappedByteBuffer buffer) {
+    this.path = path;
+    this.seq = seq;
+    this.coversThroughSeq = coversThroughSeq;
+    this.compacted = compacted;
+    this.buffer = buffer;
+  }
+
+  /**
+   * Create a new, empty segment file.
+   *
+   * @param file             path of the file; must not exist
+   * @param seq              sequence number of the segment
+   * @param coversThroughSeq highest sequence number whose data this segment holds
+   * @param compacted        whether the segment is the output of a compaction
+   * @param capacity         size of the file in bytes
+   * @return the writable segment
+   * @throws IOException if the file cannot be created or mapped
+   */
+  static Segment create(Path file, long seq, long coversThroughSeq, boolean compacted,
+                        long capacity) throws IOException {
+    MappedByteBuffer buffer;
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+        StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+    }
+    buffer.putInt(0, MAGIC);
+    buffer.putShort(4, (short) VERSION);
+    buffer.putShort(6, (short) (compacted ? FLAG_COMPACTED : 0));
+    buffer.putLong(8, seq);
+    buffer.putLong(16, coversThroughSeq);
+    return new Segment(file, seq, coversThroughSeq, compacted, buffer);
+  }
+
+  /**
+   * Open an existing segment read-only.
+   *
+   * @param file   path of the segment file
+   * @param repair whether to write the index file if it had to be rebuilt
+   * @return the segment
+   * @throws IOException if the file cannot be read or is not a segment
+   */
+  static Segment open(Path file, boolean repair) throws IOException {
+    MappedByteBuffer buffer;
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size < HEADER_BYTES || size > Integer.MAX_VALUE) {
+        throw new IOException("Not a segment file: " + file);
+      }
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+    }
+    if (buffer.getInt(0) != MAGIC) {
+      throw new IOException("Not a segment file: " + file);
+    }
+    if (buffer.getShort(4) != VERSION) {
+      throw new IOException("Unsupported segment version " + buffer.getShort(4) + ": " + file);
+    }
+
+    boolean compacted = (buffer.getShort(6) & FLAG_COMPACTED) != 0;
+    Segment segment = new Segment(file, buffer.getLong(8), buffer.getLong(16), compacted, buffer);
+    if (segment.loadIndex()) {
+      segment.sealed = true;
+    } else {
+      segment.scan();
+      if (repair) {
+        segment.writeIndex();
+        segment.sealed = true;
+      }
+    }
+    return segment;
+  }
+
+  /**
+   * Append a block.
+   *
+   * @param block the block to write
+   * @return {@code false} if the block does not fit in the remaining capacity
+   */
+  boolean append(Block block) {
+    if (sealed) {
+      throw new IllegalStateException("Segment " + seq + " is sealed");
+    }
+    int size = block.encodedSize();
+    if ((long) end + size > buffer.capacity()) {
+      return false;
+    }
+    buffer.put(end, block.toBytes());
+    addEntry(end, block);
+    end += size;
+    return true;
+  }
+
+  /**
+   * Flush written blocks to disk.
+   */
+  void force() {
+    if (!sealed) {
+      buffer.force();
+    }
+  }
+
+  /**
+   * Flush the segment, write its index file and refuse further appends.
+   *
+   * @throws IOException if the index file cannot be written
+   */
+  void seal() throws IOException {
+    if (sealed) {
+      return;
+    }
+    buffer.force();
+    writeIndex();
+    sealed = true;
+  }
+
+  /**
+   * Read a block of this segment.
+   *
+   * @param entry the index entry of the block
+   * @return the block
+   * @throws IOException if the block is damaged
+   */
+  Block read(IndexEntry entry) throws IOException {
+    Block block = Block.readFrom(buffer, entry.offset(), false);
+    if (block == null) {
+      throw new IOException("Damaged block at " + entry.offset() + " in " + path);
+    }
+    return block;
+  }
+
+  /**
+   * Collect the index entries of a node's blocks overlapping a time range.
+   */
+  void find(int nodeId, long fromMillis, long toMillis, List<IndexEntry> out) {
+    if (maxMillis < fromMillis || minMillis > toMillis) {
+      return;
+    }
+    for (IndexEntry entry : index) {
+      if (entry.nodeId() == nodeId
+          && entry.maxMillis() >= fromMillis && entry.minMillis() <= toMillis) {
+        out.add(entry);
+      }
+    }
+  }
+
+  /**
+   * Return all index entries; only stable once the segment is sealed.
+   */
+  List<IndexEntry> entries() {
+    return Collections.unmodifiableList(index);
+  }
+
+  /**
+   * Move the segment file, replacing whatever is at {@code target}.
+   */
+  void renameTo(Path target) throws IOException {
+    Files.move(path, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    path = target;
+  }
+
+  /**
+   * Delete the segment file and its index file.
+   */
+  void delete() throws IOException {
+    Files.deleteIfExists(path);
+    Files.deleteIfExists(indexPath(path));
+  }
+
+  long seq() {
+    return seq;
+  }
+
+  long coversThroughSeq() {
+    return coversThroughSeq;
+  }
+
+  boolean isCompacted() {
+    return compacted;
+  }
+
+  /**
+   * Return the number of bytes in use, including the header.
+   */
+  int dataBytes() {
+    return end;
+  }
+
+  long minMillis() {
+    return minMillis;
+  }
+
+  long maxMillis() {
+    return maxMillis;
+  }
+
+  Path path() {
+    return path;
+  }
+
+  static Path indexPath(Path segmentFile) {
+    return segmentFile.resolveSibling(segmentFile.getFileName() + ".idx");
+  }
+
+  private void addEntry(int offset, Block block) {
+    index.add(new IndexEntry(offset, block.nodeId(), block.minMillis(), block.maxMillis()));
+    minMillis = Math.min(minMillis, block.minMillis());
+    maxMillis = Math.max(maxMillis, block.maxMillis());
+  }
+
+  /**
+   * Rebuild the index by walking the blocks, stopping at the first invalid one.
+   */
+  private void scan() {
+    int offset = HEADER_BYTES;
+    Block block;
+    while ((block = Block.readFrom(buffer, offset, true)) != null) {
+      addEntry(offset, block);
+      offset += block.encodedSize();
+    }
+    end = offset;
+  }
+
+  private boolean loadIndex() throws IOException {
+    byte[] bytes;
+    try {
+      bytes = Files.readAllBytes(indexPath(path));
+    } catch (NoSuchFileException e) {
+      return false;
+    }
+    ByteBuffer in = ByteBuffer.wrap(bytes);
+    if (bytes.length < INDEX_HEADER_BYTES) {
+      return false;
+    }
+    long dataBytes = in.getLong();
+    int count = in.getInt();
+    if (dataBytes < HEADER_BYTES || dataBytes > buffer.capacity()
+        || count < 0 || bytes.length != INDEX_HEADER_BYTES + (long) count * INDEX_ENTRY_BYTES) {
+      return false;
+    }
+    for (int i = 0; i < count; i++) {
+      IndexEntry entry = new IndexEntry(in.getInt(), in.getInt(), in.getLong(), in.getLong());
+      index.add(entry);
+      minMillis = Math.min(minMillis, entry.minMillis());
+      maxMillis = Math.max(maxMillis, entry.maxMillis());
+    }
+    end = (int) dataBytes;
+    return true;
+  }
+
+  /**
+   * Write the index file. It is replaced atomically but not synced: losing it
+   * only costs a scan on the next open.
+   */
+  void writeIndex() throws IOException {
+    ByteBuffer out = ByteBuffer.allocate(INDEX_HEADER_BYTES + index.size() * INDEX_ENTRY_BYTES);
+    out.putLong(end).putInt(index.size());
+    for (IndexEntry entry : index) {
+      out.putInt(entry.offset()).putInt(entry.nodeId())
+          .putLong(entry.minMillis()).putLong(entry.maxMillis());
+    }
+    Path target = indexPath(path);
+    Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+    Files.write(tmp, out.array());
+    Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+  }
+}
@@ -0,0 +1,67 @@
+package ntnu.idata2302.sfp.server.tsdb;
+
+import java.util.Arrays;
+import ntnu.idata2302.sfp.server.history.Samples;
+
+/**
+ * Growable column buffer used to collect the samples of one series.
+ */
+final class SeriesBuffer {
+
+  private long[] timestamps;
+  private double[] values;
+  private int size;
+
+  SeriesBuffer(int capacity) {
+    timestamps = new long[Math.max(1, capacity)];
+    values = new double[timestamps.length];
+  }
+
+  void add(long timestamp, double value) {
+    if (size == timestamps.length) {
+      timestamps = Arrays.copyOf(timestamps, size * 2);
+      values = Arrays.copyOf(values, size * 2);
+    }
+    timestamps[size] = timestamp;
+    values[size] = value;
+    size++;
+  }
+
+  /**
+   * Append the samples whose time lies in {@code [fromMillis, toMillis]}.
+   */
+  void addAll(Samples samples, long fromMillis, long toMillis) {
+    long[] ts = samples.timestamps();
+    double[] vs = samples.values();
+    for (int i = 0; i < ts.length; i++) {
+      if (ts[i] >= fromMillis && ts[i] <= toMillis) {
+        add(ts[i], vs[i]);
+      }
+    }
+  }
+
+  /**
+   * Drop the first {@code count} samples.
+   */
+  void discardFirst(int count) {
+    System.arraycopy(timestamps, count, timestamps, 0, size - count);
+    System.arraycopy(values, count, values, 0, size - count);
+    size -= count;
+  }
+
+  long[] timestamps() {
+    return timestamps;
+  }
+
+  double[] values() {
+    return values;
+  }
+
+  int size() {
+    return size;
+  }
+
+  Samples toSamples() {
+    return new Samples(Arrays.copyOf(timestamps, size), Arrays.copyOf(values, size));
+  }
+}
@@ -0,0 +1,751 @@
+package ntnu.idata2302.sfp.server.tsdb;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import ntnu.idata2302.sfp.library.body.data.DataReportBody;
+import ntnu.idata2302.sfp.server.history.Samples;
+
+/**
+ * Persistent, append-only store of every sensor reading the broker receives.
+ *
+ * <p>Readings are kept per (node, sensor) series and written to
+ * memory-mapped {@link Segment} files as Gorilla-compressed {@link Block}s.
+ * When the active segment is full it is sealed and a new one is started.</p>
+ *
+ * <p><b>Ingestion</b> is asynchronous: {@link #append(int, DataReportBody, long)}
+ * only queues the report. A single writer thread drains the queue in batches,
+ * writes one block per series per batch and then forces the segment to disk
+ * once for the whole batch (group commit). {@link #flush()} waits until
+ * everything queued before it is on disk. When the queue is full, appending
+ * waits at most {@link Config#appendWaitMillis()} for room, which slows down
+ * the reporting node through a short burst; if the writer is stalled longer,
+ * for example by the disk, the report is dropped and counted in
+ * {@link #dropped()} rather than blocking the connection thread that received
+ * it. The in-memory history and fan-out are not affected.</p>
+ *
+ * <p><b>Compaction</b>: small group-commit batches produce many short blocks.
+ * After {@link Config#compactAfterSegments()} segments have been sealed, the
+ * writer rewrites the sealed, not yet compacted segments into one segment
+ * with long blocks per series, which compress far better and index more
+ * sparsely. The compacted segment records the range of segments it replaces,
+ * so leftovers of an interrupted compaction are removed on the next open.</p>
+ *
+ * <p><b>Retention</b>: sealed segments whose newest sample is older than
+ * {@link Config#retentionMillis()} are deleted; retention works on whole
+ * segments.</p>
+ *
+ * <p>A directory can be opened for writing by one process at a time.
+ * {@link #openReadOnly(Path)} gives a read-only view, for example for
+ * {@link TsdbQueryTool}, and also works while the broker is writing.</p>
+ */
+public class TimeSeriesStore implements Closeable {
+
+  /** Default segment size in bytes. */
+  public static final int DEFAULT_SEGMENT_BYTES = 16 * 1024 * 1024;
+
+  /** Default retention, a bit over a year so a full crop season is always kept. */
+  public static final long DEFAULT_RETENTION_MILLIS = 400L * 24 * 60 * 60 * 1000;
+
+  /** Default number of reports that can wait for the writer. */
+  public static final int DEFAULT_QUEUE_CAPACITY = 65_536;
+
+  /** Default time an append waits for room in a full queue before dropping the report. */
+  public static final long DEFAULT_APPEND_WAIT_MILLIS = 100;
+
+  /** Default number of sealed segments that triggers a compaction. */
+  public static final int DEFAULT_COMPACT_AFTER_SEGMENTS = 4;
+
+  static final int MIN_SEGMENT_BYTES = 1024 * 1024;
+  static final int MAX_BLOCK_SAMPLES = 4096;
+
+  private static final int MAX_BATCH_REPORTS = 4096;
+  private static final long MAX_COMPACTED_BYTES = 512L * 1024 * 1024;
+  private static final long MAINTENANCE_INTERVAL_MILLIS = 60_000;
+  private static final String SEGMENT_PREFIX = "segment-";
+  private static final String SEGMENT_SUFFIX = ".seg";
+  private static final String LOCK_FILE = "LOCK";
+
+  // Queued by close() so the writer finishes the queue and seals the active segment
+  private static final Pending CLOSE = new Pending(0, null, 0);
+
+  /**
+   * Store settings.
+   *
+   * @param segmentBytes         size of a segment file, at least 1 MiB
+   * @param retentionMillis      how long readings are kept
+   * @param queueCapacity        number of reports that can wait for the writer
+   * @param compactAfterSegments sealed segments that trigger a compaction; {@code 0} disables it
+   * @param appendWaitMillis     how long an append waits for room in a full queue;
+   *                             {@code 0} drops at once
+   */
+  public record Config(int segmentBytes, long retentionMillis, int queueCapacity,
+                       int compactAfterSegments, long appendWaitMillis) {
+
+    /**
+     * Validate the settings.
+     *
+     * @throws IllegalArgumentException if a setting is out of range
+     */
+    public Config {
+      if (segmentBytes < MIN_SEGMENT_BYTES) {
+        throw new IllegalArgumentException("segmentBytes must be at least " + MIN_SEGMENT_BYTES);
+      }
+      if (retentionMillis <= 0 || queueCapacity <= 0 || compactAfterSegments < 0
+          || appendWaitMillis < 0) {
+        throw new IllegalArgumentException("Invalid time-series store settings");
+      }
+    }
+
+    /**
+     * Return the default settings.
+     *
+     * @return the defaults
+     */
+    public static Config defaults() {
+      return new Config(DEFAULT_SEGMENT_BYTES, DEFAULT_RETENTION_MILLIS,
+          DEFAULT_QUEUE_CAPACITY, DEFAULT_COMPACT_AFTER_SEGMENTS, DEFAULT_APPEND_WAIT_MILLIS);
+    }
+
+    /**
+     * Read settings from the {@code sfp.tsdb.*} system properties, falling back to the defaults.
+     *
+     * @return the settings
+     */
+    public static Config fromSystemProperties() {
+      return new Config(
+          Integer.getInteger("sfp.tsdb.segmentBytes", DEFAULT_SEGMENT_BYTES),
+          Long.getLong("sfp.tsdb.retentionMillis", DEFAULT_RETENTION_MILLIS),
+          Integer.getInteger("sfp.tsdb.queueCapacity", DEFAULT_QUEUE_CAPACITY),
+          Integer.getInteger("sfp.tsdb.compactAfterSegments", DEFAULT_COMPACT_AFTER_SEGMENTS),
+          Long.getLong("sfp.tsdb.appendWaitMillis", DEFAULT_APPEND_WAIT_MILLIS));
+    }
+  }
+
+  private final Path dir;
+  private final Config config;
+  private final boolean readOnly;
+
+  // Guards the segment list, the active segment and segment indexes
+  private final Object lock = new Object();
+  // Serializes compaction and retention
+  private final Object maintenanceLock = new Object();
+  private final List<Segment> segments = new ArrayList<>();
+  private Segment active;
+  private long nextSeq;
+  private int sealedSinceCompaction;
+
+  private final BlockingQueue<Pending> queue;
+  private final Thread writer;
+  private final Object commitMonitor = new Object();
+  private long enqueued;
+  private long committed;
+  private final AtomicLong dropped = new AtomicLong();
+  private long lastMaintenanceMillis = System.currentTimeMillis();
+  private volatile IOException failure;
+  private volatile boolean closed;
+
+  private FileChannel lockChannel;
+  private FileLock fileLock;
+
+  private TimeSeriesStore(Path dir, Config config, boolean readOnly) {
+    this.dir = dir;
+    this.config = config;
+    this.readOnly = readOnly;
+    this.queue = readOnly ? null : new ArrayBlockingQueue<>(config.queueCapacity());
+    this.writer = readOnly ? null : new Thread(this::runWriter, "TSDB-Writer");
+  }
+
+  /**
+   * Open a store for writing, creating the directory if needed.
+   *
+   * <p>Segments left unsealed by a crash are scanned up to their last intact
+   * block and sealed, and leftovers of an interrupted compaction are deleted.</p>
+   *
+   * @param dir    the store directory
+   * @param config the store settings
+   * @return the store with its writer thread running
+   * @throws IOException if the directory cannot be used or is opened by another writer
+   */
+  public static TimeSeriesStore open(Path dir, Config config) throws IOException {
+    Files.createDirectories(dir);
+    TimeSeriesStore store = new TimeSeriesStore(dir, config, false);
+    store.lockDirectory();
+    try {
+      store.load(true);
+      store.startSegment();
+    } catch (IOException | RuntimeException e) {
+      store.unlockDirectory();
+      throw e;
+    }
+    store.writer.setDaemon(true);
+    store.writer.start();
+    return store;
+  }
+
+  /**
+   * Open a store read-only. Nothing in the directory is modified.
+   *
+   * @param dir the store directory
+   * @return the read-only store
+   * @throws IOException if the directory or a segment cannot be read
+   */
+  public static TimeSeriesStore openReadOnly(Path dir) throws IOException {
+    if (!Files.isDirectory(dir)) {
+      throw new IOException("No such directory: " + dir);
+    }
+    TimeSeriesStore store = new TimeSeriesStore(dir, Config.defaults(), true);
+    store.load(false);
+    return store;
+  }
+
+  /**
+   * Open the store configured with the {@code sfp.tsdb.dir} system property.
+   *
+   * @return the store, or {@code null} if {@code sfp.tsdb.dir} is not set
+   * @throws IOException if the store cannot be opened
+   */
+  public static TimeSeriesStore fromSystemProperties() throws IOException {
+    String dir = System.getProperty("sfp.tsdb.dir");
+    if (dir == null || dir.isBlank()) {
+      return null;
+    }
+    return open(Path.of(dir), Config.fromSystemProperties());
+  }
+
+  /**
+   * Queue the readings of a DATA_REPORT for writing.
+   *
+   * <p>Readings without an id or value are skipped. While the queue is full,
+   * waits at most {@link Config#appendWaitMillis()}, then drops the report and
+   * counts it in {@link #dropped()}.</p>
+   *
+   * @param sensorNodeId   the id of the reporting node
+   * @param report         the received report
+   * @param receivedMillis the time the broker received the report
+   * @return {@code false} if the queue stayed full or the thread was interrupted
+   *         while waiting, and the report was dropped
+   * @throws IllegalStateException if the store is read-only or closed
+   */
+  public boolean append(int sensorNodeId, DataReportBody report, long receivedMillis) {
+    checkWritable();
+    if (report.sensors() == null || report.sensors().isEmpty()) {
+      return true;
+    }
+    boolean queued;
+    try {
+      queued = queue.offer(new Pending(sensorNodeId, report, receivedMillis),
+          config.appendWaitMillis(), TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      queued = false;
+    }
+    if (!queued) {
+      // Report the first drop of an overflow, then every 1024th
+      if ((dropped.getAndIncrement() & 1023) == 0) {
+        System.out.println("Time-series store queue is full, dropped "
+            + dropped.get() + " reports so far");
+      }
+      return false;
+    }
+    synchronized (commitMonitor) {
+      enqueued++;
+    }
+    return true;
+  }
+
+  /**
+   * Return the number of reports dropped because the write queue was full.
+   *
+   * @return the number of dropped reports since the store was opened
+   */
+  public long dropped() {
+    return dropped.get();
+  }
+
+  /**
+   * Wait until every report queued before this call has been written and forced to disk.
+   *
+   * @throws IOException          if the writer failed to write a report
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public void flush() throws IOException, InterruptedException {
+    checkWritable();
+    synchronized (commitMonitor) {
+      long target = enqueued;
+      while (committed < target) {
+        if (!writer.isAlive()) {
+          throw new IOException("Time-series writer has stopped");
+        }
+        commitMonitor.wait(100);
+      }
+    }
+    IOException error = failure;
+    if (error != null) {
+      throw new IOException("Time-series writer failed", error);
+    }
+  }
+
+  /**
+   * Read the stored readings of one sensor node.
+   *
+   * @param sensorNodeId the node id
+   * @param sensors      sensor ids to include; {@code null} for all
+   * @param fromMillis   inclusive start of the range
+   * @param toMillis     inclusive end of the range
+   * @return samples per sensor id, in the order the sensors were first stored
+   * @throws IOException if a segment is damaged
+   */
+  public Map<String, Samples> query(int sensorNodeId, List<String> sensors,
+                                    long fromMillis, long toMillis) throws IOException {
+    List<BlockRef> hits = new ArrayList<>();
+    synchronized (lock) {
+      List<Segment.IndexEntry> entries = new ArrayList<>();
+      for (Segment segment : allSegments()) {
+        entries.clear();
+        segment.find(sensorNodeId, fromMillis, toMillis, entries);
+        for (Segment.IndexEntry entry : entries) {
+          hits.add(new BlockRef(segment, entry));
+        }
+      }
+    }
+
+    Map<String, SeriesBuffer> series = new LinkedHashMap<>();
+    for (BlockRef hit : hits) {
+      Block block = hit.read();
+      if (sensors != null && !sensors.contains(block.sensorId())) {
+        continue;
+      }
+      series.computeIfAbsent(block.sensorId(), id -> new SeriesBuffer(block.count()))
+          .addAll(block.samples(), fromMillis, toMillis);
+    }
+
+    Map<String, Samples> result = new LinkedHashMap<>();
+    series.forEach((id, buffer) -> result.put(id, buffer.toSamples()));
+    return result;
+  }
+
+  /**
+   * Return the ids of all nodes with stored readings.
+   *
+   * @return the node ids in ascending order
+   */
+  public SortedSet<Integer> nodeIds() {
+    SortedSet<Integer> ids = new TreeSet<>();
+    synchronized (lock) {
+      for (Segment segment : allSegments()) {
+        for (Segment.IndexEntry entry : segment.entries()) {
+          ids.add(entry.nodeId());
+        }
+      }
+    }
+    return ids;
+  }
+
+  /**
+   * Delete sealed segments whose newest reading is older than the retention period.
+   *
+   * @param nowMillis the current time
+   * @return the number of deleted segments
+   * @throws IOException if a segment file cannot be deleted
+   */
+  public int enforceRetention(long nowMillis) throws IOException {
+    checkWritable();
+    return deleteExpired(nowMillis);
+  }
+
+  /**
+   * Rewrite the sealed segments that have not been compacted yet into compacted
+   * segments with one long block run per series.
+   *
+   * @return the number of segments that were replaced
+   * @throws IOException if reading or writing a segment fails; the inputs are kept
+   */
+  public int compact() throws IOException {
+    checkWritable();
+    return compactSealed();
+  }
+
+  private int deleteExpired(long nowMillis) throws IOException {
+    long cutoff = nowMillis - config.retentionMillis();
+    List<Segment> expired = new ArrayList<>();
+    synchronized (maintenanceLock) {
+      synchronized (lock) {
+        segments.removeIf(segment -> {
+          boolean old = segment.maxMillis() < cutoff;
+          if (old) {
+            expired.add(segment);
+          }
+          return old;
+        });
+      }
+      for (Segment segment : expired) {
+        segment.delete();
+      }
+    }
+    return expired.size();
+  }
+
+  private int compactSealed() throws IOException {
+    synchronized (maintenanceLock) {
+      // The uncompacted segments are always the newest sealed ones
+      List<Segment> inputs = new ArrayList<>();
+      synchronized (lock) {
+        for (int i = segments.size() - 1; i >= 0 && !segments.get(i).isCompacted(); i--) {
+          inputs.add(0, segments.get(i));
+        }
+        sealedSinceCompaction = 0;
+      }
+
+      int replaced = 0;
+      List<Segment> group = new ArrayList<>();
+      long groupBytes = 0;
+      for (Segment input : inputs) {
+        if (!group.isEmpty() && groupBytes + input.dataBytes() > MAX_COMPACTED_BYTES) {
+          replaced += compactGroup(group);
+          group.clear();
+          groupBytes = 0;
+        }
+        group.add(input);
+        groupBytes += input.dataBytes();
+      }
+      if (!group.isEmpty()) {
+        replaced += compactGroup(group);
+      }
+      return replaced;
+    }
+  }
+
+  /**
+   * Write everything still queued, seal the active segment and stop the writer.
+   *
+   * @throws IOException if sealing the active segment fails
+   */
+  @Override
+  public void close() throws IOException {
+    if (readOnly || closed) {
+      return;
+    }
+    closed = true;
+    try {
+      queue.put(CLOSE);
+      writer.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      unlockDirectory();
+    }
+    IOException error = failure;
+    if (error != null) {
+      throw error;
+    }
+  }
+
+  // ------------------------------------------------------------------------ //
+  // Writer
+  // ------------------------------------------------------------------------ //
+
+  private void runWriter() {
+    List<Pending> batch = new ArrayList<>();
+    boolean closing = false;
+    while (!closing) {
+      try {
+        Pending first = queue.poll(MAINTENANCE_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        if (first != null) {
+          batch.add(first);
+          queue.drainTo(batch, MAX_BATCH_REPORTS - 1);
+        }
+      } catch (InterruptedException e) {
+        break;
+      }
+      closing = batch.removeIf(pending -> pending == CLOSE);
+      commit(batch);
+      batch.clear();
+      if (!closing) {
+        maintain();
+      }
+    }
+
+    // Reports that raced with close()
+    queue.drainTo(batch);
+    batch.removeIf(pending -> pending == CLOSE);
+    commit(batch);
+    try {
+      synchronized (lock) {
+        active.seal();
+      }
+    } catch (IOException e) {
+      failure = e;
+    }
+  }
+
+  private void commit(List<Pending> batch) {
+    if (batch.isEmpty()) {
+      return;
+    }
+    try {
+      writeBatch(batch);
+    } catch (IOException | RuntimeException e) {
+      failure = e instanceof IOException io ? io : new IOException(e);
+      System.out.println("Time-series store failed to write "
+          + batch.size() + " reports: " + e.getMessage());
+    }
+    synchronized (commitMonitor) {
+      committed += batch.size();
+      commitMonitor.notifyAll();
+    }
+  }
+
+  private void writeBatch(List<Pending> batch) throws IOException {
+    Map<SeriesKey, SeriesBuffer> series = new LinkedHashMap<>();
+    for (Pending pending : batch) {
+      for (DataReportBody.SensorReading reading : pending.report().sensors()) {
+        if (reading.id() == null || reading.value() == null) {
+          continue;
+        }
+        series.computeIfAbsent(new SeriesKey(pending.nodeId(), reading.id()),
+            key -> new SeriesBuffer(16)).add(pending.receivedMillis(), reading.value());
+      }
+    }
+
+    for (Map.Entry<SeriesKey, SeriesBuffer> entry : series.entrySet()) {
+      SeriesKey key = entry.getKey();
+      SeriesBuffer buffer = entry.getValue();
+      for (int from = 0; from < buffer.size(); from += MAX_BLOCK_SAMPLES) {
+        int to = Math.min(from + MAX_BLOCK_SAMPLES, buffer.size());
+        appendBlock(Block.encode(key.nodeId(), key.sensorId(),
+            buffer.timestamps(), buffer.values(), from, to));
+      }
+    }
+
+    // One force for the whole batch: the group commit
+    Segment current;
+    synchronized (lock) {
+      current = active;
+    }
+    current.force();
+  }
+
+  private void appendBlock(Block block) throws IOException {
+    synchronized (lock) {
+      if (active.append(block)) {
+        return;
+      }
+      active.seal();
+      segments.add(active);
+      sealedSinceCompaction++;
+      startSegment();
+      if (!active.append(block)) {
+        throw new IOException("Block of " + block.encodedSize() + " bytes exceeds segment size");
+      }
+    }
+  }
+
+  private void maintain() {
+    boolean compactionDue;
+    synchronized (lock) {
+      compactionDue = config.compactAfterSegments() > 0
+          && sealedSinceCompaction >= config.compactAfterSegments();
+    }
+    long now = System.currentTimeMillis();
+    boolean retentionDue = now - lastMaintenanceMillis >= MAINTENANCE_INTERVAL_MILLIS;
+    if (!compactionDue && !retentionDue) {
+      return;
+    }
+    lastMaintenanceMillis = now;
+    try {
+      int expired = deleteExpired(now);
+      if (expired > 0) {
+        System.out.println("Time-series store deleted " + expired + " expired segments");
+      }
+      if (compactionDue) {
+        compactSealed();
+      }
+    } catch (IOException e) {
+      System.out.println("Time-series store maintenance failed: " + e.getMessage());
+    }
+  }
+
+  // ------------------------------------------------------------------------ //
+  // Segment files
+  // ------------------------------------------------------------------------ //
+
+  private int compactGroup(List<Segment> inputs) throws IOException {
+    Segment first = inputs.get(0);
+    Segment last = inputs.get(inputs.size() - 1);
+
+    // Locate the blocks of every series, in segment order
+    Map<SeriesKey, List<BlockRef>> series = new LinkedHashMap<>();
+    long capacity = Segment.HEADER_BYTES;
+    for (Segment input : inputs) {
+      capacity += input.dataBytes() - Segment.HEADER_BYTES;
+      for (Segment.IndexEntry entry : input.entries()) {
+        Block block = input.read(entry);
+        series.computeIfAbsent(new SeriesKey(block.nodeId(), block.sensorId()),
+            key -> new ArrayList<>()).add(new BlockRef(input, entry));
+      }
+    }
+
+    Path tmp = dir.resolve(segmentName(first.seq()) + ".tmp");
+    Files.deleteIfExists(tmp);
+    Segment output = Segment.create(tmp, first.seq(), last.coversThroughSeq(), true,
+        Math.max(capacity, MIN_SEGMENT_BYTES));
+    try {
+      for (Map.Entry<SeriesKey, List<BlockRef>> entry : series.entrySet()) {
+        SeriesKey key = entry.getKey();
+        SeriesBuffer buffer = new SeriesBuffer(MAX_BLOCK_SAMPLES);
+        for (BlockRef ref : entry.getValue()) {
+          buffer.addAll(ref.read().samples(), Long.MIN_VALUE, Long.MAX_VALUE);
+          while (buffer.size() >= MAX_BLOCK_SAMPLES) {
+            writeCompacted(output, Block.encode(key.nodeId(), key.sensorId(),
+                buffer.timestamps(), buffer.values(), 0, MAX_BLOCK_SAMPLES));
+            buffer.discardFirst(MAX_BLOCK_SAMPLES);
+          }
+        }
+        if (buffer.size() > 0) {
+          writeCompacted(output, Block.encode(key.nodeId(), key.sensorId(),
+              buffer.timestamps(), buffer.values(), 0, buffer.size()));
+        }
+      }
+      output.force();
+    } catch (IOException | RuntimeException e) {
+      output.delete();
+      throw e;
+    }
+
+    // The output takes the place of the first input; its stale index must go first.
+    // From here on a crash leaves the output covering the remaining inputs, which
+    // the next open deletes.
+    Files.deleteIfExists(Segment.indexPath(first.path()));
+    output.renameTo(first.path());
+    synchronized (lock) {
+      int at = segments.indexOf(first);
+      segments.removeAll(inputs);
+      segments.add(at, output);
+    }
+    for (Segment input : inputs.subList(1, inputs.size())) {
+      input.delete();
+    }
+    output.seal();
+    return inputs.size();
+  }
+
+  private static void writeCompacted(Segment output, Block block) throws IOException {
+    if (!output.append(block)) {
+      throw new IOException("Compacted data does not fit in " + output.path());
+    }
+  }
+
+  /**
+   * Open every segment in the directory, in sequence order.
+   */
+  private void load(boolean repair) throws IOException {
+    TreeMap<Long, Segment> bySeq = new TreeMap<>();
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+      for (Path file : files) {
+        String name = file.getFileName().toString();
+        if (repair && name.endsWith(".tmp")) {
+          Files.delete(file);
+        } else if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+          Segment segment = Segment.open(file, repair);
+          bySeq.put(segment.seq(), segment);
+        }
+      }
+    }
+
+    // Drop inputs of a compaction that was interrupted before deleting them
+    for (Segment segment : new ArrayList<>(bySeq.values())) {
+      if (segment.isCompacted() && bySeq.containsKey(segment.seq())) {
+        Map<Long, Segment> covered =
+            bySeq.subMap(segment.seq(), false, segment.coversThroughSeq(), true);
+        for (Segment leftover : covered.values()) {
+          if (repair) {
+            leftover.delete();
+          }
+        }
+        covered.clear();
+      }
+    }
+
+    segments.addAll(bySeq.values());
+    nextSeq = bySeq.isEmpty() ? 1 : bySeq.lastEntry().getValue().coversThroughSeq() + 1;
+  }
+
+  private void startSegment() throws IOException {
+    active = Segment.create(dir.resolve(segmentName(nextSeq)), nextSeq, nextSeq, false,
+        config.segmentBytes());
+    nextSeq++;
+  }
+
+  private List<Segment> allSegments() {
+    if (active == null) {
+      return segments;
+    }
+    List<Segment> all = new ArrayList<>(segments.size() + 1);
+    all.addAll(segments);
+    all.add(active);
+    return all;
+  }
+
+  private static String segmentName(long seq) {
+    return String.format("%s%016d%s", SEGMENT_PREFIX, seq, SEGMENT_SUFFIX);
+  }
+
+  private void lockDirectory() throws IOException {
+    lockChannel = FileChannel.open(dir.resolve(LOCK_FILE),
+        StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+    try {
+      fileLock = lockChannel.tryLock();
+    } catch (OverlappingFileLockException e) {
+      fileLock = null;
+    }
+    if (fileLock == null) {
+      lockChannel.close();
+      throw new IOException("Time-series store " + dir + " is already open for writing");
+    }
+  }
+
+  private void unlockDirectory() throws IOException {
+    if (lockChannel != null) {
+      lockChannel.close();
+    }
+  }
+
+  private void checkWritable() {
+    if (readOnly) {
+      throw new IllegalStateException("Time-series store is read-only");
+    }
+    if (closed) {
+      throw new IllegalStateException("Time-series store is closed");
+    }
+  }
+
+  private record Pending(int nodeId, DataReportBody report, long receivedMillis) {
+  }
+
+  private record SeriesKey(int nodeId, String sensorId) {
+  }
+
+  private record BlockRef(Segment segment, Segment.IndexEntry entry) {
+    Block read() throws IOException {
+      return segment.read(entry);
+    }
+  }
+}
@@ -0,0 +1,121 @@
+package ntnu.idata2302.sfp.server.tsdb;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import ntnu.idata2302.sfp.server.history.Samples;
+
+/**
+ * Offline command line tool that reads a {@link TimeSeriesStore} directory.
+ *
+ * <p>The store is opened read-only, so the tool can run next to a live broker.</p>
+ *
+ * <pre>
+ * TsdbQueryTool &lt;dir&gt;
+ *     list the ids of all nodes with stored readings
+ * TsdbQueryTool &lt;dir&gt; &lt;nodeId&gt; [--sensor &lt;id&gt;]... [--from &lt;time&gt;] [--to &lt;time&gt;]
+ *     print the readings of a node as CSV: sensor,timestampMillis,value
+ * </pre>
+ *
+ * <p>Node ids may be decimal or hexadecimal ({@code 0x10000}); times are epoch
+ * milliseconds or ISO-8601 instants such as {@code 2025-05-01T00:00:00Z}.</p>
+ */
+public final class TsdbQueryTool {
+
+  private static final String USAGE =
+      "Usage: TsdbQueryTool <dir> [<nodeId> [--sensor <id>]... [--from <time>] [--to <time>]]";
+
+  private TsdbQueryTool() {
+  }
+
+  /**
+   * Run the tool.
+   *
+   * @param args command line arguments, see the class documentation
+   */
+  public static void main(String[] args) {
+    System.exit(run(args, System.out, System.err));
+  }
+
+  /**
+   * Run the tool with the given output streams.
+   *
+   * @param args command line arguments
+   * @param out  stream for results
+   * @param err  stream for errors and usage
+   * @return the exit code: {@code 0} on success, {@code 1} on read errors, {@code 2} on bad usage
+   */
+  static int run(String[] args, PrintStream out, PrintStream err) {
+    if (args.length < 1) {
+      err.println(USAGE);
+      return 2;
+    }
+
+    Path dir = Path.of(args[0]);
+    Integer nodeId = null;
+    List<String> sensors = null;
+    long from = Long.MIN_VALUE;
+    long to = Long.MAX_VALUE;
+    try {
+      if (args.length > 1) {
+        nodeId = Integer.decode(args[1]);
+      }
+      for (int i = 2; i < args.length; i += 2) {
+        if (i + 1 >= args.length) {
+          throw new IllegalArgumentException("Missing value for " + args[i]);
+        }
+        String value = args[i + 1];
+        switch (args[i]) {
+          case "--sensor" -> {
+            if (sensors == null) {
+              sensors = new ArrayList<>();
+            }
+            sensors.add(value);
+          }
+          case "--from" -> from = parseTime(value);
+          case "--to" -> to = parseTime(value);
+          default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+        }
+      }
+    } catch (IllegalArgumentException | DateTimeException e) {
+      err.println(e.getMessage());
+      err.println(USAGE);
+      return 2;
+    }
+
+    try (TimeSeriesStore store = TimeSeriesStore.openReadOnly(dir)) {
+      if (nodeId == null) {
+        for (int id : store.nodeIds()) {
+          out.println(id);
+        }
+        return 0;
+      }
+
+      Map<String, Samples> result = store.query(nodeId, sensors, from, to);
+      out.println("sensor,timestampMillis,value");
+      for (Map.Entry<String, Samples> entry : result.entrySet()) {
+        Samples samples = entry.getValue();
+        for (int i = 0; i < samples.size(); i++) {
+          out.println(entry.getKey() + "," + samples.timestamps()[i] + "," + samples.values()[i]);
+        }
+      }
+      return 0;
+    } catch (IOException e) {
+      err.println("Failed to read " + dir + ": " + e.getMessage());
+      return 1;
+    }
+  }
+
+  private static long parseTime(String value) {
+    try {
+      return Long.parseLong(value);
+    } catch (NumberFormatException e) {
+      return Instant.parse(value).toEpochMilli();
+    }
+  }
+}
@@ -1,59 +1,251 @@
 package ntnu.idata2302.sfp.server.util;
 
-import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.ArrayDeque;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.function.LongSupplier;
+import ntnu.idata2302.sfp.library.node.NodeIds;
 
 /**
- * Thread-safe ID allocator used by the server to hand out small integer IDs.
+ * Thread-safe ID allocator used by the server to hand out node IDs.
  *
- * <p>This utility reuses IDs returned via {@link #release(int)} by keeping them
- * in a concurrent queue; when no freed IDs are available it generates a new ID
- * using an {@link AtomicInteger} counter.</p>
- *
- * <p>Implementation notes:
+ * <p>Control panels and sensor nodes are given IDs from separate ranges so
+ * that {@link NodeIds#isControlPanel(int)} and {@link NodeIds#isSensorNode(int)}
+ * hold for every allocated ID:
  * <ul>
- *   <li>Methods are safe for concurrent use by multiple threads.</li>
- *   <li>IDs generated by the counter-start at {@code 2} (the initial value of {@code nextId}).</li>
- *   <li>Callers must avoid releasing the same ID multiple times — doing so may
- *       result in duplicate allocations.</li>
+ *   <li>control panels: {@code 0x00000002} to {@code 0x0000FFFF}</li>
+ *   <li>sensor nodes: {@code 0x00010000} and up</li>
  * </ul>
- * </p>
+ * Each range is a {@link BitSet} with one bit per ID and a hint pointing at
+ * the lowest ID that may be free, so allocation is O(1) amortized and the
+ * memory cost is one bit per ID ever handed out.</p>
+ *
+ * <p>Released IDs are quarantined for a while before they can be handed out
+ * again. Frames addressed to a node that has just left may still be in
+ * flight; without the quarantine they could reach a new node that happened to
+ * get the same ID.</p>
+ *
+ * <p>{@link #snapshot()} and {@link #restore(Snapshot)} capture and reinstate
+ * the allocation state, for example to keep IDs stable across a restart.</p>
  */
 public class IdAllocator {
 
-  private static AtomicInteger nextId = new AtomicInteger(2); // IDs start at 2
-  private static ConcurrentLinkedQueue<Integer> freeIds = new ConcurrentLinkedQueue<>();
+  /** Default time a released ID stays unusable, in milliseconds. */
+  public static final long DEFAULT_QUARANTINE_MILLIS = 30_000;
+
+  private final Range controlPanels = new Range(0x00000002, 0x0000FFFF);
+  private final Range sensorNodes = new Range(0x00010000, Integer.MAX_VALUE);
+
+  // Released IDs in release order; the quarantine period is fixed, so the head expires first
+  private final Deque<Quarantined> quarantine = new ArrayDeque<>();
+  private final long quarantineMillis;
+  private final LongSupplier clock;
+
+  /**
+   * Create an allocator with the default quarantine period.
+   */
+  public IdAllocator() {
+    this(DEFAULT_QUARANTINE_MILLIS, System::currentTimeMillis);
+  }
+
+  /**
+   * Create an allocator with a custom quarantine period and clock.
+   *
+   * @param quarantineMillis how long a released ID stays unusable; {@code 0} reuses at once
+   * @param clock            source of the current time in milliseconds
+   */
+  public IdAllocator(long quarantineMillis, LongSupplier clock) {
+    this.quarantineMillis = quarantineMillis;
+    this.clock = clock;
+  }
+
+  /**
+   * Allocate an ID from the control panel range.
+   *
+   * @return the lowest free control panel ID
+   * @throws IllegalStateException if every control panel ID is in use or quarantined
+   */
+  public synchronized int allocateControlPanel() {
+    releaseExpired();
+    return controlPanels.allocate();
+  }
+
+  /**
+   * Allocate an ID from the sensor node range.
+   *
+   * @return the lowest free sensor node ID
+   * @throws IllegalStateException if every sensor node ID is in use or quarantined
+   */
+  public synchronized int allocateSensorNode() {
+    releaseExpired();
+    return sensorNodes.allocate();
+  }
+
+  /**
+   * Release an ID. It becomes available again once the quarantine period
+   * has passed.
+   *
+   * @param id the ID to release
+   * @return {@code true} if the ID was allocated; {@code false} if it was never
+   *         allocated, is already quarantined, or lies outside both ranges
+   */
+  public synchronized boolean release(int id) {
+    Range range = rangeOf(id);
+    if (range == null || !range.quarantine(id)) {
+      return false;
+    }
+    quarantine.addLast(new Quarantined(id, clock.getAsLong() + quarantineMillis));
+    releaseExpired();
+    return true;
+  }
+
+  /**
+   * Return whether an ID is currently allocated or quarantined.
+   *
+   * @param id the ID to test
+   * @return {@code true} if the ID cannot be handed out right now
+   */
+  public synchronized boolean isInUse(int id) {
+    releaseExpired();
+    Range range = rangeOf(id);
+    return range != null && range.used.get(range.index(id));
+  }
 
   /**
-   * Allocate an ID.
+   * Capture the current allocation state.
+   *
+   * <p>IDs still in quarantine are recorded separately so that a restored
+   * allocator keeps them unusable for a full quarantine period.</p>
    *
-   * <p>If a previously released ID is available, it will be reused (FIFO
-   * order). Otherwise, a new ID is returned by incrementing the internal
-   * counter.</p>
+   * @return an immutable copy of the allocation state
+   */
+  public synchronized Snapshot snapshot() {
+    releaseExpired();
+    return new Snapshot(
+        controlPanels.allocated().toLongArray(),
+        sensorNodes.allocated().toLongArray(),
+        quarantine.stream().mapToInt(Quarantined::id).toArray()
+    );
+  }
+
+  /**
+   * Replace the allocation state with a previously captured snapshot.
    *
-   * @return a non-negative integer ID (generated IDs start from {@code 2})
-   * @implNote This method is thread-safe; it may return an ID
+   * @param snapshot the state to restore
+   */
+  public synchronized void restore(Snapshot snapshot) {
+    controlPanels.reset(BitSet.valueOf(snapshot.controlPanelIds()));
+    sensorNodes.reset(BitSet.valueOf(snapshot.sensorNodeIds()));
+    quarantine.clear();
+
+    long expiresAt = clock.getAsLong() + quarantineMillis;
+    for (int id : snapshot.quarantinedIds()) {
+      Range range = rangeOf(id);
+      if (range != null) {
+        range.used.set(range.index(id));
+        range.quarantined.set(range.index(id));
+        quarantine.addLast(new Quarantined(id, expiresAt));
+      }
+    }
+  }
+
+  /**
+   * Make every ID whose quarantine has ended available again.
    */
-  public static int allocate() {
-    Integer id = freeIds.poll();
-    if (id != null) {
-      return id; // reuse freed id
+  private void releaseExpired() {
+    long now = clock.getAsLong();
+    while (!quarantine.isEmpty() && quarantine.peekFirst().expiresAtMillis() <= now) {
+      int id = quarantine.pollFirst().id();
+      rangeOf(id).free(id);
+    }
+  }
+
+  private Range rangeOf(int id) {
+    if (NodeIds.isControlPanel(id)) {
+      return controlPanels;
+    }
+    if (NodeIds.isSensorNode(id)) {
+      return sensorNodes;
     }
-    return nextId.getAndIncrement(); // generate new id
+    return null;
   }
 
   /**
-   * Release an ID back to the pool for reuse.
+   * Allocation state captured by {@link #snapshot()}.
    *
-   * <p>The released ID will be available for subsequent {@link #allocate()}
-   * calls. Callers should only release IDs that were previously allocated
-   * and should avoid releasing the same ID multiple times to prevent duplicate
-   * allocations.</p>
+   * <p>The two bitmaps are in {@link BitSet#toLongArray()} form, where bit
+   * {@code i} stands for the {@code i}-th ID of the range.</p>
    *
-   * @param id the ID to release; behavior is undefined if the same {@code id}
-   *           is released multiple times or if an ID that was not allocated is released
+   * @param controlPanelIds allocated control panel IDs, excluding quarantined ones
+   * @param sensorNodeIds   allocated sensor node IDs, excluding quarantined ones
+   * @param quarantinedIds  IDs released but not yet reusable
+   */
+  public record Snapshot(long[] controlPanelIds, long[] sensorNodeIds, int[] quarantinedIds) {
+  }
+
+  private record Quarantined(int id, long expiresAtMillis) {
+  }
+
+  /**
+   * One contiguous ID range backed by a bitmap.
    */
-  public static void release(int id) {
-    freeIds.offer(id); // return id to pool
+  private static final class Range {
+    private final int first;
+    private final int last;
+
+    // Allocated or quarantined IDs, and the quarantined subset
+    private BitSet used = new BitSet();
+    private BitSet quarantined = new BitSet();
+
+    // Every index below the hint is in use
+    private int hint;
+
+    Range(int first, int last) {
+      this.first = first;
+      this.last = last;
+    }
+
+    int index(int id) {
+      return id - first;
+    }
+
+    int allocate() {
+      int index = used.nextClearBit(hint);
+      if (index < 0 || index > last - first) {
+        throw new IllegalStateException(
+            "No free IDs in range " + first + ".." + last);
+      }
+      used.set(index);
+      hint = index + 1;
+      return first + index;
+    }
+
+    boolean quarantine(int id) {
+      int index = index(id);
+      if (!used.get(index) || quarantined.get(index)) {
+        return false;
+      }
+      quarantined.set(index);
+      return true;
+    }
+
+    void free(int id) {
+      int index = index(id);
+      used.clear(index);
+      quarantined.clear(index);
+      hint = Math.min(hint, index);
+    }
+
+    BitSet allocated() {
+      BitSet allocated = (BitSet) used.clone();
+      allocated.andNot(quarantined);
+      return allocated;
+    }
+
+    void reset(BitSet allocated) {
+      used = allocated;
+      quarantined = new BitSet();
+      hint = 0;
+    }
   }
-}
\ No newline at end of file
+}
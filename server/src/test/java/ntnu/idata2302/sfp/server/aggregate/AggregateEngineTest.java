@@ -0,0 +1,122 @@
+package ntnu.idata2302.sfp.server.aggregate;
+
+import ntnu.idata2302.sfp.library.body.data.DataReportBody;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class for {@link AggregateEngine} and {@link Period}.
+ *
+ * <b>Positive Tests:</b>
+ * <ul>
+ *   <li>Period names parse into sliding durations and tumbling calendar units.</li>
+ *   <li>Default periods are maintained per sensor and rendered as wire aggregates.</li>
+ *   <li>Periods that are not maintained yet start filling once requested.</li>
+ * </ul>
+ *
+ * <b>Negative Tests:</b>
+ * <ul>
+ *   <li>Invalid period names are rejected.</li>
+ *   <li>Removed and unknown nodes have no aggregates.</li>
+ * </ul>
+ */
+public class AggregateEngineTest {
+
+  private static final int NODE = 0x10000;
+
+  // --------------------------- POSITIVE TESTS ---------------------------------- //
+
+  /**
+   * Verifies period parsing.
+   */
+  @Test
+  void parse_durationsAndCalendarUnits_positive() {
+    assertEquals(new Period("1h", 3_600_000, false), Period.parse("1h"));
+    assertEquals(new Period("15m", 900_000, false), Period.parse("15m"));
+    assertEquals(new Period("day", 86_400_000, true), Period.parse("day"));
+  }
+
+  /**
+   * Verifies aggregates over the default periods, filtered by type.
+   */
+  @Test
+  void values_defaultPeriods_positive() {
+    // Arrange
+    AggregateEngine engine = new AggregateEngine(List.of("1h"));
+    engine.record(NODE, report("temp", 10), 1_000);
+    engine.record(NODE, report("temp", 20), 2_000);
+    engine.record(NODE, report("hum", 50), 2_000);
+
+    // Act
+    List<DataReportBody.AggregateValue> values = engine.values(
+        NODE, List.of("temp"), engine.defaultPeriods(), List.of("min", "avg"), 3_000);
+
+    // Assert
+    assertEquals(List.of(new DataReportBody.AggregateValue("temp", "1h", 10.0, null, 15.0)),
+        values);
+    assertEquals(2, engine.values(NODE, null, engine.defaultPeriods(), null, 3_000).size());
+  }
+
+  /**
+   * Verifies that a new period is added on first request and then maintained.
+   */
+  @Test
+  void aggregate_newPeriod_fillsAfterRequest_positive() {
+    // Arrange
+    AggregateEngine engine = new AggregateEngine(List.of("1h"));
+    Period fiveMinutes = Period.parse("5m");
+    engine.record(NODE, report("temp", 10), 1_000);
+
+    // Act
+    Aggregate first = engine.aggregate(NODE, "temp", fiveMinutes, 1_000);
+    engine.record(NODE, report("temp", 30), 2_000);
+    Aggregate second = engine.aggregate(NODE, "temp", fiveMinutes, 2_000);
+
+    // Assert
+    assertTrue(first.isEmpty());
+    assertEquals(1, second.count());
+    assertEquals(30, second.max());
+  }
+
+  // --------------------------- NEGATIVE TESTS ---------------------------------- //
+
+  /**
+   * Verifies rejection of malformed periods.
+   */
+  @Test
+  void parse_invalidPeriods_throw_negative() {
+    assertThrows(IllegalArgumentException.class, () -> Period.parse("fortnight"));
+    assertThrows(IllegalArgumentException.class, () -> Period.parse("0h"));
+    assertThrows(IllegalArgumentException.class, () -> Period.parse("h"));
+    assertThrows(IllegalArgumentException.class, () -> Period.parse(null));
+  }
+
+  /**
+   * Verifies that removing a node drops its aggregates.
+   */
+  @Test
+  void remove_node_dropsAggregates_negative() {
+    AggregateEngine engine = new AggregateEngine();
+    engine.record(NODE, report("temp", 10), 1_000);
+
+    engine.remove(NODE);
+
+    assertTrue(engine.sensors(NODE).isEmpty());
+    assertTrue(engine.aggregate(NODE, "temp", Period.parse("1h"), 1_000).isEmpty());
+    assertFalse(engine.sensors(NODE + 1).contains("temp"));
+    assertNull(engine.values(NODE, null, engine.defaultPeriods(), null, 1_000)
+        .stream().findFirst().orElse(null));
+  }
+
+  private static DataReportBody report(String id, double value) {
+    return new DataReportBody(
+        List.of(new DataReportBody.SensorReading(id, value, null, null, null, null)), null, null);
+  }
+}
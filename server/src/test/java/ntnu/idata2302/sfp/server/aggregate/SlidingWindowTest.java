@@ -0,0 +1,128 @@
+package ntnu.idata2302.sfp.server.aggregate;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class for {@link SlidingWindow} and {@link TumblingWindow}.
+ *
+ * <b>Positive Tests:</b>
+ * <ul>
+ *   <li>The sliding window matches a brute-force computation over random samples.</li>
+ *   <li>Old samples leave the sliding window as time passes.</li>
+ *   <li>The tumbling window restarts at each period boundary.</li>
+ * </ul>
+ *
+ * <b>Negative Tests:</b>
+ * <ul>
+ *   <li>A window is empty after a gap longer than its period.</li>
+ * </ul>
+ */
+public class SlidingWindowTest {
+
+  private static final long PERIOD = 60_000;
+
+  // --------------------------- POSITIVE TESTS ---------------------------------- //
+
+  /**
+   * Compares the window with a recomputation over the samples in the covered buckets.
+   */
+  @Test
+  void snapshot_matchesBruteForce_positive() {
+    // Arrange
+    SlidingWindow window = new SlidingWindow(PERIOD);
+    long bucket = PERIOD / SlidingWindow.BUCKETS;
+    Random random = new Random(42);
+    List<long[]> times = new ArrayList<>();
+    List<Double> values = new ArrayList<>();
+    long t = 0;
+
+    for (int i = 0; i < 5_000; i++) {
+      t += random.nextInt(200);
+      double v = random.nextGaussian() * 10;
+      window.add(t, v);
+      times.add(new long[]{t});
+      values.add(v);
+
+      // Act
+      Aggregate actual = window.snapshot(t);
+
+      // Assert: the window covers the current bucket and the 59 before it
+      long oldestBucket = t / bucket - SlidingWindow.BUCKETS + 1;
+      double min = Double.POSITIVE_INFINITY;
+      double max = Double.NEGATIVE_INFINITY;
+      double sum = 0;
+      long count = 0;
+      for (int j = 0; j < times.size(); j++) {
+        if (times.get(j)[0] / bucket >= oldestBucket) {
+          min = Math.min(min, values.get(j));
+          max = Math.max(max, values.get(j));
+          sum += values.get(j);
+          count++;
+        }
+      }
+      assertEquals(count, actual.count());
+      assertEquals(min, actual.min());
+      assertEquals(max, actual.max());
+      assertEquals(sum, actual.sum(), 1e-6);
+    }
+  }
+
+  /**
+   * Verifies that samples expire and the extremes move accordingly.
+   */
+  @Test
+  void snapshot_afterPeriod_dropsOldSamples_positive() {
+    SlidingWindow window = new SlidingWindow(PERIOD);
+    window.add(0, 100);
+    window.add(30_000, 5);
+
+    Aggregate early = window.snapshot(45_000);
+    Aggregate later = window.snapshot(75_000);
+
+    assertEquals(2, early.count());
+    assertEquals(100, early.max());
+    assertEquals(1, later.count());
+    assertEquals(5, later.max());
+    assertEquals(5, later.avg());
+  }
+
+  /**
+   * Verifies calendar alignment of tumbling windows.
+   */
+  @Test
+  void tumbling_restartsAtBoundary_positive() {
+    TumblingWindow hour = new TumblingWindow(3_600_000);
+    hour.add(3_599_000, 1);
+    hour.add(3_600_000, 2);
+    hour.add(3_700_000, 4);
+
+    Aggregate current = hour.snapshot(3_800_000);
+
+    assertEquals(2, current.count());
+    assertEquals(3, current.avg());
+    assertTrue(hour.snapshot(7_200_000).isEmpty());
+  }
+
+  // --------------------------- NEGATIVE TESTS ---------------------------------- //
+
+  /**
+   * Verifies that a long gap empties the window instead of reporting stale data.
+   */
+  @Test
+  void snapshot_afterLongGap_isEmpty_negative() {
+    SlidingWindow window = new SlidingWindow(PERIOD);
+    window.add(0, 1);
+    window.add(1_000, 2);
+
+    assertTrue(window.snapshot(10 * PERIOD).isEmpty());
+    window.add(10 * PERIOD, 7);
+    assertEquals(7, window.snapshot(10 * PERIOD).min());
+  }
+}
@@ -0,0 +1,92 @@
+package ntnu.idata2302.sfp.server.cache;
+
+import ntnu.idata2302.sfp.library.body.data.DataReportBody;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Test class for {@link LastValueCache}.
+ *
+ * <b>Positive Tests:</b>
+ * <ul>
+ *   <li>The first report of a node is cached as-is.</li>
+ *   <li>Later reports replace readings by id and keep readings they do not mention.</li>
+ * </ul>
+ *
+ * <b>Negative Tests:</b>
+ * <ul>
+ *   <li>Unknown and removed nodes have no cached state.</li>
+ * </ul>
+ */
+public class LastValueCacheTest {
+
+  // --------------------------- POSITIVE TESTS ---------------------------------- //
+
+  /**
+   * Verifies that the first report is returned unchanged.
+   */
+  @Test
+  void update_firstReport_isCached_positive() {
+    // Arrange
+    LastValueCache cache = new LastValueCache();
+    DataReportBody report = new DataReportBody(
+        List.of(reading("temp", 20.0)), List.of(state("FAN", 1.0)), null);
+
+    // Act
+    cache.update(0x10000, report);
+
+    // Assert
+    assertEquals(report, cache.get(0x10000));
+    assertEquals(1, cache.size());
+  }
+
+  /**
+   * Verifies that a partial report only replaces the readings it carries.
+   */
+  @Test
+  void update_partialReport_mergesById_positive() {
+    // Arrange
+    LastValueCache cache = new LastValueCache();
+    cache.update(0x10000, new DataReportBody(
+        List.of(reading("temp", 20.0), reading("hum", 40.0)), List.of(state("FAN", 1.0)), null));
+
+    // Act
+    cache.update(0x10000, new DataReportBody(List.of(reading("hum", 55.0)), null, null));
+    DataReportBody merged = cache.get(0x10000);
+
+    // Assert
+    assertEquals(List.of(reading("temp", 20.0), reading("hum", 55.0)), merged.sensors());
+    assertEquals(List.of(state("FAN", 1.0)), merged.actuators());
+  }
+
+  // --------------------------- NEGATIVE TESTS ---------------------------------- //
+
+  /**
+   * Verifies that nothing is returned for nodes without state.
+   */
+  @Test
+  void get_unknownOrRemovedNode_returnsNull_negative() {
+    // Arrange
+    LastValueCache cache = new LastValueCache();
+    cache.update(0x10000, new DataReportBody(List.of(reading("temp", 20.0)), null, null));
+
+    // Act
+    cache.remove(0x10000);
+
+    // Assert
+    assertNull(cache.get(0x10000));
+    assertNull(cache.get(0x10001));
+  }
+
+  private static DataReportBody.SensorReading reading(String id, double value) {
+    return new DataReportBody.SensorReading(id, value, 0.0, 100.0, "u", "0");
+  }
+
+  private static DataReportBody.ActuatorState state(String id, double value) {
+    return new DataReportBody.ActuatorState(id, value, 0.0, 1.0, "u", "0");
+  }
+}
@@ -0,0 +1,234 @@
+package ntnu.idata2302.sfp.server.capabilities;
+
+import ntnu.idata2302.sfp.library.body.Body;
+import ntnu.idata2302.sfp.library.body.capabilities.CapabilitiesDeltaBody;
+import ntnu.idata2302.sfp.library.body.capabilities.CapabilitiesListBody;
+import ntnu.idata2302.sfp.library.body.capabilities.CapabilitiesQueryBody;
+import ntnu.idata2302.sfp.library.node.NodeDescriptor;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class for {@link CapabilitiesCatalog}.
+ *
+ * <b>Positive Tests:</b>
+ * <ul>
+ *   <li>The pre-encoded full list decodes with the request id of each query.</li>
+ *   <li>Several changes of one node collapse into one delta entry.</li>
+ *   <li>A filtered query pages through the matching nodes in id order.</li>
+ *   <li>The sensor index follows descriptor changes.</li>
+ * </ul>
+ *
+ * <b>Negative Tests:</b>
+ * <ul>
+ *   <li>Re-putting an unchanged descriptor does not bump the version.</li>
+ *   <li>A version older than the change log gets the full list.</li>
+ *   <li>A version of another catalog gets the full list, even if it equals the current one.</li>
+ *   <li>A filter no node matches yields an empty last page.</li>
+ * </ul>
+ */
+public class CapabilitiesCatalogTest {
+
+  private static NodeDescriptor sensor(int id, List<String> groups) {
+    return new NodeDescriptor(id, 1, null, null, null, null, groups);
+  }
+
+  private static NodeDescriptor withSensor(int id, String sensorId, boolean images) {
+    return new NodeDescriptor(id, 1,
+        List.of(new NodeDescriptor.SensorDescriptor(sensorId, null, null, null)),
+        null, images, null, null);
+  }
+
+  // --------------------------- POSITIVE TESTS ---------------------------------- //
+
+  /**
+   * Verifies that the patched template decodes to the same list for positive,
+   * large and negative request ids, also when node contents spell "requestId".
+   */
+  @Test
+  void answer_fullList_patchesRequestId_positive() {
+    // Arrange
+    CapabilitiesCatalog catalog = new CapabilitiesCatalog();
+    catalog.put(0x10000, sensor(0x10000, List.of("requestId")));
+    catalog.put(0x10001, sensor(0x10001, null));
+    catalog.put(0x10002, withSensor(0x10002, "requestId", true));
+
+    for (int requestId : new int[]{0, 7, 70_000, Integer.MAX_VALUE, -3}) {
+      // Act
+      CapabilitiesListBody decoded =
+          CapabilitiesListBody.fromCbor(catalog.answer(requestId, null).toCbor());
+
+      // Assert
+      assertEquals(requestId, decoded.requestId());
+      assertEquals(catalog.nodes(), decoded.nodes());
+      assertEquals(catalog.version(), decoded.version());
+    }
+  }
+
+  /**
+   * Verifies that a delta lists each changed node once, with its latest state.
+   */
+  @Test
+  void answer_knownVersion_collapsesChangesPerNode_positive() {
+    // Arrange
+    CapabilitiesCatalog catalog = new CapabilitiesCatalog();
+    for (int id = 0x10000; id < 0x10006; id++) {
+      catalog.put(id, sensor(id, null));
+    }
+    long known = catalog.version();
+    catalog.put(0x10000, sensor(0x10000, List.of("zone-a")));
+    catalog.put(0x10000, sensor(0x10000, List.of("zone-b")));
+    catalog.remove(0x10002);
+
+    // Act
+    Body answer = catalog.answer(4, known);
+
+    // Assert
+    CapabilitiesDeltaBody delta = assertInstanceOf(CapabilitiesDeltaBody.class, answer);
+    assertEquals(known, delta.fromVersion());
+    assertEquals(catalog.version(), delta.version());
+    assertEquals(List.of(sensor(0x10000, List.of("zone-b"))), delta.upserted());
+    assertEquals(List.of(0x10002), delta.removed());
+  }
+
+  /**
+   * Verifies that cursor paging over a sensor filter and id range visits
+   * every matching node once, in id order.
+   */
+  @Test
+  void query_filterAndCursor_pagesInIdOrder_positive() {
+    // Arrange
+    CapabilitiesCatalog catalog = new CapabilitiesCatalog();
+    for (int id = 0x10000; id < 0x10010; id++) {
+      catalog.put(id, withSensor(id, id % 2 == 0 ? "temp" : "humidity", id % 4 == 0));
+    }
+    CapabilitiesQueryBody.Filter filter =
+        new CapabilitiesQueryBody.Filter(1, "temp", null, null, 0x10002, null);
+
+    // Act
+    List<Integer> listed = new ArrayList<>();
+    Integer cursor = null;
+    int pages = 0;
+    do {
+      CapabilitiesListBody page = catalog.query(pages, filter, cursor, 3);
+      page.nodes().forEach(node -> listed.add(node.nodeId()));
+      cursor = page.nextCursor();
+      pages++;
+    } while (cursor != null);
+
+    // Assert
+    assertEquals(List.of(0x10002, 0x10004, 0x10006, 0x10008, 0x1000A, 0x1000C, 0x1000E), listed);
+    assertEquals(3, pages);
+  }
+
+  /**
+   * Verifies that replacing a descriptor moves the node between sensor index
+   * entries and that removal drops it.
+   */
+  @Test
+  void query_descriptorChanged_indexFollows_positive() {
+    // Arrange
+    CapabilitiesCatalog catalog = new CapabilitiesCatalog();
+    catalog.put(0x10000, withSensor(0x10000, "temp", true));
+    catalog.put(0x10001, withSensor(0x10001, "temp", false));
+
+    // Act
+    catalog.put(0x10000, withSensor(0x10000, "soil", true));
+    catalog.remove(0x10001);
+
+    // Assert
+    assertTrue(catalog.query(1, new CapabilitiesQueryBody.Filter(
+        null, "temp", null, null, null, null), null, null).nodes().isEmpty());
+    assertEquals(List.of(withSensor(0x10000, "soil", true)), catalog.query(2,
+        new CapabilitiesQueryBody.Filter(null, "soil", null, true, null, null),
+        null, null).nodes());
+  }
+
+  // --------------------------- NEGATIVE TESTS ---------------------------------- //
+
+  /**
+   * Verifies that an identical descriptor is not recorded as a change.
+   */
+  @Test
+  void put_unchangedDescriptor_returnsNull_negative() {
+    // Arrange
+    CapabilitiesCatalog catalog = new CapabilitiesCatalog();
+    catalog.put(0x10000, sensor(0x10000, null));
+    long version = catalog.version();
+
+    // Act
+    CapabilitiesDeltaBody change = catalog.put(0x10000, sensor(0x10000, null));
+
+    // Assert
+    assertNull(change);
+    assertEquals(version, catalog.version());
+  }
+
+  /**
+   * Verifies that a version the change log no longer covers is answered with the full list.
+   */
+  @Test
+  void answer_versionOlderThanLog_returnsFullList_negative() {
+    // Arrange
+    CapabilitiesCatalog catalog = new CapabilitiesCatalog(2);
+    for (int id = 0x10000; id < 0x10005; id++) {
+      catalog.put(id, sensor(id, null));
+    }
+    long tooOld = catalog.version() - 3;
+
+    // Act
+    CapabilitiesListBody decoded =
+        CapabilitiesListBody.fromCbor(catalog.answer(9, tooOld).toCbor());
+
+    // Assert
+    assertEquals(5, decoded.nodes().size());
+  }
+
+  /**
+   * Verifies that a version issued by another catalog, as kept by a control
+   * panel across a broker restart, is never answered as current or with a delta.
+   */
+  @Test
+  void answer_versionOfOtherCatalog_returnsFullList_negative() {
+    // Arrange
+    CapabilitiesCatalog restarted = new CapabilitiesCatalog();
+    restarted.put(0x10000, sensor(0x10000, null));
+    restarted.put(0x10001, sensor(0x10001, null));
+    long foreign = restarted.version() ^ (1L << 50);
+    long foreignInLog = foreign - 1;
+
+    // Act
+    Body current = restarted.answer(3, foreign);
+    Body inLog = restarted.answer(4, foreignInLog);
+
+    // Assert
+    assertEquals(2, CapabilitiesListBody.fromCbor(current.toCbor()).nodes().size());
+    assertEquals(2, CapabilitiesListBody.fromCbor(inLog.toCbor()).nodes().size());
+  }
+
+  /**
+   * Verifies that a filter no node matches gives an empty page without a cursor.
+   */
+  @Test
+  void query_noMatch_returnsEmptyLastPage_negative() {
+    // Arrange
+    CapabilitiesCatalog catalog = new CapabilitiesCatalog();
+    catalog.put(0x10000, withSensor(0x10000, "temp", false));
+
+    // Act
+    CapabilitiesListBody page = catalog.query(5,
+        new CapabilitiesQueryBody.Filter(2, null, null, null, null, null), null, 10);
+
+    // Assert
+    assertTrue(page.nodes().isEmpty());
+    assertNull(page.nextCursor());
+    assertEquals(catalog.version(), page.version());
+  }
+}
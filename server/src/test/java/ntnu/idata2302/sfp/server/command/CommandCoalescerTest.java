@@ -0,0 +1,125 @@
+package ntnu.idata2302.sfp.server.command;
+
+import ntnu.idata2302.sfp.library.SmartFarmingProtocol;
+import ntnu.idata2302.sfp.library.body.command.CommandAckBody;
+import ntnu.idata2302.sfp.library.body.command.CommandBody;
+import ntnu.idata2302.sfp.library.header.Header;
+import ntnu.idata2302.sfp.library.header.MessageTypes;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class for {@link CommandCoalescer}.
+ *
+ * <b>Positive Tests:</b>
+ * <ul>
+ *   <li>A queued command fully replaced by a newer one is acknowledged as
+ *       coalesced and never written; a partly replaced one keeps its other updates.</li>
+ * </ul>
+ *
+ * <b>Negative Tests:</b>
+ * <ul>
+ *   <li>Commands submitted to an idle queue are written unchanged.</li>
+ * </ul>
+ */
+public class CommandCoalescerTest {
+
+  private static final int CP = 0x20000;
+  private static final int NODE = 0x10000;
+
+  // --------------------------- POSITIVE TESTS ---------------------------------- //
+
+  /**
+   * Verifies latest-wins replacement while a write to the node is blocked.
+   */
+  @Test
+  void submit_whileWriting_coalescesQueuedCommands_positive() throws Exception {
+    // Arrange
+    CountDownLatch writing = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    BlockingQueue<SmartFarmingProtocol> sent = new LinkedBlockingQueue<>();
+    CommandCoalescer coalescer = new CommandCoalescer((id, packet) -> {
+      if (packet.getHeader().getMessageType() == MessageTypes.COMMAND && sent.isEmpty()) {
+        writing.countDown();
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      sent.add(packet);
+    }, null);
+    Thread writer = new Thread(() -> coalescer.submit(command(1, "FAN", 10)));
+    writer.start();
+    assertTrue(writing.await(5, TimeUnit.SECONDS));
+
+    // Act
+    coalescer.submit(command(2, "FAN", 20));
+    coalescer.submit(command(3, "FAN", 30, "LIGHT", 1));
+    coalescer.submit(command(4, "fan", 40));
+    release.countDown();
+    writer.join(5000);
+
+    // Assert
+    List<SmartFarmingProtocol> packets = List.copyOf(sent);
+    SmartFarmingProtocol ack = packets.stream()
+        .filter(p -> p.getHeader().getMessageType() == MessageTypes.COMMAND_ACK)
+        .findFirst().orElse(null);
+    assertNotNull(ack, "The replaced command should be acknowledged as coalesced");
+    assertEquals(CP, ack.getHeader().getTargetId());
+    assertEquals(NODE, ack.getHeader().getSourceId());
+    assertEquals(new CommandAckBody(2, CommandAckBody.STATUS_COALESCED, "COALESCED"),
+        ack.getBody());
+
+    List<CommandBody> commands = packets.stream()
+        .filter(p -> p.getHeader().getMessageType() == MessageTypes.COMMAND)
+        .map(p -> (CommandBody) p.getBody())
+        .toList();
+    assertEquals(List.of(
+        new CommandBody(1, List.of(new CommandBody.CommandPart("FAN", 10))),
+        new CommandBody(3, List.of(new CommandBody.CommandPart("LIGHT", 1))),
+        new CommandBody(4, List.of(new CommandBody.CommandPart("fan", 40)))), commands);
+    assertEquals(1, coalescer.coalesced());
+  }
+
+  // --------------------------- NEGATIVE TESTS ---------------------------------- //
+
+  /**
+   * Verifies that commands are passed through unchanged when nothing is queued.
+   */
+  @Test
+  void submit_idleQueue_passesThrough_negative() {
+    // Arrange
+    BlockingQueue<SmartFarmingProtocol> sent = new LinkedBlockingQueue<>();
+    CommandCoalescer coalescer = new CommandCoalescer((id, packet) -> sent.add(packet), null);
+
+    // Act
+    coalescer.submit(command(1, "FAN", 10));
+    coalescer.submit(command(2, "FAN", 20));
+
+    // Assert
+    assertEquals(2, sent.size());
+    assertEquals(0, coalescer.coalesced());
+  }
+
+  private static SmartFarmingProtocol command(int requestId, Object... parts) {
+    List<CommandBody.CommandPart> list = new ArrayList<>();
+    for (int i = 0; i < parts.length; i += 2) {
+      list.add(new CommandBody.CommandPart((String) parts[i],
+          ((Number) parts[i + 1]).doubleValue()));
+    }
+    return new SmartFarmingProtocol(new Header(new byte[]{'S', 'F', 'P'}, (byte) 1,
+        MessageTypes.COMMAND, CP, NODE, 0, UUID.randomUUID()), new CommandBody(requestId, list));
+  }
+}
@@ -0,0 +1,129 @@
+package ntnu.idata2302.sfp.server.command;
+
+import ntnu.idata2302.sfp.library.SmartFarmingProtocol;
+import ntnu.idata2302.sfp.library.body.error.ErrorBody;
+import ntnu.idata2302.sfp.library.header.MessageTypes;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class for {@link CommandTracker}.
+ *
+ * <b>Positive Tests:</b>
+ * <ul>
+ *   <li>An acknowledged command records a round trip and does not time out.</li>
+ *   <li>An unacknowledged command times out with an ERROR to its issuer.</li>
+ *   <li>A full tracker expires its oldest command to make room.</li>
+ * </ul>
+ *
+ * <b>Negative Tests:</b>
+ * <ul>
+ *   <li>An acknowledgement that matches no command in flight is not counted.</li>
+ * </ul>
+ */
+public class CommandTrackerTest {
+
+  private static final int CP = 0x20000;
+  private static final int NODE = 0x10000;
+
+  // --------------------------- POSITIVE TESTS ---------------------------------- //
+
+  /**
+   * Verifies that acknowledging a command records its latency for the node.
+   */
+  @Test
+  void complete_recordsLatency_positive() throws InterruptedException {
+    // Arrange
+    BlockingQueue<SmartFarmingProtocol> sent = new LinkedBlockingQueue<>();
+    CommandTracker tracker = new CommandTracker((id, packet) -> sent.add(packet), 100, 16);
+    tracker.track(CP, NODE, 1);
+
+    // Act
+    boolean matched = tracker.complete(CP, NODE, 1);
+
+    // Assert
+    assertTrue(matched);
+    assertEquals(0, tracker.inFlight());
+    assertEquals(1, tracker.latency(NODE).count());
+    assertNull(sent.poll(300, TimeUnit.MILLISECONDS), "An answered command must not time out");
+  }
+
+  /**
+   * Verifies that a command without acknowledgement is answered with a
+   * COMMAND_TIMEOUT error attributed to the target.
+   */
+  @Test
+  void tick_unansweredCommand_sendsTimeoutError_positive() throws InterruptedException {
+    // Arrange
+    BlockingQueue<SmartFarmingProtocol> sent = new LinkedBlockingQueue<>();
+    CommandTracker tracker = new CommandTracker((id, packet) -> sent.add(packet), 100, 16);
+
+    // Act
+    tracker.track(CP, NODE, 7);
+    SmartFarmingProtocol error = sent.poll(5, TimeUnit.SECONDS);
+
+    // Assert
+    assertNotNull(error, "Expected a timeout error");
+    assertEquals(MessageTypes.ERROR, error.getHeader().getMessageType());
+    assertEquals(NODE, error.getHeader().getSourceId());
+    assertEquals(CP, error.getHeader().getTargetId());
+    assertEquals(CommandTracker.ERROR_COMMAND_TIMEOUT, ((ErrorBody) error.getBody()).errorCode());
+    assertEquals(0, tracker.inFlight());
+    assertEquals(1, tracker.timeouts());
+    assertFalse(tracker.complete(CP, NODE, 7), "A late ack matches nothing");
+  }
+
+  /**
+   * Verifies that tracking beyond the capacity expires the oldest command.
+   */
+  @Test
+  void track_full_evictsOldest_positive() {
+    // Arrange
+    BlockingQueue<SmartFarmingProtocol> sent = new LinkedBlockingQueue<>();
+    CommandTracker tracker = new CommandTracker((id, packet) -> sent.add(packet), 60_000, 2);
+    tracker.track(CP, NODE, 1);
+    tracker.track(CP, NODE, 2);
+
+    // Act
+    tracker.track(CP, NODE, 3);
+
+    // Assert
+    assertEquals(2, tracker.inFlight());
+    assertEquals(1, tracker.evictions());
+    assertEquals(1, sent.size());
+    assertTrue(((ErrorBody) sent.peek().getBody()).errorText().contains("request 1 "));
+    assertFalse(tracker.complete(CP, NODE, 1));
+    assertTrue(tracker.complete(CP, NODE, 3));
+  }
+
+  // --------------------------- NEGATIVE TESTS ---------------------------------- //
+
+  /**
+   * Verifies that an acknowledgement from another node or issuer is not matched.
+   */
+  @Test
+  void complete_unknownKey_negative() {
+    // Arrange
+    CommandTracker tracker = new CommandTracker((id, packet) -> { }, 60_000, 16);
+    tracker.track(CP, NODE, 1);
+
+    // Act
+    boolean otherNode = tracker.complete(CP, NODE + 1, 1);
+    boolean otherIssuer = tracker.complete(CP + 1, NODE, 1);
+
+    // Assert
+    assertFalse(otherNode);
+    assertFalse(otherIssuer);
+    assertEquals(1, tracker.inFlight());
+    assertNull(tracker.latency(NODE));
+  }
+}
@@ -0,0 +1,89 @@
+package ntnu.idata2302.sfp.server.command;
+
+import ntnu.idata2302.sfp.library.body.command.CommandAckBody;
+import ntnu.idata2302.sfp.library.body.command.GroupCommandResultBody;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class for {@link GroupCommands}.
+ *
+ * <b>Positive Tests:</b>
+ * <ul>
+ *   <li>Targets that do not acknowledge in time are reported as timed out.</li>
+ * </ul>
+ *
+ * <b>Negative Tests:</b>
+ * <ul>
+ *   <li>Acknowledgements from non-targets, repeated acknowledgements and
+ *       acknowledgements of unknown commands are ignored.</li>
+ * </ul>
+ */
+public class GroupCommandsTest {
+
+  // --------------------------- POSITIVE TESTS ---------------------------------- //
+
+  /**
+   * Verifies that the timeout completes a group command with the missing
+   * acknowledgements marked as timed out, and sends exactly one result.
+   */
+  @Test
+  void timeout_reportsMissingAcks_positive() throws InterruptedException {
+    // Arrange
+    BlockingQueue<GroupCommandResultBody> sent = new ArrayBlockingQueue<>(4);
+    GroupCommands commands = new GroupCommands((cpId, result) -> sent.add(result));
+    commands.start(9, 1, 100, List.of(2, 1), 50);
+
+    // Act
+    commands.acknowledge(1, new CommandAckBody(100, 1, "OK"));
+    GroupCommandResultBody result = sent.poll(5, TimeUnit.SECONDS);
+
+    // Assert
+    assertNotNull(result, "The timeout should complete the group command");
+    assertEquals(0, result.status());
+    assertEquals(List.of(
+        new GroupCommandResultBody.NodeResult(1, 1, "OK"),
+        new GroupCommandResultBody.NodeResult(2, GroupCommandResultBody.STATUS_TIMEOUT, null)),
+        result.results());
+    assertEquals(0, commands.size());
+    assertFalse(commands.acknowledge(2, new CommandAckBody(100, 1, "late")));
+    assertNull(sent.poll(100, TimeUnit.MILLISECONDS));
+  }
+
+  // --------------------------- NEGATIVE TESTS ---------------------------------- //
+
+  /**
+   * Verifies that only the first acknowledgement of each target counts.
+   */
+  @Test
+  void acknowledge_unknownOrRepeated_ignored_negative() {
+    // Arrange
+    BlockingQueue<GroupCommandResultBody> sent = new ArrayBlockingQueue<>(4);
+    GroupCommands commands = new GroupCommands((cpId, result) -> sent.add(result));
+    commands.start(9, 1, 100, List.of(1, 2), 10_000);
+
+    // Act
+    boolean first = commands.acknowledge(1, new CommandAckBody(100, 1, "OK"));
+    boolean repeated = commands.acknowledge(1, new CommandAckBody(100, 1, "OK"));
+    boolean notTarget = commands.acknowledge(3, new CommandAckBody(100, 1, "OK"));
+    boolean unknown = commands.acknowledge(2, new CommandAckBody(101, 1, "OK"));
+
+    // Assert
+    assertTrue(first);
+    assertFalse(repeated);
+    assertFalse(notTarget);
+    assertFalse(unknown);
+    assertTrue(sent.isEmpty());
+    assertEquals(1, commands.size());
+  }
+}
@@ -0,0 +1,60 @@
+package ntnu.idata2302.sfp.server.command;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class for {@link LatencyHistogram}.
+ *
+ * <b>Positive Tests:</b>
+ * <ul>
+ *   <li>Percentiles fall within the bucket precision of the recorded values.</li>
+ * </ul>
+ *
+ * <b>Negative Tests:</b>
+ * <ul>
+ *   <li>An empty histogram reports zero.</li>
+ * </ul>
+ */
+public class LatencyHistogramTest {
+
+  // --------------------------- POSITIVE TESTS ---------------------------------- //
+
+  /**
+   * Verifies percentiles, mean and maximum of 1..1000 ms.
+   */
+  @Test
+  void percentileMillis_uniformValues_positive() {
+    // Arrange
+    LatencyHistogram histogram = new LatencyHistogram();
+
+    // Act
+    for (int millis = 1; millis <= 1000; millis++) {
+      histogram.record(millis * 1_000_000L);
+    }
+
+    // Assert
+    assertEquals(1000, histogram.count());
+    assertEquals(500.5, histogram.meanMillis(), 1e-9);
+    assertEquals(1000.0, histogram.maxMillis(), 1e-9);
+    double p50 = histogram.percentileMillis(50);
+    double p99 = histogram.percentileMillis(99);
+    assertTrue(p50 >= 500 && p50 <= 500 * 1.25, "p50 was " + p50);
+    assertTrue(p99 >= 990 && p99 <= 1000, "p99 was " + p99);
+  }
+
+  // --------------------------- NEGATIVE TESTS ---------------------------------- //
+
+  /**
+   * Verifies that a histogram without values reports zero.
+   */
+  @Test
+  void percentileMillis_empty_negative() {
+    LatencyHistogram histogram = new LatencyHistogram();
+
+    assertEquals(0, histogram.percentileMillis(99));
+    assertEquals(0, histogram.meanMillis());
+  }
+}
@@ -0,0 +1,122 @@
+package ntnu.idata2302.sfp.server.group;
+
+import ntnu.idata2302.sfp.server.entity.Subscription;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class for {@link GroupRegistry}.
+ *
+ * <b>Positive Tests:</b>
+ * <ul>
+ *   <li>Joining and leaving keeps both membership indexes in step.</li>
+ *   <li>Subscribing twice to a group replaces the earlier template.</li>
+ *   <li>Removing a node drops it as member and as subscriber.</li>
+ * </ul>
+ *
+ * <b>Negative Tests:</b>
+ * <ul>
+ *   <li>Joining a group twice or leaving a group never joined changes nothing.</li>
+ *   <li>Unsubscribing a panel that is not subscribed returns null.</li>
+ * </ul>
+ */
+public class GroupRegistryTest {
+
+  // --------------------------- POSITIVE TESTS ---------------------------------- //
+
+  /**
+   * Verifies that join and leave update the group and node indexes together.
+   */
+  @Test
+  void joinAndLeave_updateBothIndexes_positive() {
+    // Arrange
+    GroupRegistry registry = new GroupRegistry();
+
+    // Act
+    registry.join(5, List.of("*", "greenhouse-1"));
+    registry.join(6, List.of("*"));
+    registry.leave(5, List.of("greenhouse-1"));
+
+    // Assert
+    assertEquals(List.of("*"), registry.groupsOf(5));
+    assertEquals(Set.of(5, 6), registry.members("*"));
+    assertTrue(registry.members("greenhouse-1").isEmpty());
+  }
+
+  /**
+   * Verifies that a second subscription of the same panel replaces the first.
+   */
+  @Test
+  void subscribe_samePanelTwice_replacesTemplate_positive() {
+    // Arrange
+    GroupRegistry registry = new GroupRegistry();
+    Subscription first = new Subscription(10, 0);
+    Subscription second = new Subscription(10, 0);
+
+    // Act
+    registry.subscribe("zone-a", first);
+    registry.subscribe("zone-a", second);
+
+    // Assert
+    assertEquals(1, registry.subscribersOf("zone-a").size());
+    assertSame(second, registry.subscription("zone-a", 10));
+  }
+
+  /**
+   * Verifies that removeNode forgets both memberships and subscriptions of a node.
+   */
+  @Test
+  void removeNode_dropsMembershipsAndSubscriptions_positive() {
+    // Arrange
+    GroupRegistry registry = new GroupRegistry();
+    registry.join(5, List.of("zone-a"));
+    registry.subscribe("zone-a", new Subscription(10, 0));
+
+    // Act
+    registry.removeNode(5);
+    registry.removeNode(10);
+
+    // Assert
+    assertTrue(registry.groupsOf(5).isEmpty());
+    assertTrue(registry.members("zone-a").isEmpty());
+    assertTrue(registry.subscribersOf("zone-a").isEmpty());
+  }
+
+  // --------------------------- NEGATIVE TESTS ---------------------------------- //
+
+  /**
+   * Verifies that only actual membership changes are reported.
+   */
+  @Test
+  void joinAndLeave_withoutChange_returnEmpty_negative() {
+    // Arrange
+    GroupRegistry registry = new GroupRegistry();
+    registry.join(5, List.of("zone-a"));
+
+    // Act
+    List<String> joinedAgain = registry.join(5, List.of("zone-a"));
+    List<String> leftUnknown = registry.leave(5, List.of("zone-b"));
+
+    // Assert
+    assertTrue(joinedAgain.isEmpty());
+    assertTrue(leftUnknown.isEmpty());
+    assertEquals(Set.of(5), registry.members("zone-a"));
+  }
+
+  /**
+   * Verifies that unsubscribing a panel without a subscription returns null.
+   */
+  @Test
+  void unsubscribe_notSubscribed_returnsNull_negative() {
+    GroupRegistry registry = new GroupRegistry();
+
+    assertNull(registry.unsubscribe("zone-a", 10));
+  }
+}
@@ -0,0 +1,154 @@
+package ntnu.idata2302.sfp.server.history;
+
+import ntnu.idata2302.sfp.library.body.data.DataReportBody;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class for {@link HistoryStore}.
+ *
+ * <b>Positive Tests:</b>
+ * <ul>
+ *   <li>Samples are returned oldest first and filtered by time range and sensor.</li>
+ *   <li>A full ring buffer keeps only the newest samples.</li>
+ *   <li>Samples older than the maximum age are dropped.</li>
+ *   <li>Long series are downsampled to maxPoints.</li>
+ * </ul>
+ *
+ * <b>Negative Tests:</b>
+ * <ul>
+ *   <li>Unknown and removed nodes return an empty result.</li>
+ *   <li>Sensors beyond the node budget are not recorded.</li>
+ * </ul>
+ */
+public class HistoryStoreTest {
+
+  private static final int NODE = 0x10000;
+
+  // --------------------------- POSITIVE TESTS ---------------------------------- //
+
+  /**
+   * Verifies range and sensor filtering.
+   */
+  @Test
+  void query_filtersByRangeAndSensor_positive() {
+    // Arrange
+    HistoryStore store = new HistoryStore();
+    for (int t = 1; t <= 5; t++) {
+      store.record(NODE, report(reading("temp", t), reading("hum", 10 * t)), t * 1000L);
+    }
+
+    // Act
+    Map<String, Samples> result = store.query(NODE, List.of("temp"), 2000L, 4000L, null);
+
+    // Assert
+    assertEquals(List.of("temp"), List.copyOf(result.keySet()));
+    assertArrayEquals(new long[]{2000, 3000, 4000}, result.get("temp").timestamps());
+    assertArrayEquals(new double[]{2, 3, 4}, result.get("temp").values());
+  }
+
+  /**
+   * Verifies that the ring buffer overwrites the oldest samples once full.
+   */
+  @Test
+  void record_beyondCapacity_keepsNewestSamples_positive() {
+    // Arrange: 16 samples of 16 bytes for a single sensor
+    HistoryStore store = new HistoryStore(256, Long.MAX_VALUE);
+
+    // Act
+    for (int t = 0; t < 40; t++) {
+      store.record(NODE, report(reading("temp", t)), t);
+    }
+    Samples samples = store.query(NODE, null, null, null, null).get("temp");
+
+    // Assert
+    assertEquals(16, samples.size());
+    assertEquals(24, samples.timestamps()[0]);
+    assertEquals(39, samples.timestamps()[15]);
+  }
+
+  /**
+   * Verifies that samples older than the maximum age are evicted.
+   */
+  @Test
+  void record_oldSamples_areEvicted_positive() {
+    // Arrange
+    HistoryStore store = new HistoryStore(HistoryStore.DEFAULT_NODE_BUDGET_BYTES, 1000);
+
+    // Act
+    store.record(NODE, report(reading("temp", 1)), 0);
+    store.record(NODE, report(reading("temp", 2)), 500);
+    store.record(NODE, report(reading("temp", 3)), 1600);
+
+    // Assert
+    assertArrayEquals(new long[]{1600},
+        store.query(NODE, null, null, null, null).get("temp").timestamps());
+  }
+
+  /**
+   * Verifies bucket-mean downsampling.
+   */
+  @Test
+  void query_withMaxPoints_downsamples_positive() {
+    // Arrange
+    HistoryStore store = new HistoryStore();
+    for (int t = 0; t < 100; t++) {
+      store.record(NODE, report(reading("temp", t)), t);
+    }
+
+    // Act
+    Samples samples = store.query(NODE, null, null, null, 10).get("temp");
+
+    // Assert
+    assertEquals(10, samples.size());
+    assertEquals(0, samples.timestamps()[0]);
+    assertEquals(4.5, samples.values()[0], 1e-9);
+    assertEquals(94.5, samples.values()[9], 1e-9);
+  }
+
+  // --------------------------- NEGATIVE TESTS ---------------------------------- //
+
+  /**
+   * Verifies that nodes without history return nothing.
+   */
+  @Test
+  void query_unknownOrRemovedNode_isEmpty_negative() {
+    HistoryStore store = new HistoryStore();
+    store.record(NODE, report(reading("temp", 1)), 1);
+    store.remove(NODE);
+
+    assertTrue(store.query(NODE, null, null, null, null).isEmpty());
+    assertTrue(store.query(NODE + 1, null, null, null, null).isEmpty());
+  }
+
+  /**
+   * Verifies that a node cannot exceed its budget by reporting new sensors.
+   */
+  @Test
+  void record_newSensorsBeyondBudget_areIgnored_negative() {
+    // Arrange: the budget holds exactly one series of 16 samples
+    HistoryStore store = new HistoryStore(256, Long.MAX_VALUE);
+    store.record(NODE, report(reading("temp", 1)), 1);
+
+    // Act
+    store.record(NODE, report(reading("hum", 2)), 2);
+
+    // Assert
+    assertEquals(List.of("temp"),
+        List.copyOf(store.query(NODE, null, null, null, null).keySet()));
+  }
+
+  private static DataReportBody report(DataReportBody.SensorReading... readings) {
+    return new DataReportBody(List.of(readings), null, null);
+  }
+
+  private static DataReportBody.SensorReading reading(String id, double value) {
+    return new DataReportBody.SensorReading(id, value, null, null, null, null);
+  }
+}
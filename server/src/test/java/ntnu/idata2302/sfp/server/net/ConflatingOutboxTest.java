@@ -0,0 +1,139 @@
+package ntnu.idata2302.sfp.server.net;
+
+import ntnu.idata2302.sfp.library.SmartFarmingProtocol;
+import ntnu.idata2302.sfp.library.body.data.DataReportBody;
+import ntnu.idata2302.sfp.library.header.MessageTypes;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit tests for {@link ConflatingOutbox}.
+ *
+ * <b>Positive Tests:</b>
+ * <ul>
+ *   <li>The first report passes; a burst within the interval is delivered once, merged.</li>
+ *   <li>A panel whose write blocks does not hold back another panel's delivery.</li>
+ * </ul>
+ *
+ * <b>Negative Tests:</b>
+ * <ul>
+ *   <li>A pending report of a removed subscription is never delivered.</li>
+ * </ul>
+ */
+public class ConflatingOutboxTest {
+
+  private static final int CP_ID = 2;
+  private static final int SN_ID = 0x10000;
+
+  // --------------------------- POSITIVE TESTS ---------------------------------- //
+
+  /**
+   * Verifies that a burst collapses into one pending report holding the newest values.
+   */
+  @Test
+  public void offer_burstWithinInterval_deliversOneMergedReport_positive() throws Exception {
+    // Arrange
+    BlockingQueue<SmartFarmingProtocol> sent = new LinkedBlockingQueue<>();
+    ConflatingOutbox outbox = new ConflatingOutbox((nodeId, packet) -> sent.add(packet));
+
+    // Act
+    boolean first = outbox.offer(CP_ID, SN_ID, report("temp", 1.0), 200);
+    boolean second = outbox.offer(CP_ID, SN_ID, report("temp", 2.0), 200);
+    boolean third = outbox.offer(CP_ID, SN_ID, report("hum", 50.0), 200);
+    boolean fourth = outbox.offer(CP_ID, SN_ID, report("temp", 3.0), 200);
+    int pending = outbox.pendingCount();
+    SmartFarmingProtocol delivered = sent.poll(5, TimeUnit.SECONDS);
+
+    // Assert
+    Assertions.assertTrue(first);
+    Assertions.assertFalse(second || third || fourth);
+    Assertions.assertEquals(1, pending);
+    Assertions.assertNotNull(delivered);
+    Assertions.assertEquals(MessageTypes.DATA_REPORT, delivered.getHeader().getMessageType());
+    Assertions.assertEquals(SN_ID, delivered.getHeader().getSourceId());
+    Assertions.assertEquals(CP_ID, delivered.getHeader().getTargetId());
+    DataReportBody body = (DataReportBody) delivered.getBody();
+    Assertions.assertEquals(List.of("temp", "hum"),
+        body.sensors().stream().map(DataReportBody.SensorReading::id).toList());
+    Assertions.assertEquals(3.0, body.sensors().get(0).value());
+    Assertions.assertNull(sent.poll(400, TimeUnit.MILLISECONDS));
+    Assertions.assertEquals(0, outbox.pendingCount());
+  }
+
+  /**
+   * Verifies that a delayed delivery to one panel goes out while the write to
+   * another panel is stuck.
+   */
+  @Test
+  public void offer_otherPanelWriteBlocked_stillDelivers_positive() throws Exception {
+    // Arrange
+    int slowCpId = 3;
+    CountDownLatch slowBlocked = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    BlockingQueue<SmartFarmingProtocol> sent = new LinkedBlockingQueue<>();
+    ConflatingOutbox outbox = new ConflatingOutbox((nodeId, packet) -> {
+      if (nodeId == slowCpId) {
+        slowBlocked.countDown();
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      sent.add(packet);
+    });
+    outbox.offer(slowCpId, SN_ID, report("temp", 1.0), 50);
+    outbox.offer(CP_ID, SN_ID, report("temp", 1.0), 300);
+
+    try {
+      // Act
+      outbox.offer(slowCpId, SN_ID, report("temp", 2.0), 50);
+      Assertions.assertTrue(slowBlocked.await(5, TimeUnit.SECONDS));
+      outbox.offer(CP_ID, SN_ID, report("temp", 2.0), 300);
+      SmartFarmingProtocol delivered = sent.poll(5, TimeUnit.SECONDS);
+
+      // Assert
+      Assertions.assertNotNull(delivered);
+      Assertions.assertEquals(CP_ID, delivered.getHeader().getTargetId());
+    } finally {
+      release.countDown();
+    }
+  }
+
+  // --------------------------- NEGATIVE TESTS ---------------------------------- //
+
+  /**
+   * Verifies that ending a subscription discards what was waiting for it.
+   */
+  @Test
+  public void removeAll_withPendingReport_discardsIt_negative() throws Exception {
+    // Arrange
+    BlockingQueue<SmartFarmingProtocol> sent = new LinkedBlockingQueue<>();
+    ConflatingOutbox outbox = new ConflatingOutbox((nodeId, packet) -> sent.add(packet));
+    outbox.offer(CP_ID, SN_ID, report("temp", 1.0), 100);
+    outbox.offer(CP_ID, SN_ID, report("temp", 2.0), 100);
+
+    // Act
+    outbox.removeAll(CP_ID);
+
+    // Assert
+    Assertions.assertNull(sent.poll(300, TimeUnit.MILLISECONDS));
+    Assertions.assertEquals(0, outbox.pendingCount());
+  }
+
+  // =========================================================================== //
+  // Helpers
+  // =========================================================================== //
+
+  private static DataReportBody report(String sensorId, double value) {
+    return new DataReportBody(
+        List.of(new DataReportBody.SensorReading(sensorId, value, null, null, null, null)),
+        null, null);
+  }
+}
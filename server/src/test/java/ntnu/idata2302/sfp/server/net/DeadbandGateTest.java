@@ -0,0 +1,159 @@
+package ntnu.idata2302.sfp.server.net;
+
+import ntnu.idata2302.sfp.library.body.data.DataReportBody;
+import ntnu.idata2302.sfp.library.body.subscribe.SubscribeBody;
+import ntnu.idata2302.sfp.server.entity.DeadbandPolicy;
+import ntnu.idata2302.sfp.server.entity.Subscription;
+import ntnu.idata2302.sfp.server.entity.SubscriptionFilter;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+/**
+ * Unit tests for {@link DeadbandGate}.
+ *
+ * <b>Positive Tests:</b>
+ * <ul>
+ *   <li>Absolute and percent deadbands forward only readings that left the band.</li>
+ *   <li>The full report passes after the maximum silence.</li>
+ *   <li>Equal policies share one group.</li>
+ *   <li>Groups no remaining subscription uses are dropped.</li>
+ * </ul>
+ *
+ * <b>Negative Tests:</b>
+ * <ul>
+ *   <li>A report with only small changes and unchanged actuators is dropped.</li>
+ * </ul>
+ */
+public class DeadbandGateTest {
+
+  private static final int SN_ID = 0x10000;
+
+  // --------------------------- POSITIVE TESTS ---------------------------------- //
+
+  /**
+   * Verifies per-sensor absolute and fallback percent thresholds against the
+   * last delivered value, not the last reported one.
+   */
+  @Test
+  public void apply_deadbands_forwardOnlyCrossingReadings_positive() {
+    // Arrange
+    DeadbandGate gate = new DeadbandGate();
+    DeadbandPolicy policy = DeadbandPolicy.of(List.of(
+        new SubscribeBody.Deadband("co2", 20.0, null),
+        new SubscribeBody.Deadband(null, null, 5.0)), null);
+
+    // Act
+    DataReportBody first = gate.apply(SN_ID, SubscriptionFilter.ALL, policy,
+        report(400, 20.0), 0);
+    DataReportBody creep = gate.apply(SN_ID, SubscriptionFilter.ALL, policy,
+        report(415, 20.5), 1);
+    DataReportBody crossed = gate.apply(SN_ID, SubscriptionFilter.ALL, policy,
+        report(425, 21.5), 2);
+
+    // Assert
+    Assertions.assertEquals(2, first.sensors().size());
+    Assertions.assertNull(creep);
+    Assertions.assertEquals(2, crossed.sensors().size(), "425 is 25 from the delivered 400");
+    Assertions.assertEquals(425.0, crossed.sensors().get(0).value());
+  }
+
+  /**
+   * Verifies that the heartbeat forwards everything once the silence expired.
+   */
+  @Test
+  public void apply_afterMaxSilence_forwardsFullReport_positive() {
+    // Arrange
+    DeadbandGate gate = new DeadbandGate();
+    DeadbandPolicy policy = DeadbandPolicy.of(
+        List.of(new SubscribeBody.Deadband(null, 100.0, null)), 1000);
+    gate.apply(SN_ID, SubscriptionFilter.ALL, policy, report(400, 20.0), 0);
+
+    // Act
+    DataReportBody quiet = gate.apply(SN_ID, SubscriptionFilter.ALL, policy,
+        report(401, 20.0), 999);
+    DataReportBody heartbeat = gate.apply(SN_ID, SubscriptionFilter.ALL, policy,
+        report(401, 20.0), 1000);
+
+    // Assert
+    Assertions.assertNull(quiet);
+    Assertions.assertNotNull(heartbeat);
+    Assertions.assertEquals(2, heartbeat.sensors().size());
+  }
+
+  /**
+   * Verifies that subscriptions with equal settings are evaluated as one group.
+   */
+  @Test
+  public void apply_equalPolicies_shareOneGroup_positive() {
+    // Arrange
+    DeadbandGate gate = new DeadbandGate();
+    DeadbandPolicy a = DeadbandPolicy.of(List.of(new SubscribeBody.Deadband("co2", 5.0, null)), 0);
+    DeadbandPolicy b = DeadbandPolicy.of(List.of(new SubscribeBody.Deadband("co2", 5.0, null)), 0);
+
+    // Act
+    gate.apply(SN_ID, SubscriptionFilter.ALL, a, report(400, 20.0), 0);
+    gate.apply(SN_ID, SubscriptionFilter.ALL, b, report(400, 20.0), 0);
+
+    // Assert
+    Assertions.assertEquals(1, gate.size());
+  }
+
+  /**
+   * Verifies that retaining keeps the groups of live subscriptions only.
+   */
+  @Test
+  public void retain_endedRoute_dropsItsGroup_positive() {
+    // Arrange
+    DeadbandGate gate = new DeadbandGate();
+    DeadbandPolicy kept = DeadbandPolicy.of(List.of(new SubscribeBody.Deadband("co2", 5.0, null)), 0);
+    DeadbandPolicy ended = DeadbandPolicy.of(List.of(new SubscribeBody.Deadband("co2", 9.0, null)), 0);
+    gate.apply(SN_ID, SubscriptionFilter.ALL, kept, report(400, 20.0), 0);
+    gate.apply(SN_ID, SubscriptionFilter.ALL, ended, report(400, 20.0), 0);
+
+    // Act
+    gate.retain(SN_ID, List.of(new Subscription(2, SN_ID, SubscriptionFilter.ALL, 0, kept)));
+    int afterOne = gate.size();
+    gate.retain(SN_ID, List.of());
+
+    // Assert
+    Assertions.assertEquals(1, afterOne);
+    Assertions.assertEquals(0, gate.size());
+    Assertions.assertTrue(gate.nodeIds().isEmpty());
+  }
+
+  // --------------------------- NEGATIVE TESTS ---------------------------------- //
+
+  /**
+   * Verifies that an unchanged actuator does not carry a report past the deadbands.
+   */
+  @Test
+  public void apply_smallChangesOnly_dropsReport_negative() {
+    // Arrange
+    DeadbandGate gate = new DeadbandGate();
+    DeadbandPolicy policy = DeadbandPolicy.of(
+        List.of(new SubscribeBody.Deadband(null, 10.0, null)), null);
+    DataReportBody.ActuatorState fan = new DataReportBody.ActuatorState(
+        "fan", 1.0, null, null, null, null);
+    gate.apply(SN_ID, SubscriptionFilter.ALL, policy,
+        new DataReportBody(report(400, 20.0).sensors(), List.of(fan), null), 0);
+
+    // Act
+    DataReportBody result = gate.apply(SN_ID, SubscriptionFilter.ALL, policy,
+        new DataReportBody(report(405, 21.0).sensors(), List.of(fan), null), 1);
+
+    // Assert
+    Assertions.assertNull(result);
+  }
+
+  // =========================================================================== //
+  // Helpers
+  // =========================================================================== //
+
+  private static DataReportBody report(double co2, double temp) {
+    return new DataReportBody(List.of(
+        new DataReportBody.SensorReading("co2", co2, null, null, "ppm", null),
+        new DataReportBody.SensorReading("temp", temp, null, null, "C", null)), null, null);
+  }
+}
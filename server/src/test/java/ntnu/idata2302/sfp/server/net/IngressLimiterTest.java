@@ -0,0 +1,198 @@
+package ntnu.idata2302.sfp.server.net;
+
+import ntnu.idata2302.sfp.library.header.Header;
+import ntnu.idata2302.sfp.library.header.MessageTypes;
+import ntnu.idata2302.sfp.library.node.NodeDescriptor;
+import ntnu.idata2302.sfp.server.net.IngressLimiter.NodeKind;
+import org.junit.jupiter.api.Test;
+
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class for {@link IngressLimiter}.
+ *
+ * <b>Positive Tests:</b>
+ * <ul>
+ *   <li>A flooding sensor node is throttled, warned once per second and then disconnected.</li>
+ *   <li>The byte limit applies to header and payload.</li>
+ *   <li>Frames are classified by the kind their source registered as on the connection.</li>
+ * </ul>
+ *
+ * <b>Negative Tests:</b>
+ * <ul>
+ *   <li>Unlimited kinds of nodes are never throttled.</li>
+ *   <li>A source id not registered on the connection falls into the finite OTHER class.</li>
+ *   <li>A frame refused by the byte limit does not use up the frame limit.</li>
+ * </ul>
+ */
+public class IngressLimiterTest {
+
+  private static final long MS = 1_000_000L;
+  private static final int SENSOR = 0x10000;
+  private static final int PANEL = 0x20;
+
+  // --------------------------- POSITIVE TESTS ---------------------------------- //
+
+  /**
+   * Verifies the escalation from throttling to disconnect for a node that keeps flooding.
+   */
+  @Test
+  void check_floodingSensorNode_throttledThenDisconnected_positive() {
+    // Arrange
+    IngressLimiter limiter = new IngressLimiter(new IngressLimiter.Policy(
+        new IngressLimiter.Limits(10, 0), IngressLimiter.Limits.UNLIMITED,
+        IngressLimiter.Limits.UNLIMITED));
+    Header report = header(SENSOR, 100);
+
+    // Act: 100 frames per second for five seconds
+    List<IngressLimiter.Verdict> verdicts = new ArrayList<>();
+    for (int i = 0; i < 500; i++) {
+      IngressLimiter.Verdict verdict = limiter.check(report, NodeKind.SENSOR_NODE, i * 10 * MS);
+      verdicts.add(verdict);
+      if (verdict == IngressLimiter.Verdict.DISCONNECT) {
+        break;
+      }
+    }
+
+    // Assert
+    assertEquals(IngressLimiter.Verdict.DISCONNECT, verdicts.get(verdicts.size() - 1));
+    assertEquals(3, verdicts.stream().filter(v -> v == IngressLimiter.Verdict.THROTTLE).count());
+    assertTrue(verdicts.subList(0, 10).stream().allMatch(v -> v == IngressLimiter.Verdict.ACCEPT),
+        "The first burst is admitted");
+    long accepted = verdicts.stream().filter(v -> v == IngressLimiter.Verdict.ACCEPT).count();
+    assertTrue(accepted <= 10 + 10 * 4, "Admitted " + accepted + " frames");
+  }
+
+  /**
+   * Verifies that large frames are throttled by bytes and that a quiet second
+   * clears the warnings.
+   */
+  @Test
+  void check_byteLimit_countsWholeFrame_positive() {
+    // Arrange
+    IngressLimiter limiter = new IngressLimiter(new IngressLimiter.Policy(
+        new IngressLimiter.Limits(0, 10_000), IngressLimiter.Limits.UNLIMITED,
+        IngressLimiter.Limits.UNLIMITED));
+    Header chunk = header(SENSOR, 5000 - Header.HEADER_SIZE);
+
+    // Act & Assert
+    assertEquals(IngressLimiter.Verdict.ACCEPT, limiter.check(chunk, NodeKind.SENSOR_NODE, 0));
+    assertEquals(IngressLimiter.Verdict.ACCEPT, limiter.check(chunk, NodeKind.SENSOR_NODE, 0));
+    assertEquals(IngressLimiter.Verdict.THROTTLE, limiter.check(chunk, NodeKind.SENSOR_NODE, 0));
+    assertEquals(IngressLimiter.Verdict.DROP, limiter.check(chunk, NodeKind.SENSOR_NODE, 100 * MS));
+    assertEquals(IngressLimiter.Verdict.ACCEPT, limiter.check(chunk, NodeKind.SENSOR_NODE, 3000 * MS));
+    assertEquals(IngressLimiter.Verdict.ACCEPT, limiter.check(chunk, NodeKind.SENSOR_NODE, 3000 * MS));
+    assertEquals(IngressLimiter.Verdict.THROTTLE, limiter.check(chunk, NodeKind.SENSOR_NODE, 3000 * MS),
+        "A quiet period starts a new round of warnings");
+    assertEquals(3, limiter.dropped());
+  }
+
+  /**
+   * Verifies that a frame's kind is the one its source registered as on the
+   * connection it arrived on.
+   */
+  @Test
+  void nodeKind_registeredOnConnection_usesRegisteredKind_positive() {
+    // Arrange
+    ServerContext context = new ServerContext();
+    Socket sensorSocket = new Socket();
+    Socket panelSocket = new Socket();
+    context.registerNode(SENSOR, new NodeDescriptor(SENSOR, 1, null, null, null, null),
+        sensorSocket);
+    context.registerNode(PANEL, new NodeDescriptor(PANEL, 0, null, null, null, null),
+        panelSocket);
+
+    // Act & Assert
+    assertEquals(NodeKind.SENSOR_NODE, NodeKind.of(context, SENSOR, sensorSocket));
+    assertEquals(NodeKind.CONTROL_PANEL, NodeKind.of(context, PANEL, panelSocket));
+  }
+
+  // --------------------------- NEGATIVE TESTS ---------------------------------- //
+
+  /**
+   * Verifies that control panels are not limited by the default policy.
+   */
+  @Test
+  void check_unlimitedControlPanel_neverThrottled_negative() {
+    // Arrange
+    IngressLimiter limiter = new IngressLimiter(new IngressLimiter.Policy(
+        IngressLimiter.Policy.DEFAULT_SENSOR_NODE, IngressLimiter.Limits.UNLIMITED,
+        IngressLimiter.Limits.UNLIMITED));
+    Header command = header(PANEL, 64);
+
+    // Act & Assert
+    for (int i = 0; i < 100_000; i++) {
+      assertEquals(IngressLimiter.Verdict.ACCEPT, limiter.check(command, NodeKind.CONTROL_PANEL, 0));
+    }
+    assertEquals(0, limiter.dropped());
+  }
+
+  /**
+   * Verifies that a sensor node cannot escape its limits by naming another
+   * node, or no node, as the source of its frames, and that such frames are
+   * limited by default.
+   */
+  @Test
+  void nodeKind_unregisteredSource_isLimitedOther_negative() {
+    // Arrange
+    ServerContext context = new ServerContext();
+    Socket sensorSocket = new Socket();
+    context.registerNode(SENSOR, new NodeDescriptor(SENSOR, 1, null, null, null, null),
+        sensorSocket);
+    context.registerNode(PANEL, new NodeDescriptor(PANEL, 0, null, null, null, null),
+        new Socket());
+    IngressLimiter limiter = new IngressLimiter(new IngressLimiter.Policy(
+        IngressLimiter.Policy.DEFAULT_SENSOR_NODE, IngressLimiter.Limits.UNLIMITED,
+        IngressLimiter.Policy.DEFAULT_OTHER));
+
+    // Act
+    NodeKind spoofed = NodeKind.of(context, PANEL, sensorSocket);
+    NodeKind anonymous = NodeKind.of(context, 0, sensorSocket);
+    long accepted = 0;
+    for (int i = 0; i < 1000; i++) {
+      if (limiter.check(header(0, 64), anonymous, 0) == IngressLimiter.Verdict.ACCEPT) {
+        accepted++;
+      }
+    }
+
+    // Assert
+    assertEquals(NodeKind.OTHER, spoofed);
+    assertEquals(NodeKind.OTHER, anonymous);
+    assertEquals(IngressLimiter.Policy.DEFAULT_OTHER.framesPerSecond(), accepted);
+  }
+
+  /**
+   * Verifies that frames dropped for their size leave the frame budget to
+   * small frames.
+   */
+  @Test
+  void check_byteLimitRefusal_keepsFrameToken_negative() {
+    // Arrange
+    IngressLimiter limiter = new IngressLimiter(new IngressLimiter.Policy(
+        new IngressLimiter.Limits(2, 1000), IngressLimiter.Limits.UNLIMITED,
+        IngressLimiter.Limits.UNLIMITED));
+    Header small = header(SENSOR, 10);
+    Header large = header(SENSOR, 900);
+    assertEquals(IngressLimiter.Verdict.ACCEPT, limiter.check(large, NodeKind.SENSOR_NODE, 0));
+
+    // Act
+    IngressLimiter.Verdict refused = limiter.check(large, NodeKind.SENSOR_NODE, 0);
+    IngressLimiter.Verdict admitted = limiter.check(small, NodeKind.SENSOR_NODE, 0);
+
+    // Assert
+    assertEquals(IngressLimiter.Verdict.THROTTLE, refused);
+    assertEquals(IngressLimiter.Verdict.ACCEPT, admitted,
+        "The refused large frame must not have taken the second frame token");
+  }
+
+  private static Header header(int sourceId, int payloadLength) {
+    return new Header(new byte[]{'S', 'F', 'P'}, (byte) 1, MessageTypes.DATA_REPORT,
+        sourceId, 1, payloadLength, UUID.randomUUID());
+  }
+}
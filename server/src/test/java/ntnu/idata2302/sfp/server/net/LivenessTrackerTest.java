@@ -0,0 +1,98 @@
+package ntnu.idata2302.sfp.server.net;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class for {@link LivenessTracker}.
+ *
+ * <b>Positive Tests:</b>
+ * <ul>
+ *   <li>A silent node expires once and is no longer watched.</li>
+ *   <li>A node that keeps sending stays alive past its first deadline.</li>
+ * </ul>
+ *
+ * <b>Negative Tests:</b>
+ * <ul>
+ *   <li>Removed and never-watched nodes do not expire.</li>
+ * </ul>
+ */
+public class LivenessTrackerTest {
+
+  private static final int NODE = 0x10000;
+
+  // --------------------------- POSITIVE TESTS ---------------------------------- //
+
+  /**
+   * Verifies that a node without further messages expires after its missed intervals.
+   */
+  @Test
+  void watch_silentNode_expires_positive() throws InterruptedException {
+    // Arrange
+    BlockingQueue<Integer> expired = new LinkedBlockingQueue<>();
+    LivenessTracker tracker = new LivenessTracker(expired::add);
+
+    // Act
+    tracker.watch(NODE, LivenessTracker.MIN_INTERVAL_MILLIS);
+    Integer nodeId = expired.poll(5, TimeUnit.SECONDS);
+
+    // Assert
+    assertEquals(NODE, nodeId);
+    assertFalse(tracker.isWatched(NODE));
+    assertEquals(1, tracker.expirations());
+    assertNull(expired.poll(500, TimeUnit.MILLISECONDS), "A node expires only once");
+  }
+
+  /**
+   * Verifies that messages from a node move its deadline ahead.
+   */
+  @Test
+  void touch_activeNode_staysAlive_positive() throws InterruptedException {
+    // Arrange
+    BlockingQueue<Integer> expired = new LinkedBlockingQueue<>();
+    LivenessTracker tracker = new LivenessTracker(expired::add);
+    tracker.watch(NODE, LivenessTracker.MIN_INTERVAL_MILLIS);
+
+    // Act
+    long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(1000);
+    while (System.nanoTime() < end) {
+      tracker.touch(NODE);
+      Thread.sleep(20);
+    }
+
+    // Assert
+    assertTrue(expired.isEmpty(), "A node that keeps sending must not expire");
+    assertTrue(tracker.isWatched(NODE));
+    assertEquals(NODE, expired.poll(5, TimeUnit.SECONDS));
+  }
+
+  // --------------------------- NEGATIVE TESTS ---------------------------------- //
+
+  /**
+   * Verifies that a removed node and a node that never sent a HEARTBEAT do not expire.
+   */
+  @Test
+  void remove_watchedNode_doesNotExpire_negative() throws InterruptedException {
+    // Arrange
+    BlockingQueue<Integer> expired = new LinkedBlockingQueue<>();
+    LivenessTracker tracker = new LivenessTracker(expired::add);
+    tracker.watch(NODE, LivenessTracker.MIN_INTERVAL_MILLIS);
+
+    // Act
+    tracker.remove(NODE);
+    tracker.touch(NODE + 1);
+
+    // Assert
+    assertNull(expired.poll(800, TimeUnit.MILLISECONDS));
+    assertFalse(tracker.isWatched(NODE));
+    assertFalse(tracker.isWatched(NODE + 1));
+  }
+}
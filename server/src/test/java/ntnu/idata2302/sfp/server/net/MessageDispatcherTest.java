@@ -3,6 +3,7 @@ package ntnu.idata2302.sfp.server.net;
 import ntnu.idata2302.sfp.library.SmartFarmingProtocol;
 import ntnu.idata2302.sfp.library.header.Header;
 import ntnu.idata2302.sfp.library.header.MessageTypes;
+import ntnu.idata2302.sfp.library.node.NodeDescriptor;
 import ntnu.idata2302.sfp.server.net.handlers.MessageHandler;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -143,6 +144,75 @@ public class MessageDispatcherTest {
     );
   }
 
+  /**
+   * Verifies that a retried packet with an already received Message ID is
+   * not handled again.
+   */
+  @Test
+  public void dispatch_duplicateMessageId_dropped_negative() {
+    // Arrange
+    MessageDispatcher dispatcher = new MessageDispatcher();
+    dispatcher.registerHandler(MessageTypes.COMMAND, new RecordingHandler());
+
+    Header header = new Header(
+      new byte[]{'S','F','P'},
+      (byte)1,
+      MessageTypes.COMMAND,
+      2,
+      0x10000,
+      0,
+      UUID.randomUUID()
+    );
+    SmartFarmingProtocol packet = new SmartFarmingProtocol(header, null);
+    ServerContext context = new ServerContext();
+    dispatcher.dispatch(packet, null, context);
+
+    RecordingHandler handler = new RecordingHandler();
+    dispatcher.registerHandler(MessageTypes.COMMAND, handler);
+
+    // Act
+    dispatcher.dispatch(packet, null, context);
+
+    // Assert
+    Assertions.assertFalse(handler.wasCalled(), "A duplicate should be dropped");
+    Assertions.assertEquals(1, context.getMessageIds().hits());
+  }
+
+  /**
+   * Verifies that frames naming a watched sensor node as their source, but
+   * arriving on another connection, do not keep that node alive.
+   */
+  @Test
+  public void dispatch_spoofedSource_doesNotTouchLiveness_negative() throws Exception {
+    // Arrange
+    MessageDispatcher dispatcher = new MessageDispatcher();
+    ServerContext context = new ServerContext();
+    Socket sensorSocket = new Socket();
+    Socket otherSocket = new Socket();
+    context.registerNode(5, new NodeDescriptor(5, 1, null, null, null, null), sensorSocket);
+    context.getLiveness().watch(5, LivenessTracker.MIN_INTERVAL_MILLIS);
+
+    // Act
+    long end = System.currentTimeMillis() + 5000;
+    while (!sensorSocket.isClosed() && System.currentTimeMillis() < end) {
+      Header header = new Header(
+        new byte[]{'S','F','P'},
+        (byte)1,
+        MessageTypes.DATA_REPORT,
+        5,
+        0,
+        0,
+        UUID.randomUUID()
+      );
+      dispatcher.dispatch(new SmartFarmingProtocol(header, null), otherSocket, context);
+      Thread.sleep(20);
+    }
+
+    // Assert
+    Assertions.assertTrue(sensorSocket.isClosed(), "The silent node should have expired");
+    Assertions.assertFalse(context.isSensorNode(5));
+  }
+
   // --------------------------- TEST DOUBLES ---------------------------------- //
 
   /**
@@ -1,10 +1,16 @@
 package ntnu.idata2302.sfp.server.net;
 
 import ntnu.idata2302.sfp.library.SmartFarmingProtocol;
+import ntnu.idata2302.sfp.library.body.capabilities.CapabilitiesDeltaBody;
+import ntnu.idata2302.sfp.library.body.data.DataReportBody;
+import ntnu.idata2302.sfp.library.body.subscribe.SubscribeBody;
 import ntnu.idata2302.sfp.library.header.Header;
 import ntnu.idata2302.sfp.library.header.MessageTypes;
 import ntnu.idata2302.sfp.library.node.NodeDescriptor;
+import ntnu.idata2302.sfp.server.entity.DeadbandPolicy;
 import ntnu.idata2302.sfp.server.entity.Subscription;
+import ntnu.idata2302.sfp.server.entity.SubscriptionFilter;
+import ntnu.idata2302.sfp.server.util.IdAllocator;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
@@ -12,7 +18,10 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 /**
@@ -94,6 +103,89 @@ public class ServerContextTest {
     Assertions.assertTrue(subscribers.contains(cp2));
   }
 
+  /**
+   * Verifies that reports are projected per subscriber filter, that one frame
+   * is shared by subscribers with equal filters, and that subscribers whose
+   * filter selects nothing are skipped.
+   */
+  @Test
+  public void sendToSubscribers_projectsPerFilterAndSharesFrames_positive() {
+    // Arrange
+    FrameRecordingContext context = new FrameRecordingContext();
+    int sensorNodeId = 0x10000;
+    context.setSubscription(new Subscription(10, sensorNodeId));
+    context.setSubscription(new Subscription(20, sensorNodeId,
+      SubscriptionFilter.of(List.of("co2"), null)));
+    context.setSubscription(new Subscription(30, sensorNodeId,
+      SubscriptionFilter.of(List.of("co2"), List.of())));
+    context.setSubscription(new Subscription(40, sensorNodeId,
+      SubscriptionFilter.of(List.of("light"), null)));
+    DataReportBody report = new DataReportBody(List.of(
+      new DataReportBody.SensorReading("co2", 400.0, null, null, "ppm", null),
+      new DataReportBody.SensorReading("temp", 21.0, null, null, "C", null)),
+      List.of(new DataReportBody.ActuatorState("fan", 1.0, null, null, null, null)), null);
+    Header header = new Header(new byte[]{'S','F','P'}, (byte)1, MessageTypes.DATA_REPORT,
+      sensorNodeId, 0, 0, UUID.randomUUID());
+
+    // Act
+    context.sendToSubscribers(new SmartFarmingProtocol(header, report));
+
+    // Assert
+    Assertions.assertEquals(List.of(10, 20, 30), List.copyOf(context.frames.keySet()));
+    Assertions.assertSame(context.frames.get(20), context.frames.get(30));
+    DataReportBody projected =
+      (DataReportBody) SmartFarmingProtocol.fromBytes(context.frames.get(20)).getBody();
+    Assertions.assertEquals(List.of(report.sensors().get(0)), projected.sensors());
+    Assertions.assertNull(projected.actuators());
+    Assertions.assertTrue(context.frames.get(20).length < context.frames.get(10).length);
+  }
+
+  /**
+   * Verifies that a subscriber arriving after the last subscriber with the
+   * same deadbands left is compared against its own deliveries, not the old ones.
+   */
+  @Test
+  public void removeSubscription_lastOnDeadbandRoute_resetsBaseline_positive() {
+    // Arrange
+    FrameRecordingContext context = new FrameRecordingContext();
+    int sensorNodeId = 0x10000;
+    DeadbandPolicy policy = DeadbandPolicy.of(
+      List.of(new SubscribeBody.Deadband("co2", 20.0, null)), null);
+    context.setSubscription(new Subscription(10, sensorNodeId, SubscriptionFilter.ALL, 0, policy));
+    context.sendToSubscribers(co2Report(sensorNodeId, 400.0));
+    context.removeSubscription(10, sensorNodeId);
+    context.setSubscription(new Subscription(20, sensorNodeId, SubscriptionFilter.ALL, 0, policy));
+
+    // Act
+    context.sendToSubscribers(co2Report(sensorNodeId, 410.0));
+
+    // Assert
+    Assertions.assertEquals(List.of(10, 20), List.copyOf(context.frames.keySet()));
+  }
+
+  /**
+   * Verifies that subscribing again replaces the filter instead of adding a
+   * second subscription.
+   */
+  @Test
+  public void setSubscription_sameNodeTwice_replacesFilter_positive() {
+    // Arrange
+    FrameRecordingContext context = new FrameRecordingContext();
+    Header header = new Header(new byte[]{'S','F','P'}, (byte)1, MessageTypes.DATA_REPORT,
+      5, 0, 0, UUID.randomUUID());
+    DataReportBody report = new DataReportBody(List.of(
+      new DataReportBody.SensorReading("temp", 21.0, null, null, "C", null)), null, null);
+
+    // Act
+    context.setSubscription(new Subscription(10, 5));
+    context.setSubscription(new Subscription(10, 5, SubscriptionFilter.of(List.of("co2"), null)));
+    context.sendToSubscribers(new SmartFarmingProtocol(header, report));
+
+    // Assert
+    Assertions.assertEquals(List.of(10), context.getSubscribersForSensorNode(5));
+    Assertions.assertTrue(context.frames.isEmpty(), "The co2 filter should drop a temp report");
+  }
+
   /**
    * Verifies that getServerNodeDescriptors returns only nodeType == 1.
    */
@@ -119,8 +211,231 @@ public class ServerContextTest {
     Assertions.assertTrue(result.contains(node3));
   }
 
+  /**
+   * Verifies that a node with a resume token keeps its id, descriptor and
+   * subscriptions across a dropped connection.
+   */
+  @Test
+  public void resumeSession_afterDisconnect_restoresNodeAndSubscriptions_positive() {
+    // Arrange
+    ServerContext context = new ServerContext();
+    NodeDescriptor sensor = new NodeDescriptor(5, 1, null, null, null, null);
+    Socket oldSocket = new Socket();
+    Socket newSocket = new Socket();
+
+    context.registerNode(5, sensor, oldSocket);
+    context.registerNode(10, new NodeDescriptor(10, 0, null, null, null, null), new Socket());
+    context.setSubscription(new Subscription(10, 5));
+    String token = context.issueResumeToken(5);
+
+    // Act
+    context.unregisterNode(oldSocket);
+    List<Integer> whileParked = context.getSubscribersForSensorNode(5);
+    NodeDescriptor resumed = context.resumeSession(token, newSocket);
+
+    // Assert
+    Assertions.assertTrue(whileParked.isEmpty(), "Parked nodes should not receive forwards");
+    Assertions.assertEquals(sensor, resumed);
+    Assertions.assertEquals(List.of(10), context.getSubscribersForSensorNode(5));
+    Assertions.assertTrue(context.getServerNodeDescriptors().contains(sensor));
+  }
+
+  /**
+   * Verifies that a parked session expires on its own, releasing the node's
+   * id without any further session event.
+   */
+  @Test
+  public void unregisterNode_parkedSession_expiresOnTimer_positive() throws InterruptedException {
+    // Arrange
+    IdAllocator ids = new IdAllocator(0, System::currentTimeMillis);
+    ServerContext context = new ServerContext(50, ids);
+    int id = ids.allocateSensorNode();
+    Socket socket = new Socket();
+    context.registerNode(id, new NodeDescriptor(id, 1, null, null, null, null), socket);
+    context.issueResumeToken(id);
+
+    // Act
+    context.unregisterNode(socket);
+    boolean parked = ids.isInUse(id);
+    long end = System.currentTimeMillis() + 5000;
+    while (ids.isInUse(id) && System.currentTimeMillis() < end) {
+      Thread.sleep(20);
+    }
+
+    // Assert
+    Assertions.assertTrue(parked, "The id should be kept while the session is parked");
+    Assertions.assertFalse(ids.isInUse(id), "The expired session should release its id");
+  }
+
+  /**
+   * Verifies that a token presented while the old connection is still
+   * registered moves the node to the new connection.
+   */
+  @Test
+  public void resumeSession_whileStillConnected_takesOverNode_positive() throws IOException {
+    // Arrange
+    ServerContext context = new ServerContext();
+    NodeDescriptor sensor = new NodeDescriptor(5, 1, null, null, null, null);
+    Socket oldSocket = new Socket();
+    Socket newSocket = new Socket();
+    context.registerNode(5, sensor, oldSocket);
+    String token = context.issueResumeToken(5);
+
+    // Act
+    NodeDescriptor resumed = context.resumeSession(token, newSocket);
+    context.unregisterNode(oldSocket);
+
+    // Assert
+    Assertions.assertEquals(sensor, resumed);
+    Assertions.assertTrue(oldSocket.isClosed(), "The replaced connection should be closed");
+    Assertions.assertTrue(context.getServerNodeDescriptors().contains(sensor),
+        "Closing the old connection must not remove the resumed node");
+  }
+
+  /**
+   * Verifies that a wildcard subscription covers sensor nodes that register
+   * after it, but not control panels.
+   */
+  @Test
+  public void subscribeGroup_wildcard_picksUpLaterNodes_positive() {
+    // Arrange
+    ServerContext context = new ServerContext();
+    context.registerNode(5, new NodeDescriptor(5, 1, null, null, null, null), new Socket());
+
+    // Act
+    Set<Integer> members = context.subscribeGroup(new Subscription(10, 0), "*");
+    context.registerNode(6, new NodeDescriptor(6, 1, null, null, null, null), new Socket());
+    context.registerNode(11, new NodeDescriptor(11, 0, null, null, null, null), new Socket());
+
+    // Assert
+    Assertions.assertEquals(Set.of(5), members);
+    Assertions.assertEquals(List.of(10), context.getSubscribersForSensorNode(5));
+    Assertions.assertEquals(List.of(10), context.getSubscribersForSensorNode(6));
+    Assertions.assertTrue(context.getSubscribersForSensorNode(11).isEmpty());
+  }
+
+  /**
+   * Verifies that reassigning a node moves it between the subscribers of its
+   * old and new group, and that the descriptor lists the new group.
+   */
+  @Test
+  public void assignGroups_movesNodeBetweenGroupSubscribers_positive() {
+    // Arrange
+    ServerContext context = new ServerContext();
+    context.registerNode(5, new NodeDescriptor(5, 1, null, null, null, null,
+        List.of("zone-a")), new Socket());
+    context.subscribeGroup(new Subscription(10, 0), "zone-a");
+    context.subscribeGroup(new Subscription(20, 0), "zone-b");
+
+    // Act
+    List<String> groups = context.assignGroups(5, List.of("zone-b"), List.of("zone-a"));
+
+    // Assert
+    Assertions.assertEquals(List.of("zone-b"), groups);
+    Assertions.assertEquals(List.of(20), context.getSubscribersForSensorNode(5));
+    Assertions.assertEquals(List.of("zone-b"), context.getServerNodeDescriptors().get(0).groups());
+  }
+
+  /**
+   * Verifies that a group subscription delivers reports of its members to
+   * connected control panels, and that a direct subscription to the member
+   * takes precedence over it.
+   */
+  @Test
+  public void sendToSubscribers_groupSubscription_deliversUnlessDirectApplies_positive() {
+    // Arrange
+    FrameRecordingContext context = new FrameRecordingContext();
+    context.registerNode(5, new NodeDescriptor(5, 1, null, null, null, null,
+        List.of("zone-a")), new Socket());
+    context.registerNode(10, new NodeDescriptor(10, 0, null, null, null, null), new Socket());
+    context.registerNode(20, new NodeDescriptor(20, 0, null, null, null, null), new Socket());
+    context.subscribeGroup(new Subscription(10, 0), "zone-a");
+    context.subscribeGroup(new Subscription(20, 0), "zone-a");
+    context.subscribeGroup(new Subscription(30, 0), "zone-a");
+    context.setSubscription(new Subscription(20, 5, SubscriptionFilter.of(List.of("co2"), null)));
+    context.frames.clear();
+    Header header = new Header(new byte[]{'S','F','P'}, (byte)1, MessageTypes.DATA_REPORT,
+      5, 0, 0, UUID.randomUUID());
+    DataReportBody report = new DataReportBody(List.of(
+      new DataReportBody.SensorReading("temp", 21.0, null, null, "C", null)), null, null);
+
+    // Act
+    context.sendToSubscribers(new SmartFarmingProtocol(header, report));
+
+    // Assert
+    Assertions.assertEquals(List.of(20, 10, 30), context.getSubscribersForSensorNode(5));
+    Assertions.assertEquals(Set.of(10), context.frames.keySet(),
+      "The direct co2 filter applies to 20 and the unconnected 30 is skipped");
+  }
+
+  /**
+   * Verifies that control panels get a CAPABILITIES_DELTA when a sensor node
+   * joins and when it leaves.
+   */
+  @Test
+  public void registerAndUnregister_sensorNode_pushesCapabilitiesDelta_positive() {
+    // Arrange
+    FrameRecordingContext context = new FrameRecordingContext();
+    context.registerNode(10, new NodeDescriptor(10, 0, null, null, null, null), new Socket());
+    NodeDescriptor sensor = new NodeDescriptor(5, 1, null, null, null, null);
+    Socket sensorSocket = new Socket();
+
+    // Act
+    context.registerNode(5, sensor, sensorSocket);
+    SmartFarmingProtocol joined = SmartFarmingProtocol.fromBytes(context.frames.get(10));
+    context.unregisterNode(sensorSocket);
+    SmartFarmingProtocol left = SmartFarmingProtocol.fromBytes(context.frames.get(10));
+
+    // Assert
+    Assertions.assertEquals(MessageTypes.CAPABILITIES_DELTA, joined.getHeader().getMessageType());
+    CapabilitiesDeltaBody join = (CapabilitiesDeltaBody) joined.getBody();
+    CapabilitiesDeltaBody leave = (CapabilitiesDeltaBody) left.getBody();
+    Assertions.assertEquals(List.of(sensor), join.upserted());
+    Assertions.assertEquals(join.version(), leave.fromVersion());
+    Assertions.assertEquals(List.of(5), leave.removed());
+  }
+
+  /**
+   * Verifies that a sensor node that stops sending after a HEARTBEAT is
+   * disconnected and reported to control panels as removed.
+   */
+  @Test
+  public void liveness_silentSensorNode_isUnregistered_positive() throws InterruptedException {
+    // Arrange
+    FrameRecordingContext context = new FrameRecordingContext();
+    context.registerNode(10, new NodeDescriptor(10, 0, null, null, null, null), new Socket());
+    Socket sensorSocket = new Socket();
+    context.registerNode(5, new NodeDescriptor(5, 1, null, null, null, null), sensorSocket);
+
+    // Act
+    context.getLiveness().watch(5, LivenessTracker.MIN_INTERVAL_MILLIS);
+    long end = System.currentTimeMillis() + 5000;
+    while (!sensorSocket.isClosed() && System.currentTimeMillis() < end) {
+      Thread.sleep(20);
+    }
+
+    // Assert
+    Assertions.assertFalse(context.isSensorNode(5), "The silent node should be unregistered");
+    Assertions.assertTrue(sensorSocket.isClosed());
+    SmartFarmingProtocol left = SmartFarmingProtocol.fromBytes(context.frames.get(10));
+    Assertions.assertEquals(List.of(5), ((CapabilitiesDeltaBody) left.getBody()).removed());
+  }
+
   // --------------------------- NEGATIVE TESTS ---------------------------------- //
 
+  /**
+   * Verifies that groups cannot be assigned to unknown nodes or under the
+   * reserved wildcard name.
+   */
+  @Test
+  public void assignGroups_unknownNodeOrWildcard_returnsNull_negative() {
+    ServerContext context = new ServerContext();
+    context.registerNode(5, new NodeDescriptor(5, 1, null, null, null, null), new Socket());
+
+    Assertions.assertNull(context.assignGroups(99, List.of("zone-a"), null));
+    Assertions.assertNull(context.assignGroups(5, List.of("*"), null));
+  }
+
   @Test
   public void sendTo_withMissingTargetId_doesNotThrow_negative() throws IOException {
     ServerContext context = new ServerContext();
@@ -167,4 +482,78 @@ public class ServerContextTest {
     // Should not throw
     context.broadcast(packet);
   }
+
+  /**
+   * Verifies that an unknown token does not resume anything.
+   */
+  @Test
+  public void resumeSession_unknownToken_returnsNull_negative() {
+    ServerContext context = new ServerContext();
+
+    Assertions.assertNull(context.resumeSession("not-a-token", new Socket()));
+  }
+
+  /**
+   * Verifies that a session cannot be resumed after the grace period and that
+   * its subscriptions are gone for good.
+   */
+  @Test
+  public void resumeSession_afterGracePeriod_returnsNull_negative() throws InterruptedException {
+    // Arrange
+    ServerContext context = new ServerContext(1);
+    Socket oldSocket = new Socket();
+    context.registerNode(5, new NodeDescriptor(5, 1, null, null, null, null), oldSocket);
+    context.setSubscription(new Subscription(10, 5));
+    String token = context.issueResumeToken(5);
+    context.unregisterNode(oldSocket);
+    Thread.sleep(20);
+
+    // Act
+    NodeDescriptor resumed = context.resumeSession(token, new Socket());
+
+    // Assert
+    Assertions.assertNull(resumed);
+    Assertions.assertTrue(context.getSubscribersForSensorNode(5).isEmpty());
+  }
+
+  /**
+   * Verifies that a replaced token can no longer be used.
+   */
+  @Test
+  public void resumeSession_rotatedToken_returnsNull_negative() {
+    // Arrange
+    ServerContext context = new ServerContext();
+    Socket oldSocket = new Socket();
+    context.registerNode(5, new NodeDescriptor(5, 1, null, null, null, null), oldSocket);
+    String first = context.issueResumeToken(5);
+    context.issueResumeToken(5);
+    context.unregisterNode(oldSocket);
+
+    // Act & Assert
+    Assertions.assertNull(context.resumeSession(first, new Socket()));
+  }
+
+  // =========================================================================== //
+  // Helpers
+  // =========================================================================== //
+
+  private static SmartFarmingProtocol co2Report(int sensorNodeId, double co2) {
+    Header header = new Header(new byte[]{'S','F','P'}, (byte)1, MessageTypes.DATA_REPORT,
+      sensorNodeId, 0, 0, UUID.randomUUID());
+    return new SmartFarmingProtocol(header, new DataReportBody(List.of(
+      new DataReportBody.SensorReading("co2", co2, null, null, "ppm", null)), null, null));
+  }
+
+  // =========================================================================== //
+  // Test Doubles
+  // =========================================================================== //
+
+  private static class FrameRecordingContext extends ServerContext {
+    private final Map<Integer, byte[]> frames = new LinkedHashMap<>();
+
+    @Override
+    public void sendFrame(int nodeId, byte[] frame) {
+      frames.put(nodeId, frame);
+    }
+  }
 }
@@ -0,0 +1,138 @@
+package ntnu.idata2302.sfp.server.net;
+
+import ntnu.idata2302.sfp.server.entity.Subscription;
+import ntnu.idata2302.sfp.server.entity.SubscriptionFilter;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class for {@link SubscriptionIndex}.
+ *
+ * <b>Positive Tests:</b>
+ * <ul>
+ *   <li>Storing a subscription again replaces it and moves it to the end.</li>
+ *   <li>Batches are stored and removed in one update.</li>
+ *   <li>Removing a node drops its subscriptions in both directions.</li>
+ * </ul>
+ *
+ * <b>Negative Tests:</b>
+ * <ul>
+ *   <li>Removing a subscription that does not exist changes nothing.</li>
+ * </ul>
+ */
+public class SubscriptionIndexTest {
+
+  // --------------------------- POSITIVE TESTS ---------------------------------- //
+
+  /**
+   * Verifies that a control panel keeps one subscription per sensor node and
+   * that putAbsent keeps existing ones.
+   */
+  @Test
+  void put_sameControlPanelTwice_replacesSubscription_positive() {
+    // Arrange
+    SubscriptionIndex index = new SubscriptionIndex();
+    Subscription first = new Subscription(10, 5);
+    Subscription other = new Subscription(20, 5);
+    Subscription second = new Subscription(10, 5, SubscriptionFilter.of(List.of("co2"), null));
+
+    // Act
+    index.put(first);
+    index.put(other);
+    index.put(second);
+    index.putAbsent(List.of(new Subscription(20, 5, SubscriptionFilter.of(List.of("temp"), null))));
+
+    // Assert
+    assertArrayEquals(new Subscription[] {other, second}, index.of(5));
+    assertSame(second, index.get(10, 5));
+    assertSame(other, index.get(20, 5));
+  }
+
+  /**
+   * Verifies that a batch replaces existing subscriptions of the same pairs,
+   * lets the last of duplicate entries win, and is undone by removeAll.
+   */
+  @Test
+  void putAllAndRemoveAll_batch_updatesEveryNode_positive() {
+    // Arrange
+    SubscriptionIndex index = new SubscriptionIndex();
+    Subscription other = new Subscription(20, 5);
+    Subscription filtered = new Subscription(10, 6, SubscriptionFilter.of(List.of("co2"), null));
+    index.put(new Subscription(10, 5));
+    index.put(other);
+
+    // Act
+    index.putAll(List.of(new Subscription(10, 5), new Subscription(10, 6), filtered));
+    Subscription[] toFive = index.of(5);
+    Subscription[] toSix = index.of(6);
+    Set<Integer> removed = index.removeAll(10, List.of(5, 6, 7));
+
+    // Assert
+    assertEquals(2, toFive.length);
+    assertSame(other, toFive[0]);
+    assertArrayEquals(new Subscription[] {filtered}, toSix);
+    assertEquals(Set.of(5, 6), removed);
+    assertArrayEquals(new Subscription[] {other}, index.of(5));
+    assertEquals(0, index.of(6).length);
+    assertTrue(index.removeNode(10).isEmpty());
+  }
+
+  /**
+   * Verifies that removing a node drops subscriptions to it and subscriptions
+   * it made as control panel, and returns them.
+   */
+  @Test
+  void removeNode_dropsBothDirections_positive() {
+    // Arrange
+    SubscriptionIndex index = new SubscriptionIndex();
+    index.put(new Subscription(10, 5));
+    index.put(new Subscription(10, 6));
+    index.put(new Subscription(20, 6));
+    index.put(new Subscription(5, 7));
+
+    // Act
+    List<Subscription> fromPanel = index.removeNode(10);
+    List<Subscription> fromSensor = index.removeNode(7);
+
+    // Assert
+    assertEquals(Set.of(5, 6),
+        fromPanel.stream().map(Subscription::getSnId).collect(Collectors.toSet()));
+    assertEquals(1, fromSensor.size());
+    assertEquals(0, index.of(5).length);
+    assertEquals(1, index.of(6).length);
+    assertEquals(0, index.of(7).length);
+    assertTrue(index.removeNode(10).isEmpty());
+  }
+
+  // --------------------------- NEGATIVE TESTS ---------------------------------- //
+
+  /**
+   * Verifies that removing an unknown subscription returns false.
+   */
+  @Test
+  void remove_unknownSubscription_returnsFalse_negative() {
+    // Arrange
+    SubscriptionIndex index = new SubscriptionIndex();
+    index.put(new Subscription(10, 5));
+
+    // Act
+    boolean otherPanel = index.remove(20, 5);
+    boolean otherNode = index.remove(10, 6);
+
+    // Assert
+    assertFalse(otherPanel);
+    assertFalse(otherNode);
+    assertNull(index.get(20, 5));
+    assertEquals(1, index.of(5).length);
+  }
+}
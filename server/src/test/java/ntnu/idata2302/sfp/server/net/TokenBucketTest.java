@@ -0,0 +1,96 @@
+package ntnu.idata2302.sfp.server.net;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class for {@link TokenBucket}.
+ *
+ * <b>Positive Tests:</b>
+ * <ul>
+ *   <li>A full bucket admits one burst and then refills with time.</li>
+ *   <li>A request larger than the burst is admitted from a full bucket.</li>
+ *   <li>Refunded units can be taken again.</li>
+ * </ul>
+ *
+ * <b>Negative Tests:</b>
+ * <ul>
+ *   <li>A rate or burst that is not positive is rejected.</li>
+ * </ul>
+ */
+public class TokenBucketTest {
+
+  private static final long MS = 1_000_000L;
+
+  // --------------------------- POSITIVE TESTS ---------------------------------- //
+
+  /**
+   * Verifies burst admission and lazy refill at 10 units per second.
+   */
+  @Test
+  void tryAcquire_burstThenRefill_positive() {
+    // Arrange
+    TokenBucket bucket = new TokenBucket(10, 5, 0);
+
+    // Act
+    int admitted = 0;
+    for (int i = 0; i < 20; i++) {
+      if (bucket.tryAcquire(1, 0)) {
+        admitted++;
+      }
+    }
+
+    // Assert
+    assertEquals(5, admitted, "A full bucket admits one burst");
+    assertFalse(bucket.tryAcquire(1, 50 * MS), "Half a unit has been refilled");
+    assertTrue(bucket.tryAcquire(1, 100 * MS), "One unit has been refilled");
+    assertTrue(bucket.tryAcquire(5, 10_000 * MS), "An idle bucket is full again");
+    assertFalse(bucket.tryAcquire(1, 10_000 * MS));
+  }
+
+  /**
+   * Verifies that a request above the burst is not refused forever.
+   */
+  @Test
+  void tryAcquire_largerThanBurst_fromFullBucket_positive() {
+    // Arrange
+    TokenBucket bucket = new TokenBucket(1000, 100, 0);
+
+    // Act & Assert
+    assertTrue(bucket.tryAcquire(500, 0));
+    assertFalse(bucket.tryAcquire(500, 100 * MS));
+    assertTrue(bucket.tryAcquire(500, 500 * MS));
+  }
+
+  /**
+   * Verifies that a refund restores exactly the units taken.
+   */
+  @Test
+  void refund_restoresUnits_positive() {
+    // Arrange
+    TokenBucket bucket = new TokenBucket(10, 2, 0);
+    assertTrue(bucket.tryAcquire(2, 0));
+
+    // Act
+    bucket.refund(1);
+
+    // Assert
+    assertTrue(bucket.tryAcquire(1, 0));
+    assertFalse(bucket.tryAcquire(1, 0));
+  }
+
+  // --------------------------- NEGATIVE TESTS ---------------------------------- //
+
+  /**
+   * Verifies that invalid parameters are rejected.
+   */
+  @Test
+  void constructor_nonPositive_negative() {
+    assertThrows(IllegalArgumentException.class, () -> new TokenBucket(0, 1, 0));
+    assertThrows(IllegalArgumentException.class, () -> new TokenBucket(1, 0, 0));
+  }
+}
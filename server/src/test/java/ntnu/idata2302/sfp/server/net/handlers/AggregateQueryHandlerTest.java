@@ -0,0 +1,164 @@
+package ntnu.idata2302.sfp.server.net.handlers;
+
+import ntnu.idata2302.sfp.library.SmartFarmingProtocol;
+import ntnu.idata2302.sfp.library.body.aggregate.AggregateQueryBody;
+import ntnu.idata2302.sfp.library.body.aggregate.AggregateResultBody;
+import ntnu.idata2302.sfp.library.body.data.DataReportBody;
+import ntnu.idata2302.sfp.library.body.error.ErrorBody;
+import ntnu.idata2302.sfp.library.header.Header;
+import ntnu.idata2302.sfp.library.header.MessageTypes;
+import ntnu.idata2302.sfp.library.node.NodeDescriptor;
+import ntnu.idata2302.sfp.server.net.ServerContext;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.net.Socket;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit tests for {@link AggregateQueryHandler}.
+ *
+ * <b>Positive Tests:</b>
+ * <ul>
+ *   <li>A one-shot query by sensor id merges every node listing that sensor.</li>
+ *   <li>A push query is answered every interval until it is cancelled.</li>
+ * </ul>
+ *
+ * <b>Negative Tests:</b>
+ * <ul>
+ *   <li>A query with an unknown period is answered with an ERROR.</li>
+ * </ul>
+ */
+public class AggregateQueryHandlerTest {
+
+  private static final int CP_ID = 2;
+  private static final int SN_A = 0x10000;
+  private static final int SN_B = 0x10001;
+  private static final int SN_C = 0x10002;
+
+  // --------------------------- POSITIVE TESTS ---------------------------------- //
+
+  /**
+   * Verifies that nodes are selected by descriptor and their aggregates merged.
+   */
+  @Test
+  public void handle_oneShotBySensor_mergesGroup_positive() throws Exception {
+    // Arrange
+    RecordingServerContext context = new RecordingServerContext();
+    register(context, SN_A, "soil");
+    register(context, SN_B, "soil");
+    register(context, SN_C, "temp");
+    report(context, SN_A, "soil", 10.0);
+    report(context, SN_A, "soil", 20.0);
+    report(context, SN_B, "soil", 60.0);
+    report(context, SN_C, "temp", 99.0);
+
+    // Act
+    new AggregateQueryHandler().handle(
+        query(new AggregateQueryBody(5, "soil", null, "1h", null, null, null)), null, context);
+
+    // Assert
+    SmartFarmingProtocol packet = context.sent.poll();
+    Assertions.assertNotNull(packet);
+    Assertions.assertEquals(MessageTypes.AGGREGATE_RESULT, packet.getHeader().getMessageType());
+    Assertions.assertEquals(CP_ID, packet.getHeader().getTargetId());
+    AggregateResultBody result = (AggregateResultBody) packet.getBody();
+    Assertions.assertEquals(5, result.requestId());
+    Assertions.assertEquals(3, result.sampleCount());
+    Assertions.assertEquals(List.of(SN_A, SN_B), result.nodeIds().stream().sorted().toList());
+    Assertions.assertEquals(10.0, result.min());
+    Assertions.assertEquals(60.0, result.max());
+    Assertions.assertEquals(30.0, result.avg(), 1e-9);
+  }
+
+  /**
+   * Verifies that a push query keeps sending results and stops when cancelled.
+   */
+  @Test
+  public void handle_pushQuery_sendsUntilCancelled_positive() throws Exception {
+    // Arrange
+    RecordingServerContext context = new RecordingServerContext();
+    report(context, SN_A, "soil", 42.0);
+    AggregateQueryHandler handler = new AggregateQueryHandler();
+
+    // Act
+    handler.handle(query(new AggregateQueryBody(
+        7, "soil", List.of(SN_A), "1h", List.of("avg"), 1000, null)), null, context);
+    SmartFarmingProtocol pushed = context.pushed.poll(5, TimeUnit.SECONDS);
+    handler.handle(query(new AggregateQueryBody(
+        7, null, null, null, null, null, Boolean.TRUE)), null, context);
+
+    // Assert
+    Assertions.assertNotNull(pushed);
+    AggregateResultBody result = (AggregateResultBody) pushed.getBody();
+    Assertions.assertEquals(42.0, result.avg());
+    Assertions.assertNull(result.min());
+    Assertions.assertEquals(0, context.getContinuousQueries().size());
+    Assertions.assertTrue(context.sent.isEmpty());
+  }
+
+  // --------------------------- NEGATIVE TESTS ---------------------------------- //
+
+  /**
+   * Verifies that an unparsable period is rejected with BAD_REQUEST.
+   */
+  @Test
+  public void handle_unknownPeriod_sendsError_negative() throws Exception {
+    // Arrange
+    RecordingServerContext context = new RecordingServerContext();
+
+    // Act
+    new AggregateQueryHandler().handle(
+        query(new AggregateQueryBody(1, "soil", null, "fortnight", null, 1000, null)),
+        null, context);
+
+    // Assert
+    SmartFarmingProtocol packet = context.sent.poll();
+    Assertions.assertNotNull(packet);
+    Assertions.assertEquals(MessageTypes.ERROR, packet.getHeader().getMessageType());
+    Assertions.assertEquals(1, ((ErrorBody) packet.getBody()).errorCode());
+    Assertions.assertEquals(0, context.getContinuousQueries().size());
+  }
+
+  // =========================================================================== //
+  // Helpers and Test Doubles
+  // =========================================================================== //
+
+  private static void register(ServerContext context, int nodeId, String sensorId) {
+    NodeDescriptor descriptor = new NodeDescriptor(nodeId, 1,
+        List.of(new NodeDescriptor.SensorDescriptor(sensorId, null, null, null)),
+        List.of(), null, null);
+    context.registerNode(nodeId, descriptor, new Socket());
+  }
+
+  private static void report(ServerContext context, int nodeId, String sensorId, double value) {
+    context.getAggregateEngine().record(nodeId, new DataReportBody(
+        List.of(new DataReportBody.SensorReading(sensorId, value, null, null, null, null)),
+        null, null), System.currentTimeMillis());
+  }
+
+  private static SmartFarmingProtocol query(AggregateQueryBody body) {
+    Header header = new Header(new byte[]{'S', 'F', 'P'}, (byte) 1, MessageTypes.AGGREGATE_QUERY,
+        CP_ID, 1, 0, UUID.randomUUID());
+    return new SmartFarmingProtocol(header, body);
+  }
+
+  private static class RecordingServerContext extends ServerContext {
+    private final BlockingQueue<SmartFarmingProtocol> sent = new LinkedBlockingQueue<>();
+    private final BlockingQueue<SmartFarmingProtocol> pushed = new LinkedBlockingQueue<>();
+
+    @Override
+    public void sendTo(Socket socket, SmartFarmingProtocol packet) {
+      sent.add(packet);
+    }
+
+    @Override
+    public void sendTo(int nodeId, SmartFarmingProtocol packet) {
+      pushed.add(packet);
+    }
+  }
+}
@@ -4,6 +4,7 @@ import ntnu.idata2302.sfp.library.SmartFarmingProtocol;
 import ntnu.idata2302.sfp.library.body.announce.AnnounceAckBody;
 import ntnu.idata2302.sfp.library.body.announce.AnnounceBody;
 import ntnu.idata2302.sfp.library.header.MessageTypes;
+import ntnu.idata2302.sfp.library.node.DescriptorTemplates;
 import ntnu.idata2302.sfp.library.node.NodeDescriptor;
 import ntnu.idata2302.sfp.server.net.ServerContext;
 
@@ -12,9 +13,13 @@ import org.junit.jupiter.api.Test;
 import java.io.IOException;
 import java.net.Socket;
 import java.util.Collections;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 /**
@@ -23,11 +28,16 @@ import static org.junit.jupiter.api.Assertions.fail;
  * <b>Positive Tests:</b>
  * <ul>
  *   <li>Handle method registers the node and sends an ANNOUNCE_ACK with the same requestId as the ANNOUNCE.</li>
+ *   <li>Handle method gives a reconnecting node presenting its resume token the same id again.</li>
+ *   <li>Handle method registers a node announced by a known template reference, sharing the template.</li>
+ *   <li>A template is dropped once the last node referring to it is forgotten.</li>
  * </ul>
  *
  * <b>Negative Tests:</b>
  * <ul>
  *   <li>Handle method throws {@link ClassCastException} if the message body is not an {@link AnnounceBody}.</li>
+ *   <li>Handle method allocates a new id for an unknown resume token.</li>
+ *   <li>Handle method asks for the full descriptor when the template is unknown.</li>
  * </ul>
  */
 public class AnnounceHandlerTest {
@@ -123,6 +133,93 @@ public class AnnounceHandlerTest {
     assertEquals(requestId, ackBody.requestId(), "Ack must contain the same requestId as the announce");
   }
 
+  /**
+   * Verifies that a node announcing with the resume token from its previous
+   * ANNOUNCE_ACK gets the same id and a new token.
+   */
+  @Test
+  void handle_withResumeToken_restoresPreviousId_positive() throws Exception {
+    // Arrange
+    CapturingContext context = new CapturingContext();
+    AnnounceHandler handler = new AnnounceHandler();
+    Socket firstConnection = new Socket();
+    Socket secondConnection = new Socket();
+
+    handler.handle(announce(1, null), firstConnection, context);
+    SmartFarmingProtocol firstAck = context.lastResponse;
+    String token = ((AnnounceAckBody) firstAck.getBody()).resumeToken();
+    context.unregisterNode(firstConnection);
+
+    // Act
+    handler.handle(announce(2, token), secondConnection, context);
+    SmartFarmingProtocol secondAck = context.lastResponse;
+
+    // Assert
+    assertNotNull(token, "ANNOUNCE_ACK should carry a resume token");
+    assertEquals(firstAck.getHeader().getTargetId(), secondAck.getHeader().getTargetId(),
+        "Resumed node should keep its id");
+    String newToken = ((AnnounceAckBody) secondAck.getBody()).resumeToken();
+    assertNotNull(newToken);
+    assertNotEquals(token, newToken, "Resume token should be rotated");
+  }
+
+  /**
+   * Verifies that once one node announced in full, an identical node can
+   * announce by template reference and shares the interned sensor list.
+   */
+  @Test
+  void handle_knownTemplateReference_registersNode_positive() throws Exception {
+    // Arrange
+    CapturingContext context = new CapturingContext();
+    AnnounceHandler handler = new AnnounceHandler();
+    NodeDescriptor full = greenhouseNode();
+    handler.handle(new SmartFarmingProtocol(null, new AnnounceBody(1, full)),
+        new Socket(), context);
+    NodeDescriptor reference = DescriptorTemplates.reference(
+        new NodeDescriptor(null, 1, null, null, null, null, List.of("zone-a")),
+        DescriptorTemplates.hash(full));
+
+    // Act
+    handler.handle(new SmartFarmingProtocol(null, new AnnounceBody(2, reference)),
+        new Socket(), context);
+
+    // Assert
+    AnnounceAckBody ack = (AnnounceAckBody) context.lastResponse.getBody();
+    assertEquals(AnnounceAckBody.STATUS_OK, ack.status());
+    List<NodeDescriptor> registered = context.getServerNodeDescriptors();
+    assertEquals(2, registered.size());
+    assertEquals(full.sensors(), registered.get(1).sensors());
+    assertEquals(List.of("zone-a"), registered.get(1).groups());
+    assertSame(registered.get(0).sensors(), registered.get(1).sensors());
+    assertEquals(1, context.getTemplates().size());
+  }
+
+  /**
+   * Verifies that a template stays interned while a node refers to it and is
+   * dropped when the last such node leaves.
+   */
+  @Test
+  void handle_lastNodeOfTemplateLeaves_dropsTemplate_positive() throws Exception {
+    // Arrange
+    CapturingContext context = new CapturingContext(0);
+    AnnounceHandler handler = new AnnounceHandler();
+    NodeDescriptor full = greenhouseNode();
+    Socket first = new Socket();
+    Socket second = new Socket();
+    handler.handle(new SmartFarmingProtocol(null, new AnnounceBody(1, full)), first, context);
+    handler.handle(new SmartFarmingProtocol(null, new AnnounceBody(2,
+        DescriptorTemplates.reference(full, DescriptorTemplates.hash(full)))), second, context);
+
+    // Act
+    context.unregisterNode(first);
+    int afterFirst = context.getTemplates().size();
+    context.unregisterNode(second);
+
+    // Assert
+    assertEquals(1, afterFirst);
+    assertEquals(0, context.getTemplates().size());
+  }
+
   // --------------------------- NEGATIVE TESTS ---------------------------------- //
 
   /**
@@ -151,4 +248,86 @@ public class AnnounceHandlerTest {
       // Expected path: the handler blindly casts to AnnounceBody
     }
   }
+
+  /**
+   * Verifies that an unknown resume token falls back to a normal announce with
+   * a freshly allocated id.
+   */
+  @Test
+  void handle_withUnknownResumeToken_allocatesNewId_negative() throws Exception {
+    // Arrange
+    CapturingContext context = new CapturingContext();
+    AnnounceHandler handler = new AnnounceHandler();
+    handler.handle(announce(1, null), new Socket(), context);
+    int existingId = context.lastResponse.getHeader().getTargetId();
+
+    // Act
+    handler.handle(announce(2, "unknown-token"), new Socket(), context);
+
+    // Assert
+    assertNotEquals(existingId, context.lastResponse.getHeader().getTargetId());
+  }
+
+  /**
+   * Verifies that a reference to an unknown template is answered with
+   * STATUS_TEMPLATE_UNKNOWN and does not register the node.
+   */
+  @Test
+  void handle_unknownTemplateReference_asksForFullDescriptor_negative() throws Exception {
+    // Arrange
+    CapturingContext context = new CapturingContext();
+    AnnounceHandler handler = new AnnounceHandler();
+    NodeDescriptor full = greenhouseNode();
+    NodeDescriptor reference = DescriptorTemplates.reference(full, DescriptorTemplates.hash(full));
+
+    // Act
+    handler.handle(new SmartFarmingProtocol(null, new AnnounceBody(7, reference)),
+        new Socket(), context);
+
+    // Assert
+    AnnounceAckBody ack = (AnnounceAckBody) context.lastResponse.getBody();
+    assertEquals(7, ack.requestId());
+    assertEquals(AnnounceAckBody.STATUS_TEMPLATE_UNKNOWN, ack.status());
+    assertTrue(context.getServerNodeDescriptors().isEmpty());
+  }
+
+  /**
+   * Build the descriptor of a sensor node with one sensor and one actuator.
+   */
+  private static NodeDescriptor greenhouseNode() {
+    return new NodeDescriptor(null, 1,
+        List.of(new NodeDescriptor.SensorDescriptor("temp", "C", -20.0, 80.0)),
+        List.of(new NodeDescriptor.ActuatorDescriptor("fan", 0.0, 0.0, 1.0, "%")),
+        Boolean.FALSE, Boolean.FALSE);
+  }
+
+  /**
+   * Build an ANNOUNCE for a sensor node without sensors or actuators.
+   */
+  private static SmartFarmingProtocol announce(int requestId, String resumeToken) {
+    NodeDescriptor descriptor = new NodeDescriptor(
+      null, 1, Collections.emptyList(), Collections.emptyList(), Boolean.FALSE, Boolean.FALSE);
+    return new SmartFarmingProtocol(null, new AnnounceBody(requestId, descriptor, resumeToken));
+  }
+
+  /**
+   * Real server context that records the last packet sent to a socket
+   * instead of writing it.
+   */
+  private static class CapturingContext extends ServerContext {
+    private SmartFarmingProtocol lastResponse;
+
+    private CapturingContext() {
+      super();
+    }
+
+    private CapturingContext(long resumeGraceMillis) {
+      super(resumeGraceMillis);
+    }
+
+    @Override
+    public void sendTo(Socket socket, SmartFarmingProtocol packet) {
+      lastResponse = packet;
+    }
+  }
 }
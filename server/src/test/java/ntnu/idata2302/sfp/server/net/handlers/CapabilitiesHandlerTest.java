@@ -1,6 +1,7 @@
 package ntnu.idata2302.sfp.server.net.handlers;
 
 import ntnu.idata2302.sfp.library.SmartFarmingProtocol;
+import ntnu.idata2302.sfp.library.body.capabilities.CapabilitiesDeltaBody;
 import ntnu.idata2302.sfp.library.body.capabilities.CapabilitiesListBody;
 import ntnu.idata2302.sfp.library.body.capabilities.CapabilitiesQueryBody;
 import ntnu.idata2302.sfp.library.header.Header;
@@ -35,7 +36,7 @@ public class CapabilitiesHandlerTest {
    *   <li>Message type {@link MessageTypes#CAPABILITIES_LIST}</li>
    *   <li>Target ID equal to the original request's source ID</li>
    *   <li>Request ID copied from the query body</li>
-   *   <li>Node descriptors taken from {@link ServerContext#getServerNodeDescriptors()}</li>
+   *   <li>Node descriptors of the registered sensor nodes</li>
    * </ul>
    */
   @Test
@@ -59,7 +60,9 @@ public class CapabilitiesHandlerTest {
     SmartFarmingProtocol requestPacket = new SmartFarmingProtocol(requestHeader, requestBody);
 
     List<NodeDescriptor> expectedDescriptors = new ArrayList<NodeDescriptor>();
-    RecordingServerContext context = new RecordingServerContext(expectedDescriptors);
+    expectedDescriptors.add(new NodeDescriptor(0x10000, 1, null, null, null, null));
+    RecordingServerContext context = new RecordingServerContext();
+    context.registerNode(0x10000, expectedDescriptors.get(0), new Socket());
 
     Socket clientSocket = new Socket();
     CapabilitiesHandler handler = new CapabilitiesHandler();
@@ -83,18 +86,20 @@ public class CapabilitiesHandlerTest {
       "Response targetId should match original request sourceId"
     );
 
-    CapabilitiesListBody responseBody = (CapabilitiesListBody) responsePacket.getBody();
+    CapabilitiesListBody responseBody =
+      CapabilitiesListBody.fromCbor(responsePacket.getBody().toCbor());
     Assertions.assertNotNull(responseBody, "Response body should not be null");
     Assertions.assertEquals(
       requestId,
       responseBody.requestId(),
       "Response should copy the requestId from the query body"
     );
-    Assertions.assertSame(
+    Assertions.assertEquals(
       expectedDescriptors,
       responseBody.nodes(),
-      "Response should use the node list provided by ServerContext"
+      "Response should list the registered sensor nodes"
     );
+    Assertions.assertEquals(context.getCapabilities().version(), responseBody.version());
     Assertions.assertSame(
       clientSocket,
       context.getLastSocket(),
@@ -103,6 +108,40 @@ public class CapabilitiesHandlerTest {
   }
 
 
+  /**
+   * Verifies that a query naming the current version gets a not-modified
+   * list, and a query naming an older version gets only the changes.
+   */
+  @Test
+  public void handle_conditionalQuery_answersNotModifiedOrDelta_positive() throws IOException {
+    // Arrange
+    RecordingServerContext context = new RecordingServerContext();
+    context.registerNode(0x10000, new NodeDescriptor(0x10000, 1, null, null, null, null),
+      new Socket());
+    long known = context.getCapabilities().version();
+    CapabilitiesHandler handler = new CapabilitiesHandler();
+
+    // Act
+    handler.handle(query(5, known), new Socket(), context);
+    SmartFarmingProtocol unchanged = context.getLastPacket();
+    NodeDescriptor joined = new NodeDescriptor(0x10001, 1, null, null, null, null);
+    context.registerNode(0x10001, joined, new Socket());
+    handler.handle(query(6, known), new Socket(), context);
+    SmartFarmingProtocol changed = context.getLastPacket();
+
+    // Assert
+    CapabilitiesListBody notModified = (CapabilitiesListBody) unchanged.getBody();
+    Assertions.assertEquals(Boolean.TRUE, notModified.notModified());
+    Assertions.assertNull(notModified.nodes());
+
+    Assertions.assertEquals(MessageTypes.CAPABILITIES_DELTA,
+      changed.getHeader().getMessageType());
+    CapabilitiesDeltaBody delta = (CapabilitiesDeltaBody) changed.getBody();
+    Assertions.assertEquals(6, delta.requestId());
+    Assertions.assertEquals(known, delta.fromVersion());
+    Assertions.assertEquals(List.of(joined), delta.upserted());
+  }
+
   // --------------------------- NEGATIVE TESTS ---------------------------------- //
 
 
@@ -153,25 +192,21 @@ public class CapabilitiesHandlerTest {
     );
   }
 
+  private static SmartFarmingProtocol query(int requestId, long knownVersion) {
+    Header header = new Header(new byte[]{'S', 'F', 'P'}, (byte) 1,
+      MessageTypes.CAPABILITIES_QUERY, 2, 1, 0, UUID.randomUUID());
+    return new SmartFarmingProtocol(header, new CapabilitiesQueryBody(requestId, knownVersion));
+  }
+
   /**
-   * Test double that records the last packet and socket passed to {@link #sendTo(Socket, SmartFarmingProtocol)}
-   * and returns a fixed list of node descriptors from {@link #getServerNodeDescriptors()}.
+   * Test double that records the last packet and socket passed to
+   * {@link #sendTo(Socket, SmartFarmingProtocol)}.
    */
   private static class RecordingServerContext extends ServerContext {
 
-    private final List<NodeDescriptor> descriptors;
     private SmartFarmingProtocol lastPacket;
     private Socket lastSocket;
 
-    RecordingServerContext(List<NodeDescriptor> descriptors) {
-      this.descriptors = descriptors;
-    }
-
-    @Override
-    public List<NodeDescriptor> getServerNodeDescriptors() {
-      return this.descriptors;
-    }
-
     @Override
     public void sendTo(Socket socket, SmartFarmingProtocol packet) throws IOException {
       this.lastSocket = socket;
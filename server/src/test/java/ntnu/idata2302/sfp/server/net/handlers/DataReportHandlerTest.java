@@ -1,12 +1,20 @@
 package ntnu.idata2302.sfp.server.net.handlers;
 
 import ntnu.idata2302.sfp.library.SmartFarmingProtocol;
+import ntnu.idata2302.sfp.library.body.command.CommandBody;
+import ntnu.idata2302.sfp.library.body.data.DataReportBody;
+import ntnu.idata2302.sfp.library.header.Header;
+import ntnu.idata2302.sfp.library.header.MessageTypes;
+import ntnu.idata2302.sfp.library.node.NodeIds;
 import ntnu.idata2302.sfp.server.net.ServerContext;
+import ntnu.idata2302.sfp.server.rules.Rule;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
 import java.net.Socket;
+import java.util.List;
+import java.util.UUID;
 
 /**
  * Unit tests for {@link DataReportHandler}.
@@ -48,6 +56,57 @@ public class DataReportHandlerTest {
     );
   }
 
+  /**
+   * Verifies that the broker's aggregates are attached to a forwarded report
+   * when enabled, and that the report is recorded in the aggregate engine.
+   */
+  @Test
+  public void handle_attachAggregates_addsBrokerAggregates_positive() throws IOException {
+    // Arrange
+    RecordingServerContext context = new RecordingServerContext();
+    Header header = new Header(new byte[]{'S', 'F', 'P'}, (byte) 1, MessageTypes.DATA_REPORT,
+        0x10000, 0, 0, UUID.randomUUID());
+    DataReportBody report = new DataReportBody(List.of(
+        new DataReportBody.SensorReading("temp", 21.0, null, null, null, null)), null, null);
+
+    // Act
+    new DataReportHandler(true).handle(new SmartFarmingProtocol(header, report), null, context);
+
+    // Assert
+    DataReportBody forwarded = (DataReportBody) context.getLastForwarded().getBody();
+    Assertions.assertEquals(report.sensors(), forwarded.sensors());
+    Assertions.assertFalse(forwarded.aggregates().isEmpty());
+    Assertions.assertEquals(21.0, forwarded.aggregates().get(0).avg());
+  }
+
+  /**
+   * Verifies that a report crossing a rule threshold sends a COMMAND from the
+   * server to the reporting node.
+   */
+  @Test
+  public void handle_ruleTriggered_sendsCommandToNode_positive() throws IOException {
+    // Arrange
+    RecordingServerContext context = new RecordingServerContext();
+    context.getRules().add(Rule.parse("hot: if temp > 30 on 0x10000 set FAN 80"));
+    Header header = new Header(new byte[]{'S', 'F', 'P'}, (byte) 1, MessageTypes.DATA_REPORT,
+        0x10000, 0, 0, UUID.randomUUID());
+    DataReportBody report = new DataReportBody(List.of(
+        new DataReportBody.SensorReading("temp", 31.0, null, null, null, null)), null, null);
+
+    // Act
+    new DataReportHandler().handle(new SmartFarmingProtocol(header, report), null, context);
+
+    // Assert
+    SmartFarmingProtocol command = context.lastSent;
+    Assertions.assertNotNull(command, "Rule should have sent a COMMAND");
+    Assertions.assertEquals(MessageTypes.COMMAND, command.getHeader().getMessageType());
+    Assertions.assertEquals(NodeIds.SERVER, command.getHeader().getSourceId());
+    Assertions.assertEquals(0x10000, command.getHeader().getTargetId());
+    Assertions.assertEquals(List.of(new CommandBody.CommandPart("FAN", 80)),
+        ((CommandBody) command.getBody()).actuators());
+    Assertions.assertEquals(1, context.getCallCount());
+  }
+
   // --------------------------- NEGATIVE TESTS ---------------------------------- //
 
   /**
@@ -89,8 +148,14 @@ public class DataReportHandlerTest {
   private static class RecordingServerContext extends ServerContext {
 
     private SmartFarmingProtocol lastForwarded;
+    private SmartFarmingProtocol lastSent;
     private int callCount;
 
+    @Override
+    public void sendTo(SmartFarmingProtocol packet) {
+      this.lastSent = packet;
+    }
+
     @Override
     public void sendToSubscribers(SmartFarmingProtocol packet) {
       this.lastForwarded = packet;
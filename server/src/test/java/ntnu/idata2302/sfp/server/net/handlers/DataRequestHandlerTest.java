@@ -0,0 +1,199 @@
+package ntnu.idata2302.sfp.server.net.handlers;
+
+import ntnu.idata2302.sfp.library.SmartFarmingProtocol;
+import ntnu.idata2302.sfp.library.body.data.DataReportBody;
+import ntnu.idata2302.sfp.library.body.data.DataRequestBody;
+import ntnu.idata2302.sfp.library.header.Header;
+import ntnu.idata2302.sfp.library.header.MessageTypes;
+import ntnu.idata2302.sfp.server.net.ServerContext;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.net.Socket;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Unit tests for {@link DataRequestHandler}.
+ *
+ * <b>Positive Tests:</b>
+ * <ul>
+ *   <li>A request for cached metrics is answered by the server on behalf of the node.</li>
+ *   <li>A request without sections returns the full cached state.</li>
+ *   <li>An aggregate section is answered from the broker's aggregate engine.</li>
+ * </ul>
+ *
+ * <b>Negative Tests:</b>
+ * <ul>
+ *   <li>A request for a node without cached state is forwarded to the node.</li>
+ *   <li>A request for an uncached metric, for aggregates the broker does not have,
+ *       or for an unknown period is forwarded to the node.</li>
+ * </ul>
+ */
+public class DataRequestHandlerTest {
+
+  private static final int CP_ID = 2;
+  private static final int SN_ID = 0x10000;
+
+  // --------------------------- POSITIVE TESTS ---------------------------------- //
+
+  /**
+   * Verifies that cached metrics are returned to the requester as a DATA_REPORT
+   * from the sensor node, without contacting the node.
+   */
+  @Test
+  public void handle_cachedMetrics_answeredFromCache_positive() throws Exception {
+    // Arrange
+    RecordingServerContext context = new RecordingServerContext();
+    context.getLastValueCache().update(SN_ID, cachedReport());
+    DataRequestBody body = new DataRequestBody("r1",
+        new DataRequestBody.SensorSection(List.of("hum"), null, null), null, null);
+
+    // Act
+    new DataRequestHandler().handle(request(body), null, context);
+
+    // Assert
+    Assertions.assertNull(context.forwarded, "Request should not reach the node");
+    Header header = context.answer.getHeader();
+    Assertions.assertEquals(MessageTypes.DATA_REPORT, header.getMessageType());
+    Assertions.assertEquals(SN_ID, header.getSourceId());
+    Assertions.assertEquals(CP_ID, header.getTargetId());
+    DataReportBody answer = (DataReportBody) context.answer.getBody();
+    Assertions.assertEquals(1, answer.sensors().size());
+    Assertions.assertEquals("hum", answer.sensors().get(0).id());
+    Assertions.assertNull(answer.actuators());
+  }
+
+  /**
+   * Verifies that an empty request returns every cached reading and state.
+   */
+  @Test
+  public void handle_emptyRequest_returnsFullState_positive() throws Exception {
+    // Arrange
+    RecordingServerContext context = new RecordingServerContext();
+    context.getLastValueCache().update(SN_ID, cachedReport());
+
+    // Act
+    new DataRequestHandler().handle(
+        request(new DataRequestBody("r2", null, null, null)), null, context);
+
+    // Assert
+    DataReportBody answer = (DataReportBody) context.answer.getBody();
+    Assertions.assertEquals(cachedReport().sensors(), answer.sensors());
+    Assertions.assertEquals(cachedReport().actuators(), answer.actuators());
+  }
+
+  /**
+   * Verifies that aggregates are computed by the broker for the requested
+   * metrics, periods and types.
+   */
+  @Test
+  public void handle_aggregateSection_answeredFromEngine_positive() throws Exception {
+    // Arrange
+    RecordingServerContext context = new RecordingServerContext();
+    long now = System.currentTimeMillis();
+    context.getLastValueCache().update(SN_ID, cachedReport());
+    context.getAggregateEngine().record(SN_ID, cachedReport(), now - 2_000);
+    context.getAggregateEngine().record(SN_ID, new DataReportBody(List.of(
+        new DataReportBody.SensorReading("temp", 25.0, null, null, null, null)),
+        null, null), now - 1_000);
+    SmartFarmingProtocol request = request(new DataRequestBody("r6",
+        new DataRequestBody.SensorSection(List.of("temp"), Boolean.TRUE,
+            new DataRequestBody.SensorAggregateSection(null, List.of("1h"), List.of("max", "avg"))),
+        null, null));
+
+    // Act
+    new DataRequestHandler().handle(request, null, context);
+
+    // Assert
+    Assertions.assertNull(context.forwarded);
+    DataReportBody body = (DataReportBody) context.answer.getBody();
+    Assertions.assertEquals(List.of(new DataReportBody.AggregateValue("temp", "1h", null, 25.0, 23.0)),
+        body.aggregates());
+    Assertions.assertEquals("temp", body.sensors().get(0).id());
+  }
+
+  // --------------------------- NEGATIVE TESTS ---------------------------------- //
+
+  /**
+   * Verifies that a request for a node that never reported goes to the node.
+   */
+  @Test
+  public void handle_nothingCached_forwardsToNode_negative() throws Exception {
+    // Arrange
+    RecordingServerContext context = new RecordingServerContext();
+    SmartFarmingProtocol request = request(new DataRequestBody("r3", null, null, null));
+
+    // Act
+    new DataRequestHandler().handle(request, null, context);
+
+    // Assert
+    Assertions.assertSame(request, context.forwarded);
+    Assertions.assertNull(context.answer);
+  }
+
+  /**
+   * Verifies that requests the cache cannot fully answer go to the node.
+   */
+  @Test
+  public void handle_uncachedMetricOrAggregates_forwardsToNode_negative() throws Exception {
+    // Arrange
+    RecordingServerContext context = new RecordingServerContext();
+    context.getLastValueCache().update(SN_ID, cachedReport());
+    SmartFarmingProtocol unknownMetric = request(new DataRequestBody("r4",
+        new DataRequestBody.SensorSection(List.of("co2"), null, null), null, null));
+    SmartFarmingProtocol aggregates = request(new DataRequestBody("r5",
+        new DataRequestBody.SensorSection(null, Boolean.TRUE, null), null, null));
+
+    // Act & Assert
+    new DataRequestHandler().handle(unknownMetric, null, context);
+    Assertions.assertSame(unknownMetric, context.forwarded);
+
+    new DataRequestHandler().handle(aggregates, null, context);
+    Assertions.assertSame(aggregates, context.forwarded);
+    Assertions.assertNull(context.answer);
+
+    context.getAggregateEngine().record(SN_ID, cachedReport(), System.currentTimeMillis());
+    SmartFarmingProtocol badPeriod = request(new DataRequestBody("r7",
+        new DataRequestBody.SensorSection(null, null,
+            new DataRequestBody.SensorAggregateSection(null, List.of("fortnight"), null)),
+        null, null));
+    new DataRequestHandler().handle(badPeriod, null, context);
+    Assertions.assertSame(badPeriod, context.forwarded);
+    Assertions.assertNull(context.answer);
+  }
+
+  // =========================================================================== //
+  // Helpers and Test Doubles
+  // =========================================================================== //
+
+  private static SmartFarmingProtocol request(DataRequestBody body) {
+    Header header = new Header(new byte[]{'S', 'F', 'P'}, (byte) 1, MessageTypes.DATA_REQUEST,
+        CP_ID, SN_ID, 0, UUID.randomUUID());
+    return new SmartFarmingProtocol(header, body);
+  }
+
+  private static DataReportBody cachedReport() {
+    return new DataReportBody(
+        List.of(
+            new DataReportBody.SensorReading("temp", 21.0, 0.0, 50.0, "C", "0"),
+            new DataReportBody.SensorReading("hum", 45.0, 0.0, 100.0, "%", "0")),
+        List.of(new DataReportBody.ActuatorState("FAN", 1.0, 0.0, 1.0, "on/off", "0")),
+        null);
+  }
+
+  private static class RecordingServerContext extends ServerContext {
+    private SmartFarmingProtocol forwarded;
+    private SmartFarmingProtocol answer;
+
+    @Override
+    public void sendTo(SmartFarmingProtocol packet) {
+      forwarded = packet;
+    }
+
+    @Override
+    public void sendTo(Socket socket, SmartFarmingProtocol packet) {
+      answer = packet;
+    }
+  }
+}
@@ -1,16 +1,21 @@
 package ntnu.idata2302.sfp.server.net.handlers;
 
 import ntnu.idata2302.sfp.library.SmartFarmingProtocol;
+import ntnu.idata2302.sfp.library.body.command.CommandAckBody;
+import ntnu.idata2302.sfp.library.body.command.CommandBody;
 import ntnu.idata2302.sfp.library.body.error.ErrorBody;
 import ntnu.idata2302.sfp.library.header.Header;
 import ntnu.idata2302.sfp.library.header.MessageTypes;
+import ntnu.idata2302.sfp.library.node.NodeDescriptor;
 import ntnu.idata2302.sfp.library.node.NodeIds;
+import ntnu.idata2302.sfp.server.command.CommandTracker;
 import ntnu.idata2302.sfp.server.net.ServerContext;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
 import java.net.Socket;
+import java.util.List;
 import java.util.UUID;
 
 /**
@@ -18,7 +23,8 @@ import java.util.UUID;
  *
  * <p>These tests verify that packets are forwarded to their target node,
  * and that packets targeting the server (COMMAND / COMMAND_ACK / ERROR)
- * are handled locally and not forwarded.</p>
+ * are handled locally and not forwarded. A COMMAND that cannot reach its
+ * target is answered with an immediate error.</p>
  */
 public class ForwardPacketHandlerTest {
 
@@ -133,6 +139,40 @@ public class ForwardPacketHandlerTest {
     );
   }
 
+  /**
+   * Verifies that a forwarded COMMAND is tracked until its COMMAND_ACK is
+   * forwarded back, and that the round trip is recorded for the node.
+   */
+  @Test
+  public void handle_commandAndAck_correlated_positive() throws Exception {
+    // Arrange
+    int cpId = 0x20000;
+    int nodeId = 0x10000;
+    SmartFarmingProtocol command = new SmartFarmingProtocol(
+        new Header(new byte[]{'S', 'F', 'P'}, (byte) 1, MessageTypes.COMMAND, cpId, nodeId, 0,
+            UUID.randomUUID()),
+        new CommandBody(3, List.of(new CommandBody.CommandPart("FAN", 50))));
+    SmartFarmingProtocol ack = new SmartFarmingProtocol(
+        new Header(new byte[]{'S', 'F', 'P'}, (byte) 1, MessageTypes.COMMAND_ACK, nodeId, cpId, 0,
+            UUID.randomUUID()),
+        new CommandAckBody(3, 1, "OK"));
+    RecordingServerContext context = new RecordingServerContext();
+    context.registerNode(nodeId, new NodeDescriptor(nodeId, 1, null, null, null, null),
+        new Socket());
+    ForwardPacketHandler handler = new ForwardPacketHandler();
+
+    // Act
+    handler.handle(command, null, context);
+    int inFlight = context.getCommandTracker().inFlight();
+    handler.handle(ack, null, context);
+
+    // Assert
+    Assertions.assertEquals(1, inFlight);
+    Assertions.assertEquals(0, context.getCommandTracker().inFlight());
+    Assertions.assertEquals(1, context.getCommandTracker().latency(nodeId).count());
+    Assertions.assertEquals(2, context.getCallCount(), "Both packets are still forwarded");
+  }
+
   // --------------------------- NEGATIVE TESTS ---------------------------------- //
 
   /**
@@ -175,6 +215,61 @@ public class ForwardPacketHandlerTest {
     );
   }
 
+  /**
+   * Verifies that a COMMAND to a node that is not connected is not tracked
+   * until it times out, but answered with NODE_NOT_FOUND right away.
+   */
+  @Test
+  public void handle_commandToUnconnectedNode_failsImmediately_negative() throws Exception {
+    // Arrange
+    int cpId = 0x20000;
+    int nodeId = 0x10000;
+    SmartFarmingProtocol command = new SmartFarmingProtocol(
+        new Header(new byte[]{'S', 'F', 'P'}, (byte) 1, MessageTypes.COMMAND, cpId, nodeId, 0,
+            UUID.randomUUID()),
+        new CommandBody(4, List.of(new CommandBody.CommandPart("FAN", 50))));
+    RecordingServerContext context = new RecordingServerContext();
+    ForwardPacketHandler handler = new ForwardPacketHandler();
+
+    // Act
+    handler.handle(command, null, context);
+
+    // Assert
+    Assertions.assertEquals(0, context.getCallCount(), "Nothing is forwarded");
+    Assertions.assertEquals(0, context.getCommandTracker().inFlight());
+    Assertions.assertEquals(0, context.getCommandTracker().timeouts());
+    Assertions.assertEquals(cpId, context.replyTo);
+    Assertions.assertEquals(nodeId, context.reply.getHeader().getSourceId());
+    Assertions.assertEquals(CommandTracker.ERROR_NODE_NOT_FOUND,
+        ((ErrorBody) context.reply.getBody()).errorCode());
+  }
+
+  /**
+   * Verifies that a COMMAND whose write to the target fails is no longer
+   * tracked and does not propagate the target's IOException to the issuer.
+   */
+  @Test
+  public void handle_commandWriteFails_failsImmediately_negative() throws Exception {
+    // Arrange
+    int cpId = 0x20000;
+    int nodeId = 0x10000;
+    SmartFarmingProtocol command = new SmartFarmingProtocol(
+        new Header(new byte[]{'S', 'F', 'P'}, (byte) 1, MessageTypes.COMMAND, cpId, nodeId, 0,
+            UUID.randomUUID()),
+        new CommandBody(5, List.of(new CommandBody.CommandPart("FAN", 50))));
+    FailingServerContext context = new FailingServerContext();
+    context.registerNode(nodeId, new NodeDescriptor(nodeId, 1, null, null, null, null),
+        new Socket());
+    ForwardPacketHandler handler = new ForwardPacketHandler();
+
+    // Act
+    handler.handle(command, null, context);
+
+    // Assert
+    Assertions.assertEquals(0, context.getCommandTracker().inFlight());
+    Assertions.assertEquals(0, context.getCommandTracker().timeouts());
+  }
+
   /**
    * Test double for {@link ServerContext} that records calls to
    * {@link #sendTo(SmartFarmingProtocol)}.
@@ -183,6 +278,8 @@ public class ForwardPacketHandlerTest {
 
     private SmartFarmingProtocol lastPacket;
     private int callCount;
+    private int replyTo;
+    private SmartFarmingProtocol reply;
 
     @Override
     public void sendTo(SmartFarmingProtocol packet) throws IOException {
@@ -190,6 +287,12 @@ public class ForwardPacketHandlerTest {
       this.callCount = this.callCount + 1;
     }
 
+    @Override
+    public void sendTo(int nodeId, SmartFarmingProtocol packet) {
+      this.replyTo = nodeId;
+      this.reply = packet;
+    }
+
     SmartFarmingProtocol getLastPacket() {
       return this.lastPacket;
     }
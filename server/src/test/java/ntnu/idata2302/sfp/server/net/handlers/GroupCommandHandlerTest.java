@@ -0,0 +1,176 @@
+package ntnu.idata2302.sfp.server.net.handlers;
+
+import ntnu.idata2302.sfp.library.SmartFarmingProtocol;
+import ntnu.idata2302.sfp.library.body.command.CommandAckBody;
+import ntnu.idata2302.sfp.library.body.command.CommandBody;
+import ntnu.idata2302.sfp.library.body.command.GroupCommandBody;
+import ntnu.idata2302.sfp.library.body.command.GroupCommandResultBody;
+import ntnu.idata2302.sfp.library.header.Header;
+import ntnu.idata2302.sfp.library.header.MessageTypes;
+import ntnu.idata2302.sfp.library.node.NodeDescriptor;
+import ntnu.idata2302.sfp.library.node.NodeIds;
+import ntnu.idata2302.sfp.server.net.ServerContext;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Unit tests for {@link GroupCommandHandler}.
+ *
+ * <b>Positive Tests:</b>
+ * <ul>
+ *   <li>Listed nodes each get one COMMAND with a shared request id, and their
+ *       acknowledgements produce one aggregated result.</li>
+ *   <li>An actuator type alone selects every node having that actuator.</li>
+ * </ul>
+ *
+ * <b>Negative Tests:</b>
+ * <ul>
+ *   <li>A group command without targets is answered at once with status 0.</li>
+ * </ul>
+ */
+public class GroupCommandHandlerTest {
+
+  private static final int CP = 0x20000;
+  private static final List<CommandBody.CommandPart> HEAT =
+      List.of(new CommandBody.CommandPart("HEATER", 21.0));
+
+  // --------------------------- POSITIVE TESTS ---------------------------------- //
+
+  /**
+   * Verifies that every connected target gets the same COMMAND, an unknown
+   * target is reported as not connected, and the acknowledgements complete
+   * the group command with one result to the issuer.
+   */
+  @Test
+  public void handle_listedNodes_fansOutAndAggregatesAcks_positive() throws Exception {
+    // Arrange
+    RecordingServerContext context = new RecordingServerContext();
+    context.registerNode(0x10000, sensorNode(0x10000, "HEATER"), new Socket());
+    context.registerNode(0x10001, sensorNode(0x10001, "FAN"), new Socket());
+    GroupCommandBody request =
+        new GroupCommandBody(5, List.of(0x10000, 0x10001, 0x10099), null, null, HEAT, 10_000);
+
+    // Act
+    new GroupCommandHandler().handle(packet(request), null, context);
+    int commandId = context.frames.get(0x10000).requestId();
+    ForwardPacketHandler acks = new ForwardPacketHandler();
+    acks.handle(ack(0x10000, commandId, 1), null, context);
+    acks.handle(ack(0x10001, commandId, 0), null, context);
+
+    // Assert
+    Assertions.assertEquals(List.of(0x10000, 0x10001), List.copyOf(context.frames.keySet()));
+    Assertions.assertEquals(commandId, context.frames.get(0x10001).requestId());
+    Assertions.assertEquals(HEAT, context.frames.get(0x10001).actuators());
+    Assertions.assertEquals(1, context.results.size(), "Exactly one result is sent");
+    SmartFarmingProtocol result = context.results.get(0);
+    Assertions.assertEquals(MessageTypes.GROUP_COMMAND_RESULT,
+        result.getHeader().getMessageType());
+    Assertions.assertEquals(CP, result.getHeader().getTargetId());
+    GroupCommandResultBody body = (GroupCommandResultBody) result.getBody();
+    Assertions.assertEquals(5, body.requestId());
+    Assertions.assertEquals(0, body.status());
+    Assertions.assertEquals(List.of(
+        new GroupCommandResultBody.NodeResult(0x10000, 1, "OK"),
+        new GroupCommandResultBody.NodeResult(0x10001, 0, "OK"),
+        new GroupCommandResultBody.NodeResult(0x10099,
+            GroupCommandResultBody.STATUS_NOT_CONNECTED, null)), body.results());
+    Assertions.assertEquals(0, context.getGroupCommands().size());
+  }
+
+  /**
+   * Verifies that an actuator type without listed nodes or group targets
+   * exactly the nodes having that actuator.
+   */
+  @Test
+  public void handle_actuatorTypeOnly_targetsNodesWithActuator_positive() throws Exception {
+    // Arrange
+    RecordingServerContext context = new RecordingServerContext();
+    context.registerNode(0x10000, sensorNode(0x10000, "HEATER"), new Socket());
+    context.registerNode(0x10001, sensorNode(0x10001, "FAN"), new Socket());
+    context.registerNode(0x10002, sensorNode(0x10002, "HEATER"), new Socket());
+    GroupCommandBody request = new GroupCommandBody(6, null, null, "HEATER", HEAT, null);
+
+    // Act
+    new GroupCommandHandler().handle(packet(request), null, context);
+
+    // Assert
+    Assertions.assertEquals(List.of(0x10000, 0x10002), List.copyOf(context.frames.keySet()));
+    Assertions.assertEquals(1, context.getGroupCommands().size());
+  }
+
+  // --------------------------- NEGATIVE TESTS ---------------------------------- //
+
+  /**
+   * Verifies that a group command matching no node is answered immediately
+   * with status 0 and nothing is sent or tracked.
+   */
+  @Test
+  public void handle_noTargets_answersImmediately_negative() throws Exception {
+    // Arrange
+    RecordingServerContext context = new RecordingServerContext();
+    GroupCommandBody request = new GroupCommandBody(7, null, null, "HEATER", HEAT, null);
+
+    // Act
+    new GroupCommandHandler().handle(packet(request), null, context);
+
+    // Assert
+    Assertions.assertTrue(context.frames.isEmpty());
+    Assertions.assertEquals(0, context.getGroupCommands().size());
+    GroupCommandResultBody body = (GroupCommandResultBody) context.results.get(0).getBody();
+    Assertions.assertEquals(7, body.requestId());
+    Assertions.assertEquals(0, body.status());
+    Assertions.assertTrue(body.results().isEmpty());
+  }
+
+  private static NodeDescriptor sensorNode(int nodeId, String actuator) {
+    return new NodeDescriptor(nodeId, 1, List.of(),
+        List.of(new NodeDescriptor.ActuatorDescriptor(actuator, 0.0, 0.0, 100.0, "%")),
+        false, false);
+  }
+
+  private static SmartFarmingProtocol packet(GroupCommandBody body) {
+    return new SmartFarmingProtocol(new Header(new byte[]{'S', 'F', 'P'}, (byte) 1,
+        MessageTypes.GROUP_COMMAND, CP, NodeIds.SERVER, 0, UUID.randomUUID()), body);
+  }
+
+  private static SmartFarmingProtocol ack(int nodeId, int requestId, int status) {
+    return new SmartFarmingProtocol(new Header(new byte[]{'S', 'F', 'P'}, (byte) 1,
+        MessageTypes.COMMAND_ACK, nodeId, NodeIds.SERVER, 0, UUID.randomUUID()),
+        new CommandAckBody(requestId, status, "OK"));
+  }
+
+  /**
+   * Test double for {@link ServerContext} that decodes the COMMAND frames it
+   * is asked to write and records the packets it sends.
+   */
+  private static class RecordingServerContext extends ServerContext {
+
+    private final Map<Integer, CommandBody> frames = new TreeMap<>();
+    private final List<SmartFarmingProtocol> results = new ArrayList<>();
+
+    @Override
+    public void sendFrame(int nodeId, byte[] frame) {
+      SmartFarmingProtocol packet = SmartFarmingProtocol.fromBytes(frame);
+      Assertions.assertEquals(MessageTypes.COMMAND, packet.getHeader().getMessageType());
+      Assertions.assertEquals(nodeId, packet.getHeader().getTargetId());
+      frames.put(nodeId, (CommandBody) packet.getBody());
+    }
+
+    @Override
+    public void sendTo(SmartFarmingProtocol packet) {
+      results.add(packet);
+    }
+
+    @Override
+    public void sendTo(Socket socket, SmartFarmingProtocol packet) {
+      results.add(packet);
+    }
+  }
+}
@@ -0,0 +1,113 @@
+package ntnu.idata2302.sfp.server.net.handlers;
+
+import ntnu.idata2302.sfp.library.SmartFarmingProtocol;
+import ntnu.idata2302.sfp.library.body.data.DataReportBody;
+import ntnu.idata2302.sfp.library.body.history.HistoryQueryBody;
+import ntnu.idata2302.sfp.library.body.history.HistoryResultBody;
+import ntnu.idata2302.sfp.library.header.Header;
+import ntnu.idata2302.sfp.library.header.MessageTypes;
+import ntnu.idata2302.sfp.server.net.ServerContext;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Unit tests for {@link HistoryQueryHandler}.
+ *
+ * <b>Positive Tests:</b>
+ * <ul>
+ *   <li>A result larger than one chunk is streamed in numbered chunks, the last one marked.</li>
+ * </ul>
+ *
+ * <b>Negative Tests:</b>
+ * <ul>
+ *   <li>A query for a node without history gets a single empty last chunk.</li>
+ * </ul>
+ */
+public class HistoryQueryHandlerTest {
+
+  private static final int CP_ID = 2;
+  private static final int SN_ID = 0x10000;
+
+  // --------------------------- POSITIVE TESTS ---------------------------------- //
+
+  /**
+   * Verifies chunking of a result spanning several HISTORY_RESULT packets.
+   */
+  @Test
+  public void handle_largeResult_isStreamedInChunks_positive() throws Exception {
+    // Arrange
+    RecordingServerContext context = new RecordingServerContext();
+    int samples = HistoryQueryHandler.CHUNK_POINTS + 10;
+    for (int t = 0; t < samples; t++) {
+      context.getHistoryStore().record(SN_ID, new DataReportBody(
+          List.of(new DataReportBody.SensorReading("temp", (double) t, null, null, null, null)),
+          null, null), t);
+    }
+
+    // Act
+    new HistoryQueryHandler().handle(query(null), null, context);
+
+    // Assert
+    Assertions.assertEquals(2, context.sent.size());
+    HistoryResultBody first = (HistoryResultBody) context.sent.get(0).getBody();
+    HistoryResultBody second = (HistoryResultBody) context.sent.get(1).getBody();
+    Assertions.assertEquals(MessageTypes.HISTORY_RESULT,
+        context.sent.get(0).getHeader().getMessageType());
+    Assertions.assertEquals(CP_ID, context.sent.get(0).getHeader().getTargetId());
+    Assertions.assertEquals(0, first.chunk());
+    Assertions.assertFalse(first.last());
+    Assertions.assertEquals(HistoryQueryHandler.CHUNK_POINTS,
+        first.series().get(0).timestamps().length);
+    Assertions.assertEquals(1, second.chunk());
+    Assertions.assertTrue(second.last());
+    Assertions.assertEquals(10, second.series().get(0).values().length);
+    Assertions.assertEquals(HistoryQueryHandler.CHUNK_POINTS,
+        second.series().get(0).timestamps()[0]);
+  }
+
+  // --------------------------- NEGATIVE TESTS ---------------------------------- //
+
+  /**
+   * Verifies that an unknown node yields one empty, final chunk.
+   */
+  @Test
+  public void handle_unknownNode_sendsEmptyLastChunk_negative() throws Exception {
+    // Arrange
+    RecordingServerContext context = new RecordingServerContext();
+
+    // Act
+    new HistoryQueryHandler().handle(query(List.of("temp")), null, context);
+
+    // Assert
+    Assertions.assertEquals(1, context.sent.size());
+    HistoryResultBody only = (HistoryResultBody) context.sent.get(0).getBody();
+    Assertions.assertTrue(only.last());
+    Assertions.assertTrue(only.series().isEmpty());
+    Assertions.assertEquals(9, only.requestId());
+  }
+
+  // =========================================================================== //
+  // Helpers and Test Doubles
+  // =========================================================================== //
+
+  private static SmartFarmingProtocol query(List<String> sensors) {
+    Header header = new Header(new byte[]{'S', 'F', 'P'}, (byte) 1, MessageTypes.HISTORY_QUERY,
+        CP_ID, 1, 0, UUID.randomUUID());
+    return new SmartFarmingProtocol(header,
+        new HistoryQueryBody(9, SN_ID, sensors, null, null, null));
+  }
+
+  private static class RecordingServerContext extends ServerContext {
+    private final List<SmartFarmingProtocol> sent = new ArrayList<>();
+
+    @Override
+    public void sendTo(Socket socket, SmartFarmingProtocol packet) {
+      sent.add(packet);
+    }
+  }
+}
@@ -1,10 +1,12 @@
 package ntnu.idata2302.sfp.server.net.handlers;
 
 import ntnu.idata2302.sfp.library.SmartFarmingProtocol;
+import ntnu.idata2302.sfp.library.body.data.DataReportBody;
 import ntnu.idata2302.sfp.library.body.subscribe.SubscribeAckBody;
 import ntnu.idata2302.sfp.library.body.subscribe.SubscribeBody;
 import ntnu.idata2302.sfp.library.header.Header;
 import ntnu.idata2302.sfp.library.header.MessageTypes;
+import ntnu.idata2302.sfp.library.node.NodeDescriptor;
 import ntnu.idata2302.sfp.server.entity.Subscription;
 import ntnu.idata2302.sfp.server.net.ServerContext;
 import org.junit.jupiter.api.Assertions;
@@ -12,6 +14,7 @@ import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
 import java.net.Socket;
+import java.util.List;
 import java.util.UUID;
 
 public class SubscribeHandlerTest {
@@ -97,6 +100,70 @@ public class SubscribeHandlerTest {
     Assertions.assertEquals(200, context.getLastSensorNodeId());
   }
 
+  /**
+   * Verifies that a subscriber receives the sensor node's cached state right
+   * after the SUBSCRIBE_ACK.
+   */
+  @Test
+  public void handle_cachedState_sendsSnapshotAfterAck_positive() throws IOException {
+    // Arrange
+    int cpId = 2;
+    int sensorNodeId = 0x10000;
+    RecordingServerContext context = new RecordingServerContext();
+    DataReportBody cached = new DataReportBody(
+      List.of(new DataReportBody.SensorReading("temp", 21.0, 0.0, 50.0, "C", "0")), null, null);
+    context.getLastValueCache().update(sensorNodeId, cached);
+
+    Header header = new Header(new byte[]{'S','F','P'}, (byte)1, MessageTypes.SUBSCRIBE,
+      cpId, 1, 0, UUID.randomUUID());
+    SmartFarmingProtocol request =
+      new SmartFarmingProtocol(header, new SubscribeBody(3, sensorNodeId));
+
+    // Act
+    new SubscribeHandler().handle(request, null, context);
+
+    // Assert: the last packet sent is the snapshot
+    SmartFarmingProtocol snapshot = context.getLastSentPacket();
+    Assertions.assertEquals(MessageTypes.DATA_REPORT, snapshot.getHeader().getMessageType());
+    Assertions.assertEquals(sensorNodeId, snapshot.getHeader().getSourceId());
+    Assertions.assertEquals(cpId, snapshot.getHeader().getTargetId());
+    Assertions.assertEquals(cached, snapshot.getBody());
+  }
+
+  /**
+   * Verifies that a bulk SUBSCRIBE stores every registered sensor node at once
+   * and answers with one ack whose bitmap skips the unknown node.
+   */
+  @Test
+  public void handle_bulk_subscribesKnownNodesAndSendsOneAck_positive() throws IOException {
+    // Arrange
+    int cpId = 2;
+    RecordingServerContext context = new RecordingServerContext();
+    context.registerNode(0x10000, new NodeDescriptor(0x10000, 1, null, null, null, null),
+      new Socket());
+    context.registerNode(0x10001, new NodeDescriptor(0x10001, 1, null, null, null, null),
+      new Socket());
+
+    Header header = new Header(new byte[]{'S','F','P'}, (byte)1, MessageTypes.SUBSCRIBE,
+      cpId, 1, 0, UUID.randomUUID());
+    SmartFarmingProtocol request = new SmartFarmingProtocol(header,
+      SubscribeBody.toNodes(4, List.of(0x10000, 0x10005, 0x10001)));
+
+    // Act
+    new SubscribeHandler().handle(request, null, context);
+
+    // Assert
+    SubscribeAckBody ack = (SubscribeAckBody) context.getLastSentPacket().getBody();
+    Assertions.assertEquals(4, ack.requestId());
+    Assertions.assertEquals(0, ack.status());
+    Assertions.assertTrue(ack.isAccepted(0));
+    Assertions.assertFalse(ack.isAccepted(1));
+    Assertions.assertTrue(ack.isAccepted(2));
+    Assertions.assertEquals(List.of(cpId), context.getSubscribersForSensorNode(0x10000));
+    Assertions.assertEquals(List.of(cpId), context.getSubscribersForSensorNode(0x10001));
+    Assertions.assertTrue(context.getSubscribersForSensorNode(0x10005).isEmpty());
+  }
+
   // --------------------------- NEGATIVE TESTS ---------------------------------- //
 
   @Test
@@ -1,16 +1,21 @@
 package ntnu.idata2302.sfp.server.net.handlers;
 
 import ntnu.idata2302.sfp.library.SmartFarmingProtocol;
+import ntnu.idata2302.sfp.library.body.data.DataReportBody;
 import ntnu.idata2302.sfp.library.body.subscribe.SubscribeAckBody;
 import ntnu.idata2302.sfp.library.body.subscribe.UnsubscribeBody;
 import ntnu.idata2302.sfp.library.header.Header;
 import ntnu.idata2302.sfp.library.header.MessageTypes;
+import ntnu.idata2302.sfp.library.node.NodeDescriptor;
+import ntnu.idata2302.sfp.server.entity.Subscription;
 import ntnu.idata2302.sfp.server.net.ServerContext;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
 import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 
 /**
@@ -83,6 +88,43 @@ public class UnsubscribeHandlerTest {
     Assertions.assertEquals(1, ack.status(), "Ack status should normally be 1 for success");
   }
 
+  /**
+   * Verifies that unsubscribing from a node covered by a wildcard subscription
+   * stops its DATA_REPORTs, while other nodes are still delivered, and that
+   * subscribing to the wildcard again brings the node back.
+   */
+  @Test
+  public void handle_nodeUnderWildcard_stopsItsReports_positive() throws IOException {
+    // Arrange
+    int cpId = 10;
+    FrameRecordingContext context = new FrameRecordingContext();
+    context.registerNode(5, new NodeDescriptor(5, 1, null, null, null, null), new Socket());
+    context.registerNode(6, new NodeDescriptor(6, 1, null, null, null, null), new Socket());
+    context.registerNode(cpId, new NodeDescriptor(cpId, 0, null, null, null, null), new Socket());
+    context.subscribeGroup(new Subscription(cpId, 0), "*");
+    Header requestHeader = new Header(new byte[]{'S', 'F', 'P'}, (byte) 1,
+      MessageTypes.UNSUBSCRIBE, cpId, 0, 0, UUID.randomUUID());
+
+    // Act
+    new UnSubscribeHandler().handle(
+      new SmartFarmingProtocol(requestHeader, new UnsubscribeBody(1, 5)), null, context);
+    context.sendToSubscribers(report(5));
+    context.sendToSubscribers(report(6));
+    List<Integer> afterUnsubscribe = List.copyOf(context.reportSources);
+    List<Integer> subscribersOfExcluded = context.getSubscribersForSensorNode(5);
+    context.subscribeGroup(new Subscription(cpId, 0), "*");
+    context.sendToSubscribers(report(5));
+
+    // Assert
+    Assertions.assertEquals(1, ((SubscribeAckBody) context.getLastSentPacket().getBody()).status());
+    Assertions.assertEquals(List.of(6), afterUnsubscribe,
+      "No DATA_REPORT of the unsubscribed node may reach the control panel");
+    Assertions.assertTrue(subscribersOfExcluded.isEmpty());
+    Assertions.assertEquals(List.of(cpId), context.getSubscribersForSensorNode(6));
+    Assertions.assertEquals(List.of(6, 5), context.reportSources,
+      "Subscribing to the wildcard again should deliver the node again");
+  }
+
   // --------------------------- NEGATIVE TESTS ---------------------------------- //
 
   @Test
@@ -163,6 +205,39 @@ public class UnsubscribeHandlerTest {
     }
   }
 
+  private static SmartFarmingProtocol report(int sensorNodeId) {
+    Header header = new Header(new byte[]{'S', 'F', 'P'}, (byte) 1, MessageTypes.DATA_REPORT,
+      sensorNodeId, 0, 0, UUID.randomUUID());
+    return new SmartFarmingProtocol(header, new DataReportBody(List.of(
+      new DataReportBody.SensorReading("temp", 21.0, null, null, "C", null)), null, null));
+  }
+
+  /**
+   * Real context that records the sources of the DATA_REPORTs it sends to
+   * control panels and the last packet sent back to a requester.
+   */
+  private static class FrameRecordingContext extends ServerContext {
+    private final List<Integer> reportSources = new ArrayList<>();
+    private SmartFarmingProtocol lastSentPacket;
+
+    @Override
+    public void sendFrame(int nodeId, byte[] frame) {
+      SmartFarmingProtocol packet = SmartFarmingProtocol.fromBytes(frame);
+      if (packet.getHeader().getMessageType() == MessageTypes.DATA_REPORT) {
+        reportSources.add(packet.getHeader().getSourceId());
+      }
+    }
+
+    @Override
+    public void sendTo(Socket socket, SmartFarmingProtocol packet) {
+      this.lastSentPacket = packet;
+    }
+
+    SmartFarmingProtocol getLastSentPacket() {
+      return lastSentPacket;
+    }
+  }
+
   private static class FailingServerContext extends ServerContext {
     @Override
     public void sendTo(Socket socket, SmartFarmingProtocol packet) throws IOException {
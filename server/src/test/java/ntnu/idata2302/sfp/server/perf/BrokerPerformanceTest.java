@@ -0,0 +1,120 @@
+package ntnu.idata2302.sfp.server.perf;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * End-to-end performance regression suite for the broker, at full size.
+ *
+ * <p>The {@link BrokerScenarios} run against an in-process broker:</p>
+ * <ul>
+ *   <li><b>fanout</b>: 1 000 sensor nodes report to 10 control panels subscribed to all of them.</li>
+ *   <li><b>commandStorm</b>: 10 control panels fire COMMANDs at 100 sensor nodes that ack them.</li>
+ *   <li><b>capabilitiesStorm</b>: 10 control panels query a registry of 10 000 nodes.</li>
+ *   <li><b>churn</b>: sensor nodes repeatedly connect, announce and disconnect.</li>
+ *   <li><b>handshakeFull</b> / <b>handshakeResumed</b>: reconnects with and without
+ *       TLS session resumption while idle clients hold connections open.</li>
+ * </ul>
+ *
+ * <p>Each scenario is checked against a {@link PerfBudget}; loosen them with
+ * {@code sfp.perf.budgetScale} on slower machines. Results are written to
+ * {@code target/perf-results/broker-perf.json}.</p>
+ *
+ * <p>The suite is tagged {@code perf} and skipped by default; run it with
+ * {@code mvn test -Pperf} or {@code mvn test -Dgroups=perf}. Every build runs
+ * the reduced {@link BrokerSmokePerformanceTest} instead.</p>
+ */
+@Tag("perf")
+public class BrokerPerformanceTest {
+
+  private static BrokerScenarios broker;
+
+  /**
+   * Start the broker in-process.
+   */
+  @BeforeAll
+  static void startServer() throws Exception {
+    broker = BrokerScenarios.start("broker-perf.json");
+  }
+
+  /**
+   * Stop the broker and write the JSON results.
+   */
+  @AfterAll
+  static void stopServer() throws Exception {
+    broker.close();
+  }
+
+  /**
+   * Start every scenario from an empty registry.
+   */
+  @BeforeEach
+  void awaitEmptyRegistry() throws Exception {
+    broker.awaitEmptyRegistry();
+  }
+
+  /**
+   * Close every client opened by the scenario.
+   */
+  @AfterEach
+  void closeClients() {
+    broker.closeClients();
+  }
+
+  // --------------------------- POSITIVE TESTS ---------------------------------- //
+
+  /**
+   * 1 000 sensor nodes x 10 control panels, every node reporting five times.
+   */
+  @Test
+  void fanout_1000SensorNodesTo10ControlPanels_withinBudget_positive() throws Exception {
+    broker.check(broker.fanout(1000, 10, 5, PerfBudget.of("fanout", 2_500, 250)));
+  }
+
+  /**
+   * 10 control panels send 2 000 COMMANDs each to 100 sensor nodes.
+   */
+  @Test
+  void commandStorm_10ControlPanelsTo100SensorNodes_withinBudget_positive() throws Exception {
+    broker.check(broker.commandStorm(100, 10, 2000,
+        PerfBudget.of("commandStorm", 4_000, 4_000)));
+  }
+
+  /**
+   * 10 control panels query the capabilities of 10 000 nodes five times each.
+   */
+  @Test
+  void capabilitiesStorm_10000Nodes_withinBudget_positive() throws Exception {
+    broker.check(broker.capabilitiesStorm(10_000, 10, 5,
+        PerfBudget.of("capabilitiesStorm", 20, 1_500)));
+  }
+
+  /**
+   * 8 workers connect, announce and disconnect 100 times each.
+   */
+  @Test
+  void churn_connectAnnounceDisconnect_withinBudget_positive() throws Exception {
+    broker.check(broker.churn(8, 100, PerfBudget.of("churn", 40, 300)));
+  }
+
+  /**
+   * 4 clients reconnect 50 times each with a full TLS handshake every time.
+   */
+  @Test
+  void handshakeFull_withStalledClients_withinBudget_positive() throws Exception {
+    broker.check(broker.reconnectCycles(4, 50, false, PerfBudget.of("handshakeFull", 25, 250)));
+  }
+
+  /**
+   * 4 clients reconnect 50 times each, resuming their TLS session every time.
+   */
+  @Test
+  void handshakeResumed_withStalledClients_withinBudget_positive() throws Exception {
+    broker.check(broker.reconnectCycles(4, 50, true,
+        PerfBudget.of("handshakeResumed", 25, 250)));
+  }
+}
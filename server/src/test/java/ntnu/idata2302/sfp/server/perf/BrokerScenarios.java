@@ -0,0 +1,556 @@
+package ntnu.idata2302.sfp.server.perf;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.Socket;
+import java.security.KeyStore;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLServerSocket;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.TrustManagerFactory;
+import ntnu.idata2302.sfp.library.SmartFarmingProtocol;
+import ntnu.idata2302.sfp.library.body.capabilities.CapabilitiesListBody;
+import ntnu.idata2302.sfp.library.header.MessageTypes;
+import ntnu.idata2302.sfp.server.Server;
+import ntnu.idata2302.sfp.server.net.IngressLimiter;
+import org.junit.jupiter.api.Assertions;
+
+/**
+ * In-process broker and the scenarios of the broker performance suites.
+ *
+ * <p>The real {@link Server} is started on an ephemeral port with the test
+ * keystore {@code perf.keystore}, and real TLS clients drive each scenario
+ * against it. Scenario sizes and budgets are chosen by the calling suite:
+ * {@link BrokerPerformanceTest} runs them at full size behind the
+ * {@code perf} profile, {@link BrokerSmokePerformanceTest} at reduced size in
+ * every build.</p>
+ *
+ * <p>Each scenario asserts that nothing was lost and returns its result, which
+ * {@link #check(PerfResult)} records and asserts against the budget. All
+ * results are written as JSON to {@code target/perf-results} on
+ * {@link #close()}.</p>
+ */
+final class BrokerScenarios implements AutoCloseable {
+
+  private static final char[] PASSWORD = "password".toCharArray();
+  private static final long SCENARIO_TIMEOUT_SECONDS = 60;
+
+  private final List<PerfResult> results = new ArrayList<>();
+  private final List<PerfClient> clients = new ArrayList<>();
+  private final String resultsFile;
+  private final PrintStream console;
+  private final SSLServerSocket serverSocket;
+  private final TrustManager[] trustManagers;
+  private final SSLContext clientTls;
+  private final int port;
+
+  private BrokerScenarios(String resultsFile, SSLServerSocket serverSocket,
+                          TrustManager[] trustManagers, PrintStream console) throws Exception {
+    this.resultsFile = resultsFile;
+    this.serverSocket = serverSocket;
+    this.port = serverSocket.getLocalPort();
+    this.trustManagers = trustManagers;
+    this.clientTls = newClientContext();
+    this.console = console;
+  }
+
+  /**
+   * Start the broker in-process and silence its per-packet logging.
+   *
+   * <p>The broker is served without ingress limits for unregistered sources.
+   * The policy is handed to {@link Server#serve(SSLServerSocket, IngressLimiter.Policy)},
+   * so no system property changes for later tests in the same JVM.</p>
+   *
+   * @param resultsFile name of the JSON file the results are written to
+   * @return the running broker
+   */
+  static BrokerScenarios start(String resultsFile) throws Exception {
+    // capabilitiesStorm announces many nodes per connection, all as unregistered sources
+    IngressLimiter.Policy configured = IngressLimiter.Policy.fromSystemProperties();
+    IngressLimiter.Policy policy = new IngressLimiter.Policy(configured.sensorNode(),
+        configured.controlPanel(), IngressLimiter.Limits.UNLIMITED);
+    SSLServerSocket serverSocket = Server.open(0, "perf.keystore", PASSWORD);
+
+    BrokerScenarios broker;
+    try {
+      broker = new BrokerScenarios(resultsFile, serverSocket, trustManagers(), System.out);
+    } catch (Exception e) {
+      serverSocket.close();
+      throw e;
+    }
+    Thread acceptor = new Thread(() -> {
+      try {
+        Server.serve(serverSocket, policy);
+      } catch (Exception e) {
+        e.printStackTrace();
+      }
+    }, "perf-server");
+    acceptor.setDaemon(true);
+    acceptor.start();
+
+    // Restored by close(), which the suites call from @AfterAll
+    System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    return broker;
+  }
+
+  /**
+   * Stop the broker, restore logging and write the JSON results.
+   */
+  @Override
+  public void close() throws Exception {
+    try {
+      serverSocket.close();
+    } finally {
+      System.setOut(console);
+    }
+
+    File dir = new File(System.getProperty("sfp.perf.resultsDir", "target/perf-results"));
+    dir.mkdirs();
+
+    Map<String, Object> report = new LinkedHashMap<>();
+    report.put("timestamp", Instant.now().toString());
+    report.put("javaVersion", System.getProperty("java.version"));
+    report.put("availableProcessors", Runtime.getRuntime().availableProcessors());
+    report.put("scenarios", results);
+
+    new ObjectMapper()
+        .enable(SerializationFeature.INDENT_OUTPUT)
+        .writeValue(new File(dir, resultsFile), report);
+  }
+
+  /**
+   * Wait until connections from the previous scenario have been unregistered,
+   * so every scenario starts from an empty registry.
+   */
+  void awaitEmptyRegistry() throws Exception {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (registeredSensorNodes() > 0) {
+      Assertions.assertTrue(System.nanoTime() < deadline,
+          "Broker still holds sensor nodes from a previous scenario");
+      Thread.sleep(50);
+    }
+  }
+
+  /**
+   * Close every client opened by the scenario.
+   */
+  void closeClients() {
+    clients.forEach(PerfClient::close);
+    clients.clear();
+  }
+
+  // --------------------------- SCENARIOS ---------------------------------- //
+
+  /**
+   * Sensor nodes report once per second and every DATA_REPORT is fanned out
+   * to all control panels, each subscribed to every node. Measures delivered
+   * reports per second and send-to-delivery latency.
+   */
+  PerfResult fanout(int sensorNodes, int controlPanels, int reportsPerNode, PerfBudget budget)
+      throws Exception {
+    long reportIntervalMillis = 1000;
+    long expected = (long) sensorNodes * controlPanels * reportsPerNode;
+
+    List<PerfClient> nodes = connectSensorNodes(sensorNodes);
+    LatencyRecorder latencies = new LatencyRecorder();
+    CountDownLatch delivered = new CountDownLatch((int) expected);
+
+    for (int i = 0; i < controlPanels; i++) {
+      PerfClient panel = connect();
+      panel.announce(PerfPackets.controlPanel());
+      CountDownLatch acks = new CountDownLatch(sensorNodes);
+      panel.listen(packet -> {
+        switch (packet.getHeader().getMessageType()) {
+          case SUBSCRIBE_ACK -> acks.countDown();
+          case DATA_REPORT -> {
+            latencies.record(PerfPackets.elapsedNanos(packet.getHeader()));
+            delivered.countDown();
+          }
+          default -> {
+          }
+        }
+      });
+      int requestId = 1;
+      for (PerfClient node : nodes) {
+        panel.send(PerfPackets.subscribe(panel.id(), requestId++, node.id()));
+      }
+      Assertions.assertTrue(acks.await(SCENARIO_TIMEOUT_SECONDS, TimeUnit.SECONDS),
+          "Panel subscriptions were not acknowledged");
+    }
+
+    ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(8);
+    long start = System.nanoTime();
+    try {
+      for (PerfClient node : nodes) {
+        long offset = ThreadLocalRandom.current().nextLong(reportIntervalMillis);
+        AtomicInteger sent = new AtomicInteger();
+        scheduler.scheduleAtFixedRate(() -> {
+          if (sent.getAndIncrement() < reportsPerNode) {
+            sendQuietly(node, PerfPackets.report(node.id()));
+          }
+        }, offset, reportIntervalMillis, TimeUnit.MILLISECONDS);
+      }
+      boolean complete = delivered.await(SCENARIO_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+      long elapsed = System.nanoTime() - start;
+
+      Assertions.assertTrue(complete,
+          "Only " + (expected - delivered.getCount()) + " of " + expected + " reports delivered");
+      return PerfResult.of(budget, expected, elapsed, latencies);
+    } finally {
+      scheduler.shutdownNow();
+    }
+  }
+
+  /**
+   * Control panels send COMMANDs as fast as possible to sensor nodes, which
+   * answer each with a COMMAND_ACK. Measures acks per second and the command
+   * round trip.
+   */
+  PerfResult commandStorm(int sensorNodes, int controlPanels, int commandsPerPanel,
+                          PerfBudget budget) throws Exception {
+    int expected = controlPanels * commandsPerPanel;
+
+    List<PerfClient> nodes = connectSensorNodes(sensorNodes);
+    for (PerfClient node : nodes) {
+      node.listen(packet -> {
+        if (packet.getHeader().getMessageType() == MessageTypes.COMMAND) {
+          sendQuietly(node, PerfPackets.commandAck(packet));
+        }
+      });
+    }
+
+    LatencyRecorder latencies = new LatencyRecorder();
+    CountDownLatch acked = new CountDownLatch(expected);
+    List<PerfClient> panels = new ArrayList<>();
+    for (int i = 0; i < controlPanels; i++) {
+      PerfClient panel = connect();
+      panel.announce(PerfPackets.controlPanel());
+      panel.listen(packet -> {
+        if (packet.getHeader().getMessageType() == MessageTypes.COMMAND_ACK) {
+          latencies.record(PerfPackets.elapsedNanos(packet.getHeader()));
+          acked.countDown();
+        }
+      });
+      panels.add(panel);
+    }
+
+    ExecutorService senders = Executors.newFixedThreadPool(controlPanels);
+    long start = System.nanoTime();
+    try {
+      for (PerfClient panel : panels) {
+        senders.execute(() -> {
+          for (int requestId = 1; requestId <= commandsPerPanel; requestId++) {
+            PerfClient target = nodes.get(ThreadLocalRandom.current().nextInt(sensorNodes));
+            sendQuietly(panel, PerfPackets.command(panel.id(), target.id(), requestId));
+          }
+        });
+      }
+      boolean complete = acked.await(SCENARIO_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+      long elapsed = System.nanoTime() - start;
+
+      Assertions.assertTrue(complete,
+          "Only " + (expected - acked.getCount()) + " of " + expected + " commands acked");
+      return PerfResult.of(budget, expected, elapsed, latencies);
+    } finally {
+      senders.shutdownNow();
+    }
+  }
+
+  /**
+   * Control panels repeatedly query the capabilities of many registered
+   * sensor nodes. The nodes are announced over a handful of connections to
+   * keep the client side cheap. Measures queries per second and query latency.
+   */
+  PerfResult capabilitiesStorm(int registeredNodes, int controlPanels, int queriesPerPanel,
+                               PerfBudget budget) throws Exception {
+    int announcers = 10;
+
+    CountDownLatch announced = new CountDownLatch(registeredNodes);
+    for (int i = 0; i < announcers; i++) {
+      PerfClient announcer = connect();
+      announcer.listen(packet -> announced.countDown());
+      for (int n = 0; n < registeredNodes / announcers; n++) {
+        announcer.send(PerfPackets.announce(PerfPackets.sensorNode()));
+      }
+    }
+    Assertions.assertTrue(announced.await(SCENARIO_TIMEOUT_SECONDS, TimeUnit.SECONDS),
+        "Not all nodes were announced");
+
+    List<PerfClient> panels = new ArrayList<>();
+    for (int i = 0; i < controlPanels; i++) {
+      PerfClient panel = connect();
+      panel.announce(PerfPackets.controlPanel());
+      panels.add(panel);
+    }
+
+    LatencyRecorder latencies = new LatencyRecorder();
+    AtomicLong wrongSize = new AtomicLong();
+    ExecutorService senders = Executors.newFixedThreadPool(controlPanels);
+    List<Future<?>> runs = new ArrayList<>();
+    long start = System.nanoTime();
+    for (PerfClient panel : panels) {
+      runs.add(senders.submit(() -> {
+        for (int requestId = 1; requestId <= queriesPerPanel; requestId++) {
+          long sent = System.nanoTime();
+          panel.send(PerfPackets.capabilitiesQuery(panel.id(), requestId));
+          SmartFarmingProtocol reply;
+          do {
+            reply = panel.read();
+          } while (reply.getHeader().getMessageType() != MessageTypes.CAPABILITIES_LIST);
+          latencies.record(System.nanoTime() - sent);
+          if (((CapabilitiesListBody) reply.getBody()).nodes().size() != registeredNodes) {
+            wrongSize.incrementAndGet();
+          }
+        }
+        return null;
+      }));
+    }
+    for (Future<?> run : runs) {
+      run.get(SCENARIO_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+    long elapsed = System.nanoTime() - start;
+    senders.shutdownNow();
+
+    Assertions.assertEquals(0, wrongSize.get(), "Capabilities lists with wrong node count");
+    return PerfResult.of(budget, (long) controlPanels * queriesPerPanel, elapsed, latencies);
+  }
+
+  /**
+   * Sensor nodes repeatedly connect, announce and disconnect from several
+   * threads. Measures completed cycles per second and the connect-to-ack
+   * latency, and checks that the broker forgets every node afterwards.
+   */
+  PerfResult churn(int workers, int cyclesPerWorker, PerfBudget budget) throws Exception {
+    int expected = workers * cyclesPerWorker;
+    LatencyRecorder latencies = new LatencyRecorder();
+
+    ExecutorService pool = Executors.newFixedThreadPool(workers);
+    List<Future<?>> runs = new ArrayList<>();
+    long start = System.nanoTime();
+    for (int w = 0; w < workers; w++) {
+      runs.add(pool.submit(() -> {
+        for (int c = 0; c < cyclesPerWorker; c++) {
+          long begin = System.nanoTime();
+          try (PerfClient node = PerfClient.open(clientTls, port)) {
+            node.announce(PerfPackets.sensorNode());
+            latencies.record(System.nanoTime() - begin);
+          }
+        }
+        return null;
+      }));
+    }
+    for (Future<?> run : runs) {
+      run.get(SCENARIO_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+    long elapsed = System.nanoTime() - start;
+    pool.shutdownNow();
+
+    Assertions.assertEquals(expected, latencies.count());
+    awaitEmptyRegistry();
+    return PerfResult.of(budget, expected, elapsed, latencies);
+  }
+
+  /**
+   * Reconnect cycles (connect, handshake, ANNOUNCE, ANNOUNCE_ACK, close) from
+   * several clients in parallel, while idle TCP clients that never send a
+   * ClientHello hold connections open; they must not hold up the handshakes
+   * of other clients. Measures cycles per second and the reconnect time.
+   *
+   * <p>Without {@code resume} every connection uses a fresh TLS context and
+   * therefore a full handshake. With it, each client keeps its TLS context
+   * between connections, so every reconnect resumes the session from its
+   * TLS 1.3 session ticket. A resumed session keeps the creation time of the
+   * session it was resumed from, so a session created before the cycle
+   * started proves resumption.</p>
+   *
+   * @param workers         parallel clients
+   * @param cyclesPerWorker reconnects per client
+   * @param resume          whether each client reuses its TLS context between cycles
+   * @param budget          the budget of the scenario
+   */
+  PerfResult reconnectCycles(int workers, int cyclesPerWorker, boolean resume,
+                             PerfBudget budget) throws Exception {
+    List<Socket> stalled = connectStalledClients(8);
+    try {
+      return reconnect(workers, cyclesPerWorker, resume, budget);
+    } finally {
+      for (Socket socket : stalled) {
+        socket.close();
+      }
+    }
+  }
+
+  // --------------------------- HELPERS ---------------------------------- //
+
+  private PerfResult reconnect(int workers, int cyclesPerWorker, boolean resume,
+                              PerfBudget budget) throws Exception {
+    LatencyRecorder latencies = new LatencyRecorder();
+    AtomicInteger wrongSession = new AtomicInteger();
+
+    ExecutorService pool = Executors.newFixedThreadPool(workers);
+    List<Future<?>> runs = new ArrayList<>();
+    CountDownLatch warmedUp = new CountDownLatch(workers);
+    AtomicLong start = new AtomicLong();
+    for (int w = 0; w < workers; w++) {
+      runs.add(pool.submit(() -> {
+        SSLContext context = newClientContext();
+        if (resume) {
+          // The first connection performs the full handshake and receives the ticket
+          try (PerfClient first = PerfClient.open(context, port)) {
+            first.announce(PerfPackets.sensorNode());
+          }
+        }
+        warmedUp.countDown();
+        warmedUp.await();
+        start.compareAndSet(0, System.nanoTime());
+
+        for (int c = 0; c < cyclesPerWorker; c++) {
+          if (!resume) {
+            context = newClientContext();
+          }
+          long beginMillis = System.currentTimeMillis();
+          long begin = System.nanoTime();
+          try (PerfClient node = PerfClient.open(context, port)) {
+            node.announce(PerfPackets.sensorNode());
+            latencies.record(System.nanoTime() - begin);
+            boolean resumed = node.session().getCreationTime() < beginMillis;
+            if (resumed != resume) {
+              wrongSession.incrementAndGet();
+            }
+          }
+        }
+        return null;
+      }));
+    }
+    for (Future<?> run : runs) {
+      run.get(SCENARIO_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+    long elapsed = System.nanoTime() - start.get();
+    pool.shutdownNow();
+
+    Assertions.assertEquals(0, wrongSession.get(),
+        budget.scenario() + ": sessions " + (resume ? "not resumed" : "unexpectedly resumed"));
+    return PerfResult.of(budget, (long) workers * cyclesPerWorker, elapsed, latencies);
+  }
+
+  /**
+   * A client TLS context with its own, empty session cache.
+   */
+  private SSLContext newClientContext() throws Exception {
+    SSLContext context = SSLContext.getInstance("TLS");
+    context.init(null, trustManagers, null);
+    return context;
+  }
+
+  /**
+   * Open plain TCP connections that never start the TLS handshake.
+   */
+  private List<Socket> connectStalledClients(int count) throws Exception {
+    List<Socket> stalled = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      stalled.add(new Socket("localhost", port));
+    }
+    return stalled;
+  }
+
+  /**
+   * Record a result, print it and assert its budget.
+   *
+   * @param result the result of a scenario
+   */
+  void check(PerfResult result) {
+    synchronized (results) {
+      results.add(result);
+    }
+    console.printf("[perf] %-18s %8d ops in %6d ms  %10.1f ops/s  p50=%.2fms p99=%.2fms%n",
+        result.scenario(), result.operations(), result.durationMillis(),
+        result.throughputPerSec(), result.p50Millis(), result.p99Millis());
+
+    Assertions.assertTrue(result.throughputPerSec() >= result.minThroughput(),
+        result.scenario() + ": throughput " + result.throughputPerSec()
+            + "/s below budget " + result.minThroughput() + "/s");
+    Assertions.assertTrue(result.p99Millis() <= result.maxP99Millis(),
+        result.scenario() + ": p99 " + result.p99Millis()
+            + " ms above budget " + result.maxP99Millis() + " ms");
+  }
+
+  /**
+   * Open a client that is closed after the scenario.
+   */
+  private PerfClient connect() throws Exception {
+    PerfClient client = PerfClient.open(clientTls, port);
+    clients.add(client);
+    return client;
+  }
+
+  /**
+   * Connect and announce {@code count} sensor nodes, one connection each.
+   */
+  private List<PerfClient> connectSensorNodes(int count) throws Exception {
+    List<PerfClient> nodes = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      PerfClient node = connect();
+      node.announce(PerfPackets.sensorNode());
+      nodes.add(node);
+    }
+    return nodes;
+  }
+
+  /**
+   * Send from a scenario thread; a failed write shows up as missing deliveries.
+   */
+  private static void sendQuietly(PerfClient client, SmartFarmingProtocol packet) {
+    try {
+      client.send(packet);
+    } catch (Exception ignored) {
+      // Counted as a missing delivery by the scenario
+    }
+  }
+
+  /**
+   * Ask the broker how many sensor nodes it currently advertises.
+   */
+  private int registeredSensorNodes() throws Exception {
+    try (PerfClient probe = PerfClient.open(clientTls, port)) {
+      probe.announce(PerfPackets.controlPanel());
+      probe.send(PerfPackets.capabilitiesQuery(probe.id(), 1));
+      SmartFarmingProtocol reply;
+      do {
+        reply = probe.read();
+      } while (reply.getHeader().getMessageType() != MessageTypes.CAPABILITIES_LIST);
+      return ((CapabilitiesListBody) reply.getBody()).nodes().size();
+    }
+  }
+
+  /**
+   * Trust managers for the clients, trusting the certificate in the test keystore.
+   */
+  private static TrustManager[] trustManagers() throws Exception {
+    KeyStore trustStore = KeyStore.getInstance("JKS");
+    try (InputStream ks = BrokerScenarios.class.getClassLoader()
+        .getResourceAsStream("perf.keystore")) {
+      trustStore.load(ks, PASSWORD);
+    }
+    TrustManagerFactory tmf = TrustManagerFactory.getInstance("SunX509");
+    tmf.init(trustStore);
+    return tmf.getTrustManagers();
+  }
+}
@@ -0,0 +1,100 @@
+package ntnu.idata2302.sfp.server.perf;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Reduced-size run of the broker performance scenarios, part of every build.
+ *
+ * <p>Runs the {@link BrokerScenarios} of {@link BrokerPerformanceTest} at a
+ * fraction of their size, so it finishes in seconds. Its budgets leave wide
+ * headroom: they fail the build on a regression of several times, such as a
+ * lock held across network writes or a scan per message, not on the spread
+ * between machines. {@code sfp.perf.budgetScale} and the per-scenario
+ * {@code sfp.perf.<scenario>.smoke.*} properties loosen them further. Results
+ * are written to {@code target/perf-results/broker-smoke.json}.</p>
+ */
+public class BrokerSmokePerformanceTest {
+
+  private static BrokerScenarios broker;
+
+  /**
+   * Start the broker in-process.
+   */
+  @BeforeAll
+  static void startServer() throws Exception {
+    broker = BrokerScenarios.start("broker-smoke.json");
+  }
+
+  /**
+   * Stop the broker and write the JSON results.
+   */
+  @AfterAll
+  static void stopServer() throws Exception {
+    broker.close();
+  }
+
+  /**
+   * Start every scenario from an empty registry.
+   */
+  @BeforeEach
+  void awaitEmptyRegistry() throws Exception {
+    broker.awaitEmptyRegistry();
+  }
+
+  /**
+   * Close every client opened by the scenario.
+   */
+  @AfterEach
+  void closeClients() {
+    broker.closeClients();
+  }
+
+  // --------------------------- POSITIVE TESTS ---------------------------------- //
+
+  /**
+   * 100 sensor nodes x 2 control panels, every node reporting three times.
+   */
+  @Test
+  void fanout_100SensorNodesTo2ControlPanels_withinBudget_positive() throws Exception {
+    broker.check(broker.fanout(100, 2, 3, PerfBudget.of("fanout.smoke", 50, 500)));
+  }
+
+  /**
+   * 4 control panels send 250 COMMANDs each to 20 sensor nodes.
+   */
+  @Test
+  void commandStorm_4ControlPanelsTo20SensorNodes_withinBudget_positive() throws Exception {
+    broker.check(broker.commandStorm(20, 4, 250,
+        PerfBudget.of("commandStorm.smoke", 200, 4_000)));
+  }
+
+  /**
+   * 4 control panels query the capabilities of 1 000 nodes three times each.
+   */
+  @Test
+  void capabilitiesStorm_1000Nodes_withinBudget_positive() throws Exception {
+    broker.check(broker.capabilitiesStorm(1000, 4, 3,
+        PerfBudget.of("capabilitiesStorm.smoke", 10, 2_000)));
+  }
+
+  /**
+   * 4 workers connect, announce and disconnect 25 times each.
+   */
+  @Test
+  void churn_connectAnnounceDisconnect_withinBudget_positive() throws Exception {
+    broker.check(broker.churn(4, 25, PerfBudget.of("churn.smoke", 15, 1_000)));
+  }
+
+  /**
+   * 2 clients reconnect 10 times each, resuming their TLS session every time.
+   */
+  @Test
+  void handshakeResumed_withStalledClients_withinBudget_positive() throws Exception {
+    broker.check(broker.reconnectCycles(2, 10, true,
+        PerfBudget.of("handshakeResumed.smoke", 8, 1_000)));
+  }
+}
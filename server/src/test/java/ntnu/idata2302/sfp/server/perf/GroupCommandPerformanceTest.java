@@ -0,0 +1,120 @@
+package ntnu.idata2302.sfp.server.perf;
+
+import java.net.Socket;
+import java.util.List;
+import java.util.UUID;
+import ntnu.idata2302.sfp.library.SmartFarmingProtocol;
+import ntnu.idata2302.sfp.library.body.command.CommandAckBody;
+import ntnu.idata2302.sfp.library.body.command.CommandBody;
+import ntnu.idata2302.sfp.library.body.command.GroupCommandBody;
+import ntnu.idata2302.sfp.library.body.command.GroupCommandResultBody;
+import ntnu.idata2302.sfp.library.header.Header;
+import ntnu.idata2302.sfp.library.header.MessageTypes;
+import ntnu.idata2302.sfp.library.node.NodeIds;
+import ntnu.idata2302.sfp.server.net.ServerContext;
+import ntnu.idata2302.sfp.server.net.handlers.GroupCommandHandler;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Fan-out cost of GROUP_COMMAND.
+ *
+ * <ul>
+ *   <li><b>groupCommand</b>: one GROUP_COMMAND selecting {@value #NODES}
+ *       sensor nodes by actuator type, expanded into one COMMAND frame per
+ *       node and completed by one COMMAND_ACK per node. Frames are written to
+ *       a context that only counts them, so the measurement covers target
+ *       resolution, framing and ack tracking but not the network. Measures
+ *       group commands per second and the latency of one fan-out.</li>
+ * </ul>
+ */
+@Tag("perf")
+public class GroupCommandPerformanceTest {
+
+  private static final int NODES = 5000;
+  private static final int ROUNDS = 200;
+  private static final int FIRST_NODE = 0x10000;
+
+  // --------------------------- POSITIVE TESTS ---------------------------------- //
+
+  /**
+   * Fanning a command out to thousands of nodes takes milliseconds.
+   */
+  @Test
+  void handle_5000Targets_fanOutLatency_positive() throws Exception {
+    // Arrange
+    CountingServerContext context = new CountingServerContext();
+    for (int i = 0; i < NODES; i++) {
+      context.registerNode(FIRST_NODE + i, PerfPackets.sensorNode(), new Socket());
+    }
+    GroupCommandHandler handler = new GroupCommandHandler();
+    SmartFarmingProtocol request = new SmartFarmingProtocol(new Header(
+        new byte[]{'S', 'F', 'P'}, (byte) 1, MessageTypes.GROUP_COMMAND, 0x20000,
+        NodeIds.SERVER, 0, UUID.randomUUID()),
+        new GroupCommandBody(1, null, null, "HEATER",
+            List.of(new CommandBody.CommandPart("HEATER", 21.0)), null));
+    for (int i = 0; i < 20; i++) {
+      round(handler, request, context);
+    }
+
+    // Act
+    LatencyRecorder latencies = new LatencyRecorder();
+    long start = System.nanoTime();
+    for (int i = 0; i < ROUNDS; i++) {
+      long roundStart = System.nanoTime();
+      round(handler, request, context);
+      latencies.record(System.nanoTime() - roundStart);
+    }
+    long elapsed = System.nanoTime() - start;
+
+    // Assert
+    PerfResult result = PerfResult.of(PerfBudget.of("groupCommand", 20, 50),
+        ROUNDS, elapsed, latencies);
+    System.out.printf("[perf] %-18s %8d ops in %6d ms  %10.1f ops/s  p50=%.3fms p99=%.3fms"
+            + "  %d targets%n",
+        result.scenario(), result.operations(), result.durationMillis(),
+        result.throughputPerSec(), result.p50Millis(), result.p99Millis(), NODES);
+    Assertions.assertEquals(0, context.getGroupCommands().size());
+    Assertions.assertTrue(result.throughputPerSec() >= result.minThroughput(),
+        "Group command fan-out too slow: " + result.throughputPerSec() + " commands/s");
+    Assertions.assertTrue(result.p99Millis() <= result.maxP99Millis(),
+        "Group command fan-out p99 too high: " + result.p99Millis() + " ms");
+  }
+
+  /**
+   * Send one group command and acknowledge it from every target.
+   */
+  private static void round(GroupCommandHandler handler, SmartFarmingProtocol request,
+                            CountingServerContext context) throws Exception {
+    context.frames = 0;
+    handler.handle(request, null, context);
+    Assertions.assertEquals(NODES, context.frames);
+    CommandAckBody ack = new CommandAckBody(context.commandId, 1, "OK");
+    for (int i = 0; i < NODES; i++) {
+      context.getGroupCommands().acknowledge(FIRST_NODE + i, ack);
+    }
+    Assertions.assertEquals(1, context.result.status());
+  }
+
+  /**
+   * Context that counts COMMAND frames instead of writing them.
+   */
+  private static final class CountingServerContext extends ServerContext {
+    private int frames;
+    private int commandId;
+    private GroupCommandResultBody result;
+
+    @Override
+    public void sendFrame(int nodeId, byte[] frame) {
+      if (frames++ == 0) {
+        commandId = ((CommandBody) SmartFarmingProtocol.fromBytes(frame).getBody()).requestId();
+      }
+    }
+
+    @Override
+    public void sendTo(SmartFarmingProtocol packet) {
+      result = (GroupCommandResultBody) packet.getBody();
+    }
+  }
+}
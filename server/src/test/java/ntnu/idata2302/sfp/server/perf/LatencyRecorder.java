@@ -0,0 +1,52 @@
+package ntnu.idata2302.sfp.server.perf;
+
+import java.util.Arrays;
+
+/**
+ * Thread-safe collector of latency samples with exact percentiles.
+ *
+ * <p>Scenarios record at most a few hundred thousand samples, so keeping every
+ * sample and sorting once at the end is simpler than a histogram and exact.</p>
+ */
+final class LatencyRecorder {
+
+  private long[] samples = new long[1024];
+  private int size;
+
+  /**
+   * Record one latency sample.
+   *
+   * @param nanos the latency in nanoseconds
+   */
+  synchronized void record(long nanos) {
+    if (size == samples.length) {
+      samples = Arrays.copyOf(samples, size * 2);
+    }
+    samples[size++] = nanos;
+  }
+
+  /**
+   * Return the number of recorded samples.
+   *
+   * @return the sample count
+   */
+  synchronized int count() {
+    return size;
+  }
+
+  /**
+   * Return a percentile of the recorded samples in milliseconds.
+   *
+   * @param percentile the percentile in (0, 100]
+   * @return the latency, or {@code 0} if nothing was recorded
+   */
+  synchronized double percentileMillis(double percentile) {
+    if (size == 0) {
+      return 0;
+    }
+    long[] sorted = Arrays.copyOf(samples, size);
+    Arrays.sort(sorted);
+    int rank = (int) Math.ceil(percentile / 100.0 * size) - 1;
+    return sorted[Math.max(0, Math.min(rank, size - 1))] / 1e6;
+  }
+}
@@ -0,0 +1,48 @@
+package ntnu.idata2302.sfp.server.perf;
+
+/**
+ * Throughput and latency budget of a scenario.
+ *
+ * <p>Defaults leave headroom over a baseline run of the scenario, so they
+ * hold across machines and between runs: the broker scenarios use about a
+ * third of its throughput and several times its p99 latency, which also
+ * covers the run-to-run spread of tail latencies. Each value can be
+ * overridden per scenario, and {@code sfp.perf.budgetScale} loosens every
+ * default at once by dividing throughputs and multiplying latencies, for
+ * example on a slow CI runner:</p>
+ *
+ * <pre>
+ * mvn test -Pperf -Dsfp.perf.fanout.minThroughput=2000 -Dsfp.perf.fanout.maxP99Millis=20
+ * mvn test -Pperf -Dsfp.perf.budgetScale=3
+ * mvn test -Dsfp.perf.budgetScale=2
+ * </pre>
+ *
+ * @param scenario      scenario name
+ * @param minThroughput minimum operations per second
+ * @param maxP99Millis  maximum 99th percentile latency in milliseconds
+ */
+record PerfBudget(String scenario, double minThroughput, double maxP99Millis) {
+
+  /**
+   * Create a budget, applying {@code sfp.perf.budgetScale} and
+   * {@code sfp.perf.<scenario>.*} system property overrides.
+   *
+   * @param scenario      scenario name
+   * @param minThroughput default minimum operations per second
+   * @param maxP99Millis  default maximum p99 latency in milliseconds
+   * @return the effective budget
+   */
+  static PerfBudget of(String scenario, double minThroughput, double maxP99Millis) {
+    double scale = Double.parseDouble(System.getProperty("sfp.perf.budgetScale", "1"));
+    return new PerfBudget(
+        scenario,
+        property(scenario, "minThroughput", minThroughput / scale),
+        property(scenario, "maxP99Millis", maxP99Millis * scale)
+    );
+  }
+
+  private static double property(String scenario, String name, double defaultValue) {
+    String value = System.getProperty("sfp.perf." + scenario + "." + name);
+    return value == null ? defaultValue : Double.parseDouble(value);
+  }
+}
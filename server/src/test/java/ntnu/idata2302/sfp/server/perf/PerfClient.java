@@ -0,0 +1,146 @@
+package ntnu.idata2302.sfp.server.perf;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.function.Consumer;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocket;
+import ntnu.idata2302.sfp.library.SmartFarmingProtocol;
+import ntnu.idata2302.sfp.library.header.Header;
+import ntnu.idata2302.sfp.library.header.MessageTypes;
+import ntnu.idata2302.sfp.library.node.NodeDescriptor;
+
+/**
+ * Minimal blocking TLS client used by the performance suite to play either a
+ * sensor node or a control panel against the in-process broker.
+ *
+ * <p>The client is used synchronously during setup ({@link #announce}) and then
+ * switched to a background reader with {@link #listen(Consumer)}.</p>
+ */
+final class PerfClient implements Closeable {
+
+  private final SSLSocket socket;
+  private final DataInputStream in;
+  private final OutputStream out;
+  private volatile int id;
+
+  private PerfClient(SSLSocket socket) throws IOException {
+    this.socket = socket;
+    this.in = new DataInputStream(socket.getInputStream());
+    this.out = socket.getOutputStream();
+  }
+
+  /**
+   * Connect and complete the TLS handshake.
+   *
+   * @param sslContext context trusting the test keystore
+   * @param port       broker port
+   * @return the connected client
+   * @throws IOException if the connection or handshake fails
+   */
+  static PerfClient open(SSLContext sslContext, int port) throws IOException {
+    SSLSocket socket = (SSLSocket) sslContext.getSocketFactory().createSocket("localhost", port);
+    socket.startHandshake();
+    return new PerfClient(socket);
+  }
+
+  /**
+   * Announce a node and wait for its ANNOUNCE_ACK.
+   *
+   * <p>The first announced id becomes this client's {@link #id()}.</p>
+   *
+   * @param descriptor the node to announce
+   * @return the id assigned by the broker
+   * @throws IOException if the connection fails before the ack arrives
+   */
+  int announce(NodeDescriptor descriptor) throws IOException {
+    send(PerfPackets.announce(descriptor));
+    SmartFarmingProtocol packet;
+    do {
+      packet = read();
+    } while (packet.getHeader().getMessageType() != MessageTypes.ANNOUNCE_ACK);
+
+    int assigned = packet.getHeader().getTargetId();
+    if (id == 0) {
+      id = assigned;
+    }
+    return assigned;
+  }
+
+  /**
+   * Write one packet; safe to call from several threads.
+   *
+   * @param packet the packet to send
+   * @throws IOException if writing fails
+   */
+  synchronized void send(SmartFarmingProtocol packet) throws IOException {
+    out.write(packet.toBytes());
+    out.flush();
+  }
+
+  /**
+   * Blocking read of one packet.
+   *
+   * @return the decoded packet
+   * @throws IOException if the stream ends or cannot be decoded
+   */
+  SmartFarmingProtocol read() throws IOException {
+    byte[] headerBytes = in.readNBytes(Header.HEADER_SIZE);
+    if (headerBytes.length < Header.HEADER_SIZE) {
+      throw new IOException("Incomplete header");
+    }
+    Header header = Header.fromBytes(headerBytes);
+    byte[] body = in.readNBytes(header.getPayloadLength());
+    return SmartFarmingProtocol.fromBytes(header, body);
+  }
+
+  /**
+   * Hand every further packet to {@code handler} on a daemon thread until the
+   * connection closes.
+   *
+   * @param handler packet consumer
+   */
+  void listen(Consumer<SmartFarmingProtocol> handler) {
+    Thread reader = new Thread(() -> {
+      try {
+        while (!socket.isClosed()) {
+          handler.accept(read());
+        }
+      } catch (IOException ignored) {
+        // Connection closed by the scenario or the broker
+      }
+    }, "perf-client-" + id);
+    reader.setDaemon(true);
+    reader.start();
+  }
+
+  /**
+   * Return the TLS session of the connection.
+   *
+   * @return the negotiated session
+   */
+  SSLSession session() {
+    return socket.getSession();
+  }
+
+  /**
+   * Return the first id assigned by the broker, or {@code 0} before announcing.
+   *
+   * @return the node id
+   */
+  int id() {
+    return id;
+  }
+
+  @Override
+  public void close() {
+    try {
+      socket.close();
+    } catch (IOException ignored) {
+      // Already closed
+    }
+  }
+}
@@ -0,0 +1,158 @@
+package ntnu.idata2302.sfp.server.perf;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import ntnu.idata2302.sfp.library.SmartFarmingProtocol;
+import ntnu.idata2302.sfp.library.body.announce.AnnounceBody;
+import ntnu.idata2302.sfp.library.body.capabilities.CapabilitiesQueryBody;
+import ntnu.idata2302.sfp.library.body.command.CommandAckBody;
+import ntnu.idata2302.sfp.library.body.command.CommandBody;
+import ntnu.idata2302.sfp.library.body.data.DataReportBody;
+import ntnu.idata2302.sfp.library.body.subscribe.SubscribeBody;
+import ntnu.idata2302.sfp.library.header.Header;
+import ntnu.idata2302.sfp.library.header.MessageTypes;
+import ntnu.idata2302.sfp.library.node.NodeDescriptor;
+import ntnu.idata2302.sfp.library.node.NodeIds;
+
+/**
+ * Packet builders for the performance suite.
+ *
+ * <p>Latency is measured without changing the protocol: packets whose header
+ * the broker forwards unchanged (DATA_REPORT, COMMAND) carry the sender's
+ * {@link System#nanoTime()} in the most significant bits of the message id,
+ * and the receiver subtracts it from its own clock. Client and broker share
+ * one JVM, so the clocks are comparable.</p>
+ */
+final class PerfPackets {
+
+  private static final AtomicLong SEQUENCE = new AtomicLong();
+
+  private PerfPackets() {
+  } // prevent instantiation
+
+  /**
+   * Return a message id stamped with the current {@link System#nanoTime()}.
+   *
+   * @return a unique, time-stamped message id
+   */
+  static UUID stampedId() {
+    return new UUID(System.nanoTime(), SEQUENCE.incrementAndGet());
+  }
+
+  /**
+   * Return the nanoseconds elapsed since a packet built with
+   * {@link #stampedId()} was sent.
+   *
+   * @param header the received header
+   * @return elapsed nanoseconds
+   */
+  static long elapsedNanos(Header header) {
+    return System.nanoTime() - header.getMessageId().getMostSignificantBits();
+  }
+
+  /**
+   * Build a version 1 header.
+   */
+  static Header header(MessageTypes type, int sourceId, int targetId, UUID messageId) {
+    return new Header(new byte[]{'S', 'F', 'P'}, (byte) 1, type, sourceId, targetId, 0, messageId);
+  }
+
+  /**
+   * Descriptor of a sensor node with five sensors and three actuators,
+   * mirroring the default node of the sensor node simulator.
+   *
+   * @return the descriptor
+   */
+  static NodeDescriptor sensorNode() {
+    return new NodeDescriptor(
+        null,
+        1,
+        List.of(
+            new NodeDescriptor.SensorDescriptor("Temperature", "C", -10.0, 50.0),
+            new NodeDescriptor.SensorDescriptor("Humidity", "%", 0.0, 100.0),
+            new NodeDescriptor.SensorDescriptor("CO2", "ppm", 300.0, 2000.0),
+            new NodeDescriptor.SensorDescriptor("Light Sensor", "lux", 0.0, 100000.0),
+            new NodeDescriptor.SensorDescriptor("SoilMoisture", "%", 0.0, 100.0)
+        ),
+        List.of(
+            new NodeDescriptor.ActuatorDescriptor("FAN", 0.0, 0.0, 100.0, "%"),
+            new NodeDescriptor.ActuatorDescriptor("HEATER", 0.0, 0.0, 100.0, "%"),
+            new NodeDescriptor.ActuatorDescriptor("LIGHT", 0.0, 0.0, 100.0, "%")
+        ),
+        false,
+        false
+    );
+  }
+
+  /**
+   * Descriptor of a control panel.
+   *
+   * @return the descriptor
+   */
+  static NodeDescriptor controlPanel() {
+    return new NodeDescriptor(null, 0, null, null, null, null);
+  }
+
+  static SmartFarmingProtocol announce(NodeDescriptor descriptor) {
+    return new SmartFarmingProtocol(
+        header(MessageTypes.ANNOUNCE, NodeIds.BROADCAST, NodeIds.SERVER, UUID.randomUUID()),
+        new AnnounceBody(1, descriptor));
+  }
+
+  static SmartFarmingProtocol subscribe(int cpId, int requestId, int snId) {
+    return new SmartFarmingProtocol(
+        header(MessageTypes.SUBSCRIBE, cpId, NodeIds.SERVER, UUID.randomUUID()),
+        new SubscribeBody(requestId, snId));
+  }
+
+  static SmartFarmingProtocol capabilitiesQuery(int cpId, int requestId) {
+    return new SmartFarmingProtocol(
+        header(MessageTypes.CAPABILITIES_QUERY, cpId, NodeIds.SERVER, UUID.randomUUID()),
+        new CapabilitiesQueryBody(requestId));
+  }
+
+  /**
+   * Build a time-stamped DATA_REPORT with five readings and three actuator states.
+   */
+  static SmartFarmingProtocol report(int snId) {
+    String now = String.valueOf(System.currentTimeMillis());
+    DataReportBody body = new DataReportBody(
+        List.of(
+            new DataReportBody.SensorReading("Temperature", 21.5, -10.0, 50.0, "C", now),
+            new DataReportBody.SensorReading("Humidity", 55.0, 0.0, 100.0, "%", now),
+            new DataReportBody.SensorReading("CO2", 800.0, 300.0, 2000.0, "ppm", now),
+            new DataReportBody.SensorReading("Light Sensor", 12000.0, 0.0, 100000.0, "lux", now),
+            new DataReportBody.SensorReading("SoilMoisture", 40.0, 0.0, 100.0, "%", now)
+        ),
+        List.of(
+            new DataReportBody.ActuatorState("FAN", 10.0, 0.0, 100.0, "%", now),
+            new DataReportBody.ActuatorState("HEATER", 0.0, 0.0, 100.0, "%", now),
+            new DataReportBody.ActuatorState("LIGHT", 50.0, 0.0, 100.0, "%", now)
+        ),
+        null
+    );
+    return new SmartFarmingProtocol(
+        header(MessageTypes.DATA_REPORT, snId, NodeIds.BROADCAST, stampedId()), body);
+  }
+
+  /**
+   * Build a time-stamped COMMAND setting one actuator.
+   */
+  static SmartFarmingProtocol command(int cpId, int snId, int requestId) {
+    return new SmartFarmingProtocol(
+        header(MessageTypes.COMMAND, cpId, snId, stampedId()),
+        new CommandBody(requestId, List.of(new CommandBody.CommandPart("FAN", 50.0))));
+  }
+
+  /**
+   * Acknowledge a COMMAND, reusing its message id so the panel can compute the round trip.
+   */
+  static SmartFarmingProtocol commandAck(SmartFarmingProtocol command) {
+    Header req = command.getHeader();
+    CommandBody body = (CommandBody) command.getBody();
+    return new SmartFarmingProtocol(
+        header(MessageTypes.COMMAND_ACK, req.getTargetId(), req.getSourceId(), req.getMessageId()),
+        new CommandAckBody(body.requestId(), 1, "OK"));
+  }
+}
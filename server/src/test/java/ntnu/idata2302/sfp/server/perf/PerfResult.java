@@ -0,0 +1,50 @@
+package ntnu.idata2302.sfp.server.perf;
+
+/**
+ * Outcome of one performance scenario, serialized to JSON for trend tracking.
+ *
+ * @param scenario          scenario name, also the budget property prefix
+ * @param operations        number of measured operations (deliveries, acks, queries ...)
+ * @param durationMillis    wall time of the measured phase
+ * @param throughputPerSec  operations per second
+ * @param p50Millis         median latency
+ * @param p99Millis         99th percentile latency
+ * @param minThroughput     throughput budget the scenario was checked against
+ * @param maxP99Millis      p99 budget the scenario was checked against
+ */
+record PerfResult(
+    String scenario,
+    long operations,
+    long durationMillis,
+    double throughputPerSec,
+    double p50Millis,
+    double p99Millis,
+    double minThroughput,
+    double maxP99Millis
+) {
+
+  /**
+   * Build a result from a finished scenario.
+   *
+   * @param budget      the budget the scenario is checked against
+   * @param operations  number of measured operations
+   * @param elapsedNanos wall time of the measured phase
+   * @param latencies   the recorded latencies
+   * @return the result
+   */
+  static PerfResult of(PerfBudget budget, long operations, long elapsedNanos,
+                       LatencyRecorder latencies) {
+    double seconds = Math.max(elapsedNanos / 1e9, 1e-9);
+    return new PerfResult(
+        budget.scenario(),
+        operations,
+        elapsedNanos / 1_000_000,
+        operations / seconds,
+        latencies.percentileMillis(50),
+        latencies.percentileMillis(99),
+        budget.minThroughput(),
+        budget.maxP99Millis()
+    );
+  }
+
+}
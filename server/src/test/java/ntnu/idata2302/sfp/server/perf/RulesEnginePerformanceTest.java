@@ -0,0 +1,93 @@
+package ntnu.idata2302.sfp.server.perf;
+
+import java.util.ArrayList;
+import java.util.List;
+import ntnu.idata2302.sfp.library.body.data.DataReportBody;
+import ntnu.idata2302.sfp.server.rules.Rule;
+import ntnu.idata2302.sfp.server.rules.RulesEngine;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Throughput of the broker's rules engine.
+ *
+ * <ul>
+ *   <li><b>rulesEngine</b>: {@value #RULES} active rules spread over
+ *       {@value #NODES} nodes with {@value #SENSORS} sensors each. Every node
+ *       reports all its sensors with values drifting across the rule
+ *       thresholds, so a share of the reports fire commands. Measures
+ *       reports evaluated per second.</li>
+ * </ul>
+ */
+@Tag("perf")
+public class RulesEnginePerformanceTest {
+
+  private static final int NODES = 2000;
+  private static final int SENSORS = 5;
+  private static final int RULES_PER_SENSOR = 10;
+  private static final int RULES = NODES * SENSORS * RULES_PER_SENSOR;
+  private static final int REPORTS = 200_000;
+  private static final int FIRST_NODE = 0x10000;
+
+  // --------------------------- POSITIVE TESTS ---------------------------------- //
+
+  /**
+   * Evaluating reports against 100k rules stays fast because only the rules
+   * between the previous and the new reading are visited.
+   */
+  @Test
+  void evaluate_100kRules_reportsPerSecond_positive() {
+    // Arrange
+    RulesEngine engine = new RulesEngine();
+    for (int node = 0; node < NODES; node++) {
+      for (int sensor = 0; sensor < SENSORS; sensor++) {
+        for (int rule = 0; rule < RULES_PER_SENSOR; rule++) {
+          engine.add(new Rule("r" + node + "-" + sensor + "-" + rule, FIRST_NODE + node,
+              "s" + sensor, rule % 2 == 0, 10 + rule * 2, 0.5, "a" + rule, 1, 0.0));
+        }
+      }
+    }
+    Assertions.assertEquals(RULES, engine.size());
+    for (int i = 0; i < NODES * 10; i++) {
+      engine.evaluate(FIRST_NODE + i % NODES, report(i));
+    }
+
+    // Act
+    LatencyRecorder latencies = new LatencyRecorder();
+    int commands = 0;
+    long start = System.nanoTime();
+    for (int i = 0; i < REPORTS; i++) {
+      DataReportBody report = report(i);
+      long reportStart = System.nanoTime();
+      if (engine.evaluate(FIRST_NODE + i % NODES, report) != null) {
+        commands++;
+      }
+      latencies.record(System.nanoTime() - reportStart);
+    }
+    long elapsed = System.nanoTime() - start;
+
+    // Assert
+    PerfResult result = PerfResult.of(PerfBudget.of("rulesEngine", 100_000, 5),
+        REPORTS, elapsed, latencies);
+    System.out.printf("[perf] %-18s %8d ops in %6d ms  %10.1f ops/s  p50=%.3fms p99=%.3fms"
+            + "  %d commands%n",
+        result.scenario(), result.operations(), result.durationMillis(),
+        result.throughputPerSec(), result.p50Millis(), result.p99Millis(), commands);
+    Assertions.assertTrue(commands > 0, "Expected some reports to fire rules");
+    Assertions.assertTrue(result.throughputPerSec() >= result.minThroughput(),
+        "Rules engine too slow: " + result.throughputPerSec() + " reports/s");
+    Assertions.assertTrue(result.p99Millis() <= result.maxP99Millis(),
+        "Rules engine p99 too high: " + result.p99Millis() + " ms");
+  }
+
+  private static DataReportBody report(int round) {
+    int step = round / NODES;
+    List<DataReportBody.SensorReading> readings = new ArrayList<>(SENSORS);
+    for (int sensor = 0; sensor < SENSORS; sensor++) {
+      readings.add(new DataReportBody.SensorReading("s" + sensor,
+          20 + 12 * Math.sin(step / 50.0 + sensor + round % NODES), null, null, null, null));
+    }
+    return new DataReportBody(readings, null, null);
+  }
+}
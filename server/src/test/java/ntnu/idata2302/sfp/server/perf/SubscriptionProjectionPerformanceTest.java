@@ -0,0 +1,151 @@
+package ntnu.idata2302.sfp.server.perf;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import ntnu.idata2302.sfp.library.SmartFarmingProtocol;
+import ntnu.idata2302.sfp.library.body.data.DataReportBody;
+import ntnu.idata2302.sfp.library.body.subscribe.SubscribeBody;
+import ntnu.idata2302.sfp.library.header.Header;
+import ntnu.idata2302.sfp.library.header.MessageTypes;
+import ntnu.idata2302.sfp.server.entity.DeadbandPolicy;
+import ntnu.idata2302.sfp.server.entity.Subscription;
+import ntnu.idata2302.sfp.server.entity.SubscriptionFilter;
+import ntnu.idata2302.sfp.server.net.ServerContext;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Cost of report fan-out with filtered and deadband subscriptions.
+ *
+ * <ul>
+ *   <li><b>fanoutProjection</b>: a node with {@value #SENSORS} sensors reports
+ *       to {@value #SUBSCRIBERS} control panels. Most panels only track CO2 or
+ *       a handful of climate sensors; a few take everything. The same reports
+ *       are fanned out once with the filters and once with every panel
+ *       subscribed unfiltered, counting the bytes written and the number of
+ *       encodes.</li>
+ *   <li><b>fanoutDeadband</b>: the same node reports slowly drifting values to
+ *       {@value #DEADBAND_SUBSCRIBERS} panels using three deadband settings.
+ *       Measures the time per report of evaluating deadbands inline.</li>
+ * </ul>
+ */
+@Tag("perf")
+public class SubscriptionProjectionPerformanceTest {
+
+  private static final int SENSORS = 50;
+  private static final int SUBSCRIBERS = 100;
+  private static final int REPORTS = 1000;
+  private static final int SENSOR_NODE = 0x10000;
+  private static final int DEADBAND_SUBSCRIBERS = 5000;
+
+  // --------------------------- POSITIVE TESTS ---------------------------------- //
+
+  /**
+   * Filtered fan-out writes a fraction of the unfiltered bytes and encodes once per filter.
+   */
+  @Test
+  void fanout_50SensorNode_selectiveSubscribers_savesBytes_positive() {
+    // Arrange
+    CountingContext filtered = new CountingContext();
+    CountingContext unfiltered = new CountingContext();
+    SubscriptionFilter co2 = SubscriptionFilter.of(List.of("s0"), null);
+    SubscriptionFilter climate = SubscriptionFilter.of(List.of("s0", "s1", "s2", "s3"), null);
+    for (int cp = 0; cp < SUBSCRIBERS; cp++) {
+      SubscriptionFilter filter = cp < 60 ? co2 : cp < 90 ? climate : SubscriptionFilter.ALL;
+      filtered.setSubscription(new Subscription(2 + cp, SENSOR_NODE, filter));
+      unfiltered.setSubscription(new Subscription(2 + cp, SENSOR_NODE));
+    }
+
+    // Act
+    long start = System.nanoTime();
+    for (int i = 0; i < REPORTS; i++) {
+      filtered.sendToSubscribers(report(i));
+    }
+    long filteredNanos = System.nanoTime() - start;
+    for (int i = 0; i < REPORTS; i++) {
+      unfiltered.sendToSubscribers(report(i));
+    }
+
+    // Assert
+    double saved = 1 - (double) filtered.bytes / unfiltered.bytes;
+    System.out.printf("[perf] %-18s %d -> %d bytes (%.1f%% saved), %.1f us/report%n",
+        "fanoutProjection", unfiltered.bytes, filtered.bytes, saved * 100,
+        filteredNanos / 1000.0 / REPORTS);
+    Assertions.assertEquals((long) SUBSCRIBERS * REPORTS, filtered.frames);
+    Assertions.assertEquals(3L * REPORTS, filtered.distinctFrames);
+    Assertions.assertTrue(saved > 0.75, "Expected most bytes saved, saved " + saved);
+  }
+
+  /**
+   * Deadband evaluation for thousands of subscribers stays cheap because
+   * subscribers with equal settings are evaluated once.
+   */
+  @Test
+  void fanout_5000DeadbandSubscribers_evaluatedPerGroup_positive() {
+    // Arrange
+    CountingContext context = new CountingContext();
+    DeadbandPolicy[] policies = {
+        DeadbandPolicy.of(List.of(new SubscribeBody.Deadband(null, 0.5, null)), null),
+        DeadbandPolicy.of(List.of(new SubscribeBody.Deadband(null, null, 5.0)), 60_000),
+        DeadbandPolicy.of(List.of(new SubscribeBody.Deadband("s0", 0.1, null)), null)
+    };
+    for (int cp = 0; cp < DEADBAND_SUBSCRIBERS; cp++) {
+      context.setSubscription(new Subscription(2 + cp, SENSOR_NODE, SubscriptionFilter.ALL, 0,
+          policies[cp % policies.length]));
+    }
+    for (int i = 0; i < 100; i++) {
+      context.sendToSubscribers(report(i));
+    }
+
+    // Act
+    LatencyRecorder latencies = new LatencyRecorder();
+    long start = System.nanoTime();
+    for (int i = 0; i < REPORTS; i++) {
+      long reportStart = System.nanoTime();
+      context.sendToSubscribers(report(i));
+      latencies.record(System.nanoTime() - reportStart);
+    }
+    long elapsed = System.nanoTime() - start;
+
+    // Assert
+    PerfResult result = PerfResult.of(PerfBudget.of("fanoutDeadband", 200, 50),
+        REPORTS, elapsed, latencies);
+    System.out.printf("[perf] %-18s %8d ops in %6d ms  %10.1f ops/s  p50=%.2fms p99=%.2fms%n",
+        result.scenario(), result.operations(), result.durationMillis(),
+        result.throughputPerSec(), result.p50Millis(), result.p99Millis());
+    Assertions.assertTrue(result.throughputPerSec() >= result.minThroughput(),
+        "Deadband fan-out too slow: " + result.throughputPerSec() + " reports/s");
+    Assertions.assertTrue(result.p99Millis() <= result.maxP99Millis(),
+        "Deadband fan-out p99 too high: " + result.p99Millis() + " ms");
+  }
+
+  private static SmartFarmingProtocol report(int round) {
+    List<DataReportBody.SensorReading> readings = new ArrayList<>(SENSORS);
+    for (int sensor = 0; sensor < SENSORS; sensor++) {
+      readings.add(new DataReportBody.SensorReading("s" + sensor,
+          20 + Math.sin(round + sensor), 0.0, 100.0, "u", null));
+    }
+    Header header = new Header(new byte[]{'S', 'F', 'P'}, (byte) 1, MessageTypes.DATA_REPORT,
+        SENSOR_NODE, 0, 0, UUID.randomUUID());
+    return new SmartFarmingProtocol(header, new DataReportBody(readings, null, null));
+  }
+
+  private static class CountingContext extends ServerContext {
+    private long bytes;
+    private long frames;
+    private long distinctFrames;
+    private byte[] previous;
+
+    @Override
+    public void sendFrame(int nodeId, byte[] frame) {
+      bytes += frame.length;
+      frames++;
+      if (frame != previous) {
+        distinctFrames++;
+        previous = frame;
+      }
+    }
+  }
+}
@@ -0,0 +1,165 @@
+package ntnu.idata2302.sfp.server.perf;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.File;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import ntnu.idata2302.sfp.library.body.data.DataReportBody;
+import ntnu.idata2302.sfp.server.history.Samples;
+import ntnu.idata2302.sfp.server.tsdb.TimeSeriesStore;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Benchmarks of the persistent {@link TimeSeriesStore}.
+ *
+ * <ul>
+ *   <li><b>tsdbIngest</b>: 8 threads append reports of 1 000 nodes with 4 sensors
+ *       each until everything is flushed. Measures samples per second and the
+ *       latency of {@link TimeSeriesStore#append}, which includes backpressure.</li>
+ *   <li><b>tsdbScan</b>: full-range queries of every node. Measures samples
+ *       read per second and query latency.</li>
+ * </ul>
+ *
+ * <p>Results are written to {@code target/perf-results/tsdb-perf.json}; budgets
+ * can be overridden like those of {@link BrokerPerformanceTest}.</p>
+ */
+@Tag("perf")
+public class TimeSeriesStorePerformanceTest {
+
+  private static final int NODES = 1000;
+  private static final int SENSORS = 4;
+  private static final int REPORTS_PER_NODE = 250;
+  private static final int THREADS = 8;
+  private static final int FIRST_NODE = 0x10000;
+
+  private static final List<PerfResult> RESULTS = new ArrayList<>();
+
+  @TempDir
+  Path dir;
+
+  /**
+   * Write the JSON results.
+   */
+  @AfterAll
+  static void writeResults() throws Exception {
+    File resultsDir = new File(System.getProperty("sfp.perf.resultsDir", "target/perf-results"));
+    resultsDir.mkdirs();
+
+    Map<String, Object> report = new LinkedHashMap<>();
+    report.put("timestamp", Instant.now().toString());
+    report.put("javaVersion", System.getProperty("java.version"));
+    report.put("availableProcessors", Runtime.getRuntime().availableProcessors());
+    report.put("scenarios", RESULTS);
+
+    new ObjectMapper()
+        .enable(SerializationFeature.INDENT_OUTPUT)
+        .writeValue(new File(resultsDir, "tsdb-perf.json"), report);
+  }
+
+  // --------------------------- POSITIVE TESTS ---------------------------------- //
+
+  /**
+   * Sustained ingest followed by range scans over the written data.
+   */
+  @Test
+  void ingestAndScan_1000Nodes_withinBudget_positive() throws Exception {
+    long expectedSamples = (long) NODES * SENSORS * REPORTS_PER_NODE;
+
+    // Producers outrun the writer on purpose, so wait for room rather than drop
+    TimeSeriesStore.Config config = new TimeSeriesStore.Config(
+        TimeSeriesStore.DEFAULT_SEGMENT_BYTES, TimeSeriesStore.DEFAULT_RETENTION_MILLIS,
+        TimeSeriesStore.DEFAULT_QUEUE_CAPACITY, TimeSeriesStore.DEFAULT_COMPACT_AFTER_SEGMENTS,
+        60_000);
+    try (TimeSeriesStore store = TimeSeriesStore.open(dir, config)) {
+      // Act: ingest
+      LatencyRecorder appendLatencies = new LatencyRecorder();
+      ExecutorService producers = Executors.newFixedThreadPool(THREADS);
+      long start = System.nanoTime();
+      try {
+        List<Future<?>> done = new ArrayList<>();
+        for (int thread = 0; thread < THREADS; thread++) {
+          int first = thread;
+          done.add(producers.submit(() -> ingest(store, first, appendLatencies)));
+        }
+        for (Future<?> future : done) {
+          future.get();
+        }
+        store.flush();
+      } finally {
+        producers.shutdownNow();
+      }
+      long ingestNanos = System.nanoTime() - start;
+
+      // Act: scan
+      LatencyRecorder queryLatencies = new LatencyRecorder();
+      long scanned = 0;
+      start = System.nanoTime();
+      for (int node = 0; node < NODES; node++) {
+        long queryStart = System.nanoTime();
+        Map<String, Samples> result =
+            store.query(FIRST_NODE + node, null, Long.MIN_VALUE, Long.MAX_VALUE);
+        queryLatencies.record(System.nanoTime() - queryStart);
+        for (Samples samples : result.values()) {
+          scanned += samples.size();
+        }
+      }
+      long scanNanos = System.nanoTime() - start;
+
+      // Assert
+      Assertions.assertEquals(0, store.dropped(), "Reports dropped on a full queue");
+      Assertions.assertEquals(expectedSamples, scanned, "Samples lost between ingest and scan");
+      check(PerfResult.of(PerfBudget.of("tsdbIngest", 100_000, 50),
+          expectedSamples, ingestNanos, appendLatencies));
+      check(PerfResult.of(PerfBudget.of("tsdbScan", 500_000, 100),
+          scanned, scanNanos, queryLatencies));
+    }
+  }
+
+  /**
+   * Append every report of the nodes handled by one producer thread.
+   */
+  private static void ingest(TimeSeriesStore store, int thread, LatencyRecorder latencies) {
+    for (int round = 0; round < REPORTS_PER_NODE; round++) {
+      long time = 1_700_000_000_000L + round * 1000L;
+      for (int node = thread; node < NODES; node += THREADS) {
+        List<DataReportBody.SensorReading> readings = new ArrayList<>(SENSORS);
+        for (int sensor = 0; sensor < SENSORS; sensor++) {
+          double value = 20 + Math.round(Math.sin(round / 10.0 + node + sensor) * 100) / 10.0;
+          readings.add(new DataReportBody.SensorReading("s" + sensor, value,
+              null, null, null, null));
+        }
+        long appendStart = System.nanoTime();
+        store.append(FIRST_NODE + node, new DataReportBody(readings, null, null), time);
+        latencies.record(System.nanoTime() - appendStart);
+      }
+    }
+  }
+
+  private static void check(PerfResult result) {
+    synchronized (RESULTS) {
+      RESULTS.add(result);
+    }
+    System.out.printf("[perf] %-18s %8d ops in %6d ms  %10.1f ops/s  p50=%.2fms p99=%.2fms%n",
+        result.scenario(), result.operations(), result.durationMillis(),
+        result.throughputPerSec(), result.p50Millis(), result.p99Millis());
+
+    Assertions.assertTrue(result.throughputPerSec() >= result.minThroughput(),
+        result.scenario() + ": throughput " + result.throughputPerSec()
+            + "/s below budget " + result.minThroughput() + "/s");
+    Assertions.assertTrue(result.p99Millis() <= result.maxP99Millis(),
+        result.scenario() + ": p99 " + result.p99Millis()
+            + " ms above budget " + result.maxP99Millis() + " ms");
+  }
+}
@@ -0,0 +1,123 @@
+package ntnu.idata2302.sfp.server.rules;
+
+import ntnu.idata2302.sfp.library.body.command.CommandBody;
+import ntnu.idata2302.sfp.library.body.data.DataReportBody;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Test class for {@link RulesEngine} and {@link Rule}.
+ *
+ * <b>Positive Tests:</b>
+ * <ul>
+ *   <li>A rule fires on crossing its threshold and releases only past the hysteresis.</li>
+ *   <li>Rules jumped over by a large change fire in one command, the later rule winning.</li>
+ * </ul>
+ *
+ * <b>Negative Tests:</b>
+ * <ul>
+ *   <li>Reports of other nodes or sensors trigger nothing.</li>
+ *   <li>Malformed rule text is rejected.</li>
+ * </ul>
+ */
+public class RulesEngineTest {
+
+  private static final int NODE = 0x10000;
+
+  private static DataReportBody report(String sensorId, double value) {
+    return new DataReportBody(List.of(
+        new DataReportBody.SensorReading(sensorId, value, null, null, null, null)), null, null);
+  }
+
+  private static List<CommandBody.CommandPart> parts(CommandBody command) {
+    return command == null ? null : command.actuators();
+  }
+
+  // --------------------------- POSITIVE TESTS ---------------------------------- //
+
+  /**
+   * Verifies the hysteresis: the fan turns on above 30 and off only at or below 28.
+   */
+  @Test
+  void evaluate_hysteresis_firesOnTransitionsOnly_positive() {
+    // Arrange
+    RulesEngine engine = new RulesEngine();
+    engine.add(Rule.parse("hot: if Temperature > 30 on 0x10000 set FAN 80 else 0 hysteresis 2"));
+
+    // Act & Assert
+    assertNull(engine.evaluate(NODE, report("Temperature", 25)));
+    assertEquals(List.of(new CommandBody.CommandPart("FAN", 80)),
+        parts(engine.evaluate(NODE, report("Temperature", 31))));
+    assertNull(engine.evaluate(NODE, report("Temperature", 33)));
+    assertNull(engine.evaluate(NODE, report("Temperature", 29)));
+    assertEquals(List.of(new CommandBody.CommandPart("FAN", 0)),
+        parts(engine.evaluate(NODE, report("Temperature", 28))));
+    assertNull(engine.evaluate(NODE, report("Temperature", 30)));
+    assertEquals(List.of(new CommandBody.CommandPart("FAN", 80)),
+        parts(engine.evaluate(NODE, report("Temperature", 30.5))));
+  }
+
+  /**
+   * Verifies that a jump over several thresholds fires each of them, merged
+   * into one part per actuator, and that a "below" rule works the other way.
+   */
+  @Test
+  void evaluate_largeChange_mergesCommandsPerActuator_positive() {
+    // Arrange
+    RulesEngine engine = new RulesEngine();
+    engine.add(Rule.parse("warm: if Temperature > 25 on 65536 set FAN 40"));
+    engine.add(Rule.parse("hot: if Temperature > 30 on 65536 set FAN 80"));
+    engine.add(Rule.parse("cold: if Temperature < 10 on 65536 set HEATER 1 else 0"));
+    engine.evaluate(NODE, report("Temperature", 20));
+
+    // Act
+    CommandBody hot = engine.evaluate(NODE, report("Temperature", 35));
+    CommandBody frozen = engine.evaluate(NODE, report("Temperature", 5));
+    CommandBody mild = engine.evaluate(NODE, report("Temperature", 15));
+
+    // Assert
+    assertEquals(List.of(new CommandBody.CommandPart("FAN", 80)), parts(hot));
+    assertEquals(List.of(new CommandBody.CommandPart("HEATER", 1)), parts(frozen));
+    assertEquals(List.of(new CommandBody.CommandPart("HEATER", 0)), parts(mild));
+    assertEquals(3, engine.size());
+  }
+
+  // --------------------------- NEGATIVE TESTS ---------------------------------- //
+
+  /**
+   * Verifies that only reports of the watched node and sensor are evaluated.
+   */
+  @Test
+  void evaluate_otherNodeOrSensor_returnsNull_negative() {
+    // Arrange
+    RulesEngine engine = new RulesEngine();
+    engine.add(Rule.parse("hot: if Temperature > 30 on 0x10000 set FAN 80"));
+
+    // Act & Assert
+    assertNull(engine.evaluate(NODE + 1, report("Temperature", 40)));
+    assertNull(engine.evaluate(NODE, report("Humidity", 40)));
+    engine.remove("hot");
+    assertNull(engine.evaluate(NODE, report("Temperature", 40)));
+  }
+
+  /**
+   * Verifies that rule text with an unknown comparison or missing parts is rejected.
+   */
+  @Test
+  void parse_malformedRule_throws_negative() {
+    // Act & Assert
+    assertThrows(IllegalArgumentException.class,
+        () -> Rule.parse("hot: if Temperature >= 30 on 1 set FAN 80"));
+    assertThrows(IllegalArgumentException.class,
+        () -> Rule.parse("if Temperature > 30 on 1 set FAN 80"));
+    assertThrows(IllegalArgumentException.class,
+        () -> Rule.parse("hot: if Temperature > 30 on 1 set FAN"));
+    assertThrows(IllegalArgumentException.class,
+        () -> Rule.parse("hot: if Temperature > 30 on 1 set FAN 80 hysteresis -1"));
+  }
+}
@@ -0,0 +1,82 @@
+package ntnu.idata2302.sfp.server.tsdb;
+
+import ntnu.idata2302.sfp.server.history.Samples;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class for {@link Gorilla}.
+ *
+ * <b>Positive Tests:</b>
+ * <ul>
+ *   <li>Regular samples round-trip and compress to about two bits per sample.</li>
+ *   <li>Irregular timestamps and special values round-trip bit for bit.</li>
+ *   <li>A single sample round-trips.</li>
+ * </ul>
+ */
+public class GorillaTest {
+
+  // --------------------------- POSITIVE TESTS ---------------------------------- //
+
+  /**
+   * Verifies that a steady series costs close to one bit per timestamp and value.
+   */
+  @Test
+  void encode_regularSeries_roundTripsCompactly_positive() {
+    // Arrange
+    int n = 1000;
+    long[] ts = new long[n];
+    double[] values = new double[n];
+    for (int i = 0; i < n; i++) {
+      ts[i] = 1_700_000_000_000L + i * 1000L;
+      values[i] = 21.5;
+    }
+
+    // Act
+    byte[] payload = Gorilla.encode(ts, values, 0, n);
+    Samples decoded = Gorilla.decode(payload, n);
+
+    // Assert
+    assertArrayEquals(ts, decoded.timestamps());
+    assertArrayEquals(values, decoded.values());
+    assertTrue(payload.length <= 32 + n / 4, "payload was " + payload.length + " bytes");
+  }
+
+  /**
+   * Verifies every timestamp bucket and awkward doubles.
+   */
+  @Test
+  void encode_irregularSeries_roundTripsExactly_positive() {
+    // Arrange
+    long[] ts = {0, 10, 20, 100, 300, 2000, 2001, 1_000_000, 999_999, Long.MAX_VALUE / 2};
+    double[] values = {0.0, -0.0, 1.0, Double.NaN, Double.MAX_VALUE, Double.MIN_VALUE,
+        Double.NEGATIVE_INFINITY, 3.14159, 3.14158, -273.15};
+
+    // Act
+    Samples decoded = Gorilla.decode(Gorilla.encode(ts, values, 0, ts.length), ts.length);
+
+    // Assert
+    assertArrayEquals(ts, decoded.timestamps());
+    for (int i = 0; i < values.length; i++) {
+      assertEquals(Double.doubleToRawLongBits(values[i]),
+          Double.doubleToRawLongBits(decoded.values()[i]));
+    }
+  }
+
+  /**
+   * Verifies encoding of a sub-range holding one sample.
+   */
+  @Test
+  void encode_singleSample_roundTrips_positive() {
+    long[] ts = {5, 42};
+    double[] values = {1.0, 7.25};
+
+    Samples decoded = Gorilla.decode(Gorilla.encode(ts, values, 1, 2), 1);
+
+    assertArrayEquals(new long[]{42}, decoded.timestamps());
+    assertArrayEquals(new double[]{7.25}, decoded.values());
+  }
+}
@@ -0,0 +1,280 @@
+package ntnu.idata2302.sfp.server.tsdb;
+
+import ntnu.idata2302.sfp.library.body.data.DataReportBody;
+import ntnu.idata2302.sfp.server.history.Samples;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class for {@link TimeSeriesStore}.
+ *
+ * <b>Positive Tests:</b>
+ * <ul>
+ *   <li>Flushed readings can be queried by node, sensor and time range.</li>
+ *   <li>Readings survive closing and reopening the store.</li>
+ *   <li>A segment torn by a crash is recovered up to its last intact block.</li>
+ *   <li>Compaction keeps every reading and shrinks the data.</li>
+ *   <li>Retention deletes sealed segments older than the retention period.</li>
+ * </ul>
+ *
+ * <b>Negative Tests:</b>
+ * <ul>
+ *   <li>A directory cannot be opened by two writers.</li>
+ *   <li>A read-only store rejects appends.</li>
+ *   <li>Appending to a full queue drops and counts the report instead of blocking.</li>
+ * </ul>
+ */
+public class TimeSeriesStoreTest {
+
+  private static final int NODE = 0x10000;
+  private static final long DAY = 24 * 60 * 60 * 1000L;
+
+  @TempDir
+  Path dir;
+
+  // --------------------------- POSITIVE TESTS ---------------------------------- //
+
+  /**
+   * Verifies filtering of a query by node, sensor and time range.
+   */
+  @Test
+  void query_filtersByNodeSensorAndRange_positive() throws Exception {
+    try (TimeSeriesStore store = TimeSeriesStore.open(dir, TimeSeriesStore.Config.defaults())) {
+      // Arrange
+      for (int t = 1; t <= 5; t++) {
+        store.append(NODE, report(reading("temp", t), reading("hum", 10 * t)), t * 1000L);
+        store.append(NODE + 1, report(reading("temp", -t)), t * 1000L);
+      }
+      store.flush();
+
+      // Act
+      Map<String, Samples> result = store.query(NODE, List.of("temp"), 2000, 4000);
+
+      // Assert
+      assertEquals(Set.of("temp"), result.keySet());
+      assertArrayEquals(new long[]{2000, 3000, 4000}, result.get("temp").timestamps());
+      assertArrayEquals(new double[]{2, 3, 4}, result.get("temp").values());
+      assertEquals(Set.of(NODE, NODE + 1), store.nodeIds());
+    }
+  }
+
+  /**
+   * Verifies that readings are still there after a restart, across several segments.
+   */
+  @Test
+  void reopen_afterClose_keepsAllReadings_positive() throws Exception {
+    // Arrange
+    int reports = 150_000;
+    try (TimeSeriesStore store = TimeSeriesStore.open(dir, smallSegments(0))) {
+      for (int t = 0; t < reports; t++) {
+        store.append(NODE, report(reading("temp", Math.sin(t)), reading("hum", t % 7)), t);
+      }
+    }
+
+    // Act
+    try (TimeSeriesStore store = TimeSeriesStore.openReadOnly(dir)) {
+      Map<String, Samples> result = store.query(NODE, null, Long.MIN_VALUE, Long.MAX_VALUE);
+
+      // Assert
+      assertTrue(segmentCount() > 1);
+      assertEquals(List.of("temp", "hum"), List.copyOf(result.keySet()));
+      assertEquals(reports, result.get("temp").size());
+      assertEquals(Math.sin(12_345), result.get("temp").values()[12_345]);
+      assertEquals(reports - 1, result.get("hum").timestamps()[reports - 1]);
+    }
+  }
+
+  /**
+   * Verifies recovery of a segment that was never sealed and has a torn last block.
+   */
+  @Test
+  void open_tornSegment_recoversIntactBlocks_positive() throws Exception {
+    // Arrange: write two batches, then simulate a crash by dropping the index
+    // and corrupting the last block
+    try (TimeSeriesStore store = TimeSeriesStore.open(dir, TimeSeriesStore.Config.defaults())) {
+      store.append(NODE, report(reading("temp", 1)), 1000);
+      store.flush();
+      store.append(NODE, report(reading("temp", 2)), 2000);
+      store.flush();
+    }
+    Path segment = segments().get(0);
+    Files.delete(Segment.indexPath(segment));
+    try (FileChannel channel = FileChannel.open(segment,
+        StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      int lastBlock = lastBlockOffset(segment);
+      channel.write(java.nio.ByteBuffer.wrap(new byte[]{0x7F}), lastBlock + 20);
+    }
+
+    // Act
+    try (TimeSeriesStore store = TimeSeriesStore.open(dir, TimeSeriesStore.Config.defaults())) {
+      Samples temp = store.query(NODE, null, Long.MIN_VALUE, Long.MAX_VALUE).get("temp");
+
+      // Assert
+      assertArrayEquals(new long[]{1000}, temp.timestamps());
+      assertTrue(Files.exists(Segment.indexPath(segment)));
+    }
+  }
+
+  /**
+   * Verifies that compaction rewrites sealed segments without losing readings.
+   */
+  @Test
+  void compact_sealedSegment_keepsReadingsAndShrinks_positive() throws Exception {
+    // Arrange: one report per batch gives one tiny block per reading; closing seals the segment
+    int reports = 2_000;
+    try (TimeSeriesStore store = TimeSeriesStore.open(dir, smallSegments(0))) {
+      for (int t = 0; t < reports; t++) {
+        store.append(NODE, report(reading("temp", 20 + (t % 3)), reading("hum", 50)), t * 1000L);
+        store.flush();
+      }
+    }
+    Path sealed = segments().get(0);
+    int before = Segment.open(sealed, false).dataBytes();
+
+    try (TimeSeriesStore store = TimeSeriesStore.open(dir, smallSegments(0))) {
+      // Act
+      int replaced = store.compact();
+
+      // Assert
+      Samples temp = store.query(NODE, List.of("temp"), Long.MIN_VALUE, Long.MAX_VALUE).get("temp");
+      assertEquals(1, replaced);
+      assertEquals(reports, temp.size());
+      assertEquals(21.0, temp.values()[1]);
+      assertTrue(Segment.open(sealed, false).dataBytes() < before / 4);
+    }
+
+    // The compacted layout is read back after a restart as well
+    try (TimeSeriesStore store = TimeSeriesStore.openReadOnly(dir)) {
+      assertEquals(reports,
+          store.query(NODE, List.of("hum"), Long.MIN_VALUE, Long.MAX_VALUE).get("hum").size());
+    }
+  }
+
+  /**
+   * Verifies that old sealed segments are dropped while recent ones stay.
+   */
+  @Test
+  void enforceRetention_deletesExpiredSegments_positive() throws Exception {
+    try (TimeSeriesStore store = TimeSeriesStore.open(dir,
+        new TimeSeriesStore.Config(TimeSeriesStore.MIN_SEGMENT_BYTES, 30 * DAY, 1024, 0,
+            TimeSeriesStore.DEFAULT_APPEND_WAIT_MILLIS))) {
+      // Arrange: fill a few segments with old readings, then add a recent one
+      for (int t = 0; t < 300_000; t++) {
+        store.append(NODE, report(reading("temp", Math.random())), t);
+      }
+      store.flush();
+      long now = 100 * DAY;
+      store.append(NODE, report(reading("temp", 1)), now);
+      store.flush();
+
+      // Act
+      int deleted = store.enforceRetention(now);
+
+      // Assert
+      Samples temp = store.query(NODE, null, Long.MIN_VALUE, Long.MAX_VALUE).get("temp");
+      assertTrue(deleted > 0);
+      assertEquals(now, temp.timestamps()[temp.size() - 1]);
+      assertTrue(temp.size() < 300_001);
+    }
+  }
+
+  // --------------------------- NEGATIVE TESTS ---------------------------------- //
+
+  /**
+   * Verifies that a second writer is refused.
+   */
+  @Test
+  void open_twice_throws_negative() throws Exception {
+    try (TimeSeriesStore store = TimeSeriesStore.open(dir, TimeSeriesStore.Config.defaults())) {
+      assertThrows(IOException.class,
+          () -> TimeSeriesStore.open(dir, TimeSeriesStore.Config.defaults()));
+    }
+  }
+
+  /**
+   * Verifies that a read-only store cannot be written to.
+   */
+  @Test
+  void append_readOnly_throws_negative() throws Exception {
+    TimeSeriesStore.open(dir, TimeSeriesStore.Config.defaults()).close();
+
+    try (TimeSeriesStore store = TimeSeriesStore.openReadOnly(dir)) {
+      assertThrows(IllegalStateException.class,
+          () -> store.append(NODE, report(reading("temp", 1)), 1));
+    }
+  }
+
+  /**
+   * Verifies that, without a wait, reports arriving while the queue is full
+   * are dropped and counted, and that every accepted report is stored.
+   */
+  @Test
+  void append_queueFull_dropsAndCounts_negative() throws Exception {
+    TimeSeriesStore.Config tinyQueue = new TimeSeriesStore.Config(
+        TimeSeriesStore.MIN_SEGMENT_BYTES, TimeSeriesStore.DEFAULT_RETENTION_MILLIS, 1, 0, 0);
+    try (TimeSeriesStore store = TimeSeriesStore.open(dir, tinyQueue)) {
+      // Arrange
+      int reports = 10_000;
+      int accepted = 0;
+
+      // Act
+      for (int t = 1; t <= reports; t++) {
+        if (store.append(NODE, report(reading("temp", t)), t)) {
+          accepted++;
+        }
+      }
+      store.flush();
+
+      // Assert
+      assertTrue(store.dropped() > 0);
+      assertEquals(reports - accepted, store.dropped());
+      assertEquals(accepted,
+          store.query(NODE, List.of("temp"), 0, reports).get("temp").timestamps().length);
+    }
+  }
+
+  private static TimeSeriesStore.Config smallSegments(int compactAfter) {
+    return new TimeSeriesStore.Config(TimeSeriesStore.MIN_SEGMENT_BYTES,
+        TimeSeriesStore.DEFAULT_RETENTION_MILLIS, 1024, compactAfter,
+        TimeSeriesStore.DEFAULT_APPEND_WAIT_MILLIS);
+  }
+
+  private List<Path> segments() throws IOException {
+    try (Stream<Path> files = Files.list(dir)) {
+      return files.filter(p -> p.toString().endsWith(".seg")).sorted().toList();
+    }
+  }
+
+  private int segmentCount() throws IOException {
+    return segments().size();
+  }
+
+  private static int lastBlockOffset(Path segmentFile) throws IOException {
+    Segment segment = Segment.open(segmentFile, false);
+    List<Segment.IndexEntry> entries = segment.entries();
+    return entries.get(entries.size() - 1).offset();
+  }
+
+  private static DataReportBody report(DataReportBody.SensorReading... readings) {
+    return new DataReportBody(List.of(readings), null, null);
+  }
+
+  private static DataReportBody.SensorReading reading(String id, double value) {
+    return new DataReportBody.SensorReading(id, value, null, null, null, null);
+  }
+}
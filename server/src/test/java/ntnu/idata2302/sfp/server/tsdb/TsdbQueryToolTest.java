@@ -0,0 +1,91 @@
+package ntnu.idata2302.sfp.server.tsdb;
+
+import ntnu.idata2302.sfp.library.body.data.DataReportBody;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Test class for {@link TsdbQueryTool}.
+ *
+ * <b>Positive Tests:</b>
+ * <ul>
+ *   <li>Without a node id, the stored node ids are listed.</li>
+ *   <li>A node query prints the selected readings as CSV.</li>
+ * </ul>
+ *
+ * <b>Negative Tests:</b>
+ * <ul>
+ *   <li>An unknown option is rejected with exit code 2.</li>
+ * </ul>
+ */
+public class TsdbQueryToolTest {
+
+  @TempDir
+  Path dir;
+
+  private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+  private final ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+  // --------------------------- POSITIVE TESTS ---------------------------------- //
+
+  /**
+   * Verifies listing and CSV output.
+   */
+  @Test
+  void run_listAndQuery_printsReadings_positive() throws Exception {
+    // Arrange
+    try (TimeSeriesStore store = TimeSeriesStore.open(dir, TimeSeriesStore.Config.defaults())) {
+      for (int t = 1; t <= 3; t++) {
+        store.append(0x10000, new DataReportBody(List.of(
+            new DataReportBody.SensorReading("temp", 20.0 + t, null, null, null, null),
+            new DataReportBody.SensorReading("hum", 50.0, null, null, null, null)),
+            null, null), t * 1000L);
+      }
+    }
+
+    // Act
+    int listCode = run(dir.toString());
+    String listed = take(out);
+    int queryCode = run(dir.toString(), "0x10000", "--sensor", "temp",
+        "--from", "2000", "--to", "1970-01-01T00:00:03Z");
+
+    // Assert
+    assertEquals(0, listCode);
+    assertEquals("65536", listed.trim());
+    assertEquals(0, queryCode);
+    assertEquals(String.join(System.lineSeparator(),
+        "sensor,timestampMillis,value", "temp,2000,22.0", "temp,3000,23.0"), take(out).trim());
+  }
+
+  // --------------------------- NEGATIVE TESTS ---------------------------------- //
+
+  /**
+   * Verifies that bad arguments print usage.
+   */
+  @Test
+  void run_unknownOption_returnsUsageError_negative() {
+    int code = run(dir.toString(), "1", "--bogus", "x");
+
+    assertEquals(2, code);
+    assertEquals(true, take(err).contains("Usage"));
+  }
+
+  private int run(String... args) {
+    return TsdbQueryTool.run(args, new PrintStream(out, true, StandardCharsets.UTF_8),
+        new PrintStream(err, true, StandardCharsets.UTF_8));
+  }
+
+  private static String take(ByteArrayOutputStream stream) {
+    String text = stream.toString(StandardCharsets.UTF_8);
+    stream.reset();
+    return text;
+  }
+}
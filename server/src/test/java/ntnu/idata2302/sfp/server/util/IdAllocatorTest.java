@@ -0,0 +1,168 @@
+package ntnu.idata2302.sfp.server.util;
+
+import ntnu.idata2302.sfp.library.node.NodeIds;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class for {@link IdAllocator}.
+ *
+ * <b>Positive Tests:</b>
+ * <ul>
+ *   <li>Control panel and sensor node ids come from their own NodeIds ranges.</li>
+ *   <li>Allocated ids are unique.</li>
+ *   <li>Released ids are reused only after the quarantine period.</li>
+ *   <li>Snapshot and restore reproduce the allocation state.</li>
+ * </ul>
+ *
+ * <b>Negative Tests:</b>
+ * <ul>
+ *   <li>Releasing an id that was never allocated returns false.</li>
+ *   <li>Releasing an id twice returns false the second time.</li>
+ *   <li>Allocating from an exhausted range throws IllegalStateException.</li>
+ * </ul>
+ */
+public class IdAllocatorTest {
+
+  private final AtomicLong now = new AtomicLong(1_000);
+
+  // --------------------------- POSITIVE TESTS ---------------------------------- //
+
+  /**
+   * Verifies that ids respect the NodeIds ranges and start at the bottom of each range.
+   */
+  @Test
+  void allocate_usesRangePerNodeType_positive() {
+    // Arrange
+    IdAllocator allocator = new IdAllocator();
+
+    // Act
+    int controlPanel = allocator.allocateControlPanel();
+    int sensorNode = allocator.allocateSensorNode();
+
+    // Assert
+    assertEquals(0x00000002, controlPanel);
+    assertEquals(0x00010000, sensorNode);
+    assertTrue(NodeIds.isControlPanel(controlPanel));
+    assertTrue(NodeIds.isSensorNode(sensorNode));
+  }
+
+  /**
+   * Verifies that many allocations never hand out the same id twice.
+   */
+  @Test
+  void allocate_manyIds_areUnique_positive() {
+    // Arrange
+    IdAllocator allocator = new IdAllocator();
+    Set<Integer> seen = new HashSet<>();
+
+    // Act
+    for (int i = 0; i < 100_000; i++) {
+      seen.add(allocator.allocateSensorNode());
+    }
+
+    // Assert
+    assertEquals(100_000, seen.size());
+  }
+
+  /**
+   * Verifies that a released id stays unusable until the quarantine has passed
+   * and is then reused before higher ids.
+   */
+  @Test
+  void release_reusesIdOnlyAfterQuarantine_positive() {
+    // Arrange
+    IdAllocator allocator = new IdAllocator(5_000, now::get);
+    int first = allocator.allocateSensorNode();
+    allocator.allocateSensorNode();
+
+    // Act
+    allocator.release(first);
+    int duringQuarantine = allocator.allocateSensorNode();
+    now.addAndGet(5_000);
+    int afterQuarantine = allocator.allocateSensorNode();
+
+    // Assert
+    assertNotEquals(first, duringQuarantine);
+    assertEquals(first, afterQuarantine);
+  }
+
+  /**
+   * Verifies that a restored allocator continues where the snapshot left off
+   * and keeps quarantined ids unusable.
+   */
+  @Test
+  void snapshotAndRestore_reproducesState_positive() {
+    // Arrange
+    IdAllocator original = new IdAllocator(5_000, now::get);
+    int kept = original.allocateControlPanel();
+    int released = original.allocateControlPanel();
+    original.release(released);
+
+    // Act
+    IdAllocator restored = new IdAllocator(5_000, now::get);
+    restored.restore(original.snapshot());
+    int next = restored.allocateControlPanel();
+
+    // Assert
+    assertTrue(restored.isInUse(kept));
+    assertTrue(restored.isInUse(released));
+    assertNotEquals(kept, next);
+    assertNotEquals(released, next);
+  }
+
+  // --------------------------- NEGATIVE TESTS ---------------------------------- //
+
+  /**
+   * Verifies that releasing ids that were never handed out is rejected.
+   */
+  @Test
+  void release_unknownId_returnsFalse_negative() {
+    IdAllocator allocator = new IdAllocator();
+
+    assertFalse(allocator.release(0x00010005));
+    assertFalse(allocator.release(NodeIds.SERVER));
+  }
+
+  /**
+   * Verifies that a double release is detected instead of queuing the id twice.
+   */
+  @Test
+  void release_twice_returnsFalse_negative() {
+    // Arrange
+    IdAllocator allocator = new IdAllocator();
+    int id = allocator.allocateControlPanel();
+
+    // Act
+    boolean first = allocator.release(id);
+    boolean second = allocator.release(id);
+
+    // Assert
+    assertTrue(first);
+    assertFalse(second);
+  }
+
+  /**
+   * Verifies that the control panel range cannot overflow into the sensor node range.
+   */
+  @Test
+  void allocateControlPanel_exhaustedRange_throws_negative() {
+    // Arrange
+    IdAllocator allocator = new IdAllocator();
+    for (int id = 0x00000002; id <= 0x0000FFFF; id++) {
+      allocator.allocateControlPanel();
+    }
+
+    // Act & Assert
+    assertThrows(IllegalStateException.class, allocator::allocateControlPanel);
+  }
+}